@@ -1,30 +1,447 @@
 import controller.ATMController;
+import model.account.HotAccount;
 import repository.DatabaseConnection;
 import repository.DatabaseManager;
+import repository.DatabaseOperation;
+import repository.SchemaLayout;
+import repository.WorkPriority;
+import repository.allocation.AccountNumberAllocator;
+import repository.allocation.SequenceTable;
+import repository.archive.ArchivedHistoryDatabaseManager;
+import repository.archive.LedgerArchiver;
+import repository.archive.SegmentStore;
+import repository.bloom.BloomFilterDatabaseManager;
+import repository.cdc.ChangeCaptureDatabaseManager;
+import repository.cdc.ChangeRing;
+import repository.cdc.OverflowPolicy;
+import repository.coalesce.CoalescingDatabaseManager;
+import repository.credential.CredentialVerifier;
+import repository.credential.PinHasher;
+import repository.credential.VerifiedCredentialCache;
+import repository.dashboard.ActivityCounters;
+import repository.dashboard.DashboardDatabaseManager;
+import repository.dashboard.DashboardReconciler;
+import repository.eventsource.EventSourcedDatabaseManager;
+import repository.eventsource.ReplayResult;
 import repository.exception.DatabaseException;
+import repository.hotspot.HeavyHitterTracker;
+import repository.hotspot.HotAccountDatabaseManager;
+import repository.limit.AdaptiveConcurrencyLimiter;
+import repository.limit.ConcurrencyLimitedDatabaseManager;
+import repository.migration.AtmSchema;
+import repository.migration.LayoutSwitch;
+import repository.migration.MigrationResult;
+import repository.migration.SchemaMigrator;
+import repository.offline.JournalReplayer;
+import repository.offline.OfflineJournal;
+import repository.offline.StoreAndForwardDatabaseManager;
+import repository.resilience.CircuitBreaker;
+import repository.resilience.ResilientDatabaseManager;
+import repository.resilience.RetryPolicy;
+import repository.schedule.ClassPolicy;
+import repository.schedule.PriorityScheduler;
+import repository.schedule.ScheduledDatabaseManager;
+import repository.search.BalanceIndexDatabaseManager;
+import repository.search.BalanceRangeIndex;
+import repository.search.HolderIndexDatabaseManager;
+import repository.search.HolderNameIndex;
+import repository.shard.HashShardRouter;
+import repository.shard.LoginDirectory;
+import repository.shard.RangeShardRouter;
+import repository.shard.ShardRouter;
+import repository.shard.ShardedDatabaseManager;
+import repository.warmup.HotSetSnapshot;
+import repository.warmup.WarmStartDatabaseManager;
+import repository.warmup.WarmUpResult;
 import service.AdminService;
 import service.CustomerService;
+import service.LoginService;
+import service.ratelimit.LoginRateLimiter;
 import ui.ATMView;
+import ui.IdleTimeoutReader;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.Scanner;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 
 public class ATMApplication {
 
-    public static void main(String[] args) throws DatabaseException {
+    //Where account data is stored. SPLIT keeps the often-updated balance in its own narrow table, away from the
+    //credentials that logins read; see SchemaLayout
+    private static final SchemaLayout SCHEMA_LAYOUT = SchemaLayout.SINGLE_TABLE;
+
+    //Where accounts are kept. With EVENT_SOURCED, they are held in memory on this host, rebuilt at startup from an
+    //append-only event log and its latest snapshot in EVENT_STORE_DIRECTORY, instead of being read from MySQL
+    private static final boolean EVENT_SOURCED = false;
+    private static final String EVENT_STORE_DIRECTORY = "event-store";
+
+    //With SHARDED, accounts are spread over the databases in SHARD_URLS instead of being kept in one: by ranges of
+    //SHARD_RANGE_SIZE account numbers, or by hashing the number when it is 0. The login directory at DIRECTORY_URL
+    //records which account owns each login and hands out account numbers for every shard. The shards keep their
+    //ledgers in full, since the archive only knows one database
+    private static final boolean SHARDED = false;
+    private static final List<String> SHARD_URLS = List.of(
+            "jdbc:mysql://localhost:3307/atm_shard_0", "jdbc:mysql://localhost:3308/atm_shard_1");
+    private static final int SHARD_RANGE_SIZE = 0;
+    private static final String DIRECTORY_URL = "jdbc:mysql://localhost:3307/atm_directory";
+
+    //How many PBKDF2 iterations a PIN hash costs. Raising it re-hashes each PIN at its owner's next login
+    private static final int PIN_HASH_ITERATIONS = PinHasher.DEFAULT_ITERATIONS;
+
+    //Identifies this terminal to the login rate limiter
+    private static final String TERMINAL_ID = "terminal-1";
+
+    //A logged-in user who leaves the terminal untouched this long is logged out
+    private static final long IDLE_TIMEOUT_MS = 2 * 60 * 1000;
+
+    //Where transactions taken while the database is unreachable are kept until they are replayed
+    private static final String OFFLINE_JOURNAL_DIRECTORY = "offline-journal";
+
+    //Where ledger rows older than the retention window are kept once they leave the transactions table
+    private static final String LEDGER_ARCHIVE_DIRECTORY = "ledger-archive";
+
+    //The accounts that were hottest at the last shutdown, read first at the next start
+    private static final String HOT_SET_SNAPSHOT = "hot-accounts.snapshot";
+
+    public static void main(String[] args) throws DatabaseException, IOException {
+
+        long started = System.nanoTime();
 
         //Necessary objects are initialized, including database manager and services.
-        //StandardCharsets.UTF_8 guarantees that the program will always interpret input using UTF_8
-        Scanner scanner = new Scanner(System.in, StandardCharsets.UTF_8);
+        //StandardCharsets.UTF_8 guarantees that the program will always interpret input using UTF_8. Input goes
+        //through an IdleTimeoutReader, so a prompt in an idle session gives up instead of waiting forever
+        IdleTimeoutReader input = new IdleTimeoutReader(
+                new InputStreamReader(System.in, StandardCharsets.UTF_8), IDLE_TIMEOUT_MS);
         DatabaseConnection db_connection = new DatabaseConnection(
                 "jdbc:mysql://localhost:3307/atm_db", "root", "Joyful#83900");
-        DatabaseManager db_manager = new DatabaseManager(db_connection);
+        ATMView view = new ATMView(input);
+
+        //Every database is brought up to date before anything queries it: the one database, or each shard and the
+        //login directory
+        List<DatabaseConnection> account_databases = !SHARDED ? List.of(db_connection) : SHARD_URLS.stream()
+                .map(url -> new DatabaseConnection(url, db_connection.username(), db_connection.password())).toList();
+        DatabaseConnection directory_connection = new DatabaseConnection(DIRECTORY_URL, db_connection.username(),
+                db_connection.password());
+        for (DatabaseConnection account_database : account_databases) {
+
+            prepareAccountDatabase(account_database, view);
+        }
+        if (SHARDED) {
+
+            migrate(new SchemaMigrator(directory_connection, AtmSchema.DIRECTORY_MIGRATIONS,
+                    AtmSchema.DIRECTORY_REQUIRED_INDEXES), view);
+        }
+
+        //PINs are checked against salted hashes after the account is found by login. A login that succeeded in
+        //the last 5 minutes is remembered (for up to 10,000 logins), so a repeat login skips the expensive hash.
+        //Hashing and checking happen in the services, outside every repository call, so the KDF never holds a
+        //connection or a concurrency permit
+        PinHasher pin_hasher = new PinHasher(PIN_HASH_ITERATIONS);
+        CredentialVerifier credentials = new CredentialVerifier(pin_hasher,
+                new VerifiedCredentialCache(10_000, 5 * 60 * 1000));
+
+        //Accounts are read from the one database, or from the shard their account number is routed to
+        DatabaseManager base_manager;
+        if (!SHARDED) {
+
+            base_manager = new DatabaseManager(db_connection, SCHEMA_LAYOUT);
+        }
+        else {
+
+            List<DatabaseManager> shards = account_databases.stream()
+                    .map(account_database -> new DatabaseManager(account_database, SCHEMA_LAYOUT)).toList();
+            ShardRouter router = SHARD_RANGE_SIZE > 0 ? new RangeShardRouter(shards.size(), SHARD_RANGE_SIZE) :
+                    new HashShardRouter(shards.size());
+            base_manager = new ShardedDatabaseManager(new LoginDirectory(directory_connection), shards, router);
+            view.displayMessage("Accounts are spread over " + shards.size() + " shards by " + (SHARD_RANGE_SIZE > 0 ?
+                    "ranges of " + SHARD_RANGE_SIZE + " account numbers" : "account number hash"));
+        }
+
+        //In event-sourced mode, the store loads its latest snapshot and replays the events after it on 8 threads.
+        //A store with no accounts yet starts from the ones in MySQL. Every 5 minutes, and at shutdown, a new snapshot
+        //is written, so a restart never has more than a few minutes of events to replay
+        EventSourcedDatabaseManager event_store = null;
+        if (EVENT_SOURCED) {
+
+            event_store = new EventSourcedDatabaseManager(Path.of(EVENT_STORE_DIRECTORY), 8);
+            if (event_store.getAccountCount() == 0) {
+
+                view.displayMessage("Imported " + event_store.importFrom(base_manager) +
+                        " accounts from the database into the event store");
+            }
+
+            ReplayResult replay = event_store.getReplayResult();
+            view.displayMessage("Event store: " + event_store.getAccountCount() + " accounts; " +
+                    replay.snapshot_accounts() + " loaded from the snapshot at event " + replay.snapshot_sequence() +
+                    ", then " + replay.events_replayed() + " events replayed in " + replay.partitions() +
+                    " partition(s) in " + replay.duration_ms() + " ms (" +
+                    String.format("%.0f", replay.getEventsPerSecond()) + " events/s)");
+            event_store.start(5 * 60 * 1000);
+            base_manager = event_store;
+        }
+
+        //The number of calls in flight at once adapts to the database's latency (starting at 10, between 2 and
+        //50, aiming for 200ms). Customer calls may wait up to 500ms for a slot; admin and batch work is shed first
+        DatabaseManager limited_manager = new ConcurrencyLimitedDatabaseManager(base_manager,
+                new AdaptiveConcurrencyLimiter(10, 2, 50, 200, 500));
+
+        //The database manager is wrapped so that transient failures are retried (up to 3 tries, 50ms to 1s apart)
+        //and, after 5 failures in a row, calls fail fast for 30 seconds instead of piling onto an unhealthy database
+        DatabaseManager db_manager = new ResilientDatabaseManager(limited_manager,
+                new RetryPolicy(3, 50, 1000), new CircuitBreaker(5, 30_000));
+
+        //No terminal query may run longer than 5 seconds; exports and the startup scan for the name index read every
+        //account, so they get a minute
+        for (DatabaseOperation operation : DatabaseOperation.values()) {
+
+            db_manager.setQueryTimeout(operation, 5);
+        }
+        db_manager.setQueryTimeout(DatabaseOperation.GET_ALL_ACCOUNTS, 60);
+        db_manager.setQueryTimeout(DatabaseOperation.SCAN_ACCOUNTS, 60);
+
+        //Calls queue for at most 16 slots, served by weighted fair queuing: customers get 8 turns, admins 3 and
+        //batch jobs 1 while all are waiting. Admins may hold at most 6 slots and batch jobs 2, so a big export never
+        //crowds out the terminals. A customer waits at most 2 seconds for a slot, an admin 10, a batch job a minute
+        db_manager = new ScheduledDatabaseManager(db_manager, new PriorityScheduler(16, Map.of(
+                WorkPriority.CUSTOMER, new ClassPolicy(8, 16, 2_000),
+                WorkPriority.ADMIN, new ClassPolicy(3, 6, 10_000),
+                WorkPriority.BATCH, new ClassPolicy(1, 2, 60_000))));
+
+        //Identical account lookups that arrive at the same time share one database read
+        db_manager = new CoalescingDatabaseManager(db_manager);
+
+        //Every write the database commits is published to a ring of 8,192 change events that downstream systems
+        //read at their own pace. A reader a whole ring behind loses new events rather than holding up a customer.
+        //It sits below the offline journal, so a transaction is published when it reaches the database, not when
+        //it is journaled
+        ChangeRing changes = new ChangeRing(8192, OverflowPolicy.DROP, 0);
+        db_manager = new ChangeCaptureDatabaseManager(db_manager, changes);
+
+        //Administrators list accounts by status and balance range from a skip list per status, filled from a
+        //streaming scan and moved by every committed balance, status and account change. It sits below the offline
+        //journal, like the change stream, so it follows the database rather than the journal
+        BalanceRangeIndex balance_index = new BalanceRangeIndex();
+        BalanceIndexDatabaseManager balance_manager = new BalanceIndexDatabaseManager(db_manager, balance_index);
+        view.displayMessage("Indexed the balances of " + balance_manager.rebuild() + " accounts (" +
+                balance_index.count("Active") + " active)");
+        db_manager = balance_manager;
+
+        //The admin dashboard reads the balance index's running totals per status, and today's deposits and
+        //withdrawals from counters moved by every committed transaction, so opening it runs no query. Every 30
+        //minutes both are brought back in line with the database, which also picks up other terminals' work
+        ActivityCounters activity = new ActivityCounters();
+        db_manager = new DashboardDatabaseManager(db_manager, activity);
+        DashboardReconciler reconciler = new DashboardReconciler(balance_manager, activity, db_manager);
+        activity.checkpoint(db_manager);
+        reconciler.start(30 * 60 * 1000);
+
+        //If the database can't be reached, logged-in customers can still deposit, and withdraw up to $200 an
+        //account. Their transactions wait in a journal on this terminal's disk, which is replayed 500 entries at a
+        //time once the database is back; the replayer checks for waiting entries every 2 seconds.
+        //Ledger rows stay in the transactions table for 13 whole months; older months are moved to compressed
+        //segment files once a day, deleting 500 rows per statement with a 50ms pause between statements. History
+        //reads look in both places, so customers never notice where a row is kept.
+        //The event store has no database to lose and keeps its ledger in memory, so it needs neither; shards keep
+        //their ledgers in full
+        OfflineJournal journal = null;
+        JournalReplayer replayer = null;
+        SegmentStore archive = null;
+        LedgerArchiver archiver = null;
+        if (event_store == null) {
+
+            journal = new OfflineJournal(Path.of(OFFLINE_JOURNAL_DIRECTORY));
+            replayer = new JournalReplayer(db_manager, journal, 500);
+            if (journal.getPendingCount() > 0) {
+
+                view.displayMessage(journal.getPendingCount() + " offline transactions are waiting to be replayed");
+            }
+            replayer.start(2_000);
+            db_manager = new StoreAndForwardDatabaseManager(db_manager, journal, replayer, 200);
+        }
+        if (event_store == null && !SHARDED) {
+
+            archive = new SegmentStore(Path.of(LEDGER_ARCHIVE_DIRECTORY));
+            archiver = new LedgerArchiver(db_connection, archive, 13, 500, 50);
+            archiver.start(24 * 60 * 60 * 1000);
+            db_manager = new ArchivedHistoryDatabaseManager(db_manager, archive);
+        }
+
+        //Before the first terminal input, the accounts that were hottest at the last shutdown are read on 8
+        //threads, so their first transactions find the database warm. The first uses of up to 10,000 accounts
+        //are then checked against what was warmed. It sits below the hot account tracker so that warm-up reads
+        //are not counted as uses
+        WarmStartDatabaseManager warm_manager = new WarmStartDatabaseManager(db_manager, 8, 10_000);
+        db_manager = warm_manager;
+
+        //The 20 most used accounts of the last hour are tracked, in 12 five-minute slices, from every database call
+        //that names an account. Counts can run over by 0.2% of all uses in the window,
+        //with 1% odds of being worse; numbers the Bloom filters below rule out at the admin prompts never get this far
+        HeavyHitterTracker hot_accounts = new HeavyHitterTracker(20, 0.002, 0.01, 60 * 60 * 1000, 12);
+        db_manager = new HotAccountDatabaseManager(db_manager, hot_accounts);
+
+        //Account numbers mistyped at the admin prompts, and new logins that are free, are recognized from Bloom
+        //filters sized for a million accounts at a 1% false-positive rate. The filters are filled from a streaming
+        //scan of the table, repeated every 10 minutes to pick up accounts other terminals created
+        BloomFilterDatabaseManager bloom_manager = new BloomFilterDatabaseManager(db_manager, 1_000_000, 0.01);
+        int scanned = bloom_manager.rebuild();
+        bloom_manager.start(10 * 60 * 1000);
+        view.displayMessage("Loaded " + scanned + " accounts into the lookup filters (" +
+                bloom_manager.getMemoryBytes() / 1024 + " KB, expected false-positive rate " +
+                String.format("%.2f", bloom_manager.getExpectedFalsePositiveRate() * 100) + "%)");
+        db_manager = bloom_manager;
+
+        //Administrators find accounts by any part of the holder's name from a trie of every name's words, filled
+        //from a streaming scan and kept up to date as accounts are created, renamed and deleted
+        HolderNameIndex holder_index = new HolderNameIndex();
+        HolderIndexDatabaseManager holder_manager = new HolderIndexDatabaseManager(db_manager, holder_index);
+        view.displayMessage("Indexed the names of " + holder_manager.rebuild() + " accounts (" +
+                holder_index.getNodeCount() + " trie nodes)");
+        db_manager = holder_manager;
+
         CustomerService customer_service = new CustomerService(db_manager);
-        AdminService admin_service = new AdminService(db_manager);
+        //New account numbers are handed out from blocks of 100 reserved in the database, so creating an account
+        //does not wait on AUTO_INCREMENT, and bulk creation can number its accounts before inserting them. The event
+        //store hands out its own numbers, and has no sub-balances
+        AccountNumberAllocator allocator = new AccountNumberAllocator(event_store != null ? event_store :
+                new SequenceTable(SHARDED ? directory_connection : db_connection, "account_num"), 100);
+        AdminService admin_service = AdminService.builder(db_manager, pin_hasher)
+                .allocator(allocator)
+                .hotAccounts(hot_accounts)
+                .holderIndex(holder_index)
+                .balanceIndex(balance_index)
+                .activity(activity)
+                .subBalancesAvailable(event_store == null)
+                .build();
+        LoginService login_service = new LoginService(db_manager, credentials);
+
+        //Each login may be tried 5 times in quick succession and then once every 10 seconds, and each terminal 20
+        //times and then once a second. 5 failures in a row lock the login for a minute, doubling with every further
+        //lockout up to a day. Up to 100,000 logins and terminals are tracked, each forgotten after an idle hour
+        LoginRateLimiter rate_limiter = new LoginRateLimiter(5, 10_000, 20, 1_000, 5, 60_000, 24 * 60 * 60 * 1000,
+                100_000, 60 * 60 * 1000);
+
+        //A snapshot that can't be read only costs the warm-up; the host starts cold instead
+        List<HotAccount> hot_set;
+        try {
+
+            hot_set = HotSetSnapshot.read(Path.of(HOT_SET_SNAPSHOT));
+        }
+        catch (IOException error) {
+
+            view.displayError("The hot account snapshot could not be read (" + error.getMessage() +
+                    "); starting without warm-up");
+            hot_set = List.of();
+        }
+
+        //Accounts held in memory have nothing to warm
+        if (event_store != null) {
+
+            hot_set = List.of();
+        }
+        WarmUpResult warm_up = warm_manager.warm(hot_set);
+        view.displayMessage("Ready in " + (System.nanoTime() - started) / 1_000_000 + " ms; warmed " +
+                warm_up.loaded() + " of " + warm_up.requested() + " hot accounts in " + warm_up.duration_ms() + " ms");
 
-        //ATM interface and controller are initialized, and the controller starts the program
-        ATMView view = new ATMView(scanner);
-        ATMController controller = new ATMController(db_manager, customer_service, admin_service, view);
+        //The controller is initialized and starts the program
+        ATMController controller = new ATMController(login_service, customer_service, admin_service, view,
+                rate_limiter, TERMINAL_ID);
         controller.start();
+
+        //Whatever is still waiting is replayed at the next start
+        if (replayer != null) {
+
+            replayer.close();
+        }
+        if (archiver != null) {
+
+            archiver.close();
+        }
+        reconciler.close();
+        bloom_manager.close();
+
+        //The final snapshot covers every event, so the next start replays none
+        if (event_store != null) {
+
+            event_store.close();
+            view.displayMessage("Event store: " + event_store.getAppendedEvents() + " events appended, snapshot at " +
+                    "event " + event_store.getSnapshotSequence() + " (" + event_store.getSnapshotsWritten() +
+                    " snapshots written, " + event_store.getFailedSnapshots() + " failed)");
+        }
+        if (replayer != null && (replayer.getReplayedCount() > 0 || journal.getPendingCount() > 0)) {
+
+            view.displayMessage("Offline journal: " + replayer.getReplayedCount() + " replayed (" +
+                    String.format("%.0f", replayer.getReplayThroughput()) + "/s), " + replayer.getConflictCount() +
+                    " conflicts, " + journal.getPendingCount() + " waiting, oldest " + journal.getLagMs() / 1000 +
+                    " seconds old");
+        }
+
+        if (archiver != null && archiver.getArchivedRows() > 0) {
+
+            view.displayMessage("Ledger archive: " + archiver.getArchivedRows() + " rows archived, " +
+                    archiver.getDeletedRows() + " deleted from the table, " + archive.getSegmentCount() +
+                    " segments on disk");
+        }
+
+        //The hot set is kept for the next start. A host that saw no use in the last hour keeps the snapshot it
+        //had, since an empty one would warm nothing
+        List<HotAccount> hottest = hot_accounts.getTopK();
+        if (!hottest.isEmpty()) {
+
+            HotSetSnapshot.write(Path.of(HOT_SET_SNAPSHOT), hottest);
+            view.displayMessage("Hottest account: #" + hottest.get(0).account_num() + " with about " +
+                    hottest.get(0).estimated_count() + " uses in the last hour (" + hot_accounts.getRecordedCount() +
+                    " account uses recorded in all)");
+        }
+
+        if (warm_manager.getHits() + warm_manager.getMisses() > 0) {
+
+            view.displayMessage("Warm-up hit ratio: " + String.format("%.0f", warm_manager.getHitRatio() * 100) +
+                    "% of " + (warm_manager.getHits() + warm_manager.getMisses()) + " accounts used had been warmed");
+        }
+
+        if (changes.getDroppedCount() > 0) {
+
+            view.displayMessage("Change stream: " + changes.getPublishedCount() + " events published, " +
+                    changes.getDroppedCount() + " dropped because a reader fell behind");
+        }
+
+        if (controller.getTimedOutSessions() > 0) {
+
+            view.displayMessage(controller.getTimedOutSessions() + " session(s) were logged out after " +
+                    IDLE_TIMEOUT_MS / 1000 + " seconds of inactivity.");
+        }
+    }
+
+    private static void prepareAccountDatabase(DatabaseConnection db_connection, ATMView view)
+            throws DatabaseException {
+
+        //Migrations that already ran are skipped, and the indexes the login and history queries rely on are checked
+        //every time, so a missing one stops startup instead of turning every login into a table scan
+        migrate(new SchemaMigrator(db_connection, AtmSchema.MIGRATIONS, AtmSchema.REQUIRED_INDEXES), view);
+
+        //The account tables of the other layout are not written, so switching layout first copies every account
+        //into this one's tables, 10,000 account numbers per transaction
+        int copied = new LayoutSwitch(db_connection, 10_000).apply(SCHEMA_LAYOUT);
+        if (copied >= 0) {
+
+            view.displayMessage("Switched " + db_connection.url() + " to the " + SCHEMA_LAYOUT +
+                    " account layout; copied " + copied + " accounts");
+        }
+    }
+
+    private static void migrate(SchemaMigrator migrator, ATMView view) throws DatabaseException {
+
+        for (MigrationResult result : migrator.migrate()) {
+
+            if (result.applied()) {
+
+                view.displayMessage("Applied schema migration " + result.version() + " (" + result.description() +
+                        ") in " + result.duration_ms() + " ms");
+            }
+        }
+        migrator.verify();
     }
 }
@@ -2,39 +2,97 @@ package controller;
 
 import model.account.Account;
 import model.account.AccountInfo;
+import model.account.AccountList;
+import model.account.BalanceEntry;
+import model.account.BalanceRangePage;
+import model.account.BulkUpdateResult;
 import model.account.CreationResult;
+import model.account.Dashboard;
 import model.account.DeletionResult;
+import model.account.HolderMatch;
+import model.account.HolderSearchResult;
+import model.account.HotAccount;
+import model.account.NewAccount;
+import model.account.NewAccountList;
+import model.account.StatusTotals;
+import model.account.SubBalanceResult;
+import model.session.SessionContext;
+import model.transaction.ActivitySummary;
+import model.transaction.ActivityTotals;
+import model.transaction.DailyActivity;
 import model.transaction.DepositResult;
+import model.transaction.StatementResult;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
 import model.transaction.WithdrawalResult;
 import model.user.Administrator;
 import model.user.Customer;
+import model.user.LoginPermit;
 import model.user.User;
 import repository.DatabaseManager;
 import repository.exception.DatabaseException;
+import repository.exception.OfflineLimitExceededException;
 import service.AdminService;
 import service.CustomerService;
+import service.LoginService;
+import service.ratelimit.LoginRateLimiter;
 import ui.ATMView;
-
+import ui.SessionTimeoutException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ATMController {
 
-    //The controller acts as the bridge between the database/services  the interface. db_manager is simply used
-    //to assist in logging in
-    private final DatabaseManager db_manager;
+    //The controller acts as the bridge between the database/services  the interface. login_service is simply
+    //used to assist in logging in
+    private final LoginService login_service;
     private final CustomerService customer_service;
     private final AdminService admin_service;
     private final ATMView view;
 
+    //The session loaded at login. It holds the customer's recent activity, so the menus never have to ask the
+    //database for it again
+    private SessionContext session;
+
+    //Turns away login attempts that come too fast, before they reach the database; null means no limit. The
+    //terminal id tells this terminal's attempts apart from other terminals' in the limiter
+    private final LoginRateLimiter rate_limiter;
+    private final String terminal_id;
+
+    //Sessions ended because the user left the terminal idle
+    private final LongAdder timed_out_sessions = new LongAdder();
 
-    public ATMController(DatabaseManager db_manager, CustomerService customer_service,
+    //Shown when the database could not complete a request, even after the repository's own retries
+    static final String UNAVAILABLE_MESSAGE = "The bank's system is temporarily unavailable. Please try again later.";
+
+
+    public ATMController(LoginService login_service, CustomerService customer_service,
                          AdminService admin_service, ATMView view) {
 
-        this.db_manager = db_manager;
+        this(login_service, customer_service, admin_service, view, null, null);
+    }
+
+    public ATMController(LoginService login_service, CustomerService customer_service, AdminService admin_service,
+                         ATMView view, LoginRateLimiter rate_limiter, String terminal_id) {
+
+        this.login_service = login_service;
         this.customer_service = customer_service;
         this.admin_service = admin_service;
         this.view = view;
+        this.rate_limiter = rate_limiter;
+        this.terminal_id = terminal_id;
     }
 
 
@@ -43,37 +101,126 @@ public class ATMController {
         //Upon starting the program, the interface is told to display the welcome message
         view.displayMessage("Welcome to the ATM System!");
 
-        User user = null;
+        //The terminal returns to the login screen after a session times out, and only shuts down once a user exits
+        while (true) {
+
+            session = null;
+
+            //While the user has yet to be determined
+            while (session == null) {
+
+                //The user is prompted for login credentials which are stored
+                String login = view.promptLogin();
+                String pin = view.promptPin();
+
+                //Attempts that come too fast, or for a locked login, are refused here without a database query
+                if (rate_limiter != null) {
+
+                    LoginPermit permit = rate_limiter.tryAcquire(terminal_id, login);
+                    if (!permit.isAllowed()) {
+
+                        view.displayMessage(permitMessage(permit));
+                        continue;
+                    }
+                }
+
+                //The login_service is then called to see if there is a user that matches the credentials. The whole
+                //session (account, limits and recent activity) is loaded in the same round trip
+                try {
+
+                    session = login_service.login(login, pin);
+                }
+                catch (DatabaseException error) {
+
+                    //The database could not be reached; the terminal stays on the login screen rather than exiting
+                    view.displayError(UNAVAILABLE_MESSAGE);
+                    continue;
+                }
+
+                if (session == null) {
+
+                    //If not, the interface prints the invalid login message
+                    view.displayMessage("Invalid login or pin code. Please try again.\n");
+                }
+
+                //The limiter counts failures in a row towards a lockout
+                if (rate_limiter != null) {
+
+                    if (session == null) {
+
+                        rate_limiter.recordFailure(login);
+                    }
+                    else {
 
-        //While the user has yet to be determined
-        while (user == null) {
+                        rate_limiter.recordSuccess(login);
+                    }
+                }
+            }
 
-            //The user is prompted for login credentials which are stored
-            String login = view.promptLogin();
-            String pin = view.promptPin();
+            //From here on, a prompt left unanswered for too long ends the session
+            view.setIdleTimeoutArmed(true);
+            try {
 
-            //The db_manager is then called to see if there is a user that matches the credentials
-            user = db_manager.getUser(login, pin);
+                //If the user is not null, it is checked to see if it is either a Customer or Administrator.
+                //Depending on which of the two they are, they are sent to different menus
+                User user = session.getUser();
+                if (user instanceof Customer) {
 
-            if (user == null) {
+                    view.displayMessage("\nLogin Successful! Welcome, Customer.");
+                    handleCustomerMenu((Customer) user);
+                }
+                else if (user instanceof Administrator) {
+
+                    view.displayMessage("\nLogin Successful! Welcome, Administrator.");
+                    handleAdminMenu();
+                }
 
-                //If not, the interface prints the invalid login message
-                view.displayMessage("Invalid login or pin code. Please try again.\n");
+                return;
             }
-        }
+            catch (SessionTimeoutException timeout) {
 
-        //If the user is not null, it is checked to see if it is either a Customer or Administrator.
-        //Depending on which of the two they are, they are sent to different menus
-        if (user instanceof Customer) {
+                endTimedOutSession();
+            }
+            finally {
 
-            view.displayMessage("\nLogin Successful! Welcome, Customer.");
-            handleCustomerMenu((Customer) user);
+                view.setIdleTimeoutArmed(false);
+            }
         }
-        else if (user instanceof Administrator) {
+    }
+
+    void endTimedOutSession() {
+
+        //The user walked away. Their session is dropped, along with anything they had half-typed, so nothing of it
+        //is left for the next user, and the timeout is counted so it can be reported
+        session = null;
+        timed_out_sessions.increment();
+        view.resetInput();
+        view.displayMessage("\nYour session timed out due to inactivity and you have been logged out.\n");
+        view.displayMessage("Welcome to the ATM System!");
+    }
+
+    public long getTimedOutSessions() {
+
+        return timed_out_sessions.sum();
+    }
 
-            view.displayMessage("\nLogin Successful! Welcome, Administrator.");
-            handleAdminMenu();
+    static String permitMessage(LoginPermit permit) {
+
+        //The wait is rounded up, so the user is never told to try again before they can
+        long seconds = (permit.getRetryAfterMs() + 999) / 1000;
+
+        if (permit.getStatus() == LoginPermit.Status.LOCKED_OUT) {
+
+            return "Too many failed attempts. This login is locked for " + seconds + " seconds.\n";
         }
+
+        return "Too many login attempts. Please wait " + seconds + " seconds and try again.\n";
+    }
+
+    static String offlineLimitMessage(OfflineLimitExceededException error) {
+
+        return "The bank's system is offline, so withdrawals are limited for now. You can withdraw up to $" +
+                error.getRemaining() + " until it is back.";
     }
 
     void handleCustomerMenu(Customer customer) throws DatabaseException {
@@ -86,40 +233,60 @@ public class ATMController {
             view.displayCustomerMenu();
             choice = view.promptMenuChoice();
 
-            switch (choice) {
+            //Any request the database can't complete is reported, and the menu is shown again, so the session
+            //survives a database failure
+            try {
 
-                case 1:
+                switch (choice) {
 
-                    //If the choice is 1, the user wants to make a withdrawal from their account
-                    handleWithdrawal(customer);
-                    break;
+                    case 1:
 
-                case 2:
+                        //If the choice is 1, the user wants to make a withdrawal from their account
+                        handleWithdrawal(customer);
+                        break;
 
-                    //If the choice is 2, the user wants to make a deposit to their account
-                    handleDeposit(customer);
-                    break;
+                    case 2:
 
-                case 3:
+                        //If the choice is 2, the user wants to make a deposit to their account
+                        handleDeposit(customer);
+                        break;
 
-                    //If the choice is 3, the user wants to view their balance information
-                    handleBalanceInfo(customer);
-                    break;
+                    case 3:
 
-                case 4:
+                        //If the choice is 3, the user wants to view their balance information
+                        handleBalanceInfo(customer);
+                        break;
 
-                    //If the choice is 4, the user is finished using the application
-                    view.displayMessage("Thank you for using the ATM. Goodbye!");
-                    break;
+                    case 4:
 
-                default:
+                        //If the choice is 4, the user wants a summary of one month's activity
+                        handleMonthlyStatement(customer);
+                        break;
 
-                    //Any other integer choice will be displayed as invalid
-                    view.displayMessage("Invalid choice. Please try again.");
+                    case 5:
+
+                        //If the choice is 5, the user is finished using the application
+                        view.displayMessage("Thank you for using the ATM. Goodbye!");
+                        break;
+
+                    default:
+
+                        //Any other integer choice will be displayed as invalid
+                        view.displayMessage("Invalid choice. Please try again.");
+                }
+            }
+            catch (OfflineLimitExceededException error) {
+
+                //The database is down and the withdrawal is more than can be paid out without checking it
+                view.displayMessage(offlineLimitMessage(error));
+            }
+            catch (DatabaseException error) {
+
+                view.displayError(UNAVAILABLE_MESSAGE);
             }
         }
-        //The loop continues so long as the choice is not equal to 4
-        while (choice != 4);
+        //The loop continues so long as the choice is not equal to 5
+        while (choice != 5);
     }
 
     void handleAdminMenu() throws DatabaseException {
@@ -132,46 +299,109 @@ public class ATMController {
             view.displayAdminMenu();
             choice = view.promptMenuChoice();
 
-            switch (choice) {
+            //Any request the database can't complete is reported, and the menu is shown again, so the session
+            //survives a database failure
+            try {
 
-                case 1:
+                switch (choice) {
 
-                    //If the choice is 1, the user wants to create a new account
-                    handleAccountCreation();
-                    break;
+                    case 1:
 
-                case 2:
+                        //If the choice is 1, the user wants to create a new account
+                        handleAccountCreation();
+                        break;
 
-                    //If the choice is 2, the user wants to delete an existing account
-                    handleAccountDeletion();
-                    break;
+                    case 2:
 
-                case 3:
+                        //If the choice is 2, the user wants to delete an existing account
+                        handleAccountDeletion();
+                        break;
 
-                    //If the choice is 3, the user wants to update an existing account
-                    handleAccountUpdate();
-                    break;
+                    case 3:
 
-                case 4:
+                        //If the choice is 3, the user wants to update an existing account
+                        handleAccountUpdate();
+                        break;
 
-                    //If the choice is 4, the user wants to search for an existing account
-                    handleAccountSearch();
-                    break;
+                    case 4:
 
-                case 5:
+                        //If the choice is 4, the user wants to search for an existing account
+                        handleAccountSearch();
+                        break;
 
-                    //If the choice is 5, the user is finished using the application
-                    view.displayMessage("Thank you for using the ATM. Goodbye!");
-                    break;
+                    case 5:
 
-                default:
+                        //If the choice is 5, the user wants to export every account to a file
+                        handleAccountExport();
+                        break;
 
-                    //Any other integer choice will be displayed as invalid
-                    view.displayMessage("Invalid choice. Please try again.");
+                    case 6:
+
+                        //If the choice is 6, the user wants to split a busy account's balance into sub-balances
+                        handleSubBalanceSetup();
+                        break;
+
+                    case 7:
+
+                        //If the choice is 7, the user wants the bank's activity for a month, day by day
+                        handleActivityReport();
+                        break;
+
+                    case 8:
+
+                        //If the choice is 8, the user wants to see which accounts have been used most lately
+                        handleHotAccounts();
+                        break;
+
+                    case 9:
+
+                        //If the choice is 9, the user wants to look up or change many accounts listed in a file
+                        handleBulkOperations();
+                        break;
+
+                    case 10:
+
+                        //If the choice is 10, the user wants to find accounts by their holder's name
+                        handleHolderSearch();
+                        break;
+
+                    case 11:
+
+                        //If the choice is 11, the user wants the accounts with a status and a balance in a range
+                        handleBalanceRange();
+                        break;
+
+                    case 12:
+
+                        //If the choice is 12, the user wants an overview of the accounts and today's transactions
+                        handleDashboard();
+                        break;
+
+                    case 13:
+
+                        //If the choice is 13, the user wants to create many accounts listed in a file at once
+                        handleAccountImport();
+                        break;
+
+                    case 14:
+
+                        //If the choice is 14, the user is finished using the application
+                        view.displayMessage("Thank you for using the ATM. Goodbye!");
+                        break;
+
+                    default:
+
+                        //Any other integer choice will be displayed as invalid
+                        view.displayMessage("Invalid choice. Please try again.");
+                }
+            }
+            catch (DatabaseException error) {
+
+                view.displayError(UNAVAILABLE_MESSAGE);
             }
         }
-        //The loop continues so long as the choice is not equal to 5
-        while (choice != 5);
+        //The loop continues so long as the choice is not equal to 14
+        while (choice != 14);
     }
 
 
@@ -208,6 +438,7 @@ public class ATMController {
 
                 //The account information is acquired and printed to the terminal via the interface
                 Account account = result.account();
+                recordActivity(TransactionType.WITHDRAWAL, result.amount(), account.getBalance());
                 view.displayMessage("Cash Successfully Withdrawn.");
                 view.displayMessage("Account #" + account.getAccountNumber());
                 view.displayMessage("Date: " + formatted_date);
@@ -244,6 +475,7 @@ public class ATMController {
 
                 //The account information is acquired and printed to the terminal via the interface
                 Account account = result.account();
+                recordActivity(TransactionType.DEPOSIT, result.amount(), account.getBalance());
                 view.displayMessage("Cash Successfully Deposited.");
                 view.displayMessage("Account #" + account.getAccountNumber());
                 view.displayMessage("Date: " + formatted_date);
@@ -270,6 +502,17 @@ public class ATMController {
             view.displayMessage("Account #" + account.getAccountNumber());
             view.displayMessage("Date: " + formatted_date);
             view.displayMessage("Balance: $" + account.getBalance());
+
+            //The recent activity comes from the session loaded at login, so no query is needed
+            if (session != null && !session.getRecentActivity().isEmpty()) {
+
+                view.displayMessage("Recent Activity:");
+                for (TransactionRecord record : session.getRecentActivity()) {
+
+                    view.displayMessage(record.timestamp().format(formatter) + " " + record.type() + " $"
+                            + record.amount() + " (Balance: $" + record.balance_after() + ")");
+                }
+            }
         }
         else {
 
@@ -278,11 +521,73 @@ public class ATMController {
         }
     }
 
+    void handleMonthlyStatement(Customer customer) throws DatabaseException {
+
+        YearMonth month = view.promptMonth();
+        StatementResult result = customer_service.getMonthlyStatement(customer, month);
+
+        switch (result.getStatus()) {
+
+            case ACCOUNT_NOT_FOUND:
+
+                view.displayError("Account not found.");
+                break;
+
+            case NO_ACTIVITY:
+
+                view.displayMessage("No transactions in " + month + ".");
+                break;
+
+            case SUCCESS:
+
+                //One line per day that had transactions, then the month's totals
+                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+                ActivitySummary summary = result.getMonthSummary();
+
+                view.displayMessage("Statement for Account #" + customer.getAccount().getAccountNumber() + ", " +
+                        month);
+                for (ActivitySummary day : result.getDays()) {
+
+                    view.displayMessage(day.period_start().format(formatter) + " Deposits: " + day.deposit_count() +
+                            " ($" + day.deposit_total() + ") Withdrawals: " + day.withdrawal_count() + " ($" +
+                            day.withdrawal_total() + ") Closing Balance: $" + day.closing_balance());
+                }
+                view.displayMessage("Total Deposits: " + summary.deposit_count() + " ($" + summary.deposit_total() +
+                        ")");
+                view.displayMessage("Total Withdrawals: " + summary.withdrawal_count() + " ($" +
+                        summary.withdrawal_total() + ")");
+                view.displayMessage("Closing Balance: $" + summary.closing_balance());
+                break;
+        }
+    }
+
+    private void recordActivity(TransactionType type, int amount, int balance_after) {
+
+        //A completed transaction is added to the session's history so the balance screen stays up to date
+        if (session != null) {
+
+            session.recordActivity(new TransactionRecord(type, amount, balance_after, LocalDateTime.now()));
+        }
+    }
+
+    SessionContext getSession() {
+
+        return session;
+    }
+
     void handleAccountCreation() throws DatabaseException {
 
         //The user is prompted to enter account information via the interface; all of this information
         //is stored in respective variables
         String login = view.promptLogin();
+
+        //A login that is already taken is reported straight away, before the admin types in the rest
+        if (admin_service.isLoginTaken(login)) {
+
+            view.displayMessage("Account Creation Failed - Duplicate Entry.");
+            return;
+        }
+
         String pin = view.promptPin();
         String holder_name = view.promptHolderName();
         int balance = view.promptStartingBalance();
@@ -316,6 +621,62 @@ public class ATMController {
         }
     }
 
+    void handleAccountImport() throws DatabaseException {
+
+        //The accounts are listed in a file, one per line, and are all numbered and inserted together
+        String list_path = view.promptNewAccountListPath();
+
+        NewAccountList new_account_list;
+        try (Reader reader = Files.newBufferedReader(Path.of(list_path), StandardCharsets.UTF_8)) {
+
+            new_account_list = admin_service.readNewAccounts(reader);
+        }
+        catch (IOException error) {
+
+            view.displayError("Could not read new accounts: " + error.getMessage());
+            return;
+        }
+
+        if (new_account_list.skipped_lines() > 0) {
+
+            view.displayMessage("Skipped " + new_account_list.skipped_lines() + " lines that do not describe an " +
+                    "account.");
+        }
+        if (new_account_list.size() == 0) {
+
+            view.displayMessage("The file does not list any new accounts.");
+            return;
+        }
+
+        //Results come back in the order the accounts were listed, so each can be reported against its login
+        List<NewAccount> new_accounts = new_account_list.accounts();
+        List<CreationResult> results = admin_service.createAccounts(new_accounts);
+        int created = 0;
+        for (int i = 0; i < results.size(); i++) {
+
+            String login = new_accounts.get(i).login();
+            switch (results.get(i).getStatus()) {
+
+                case SUCCESS:
+
+                    created++;
+                    view.displayMessage(login + " - account #" + results.get(i).getAccountNumber());
+                    break;
+
+                case DUPLICATE_ACCOUNT:
+
+                    view.displayMessage(login + " - failed, duplicate entry");
+                    break;
+
+                case ERROR:
+
+                    view.displayMessage(login + " - failed, an error occurred");
+                    break;
+            }
+        }
+        view.displayMessage("Created " + created + " of " + results.size() + " accounts.");
+    }
+
     void handleAccountDeletion() throws DatabaseException {
 
         //The account number starts at -1 and stays that way until a valid account number is entered by the user
@@ -483,4 +844,362 @@ public class ATMController {
             }
         }
     }
+
+    void handleAccountExport() throws DatabaseException {
+
+        //The user is prompted for the file the accounts are to be written to
+        String export_path = view.promptExportPath();
+
+        try (Writer writer = Files.newBufferedWriter(Path.of(export_path), StandardCharsets.UTF_8)) {
+
+            int exported = admin_service.exportAccounts(writer);
+            view.displayMessage("Exported " + exported + " accounts to " + export_path + ".");
+        }
+        catch (IOException error) {
+
+            //The file could not be opened or written; the account data itself is unaffected
+            view.displayError("Could not write export file: " + error.getMessage());
+        }
+    }
+
+    void handleHolderSearch() {
+
+        //Any part of the name will do: every word entered must start a word of the holder's name, so "jo sm"
+        //finds John Smith. The matches are listed a page at a time
+        String query = view.promptHolderQuery();
+        int page = 0;
+
+        while (true) {
+
+            HolderSearchResult result = admin_service.searchHolders(query, page);
+            if (result.total_matches() == 0) {
+
+                view.displayMessage("No accounts found for \"" + query.strip() + "\".");
+                return;
+            }
+
+            int page_count = (result.total_matches() + AdminService.HOLDER_PAGE_SIZE - 1) /
+                    AdminService.HOLDER_PAGE_SIZE;
+            view.displayMessage("Accounts matching \"" + query.strip() + "\" (page " + (page + 1) + " of " +
+                    page_count + "):");
+            for (HolderMatch match : result.matches()) {
+
+                view.displayMessage("Account #" + match.account_num() + " - " + match.holder());
+            }
+
+            if (result.truncated()) {
+
+                view.displayMessage("Only the first " + result.total_matches() +
+                        " matches are listed. Enter more of the name to narrow the search.");
+            }
+            if (page_count == 1) {
+
+                return;
+            }
+
+            String action = view.promptPageAction();
+            if (action.equals("q")) {
+
+                return;
+            }
+            else if (action.equals("n") && page + 1 < page_count) {
+
+                page++;
+            }
+            else if (action.equals("p") && page > 0) {
+
+                page--;
+            }
+            else {
+
+                view.displayMessage(page == 0 ? "This is the first page." : "This is the last page.");
+            }
+        }
+    }
+
+    void handleBalanceRange() {
+
+        //For risk and operations checks such as active accounts below a balance, or disabled accounts still holding
+        //money. Each page starts after the last account of the one before, so the start of every page shown is kept
+        //to go back to
+        String status = view.promptNewStatus();
+        int min_balance = view.promptMinimumBalance();
+        int max_balance = view.promptMaximumBalance();
+        if (max_balance == -1) {
+
+            max_balance = Integer.MAX_VALUE;
+        }
+        else if (max_balance < min_balance) {
+
+            view.displayMessage("The highest balance cannot be below the lowest.");
+            return;
+        }
+
+        String range = max_balance == Integer.MAX_VALUE ? "of $" + min_balance + " or more" :
+                "from $" + min_balance + " to $" + max_balance;
+        List<BalanceEntry> page_starts = new ArrayList<>();
+        page_starts.add(null);
+
+        while (true) {
+
+            int page = page_starts.size() - 1;
+            BalanceRangePage result = admin_service.findByBalance(status, min_balance, max_balance,
+                    page_starts.get(page));
+            if (page == 0 && result.entries().isEmpty()) {
+
+                view.displayMessage("No " + status + " accounts with a balance " + range + ".");
+                return;
+            }
+
+            view.displayMessage(status + " accounts with a balance " + range + " (page " + (page + 1) + "):");
+            for (BalanceEntry entry : result.entries()) {
+
+                view.displayMessage("Account #" + entry.account_num() + " - $" + entry.balance());
+            }
+
+            if (page == 0 && !result.has_more()) {
+
+                return;
+            }
+
+            String action = view.promptPageAction();
+            if (action.equals("q")) {
+
+                return;
+            }
+            else if (action.equals("n") && result.has_more()) {
+
+                page_starts.add(result.last());
+            }
+            else if (action.equals("p") && page > 0) {
+
+                page_starts.remove(page);
+            }
+            else {
+
+                view.displayMessage(page == 0 ? "This is the first page." : "This is the last page.");
+            }
+        }
+    }
+
+    void handleDashboard() {
+
+        Dashboard dashboard = admin_service.getDashboard();
+        if (dashboard == null) {
+
+            view.displayMessage("The dashboard is not available on this terminal.");
+            return;
+        }
+
+        String checked = dashboard.checkpoint_at() == null ? "not yet checked against the database" :
+                "checked against the database at " +
+                        dashboard.checkpoint_at().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+        DailyActivity today = dashboard.today();
+        view.displayMessage("Dashboard for " + today.day().format(DateTimeFormatter.ofPattern("MM/dd/yyyy")) +
+                " (" + checked + "):");
+
+        for (StatusTotals status : dashboard.statuses()) {
+
+            view.displayMessage(status.status() + " accounts: " + status.accounts() + " holding $" +
+                    status.balance_total());
+        }
+        view.displayMessage("All accounts: " + dashboard.accounts() + " holding $" + dashboard.balance_total());
+        view.displayMessage("Deposits today: " + today.deposit_count() + " totalling $" + today.deposit_total());
+        view.displayMessage("Withdrawals today: " + today.withdrawal_count() + " totalling $" +
+                today.withdrawal_total());
+    }
+
+    void handleBulkOperations() throws DatabaseException {
+
+        //The accounts are listed in a file, one number per line, rather than typed in one at a time
+        String list_path = view.promptAccountListPath();
+
+        AccountList account_list;
+        try (Reader reader = Files.newBufferedReader(Path.of(list_path), StandardCharsets.UTF_8)) {
+
+            account_list = admin_service.readAccountList(reader);
+        }
+        catch (IOException error) {
+
+            view.displayError("Could not read account list: " + error.getMessage());
+            return;
+        }
+
+        if (account_list.skipped_lines() > 0) {
+
+            view.displayMessage("Skipped " + account_list.skipped_lines() + " lines that are not account numbers.");
+        }
+        if (account_list.size() == 0) {
+
+            view.displayMessage("The file does not list any account numbers.");
+            return;
+        }
+
+        view.displayBulkChoice();
+        int choice = view.promptMenuChoice();
+        switch (choice) {
+
+            case 1:
+
+                showAccounts(account_list.account_nums());
+                break;
+
+            case 2:
+
+                //Every listed account is given the same status; the holder's name is left as it is
+                reportBulkUpdate(admin_service.updateAccounts(account_list.account_nums(), "",
+                        view.promptNewStatus()));
+                break;
+
+            case 3:
+
+                String new_holder = view.promptNewHolderName();
+                if (new_holder.isBlank()) {
+
+                    view.displayMessage("No name entered. No accounts were changed.");
+                    break;
+                }
+                reportBulkUpdate(admin_service.updateAccounts(account_list.account_nums(), new_holder, ""));
+                break;
+
+            default:
+
+                view.displayMessage("Invalid choice. Please try again.");
+        }
+    }
+
+    private void showAccounts(int[] account_nums) throws DatabaseException {
+
+        Map<Integer, Account> accounts = admin_service.getAccounts(account_nums);
+        for (int account_num : account_nums) {
+
+            Account account = accounts.get(account_num);
+            if (account == null) {
+
+                view.displayMessage("Account #" + account_num + " - not found");
+            }
+            else {
+
+                view.displayMessage("Account #" + account_num + " - " + account.getHolderName() + " - $" +
+                        account.getBalance() + " - " + account.getStatus());
+            }
+        }
+        view.displayMessage("Found " + accounts.size() + " of " + account_nums.length + " accounts.");
+    }
+
+    private void reportBulkUpdate(List<BulkUpdateResult> results) {
+
+        //Only the accounts that were not changed are listed, so a long run of successes does not bury them
+        int updated = 0;
+        for (BulkUpdateResult result : results) {
+
+            switch (result.getStatus()) {
+
+                case UPDATED:
+
+                    updated++;
+                    break;
+
+                case NOT_FOUND:
+
+                    view.displayMessage("Account #" + result.getAccountNumber() + " - not found");
+                    break;
+
+                case FAILED:
+
+                    view.displayMessage("Account #" + result.getAccountNumber() + " - failed, please try again");
+                    break;
+            }
+        }
+        view.displayMessage("Updated " + updated + " of " + results.size() + " accounts.");
+    }
+
+    void handleActivityReport() throws DatabaseException {
+
+        YearMonth month = view.promptMonth();
+        List<ActivityTotals> days = admin_service.getActivityReport(month);
+
+        if (days.isEmpty()) {
+
+            view.displayMessage("No transactions in " + month + ".");
+            return;
+        }
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+        view.displayMessage("Activity Report for " + month);
+
+        ActivityTotals total = null;
+        for (ActivityTotals day : days) {
+
+            view.displayMessage(day.period_start().format(formatter) + " Accounts: " + day.active_accounts() +
+                    " Deposits: " + day.deposit_count() + " ($" + day.deposit_total() + ") Withdrawals: " +
+                    day.withdrawal_count() + " ($" + day.withdrawal_total() + ")");
+            total = total == null ? day : total.plus(day);
+        }
+
+        view.displayMessage("Total Deposits: " + total.deposit_count() + " ($" + total.deposit_total() + ")");
+        view.displayMessage("Total Withdrawals: " + total.withdrawal_count() + " ($" + total.withdrawal_total() +
+                ")");
+    }
+
+    void handleHotAccounts() {
+
+        //The accounts drawing the most requests are the ones worth pre-warming, moving to their own shard or
+        //splitting into sub-balances
+        List<HotAccount> hot_accounts = admin_service.getHotAccounts();
+        long window_minutes = admin_service.getHotAccountWindowMs() / 60_000;
+
+        if (hot_accounts.isEmpty()) {
+
+            view.displayMessage("No account activity in the last " + window_minutes + " minutes.");
+            return;
+        }
+
+        view.displayMessage("Most used accounts in the last " + window_minutes + " minutes:");
+        int rank = 1;
+        for (HotAccount hot_account : hot_accounts) {
+
+            view.displayMessage(rank++ + ". Account #" + hot_account.account_num() + " - about " +
+                    hot_account.estimated_count() + " requests");
+        }
+    }
+
+    void handleSubBalanceSetup() throws DatabaseException {
+
+        if (!admin_service.areSubBalancesAvailable()) {
+
+            view.displayMessage("Sub-balances are not available on this terminal.");
+            return;
+        }
+
+        //The administrator chooses the account and how many slots its balance is to be split across
+        int account_num = view.promptAccountNumber();
+        int slot_count = view.promptSlotCount(DatabaseManager.MAX_SUB_BALANCE_SLOTS);
+
+        SubBalanceResult result = admin_service.enableSubBalances(account_num, slot_count);
+
+        switch (result.getStatus()) {
+
+            case SUCCESS:
+
+                view.displayMessage("Account #" + account_num + " now uses " + slot_count + " sub-balances.");
+                break;
+
+            case ACCOUNT_NOT_FOUND:
+
+                view.displayMessage("An Account with this account number does not exist.");
+                break;
+
+            case ALREADY_ENABLED:
+
+                view.displayMessage("Account #" + account_num + " already uses sub-balances.");
+                break;
+
+            case INVALID_SLOT_COUNT:
+
+                view.displayMessage("The number of slots must be between 2 and " +
+                        DatabaseManager.MAX_SUB_BALANCE_SLOTS + ".");
+                break;
+        }
+    }
 }
@@ -40,6 +40,13 @@ public class Account {
     }
 
 
+    public void setBalance(int balance) {
+
+        //Used when the database reports the balance after a change, which can include other sessions' changes to
+        //an account with sub-balances
+        this.balance = balance;
+    }
+
     public void deposit(int amount) {
 
         //As long as the amount being added is greater than 0:
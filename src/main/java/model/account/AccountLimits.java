@@ -0,0 +1,7 @@
+package model.account;
+
+//Per-account limits on cash withdrawals. Accounts without a row in account_limits use the defaults
+public record AccountLimits(int daily_withdrawal_limit, int single_withdrawal_limit) {
+
+    public static final AccountLimits DEFAULT = new AccountLimits(1000, 500);
+}
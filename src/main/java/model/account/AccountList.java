@@ -0,0 +1,11 @@
+package model.account;
+
+//The account numbers read from an administrator's list file, each once and in the order first listed, and how many
+//lines were skipped because they were not an account number
+public record AccountList(int[] account_nums, int skipped_lines) {
+
+    public int size() {
+
+        return account_nums.length;
+    }
+}
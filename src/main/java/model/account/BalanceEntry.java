@@ -0,0 +1,5 @@
+package model.account;
+
+//An account found by a balance range query, with its balance when the query ran
+public record BalanceEntry(int account_num, int balance) {
+}
@@ -0,0 +1,15 @@
+package model.account;
+
+import java.util.List;
+
+//One page of a balance range query, lowest balance first. The next page starts after the last entry of this one,
+//so pages stay in step however many accounts change while they are read
+public record BalanceRangePage(List<BalanceEntry> entries, boolean has_more) {
+
+    public static final BalanceRangePage EMPTY = new BalanceRangePage(List.of(), false);
+
+    public BalanceEntry last() {
+
+        return entries.isEmpty() ? null : entries.get(entries.size() - 1);
+    }
+}
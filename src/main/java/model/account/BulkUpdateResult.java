@@ -0,0 +1,30 @@
+package model.account;
+
+public class BulkUpdateResult {
+
+    public enum Status {
+
+        UPDATED,
+        NOT_FOUND,
+        FAILED
+    }
+
+    private final BulkUpdateResult.Status status;
+    private final int account_number;
+
+    public BulkUpdateResult(BulkUpdateResult.Status status, int account_number) {
+
+        this.status = status;
+        this.account_number = account_number;
+    }
+
+    public BulkUpdateResult.Status getStatus() {
+
+        return status;
+    }
+
+    public int getAccountNumber() {
+
+        return account_number;
+    }
+}
@@ -0,0 +1,22 @@
+package model.account;
+
+import model.transaction.DailyActivity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//The administrator's overview: the accounts of each status and what they hold, and today's deposits and
+//withdrawals. checkpoint_at is when the figures were last checked against the database, or null if they have not
+//been yet
+public record Dashboard(List<StatusTotals> statuses, DailyActivity today, LocalDateTime checkpoint_at) {
+
+    public long accounts() {
+
+        return statuses.stream().mapToLong(StatusTotals::accounts).sum();
+    }
+
+    public long balance_total() {
+
+        return statuses.stream().mapToLong(StatusTotals::balance_total).sum();
+    }
+}
@@ -0,0 +1,5 @@
+package model.account;
+
+//An account whose holder's name matched a name search
+public record HolderMatch(int account_num, String holder) {
+}
@@ -0,0 +1,10 @@
+package model.account;
+
+import java.util.List;
+
+//One page of a name search, best matches first. total_matches counts every match on every page; when truncated is
+//set there were more matches than a search returns, and a longer name would narrow them down
+public record HolderSearchResult(List<HolderMatch> matches, int total_matches, boolean truncated) {
+
+    public static final HolderSearchResult EMPTY = new HolderSearchResult(List.of(), 0, false);
+}
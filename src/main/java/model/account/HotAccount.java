@@ -0,0 +1,6 @@
+package model.account;
+
+//An account among the most used in the recent window, with about how many times it was used. The count can be
+//somewhat high (see CountMinSketch), never low
+public record HotAccount(int account_num, long estimated_count) {
+}
@@ -0,0 +1,16 @@
+package model.account;
+
+//An account that is about to be created. account_num is 0 until a number has been assigned to it, and pin is the
+//plain pin until AdminService replaces it with its hash
+public record NewAccount(int account_num, String login, String pin, String holder, int balance, String status) {
+
+    public NewAccount withAccountNumber(int account_number) {
+
+        return new NewAccount(account_number, login, pin, holder, balance, status);
+    }
+
+    public NewAccount withPin(String new_pin) {
+
+        return new NewAccount(account_num, login, new_pin, holder, balance, status);
+    }
+}
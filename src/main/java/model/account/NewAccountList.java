@@ -0,0 +1,13 @@
+package model.account;
+
+import java.util.List;
+
+//The accounts read from an administrator's new-accounts file, in the order listed, and how many lines were skipped
+//because they did not describe a valid account
+public record NewAccountList(List<NewAccount> accounts, int skipped_lines) {
+
+    public int size() {
+
+        return accounts.size();
+    }
+}
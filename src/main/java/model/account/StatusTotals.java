@@ -0,0 +1,6 @@
+package model.account;
+
+//How many accounts have a status, and the sum of their balances
+public record StatusTotals(String status, long accounts, long balance_total) {
+
+}
@@ -0,0 +1,38 @@
+package model.account;
+
+public class SubBalanceResult {
+
+    public enum Status {
+
+        SUCCESS,
+        ACCOUNT_NOT_FOUND,
+        ALREADY_ENABLED,
+        INVALID_SLOT_COUNT
+    }
+
+    private final SubBalanceResult.Status status;
+    private final int account_number;
+    private final int slot_count;
+
+    public SubBalanceResult(SubBalanceResult.Status status, int account_number, int slot_count) {
+
+        this.status = status;
+        this.account_number = account_number;
+        this.slot_count = slot_count;
+    }
+
+    public SubBalanceResult.Status getStatus() {
+
+        return status;
+    }
+
+    public int getAccountNumber() {
+
+        return account_number;
+    }
+
+    public int getSlotCount() {
+
+        return slot_count;
+    }
+}
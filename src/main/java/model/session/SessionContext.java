@@ -0,0 +1,54 @@
+package model.session;
+
+import model.account.AccountLimits;
+import model.transaction.TransactionRecord;
+import model.user.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SessionContext {
+
+    //Everything the customer menus need, loaded at login in a single database round trip. Administrators have no
+    //account, so their session has no activity and no limits
+    private final User user;
+    private final List<TransactionRecord> recent_activity;
+    private final AccountLimits limits;
+    private final int activity_capacity;
+
+    public SessionContext(User user, List<TransactionRecord> recent_activity, AccountLimits limits,
+                          int activity_capacity) {
+
+        this.user = user;
+        this.recent_activity = new ArrayList<>(recent_activity);
+        this.limits = limits;
+        this.activity_capacity = activity_capacity;
+    }
+
+    public User getUser() {
+
+        return user;
+    }
+
+    public AccountLimits getLimits() {
+
+        return limits;
+    }
+
+    //Most recent first
+    public List<TransactionRecord> getRecentActivity() {
+
+        return List.copyOf(recent_activity);
+    }
+
+    public void recordActivity(TransactionRecord record) {
+
+        //Transactions made during the session are added to the front, so the history stays current without
+        //another query; the oldest entry falls off once the list is full
+        recent_activity.add(0, record);
+        if (recent_activity.size() > activity_capacity) {
+
+            recent_activity.remove(recent_activity.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package model.transaction;
+
+import java.time.LocalDate;
+
+//One account's deposits and withdrawals over a day or a month (see RollupPeriod), and its balance after the last
+//transaction of that period
+public record ActivitySummary(LocalDate period_start, int deposit_count, long deposit_total, int withdrawal_count,
+                              long withdrawal_total, int closing_balance) {
+
+    public long getNetChange() {
+
+        return deposit_total - withdrawal_total;
+    }
+}
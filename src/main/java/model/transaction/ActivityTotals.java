@@ -0,0 +1,16 @@
+package model.transaction;
+
+import java.time.LocalDate;
+
+//The bank's deposits and withdrawals over a day or a month, summed over every account that had any
+public record ActivityTotals(LocalDate period_start, int active_accounts, int deposit_count, long deposit_total,
+                             int withdrawal_count, long withdrawal_total) {
+
+    public ActivityTotals plus(ActivityTotals other) {
+
+        //Used to add up the totals of the same period from different shards
+        return new ActivityTotals(period_start, active_accounts + other.active_accounts,
+                deposit_count + other.deposit_count, deposit_total + other.deposit_total,
+                withdrawal_count + other.withdrawal_count, withdrawal_total + other.withdrawal_total);
+    }
+}
@@ -0,0 +1,9 @@
+package model.transaction;
+
+import java.time.LocalDate;
+
+//The bank's deposits and withdrawals so far on one day, as counts and dollar totals
+public record DailyActivity(LocalDate day, long deposit_count, long deposit_total, long withdrawal_count,
+                            long withdrawal_total) {
+
+}
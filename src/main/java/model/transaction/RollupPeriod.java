@@ -0,0 +1,9 @@
+package model.transaction;
+
+//The periods account activity is rolled up by: per calendar day, and per calendar month. A period is identified by
+//its first day
+public enum RollupPeriod {
+
+    DAY,
+    MONTH
+}
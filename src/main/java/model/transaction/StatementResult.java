@@ -0,0 +1,49 @@
+package model.transaction;
+
+import java.time.YearMonth;
+import java.util.List;
+
+public class StatementResult {
+
+    public enum Status {
+
+        SUCCESS,
+        NO_ACTIVITY,
+        ACCOUNT_NOT_FOUND
+    }
+
+    //month_summary is null unless the status is SUCCESS; days holds only the days that had transactions
+    private final StatementResult.Status status;
+    private final YearMonth month;
+    private final ActivitySummary month_summary;
+    private final List<ActivitySummary> days;
+
+    public StatementResult(StatementResult.Status status, YearMonth month, ActivitySummary month_summary,
+                           List<ActivitySummary> days) {
+
+        this.status = status;
+        this.month = month;
+        this.month_summary = month_summary;
+        this.days = List.copyOf(days);
+    }
+
+    public StatementResult.Status getStatus() {
+
+        return status;
+    }
+
+    public YearMonth getMonth() {
+
+        return month;
+    }
+
+    public ActivitySummary getMonthSummary() {
+
+        return month_summary;
+    }
+
+    public List<ActivitySummary> getDays() {
+
+        return days;
+    }
+}
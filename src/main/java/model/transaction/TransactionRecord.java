@@ -0,0 +1,8 @@
+package model.transaction;
+
+import java.time.LocalDateTime;
+
+//One entry of an account's transaction history: what happened, how much, and the balance it left behind
+public record TransactionRecord(TransactionType type, int amount, int balance_after, LocalDateTime timestamp) {
+
+}
@@ -0,0 +1,7 @@
+package model.transaction;
+
+public enum TransactionType {
+
+    DEPOSIT,
+    WITHDRAWAL
+}
@@ -0,0 +1,38 @@
+package model.user;
+
+public class LoginPermit {
+
+    public enum Status {
+
+        ALLOWED,
+        THROTTLED,
+        LOCKED_OUT
+    }
+
+    public static final LoginPermit ALLOWED = new LoginPermit(Status.ALLOWED, 0);
+
+    private final LoginPermit.Status status;
+    private final long retry_after_ms;
+
+    public LoginPermit(LoginPermit.Status status, long retry_after_ms) {
+
+        this.status = status;
+        this.retry_after_ms = retry_after_ms;
+    }
+
+    public LoginPermit.Status getStatus() {
+
+        return status;
+    }
+
+    public boolean isAllowed() {
+
+        return status == Status.ALLOWED;
+    }
+
+    //How long until another attempt may be made; 0 when the attempt is allowed
+    public long getRetryAfterMs() {
+
+        return retry_after_ms;
+    }
+}
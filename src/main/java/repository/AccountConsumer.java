@@ -0,0 +1,8 @@
+package repository;
+
+//Receives each customer account's number, holder, balance and status as DatabaseManager.scanAccounts() streams them
+@FunctionalInterface
+public interface AccountConsumer {
+
+    void accept(int account_num, String holder, int balance, String status);
+}
@@ -0,0 +1,8 @@
+package repository;
+
+//Receives the account number and login of each account as DatabaseManager.scanAccountKeys() streams them
+@FunctionalInterface
+public interface AccountKeyConsumer {
+
+    void accept(int account_num, String login);
+}
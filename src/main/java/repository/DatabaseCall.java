@@ -0,0 +1,10 @@
+package repository;
+
+import repository.exception.DatabaseException;
+
+//A single call into a DatabaseManager, passed to ForwardingDatabaseManager.invoke() so it can be wrapped
+@FunctionalInterface
+public interface DatabaseCall<T> {
+
+    T call() throws DatabaseException;
+}
@@ -1,5 +1,27 @@
 package repository;
 
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
 public record DatabaseConnection(String url, String username, String password) {
 
+    public Connection open() throws SQLException {
+
+        //Every class that talks to the database opens its connections here, so the driver is always registered
+        //first, whichever of them runs first at startup
+        try {
+
+            //Loads the MySQL JDBC driver class to ensure the driver is registered with DriverManager
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        }
+        catch (ClassNotFoundException error) {
+
+            //In the event of an error, the JDBC driver class can't be found
+            throw new RuntimeException(error);
+        }
+
+        //Uses the stored info to request a new connection
+        return DriverManager.getConnection(url, username, password);
+    }
 }
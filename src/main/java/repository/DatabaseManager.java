@@ -1,12 +1,33 @@
 package repository;
 
 import model.account.Account;
+import model.account.AccountLimits;
+import model.account.NewAccount;
+import model.session.SessionContext;
+import model.transaction.ActivitySummary;
+import model.transaction.ActivityTotals;
+import model.transaction.RollupPeriod;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
 import model.user.Administrator;
 import model.user.Customer;
 import model.user.User;
+import repository.exception.ConnectionUnavailableException;
 import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+import repository.offline.ReplayOutcome;
 
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class DatabaseManager {
 
@@ -14,51 +35,123 @@ public class DatabaseManager {
     //run MySQL queries
     private final DatabaseConnection db_connection;
 
+    //Which tables the account columns live in; see SchemaLayout
+    private final SchemaLayout layout;
+
+    //How many of the latest transactions are loaded into a customer's session at login
+    public static final int RECENT_ACTIVITY_LIMIT = 5;
+
+    //How many accounts a bulk creation inserts per batch and transaction
+    public static final int BULK_CHUNK_SIZE = 500;
+
+    //The most sub-balance slots an account may be split into
+    public static final int MAX_SUB_BALANCE_SLOTS = 64;
+
+    //An account with sub-balances keeps its money in account_balance_slots and 0 in its own balance column, so its
+    //balance is the sum of both. For every other account the subquery finds nothing and adds 0
+    private static final String TOTAL_BALANCE = "balance + COALESCE((SELECT SUM(s.balance) " +
+            "FROM account_balance_slots s WHERE s.account_num = a.account_num), 0) AS balance";
+
+    //Each committed transaction is added to its account's rollup rows for the day and the month it happened in
+    //(the current time when at is NULL). The closing balance is only replaced by a transaction at least as late as
+    //the one it came from, so an offline entry replayed after later ones does not overwrite the closing balance
+    private static final String DAILY_ROLLUP = rollupUpsert("account_daily_rollups", "day",
+            "DATE(COALESCE(?, CURRENT_TIMESTAMP(3)))");
+    private static final String MONTHLY_ROLLUP = rollupUpsert("account_monthly_rollups", "month",
+            "DATE_FORMAT(COALESCE(?, CURRENT_TIMESTAMP(3)), '%Y-%m-01')");
+
+    //Used when rollups are recomputed: the balance of a group's latest row (GROUP_CONCAT puts it first), and an
+    //upsert that replaces the stored row rather than adding to it
+    private static final String LATEST_BALANCE_AFTER = "CAST(SUBSTRING_INDEX(GROUP_CONCAT(balance_after " +
+            "ORDER BY created_at DESC, transaction_id DESC), ',', 1) AS SIGNED)";
+    private static final String LATEST_CLOSING_BALANCE = "CAST(SUBSTRING_INDEX(GROUP_CONCAT(closing_balance " +
+            "ORDER BY day DESC), ',', 1) AS SIGNED)";
+    private static final String ROLLUP_REPLACE = "ON DUPLICATE KEY UPDATE deposit_count = VALUES(deposit_count), " +
+            "deposit_total = VALUES(deposit_total), withdrawal_count = VALUES(withdrawal_count), " +
+            "withdrawal_total = VALUES(withdrawal_total), closing_balance = VALUES(closing_balance), " +
+            "closing_at = VALUES(closing_at)";
+
+    //Per-operation query timeouts in seconds. An operation without an entry has no timeout, as before
+    private final Map<DatabaseOperation, Integer> query_timeouts = new EnumMap<>(DatabaseOperation.class);
+
 
     public DatabaseManager(DatabaseConnection db_connection) {
 
+        this(db_connection, SchemaLayout.SINGLE_TABLE);
+    }
+
+    public DatabaseManager(DatabaseConnection db_connection, SchemaLayout layout) {
+
         this.db_connection = db_connection;
+        this.layout = layout;
+    }
+
+    //Managers that only route work to other managers (such as the sharded manager) do not own a connection
+    protected DatabaseManager() {
+
+        this.db_connection = null;
+        this.layout = SchemaLayout.SINGLE_TABLE;
     }
 
 
+    private static String rollupUpsert(String table, String period_column, String period_expression) {
+
+        return "INSERT INTO " + table + " (account_num, " + period_column + ", deposit_count, deposit_total, " +
+                "withdrawal_count, withdrawal_total, closing_balance, closing_at) " +
+                "VALUES (?, " + period_expression + ", ?, ?, ?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP(3))) " +
+                "ON DUPLICATE KEY UPDATE deposit_count = deposit_count + VALUES(deposit_count), " +
+                "deposit_total = deposit_total + VALUES(deposit_total), " +
+                "withdrawal_count = withdrawal_count + VALUES(withdrawal_count), " +
+                "withdrawal_total = withdrawal_total + VALUES(withdrawal_total), " +
+                "closing_balance = IF(VALUES(closing_at) >= closing_at, VALUES(closing_balance), closing_balance), " +
+                "closing_at = GREATEST(closing_at, VALUES(closing_at))";
+    }
+
     public Connection getConnection() throws SQLException {
 
-        try {
+        return db_connection.open();
+    }
 
-            //Loads the MySQL JDBC driver class to ensure the driver is registered with DriverManager
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        }
-        catch (ClassNotFoundException error) {
+    public void setQueryTimeout(DatabaseOperation operation, int seconds) {
 
-            //In the event of an error, the JDBC driver class can't be found
-            throw new RuntimeException(error);
-        }
+        //A slow database should fail the query after this many seconds instead of stalling the terminal forever
+        query_timeouts.put(operation, seconds);
+    }
+
+    private void applyQueryTimeout(Statement statement, DatabaseOperation operation) throws SQLException {
+
+        Integer seconds = query_timeouts.get(operation);
+        if (seconds != null && seconds > 0) {
 
-        //Uses stored info in db_connection to request a new connection
-        return DriverManager.getConnection(db_connection.url(), db_connection.username(), db_connection.password()
-        );
+            statement.setQueryTimeout(seconds);
+        }
     }
 
-    public User getUser(String login, String pin) throws DatabaseException {
+    public User getUser(String login) throws DatabaseException {
 
-        //PreparedStatements exist to execute queries with parameters that can be set dynamically
+        //PreparedStatements exist to execute queries with parameters that can be set dynamically. Only the columns
+        //that are read below are selected, rather than every column of the account. The account is found by login
+        //alone, through its unique index. The user comes back with the stored hash as its pin; checking a pin
+        //against it is left to the caller (see LoginService), so the connection is not held while the KDF runs
         try (Connection connection = getConnection();
              PreparedStatement query = connection.prepareStatement(
-                     "SELECT * FROM accounts WHERE login = ? AND pin = ?")) {
+                     "SELECT account_num, holder, " + TOTAL_BALANCE + ", status, role, pin FROM " +
+                             layout.getAccountSource() + " WHERE login = ?")) {
+
+            applyQueryTimeout(query, DatabaseOperation.GET_USER_BY_LOGIN);
 
-            //The first placeholder is replaced by the username, and the second placeholder is
-            //replaced by the pin code.
+            //The placeholder is replaced by the username
             query.setString(1, login);
-            query.setString(2, pin);
 
             //The result is stored in another java.sql object called the ResultSet
             ResultSet result = query.executeQuery();
 
-            //If there is at least one column in the result that is provided:
+            //If there is a row for the login:
             if (result.next()) {
 
-                //The value under the "role" column is retrieved, as well the account number
+                //The value under the "role" column is retrieved, as well the stored pin
                 String role = result.getString("role");
+                String stored_pin = result.getString("pin");
 
                 //If the role of the account matches that of "Customer":
                 if ("Customer".equals(role)) {
@@ -71,14 +164,14 @@ public class DatabaseManager {
 
                     //A new instance of a customer object is returned with the same information as
                     //before provided, only now with the addition of the user's account number
-                    return new Customer(login, pin, customer_account);
+                    return new Customer(login, stored_pin, customer_account);
                 }
                 //If the role of the account matches that of "Admin":
                 else if ("Admin".equals(role)) {
 
                     //A new instance of an administrator object is returned with the same information
                     //as before provided
-                    return new Administrator(login, pin);
+                    return new Administrator(login, stored_pin);
                 }
             }
         }
@@ -88,16 +181,42 @@ public class DatabaseManager {
             throw new DatabaseException("Error retrieving user with login: " + login, error);
         }
 
-        //In the event that there is no user that matches the credentials provided, null is returned
+        //In the event that there is no user with the login provided, null is returned
         return null;
     }
 
+    public boolean replacePin(String login, String stored_pin, String new_stored_pin) throws DatabaseException {
+
+        //Used to upgrade a pin stored in plain text, or hashed at a lower cost than is now configured, once its
+        //owner has logged in. The update only applies if the stored value is still the one that was checked, so a
+        //pin changed in the meantime is never overwritten
+        try (Connection connection = getConnection();
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE " + layout.getProfileTable() + " SET pin = ? WHERE login = ? AND pin = ?")) {
+
+            applyQueryTimeout(update, DatabaseOperation.REPLACE_PIN);
+
+            update.setString(1, new_stored_pin);
+            update.setString(2, login);
+            update.setString(3, stored_pin);
+
+            return update.executeUpdate() > 0;
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error replacing the pin for login: " + login, error);
+        }
+    }
+
     public User getUser(int account_num) throws DatabaseException {
 
         //A prepared statement is made to find the user with the specific account_num provided
         try (Connection connection = getConnection();
              PreparedStatement query = connection.prepareStatement(
-                     "SELECT * FROM accounts WHERE account_num = ?")) {
+                     "SELECT account_num, holder, " + TOTAL_BALANCE + ", status, login, pin, role FROM " +
+                             layout.getAccountSource() + " WHERE account_num = ?")) {
+
+            applyQueryTimeout(query, DatabaseOperation.GET_USER);
 
             //The placeholder for account_num is filled in with the value provided in the parameter
             query.setInt(1, account_num);
@@ -147,7 +266,10 @@ public class DatabaseManager {
         //A prepared statement is made to find the account with the specific account_num provided
         try (Connection connection = getConnection();
              PreparedStatement query = connection.prepareStatement(
-                     "SELECT * FROM accounts WHERE account_num = ?")) {
+                     "SELECT account_num, holder, " + TOTAL_BALANCE + ", status FROM " +
+                             layout.getAccountSource() + " WHERE account_num = ?")) {
+
+            applyQueryTimeout(query, DatabaseOperation.GET_ACCOUNT);
 
             //The placeholder for account_num is filled in with the value provided in the parameter
             query.setInt(1, account_num);
@@ -178,7 +300,9 @@ public class DatabaseManager {
         //A prepared statement is made to update an existing account in the database
         try (Connection connection = getConnection();
              PreparedStatement update = connection.prepareStatement(
-                     "UPDATE accounts SET balance = ? WHERE account_num = ?")) {
+                     "UPDATE " + layout.getBalanceTable() + " SET balance = ? WHERE account_num = ?")) {
+
+            applyQueryTimeout(update, DatabaseOperation.UPDATE_BALANCE);
 
             //The placeholders are now filled with the provided new_balance and account_num
             update.setInt(1, new_balance);
@@ -193,9 +317,15 @@ public class DatabaseManager {
     }
 
 
-    public int createNewAccount(String login, String pin, String holder, int balance, String status)
+    public int createNewAccount(String login, String stored_pin, String holder, int balance, String status)
             throws DatabaseException {
 
+        //The pin arrives already hashed (see AdminService), so no KDF runs while the connection is held
+        if (layout == SchemaLayout.SPLIT) {
+
+            return createSplitAccount(null, login, stored_pin, holder, balance, status);
+        }
+
         //A prepared statement is made to insert a new account into the database
         try (Connection connection = getConnection();
              PreparedStatement update = connection.prepareStatement(
@@ -203,13 +333,15 @@ public class DatabaseManager {
                         "holder, balance, status, login, pin, role) VALUES (?, ?, ?, ?, ?, 'Customer')",
                      Statement.RETURN_GENERATED_KEYS)) {
 
+            applyQueryTimeout(update, DatabaseOperation.CREATE_ACCOUNT);
+
             //The placeholders are now filled with the provided username, pin code, holder name, starting
             //balance, and status of the account respectively
             update.setString(1, holder);
             update.setInt(2, balance);
             update.setString(3, status);
             update.setString(4, login);
-            update.setString(5, pin);
+            update.setString(5, stored_pin);
 
             update.executeUpdate();
 
@@ -243,12 +375,244 @@ public class DatabaseManager {
         return -1;
     }
 
+    public int createNewAccount(int account_num, String login, String stored_pin, String holder, int balance,
+                                String status) throws DatabaseException {
+
+        if (layout == SchemaLayout.SPLIT) {
+
+            return createSplitAccount(account_num, login, stored_pin, holder, balance, status);
+        }
+
+        //Same as above, except the account number has already been chosen by the caller (for example, so that it
+        //maps to a specific shard) and is written explicitly instead of being auto-incremented
+        try (Connection connection = getConnection();
+             PreparedStatement update = connection.prepareStatement(
+                "INSERT INTO accounts (" +
+                        "account_num, holder, balance, status, login, pin, role) VALUES (?, ?, ?, ?, ?, ?, 'Customer')")) {
+
+            applyQueryTimeout(update, DatabaseOperation.CREATE_ACCOUNT);
+
+            update.setInt(1, account_num);
+            update.setString(2, holder);
+            update.setInt(3, balance);
+            update.setString(4, status);
+            update.setString(5, login);
+            update.setString(6, stored_pin);
+
+            //If a row was inserted, the chosen account number is returned
+            if (update.executeUpdate() > 0) {
+
+                return account_num;
+            }
+        }
+        catch (SQLException error) {
+
+            if (error.getErrorCode() == 1062) {
+
+                //A duplicate login or account number was detected; -2 is to be returned
+                return -2;
+            }
+            else {
+
+                throw new DatabaseException("Error creating account", error);
+            }
+        }
+
+        return -1;
+    }
+
+    public int[] createNewAccounts(List<NewAccount> new_accounts) throws DatabaseException {
+
+        //Accounts whose numbers were assigned in advance are inserted in batches, one transaction per chunk, instead
+        //of one round trip each. Each result is the account number, or -2 / -1 as with createNewAccount(). Their
+        //pins have already been hashed by the caller
+        int[] results = new int[new_accounts.size()];
+
+        for (int start = 0; start < new_accounts.size(); start += BULK_CHUNK_SIZE) {
+
+            int end = Math.min(start + BULK_CHUNK_SIZE, new_accounts.size());
+            int[] chunk_results = createChunk(new_accounts.subList(start, end));
+            System.arraycopy(chunk_results, 0, results, start, chunk_results.length);
+        }
+
+        return results;
+    }
+
+    private int[] createChunk(List<NewAccount> chunk) throws DatabaseException {
+
+        boolean split = layout == SchemaLayout.SPLIT;
+        String account_insert = split
+                ? "INSERT INTO account_profiles (account_num, holder, status, login, pin, role) " +
+                        "VALUES (?, ?, ?, ?, ?, 'Customer')"
+                : "INSERT INTO accounts (account_num, holder, balance, status, login, pin, role) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, 'Customer')";
+
+        boolean batch_refused;
+
+        try (Connection connection = getConnection()) {
+
+            connection.setAutoCommit(false);
+
+            //The balance statement is only needed in the split layout; a null resource is simply not closed
+            try (PreparedStatement insert = connection.prepareStatement(account_insert);
+                 PreparedStatement balance_insert = split ? connection.prepareStatement(
+                         "INSERT INTO account_balances (account_num, balance) VALUES (?, ?)") : null) {
+
+                applyQueryTimeout(insert, DatabaseOperation.CREATE_ACCOUNTS);
+
+                for (int i = 0; i < chunk.size(); i++) {
+
+                    NewAccount account = chunk.get(i);
+                    int column = 1;
+                    insert.setInt(column++, account.account_num());
+                    insert.setString(column++, account.holder());
+                    if (!split) {
+
+                        insert.setInt(column++, account.balance());
+                    }
+                    insert.setString(column++, account.status());
+                    insert.setString(column++, account.login());
+                    insert.setString(column, account.pin());
+                    insert.addBatch();
+
+                    if (split) {
+
+                        balance_insert.setInt(1, account.account_num());
+                        balance_insert.setInt(2, account.balance());
+                        balance_insert.addBatch();
+                    }
+                }
+
+                insert.executeBatch();
+                if (split) {
+
+                    applyQueryTimeout(balance_insert, DatabaseOperation.CREATE_ACCOUNTS);
+                    balance_insert.executeBatch();
+                }
+                connection.commit();
+                batch_refused = false;
+            }
+            catch (BatchUpdateException error) {
+
+                //Some row was refused (most likely a taken login). The chunk is undone, and its rows are created one
+                //at a time below, once this connection has been closed
+                connection.rollback();
+                batch_refused = true;
+            }
+            catch (SQLException error) {
+
+                connection.rollback();
+                throw error;
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error creating accounts", error);
+        }
+
+        //After a refused batch every row gets its own result, and the good ones are still created
+        int[] results = new int[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+
+            NewAccount account = chunk.get(i);
+            results[i] = !batch_refused ? account.account_num() : createNewAccount(account.account_num(),
+                    account.login(), account.pin(), account.holder(), account.balance(), account.status());
+        }
+
+        return results;
+    }
+
+    private int createSplitAccount(Integer account_num, String login, String stored_pin, String holder, int balance,
+                                   String status) throws DatabaseException {
+
+        //In the split layout an account is a profile row plus a balance row, written in one transaction so that
+        //neither can exist without the other. A null account_num lets the profile table's AUTO_INCREMENT choose it
+        String profile_insert = account_num == null
+                ? "INSERT INTO account_profiles (holder, status, login, pin, role) VALUES (?, ?, ?, ?, 'Customer')"
+                : "INSERT INTO account_profiles (holder, status, login, pin, role, account_num) " +
+                        "VALUES (?, ?, ?, ?, 'Customer', ?)";
+
+        try (Connection connection = getConnection()) {
+
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement profile = connection.prepareStatement(profile_insert,
+                         Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement balance_row = connection.prepareStatement(
+                         "INSERT INTO account_balances (account_num, balance) VALUES (?, ?)")) {
+
+                applyQueryTimeout(profile, DatabaseOperation.CREATE_ACCOUNT);
+                applyQueryTimeout(balance_row, DatabaseOperation.CREATE_ACCOUNT);
+
+                profile.setString(1, holder);
+                profile.setString(2, status);
+                profile.setString(3, login);
+                profile.setString(4, stored_pin);
+                if (account_num != null) {
+
+                    profile.setInt(5, account_num);
+                }
+                profile.executeUpdate();
+
+                int created_num = -1;
+                if (account_num != null) {
+
+                    created_num = account_num;
+                }
+                else {
+
+                    ResultSet result = profile.getGeneratedKeys();
+                    if (result.next()) {
+
+                        created_num = result.getInt(1);
+                    }
+                }
+
+                if (created_num < 0) {
+
+                    connection.rollback();
+                    return -1;
+                }
+
+                balance_row.setInt(1, created_num);
+                balance_row.setInt(2, balance);
+                balance_row.executeUpdate();
+
+                connection.commit();
+                return created_num;
+            }
+            catch (SQLException error) {
+
+                connection.rollback();
+                throw error;
+            }
+        }
+        catch (SQLException error) {
+
+            if (error.getErrorCode() == 1062) {
+
+                //A duplicate login or account number was detected; -2 is to be returned, as in the single table
+                return -2;
+            }
+            else {
+
+                throw new DatabaseException("Error creating account", error);
+            }
+        }
+    }
+
     public void deleteAccount(int account_num) throws DatabaseException {
 
-        //A prepared statement is made where the account with the account number provided is to be deleted
+        //A prepared statement is made where the account with the account number provided is to be deleted, along
+        //with any sub-balance slots. In the split layout, the balance row goes with the profile row through its
+        //ON DELETE CASCADE foreign key
         try (Connection connection = getConnection();
              PreparedStatement update = connection.prepareStatement(
-                     "DELETE FROM accounts WHERE account_num = ?")) {
+                     "DELETE a, s FROM " + layout.getProfileTable() + " a " +
+                             "LEFT JOIN account_balance_slots s ON s.account_num = a.account_num " +
+                             "WHERE a.account_num = ?")) {
+
+            applyQueryTimeout(update, DatabaseOperation.DELETE_ACCOUNT);
 
             //The placeholder is filled in with said account number, and the deletion is then performed
             update.setInt(1, account_num);
@@ -273,7 +637,9 @@ public class DatabaseManager {
         //with the specific number provided
         try (Connection connection = getConnection();
              PreparedStatement query = connection.prepareStatement(
-                     "SELECT holder, status, login, pin FROM accounts WHERE account_num = ?")) {
+                     "SELECT holder, status, login, pin FROM " + layout.getProfileTable() + " WHERE account_num = ?")) {
+
+            applyQueryTimeout(query, DatabaseOperation.UPDATE_ACCOUNT_INFO);
 
             //The placeholder is filled with said account number and then the query is executed, the
             //result being stored in a ResultSet object
@@ -310,6 +676,7 @@ public class DatabaseManager {
 
             new_login = current_login;
         }
+        //A new pin code arrives already hashed, like every other (see AdminService)
         if (new_pin.isEmpty()) {
 
             new_pin = current_pin;
@@ -319,7 +686,10 @@ public class DatabaseManager {
         //its holder, status, login, and pin code fields, whether they remain unchanged or not
         try (Connection connection = getConnection();
              PreparedStatement update = connection.prepareStatement(
-                     "UPDATE accounts SET holder = ?, status = ?, login = ?, pin = ? WHERE account_num = ?")) {
+                     "UPDATE " + layout.getProfileTable() +
+                             " SET holder = ?, status = ?, login = ?, pin = ? WHERE account_num = ?")) {
+
+            applyQueryTimeout(update, DatabaseOperation.UPDATE_ACCOUNT_INFO);
 
             //The placeholders are filled in with their respective strings
             update.setString(1, new_holder);
@@ -342,4 +712,931 @@ public class DatabaseManager {
             throw new DatabaseException("Error updating account info", error);
         }
     }
-}
\ No newline at end of file
+
+    public List<Account> getAllAccounts() throws DatabaseException {
+
+        List<Account> accounts = new ArrayList<>();
+
+        //A prepared statement is made to read every customer account, ordered by account number, for exports
+        try (Connection connection = getConnection();
+             PreparedStatement query = connection.prepareStatement(
+                     "SELECT account_num, holder, " + TOTAL_BALANCE + ", status FROM " +
+                             layout.getAccountSource() + " WHERE role = 'Customer' ORDER BY account_num")) {
+
+            applyQueryTimeout(query, DatabaseOperation.GET_ALL_ACCOUNTS);
+
+            ResultSet result = query.executeQuery();
+
+            //Each row of the result is turned into an Account object and added to the list
+            while (result.next()) {
+
+                accounts.add(new Account(result.getInt("account_num"), result.getString("holder"),
+                        result.getInt("balance"), result.getString("status")));
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error retrieving all accounts", error);
+        }
+
+        return accounts;
+    }
+
+    public Map<Integer, Account> getAccounts(int[] account_nums) throws DatabaseException {
+
+        //Many accounts are read with one query per BULK_CHUNK_SIZE numbers (WHERE account_num IN (...)), all on one
+        //connection, instead of one query and one connection each. Numbers with no account are left out of the map
+        int[] distinct = Arrays.stream(account_nums).distinct().toArray();
+        Map<Integer, Account> accounts = new HashMap<>();
+
+        try (Connection connection = getConnection()) {
+
+            for (int start = 0; start < distinct.length; start += BULK_CHUNK_SIZE) {
+
+                int end = Math.min(start + BULK_CHUNK_SIZE, distinct.length);
+                try (PreparedStatement query = connection.prepareStatement(
+                        "SELECT account_num, holder, " + TOTAL_BALANCE + ", status FROM " +
+                                layout.getAccountSource() + " WHERE account_num IN (" + placeholders(end - start) +
+                                ")")) {
+
+                    applyQueryTimeout(query, DatabaseOperation.GET_ACCOUNTS);
+
+                    for (int i = start; i < end; i++) {
+
+                        query.setInt(i - start + 1, distinct[i]);
+                    }
+
+                    ResultSet result = query.executeQuery();
+                    while (result.next()) {
+
+                        Account account = new Account(result.getInt("account_num"), result.getString("holder"),
+                                result.getInt("balance"), result.getString("status"));
+                        accounts.put(account.getAccountNumber(), account);
+                    }
+                }
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error retrieving " + distinct.length + " accounts", error);
+        }
+
+        return accounts;
+    }
+
+    private static String placeholders(int count) {
+
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    public int[] updateAccounts(int[] account_nums, String new_holder, String new_status) throws DatabaseException {
+
+        //Sets the same holder and/or status on many accounts; an empty string leaves that field as it is, as in
+        //updateAccountInfo(). The updates are sent as batches of BULK_CHUNK_SIZE, each batch in one transaction.
+        //Each result is 1 if the account was updated, 0 if there is no such account, or -1 if its batch failed and
+        //was rolled back; batches before and after a failed one are still applied
+        List<String> assignments = new ArrayList<>();
+        if (!new_holder.isEmpty()) {
+
+            assignments.add("holder = ?");
+        }
+        if (!new_status.isEmpty()) {
+
+            assignments.add("status = ?");
+        }
+        if (assignments.isEmpty()) {
+
+            throw new IllegalArgumentException("Nothing to update");
+        }
+
+        int[] results = new int[account_nums.length];
+        try (Connection connection = getConnection()) {
+
+            connection.setAutoCommit(false);
+
+            for (int start = 0; start < account_nums.length; start += BULK_CHUNK_SIZE) {
+
+                int end = Math.min(start + BULK_CHUNK_SIZE, account_nums.length);
+                try (PreparedStatement update = connection.prepareStatement(
+                        "UPDATE " + layout.getProfileTable() + " SET " + String.join(", ", assignments) +
+                                " WHERE account_num = ?")) {
+
+                    applyQueryTimeout(update, DatabaseOperation.UPDATE_ACCOUNTS);
+
+                    for (int i = start; i < end; i++) {
+
+                        int column = 1;
+                        if (!new_holder.isEmpty()) {
+
+                            update.setString(column++, new_holder);
+                        }
+                        if (!new_status.isEmpty()) {
+
+                            update.setString(column++, new_status);
+                        }
+                        update.setInt(column, account_nums[i]);
+                        update.addBatch();
+                    }
+
+                    //Each count is the number of rows the account's statement matched: 1, or 0 if it does not exist
+                    int[] counts = update.executeBatch();
+                    connection.commit();
+                    for (int i = start; i < end; i++) {
+
+                        results[i] = counts[i - start] > 0 || counts[i - start] == Statement.SUCCESS_NO_INFO ? 1 : 0;
+                    }
+                }
+                catch (SQLException error) {
+
+                    //Nothing of this batch is kept; the connection is still usable for the next one
+                    connection.rollback();
+                    Arrays.fill(results, start, end, -1);
+                }
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error updating " + account_nums.length + " accounts", error);
+        }
+
+        return results;
+    }
+
+    public boolean loginExists(String login) throws DatabaseException {
+
+        //Only the unique login index is read, so this tells the admin a login is taken before the rest of the new
+        //account's details are asked for
+        try (Connection connection = getConnection();
+             PreparedStatement query = connection.prepareStatement(
+                     "SELECT 1 FROM " + layout.getProfileTable() + " WHERE login = ?")) {
+
+            applyQueryTimeout(query, DatabaseOperation.LOGIN_EXISTS);
+
+            query.setString(1, login);
+            ResultSet result = query.executeQuery();
+
+            return result.next();
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error checking login: " + login, error);
+        }
+    }
+
+    public int scanAccountKeys(AccountKeyConsumer consumer) throws DatabaseException {
+
+        int scanned = 0;
+
+        //Every account's number and login are read, admins included. A fetch size of Integer.MIN_VALUE makes the
+        //MySQL driver stream the rows one at a time instead of holding the whole table in memory
+        try (Connection connection = getConnection();
+             PreparedStatement query = connection.prepareStatement(
+                     "SELECT account_num, login FROM " + layout.getProfileTable(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            applyQueryTimeout(query, DatabaseOperation.SCAN_ACCOUNT_KEYS);
+            query.setFetchSize(Integer.MIN_VALUE);
+
+            ResultSet result = query.executeQuery();
+
+            //Each row is handed to the consumer as soon as it arrives
+            while (result.next()) {
+
+                consumer.accept(result.getInt("account_num"), result.getString("login"));
+                scanned++;
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error scanning accounts", error);
+        }
+
+        return scanned;
+    }
+
+    public int scanAccounts(AccountConsumer consumer) throws DatabaseException {
+
+        int scanned = 0;
+
+        //Every customer account is streamed, as in scanAccountKeys(), for the in-memory indexes that are built from
+        //the whole table at startup
+        try (Connection connection = getConnection();
+             PreparedStatement query = connection.prepareStatement(
+                     "SELECT account_num, holder, " + TOTAL_BALANCE + ", status FROM " +
+                             layout.getAccountSource() + " WHERE role = 'Customer'",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            applyQueryTimeout(query, DatabaseOperation.SCAN_ACCOUNTS);
+            query.setFetchSize(Integer.MIN_VALUE);
+
+            ResultSet result = query.executeQuery();
+            while (result.next()) {
+
+                consumer.accept(result.getInt("account_num"), result.getString("holder"), result.getInt("balance"),
+                        result.getString("status"));
+                scanned++;
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error scanning accounts", error);
+        }
+
+        return scanned;
+    }
+
+    public SessionContext loadSession(String login) throws DatabaseException {
+
+        //Everything a customer session needs comes back from this one query: the account row, its limits (if any
+        //were set) and the latest transactions. The LATERAL join reads only the newest few ledger rows of this one
+        //account, using the (account_num, created_at) index, so the query stays cheap however long the history is.
+        //There is one result row per transaction, or a single row with empty transaction columns if there are none
+        //Only a.account_num is qualified, since account_limits has that column too; the rest are unique to the
+        //account tables, whichever layout is in use. As with getUser(), the user comes back with the stored hash,
+        //and the pin is checked by the caller once the connection is closed
+        try (Connection connection = getConnection();
+             PreparedStatement query = connection.prepareStatement(
+                     "SELECT a.account_num, holder, " + TOTAL_BALANCE + ", status, role, pin, " +
+                             "l.daily_withdrawal_limit, l.single_withdrawal_limit, " +
+                             "t.transaction_id, t.type, t.amount, t.balance_after, t.created_at " +
+                             "FROM " + layout.getAccountSource() + " " +
+                             "LEFT JOIN account_limits l ON l.account_num = a.account_num " +
+                             "LEFT JOIN LATERAL (SELECT transaction_id, type, amount, balance_after, created_at " +
+                             "FROM transactions WHERE transactions.account_num = a.account_num " +
+                             "ORDER BY created_at DESC, transaction_id DESC LIMIT ?) t ON TRUE " +
+                             "WHERE a.login = ? " +
+                             "ORDER BY t.created_at DESC, t.transaction_id DESC")) {
+
+            applyQueryTimeout(query, DatabaseOperation.LOAD_SESSION);
+
+            query.setInt(1, RECENT_ACTIVITY_LIMIT);
+            query.setString(2, login);
+
+            ResultSet result = query.executeQuery();
+
+            //No rows means no account has this login
+            if (!result.next()) {
+
+                return null;
+            }
+            String stored_pin = result.getString("pin");
+
+            String role = result.getString("role");
+
+            //Administrators have no account, so there is nothing more to load for them
+            if ("Admin".equals(role)) {
+
+                return new SessionContext(new Administrator(login, stored_pin), List.of(), null, 0);
+            }
+            if (!"Customer".equals(role)) {
+
+                return null;
+            }
+
+            Account customer_account = new Account(result.getInt("account_num"), result.getString("holder"),
+                    result.getInt("balance"), result.getString("status"));
+
+            //A missing account_limits row comes back as NULL columns, in which case the defaults apply
+            int daily_withdrawal_limit = result.getInt("daily_withdrawal_limit");
+            AccountLimits limits = result.wasNull() ? AccountLimits.DEFAULT
+                    : new AccountLimits(daily_withdrawal_limit, result.getInt("single_withdrawal_limit"));
+
+            //Every row carries one transaction, newest first
+            List<TransactionRecord> recent_activity = new ArrayList<>();
+            do {
+
+                String type = result.getString("type");
+                if (type != null) {
+
+                    recent_activity.add(new TransactionRecord(TransactionType.valueOf(type), result.getInt("amount"),
+                            result.getInt("balance_after"), result.getTimestamp("created_at").toLocalDateTime()));
+                }
+            }
+            while (result.next());
+
+            return new SessionContext(new Customer(login, stored_pin, customer_account), recent_activity, limits,
+                    RECENT_ACTIVITY_LIMIT);
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error loading session for login: " + login, error);
+        }
+    }
+
+    public int applyTransaction(int account_num, int new_balance, TransactionType type, int amount)
+            throws DatabaseException {
+
+        //The new balance and the ledger entry that explains it are written in one database transaction, so the
+        //history can never disagree with the balance. The balance after the transaction is returned, -1 if an
+        //account with sub-balances turned out not to have enough funds, or -2 if the account does not exist
+        Connection connection;
+        try {
+
+            connection = getConnection();
+        }
+        catch (SQLException error) {
+
+            //Nothing has been sent yet, so the transaction certainly was not applied. Once a statement has gone out,
+            //a lost connection leaves that unknown (the commit may have gone through), so it is reported as before
+            throw new ConnectionUnavailableException("Could not connect to apply transaction to account: " +
+                    account_num, error);
+        }
+
+        try (connection) {
+
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement update = connection.prepareStatement(
+                         "UPDATE " + layout.getBalanceTable() + " SET balance = ? WHERE account_num = ? " +
+                                 "AND NOT EXISTS (SELECT 1 FROM account_balance_slots s WHERE s.account_num = ?)");
+                 PreparedStatement insert = connection.prepareStatement(
+                         "INSERT INTO transactions (account_num, type, amount, balance_after) VALUES (?, ?, ?, ?)");
+                 PreparedStatement daily_rollup = connection.prepareStatement(DAILY_ROLLUP);
+                 PreparedStatement monthly_rollup = connection.prepareStatement(MONTHLY_ROLLUP)) {
+
+                for (PreparedStatement statement : List.of(update, insert, daily_rollup, monthly_rollup)) {
+
+                    applyQueryTimeout(statement, DatabaseOperation.APPLY_TRANSACTION);
+                }
+
+                update.setInt(1, new_balance);
+                update.setInt(2, account_num);
+                update.setInt(3, account_num);
+
+                //No row is updated when the account keeps its money in sub-balance slots; the amount is then
+                //applied to a slot instead of overwriting the balance
+                int balance_after = new_balance;
+                if (update.executeUpdate() == 0) {
+
+                    //Neither a balance row nor slots means there is no such account (it may have been deleted
+                    //since the session loaded it); nothing is written for it, since the ledger has no foreign key
+                    //to turn the row down
+                    int slot_balance = applyToSlots(connection, account_num, type, amount);
+                    if (slot_balance < 0) {
+
+                        connection.rollback();
+                        return slot_balance;
+                    }
+                    balance_after = slot_balance;
+                }
+
+                insert.setInt(1, account_num);
+                insert.setString(2, type.name());
+                insert.setInt(3, amount);
+                insert.setInt(4, balance_after);
+                insert.executeUpdate();
+
+                //The rollups are part of the same transaction, so they always agree with the ledger
+                addToRollup(daily_rollup, account_num, type, amount, balance_after, null);
+                addToRollup(monthly_rollup, account_num, type, amount, balance_after, null);
+
+                connection.commit();
+                return balance_after;
+            }
+            catch (SQLException error) {
+
+                //Neither write is kept if either one fails
+                connection.rollback();
+                throw error;
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error applying transaction to account: " + account_num, error);
+        }
+    }
+
+    public List<TransactionRecord> getTransactionHistory(int account_num, LocalDateTime from, LocalDateTime to)
+            throws DatabaseException {
+
+        //The account's ledger rows with from <= created_at < to, newest first, read through the
+        //(account_num, created_at) index. Only rows still in the table are returned; see ArchivedHistoryDatabaseManager
+        //for the ones that have been archived
+        try (Connection connection = getConnection();
+             PreparedStatement query = connection.prepareStatement(
+                     "SELECT type, amount, balance_after, created_at FROM transactions " +
+                             "WHERE account_num = ? AND created_at >= ? AND created_at < ? " +
+                             "ORDER BY created_at DESC, transaction_id DESC")) {
+
+            applyQueryTimeout(query, DatabaseOperation.GET_TRANSACTION_HISTORY);
+
+            query.setInt(1, account_num);
+            query.setTimestamp(2, Timestamp.valueOf(from));
+            query.setTimestamp(3, Timestamp.valueOf(to));
+
+            ResultSet result = query.executeQuery();
+            List<TransactionRecord> history = new ArrayList<>();
+            while (result.next()) {
+
+                history.add(new TransactionRecord(TransactionType.valueOf(result.getString("type")),
+                        result.getInt("amount"), result.getInt("balance_after"),
+                        result.getTimestamp("created_at").toLocalDateTime()));
+            }
+
+            return history;
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error reading transaction history of account: " + account_num, error);
+        }
+    }
+
+    public ReplayOutcome[] applyJournalEntries(String terminal_id, List<JournalEntry> entries)
+            throws DatabaseException {
+
+        //Entries a terminal recorded while the database was unreachable are applied as changes to the balance the
+        //account has now (not the one the terminal saw), in order and in one transaction. Each entry is claimed in
+        //offline_replays by its terminal and sequence, so a batch replayed twice changes nothing the second time.
+        //An entry that can't be applied is claimed all the same, with its outcome, so the conflict is reported
+        //once and stays on record for staff to resolve
+        ReplayOutcome[] outcomes = new ReplayOutcome[entries.size()];
+
+        try (Connection connection = getConnection()) {
+
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement claimed = connection.prepareStatement(
+                         "SELECT 1 FROM offline_replays WHERE terminal_id = ? AND sequence = ?");
+                 PreparedStatement update = connection.prepareStatement(
+                         "UPDATE " + layout.getBalanceTable() + " SET balance = balance + ? " +
+                                 "WHERE account_num = ? AND balance + ? >= 0 " +
+                                 "AND NOT EXISTS (SELECT 1 FROM account_balance_slots s WHERE s.account_num = ?)");
+                 PreparedStatement balance = connection.prepareStatement(
+                         "SELECT balance FROM " + layout.getBalanceTable() + " WHERE account_num = ?");
+                 PreparedStatement ledger = connection.prepareStatement(
+                         "INSERT INTO transactions (account_num, type, amount, balance_after, created_at) " +
+                                 "VALUES (?, ?, ?, ?, ?)");
+                 PreparedStatement claim = connection.prepareStatement(
+                         "INSERT INTO offline_replays (terminal_id, sequence, account_num, type, amount, " +
+                                 "recorded_at, outcome) VALUES (?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement daily_rollup = connection.prepareStatement(DAILY_ROLLUP);
+                 PreparedStatement monthly_rollup = connection.prepareStatement(MONTHLY_ROLLUP)) {
+
+                for (PreparedStatement statement : List.of(claimed, update, balance, ledger, claim, daily_rollup,
+                        monthly_rollup)) {
+
+                    applyQueryTimeout(statement, DatabaseOperation.REPLAY_JOURNAL);
+                }
+
+                for (int i = 0; i < entries.size(); i++) {
+
+                    JournalEntry entry = entries.get(i);
+
+                    claimed.setString(1, terminal_id);
+                    claimed.setLong(2, entry.sequence());
+                    if (claimed.executeQuery().next()) {
+
+                        outcomes[i] = ReplayOutcome.ALREADY_APPLIED;
+                        continue;
+                    }
+
+                    int change = entry.type() == TransactionType.DEPOSIT ? entry.amount() : -entry.amount();
+                    update.setInt(1, change);
+                    update.setInt(2, entry.account_num());
+                    update.setInt(3, change);
+                    update.setInt(4, entry.account_num());
+
+                    //The balance column is tried first; an account with sub-balances takes the change in a slot
+                    int balance_after;
+                    if (update.executeUpdate() > 0) {
+
+                        balance.setInt(1, entry.account_num());
+                        ResultSet result = balance.executeQuery();
+                        balance_after = result.next() ? result.getInt("balance") : -2;
+                    }
+                    else {
+
+                        balance_after = applyToSlots(connection, entry.account_num(), entry.type(), entry.amount());
+                    }
+
+                    //-2 means the account has no slots, so the balance column turned the change down; whether that
+                    //was for want of funds or of an account decides the outcome
+                    if (balance_after == -2) {
+
+                        balance.setInt(1, entry.account_num());
+                        balance_after = balance.executeQuery().next() ? -1 : -2;
+                    }
+
+                    if (balance_after >= 0) {
+
+                        ledger.setInt(1, entry.account_num());
+                        ledger.setString(2, entry.type().name());
+                        ledger.setInt(3, entry.amount());
+                        ledger.setInt(4, balance_after);
+                        ledger.setTimestamp(5, new Timestamp(entry.recorded_at()));
+                        ledger.executeUpdate();
+
+                        //The entry counts towards the day it was taken on, not the day it was replayed
+                        Timestamp recorded_at = new Timestamp(entry.recorded_at());
+                        addToRollup(daily_rollup, entry.account_num(), entry.type(), entry.amount(), balance_after,
+                                recorded_at);
+                        addToRollup(monthly_rollup, entry.account_num(), entry.type(), entry.amount(), balance_after,
+                                recorded_at);
+                        outcomes[i] = ReplayOutcome.APPLIED;
+                    }
+                    else {
+
+                        outcomes[i] = balance_after == -1 ? ReplayOutcome.INSUFFICIENT_FUNDS :
+                                ReplayOutcome.ACCOUNT_NOT_FOUND;
+                    }
+
+                    claim.setString(1, terminal_id);
+                    claim.setLong(2, entry.sequence());
+                    claim.setInt(3, entry.account_num());
+                    claim.setString(4, entry.type().name());
+                    claim.setInt(5, entry.amount());
+                    claim.setTimestamp(6, new Timestamp(entry.recorded_at()));
+                    claim.setString(7, outcomes[i].name());
+                    claim.executeUpdate();
+                }
+
+                connection.commit();
+                return outcomes;
+            }
+            catch (SQLException error) {
+
+                //Nothing in the batch is kept, so it can simply be replayed again
+                connection.rollback();
+                throw error;
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error replaying " + entries.size() + " journal entries from terminal: " +
+                    terminal_id, error);
+        }
+    }
+
+    private static void addToRollup(PreparedStatement rollup, int account_num, TransactionType type, int amount,
+                                    int balance_after, Timestamp at) throws SQLException {
+
+        boolean deposit = type == TransactionType.DEPOSIT;
+        rollup.setInt(1, account_num);
+        rollup.setTimestamp(2, at);
+        rollup.setInt(3, deposit ? 1 : 0);
+        rollup.setLong(4, deposit ? amount : 0);
+        rollup.setInt(5, deposit ? 0 : 1);
+        rollup.setLong(6, deposit ? 0 : amount);
+        rollup.setInt(7, balance_after);
+        rollup.setTimestamp(8, at);
+        rollup.executeUpdate();
+    }
+
+    private static String rollupTable(RollupPeriod period) {
+
+        return period == RollupPeriod.DAY ? "account_daily_rollups" : "account_monthly_rollups";
+    }
+
+    private static String rollupColumn(RollupPeriod period) {
+
+        return period == RollupPeriod.DAY ? "day" : "month";
+    }
+
+    public List<ActivitySummary> getActivitySummaries(int account_num, RollupPeriod period, LocalDate from,
+                                                      LocalDate to) throws DatabaseException {
+
+        //The account's rollup rows for the periods starting from <= start < to, oldest first. This reads one row
+        //per day or month however many transactions there were, and keeps working for months that have been
+        //archived out of the transactions table
+        String column = rollupColumn(period);
+        try (Connection connection = getConnection();
+             PreparedStatement query = connection.prepareStatement(
+                     "SELECT " + column + ", deposit_count, deposit_total, withdrawal_count, withdrawal_total, " +
+                             "closing_balance FROM " + rollupTable(period) + " " +
+                             "WHERE account_num = ? AND " + column + " >= ? AND " + column + " < ? " +
+                             "ORDER BY " + column)) {
+
+            applyQueryTimeout(query, DatabaseOperation.GET_ACTIVITY_SUMMARIES);
+
+            query.setInt(1, account_num);
+            query.setDate(2, Date.valueOf(from));
+            query.setDate(3, Date.valueOf(to));
+
+            ResultSet result = query.executeQuery();
+            List<ActivitySummary> summaries = new ArrayList<>();
+            while (result.next()) {
+
+                summaries.add(new ActivitySummary(result.getDate(column).toLocalDate(),
+                        result.getInt("deposit_count"), result.getLong("deposit_total"),
+                        result.getInt("withdrawal_count"), result.getLong("withdrawal_total"),
+                        result.getInt("closing_balance")));
+            }
+
+            return summaries;
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error reading activity summaries of account: " + account_num, error);
+        }
+    }
+
+    public List<ActivityTotals> getActivityTotals(RollupPeriod period, LocalDate from, LocalDate to)
+            throws DatabaseException {
+
+        //Every account's rollup rows added up per period, oldest first, through the index on the period column
+        String column = rollupColumn(period);
+        try (Connection connection = getConnection();
+             PreparedStatement query = connection.prepareStatement(
+                     "SELECT " + column + ", COUNT(*) AS active_accounts, " +
+                             "SUM(deposit_count) AS deposit_count, SUM(deposit_total) AS deposit_total, " +
+                             "SUM(withdrawal_count) AS withdrawal_count, SUM(withdrawal_total) AS withdrawal_total " +
+                             "FROM " + rollupTable(period) + " WHERE " + column + " >= ? AND " + column + " < ? " +
+                             "GROUP BY " + column + " ORDER BY " + column)) {
+
+            applyQueryTimeout(query, DatabaseOperation.GET_ACTIVITY_TOTALS);
+
+            query.setDate(1, Date.valueOf(from));
+            query.setDate(2, Date.valueOf(to));
+
+            ResultSet result = query.executeQuery();
+            List<ActivityTotals> totals = new ArrayList<>();
+            while (result.next()) {
+
+                totals.add(new ActivityTotals(result.getDate(column).toLocalDate(), result.getInt("active_accounts"),
+                        result.getInt("deposit_count"), result.getLong("deposit_total"),
+                        result.getInt("withdrawal_count"), result.getLong("withdrawal_total")));
+            }
+
+            return totals;
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error reading activity totals from: " + from, error);
+        }
+    }
+
+    public int rebuildRollups(LocalDate from, LocalDate to) throws DatabaseException {
+
+        //Recomputes the rollups of every month from the one holding from up to (not including) the one holding to,
+        //one month per transaction so no lock is held for longer than a month's rows take. Returns the number of
+        //months rebuilt
+        LocalDate month = from.withDayOfMonth(1);
+        int months = 0;
+
+        try (Connection connection = getConnection()) {
+
+            connection.setAutoCommit(false);
+
+            while (month.isBefore(to)) {
+
+                try {
+
+                    rollUp(connection, month, month.plusMonths(1));
+                    connection.commit();
+                }
+                catch (SQLException error) {
+
+                    connection.rollback();
+                    throw error;
+                }
+
+                month = month.plusMonths(1);
+                months++;
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error rebuilding rollups for: " + month, error);
+        }
+
+        return months;
+    }
+
+    public static void rollUp(Connection connection, LocalDate from, LocalDate to) throws SQLException {
+
+        //Rolls the ledger rows of from <= created_at < to up by account and day, then the daily rows of the same
+        //range up by account and month, replacing what the rollups held for those periods. from and to must be the
+        //first days of months. A day whose rows have all been archived has nothing in the table to recompute it
+        //from, so its rollup row is left as it was
+        try (PreparedStatement daily = connection.prepareStatement(
+                     "INSERT INTO account_daily_rollups (account_num, day, deposit_count, deposit_total, " +
+                             "withdrawal_count, withdrawal_total, closing_balance, closing_at) " +
+                             "SELECT account_num, DATE(created_at), SUM(type = 'DEPOSIT'), " +
+                             "SUM(IF(type = 'DEPOSIT', amount, 0)), SUM(type = 'WITHDRAWAL'), " +
+                             "SUM(IF(type = 'WITHDRAWAL', amount, 0)), " + LATEST_BALANCE_AFTER + ", " +
+                             "MAX(created_at) FROM transactions WHERE created_at >= ? AND created_at < ? " +
+                             "GROUP BY account_num, DATE(created_at) " + ROLLUP_REPLACE);
+             PreparedStatement monthly = connection.prepareStatement(
+                     "INSERT INTO account_monthly_rollups (account_num, month, deposit_count, deposit_total, " +
+                             "withdrawal_count, withdrawal_total, closing_balance, closing_at) " +
+                             "SELECT account_num, DATE_FORMAT(day, '%Y-%m-01'), SUM(deposit_count), " +
+                             "SUM(deposit_total), SUM(withdrawal_count), SUM(withdrawal_total), " +
+                             LATEST_CLOSING_BALANCE + ", MAX(closing_at) FROM account_daily_rollups " +
+                             "WHERE day >= ? AND day < ? GROUP BY account_num, DATE_FORMAT(day, '%Y-%m-01') " +
+                             ROLLUP_REPLACE)) {
+
+            daily.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            daily.setTimestamp(2, Timestamp.valueOf(to.atStartOfDay()));
+            daily.executeUpdate();
+
+            monthly.setDate(1, Date.valueOf(from));
+            monthly.setDate(2, Date.valueOf(to));
+            monthly.executeUpdate();
+        }
+    }
+
+    private int applyToSlots(Connection connection, int account_num, TransactionType type, int amount)
+            throws SQLException {
+
+        //Returns the account's total after the change, -1 if a withdrawal can't be covered, or -2 if the account has
+        //no slots (it does not exist). The slots are first read without locking, to pick which one to change
+        int[] slot_ids;
+        int[] slot_balances;
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT slot, balance FROM account_balance_slots WHERE account_num = ? ORDER BY slot")) {
+
+            applyQueryTimeout(query, DatabaseOperation.APPLY_TRANSACTION);
+            query.setInt(1, account_num);
+            ResultSet result = query.executeQuery();
+
+            List<int[]> rows = new ArrayList<>();
+            while (result.next()) {
+
+                rows.add(new int[] {result.getInt("slot"), result.getInt("balance")});
+            }
+
+            slot_ids = new int[rows.size()];
+            slot_balances = new int[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+
+                slot_ids[i] = rows.get(i)[0];
+                slot_balances[i] = rows.get(i)[1];
+            }
+        }
+
+        if (slot_ids.length == 0) {
+
+            return -2;
+        }
+
+        //Each operation starts at a random slot, so concurrent operations on the same account mostly lock
+        //different rows instead of queueing on one
+        int start = ThreadLocalRandom.current().nextInt(slot_ids.length);
+        boolean applied = false;
+
+        if (type == TransactionType.DEPOSIT) {
+
+            applied = changeSlot(connection, account_num, slot_ids[start], amount);
+        }
+        else {
+
+            //A withdrawal takes the whole amount from one slot that (as last read) can cover it; the balance check
+            //is repeated in the UPDATE, since another operation may have drained the slot in the meantime
+            for (int i = 0; i < slot_ids.length && !applied; i++) {
+
+                int slot = (start + i) % slot_ids.length;
+                if (slot_balances[slot] >= amount) {
+
+                    applied = changeSlot(connection, account_num, slot_ids[slot], -amount);
+                }
+            }
+
+            //No single slot can cover it, so every slot is locked and the amount is checked against their sum
+            if (!applied && !withdrawAcrossSlots(connection, account_num, amount)) {
+
+                return -1;
+            }
+            applied = true;
+        }
+
+        if (!applied) {
+
+            return -2;
+        }
+
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT COALESCE(SUM(balance), 0) AS total FROM account_balance_slots WHERE account_num = ?")) {
+
+            applyQueryTimeout(query, DatabaseOperation.APPLY_TRANSACTION);
+            query.setInt(1, account_num);
+            ResultSet result = query.executeQuery();
+
+            return result.next() ? result.getInt("total") : -2;
+        }
+    }
+
+    private boolean changeSlot(Connection connection, int account_num, int slot, int change) throws SQLException {
+
+        //Only one slot row is locked; a withdrawal (negative change) never takes a slot below 0
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE account_balance_slots SET balance = balance + ? " +
+                        "WHERE account_num = ? AND slot = ? AND balance + ? >= 0")) {
+
+            applyQueryTimeout(update, DatabaseOperation.APPLY_TRANSACTION);
+            update.setInt(1, change);
+            update.setInt(2, account_num);
+            update.setInt(3, slot);
+            update.setInt(4, change);
+
+            return update.executeUpdate() > 0;
+        }
+    }
+
+    private boolean withdrawAcrossSlots(Connection connection, int account_num, int amount) throws SQLException {
+
+        //The consolidated check: with every slot locked, the amount is compared with their total and, if covered,
+        //taken from the slots in order until it is paid
+        List<int[]> slots = new ArrayList<>();
+        int total = 0;
+
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT slot, balance FROM account_balance_slots WHERE account_num = ? ORDER BY slot FOR UPDATE")) {
+
+            applyQueryTimeout(query, DatabaseOperation.APPLY_TRANSACTION);
+            query.setInt(1, account_num);
+            ResultSet result = query.executeQuery();
+
+            while (result.next()) {
+
+                int balance = result.getInt("balance");
+                slots.add(new int[] {result.getInt("slot"), balance});
+                total += balance;
+            }
+        }
+
+        if (total < amount) {
+
+            return false;
+        }
+
+        int remaining = amount;
+        for (int[] slot : slots) {
+
+            int taken = Math.min(slot[1], remaining);
+            if (taken > 0) {
+
+                changeSlot(connection, account_num, slot[0], -taken);
+                remaining -= taken;
+            }
+        }
+
+        return true;
+    }
+
+    public int enableSubBalances(int account_num, int slot_count) throws DatabaseException {
+
+        //Moves an account's balance into slot_count sub-balance slots (all of it into slot 0 to begin with) and
+        //zeroes its own balance column. Returns the slot count, -1 if the account does not exist, or -2 if it
+        //already has sub-balances
+        try (Connection connection = getConnection()) {
+
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement query = connection.prepareStatement(
+                         "SELECT balance FROM " + layout.getBalanceTable() + " WHERE account_num = ? FOR UPDATE");
+                 PreparedStatement existing = connection.prepareStatement(
+                         "SELECT COUNT(*) AS slots FROM account_balance_slots WHERE account_num = ? FOR UPDATE");
+                 PreparedStatement insert = connection.prepareStatement(
+                         "INSERT INTO account_balance_slots (account_num, slot, balance) VALUES (?, ?, ?)");
+                 PreparedStatement update = connection.prepareStatement(
+                         "UPDATE " + layout.getBalanceTable() + " SET balance = 0 WHERE account_num = ?")) {
+
+                applyQueryTimeout(query, DatabaseOperation.ENABLE_SUB_BALANCES);
+                applyQueryTimeout(existing, DatabaseOperation.ENABLE_SUB_BALANCES);
+                applyQueryTimeout(insert, DatabaseOperation.ENABLE_SUB_BALANCES);
+                applyQueryTimeout(update, DatabaseOperation.ENABLE_SUB_BALANCES);
+
+                query.setInt(1, account_num);
+                ResultSet balance_result = query.executeQuery();
+                if (!balance_result.next()) {
+
+                    connection.rollback();
+                    return -1;
+                }
+                int balance = balance_result.getInt("balance");
+
+                existing.setInt(1, account_num);
+                ResultSet existing_result = existing.executeQuery();
+                if (existing_result.next() && existing_result.getInt("slots") > 0) {
+
+                    connection.rollback();
+                    return -2;
+                }
+
+                for (int slot = 0; slot < slot_count; slot++) {
+
+                    insert.setInt(1, account_num);
+                    insert.setInt(2, slot);
+                    insert.setInt(3, slot == 0 ? balance : 0);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+
+                update.setInt(1, account_num);
+                update.executeUpdate();
+
+                connection.commit();
+                return slot_count;
+            }
+            catch (SQLException error) {
+
+                connection.rollback();
+                throw error;
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error enabling sub-balances for account: " + account_num, error);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package repository;
+
+//Every public DatabaseManager operation, so that wrappers (retries, limits, metrics) can tell them apart.
+//An operation is idempotent when running it twice leaves the database the same as running it once, and its
+//priority says whose work it is: logins and balance changes come from customers at the terminals
+public enum DatabaseOperation {
+
+    GET_USER_BY_LOGIN(true, WorkPriority.CUSTOMER),
+    GET_USER(true, WorkPriority.ADMIN),
+    GET_ACCOUNT(true, WorkPriority.ADMIN),
+    UPDATE_BALANCE(true, WorkPriority.CUSTOMER),
+    CREATE_ACCOUNT(false, WorkPriority.ADMIN),
+    CREATE_ACCOUNTS(false, WorkPriority.BATCH),
+    DELETE_ACCOUNT(true, WorkPriority.ADMIN),
+    UPDATE_ACCOUNT_INFO(true, WorkPriority.ADMIN),
+    GET_ALL_ACCOUNTS(true, WorkPriority.BATCH),
+    GET_ACCOUNTS(true, WorkPriority.BATCH),
+    UPDATE_ACCOUNTS(true, WorkPriority.BATCH),
+    LOAD_SESSION(true, WorkPriority.CUSTOMER),
+    REPLACE_PIN(true, WorkPriority.CUSTOMER),
+    APPLY_TRANSACTION(false, WorkPriority.CUSTOMER),
+    ENABLE_SUB_BALANCES(true, WorkPriority.ADMIN),
+    LOGIN_EXISTS(true, WorkPriority.ADMIN),
+    SCAN_ACCOUNT_KEYS(true, WorkPriority.BATCH),
+    SCAN_ACCOUNTS(true, WorkPriority.BATCH),
+    REPLAY_JOURNAL(true, WorkPriority.BATCH),
+    GET_TRANSACTION_HISTORY(true, WorkPriority.CUSTOMER),
+    GET_ACTIVITY_SUMMARIES(true, WorkPriority.CUSTOMER),
+    GET_ACTIVITY_TOTALS(true, WorkPriority.ADMIN),
+    REBUILD_ROLLUPS(true, WorkPriority.BATCH);
+
+    private final boolean idempotent;
+    private final WorkPriority priority;
+
+    DatabaseOperation(boolean idempotent, WorkPriority priority) {
+
+        this.idempotent = idempotent;
+        this.priority = priority;
+    }
+
+    public boolean isIdempotent() {
+
+        return idempotent;
+    }
+
+    public WorkPriority getPriority() {
+
+        return priority;
+    }
+}
@@ -0,0 +1,225 @@
+package repository;
+
+import model.account.Account;
+import model.account.NewAccount;
+import model.session.SessionContext;
+import model.transaction.ActivitySummary;
+import model.transaction.ActivityTotals;
+import model.transaction.RollupPeriod;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+import model.user.User;
+import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+import repository.offline.ReplayOutcome;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+//A DatabaseManager that hands every operation to another DatabaseManager. Each call passes through invoke(), so a
+//subclass can add behavior around all operations (retries, limits, ...) by overriding that one method, or around a
+//single operation by overriding just that operation. Wrappers can be stacked, since the delegate may be one too
+public class ForwardingDatabaseManager extends DatabaseManager {
+
+    private final DatabaseManager delegate;
+
+    public ForwardingDatabaseManager(DatabaseManager delegate) {
+
+        this.delegate = delegate;
+    }
+
+
+    protected DatabaseManager getDelegate() {
+
+        return delegate;
+    }
+
+    protected <T> T invoke(DatabaseOperation operation, DatabaseCall<T> call) throws DatabaseException {
+
+        //By default, the call is simply run
+        return call.call();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        return delegate.getConnection();
+    }
+
+    @Override
+    public void setQueryTimeout(DatabaseOperation operation, int seconds) {
+
+        delegate.setQueryTimeout(operation, seconds);
+    }
+
+    @Override
+    public User getUser(String login) throws DatabaseException {
+
+        return invoke(DatabaseOperation.GET_USER_BY_LOGIN, () -> delegate.getUser(login));
+    }
+
+    @Override
+    public boolean replacePin(String login, String stored_pin, String new_stored_pin) throws DatabaseException {
+
+        return invoke(DatabaseOperation.REPLACE_PIN, () -> delegate.replacePin(login, stored_pin, new_stored_pin));
+    }
+
+    @Override
+    public User getUser(int account_num) throws DatabaseException {
+
+        return invoke(DatabaseOperation.GET_USER, () -> delegate.getUser(account_num));
+    }
+
+    @Override
+    public Account getAccount(int account_num) throws DatabaseException {
+
+        return invoke(DatabaseOperation.GET_ACCOUNT, () -> delegate.getAccount(account_num));
+    }
+
+    @Override
+    public void updateAccountBalance(int account_num, int new_balance) throws DatabaseException {
+
+        invoke(DatabaseOperation.UPDATE_BALANCE, () -> {
+
+            delegate.updateAccountBalance(account_num, new_balance);
+            return null;
+        });
+    }
+
+    @Override
+    public int createNewAccount(String login, String pin, String holder, int balance, String status)
+            throws DatabaseException {
+
+        return invoke(DatabaseOperation.CREATE_ACCOUNT,
+                () -> delegate.createNewAccount(login, pin, holder, balance, status));
+    }
+
+    @Override
+    public int createNewAccount(int account_num, String login, String pin, String holder, int balance, String status)
+            throws DatabaseException {
+
+        return invoke(DatabaseOperation.CREATE_ACCOUNT,
+                () -> delegate.createNewAccount(account_num, login, pin, holder, balance, status));
+    }
+
+    @Override
+    public int[] createNewAccounts(List<NewAccount> new_accounts) throws DatabaseException {
+
+        return invoke(DatabaseOperation.CREATE_ACCOUNTS, () -> delegate.createNewAccounts(new_accounts));
+    }
+
+    @Override
+    public void deleteAccount(int account_num) throws DatabaseException {
+
+        invoke(DatabaseOperation.DELETE_ACCOUNT, () -> {
+
+            delegate.deleteAccount(account_num);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean updateAccountInfo(int account_num, String new_holder,
+                                     String new_status, String new_login, String new_pin) throws DatabaseException {
+
+        return invoke(DatabaseOperation.UPDATE_ACCOUNT_INFO,
+                () -> delegate.updateAccountInfo(account_num, new_holder, new_status, new_login, new_pin));
+    }
+
+    @Override
+    public List<Account> getAllAccounts() throws DatabaseException {
+
+        return invoke(DatabaseOperation.GET_ALL_ACCOUNTS, delegate::getAllAccounts);
+    }
+
+    @Override
+    public Map<Integer, Account> getAccounts(int[] account_nums) throws DatabaseException {
+
+        return invoke(DatabaseOperation.GET_ACCOUNTS, () -> delegate.getAccounts(account_nums));
+    }
+
+    @Override
+    public int[] updateAccounts(int[] account_nums, String new_holder, String new_status) throws DatabaseException {
+
+        return invoke(DatabaseOperation.UPDATE_ACCOUNTS,
+                () -> delegate.updateAccounts(account_nums, new_holder, new_status));
+    }
+
+    @Override
+    public SessionContext loadSession(String login) throws DatabaseException {
+
+        return invoke(DatabaseOperation.LOAD_SESSION, () -> delegate.loadSession(login));
+    }
+
+    @Override
+    public int applyTransaction(int account_num, int new_balance, TransactionType type, int amount)
+            throws DatabaseException {
+
+        return invoke(DatabaseOperation.APPLY_TRANSACTION,
+                () -> delegate.applyTransaction(account_num, new_balance, type, amount));
+    }
+
+    @Override
+    public int enableSubBalances(int account_num, int slot_count) throws DatabaseException {
+
+        return invoke(DatabaseOperation.ENABLE_SUB_BALANCES, () -> delegate.enableSubBalances(account_num, slot_count));
+    }
+
+    @Override
+    public boolean loginExists(String login) throws DatabaseException {
+
+        return invoke(DatabaseOperation.LOGIN_EXISTS, () -> delegate.loginExists(login));
+    }
+
+    @Override
+    public int scanAccountKeys(AccountKeyConsumer consumer) throws DatabaseException {
+
+        return invoke(DatabaseOperation.SCAN_ACCOUNT_KEYS, () -> delegate.scanAccountKeys(consumer));
+    }
+
+    @Override
+    public int scanAccounts(AccountConsumer consumer) throws DatabaseException {
+
+        return invoke(DatabaseOperation.SCAN_ACCOUNTS, () -> delegate.scanAccounts(consumer));
+    }
+
+    @Override
+    public ReplayOutcome[] applyJournalEntries(String terminal_id, List<JournalEntry> entries)
+            throws DatabaseException {
+
+        return invoke(DatabaseOperation.REPLAY_JOURNAL, () -> delegate.applyJournalEntries(terminal_id, entries));
+    }
+
+    @Override
+    public List<TransactionRecord> getTransactionHistory(int account_num, LocalDateTime from, LocalDateTime to)
+            throws DatabaseException {
+
+        return invoke(DatabaseOperation.GET_TRANSACTION_HISTORY,
+                () -> delegate.getTransactionHistory(account_num, from, to));
+    }
+
+    @Override
+    public List<ActivitySummary> getActivitySummaries(int account_num, RollupPeriod period, LocalDate from,
+                                                      LocalDate to) throws DatabaseException {
+
+        return invoke(DatabaseOperation.GET_ACTIVITY_SUMMARIES,
+                () -> delegate.getActivitySummaries(account_num, period, from, to));
+    }
+
+    @Override
+    public List<ActivityTotals> getActivityTotals(RollupPeriod period, LocalDate from, LocalDate to)
+            throws DatabaseException {
+
+        return invoke(DatabaseOperation.GET_ACTIVITY_TOTALS, () -> delegate.getActivityTotals(period, from, to));
+    }
+
+    @Override
+    public int rebuildRollups(LocalDate from, LocalDate to) throws DatabaseException {
+
+        return invoke(DatabaseOperation.REBUILD_ROLLUPS, () -> delegate.rebuildRollups(from, to));
+    }
+}
@@ -0,0 +1,44 @@
+package repository;
+
+public enum SchemaLayout {
+
+    //Every account column lives in the one accounts row, as the project started out
+    SINGLE_TABLE("accounts", "accounts", "accounts a"),
+
+    //Credentials and profile (login, pin, role, holder, status) live in account_profiles, and the balance, which
+    //changes on every withdrawal and deposit, in its own narrow account_balances row. A balance update then locks
+    //and rewrites only that small row instead of the row every login reads. Administrators have no balance row,
+    //hence the LEFT JOIN
+    SPLIT("account_profiles", "account_balances",
+            "account_profiles a LEFT JOIN account_balances b USING (account_num)");
+
+    private final String profile_table;
+    private final String balance_table;
+    private final String account_source;
+
+    SchemaLayout(String profile_table, String balance_table, String account_source) {
+
+        this.profile_table = profile_table;
+        this.balance_table = balance_table;
+        this.account_source = account_source;
+    }
+
+    //The table holding login, pin, role, holder and status
+    public String getProfileTable() {
+
+        return profile_table;
+    }
+
+    //The table holding the balance
+    public String getBalanceTable() {
+
+        return balance_table;
+    }
+
+    //What reads that need both profile and balance columns select from. The profile side is always aliased "a",
+    //and no other column name appears on both sides, so queries can name columns without knowing the layout
+    public String getAccountSource() {
+
+        return account_source;
+    }
+}
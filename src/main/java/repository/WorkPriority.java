@@ -0,0 +1,10 @@
+package repository;
+
+//Who a database call is being made for. When the database is struggling, BATCH work is turned away first and
+//CUSTOMER work last, so withdrawals and deposits at the terminals stay fast
+public enum WorkPriority {
+
+    CUSTOMER,
+    ADMIN,
+    BATCH
+}
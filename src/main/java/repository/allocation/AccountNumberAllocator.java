@@ -0,0 +1,150 @@
+package repository.allocation;
+
+import repository.exception.DatabaseException;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class AccountNumberAllocator {
+
+    //Hi/lo allocation: a whole block of account numbers is reserved from the database at once, and numbers are then
+    //handed out from memory with a single atomic increment. Only the caller that finds the block used up goes back
+    //to the database. Numbers left in a block when the application stops are never used, so there can be gaps
+
+    private static final class Block {
+
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private final NumberBlockSource source;
+    private final int block_size;
+    private final LongSupplier clock;
+    private final long created_at;
+
+    private volatile Block current;
+
+    private final LongAdder allocated = new LongAdder();
+    private final AtomicLong blocks_reserved = new AtomicLong();
+    private final LongAdder block_exhaustions = new LongAdder();
+
+    public AccountNumberAllocator(NumberBlockSource source, int block_size) {
+
+        this(source, block_size, System::currentTimeMillis);
+    }
+
+    public AccountNumberAllocator(NumberBlockSource source, int block_size, LongSupplier clock) {
+
+        if (block_size < 1) {
+
+            throw new IllegalArgumentException("Block size must be at least 1");
+        }
+
+        this.source = source;
+        this.block_size = block_size;
+        this.clock = clock;
+        this.created_at = clock.getAsLong();
+    }
+
+
+    public int next() throws DatabaseException {
+
+        while (true) {
+
+            Block block = current;
+            if (block != null) {
+
+                long number = block.next.getAndIncrement();
+                if (number < block.end) {
+
+                    allocated.increment();
+                    return toAccountNumber(number);
+                }
+            }
+
+            refill(block);
+        }
+    }
+
+    public int[] next(int count) throws DatabaseException {
+
+        //Numbers for a bulk creation; they are taken one at a time, but from memory, so this costs a database
+        //round trip only when a block runs out part way
+        int[] numbers = new int[count];
+        for (int i = 0; i < count; i++) {
+
+            numbers[i] = next();
+        }
+
+        return numbers;
+    }
+
+    private synchronized void refill(Block used_up) throws DatabaseException {
+
+        //Several callers may find the same block used up; only the first one reserves a new block
+        if (current != used_up) {
+
+            return;
+        }
+
+        if (used_up != null) {
+
+            block_exhaustions.increment();
+        }
+
+        long start = source.reserveBlock(block_size);
+        current = new Block(start, start + block_size);
+        blocks_reserved.incrementAndGet();
+    }
+
+    private static int toAccountNumber(long number) {
+
+        if (number <= 0 || number > Integer.MAX_VALUE) {
+
+            throw new IllegalStateException("Account number out of range: " + number);
+        }
+
+        return (int) number;
+    }
+
+    public int getBlockSize() {
+
+        return block_size;
+    }
+
+    public long getAllocatedCount() {
+
+        return allocated.sum();
+    }
+
+    public long getBlocksReserved() {
+
+        return blocks_reserved.get();
+    }
+
+    //How many times a block ran out and a caller had to wait for the database to reserve the next one
+    public long getBlockExhaustions() {
+
+        return block_exhaustions.sum();
+    }
+
+    public long getRemainingInBlock() {
+
+        Block block = current;
+        return block == null ? 0 : Math.max(0, block.end - block.next.get());
+    }
+
+    //Account numbers handed out per second since the allocator was created
+    public double getAllocationRate() {
+
+        long elapsed_ms = clock.getAsLong() - created_at;
+        return elapsed_ms <= 0 ? 0 : getAllocatedCount() * 1000.0 / elapsed_ms;
+    }
+}
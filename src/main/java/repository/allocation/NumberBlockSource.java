@@ -0,0 +1,9 @@
+package repository.allocation;
+
+import repository.exception.DatabaseException;
+
+public interface NumberBlockSource {
+
+    //Reserves block_size consecutive numbers for the caller alone and returns the first of them
+    long reserveBlock(int block_size) throws DatabaseException;
+}
@@ -0,0 +1,57 @@
+package repository.allocation;
+
+import repository.DatabaseConnection;
+import repository.exception.DatabaseException;
+
+import java.sql.*;
+
+public class SequenceTable implements NumberBlockSource {
+
+    //Each row of number_sequences holds the next unreserved value of one named sequence
+    private final DatabaseConnection db_connection;
+    private final String sequence_name;
+
+    public SequenceTable(DatabaseConnection db_connection, String sequence_name) {
+
+        this.db_connection = db_connection;
+        this.sequence_name = sequence_name;
+    }
+
+
+    public Connection getConnection() throws SQLException {
+
+        return db_connection.open();
+    }
+
+    @Override
+    public long reserveBlock(int block_size) throws DatabaseException {
+
+        //The row is moved forward by a whole block in one statement. LAST_INSERT_ID(expr) remembers the new value for
+        //this connection, so it is read back without a second look at the (possibly already moved) row
+        try (Connection connection = getConnection();
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE number_sequences SET next_value = LAST_INSERT_ID(next_value + ?) WHERE name = ?");
+             PreparedStatement query = connection.prepareStatement("SELECT LAST_INSERT_ID()")) {
+
+            update.setInt(1, block_size);
+            update.setString(2, sequence_name);
+
+            if (update.executeUpdate() == 0) {
+
+                throw new DatabaseException("Unknown number sequence: " + sequence_name, null);
+            }
+
+            ResultSet result = query.executeQuery();
+            if (!result.next()) {
+
+                throw new DatabaseException("Could not read reserved block of sequence: " + sequence_name, null);
+            }
+
+            return result.getLong(1) - block_size;
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error reserving numbers from sequence: " + sequence_name, error);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package repository.archive;
+
+import java.time.YearMonth;
+
+//One month moved to the archive: rows written to its segment, the segment's size on disk, and rows deleted from the
+//transactions table (fewer than rows only if the run was stopped, in which case the next run deletes the rest)
+public record ArchiveResult(YearMonth month, int rows, long bytes, int deleted) {
+}
@@ -0,0 +1,128 @@
+package repository.archive;
+
+import model.session.SessionContext;
+import model.transaction.TransactionRecord;
+import model.user.Customer;
+import repository.DatabaseManager;
+import repository.ForwardingDatabaseManager;
+import repository.exception.DatabaseException;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ArchivedHistoryDatabaseManager extends ForwardingDatabaseManager {
+
+    //Makes the ledger archive invisible to callers: history is read from the transactions table and, where the
+    //requested range reaches back far enough, from the archived segments too, and handed back as one list.
+    //A row can briefly be in both places (archived, but its batch not deleted yet), so rows found in the table are
+    //not added again from the archive
+
+    private static final Comparator<TransactionRecord> NEWEST_FIRST =
+            Comparator.comparing(TransactionRecord::timestamp).reversed();
+
+    private final SegmentStore store;
+
+    private final LongAdder archive_reads = new LongAdder();
+    private final LongAdder archive_failures = new LongAdder();
+
+    public ArchivedHistoryDatabaseManager(DatabaseManager delegate, SegmentStore store) {
+
+        super(delegate);
+        this.store = store;
+    }
+
+
+    @Override
+    public SessionContext loadSession(String login) throws DatabaseException {
+
+        //The session already has the latest transactions from the table. Only a customer who has had fewer than
+        //RECENT_ACTIVITY_LIMIT since the archive cutoff needs the rest from the archive
+        SessionContext session = super.loadSession(login);
+        if (session == null || !(session.getUser() instanceof Customer customer) ||
+                session.getRecentActivity().size() >= RECENT_ACTIVITY_LIMIT) {
+
+            return session;
+        }
+
+        List<LedgerRow> archived;
+        try {
+
+            archived = store.newest(customer.getAccount().getAccountNumber(), RECENT_ACTIVITY_LIMIT);
+        }
+        catch (IOException error) {
+
+            //The login goes ahead with the activity the table had; the archive is not worth failing it over
+            archive_failures.increment();
+            return session;
+        }
+
+        if (archived.isEmpty()) {
+
+            return session;
+        }
+
+        archive_reads.increment();
+        List<TransactionRecord> recent_activity = merge(session.getRecentActivity(), archived);
+        return new SessionContext(session.getUser(), recent_activity.subList(0,
+                Math.min(RECENT_ACTIVITY_LIMIT, recent_activity.size())), session.getLimits(), RECENT_ACTIVITY_LIMIT);
+    }
+
+    @Override
+    public List<TransactionRecord> getTransactionHistory(int account_num, LocalDateTime from, LocalDateTime to)
+            throws DatabaseException {
+
+        List<TransactionRecord> live = super.getTransactionHistory(account_num, from, to);
+
+        List<LedgerRow> archived;
+        try {
+
+            //Converted the way the JDBC driver converts a TIMESTAMP, so both sides cut the range at the same instant
+            archived = store.history(account_num, Timestamp.valueOf(from).getTime(), Timestamp.valueOf(to).getTime());
+        }
+        catch (IOException error) {
+
+            archive_failures.increment();
+            throw new DatabaseException("Error reading archived history of account: " + account_num, error);
+        }
+
+        if (archived.isEmpty()) {
+
+            return live;
+        }
+
+        archive_reads.increment();
+        return merge(live, archived);
+    }
+
+    static List<TransactionRecord> merge(List<TransactionRecord> live, List<LedgerRow> archived) {
+
+        //Newest first; the sort is stable, so rows with the same time keep the order the table gave them
+        Set<TransactionRecord> merged = new LinkedHashSet<>(live);
+        for (LedgerRow row : archived) {
+
+            merged.add(row.toRecord());
+        }
+
+        List<TransactionRecord> history = new ArrayList<>(merged);
+        history.sort(NEWEST_FIRST);
+
+        return history;
+    }
+
+    public long getArchiveReads() {
+
+        return archive_reads.sum();
+    }
+
+    public long getArchiveFailures() {
+
+        return archive_failures.sum();
+    }
+}
@@ -0,0 +1,110 @@
+package repository.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+final class ColumnCodec {
+
+    //Numbers are written as variable-length integers (7 bits a byte), so the small values that delta encoding
+    //produces take one or two bytes. Signed values are zig-zag encoded first, so small negative numbers stay small
+
+    private ColumnCodec() {
+
+    }
+
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+
+        while ((value & ~0x7FL) != 0) {
+
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+
+        long value = 0;
+        int shift = 0;
+        byte next;
+
+        do {
+
+            next = in.get();
+            value |= (long) (next & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((next & 0x80) != 0);
+
+        return value;
+    }
+
+    static long zigZag(long value) {
+
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static byte[] deflate(byte[] column) {
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+
+            deflater.setInput(column);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, column.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+            return out.toByteArray();
+        }
+        finally {
+
+            deflater.end();
+        }
+    }
+
+    static ByteBuffer inflate(byte[] compressed) throws IOException {
+
+        Inflater inflater = new Inflater();
+        try {
+
+            inflater.setInput(compressed);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+
+                    throw new IOException("Archive column is truncated");
+                }
+                out.write(buffer, 0, count);
+            }
+
+            return ByteBuffer.wrap(out.toByteArray());
+        }
+        catch (DataFormatException error) {
+
+            throw new IOException("Archive column is corrupted", error);
+        }
+        finally {
+
+            inflater.end();
+        }
+    }
+}
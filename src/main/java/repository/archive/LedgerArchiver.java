@@ -0,0 +1,305 @@
+package repository.archive;
+
+import model.transaction.TransactionType;
+import repository.DatabaseConnection;
+import repository.exception.DatabaseException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LedgerArchiver implements Closeable {
+
+    //Moves ledger rows older than retention_months whole months out of the transactions table and into the archive,
+    //one month at a time. A month is read with a plain streaming SELECT over the created_at index, which takes no
+    //locks, and written to a new segment. Only once the segment is finished and on disk are its rows deleted, by
+    //primary key, delete_batch_size rows per statement with a pause between statements, so each delete holds its
+    //row locks for a moment and customer transactions on those accounts wait at most that long.
+    //If a run stops part way, the segment is still there without its .purged marker and the next run finishes the
+    //deletes. Until then the rows are both live and archived, which the history reads allow for
+
+    private final DatabaseConnection db_connection;
+    private final SegmentStore store;
+    private final int retention_months;
+    private final int delete_batch_size;
+    private final long batch_pause_ms;
+    private final Clock clock;
+
+    private ScheduledExecutorService executor;
+
+    private final LongAdder archived_rows = new LongAdder();
+    private final LongAdder deleted_rows = new LongAdder();
+    private final LongAdder failed_runs = new LongAdder();
+
+    public LedgerArchiver(DatabaseConnection db_connection, SegmentStore store, int retention_months,
+                          int delete_batch_size, long batch_pause_ms) {
+
+        this(db_connection, store, retention_months, delete_batch_size, batch_pause_ms, Clock.systemDefaultZone());
+    }
+
+    public LedgerArchiver(DatabaseConnection db_connection, SegmentStore store, int retention_months,
+                          int delete_batch_size, long batch_pause_ms, Clock clock) {
+
+        if (retention_months < 1 || delete_batch_size < 1) {
+
+            throw new IllegalArgumentException("Retention and delete batch size must be at least 1");
+        }
+
+        this.db_connection = db_connection;
+        this.store = store;
+        this.retention_months = retention_months;
+        this.delete_batch_size = delete_batch_size;
+        this.batch_pause_ms = batch_pause_ms;
+        this.clock = clock;
+    }
+
+
+    public Connection getConnection() throws SQLException {
+
+        return db_connection.open();
+    }
+
+    public YearMonth getCutoff() {
+
+        //The first month that stays live; everything before it is archived
+        return YearMonth.now(clock).minusMonths(retention_months);
+    }
+
+    public synchronized List<ArchiveResult> archive() throws DatabaseException {
+
+        List<ArchiveResult> results = new ArrayList<>();
+        YearMonth cutoff = getCutoff();
+
+        try (Connection connection = getConnection()) {
+
+            connection.setAutoCommit(true);
+
+            //First the deletes an earlier run did not get to finish
+            for (LedgerSegment segment : store.getUnpurged()) {
+
+                long[] ids = archivedIds(segment);
+                deleteArchived(connection, ids, ids.length);
+                if (Thread.currentThread().isInterrupted()) {
+
+                    return results;
+                }
+                store.markPurged(segment);
+            }
+
+            YearMonth month = oldestMonth(connection, cutoff);
+            while (month != null && month.isBefore(cutoff) && !Thread.currentThread().isInterrupted()) {
+
+                ArchiveResult result = archiveMonth(connection, month);
+                if (result != null) {
+
+                    results.add(result);
+                }
+                month = month.plusMonths(1);
+            }
+        }
+        catch (SQLException error) {
+
+            failed_runs.increment();
+            throw new DatabaseException("Error archiving ledger rows before: " + cutoff, error);
+        }
+        catch (IOException error) {
+
+            failed_runs.increment();
+            throw new DatabaseException("Error writing ledger archive segment before: " + cutoff, error);
+        }
+
+        return results;
+    }
+
+    private YearMonth oldestMonth(Connection connection, YearMonth cutoff) throws SQLException {
+
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT MIN(created_at) FROM transactions WHERE created_at < ?")) {
+
+            query.setTimestamp(1, Timestamp.valueOf(cutoff.atDay(1).atStartOfDay()));
+
+            ResultSet result = query.executeQuery();
+            Timestamp oldest = result.next() ? result.getTimestamp(1) : null;
+
+            return oldest == null ? null : YearMonth.from(oldest.toLocalDateTime());
+        }
+    }
+
+    private ArchiveResult archiveMonth(Connection connection, YearMonth month) throws SQLException, IOException {
+
+        //Returns null for a month with no rows
+        LocalDateTime start = month.atDay(1).atStartOfDay();
+        long[] ids = new long[1024];
+        int count = 0;
+        long bytes;
+        Path path = store.nextPath(month);
+
+        try (SegmentWriter writer = new SegmentWriter(path);
+             PreparedStatement query = connection.prepareStatement(
+                     "SELECT transaction_id, account_num, type, amount, balance_after, created_at " +
+                             "FROM transactions WHERE created_at >= ? AND created_at < ? " +
+                             "ORDER BY account_num, created_at, transaction_id",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            //The driver streams the rows one at a time rather than holding the whole month in memory
+            query.setFetchSize(Integer.MIN_VALUE);
+            query.setTimestamp(1, Timestamp.valueOf(start));
+            query.setTimestamp(2, Timestamp.valueOf(start.plusMonths(1)));
+
+            ResultSet result = query.executeQuery();
+            while (result.next()) {
+
+                LedgerRow row = new LedgerRow(result.getLong("transaction_id"), result.getInt("account_num"),
+                        TransactionType.valueOf(result.getString("type")), result.getInt("amount"),
+                        result.getInt("balance_after"), result.getTimestamp("created_at").getTime());
+                writer.append(row);
+
+                if (count == ids.length) {
+
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = row.transaction_id();
+            }
+            result.close();
+
+            if (count == 0) {
+
+                return null;
+            }
+
+            bytes = writer.finish();
+        }
+
+        LedgerSegment segment = store.add(path);
+        archived_rows.add(count);
+
+        int deleted = deleteArchived(connection, ids, count);
+        if (!Thread.currentThread().isInterrupted()) {
+
+            store.markPurged(segment);
+        }
+
+        return new ArchiveResult(month, count, bytes, deleted);
+    }
+
+    private int deleteArchived(Connection connection, long[] ids, int count) throws SQLException {
+
+        //Returns the number of rows deleted; if the thread is interrupted the rest are left for the next run
+        int deleted = 0;
+
+        for (int from = 0; from < count; from += delete_batch_size) {
+
+            int size = Math.min(delete_batch_size, count - from);
+            StringBuilder sql = new StringBuilder("DELETE FROM transactions WHERE transaction_id IN (");
+            for (int i = 0; i < size; i++) {
+
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(")");
+
+            //Each statement commits on its own, so no lock outlives its batch
+            try (PreparedStatement delete = connection.prepareStatement(sql.toString())) {
+
+                for (int i = 0; i < size; i++) {
+
+                    delete.setLong(i + 1, ids[from + i]);
+                }
+
+                int batch_deleted = delete.executeUpdate();
+                deleted += batch_deleted;
+                deleted_rows.add(batch_deleted);
+            }
+
+            if (batch_pause_ms > 0 && from + size < count) {
+
+                try {
+
+                    Thread.sleep(batch_pause_ms);
+                }
+                catch (InterruptedException error) {
+
+                    Thread.currentThread().interrupt();
+                    return deleted;
+                }
+            }
+        }
+
+        return deleted;
+    }
+
+    private static long[] archivedIds(LedgerSegment segment) throws IOException {
+
+        long[] ids = new long[segment.getRowCount()];
+        int[] count = new int[1];
+        segment.forEachRow(row -> ids[count[0]++] = row.transaction_id());
+
+        return ids;
+    }
+
+    public void start(long interval_ms) {
+
+        //A single background thread archives every interval_ms; most runs find nothing old enough to move
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+
+            Thread thread = new Thread(runnable, "ledger-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        executor.scheduleWithFixedDelay(() -> {
+
+            try {
+
+                archive();
+            }
+            catch (DatabaseException error) {
+
+                //Counted in failed_runs; the next run starts over from the oldest live month
+            }
+        }, 0, interval_ms, TimeUnit.MILLISECONDS);
+    }
+
+    public long getArchivedRows() {
+
+        return archived_rows.sum();
+    }
+
+    public long getDeletedRows() {
+
+        return deleted_rows.sum();
+    }
+
+    public long getFailedRuns() {
+
+        return failed_runs.sum();
+    }
+
+    public SegmentStore getStore() {
+
+        return store;
+    }
+
+    @Override
+    public void close() {
+
+        if (executor != null) {
+
+            executor.shutdownNow();
+        }
+    }
+}
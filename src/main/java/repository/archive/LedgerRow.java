@@ -0,0 +1,22 @@
+package repository.archive;
+
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+
+import java.sql.Timestamp;
+import java.util.Comparator;
+
+//One row of the transactions table as it is kept in an archive segment. created_at is in epoch milliseconds
+public record LedgerRow(long transaction_id, int account_num, TransactionType type, int amount, int balance_after,
+                        long created_at) {
+
+    //The order history is shown in: latest first, the same order the live table is read in
+    public static final Comparator<LedgerRow> NEWEST_FIRST = Comparator.comparingLong(LedgerRow::created_at)
+            .thenComparingLong(LedgerRow::transaction_id).reversed();
+
+    public TransactionRecord toRecord() {
+
+        //Converted the same way the JDBC driver converts the column, so live and archived rows compare equal
+        return new TransactionRecord(type, amount, balance_after, new Timestamp(created_at).toLocalDateTime());
+    }
+}
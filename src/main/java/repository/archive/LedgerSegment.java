@@ -0,0 +1,226 @@
+package repository.archive;
+
+import model.transaction.TransactionType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class LedgerSegment {
+
+    //A finished archive segment (see SegmentWriter). Only the footer is kept in memory: the block positions and
+    //the account index. Rows are read by decompressing just the blocks an account's rows fall in
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final Path path;
+
+    private final long[] block_offsets;
+    private final int[][] column_lengths;
+
+    private final int[] accounts;
+    private final int[] first_rows;
+    private final int[] counts;
+
+    private final int rows;
+    private final long min_created;
+    private final long max_created;
+
+    private LedgerSegment(Path path, long[] block_offsets, int[][] column_lengths, int[] accounts, int[] first_rows,
+                          int[] counts, int rows, long min_created, long max_created) {
+
+        this.path = path;
+        this.block_offsets = block_offsets;
+        this.column_lengths = column_lengths;
+        this.accounts = accounts;
+        this.first_rows = first_rows;
+        this.counts = counts;
+        this.rows = rows;
+        this.min_created = min_created;
+        this.max_created = max_created;
+    }
+
+
+    public static LedgerSegment open(Path path) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+            ByteBuffer trailer = read(channel, size - Long.BYTES - Integer.BYTES, Long.BYTES + Integer.BYTES);
+            long footer_position = trailer.getLong();
+            ByteBuffer header = read(channel, 0, 2 * Integer.BYTES);
+
+            if (trailer.getInt() != SegmentWriter.MAGIC || header.getInt() != SegmentWriter.MAGIC ||
+                    header.getInt() != SegmentWriter.VERSION) {
+
+                throw new IOException("Not an archive segment: " + path);
+            }
+
+            ByteBuffer footer = read(channel, footer_position, (int) (size - Long.BYTES - Integer.BYTES -
+                    footer_position));
+
+            int block_count = footer.getInt();
+            long[] block_offsets = new long[block_count];
+            int[][] column_lengths = new int[block_count][SegmentWriter.COLUMNS];
+            for (int block = 0; block < block_count; block++) {
+
+                block_offsets[block] = footer.getLong();
+                footer.getInt();
+                for (int column = 0; column < SegmentWriter.COLUMNS; column++) {
+
+                    column_lengths[block][column] = footer.getInt();
+                }
+            }
+
+            int index_size = footer.getInt();
+            int[] accounts = new int[index_size];
+            int[] first_rows = new int[index_size];
+            int[] counts = new int[index_size];
+            for (int i = 0; i < index_size; i++) {
+
+                accounts[i] = footer.getInt();
+                first_rows[i] = footer.getInt();
+                counts[i] = footer.getInt();
+            }
+
+            int rows = footer.getInt();
+            long min_created = footer.getLong();
+            long max_created = footer.getLong();
+
+            return new LedgerSegment(path, block_offsets, column_lengths, accounts, first_rows, counts, rows,
+                    min_created, max_created);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+
+        if (position < 0 || length < 0) {
+
+            throw new IOException("Archive segment is truncated");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+
+                throw new IOException("Archive segment is truncated");
+            }
+        }
+
+        return buffer.flip();
+    }
+
+    public boolean contains(int account_num) {
+
+        return Arrays.binarySearch(accounts, account_num) >= 0;
+    }
+
+    public List<LedgerRow> read(int account_num) throws IOException {
+
+        //The account's rows, oldest first
+        int entry = Arrays.binarySearch(accounts, account_num);
+        if (entry < 0) {
+
+            return List.of();
+        }
+
+        int first = first_rows[entry];
+        int last = first + counts[entry] - 1;
+        List<LedgerRow> result = new ArrayList<>(counts[entry]);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            for (int block = first / SegmentWriter.BLOCK_ROWS; block <= last / SegmentWriter.BLOCK_ROWS; block++) {
+
+                LedgerRow[] block_rows = readBlock(channel, block);
+                int block_start = block * SegmentWriter.BLOCK_ROWS;
+
+                for (int i = Math.max(first, block_start) - block_start;
+                     i <= Math.min(last, block_start + block_rows.length - 1) - block_start; i++) {
+
+                    result.add(block_rows[i]);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public void forEachRow(Consumer<LedgerRow> consumer) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            for (int block = 0; block < block_offsets.length; block++) {
+
+                for (LedgerRow row : readBlock(channel, block)) {
+
+                    consumer.accept(row);
+                }
+            }
+        }
+    }
+
+    private LedgerRow[] readBlock(FileChannel channel, int block) throws IOException {
+
+        ByteBuffer[] columns = new ByteBuffer[SegmentWriter.COLUMNS];
+        long position = block_offsets[block];
+        for (int column = 0; column < SegmentWriter.COLUMNS; column++) {
+
+            int length = column_lengths[block][column];
+            columns[column] = ColumnCodec.inflate(read(channel, position, length).array());
+            position += length;
+        }
+
+        //The type column has one byte per row, so its length is the block's row count
+        LedgerRow[] block_rows = new LedgerRow[columns[2].remaining()];
+        long account = 0;
+        long id = 0;
+        long created = 0;
+
+        for (int i = 0; i < block_rows.length; i++) {
+
+            account += ColumnCodec.unZigZag(ColumnCodec.readVarLong(columns[0]));
+            id += ColumnCodec.unZigZag(ColumnCodec.readVarLong(columns[1]));
+            TransactionType type = TYPES[columns[2].get()];
+            int amount = (int) ColumnCodec.unZigZag(ColumnCodec.readVarLong(columns[3]));
+            int balance_after = (int) ColumnCodec.unZigZag(ColumnCodec.readVarLong(columns[4]));
+            created += ColumnCodec.unZigZag(ColumnCodec.readVarLong(columns[5]));
+
+            block_rows[i] = new LedgerRow(id, (int) account, type, amount, balance_after, created);
+        }
+
+        return block_rows;
+    }
+
+    public Path getPath() {
+
+        return path;
+    }
+
+    public int getRowCount() {
+
+        return rows;
+    }
+
+    public int getAccountCount() {
+
+        return accounts.length;
+    }
+
+    public long getMinCreated() {
+
+        return min_created;
+    }
+
+    public long getMaxCreated() {
+
+        return max_created;
+    }
+}
@@ -0,0 +1,214 @@
+package repository.archive;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class SegmentStore {
+
+    //The archive directory: one or more segments per month, named ledger-<year>-<month>-<part>.seg. A month gets a
+    //second part only if it is archived again later (rows that arrived late, or a run that was interrupted).
+    //Each segment gets a .purged marker once its rows have been deleted from the transactions table; a segment
+    //without one still has rows to delete, which the archiver finishes on its next run
+
+    private static final String PREFIX = "ledger-";
+    private static final String SUFFIX = ".seg";
+    private static final String PURGED = ".purged";
+
+    private final Path directory;
+    private final ConcurrentSkipListMap<YearMonth, List<LedgerSegment>> segments = new ConcurrentSkipListMap<>();
+
+    public SegmentStore(Path directory) throws IOException {
+
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+
+            for (Path file : files) {
+
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+
+                    //Left by a run that stopped before the segment was finished; nothing was deleted for it
+                    Files.delete(file);
+                }
+                else if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+
+                    add(file);
+                }
+            }
+        }
+    }
+
+
+    static YearMonth monthOf(Path segment) {
+
+        //ledger-2025-03-1.seg is a segment of March 2025
+        String name = segment.getFileName().toString();
+        return YearMonth.parse(name.substring(PREFIX.length(), PREFIX.length() + 7));
+    }
+
+    public Path nextPath(YearMonth month) {
+
+        List<LedgerSegment> existing = segments.get(month);
+        int part = existing == null ? 1 : existing.size() + 1;
+        Path path = directory.resolve(PREFIX + month + "-" + part + SUFFIX);
+
+        while (Files.exists(path)) {
+
+            path = directory.resolve(PREFIX + month + "-" + ++part + SUFFIX);
+        }
+
+        return path;
+    }
+
+    public LedgerSegment add(Path path) throws IOException {
+
+        LedgerSegment segment = LedgerSegment.open(path);
+        segments.computeIfAbsent(monthOf(path), key -> new CopyOnWriteArrayList<>()).add(segment);
+
+        return segment;
+    }
+
+    public boolean isPurged(LedgerSegment segment) {
+
+        return Files.exists(segment.getPath().resolveSibling(segment.getPath().getFileName() + PURGED));
+    }
+
+    public void markPurged(LedgerSegment segment) throws IOException {
+
+        Path marker = segment.getPath().resolveSibling(segment.getPath().getFileName() + PURGED);
+        if (!Files.exists(marker)) {
+
+            Files.createFile(marker);
+        }
+    }
+
+    public List<LedgerSegment> getUnpurged() {
+
+        List<LedgerSegment> unpurged = new ArrayList<>();
+        for (List<LedgerSegment> month : segments.values()) {
+
+            for (LedgerSegment segment : month) {
+
+                if (!isPurged(segment)) {
+
+                    unpurged.add(segment);
+                }
+            }
+        }
+
+        return unpurged;
+    }
+
+    public List<LedgerRow> history(int account_num, long from, long to) throws IOException {
+
+        //The account's archived rows with from <= created_at < to, newest first. Months outside the range and
+        //segments the account does not appear in are skipped without being read
+        List<LedgerRow> history = new ArrayList<>();
+
+        for (Map.Entry<YearMonth, List<LedgerSegment>> month : segments.descendingMap().entrySet()) {
+
+            List<LedgerRow> month_rows = new ArrayList<>();
+            for (LedgerSegment segment : month.getValue()) {
+
+                if (segment.getMaxCreated() < from || segment.getMinCreated() >= to || !segment.contains(account_num)) {
+
+                    continue;
+                }
+
+                for (LedgerRow row : segment.read(account_num)) {
+
+                    if (row.created_at() >= from && row.created_at() < to) {
+
+                        month_rows.add(row);
+                    }
+                }
+            }
+
+            month_rows.sort(LedgerRow.NEWEST_FIRST);
+            history.addAll(month_rows);
+        }
+
+        return history;
+    }
+
+    public List<LedgerRow> newest(int account_num, int limit) throws IOException {
+
+        //The account's latest archived rows, newest first; only as many months are read as it takes to find them
+        List<LedgerRow> newest = new ArrayList<>();
+
+        for (List<LedgerSegment> month : segments.descendingMap().values()) {
+
+            List<LedgerRow> month_rows = new ArrayList<>();
+            for (LedgerSegment segment : month) {
+
+                month_rows.addAll(segment.read(account_num));
+            }
+
+            month_rows.sort(LedgerRow.NEWEST_FIRST);
+            for (LedgerRow row : month_rows) {
+
+                if (newest.size() == limit) {
+
+                    return newest;
+                }
+                newest.add(row);
+            }
+        }
+
+        return newest;
+    }
+
+    public int getSegmentCount() {
+
+        int count = 0;
+        for (List<LedgerSegment> month : segments.values()) {
+
+            count += month.size();
+        }
+
+        return count;
+    }
+
+    public long getArchivedRows() {
+
+        long rows = 0;
+        for (List<LedgerSegment> month : segments.values()) {
+
+            for (LedgerSegment segment : month) {
+
+                rows += segment.getRowCount();
+            }
+        }
+
+        return rows;
+    }
+
+    public long getArchivedBytes() throws IOException {
+
+        long bytes = 0;
+        for (List<LedgerSegment> month : segments.values()) {
+
+            for (LedgerSegment segment : month) {
+
+                bytes += Files.size(segment.getPath());
+            }
+        }
+
+        return bytes;
+    }
+
+    public Path getDirectory() {
+
+        return directory;
+    }
+}
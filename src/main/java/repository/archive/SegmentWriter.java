@@ -0,0 +1,212 @@
+package repository.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SegmentWriter implements Closeable {
+
+    //Writes one archive segment. Rows must arrive ordered by account, then by time, so each account's history is one
+    //run of rows. Rows are grouped in blocks of BLOCK_ROWS; within a block each column (account, id, type, amount,
+    //balance, time) is encoded on its own and compressed on its own, which is what makes the file columnar: similar
+    //values sit together and compress far better than whole rows would. The footer holds where every block is and,
+    //per account, which rows are its, so a reader decompresses only the blocks holding the account it looks for.
+    //The segment is written under a temporary name and only renamed into place once it is complete and on disk
+
+    static final int MAGIC = 0x4C534547;
+    static final int VERSION = 1;
+    static final int BLOCK_ROWS = 4096;
+    static final int COLUMNS = 6;
+
+    private final Path target;
+    private final Path temporary;
+    private final FileChannel channel;
+
+    private final LedgerRow[] block = new LedgerRow[BLOCK_ROWS];
+    private int block_size;
+    private long position;
+    private final List<long[]> blocks = new ArrayList<>();
+
+    //The account index: one entry per account, in account order
+    private int[] index_accounts = new int[256];
+    private int[] index_first_rows = new int[256];
+    private int[] index_counts = new int[256];
+    private int index_size;
+
+    private int rows;
+    private long min_created = Long.MAX_VALUE;
+    private long max_created = Long.MIN_VALUE;
+    private boolean finished;
+
+    public SegmentWriter(Path target) throws IOException {
+
+        this.target = target;
+        this.temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        write(ByteBuffer.allocate(2 * Integer.BYTES).putInt(MAGIC).putInt(VERSION).flip());
+    }
+
+
+    public void append(LedgerRow row) throws IOException {
+
+        if (index_size > 0 && row.account_num() < index_accounts[index_size - 1]) {
+
+            throw new IllegalArgumentException("Rows must be appended in account order");
+        }
+
+        if (index_size == 0 || row.account_num() != index_accounts[index_size - 1]) {
+
+            if (index_size == index_accounts.length) {
+
+                index_accounts = Arrays.copyOf(index_accounts, index_size * 2);
+                index_first_rows = Arrays.copyOf(index_first_rows, index_size * 2);
+                index_counts = Arrays.copyOf(index_counts, index_size * 2);
+            }
+
+            index_accounts[index_size] = row.account_num();
+            index_first_rows[index_size] = rows;
+            index_counts[index_size] = 0;
+            index_size++;
+        }
+
+        index_counts[index_size - 1]++;
+        rows++;
+        min_created = Math.min(min_created, row.created_at());
+        max_created = Math.max(max_created, row.created_at());
+
+        block[block_size++] = row;
+        if (block_size == BLOCK_ROWS) {
+
+            flushBlock();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+
+        ByteArrayOutputStream[] columns = new ByteArrayOutputStream[COLUMNS];
+        for (int column = 0; column < COLUMNS; column++) {
+
+            columns[column] = new ByteArrayOutputStream(block_size * 2);
+        }
+
+        //Accounts, ids and times mostly rise from one row to the next, so each is stored as the change from the row
+        //before; amounts and balances are stored as they are
+        long previous_account = 0;
+        long previous_id = 0;
+        long previous_created = 0;
+
+        for (int i = 0; i < block_size; i++) {
+
+            LedgerRow row = block[i];
+            ColumnCodec.writeVarLong(columns[0], ColumnCodec.zigZag(row.account_num() - previous_account));
+            ColumnCodec.writeVarLong(columns[1], ColumnCodec.zigZag(row.transaction_id() - previous_id));
+            columns[2].write(row.type().ordinal());
+            ColumnCodec.writeVarLong(columns[3], ColumnCodec.zigZag(row.amount()));
+            ColumnCodec.writeVarLong(columns[4], ColumnCodec.zigZag(row.balance_after()));
+            ColumnCodec.writeVarLong(columns[5], ColumnCodec.zigZag(row.created_at() - previous_created));
+
+            previous_account = row.account_num();
+            previous_id = row.transaction_id();
+            previous_created = row.created_at();
+            block[i] = null;
+        }
+
+        //Each entry: where the block starts, its row count, then the compressed length of every column
+        long[] info = new long[2 + COLUMNS];
+        info[0] = position;
+        info[1] = block_size;
+
+        for (int column = 0; column < COLUMNS; column++) {
+
+            byte[] compressed = ColumnCodec.deflate(columns[column].toByteArray());
+            info[2 + column] = compressed.length;
+            write(ByteBuffer.wrap(compressed));
+        }
+
+        blocks.add(info);
+        block_size = 0;
+    }
+
+    public long finish() throws IOException {
+
+        //Returns the size of the finished segment in bytes
+        if (block_size > 0) {
+
+            flushBlock();
+        }
+
+        ByteArrayOutputStream footer_bytes = new ByteArrayOutputStream();
+        DataOutputStream footer = new DataOutputStream(footer_bytes);
+
+        footer.writeInt(blocks.size());
+        for (long[] info : blocks) {
+
+            footer.writeLong(info[0]);
+            footer.writeInt((int) info[1]);
+            for (int column = 0; column < COLUMNS; column++) {
+
+                footer.writeInt((int) info[2 + column]);
+            }
+        }
+
+        footer.writeInt(index_size);
+        for (int i = 0; i < index_size; i++) {
+
+            footer.writeInt(index_accounts[i]);
+            footer.writeInt(index_first_rows[i]);
+            footer.writeInt(index_counts[i]);
+        }
+
+        footer.writeInt(rows);
+        footer.writeLong(rows == 0 ? 0 : min_created);
+        footer.writeLong(rows == 0 ? 0 : max_created);
+        footer.flush();
+
+        long footer_position = position;
+        write(ByteBuffer.wrap(footer_bytes.toByteArray()));
+        write(ByteBuffer.allocate(Long.BYTES + Integer.BYTES).putLong(footer_position).putInt(MAGIC).flip());
+
+        channel.force(true);
+        channel.close();
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        finished = true;
+
+        return position;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+
+        while (buffer.hasRemaining()) {
+
+            position += channel.write(buffer, position);
+        }
+    }
+
+    public int getRowCount() {
+
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        //A segment that was never finished is thrown away; nothing was deleted from the database for it
+        if (!finished) {
+
+            channel.close();
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package repository.bloom;
+
+import model.account.Account;
+import model.account.NewAccount;
+import model.user.User;
+import repository.DatabaseManager;
+import repository.ForwardingDatabaseManager;
+import repository.exception.DatabaseException;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BloomFilterDatabaseManager extends ForwardingDatabaseManager implements Closeable {
+
+    //Keeps a Bloom filter of every account number and every login, so the admin prompts' lookup of a mistyped account
+    //number, and the check that a new login is free, are answered from memory. A "possibly present" answer still
+    //goes to the database, which has the final say.
+    //Other terminals create accounts in the same database, and the filters only hear of those at the next rebuild(),
+    //so only those two lookups ever trust a miss: a stale "login is free" is caught by the unique key when the
+    //account is created, and a stale "no such account" at an admin prompt lasts until the next rebuild (see start()).
+    //Logins, sessions and every other call always go to the database
+
+    private final long expected_accounts;
+    private final double false_positive_rate;
+
+    private volatile CountingBloomFilter account_filter;
+    private volatile CountingBloomFilter login_filter;
+
+    //While rebuild() is scanning, accounts created in the meantime are added to the new filters as well
+    private volatile CountingBloomFilter building_account_filter;
+    private volatile CountingBloomFilter building_login_filter;
+
+    //Deletions and login changes remove keys, and removing a key twice would clear positions other keys rely on.
+    //They therefore run one at a time, and not while the filters are being rebuilt
+    private final Object removal_lock = new Object();
+
+    private ScheduledExecutorService executor;
+
+    private final LongAdder definite_misses = new LongAdder();
+    private final LongAdder false_positives = new LongAdder();
+    private final LongAdder failed_rebuilds = new LongAdder();
+
+    public BloomFilterDatabaseManager(DatabaseManager delegate, long expected_accounts, double false_positive_rate) {
+
+        super(delegate);
+        this.expected_accounts = expected_accounts;
+        this.false_positive_rate = false_positive_rate;
+        this.account_filter = new CountingBloomFilter(expected_accounts, false_positive_rate);
+        this.login_filter = new CountingBloomFilter(expected_accounts, false_positive_rate);
+    }
+
+
+    public int rebuild() throws DatabaseException {
+
+        synchronized (removal_lock) {
+
+            CountingBloomFilter new_accounts = new CountingBloomFilter(expected_accounts, false_positive_rate);
+            CountingBloomFilter new_logins = new CountingBloomFilter(expected_accounts, false_positive_rate);
+            building_account_filter = new_accounts;
+            building_login_filter = new_logins;
+
+            try {
+
+                //The accounts are streamed straight into the new filters, so the table is never held in memory
+                int scanned = getDelegate().scanAccountKeys((account_num, login) -> {
+
+                    new_accounts.add(CountingBloomFilter.hash(account_num));
+                    new_logins.add(CountingBloomFilter.hash(login));
+                });
+
+                account_filter = new_accounts;
+                login_filter = new_logins;
+                return scanned;
+            }
+            finally {
+
+                building_account_filter = null;
+                building_login_filter = null;
+            }
+        }
+    }
+
+    public void start(long interval_ms) {
+
+        //A single background thread rebuilds the filters every interval_ms, picking up the accounts other terminals
+        //created and dropping the ones they deleted. A failed rebuild keeps the current filters
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+
+            Thread thread = new Thread(runnable, "bloom-filter-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        executor.scheduleWithFixedDelay(() -> {
+
+            try {
+
+                rebuild();
+            }
+            catch (DatabaseException error) {
+
+                failed_rebuilds.increment();
+            }
+        }, interval_ms, interval_ms, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+
+        if (executor != null) {
+
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean accountMayExist(int account_num) {
+
+        if (account_filter.mightContain(CountingBloomFilter.hash(account_num))) {
+
+            return true;
+        }
+
+        definite_misses.increment();
+        return false;
+    }
+
+    private boolean loginMayExist(String login) {
+
+        if (login_filter.mightContain(CountingBloomFilter.hash(login))) {
+
+            return true;
+        }
+
+        definite_misses.increment();
+        return false;
+    }
+
+    private void addAccount(int account_num, String login) {
+
+        account_filter.add(CountingBloomFilter.hash(account_num));
+        login_filter.add(CountingBloomFilter.hash(login));
+
+        CountingBloomFilter building_accounts = building_account_filter;
+        CountingBloomFilter building_logins = building_login_filter;
+        if (building_accounts != null && building_logins != null) {
+
+            building_accounts.add(CountingBloomFilter.hash(account_num));
+            building_logins.add(CountingBloomFilter.hash(login));
+        }
+    }
+
+    @Override
+    public Account getAccount(int account_num) throws DatabaseException {
+
+        //The admin prompts' check that a typed account number exists
+        if (!accountMayExist(account_num)) {
+
+            return null;
+        }
+
+        Account account = super.getAccount(account_num);
+        if (account == null) {
+
+            false_positives.increment();
+        }
+
+        return account;
+    }
+
+    @Override
+    public boolean loginExists(String login) throws DatabaseException {
+
+        if (!loginMayExist(login)) {
+
+            return false;
+        }
+
+        boolean exists = super.loginExists(login);
+        if (!exists) {
+
+            false_positives.increment();
+        }
+
+        return exists;
+    }
+
+    @Override
+    public int createNewAccount(String login, String pin, String holder, int balance, String status)
+            throws DatabaseException {
+
+        int account_num = super.createNewAccount(login, pin, holder, balance, status);
+
+        //Negative results (duplicate login, error) created nothing
+        if (account_num > 0) {
+
+            addAccount(account_num, login);
+        }
+
+        return account_num;
+    }
+
+    @Override
+    public int createNewAccount(int account_num, String login, String pin, String holder, int balance, String status)
+            throws DatabaseException {
+
+        int result = super.createNewAccount(account_num, login, pin, holder, balance, status);
+
+        if (result > 0) {
+
+            addAccount(result, login);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int[] createNewAccounts(List<NewAccount> new_accounts) throws DatabaseException {
+
+        int[] results = super.createNewAccounts(new_accounts);
+
+        for (int i = 0; i < results.length; i++) {
+
+            if (results[i] > 0) {
+
+                addAccount(results[i], new_accounts.get(i).login());
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    public void deleteAccount(int account_num) throws DatabaseException {
+
+        synchronized (removal_lock) {
+
+            //The login is needed to clear it from the filter, and finding the account also confirms that it is
+            //really there before its keys are removed
+            User user = super.getUser(account_num);
+            super.deleteAccount(account_num);
+
+            if (user != null) {
+
+                removeKey(account_filter, CountingBloomFilter.hash(account_num));
+                removeKey(login_filter, CountingBloomFilter.hash(user.getLogin()));
+            }
+        }
+    }
+
+    @Override
+    public boolean updateAccountInfo(int account_num, String new_holder,
+                                     String new_status, String new_login, String new_pin) throws DatabaseException {
+
+        //Only a login change affects the filters
+        if (new_login.isEmpty()) {
+
+            return super.updateAccountInfo(account_num, new_holder, new_status, new_login, new_pin);
+        }
+
+        synchronized (removal_lock) {
+
+            User user = super.getUser(account_num);
+            boolean updated = super.updateAccountInfo(account_num, new_holder, new_status, new_login, new_pin);
+
+            //The new login is added before the old one is removed, so it is never missing from the filter
+            if (updated && user != null && !new_login.equals(user.getLogin())) {
+
+                login_filter.add(CountingBloomFilter.hash(new_login));
+                removeKey(login_filter, CountingBloomFilter.hash(user.getLogin()));
+            }
+
+            return updated;
+        }
+    }
+
+    private static void removeKey(CountingBloomFilter filter, long hash) {
+
+        //An account another terminal created since the last rebuild is not in the filters, and removing its keys
+        //would clear positions other keys rely on. A key that only looks present (a false positive) is removed all
+        //the same; the next rebuild repairs any lookup that wrongly turns into a miss
+        if (filter.mightContain(hash)) {
+
+            filter.remove(hash);
+        }
+    }
+
+    public long getDefiniteMisses() {
+
+        return definite_misses.sum();
+    }
+
+    public long getFalsePositives() {
+
+        return false_positives.sum();
+    }
+
+    public long getFailedRebuilds() {
+
+        return failed_rebuilds.sum();
+    }
+
+    public double getObservedFalsePositiveRate() {
+
+        //Of the lookups for keys that turned out not to exist, the share the filters let through to the database
+        long misses = definite_misses.sum();
+        long passed = false_positives.sum();
+
+        if (misses + passed == 0) {
+
+            return 0;
+        }
+
+        return (double) passed / (misses + passed);
+    }
+
+    public double getExpectedFalsePositiveRate() {
+
+        return Math.max(account_filter.getExpectedFalsePositiveRate(), login_filter.getExpectedFalsePositiveRate());
+    }
+
+    public long getMemoryBytes() {
+
+        return account_filter.getMemoryBytes() + login_filter.getMemoryBytes();
+    }
+
+    public long getAccountCount() {
+
+        return account_filter.getElementCount();
+    }
+}
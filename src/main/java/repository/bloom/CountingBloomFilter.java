@@ -0,0 +1,180 @@
+package repository.bloom;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class CountingBloomFilter {
+
+    //A Bloom filter answers "definitely not present" or "possibly present". Each key sets k positions chosen by
+    //hashing; a key whose positions are not all set was never added. Plain filters use single bits, which cannot be
+    //cleared when a key is removed, so this one keeps a 4-bit counter per position (16 to a long) instead. A counter
+    //that reaches 15 sticks there and is never decremented again, since its true count is no longer known; that can
+    //only leave extra false positives, never a false negative
+
+    private static final int COUNTER_BITS = 4;
+    private static final int COUNTERS_PER_WORD = Long.SIZE / COUNTER_BITS;
+    private static final long COUNTER_MAX = (1L << COUNTER_BITS) - 1;
+
+    private final AtomicLongArray counters;
+    private final long counter_count;
+    private final int hash_count;
+
+    //Keys added minus keys removed, for the expected false-positive rate
+    private final AtomicLong element_count = new AtomicLong();
+
+    public CountingBloomFilter(long expected_elements, double false_positive_rate) {
+
+        if (expected_elements < 1) {
+
+            throw new IllegalArgumentException("Expected elements must be at least 1");
+        }
+        if (false_positive_rate <= 0 || false_positive_rate >= 1) {
+
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1");
+        }
+
+        //The standard sizing: m = -n ln(p) / ln(2)^2 positions and k = (m / n) ln(2) hashes per key
+        double ln2 = Math.log(2);
+        long positions = (long) Math.ceil(-expected_elements * Math.log(false_positive_rate) / (ln2 * ln2));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (positions + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+
+        this.counters = new AtomicLongArray(words);
+        this.counter_count = (long) words * COUNTERS_PER_WORD;
+        this.hash_count = Math.max(1, (int) Math.round((double) counter_count / expected_elements * ln2));
+    }
+
+
+    public static long hash(int key) {
+
+        return mix(key);
+    }
+
+    public static long hash(String key) {
+
+        //64-bit FNV-1a over the UTF-8 bytes, finished with a mix so that similar logins spread over the whole filter
+        long hash = 0xcbf29ce484222325L;
+        for (byte value : key.getBytes(StandardCharsets.UTF_8)) {
+
+            hash ^= value & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+
+        //The finalizer from MurmurHash3
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private long position(long hash, int i) {
+
+        //The k positions come from the two halves of one 64-bit hash (Kirsch-Mitzenmacher double hashing)
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        return Math.floorMod(first + (long) i * second, counter_count);
+    }
+
+    private long counterAt(long position) {
+
+        long word = counters.get((int) (position / COUNTERS_PER_WORD));
+        return (word >>> shiftOf(position)) & COUNTER_MAX;
+    }
+
+    private static int shiftOf(long position) {
+
+        return (int) (position % COUNTERS_PER_WORD) * COUNTER_BITS;
+    }
+
+    public void add(long hash) {
+
+        for (int i = 0; i < hash_count; i++) {
+
+            change(position(hash, i), 1);
+        }
+        element_count.incrementAndGet();
+    }
+
+    public void remove(long hash) {
+
+        //Removing a key that was never added would clear positions other keys rely on, so callers must only
+        //remove keys they know are present
+        for (int i = 0; i < hash_count; i++) {
+
+            change(position(hash, i), -1);
+        }
+        element_count.decrementAndGet();
+    }
+
+    private void change(long position, int direction) {
+
+        int index = (int) (position / COUNTERS_PER_WORD);
+        int shift = shiftOf(position);
+
+        //The counter shares its long with 15 others, so it is changed with compare-and-set, retrying if a
+        //neighbor changed in between
+        while (true) {
+
+            long word = counters.get(index);
+            long counter = (word >>> shift) & COUNTER_MAX;
+
+            if (counter == COUNTER_MAX || (direction < 0 && counter == 0)) {
+
+                return;
+            }
+
+            long updated = direction > 0 ? word + (1L << shift) : word - (1L << shift);
+            if (counters.compareAndSet(index, word, updated)) {
+
+                return;
+            }
+        }
+    }
+
+    public boolean mightContain(long hash) {
+
+        for (int i = 0; i < hash_count; i++) {
+
+            if (counterAt(position(hash, i)) == 0) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public long getElementCount() {
+
+        return element_count.get();
+    }
+
+    public long getCounterCount() {
+
+        return counter_count;
+    }
+
+    public int getHashCount() {
+
+        return hash_count;
+    }
+
+    public long getMemoryBytes() {
+
+        return (long) counters.length() * Long.BYTES;
+    }
+
+    public double getExpectedFalsePositiveRate() {
+
+        //(1 - e^(-kn/m))^k for the number of keys currently held
+        double filled = 1 - Math.exp(-(double) hash_count * Math.max(0, element_count.get()) / counter_count);
+        return Math.pow(filled, hash_count);
+    }
+}
@@ -0,0 +1,162 @@
+package repository.cdc;
+
+import model.account.NewAccount;
+import model.transaction.TransactionType;
+import repository.DatabaseManager;
+import repository.ForwardingDatabaseManager;
+import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+import repository.offline.ReplayOutcome;
+
+import java.util.List;
+
+public class ChangeCaptureDatabaseManager extends ForwardingDatabaseManager {
+
+    //Publishes every write the database has committed to a ChangeRing, so downstream systems (fraud checks,
+    //notifications, reporting) can follow the changes instead of each polling MySQL. An event is published only
+    //once the call has returned successfully, that is after its commit; a write that failed, or that the database
+    //refused (an overdrawn sub-balance withdrawal, an account that no longer exists), publishes nothing.
+    //Publishing never takes longer than the ring's overflow policy allows, so a consumer that falls behind cannot
+    //hold up a withdrawal
+
+    private final ChangeRing ring;
+
+    public ChangeCaptureDatabaseManager(DatabaseManager delegate, ChangeRing ring) {
+
+        super(delegate);
+        this.ring = ring;
+    }
+
+
+    @Override
+    public int applyTransaction(int account_num, int new_balance, TransactionType type, int amount)
+            throws DatabaseException {
+
+        int balance_after = super.applyTransaction(account_num, new_balance, type, amount);
+        if (balance_after >= 0) {
+
+            ring.publish(ChangeType.BALANCE_CHANGED, account_num, type, amount, balance_after);
+        }
+
+        return balance_after;
+    }
+
+    @Override
+    public void updateAccountBalance(int account_num, int new_balance) throws DatabaseException {
+
+        super.updateAccountBalance(account_num, new_balance);
+        ring.publish(ChangeType.BALANCE_SET, account_num, null, 0, new_balance);
+    }
+
+    @Override
+    public int createNewAccount(String login, String pin, String holder, int balance, String status)
+            throws DatabaseException {
+
+        int account_num = super.createNewAccount(login, pin, holder, balance, status);
+        publishCreated(account_num, balance);
+
+        return account_num;
+    }
+
+    @Override
+    public int createNewAccount(int account_num, String login, String pin, String holder, int balance, String status)
+            throws DatabaseException {
+
+        int result = super.createNewAccount(account_num, login, pin, holder, balance, status);
+        publishCreated(result, balance);
+
+        return result;
+    }
+
+    @Override
+    public int[] createNewAccounts(List<NewAccount> new_accounts) throws DatabaseException {
+
+        int[] results = super.createNewAccounts(new_accounts);
+        for (int i = 0; i < results.length; i++) {
+
+            publishCreated(results[i], new_accounts.get(i).balance());
+        }
+
+        return results;
+    }
+
+    private void publishCreated(int account_num, int balance) {
+
+        //Negative results are rows that were not created (a taken login or number)
+        if (account_num > 0) {
+
+            ring.publish(ChangeType.ACCOUNT_CREATED, account_num, null, 0, balance);
+        }
+    }
+
+    @Override
+    public void deleteAccount(int account_num) throws DatabaseException {
+
+        super.deleteAccount(account_num);
+        ring.publish(ChangeType.ACCOUNT_DELETED, account_num, null, 0, ChangeEvent.UNKNOWN_BALANCE);
+    }
+
+    @Override
+    public boolean updateAccountInfo(int account_num, String new_holder,
+                                     String new_status, String new_login, String new_pin) throws DatabaseException {
+
+        boolean updated = super.updateAccountInfo(account_num, new_holder, new_status, new_login, new_pin);
+        if (updated) {
+
+            ring.publish(ChangeType.ACCOUNT_UPDATED, account_num, null, 0, ChangeEvent.UNKNOWN_BALANCE);
+        }
+
+        return updated;
+    }
+
+    @Override
+    public int[] updateAccounts(int[] account_nums, String new_holder, String new_status) throws DatabaseException {
+
+        int[] results = super.updateAccounts(account_nums, new_holder, new_status);
+        for (int i = 0; i < results.length; i++) {
+
+            if (results[i] == 1) {
+
+                ring.publish(ChangeType.ACCOUNT_UPDATED, account_nums[i], null, 0, ChangeEvent.UNKNOWN_BALANCE);
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    public int enableSubBalances(int account_num, int slot_count) throws DatabaseException {
+
+        int result = super.enableSubBalances(account_num, slot_count);
+        if (result > 0) {
+
+            ring.publish(ChangeType.ACCOUNT_UPDATED, account_num, null, 0, ChangeEvent.UNKNOWN_BALANCE);
+        }
+
+        return result;
+    }
+
+    @Override
+    public ReplayOutcome[] applyJournalEntries(String terminal_id, List<JournalEntry> entries)
+            throws DatabaseException {
+
+        //Only entries this replay applied are new changes; the replay does not report the balances they left
+        ReplayOutcome[] outcomes = super.applyJournalEntries(terminal_id, entries);
+        for (int i = 0; i < outcomes.length; i++) {
+
+            if (outcomes[i] == ReplayOutcome.APPLIED) {
+
+                JournalEntry entry = entries.get(i);
+                ring.publish(ChangeType.BALANCE_CHANGED, entry.account_num(), entry.type(), entry.amount(),
+                        ChangeEvent.UNKNOWN_BALANCE);
+            }
+        }
+
+        return outcomes;
+    }
+
+    public ChangeRing getRing() {
+
+        return ring;
+    }
+}
@@ -0,0 +1,131 @@
+package repository.cdc;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class ChangeConsumer implements Closeable {
+
+    //One reader of a ChangeRing, with its own cursor: the last sequence it has handled. drain() hands the handler
+    //everything published since, up to max_batch events, and only then moves the cursor, so the producer can reuse
+    //those slots once per batch rather than once per event. A consumer can be drained by its own caller, or
+    //start() a thread that drains it whenever there is something to read
+
+    private final ChangeRing ring;
+    private final ChangeHandler handler;
+    private final int max_batch;
+
+    private volatile long cursor;
+    private volatile boolean running;
+    private Thread thread;
+
+    private final LongAdder handled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    ChangeConsumer(ChangeRing ring, ChangeHandler handler, int max_batch, long cursor) {
+
+        if (max_batch < 1) {
+
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+
+        this.ring = ring;
+        this.handler = handler;
+        this.max_batch = max_batch;
+        this.cursor = cursor;
+    }
+
+
+    public int drain() {
+
+        //Returns the number of events handed to the handler
+        long from = cursor + 1;
+        long available = ring.getPublished();
+        if (available < from) {
+
+            return 0;
+        }
+
+        long to = Math.min(available, cursor + max_batch);
+        for (long sequence = from; sequence <= to; sequence++) {
+
+            try {
+
+                handler.onEvent(ring.slot(sequence), sequence, sequence == to);
+            }
+            catch (RuntimeException error) {
+
+                //A handler that fails on one event skips it; stopping there would hold up every other consumer
+                failed.increment();
+            }
+        }
+
+        cursor = to;
+        handled.add(to - from + 1);
+        return (int) (to - from + 1);
+    }
+
+    public void start(String name, long idle_park_ms) {
+
+        //The thread drains for as long as there is anything to read, and naps for idle_park_ms when there isn't
+        running = true;
+        thread = new Thread(() -> {
+
+            while (running) {
+
+                if (drain() == 0) {
+
+                    LockSupport.parkNanos(idle_park_ms * 1_000_000);
+                }
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public long getCursor() {
+
+        return cursor;
+    }
+
+    public long getLag() {
+
+        return ring.getPublished() - cursor;
+    }
+
+    public long getHandledCount() {
+
+        return handled.sum();
+    }
+
+    public long getFailedCount() {
+
+        return failed.sum();
+    }
+
+    @Override
+    public void close() {
+
+        //Whatever is left is drained first, then the consumer stops holding the producer back
+        running = false;
+        if (thread != null) {
+
+            LockSupport.unpark(thread);
+            try {
+
+                thread.join();
+            }
+            catch (InterruptedException error) {
+
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long end = ring.getPublished();
+        while (cursor < end) {
+
+            drain();
+        }
+        ring.remove(this);
+    }
+}
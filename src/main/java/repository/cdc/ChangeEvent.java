@@ -0,0 +1,70 @@
+package repository.cdc;
+
+import model.transaction.TransactionType;
+
+public class ChangeEvent {
+
+    //One slot of the change ring. Slots are created with the ring and filled in place by every publish, so
+    //publishing allocates nothing. change_number counts every write offered to the ring, including dropped ones, so
+    //a consumer that sees it jump knows how many changes it missed
+
+    //balance_after when the write does not report the resulting balance (journal replays, deletions)
+    public static final int UNKNOWN_BALANCE = Integer.MIN_VALUE;
+
+    private ChangeType type;
+    private int account_num;
+    private TransactionType transaction_type;
+    private int amount;
+    private int balance_after;
+    private long committed_at;
+    private long change_number;
+
+    void set(ChangeType type, int account_num, TransactionType transaction_type, int amount, int balance_after,
+             long committed_at, long change_number) {
+
+        this.type = type;
+        this.account_num = account_num;
+        this.transaction_type = transaction_type;
+        this.amount = amount;
+        this.balance_after = balance_after;
+        this.committed_at = committed_at;
+        this.change_number = change_number;
+    }
+
+    public ChangeType getType() {
+
+        return type;
+    }
+
+    public int getAccountNumber() {
+
+        return account_num;
+    }
+
+    //Null for anything but BALANCE_CHANGED
+    public TransactionType getTransactionType() {
+
+        return transaction_type;
+    }
+
+    public int getAmount() {
+
+        return amount;
+    }
+
+    public int getBalanceAfter() {
+
+        return balance_after;
+    }
+
+    //Epoch milliseconds at which the write was published, just after its commit
+    public long getCommittedAt() {
+
+        return committed_at;
+    }
+
+    public long getChangeNumber() {
+
+        return change_number;
+    }
+}
@@ -0,0 +1,10 @@
+package repository.cdc;
+
+//Called by a ChangeConsumer for each event it drains. The event object is a ring slot that will be reused once the
+//batch is done, so a handler that keeps anything must copy it out. end_of_batch is true for the last event of a
+//drain, which is the moment to flush anything the handler batched up
+@FunctionalInterface
+public interface ChangeHandler {
+
+    void onEvent(ChangeEvent event, long sequence, boolean end_of_batch);
+}
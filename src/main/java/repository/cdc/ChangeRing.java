@@ -0,0 +1,180 @@
+package repository.cdc;
+
+import model.transaction.TransactionType;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class ChangeRing {
+
+    //A fixed ring of preallocated ChangeEvent slots that committed writes are published into and any number of
+    //consumers read from, each at its own pace. Sequences count up forever; sequence s lives in slot s & mask.
+    //There is one producer at a time: writes come from several threads (terminal, journal replayer), so publish()
+    //takes the ring's lock, which is held only for the few field stores of one slot. Everything a publish touches
+    //already exists, so it allocates nothing.
+    //A slot may only be reused once every consumer is past it. The producer remembers the slowest consumer's
+    //position and only looks again when it is about to catch up with it, so most publishes read no consumer at all.
+    //When the ring is full, the overflow policy decides between dropping the event and waiting (for a bounded time)
+
+    private final ChangeEvent[] slots;
+    private final int mask;
+    private final OverflowPolicy policy;
+    private final long max_wait_nanos;
+
+    //The last sequence whose slot is filled in; consumers read up to here. Written only by the producer
+    private volatile long published = -1;
+
+    //Producer-only state, guarded by the ring's lock
+    private long change_number;
+    private long cached_gate = -1;
+
+    //Replaced as a whole when a consumer joins or leaves, so the producer reads it without a lock or an iterator
+    private volatile ChangeConsumer[] consumers = new ChangeConsumer[0];
+
+    private final LongAdder published_count = new LongAdder();
+    private final LongAdder dropped_count = new LongAdder();
+    private final LongAdder waited_count = new LongAdder();
+
+    public ChangeRing(int capacity, OverflowPolicy policy, long max_wait_ms) {
+
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        if (max_wait_ms < 0) {
+
+            throw new IllegalArgumentException("Maximum wait must not be negative");
+        }
+
+        this.slots = new ChangeEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+
+            slots[i] = new ChangeEvent();
+        }
+        this.mask = capacity - 1;
+        this.policy = policy;
+        this.max_wait_nanos = max_wait_ms * 1_000_000;
+    }
+
+
+    public synchronized boolean publish(ChangeType type, int account_num, TransactionType transaction_type,
+                                        int amount, int balance_after) {
+
+        //Returns false if the event was dropped because a consumer is too far behind
+        long number = ++change_number;
+        long sequence = published + 1;
+        long wrap_point = sequence - slots.length;
+
+        if (wrap_point > cached_gate) {
+
+            cached_gate = slowestCursor(published);
+            if (wrap_point > cached_gate && !awaitRoom(wrap_point)) {
+
+                dropped_count.increment();
+                return false;
+            }
+        }
+
+        slots[(int) sequence & mask].set(type, account_num, transaction_type, amount, balance_after,
+                System.currentTimeMillis(), number);
+
+        //The volatile write makes the slot's contents visible to every consumer that then reads published
+        published = sequence;
+        published_count.increment();
+        return true;
+    }
+
+    private boolean awaitRoom(long wrap_point) {
+
+        if (policy == OverflowPolicy.DROP || max_wait_nanos == 0) {
+
+            return false;
+        }
+
+        waited_count.increment();
+        long deadline = System.nanoTime() + max_wait_nanos;
+
+        while (wrap_point > (cached_gate = slowestCursor(published))) {
+
+            if (System.nanoTime() - deadline >= 0) {
+
+                return false;
+            }
+            LockSupport.parkNanos(10_000);
+        }
+
+        return true;
+    }
+
+    private long slowestCursor(long fallback) {
+
+        //With no consumers, nothing holds the producer back
+        long slowest = fallback;
+        for (ChangeConsumer consumer : consumers) {
+
+            slowest = Math.min(slowest, consumer.getCursor());
+        }
+
+        return slowest;
+    }
+
+    public synchronized ChangeConsumer register(ChangeHandler handler, int max_batch) {
+
+        //A new consumer starts at the end of the stream: it sees what is published from now on
+        ChangeConsumer consumer = new ChangeConsumer(this, handler, max_batch, published);
+        ChangeConsumer[] updated = Arrays.copyOf(consumers, consumers.length + 1);
+        updated[updated.length - 1] = consumer;
+        consumers = updated;
+
+        return consumer;
+    }
+
+    public synchronized void remove(ChangeConsumer consumer) {
+
+        //A removed consumer no longer holds the producer back
+        consumers = Arrays.stream(consumers).filter(existing -> existing != consumer)
+                .toArray(ChangeConsumer[]::new);
+        cached_gate = -1;
+    }
+
+    ChangeEvent slot(long sequence) {
+
+        return slots[(int) sequence & mask];
+    }
+
+    public long getPublished() {
+
+        return published;
+    }
+
+    public int getCapacity() {
+
+        return slots.length;
+    }
+
+    public OverflowPolicy getPolicy() {
+
+        return policy;
+    }
+
+    public int getConsumerCount() {
+
+        return consumers.length;
+    }
+
+    public long getPublishedCount() {
+
+        return published_count.sum();
+    }
+
+    public long getDroppedCount() {
+
+        return dropped_count.sum();
+    }
+
+    public long getWaitedCount() {
+
+        return waited_count.sum();
+    }
+}
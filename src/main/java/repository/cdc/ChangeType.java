@@ -0,0 +1,18 @@
+package repository.cdc;
+
+//The kinds of committed write published on the change stream
+public enum ChangeType {
+
+    //A deposit or withdrawal; the event carries its type, amount and the balance after it
+    BALANCE_CHANGED,
+
+    //The balance was overwritten with a new value rather than moved by an amount
+    BALANCE_SET,
+
+    ACCOUNT_CREATED,
+
+    //Holder, status, login or PIN changed, or the balance was split into sub-balances
+    ACCOUNT_UPDATED,
+
+    ACCOUNT_DELETED
+}
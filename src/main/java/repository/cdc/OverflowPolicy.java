@@ -0,0 +1,12 @@
+package repository.cdc;
+
+//What publishing does when the slowest consumer is a whole ring behind
+public enum OverflowPolicy {
+
+    //The new event is dropped at once and counted; the writer is never held up
+    DROP,
+
+    //The writer waits for the consumer to make room, but only up to the ring's wait limit, after which the event is
+    //dropped as with DROP
+    WAIT
+}
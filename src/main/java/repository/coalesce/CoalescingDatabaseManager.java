@@ -0,0 +1,65 @@
+package repository.coalesce;
+
+import model.account.Account;
+import model.user.Customer;
+import model.user.User;
+import repository.DatabaseManager;
+import repository.ForwardingDatabaseManager;
+import repository.exception.DatabaseException;
+
+public class CoalescingDatabaseManager extends ForwardingDatabaseManager {
+
+    //Concurrent lookups of the same account number share a single database read
+    private final SingleFlight<Integer, Account> account_lookups = new SingleFlight<>();
+    private final SingleFlight<Integer, User> user_lookups = new SingleFlight<>();
+
+    public CoalescingDatabaseManager(DatabaseManager delegate) {
+
+        super(delegate);
+    }
+
+
+    @Override
+    public Account getAccount(int account_num) throws DatabaseException {
+
+        //Account objects can be changed (withdraw() and deposit() update the balance), so every caller gets their
+        //own copy of the shared result rather than the same object
+        return copyOf(account_lookups.execute(account_num, () -> super.getAccount(account_num)));
+    }
+
+    @Override
+    public User getUser(int account_num) throws DatabaseException {
+
+        User user = user_lookups.execute(account_num, () -> super.getUser(account_num));
+
+        //Only customers carry an account that can be changed; administrators are shared as they are
+        if (user instanceof Customer) {
+
+            Customer customer = (Customer) user;
+            return new Customer(customer.getLogin(), customer.getPin(), copyOf(customer.getAccount()));
+        }
+
+        return user;
+    }
+
+    static Account copyOf(Account account) {
+
+        if (account == null) {
+
+            return null;
+        }
+
+        return new Account(account.getAccountNumber(), account.getHolderName(), account.getBalance(),
+                account.getStatus());
+    }
+
+    public long getExecutedCount() {
+
+        return account_lookups.getExecutedCount() + user_lookups.getExecutedCount();
+    }
+
+    public long getCoalescedCount() {
+
+        return account_lookups.getCoalescedCount() + user_lookups.getCoalescedCount();
+    }
+}
@@ -0,0 +1,89 @@
+package repository.coalesce;
+
+import repository.DatabaseCall;
+import repository.exception.DatabaseException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SingleFlight<K, V> {
+
+    //The call currently running for each key. Whoever arrives first for a key runs the call; anyone arriving for
+    //the same key while it runs waits on the same future instead of making a call of their own
+    private final ConcurrentHashMap<K, CompletableFuture<V>> in_flight = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+
+    public V execute(K key, DatabaseCall<V> call) throws DatabaseException {
+
+        CompletableFuture<V> own_call = new CompletableFuture<>();
+        CompletableFuture<V> running_call = in_flight.putIfAbsent(key, own_call);
+
+        //Someone else is already fetching this key, so their result is shared
+        if (running_call != null) {
+
+            coalesced.increment();
+            return await(running_call);
+        }
+
+        executed.increment();
+
+        try {
+
+            V result = call.call();
+            own_call.complete(result);
+            return result;
+        }
+        catch (DatabaseException | RuntimeException error) {
+
+            //Everyone waiting on this call gets the same failure
+            own_call.completeExceptionally(error);
+            throw error;
+        }
+        finally {
+
+            //The key is freed, so the next lookup after this one reads fresh data
+            in_flight.remove(key, own_call);
+        }
+    }
+
+    private V await(CompletableFuture<V> running_call) throws DatabaseException {
+
+        try {
+
+            return running_call.get();
+        }
+        catch (InterruptedException error) {
+
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while waiting for a shared lookup", error);
+        }
+        catch (ExecutionException error) {
+
+            if (error.getCause() instanceof DatabaseException) {
+
+                throw (DatabaseException) error.getCause();
+            }
+            if (error.getCause() instanceof RuntimeException) {
+
+                throw (RuntimeException) error.getCause();
+            }
+
+            throw new DatabaseException("Shared lookup failed", error.getCause());
+        }
+    }
+
+    public long getExecutedCount() {
+
+        return executed.sum();
+    }
+
+    public long getCoalescedCount() {
+
+        return coalesced.sum();
+    }
+}
@@ -0,0 +1,70 @@
+package repository.credential;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class CredentialVerifier {
+
+    //Checks a PIN against the value stored for a login: first against the cache of recent successful logins, and
+    //only if that misses, by running the KDF. New and changed PINs are hashed here as well
+
+    private final PinHasher hasher;
+    private final VerifiedCredentialCache cache;
+
+    private final LongAdder kdf_runs = new LongAdder();
+
+    public CredentialVerifier(PinHasher hasher, VerifiedCredentialCache cache) {
+
+        this.hasher = hasher;
+        this.cache = cache;
+    }
+
+
+    public boolean verify(String login, String pin, String stored) {
+
+        if (stored == null) {
+
+            return false;
+        }
+
+        if (cache.isVerified(login, pin, stored)) {
+
+            return true;
+        }
+
+        kdf_runs.increment();
+        boolean verified = hasher.verify(pin, stored);
+
+        //Failed attempts are never cached, so a wrong PIN always pays the full cost
+        if (verified) {
+
+            cache.remember(login, pin, stored);
+        }
+
+        return verified;
+    }
+
+    public String hash(String pin) {
+
+        return hasher.hash(pin);
+    }
+
+    public boolean needsRehash(String stored) {
+
+        return hasher.needsRehash(stored);
+    }
+
+    public void forget(String login) {
+
+        cache.forget(login);
+    }
+
+    public long getKdfRuns() {
+
+        return kdf_runs.sum();
+    }
+
+    public VerifiedCredentialCache getCache() {
+
+        return cache;
+    }
+}
@@ -0,0 +1,129 @@
+package repository.credential;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+public class PinHasher {
+
+    //PINs are stored as "pbkdf2-sha256$<iterations>$<salt>$<hash>", salt and hash in Base64. The iteration count is
+    //stored with each hash, so raising the cost later does not break existing PINs; they are re-hashed at the new
+    //cost the next time their owner logs in (see needsRehash()).
+    //A 5-digit PIN has only 100,000 possible values, so no hash makes a stolen table safe for long. What the salt
+    //and cost buy is that each account has to be attacked on its own, at 100,000 KDF runs per account
+
+    public static final String PREFIX = "pbkdf2-sha256";
+    public static final int DEFAULT_ITERATIONS = 600_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public PinHasher(int iterations) {
+
+        if (iterations < 1) {
+
+            throw new IllegalArgumentException("Iterations must be at least 1");
+        }
+
+        this.iterations = iterations;
+    }
+
+
+    public String hash(String pin) {
+
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" +
+                encoder.encodeToString(derive(pin, salt, iterations));
+    }
+
+    public boolean verify(String pin, String stored) {
+
+        if (stored == null) {
+
+            return false;
+        }
+
+        //PINs written before hashing was introduced are still plain text until their owner next logs in
+        if (!isHashed(stored)) {
+
+            return MessageDigest.isEqual(pin.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+
+            return false;
+        }
+
+        try {
+
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+
+            //The comparison takes the same time however many bytes match, so timing reveals nothing
+            return MessageDigest.isEqual(expected, derive(pin, salt, Integer.parseInt(parts[1])));
+        }
+        catch (IllegalArgumentException error) {
+
+            //A malformed stored value never matches
+            return false;
+        }
+    }
+
+    public boolean needsRehash(String stored) {
+
+        if (!isHashed(stored)) {
+
+            return true;
+        }
+
+        String[] parts = stored.split("\\$");
+        try {
+
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        }
+        catch (NumberFormatException error) {
+
+            return true;
+        }
+    }
+
+    public static boolean isHashed(String stored) {
+
+        return stored != null && stored.startsWith(PREFIX + "$");
+    }
+
+    public int getIterations() {
+
+        return iterations;
+    }
+
+    private static byte[] derive(String pin, byte[] salt, int iterations) {
+
+        PBEKeySpec spec = new PBEKeySpec(pin.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        }
+        catch (GeneralSecurityException error) {
+
+            //PBKDF2WithHmacSHA256 is required of every Java runtime, so this cannot happen on a working JVM
+            throw new IllegalStateException("PIN hashing is not available", error);
+        }
+        finally {
+
+            spec.clearPassword();
+        }
+    }
+}
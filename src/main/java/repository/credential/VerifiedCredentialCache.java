@@ -0,0 +1,164 @@
+package repository.credential;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class VerifiedCredentialCache {
+
+    //Remembers, for a short time, that a PIN was checked against a login's stored hash, so a repeat login does not
+    //pay for the KDF again. The PIN itself is never kept: each entry holds an HMAC of it under a key that exists
+    //only in this process's memory. An entry only counts while the stored hash is unchanged, so a PIN change ends it
+    //straight away. The cache holds at most max_entries logins, dropping the least recently used first
+
+    private static final class Entry {
+
+        private final String stored_hash;
+        private final byte[] pin_digest;
+        private final long expires_at;
+
+        private Entry(String stored_hash, byte[] pin_digest, long expires_at) {
+
+            this.stored_hash = stored_hash;
+            this.pin_digest = pin_digest;
+            this.expires_at = expires_at;
+        }
+    }
+
+    private final int max_entries;
+    private final long ttl_ms;
+    private final LongSupplier clock;
+    private final byte[] digest_key = new byte[32];
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public VerifiedCredentialCache(int max_entries, long ttl_ms) {
+
+        this(max_entries, ttl_ms, System::currentTimeMillis);
+    }
+
+    public VerifiedCredentialCache(int max_entries, long ttl_ms, LongSupplier clock) {
+
+        if (max_entries < 1) {
+
+            throw new IllegalArgumentException("Max entries must be at least 1");
+        }
+
+        this.max_entries = max_entries;
+        this.ttl_ms = ttl_ms;
+        this.clock = clock;
+        new SecureRandom().nextBytes(digest_key);
+
+        //An access-ordered LinkedHashMap keeps the least recently used login first, ready to be dropped
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+
+                if (size() > VerifiedCredentialCache.this.max_entries) {
+
+                    evictions.increment();
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+
+    public boolean isVerified(String login, String pin, String stored_hash) {
+
+        Entry entry;
+        synchronized (entries) {
+
+            entry = entries.get(login);
+
+            if (entry != null && clock.getAsLong() >= entry.expires_at) {
+
+                entries.remove(login);
+                entry = null;
+            }
+        }
+
+        //The digest is worked out outside the lock; it is cheap, but there is no reason to hold others up
+        if (entry != null && entry.stored_hash.equals(stored_hash) &&
+                MessageDigest.isEqual(entry.pin_digest, digest(login, pin))) {
+
+            hits.increment();
+            return true;
+        }
+
+        misses.increment();
+        return false;
+    }
+
+    public void remember(String login, String pin, String stored_hash) {
+
+        Entry entry = new Entry(stored_hash, digest(login, pin), clock.getAsLong() + ttl_ms);
+
+        synchronized (entries) {
+
+            entries.put(login, entry);
+        }
+    }
+
+    public void forget(String login) {
+
+        synchronized (entries) {
+
+            entries.remove(login);
+        }
+    }
+
+    private byte[] digest(String login, String pin) {
+
+        try {
+
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(digest_key, "HmacSHA256"));
+            mac.update(login.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(pin.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (GeneralSecurityException error) {
+
+            //HmacSHA256 is required of every Java runtime
+            throw new IllegalStateException("HMAC is not available", error);
+        }
+    }
+
+    public int size() {
+
+        synchronized (entries) {
+
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+
+        return hits.sum();
+    }
+
+    public long getMisses() {
+
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+
+        return evictions.sum();
+    }
+}
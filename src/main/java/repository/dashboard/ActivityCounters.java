@@ -0,0 +1,181 @@
+package repository.dashboard;
+
+import model.transaction.ActivityTotals;
+import model.transaction.DailyActivity;
+import model.transaction.RollupPeriod;
+import model.transaction.TransactionType;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class ActivityCounters {
+
+    //Today's deposits and withdrawals, counted as they commit, so the dashboard never sums the day's rollups to
+    //show them. The counts and totals are LongAdders, which spread concurrent additions over cells instead of
+    //making every terminal thread retry on one value.
+    //On their own they only see this terminal's transactions, so checkpoint() reads the day's rollup from the
+    //database and keeps the difference as a correction; the figures shown are the adders plus the correction. A new
+    //day starts again from zero
+
+    private static final class Day {
+
+        private final LocalDate date;
+        private final LongAdder deposit_count = new LongAdder();
+        private final LongAdder deposit_total = new LongAdder();
+        private final LongAdder withdrawal_count = new LongAdder();
+        private final LongAdder withdrawal_total = new LongAdder();
+
+        //What the database had and the adders did not, as of the last checkpoint: deposit count and total, then
+        //withdrawal count and total
+        private volatile long[] correction = new long[4];
+
+        private Day(LocalDate date) {
+
+            this.date = date;
+        }
+
+        private long[] recorded() {
+
+            return new long[] {deposit_count.sum(), deposit_total.sum(), withdrawal_count.sum(),
+                    withdrawal_total.sum()};
+        }
+    }
+
+    private final LongSupplier clock;
+    private volatile Day current;
+    private volatile LocalDateTime checkpoint_at;
+
+    //Writes in flight and writes ever begun, so checkpoint() can tell that no write overlapped its read
+    private final AtomicInteger in_flight = new AtomicInteger();
+    private final AtomicLong begun = new AtomicLong();
+
+    public ActivityCounters() {
+
+        this(System::currentTimeMillis);
+    }
+
+    public ActivityCounters(LongSupplier clock) {
+
+        this.clock = clock;
+        this.current = new Day(toDate(clock.getAsLong()));
+    }
+
+
+    static LocalDate toDate(long epoch_ms) {
+
+        return Instant.ofEpochMilli(epoch_ms).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private Day current() {
+
+        LocalDate today = toDate(clock.getAsLong());
+        Day day = current;
+        if (day.date.equals(today)) {
+
+            return day;
+        }
+
+        synchronized (this) {
+
+            if (!current.date.equals(today)) {
+
+                current = new Day(today);
+            }
+            return current;
+        }
+    }
+
+    public void begin() {
+
+        //Called before a write that may record, and end() once it has; a checkpoint waits for a quiet moment
+        begun.incrementAndGet();
+        in_flight.incrementAndGet();
+    }
+
+    public void end() {
+
+        in_flight.decrementAndGet();
+    }
+
+    public void record(TransactionType type, int amount) {
+
+        add(current(), type, amount);
+    }
+
+    public void record(TransactionType type, int amount, long recorded_at) {
+
+        //A transaction taken on an earlier day (a replayed offline one) belongs to that day's figures, not today's
+        Day day = current();
+        if (day.date.equals(toDate(recorded_at))) {
+
+            add(day, type, amount);
+        }
+    }
+
+    private static void add(Day day, TransactionType type, int amount) {
+
+        if (type == TransactionType.DEPOSIT) {
+
+            day.deposit_count.increment();
+            day.deposit_total.add(amount);
+        }
+        else {
+
+            day.withdrawal_count.increment();
+            day.withdrawal_total.add(amount);
+        }
+    }
+
+    public DailyActivity today() {
+
+        Day day = current();
+        long[] recorded = day.recorded();
+        long[] correction = day.correction;
+
+        return new DailyActivity(day.date, recorded[0] + correction[0], recorded[1] + correction[1],
+                recorded[2] + correction[2], recorded[3] + correction[3]);
+    }
+
+    public boolean checkpoint(DatabaseManager db_manager) throws DatabaseException {
+
+        //Reads today's rollup and corrects the figures to it. If a write on this terminal was in flight at any
+        //point of the read, the rollup may or may not include it, so nothing is changed and false is returned; the
+        //next checkpoint tries again
+        Day day = current();
+        long begun_before = begun.get();
+        if (in_flight.get() > 0) {
+
+            return false;
+        }
+
+        long[] recorded = day.recorded();
+        List<ActivityTotals> totals = db_manager.getActivityTotals(RollupPeriod.DAY, day.date,
+                day.date.plusDays(1));
+        if (in_flight.get() > 0 || begun.get() != begun_before) {
+
+            return false;
+        }
+
+        ActivityTotals database = totals.isEmpty() ?
+                new ActivityTotals(day.date, 0, 0, 0, 0, 0) : totals.get(0);
+        day.correction = new long[] {database.deposit_count() - recorded[0], database.deposit_total() - recorded[1],
+                database.withdrawal_count() - recorded[2], database.withdrawal_total() - recorded[3]};
+        checkpoint_at = LocalDateTime.ofInstant(Instant.ofEpochMilli(clock.getAsLong()), ZoneId.systemDefault());
+
+        return true;
+    }
+
+    public LocalDateTime getCheckpointAt() {
+
+        return checkpoint_at;
+    }
+}
@@ -0,0 +1,73 @@
+package repository.dashboard;
+
+import model.transaction.TransactionType;
+import repository.DatabaseManager;
+import repository.ForwardingDatabaseManager;
+import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+import repository.offline.ReplayOutcome;
+
+import java.util.List;
+
+public class DashboardDatabaseManager extends ForwardingDatabaseManager {
+
+    //Counts every deposit and withdrawal the database commits into ActivityCounters. It belongs below the offline
+    //journal, like the balance index, so a journaled transaction is counted when it is replayed, on the day it was
+    //taken
+
+    private final ActivityCounters activity;
+
+    public DashboardDatabaseManager(DatabaseManager delegate, ActivityCounters activity) {
+
+        super(delegate);
+        this.activity = activity;
+    }
+
+
+    @Override
+    public int applyTransaction(int account_num, int new_balance, TransactionType type, int amount)
+            throws DatabaseException {
+
+        activity.begin();
+        try {
+
+            //-1 is a withdrawal the database refused and -2 an account that no longer exists
+            int balance_after = super.applyTransaction(account_num, new_balance, type, amount);
+            if (balance_after >= 0) {
+
+                activity.record(type, amount);
+            }
+
+            return balance_after;
+        }
+        finally {
+
+            activity.end();
+        }
+    }
+
+    @Override
+    public ReplayOutcome[] applyJournalEntries(String terminal_id, List<JournalEntry> entries)
+            throws DatabaseException {
+
+        activity.begin();
+        try {
+
+            ReplayOutcome[] outcomes = super.applyJournalEntries(terminal_id, entries);
+            for (int i = 0; i < outcomes.length; i++) {
+
+                if (outcomes[i] == ReplayOutcome.APPLIED) {
+
+                    JournalEntry entry = entries.get(i);
+                    activity.record(entry.type(), entry.amount(), entry.recorded_at());
+                }
+            }
+
+            return outcomes;
+        }
+        finally {
+
+            activity.end();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package repository.dashboard;
+
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+import repository.search.BalanceIndexDatabaseManager;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class DashboardReconciler implements Closeable {
+
+    //Brings the dashboard's figures back in line with the database: the balance index, which holds the accounts and
+    //balances of each status, is rebuilt from a scan, and today's activity is checkpointed against its rollup. Both
+    //drift between runs by whatever other terminals commit, and by anything a failed write left half-counted
+
+    private final BalanceIndexDatabaseManager balance_manager;
+    private final ActivityCounters activity;
+    private final DatabaseManager db_manager;
+
+    private ScheduledExecutorService executor;
+
+    private final LongAdder skipped_checkpoints = new LongAdder();
+    private final LongAdder failed_attempts = new LongAdder();
+
+    public DashboardReconciler(BalanceIndexDatabaseManager balance_manager, ActivityCounters activity,
+                               DatabaseManager db_manager) {
+
+        this.balance_manager = balance_manager;
+        this.activity = activity;
+        this.db_manager = db_manager;
+    }
+
+
+    public boolean reconcile() throws DatabaseException {
+
+        //Returns false if the activity checkpoint had to be skipped because a transaction was committing
+        balance_manager.rebuild();
+        if (!activity.checkpoint(db_manager)) {
+
+            skipped_checkpoints.increment();
+            return false;
+        }
+
+        return true;
+    }
+
+    public void start(long interval_ms) {
+
+        //A single background thread reconciles every interval_ms; the scan runs as batch work, behind customers
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+
+            Thread thread = new Thread(runnable, "dashboard-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        executor.scheduleWithFixedDelay(() -> {
+
+            try {
+
+                reconcile();
+            }
+            catch (DatabaseException error) {
+
+                //The figures keep counting from where they are until the next attempt
+                failed_attempts.increment();
+            }
+        }, interval_ms, interval_ms, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+
+        if (executor != null) {
+
+            executor.shutdownNow();
+        }
+    }
+
+    public long getSkippedCheckpoints() {
+
+        return skipped_checkpoints.sum();
+    }
+
+    public long getFailedAttempts() {
+
+        return failed_attempts.sum();
+    }
+}
@@ -0,0 +1,10 @@
+package repository.eventsource;
+
+//One entry of the event log. balance is the account's balance after the event: the opening balance of a created
+//account, and the balance a deposit or withdrawal left. The text fields are only set by the events that carry them:
+//all of them for a created account, and only the changed ones for updated info (null meaning unchanged). pin is
+//always the stored hash, never the PIN itself
+public record AccountEvent(long sequence, AccountEventType type, int account_num, int amount, int balance,
+                           String login, String pin, String holder, String status, String role, long recorded_at) {
+
+}
@@ -0,0 +1,11 @@
+package repository.eventsource;
+
+//The facts an event-sourced account store records. Every account's state is what its events add up to, in order
+public enum AccountEventType {
+
+    ACCOUNT_CREATED,
+    DEPOSITED,
+    WITHDRAWN,
+    INFO_UPDATED,
+    ACCOUNT_DELETED
+}
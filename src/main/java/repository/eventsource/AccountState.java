@@ -0,0 +1,100 @@
+package repository.eventsource;
+
+import model.account.Account;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+import model.user.Administrator;
+import model.user.Customer;
+import model.user.User;
+import repository.DatabaseManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+//One account as its events have left it, with its latest transactions (newest first, at most
+//DatabaseManager.RECENT_ACTIVITY_LIMIT of them) for the login screen. A state never changes; apply() returns the
+//next one, so readers on other threads always see a whole state
+public record AccountState(int account_num, String login, String pin, String holder, int balance, String status,
+                           String role, List<TransactionRecord> recent_activity) {
+
+    public static AccountState created(AccountEvent event) {
+
+        return new AccountState(event.account_num(), event.login(), event.pin(), event.holder(), event.balance(),
+                event.status(), event.role(), List.of());
+    }
+
+    public static AccountState fold(AccountState current, AccountEvent event) {
+
+        //Returns the state after the event, or null if the account does not exist after it. Events for an account
+        //that does not exist (one created before a deleted one was removed) change nothing
+        if (event.type() == AccountEventType.ACCOUNT_CREATED) {
+
+            return created(event);
+        }
+        if (current == null) {
+
+            return null;
+        }
+
+        return switch (event.type()) {
+
+            case DEPOSITED -> current.withTransaction(TransactionType.DEPOSIT, event);
+            case WITHDRAWN -> current.withTransaction(TransactionType.WITHDRAWAL, event);
+            case INFO_UPDATED -> new AccountState(current.account_num,
+                    event.login() != null ? event.login() : current.login,
+                    event.pin() != null ? event.pin() : current.pin,
+                    event.holder() != null ? event.holder() : current.holder,
+                    current.balance,
+                    event.status() != null ? event.status() : current.status,
+                    current.role, current.recent_activity);
+            case ACCOUNT_DELETED -> null;
+            default -> current;
+        };
+    }
+
+    private AccountState withTransaction(TransactionType type, AccountEvent event) {
+
+        List<TransactionRecord> activity = new ArrayList<>(DatabaseManager.RECENT_ACTIVITY_LIMIT);
+        activity.add(new TransactionRecord(type, event.amount(), event.balance(), toDateTime(event.recorded_at())));
+        for (int i = 0; i < recent_activity.size() && activity.size() < DatabaseManager.RECENT_ACTIVITY_LIMIT; i++) {
+
+            activity.add(recent_activity.get(i));
+        }
+
+        return new AccountState(account_num, login, pin, holder, event.balance(), status, role,
+                List.copyOf(activity));
+    }
+
+    static LocalDateTime toDateTime(long epoch_ms) {
+
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epoch_ms), ZoneId.systemDefault());
+    }
+
+    public boolean isCustomer() {
+
+        return "Customer".equals(role);
+    }
+
+    public Account toAccount() {
+
+        return new Account(account_num, holder, balance, status);
+    }
+
+    public User toUser() {
+
+        //Like a database row, a state with neither role belongs to nobody who can log in
+        if (isCustomer()) {
+
+            return new Customer(login, pin, toAccount());
+        }
+        else if ("Admin".equals(role)) {
+
+            return new Administrator(login, pin);
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,134 @@
+package repository.eventsource;
+
+import model.transaction.ActivitySummary;
+import model.transaction.ActivityTotals;
+import model.transaction.RollupPeriod;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+final class ActivityLedger {
+
+    //Every deposit and withdrawal of an event-sourced store, per account, with the same daily and monthly rollups
+    //and bank-wide totals the MySQL rollup tables hold. They are kept up to date as events are applied, so
+    //history, statements and reports never read the log. As in the ledger table, an account's transactions stay
+    //after the account is deleted.
+    //Only one thread adds at a time (the store's writer, under its write lock), while any number read. An account's
+    //transactions are an append-only array: add() writes past the end that readers were handed and only then
+    //publishes the longer view, so a view never changes once read. Rollups are immutable values, replaced in
+    //concurrent maps
+
+    private record View(TransactionRecord[] records, int size) {
+
+    }
+
+    private final Map<Integer, View> transactions = new ConcurrentHashMap<>();
+    private final Map<RollupPeriod, Map<Integer, NavigableMap<LocalDate, ActivitySummary>>> summaries =
+            new EnumMap<>(RollupPeriod.class);
+    private final Map<RollupPeriod, NavigableMap<LocalDate, ActivityTotals>> totals =
+            new EnumMap<>(RollupPeriod.class);
+
+    ActivityLedger() {
+
+        for (RollupPeriod period : RollupPeriod.values()) {
+
+            summaries.put(period, new ConcurrentHashMap<>());
+            totals.put(period, new ConcurrentSkipListMap<>());
+        }
+    }
+
+
+    void add(int account_num, TransactionRecord record) {
+
+        View view = transactions.getOrDefault(account_num, new View(new TransactionRecord[4], 0));
+        TransactionRecord[] records = view.records();
+        if (view.size() == records.length) {
+
+            records = Arrays.copyOf(records, records.length * 2);
+        }
+        records[view.size()] = record;
+        transactions.put(account_num, new View(records, view.size() + 1));
+
+        boolean deposit = record.type() == TransactionType.DEPOSIT;
+        for (RollupPeriod period : RollupPeriod.values()) {
+
+            LocalDate start = periodOf(period, record.timestamp());
+            NavigableMap<LocalDate, ActivitySummary> periods = summaries.get(period)
+                    .computeIfAbsent(account_num, ignored -> new ConcurrentSkipListMap<>());
+
+            ActivitySummary previous = periods.getOrDefault(start, new ActivitySummary(start, 0, 0, 0, 0, 0));
+            periods.put(start, new ActivitySummary(start, previous.deposit_count() + (deposit ? 1 : 0),
+                    previous.deposit_total() + (deposit ? record.amount() : 0),
+                    previous.withdrawal_count() + (deposit ? 0 : 1),
+                    previous.withdrawal_total() + (deposit ? 0 : record.amount()), record.balance_after()));
+
+            //An account counts as active in a period from its first transaction there
+            boolean first = previous.deposit_count() + previous.withdrawal_count() == 0;
+            totals.get(period).merge(start, new ActivityTotals(start, first ? 1 : 0, deposit ? 1 : 0,
+                    deposit ? record.amount() : 0, deposit ? 0 : 1, deposit ? 0 : record.amount()),
+                    ActivityTotals::plus);
+        }
+    }
+
+    static LocalDate periodOf(RollupPeriod period, LocalDateTime time) {
+
+        LocalDate day = time.toLocalDate();
+        return period == RollupPeriod.DAY ? day : day.withDayOfMonth(1);
+    }
+
+    List<TransactionRecord> getHistory(int account_num, LocalDateTime from, LocalDateTime to) {
+
+        //Newest first, from <= time < to
+        List<TransactionRecord> history = new ArrayList<>();
+        View view = transactions.get(account_num);
+        if (view == null) {
+
+            return history;
+        }
+
+        for (int i = view.size() - 1; i >= 0; i--) {
+
+            TransactionRecord record = view.records()[i];
+            if (!record.timestamp().isBefore(from) && record.timestamp().isBefore(to)) {
+
+                history.add(record);
+            }
+        }
+
+        return history;
+    }
+
+    List<ActivitySummary> getSummaries(int account_num, RollupPeriod period, LocalDate from, LocalDate to) {
+
+        //Oldest period first, from <= period start < to
+        NavigableMap<LocalDate, ActivitySummary> periods = summaries.get(period).get(account_num);
+        return periods == null ? new ArrayList<>() : new ArrayList<>(periods.subMap(from, true, to, false).values());
+    }
+
+    List<ActivityTotals> getTotals(RollupPeriod period, LocalDate from, LocalDate to) {
+
+        return new ArrayList<>(totals.get(period).subMap(from, true, to, false).values());
+    }
+
+    Map<Integer, List<TransactionRecord>> getTransactions() {
+
+        //Every account's transactions, oldest first, as they stand; each list is a view that later adds don't change
+        Map<Integer, List<TransactionRecord>> copy = new HashMap<>(transactions.size() * 2);
+        transactions.forEach((account_num, view) -> copy.put(account_num,
+                Collections.unmodifiableList(Arrays.asList(view.records()).subList(0, view.size()))));
+
+        return copy;
+    }
+}
@@ -0,0 +1,265 @@
+package repository.eventsource;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+public class EventLog implements Closeable {
+
+    //The append-only file every account event is written to, and the only thing an event-sourced store needs to
+    //rebuild itself. append() returns once the event is on disk. Each entry is its length (4), then the event, then
+    //a CRC32 of the event (4); the event is its sequence (8), type (1), account (4), amount (4), balance (4) and time
+    //(8), then five strings (login, pin, holder, status, role), each a length (2, -1 for none) and its UTF-8 bytes.
+    //Opening the log reads it from a given position (the end of what the last snapshot covers) to the end, handing
+    //each event to the caller; a torn entry at the end (the power went during a write) fails its checksum and is
+    //cut off there
+
+    static final int FIXED_BYTES = 29;
+    static final int MIN_EVENT_BYTES = FIXED_BYTES + 5 * Short.BYTES;
+    static final int MAX_EVENT_BYTES = FIXED_BYTES + 5 * (Short.BYTES + Short.MAX_VALUE);
+
+    private static final AccountEventType[] TYPES = AccountEventType.values();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final LongSupplier clock;
+
+    //Guards the end of the file and the sequence numbers
+    private final Object write_lock = new Object();
+    private long position;
+    private long last_sequence;
+
+    public EventLog(Path path, long from_position, long from_sequence, Consumer<AccountEvent> tail)
+            throws IOException {
+
+        this(path, from_position, from_sequence, tail, System::currentTimeMillis);
+    }
+
+    public EventLog(Path path, long from_position, long from_sequence, Consumer<AccountEvent> tail,
+                    LongSupplier clock) throws IOException {
+
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        this.path = path;
+        this.clock = clock;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        if (from_position > channel.size()) {
+
+            throw new IOException("Event log is shorter than its snapshot: " + path);
+        }
+
+        //Everything after the first entry that is torn or out of order is cut off
+        long[] end = {from_position, from_sequence};
+        read(from_position, from_sequence, channel.size(), (event, next_position) -> {
+
+            tail.accept(event);
+            end[0] = next_position;
+            end[1] = event.sequence();
+        });
+
+        channel.truncate(end[0]);
+        channel.force(true);
+        position = end[0];
+        last_sequence = end[1];
+    }
+
+
+    public AccountEvent append(AccountEventType type, int account_num, int amount, int balance, String login,
+                               String pin, String holder, String status, String role) throws IOException {
+
+        synchronized (write_lock) {
+
+            AccountEvent event = new AccountEvent(last_sequence + 1, type, account_num, amount, balance, login, pin,
+                    holder, status, role, clock.getAsLong());
+            ByteBuffer entry = encode(event);
+
+            //A failed write leaves the end where it was, so the next append overwrites whatever part of it landed
+            int length = entry.remaining();
+            while (entry.hasRemaining()) {
+
+                channel.write(entry, position + entry.position());
+            }
+            channel.force(false);
+
+            position += length;
+            last_sequence = event.sequence();
+            return event;
+        }
+    }
+
+    private interface EntryConsumer {
+
+        void accept(AccountEvent event, long next_position);
+    }
+
+    private void read(long from_position, long from_sequence, long end, EntryConsumer consumer) throws IOException {
+
+        //Reads through its own channel, so appends can carry on meanwhile
+        try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(
+                     Channels.newInputStream(reader.position(from_position)), 1 << 16))) {
+
+            byte[] bytes = new byte[MAX_EVENT_BYTES];
+            long at = from_position;
+            long expected = from_sequence + 1;
+
+            while (at + 2 * Integer.BYTES + MIN_EVENT_BYTES <= end) {
+
+                int length = input.readInt();
+                if (length < MIN_EVENT_BYTES || length > MAX_EVENT_BYTES || at + 2 * Integer.BYTES + length > end) {
+
+                    return;
+                }
+
+                input.readFully(bytes, 0, length);
+                int stored_crc = input.readInt();
+
+                AccountEvent event = decode(bytes, length, stored_crc);
+                if (event == null || event.sequence() != expected) {
+
+                    return;
+                }
+
+                at += 2 * Integer.BYTES + length;
+                expected++;
+                consumer.accept(event, at);
+            }
+        }
+        catch (EOFException error) {
+
+            //The file ended in the middle of an entry; everything before it stands
+        }
+    }
+
+    public static ByteBuffer encode(AccountEvent event) {
+
+        byte[][] strings = {utf8(event.login()), utf8(event.pin()), utf8(event.holder()), utf8(event.status()),
+                utf8(event.role())};
+
+        int length = FIXED_BYTES;
+        for (byte[] string : strings) {
+
+            length += Short.BYTES + (string == null ? 0 : string.length);
+        }
+
+        ByteBuffer entry = ByteBuffer.allocate(2 * Integer.BYTES + length);
+        entry.putInt(length);
+        entry.putLong(event.sequence());
+        entry.put((byte) event.type().ordinal());
+        entry.putInt(event.account_num());
+        entry.putInt(event.amount());
+        entry.putInt(event.balance());
+        entry.putLong(event.recorded_at());
+        for (byte[] string : strings) {
+
+            entry.putShort(string == null ? -1 : (short) string.length);
+            if (string != null) {
+
+                entry.put(string);
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(entry.array(), Integer.BYTES, length);
+        entry.putInt((int) crc.getValue());
+
+        return entry.flip();
+    }
+
+    private static byte[] utf8(String string) {
+
+        if (string == null) {
+
+            return null;
+        }
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+
+            throw new IllegalArgumentException("Event field is too long: " + bytes.length + " bytes");
+        }
+
+        return bytes;
+    }
+
+    static AccountEvent decode(byte[] bytes, int length, int stored_crc) {
+
+        //Returns null for an event that fails its checksum or does not parse
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        if ((int) crc.getValue() != stored_crc) {
+
+            return null;
+        }
+
+        ByteBuffer event = ByteBuffer.wrap(bytes, 0, length);
+        long sequence = event.getLong();
+        int type = event.get();
+        int account_num = event.getInt();
+        int amount = event.getInt();
+        int balance = event.getInt();
+        long recorded_at = event.getLong();
+        if (type < 0 || type >= TYPES.length) {
+
+            return null;
+        }
+
+        String[] strings = new String[5];
+        for (int i = 0; i < strings.length; i++) {
+
+            if (event.remaining() < Short.BYTES) {
+
+                return null;
+            }
+
+            int string_length = event.getShort();
+            if (string_length > event.remaining()) {
+
+                return null;
+            }
+            if (string_length >= 0) {
+
+                strings[i] = new String(bytes, event.position(), string_length, StandardCharsets.UTF_8);
+                event.position(event.position() + string_length);
+            }
+        }
+
+        return new AccountEvent(sequence, TYPES[type], account_num, amount, balance, strings[0], strings[1],
+                strings[2], strings[3], strings[4], recorded_at);
+    }
+
+    public long getPosition() {
+
+        synchronized (write_lock) {
+
+            return position;
+        }
+    }
+
+    public long getLastSequence() {
+
+        synchronized (write_lock) {
+
+            return last_sequence;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        channel.close();
+    }
+}
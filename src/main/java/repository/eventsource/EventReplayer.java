@@ -0,0 +1,109 @@
+package repository.eventsource;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class EventReplayer {
+
+    //Applies a run of events to account states on several threads at once. An account's events only ever touch
+    //that account, so the events are split by account number into one partition per thread: each partition keeps
+    //its events in log order, and no two threads ever touch the same account, so they need no lock between them.
+    //Short runs are applied on the calling thread, where starting threads would cost more than it saves
+
+    static final int PARALLEL_THRESHOLD = 4096;
+
+    private final int thread_count;
+
+    public EventReplayer(int thread_count) {
+
+        if (thread_count < 1) {
+
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+
+        this.thread_count = thread_count;
+    }
+
+
+    public int replay(List<AccountEvent> events, Map<Integer, AccountState> states) throws InterruptedIOException {
+
+        //states must be safe for concurrent use by different keys (a ConcurrentHashMap). Returns the number of
+        //partitions the events were applied in
+        if (thread_count == 1 || events.size() < PARALLEL_THRESHOLD) {
+
+            applyAll(events, states);
+            return 1;
+        }
+
+        List<List<AccountEvent>> partitions = new ArrayList<>(thread_count);
+        for (int i = 0; i < thread_count; i++) {
+
+            partitions.add(new ArrayList<>(events.size() / thread_count + 1));
+        }
+        for (AccountEvent event : events) {
+
+            partitions.get(partitionOf(event.account_num())).add(event);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(thread_count);
+        try {
+
+            List<Future<?>> running = new ArrayList<>(thread_count);
+            for (List<AccountEvent> partition : partitions) {
+
+                running.add(executor.submit(() -> applyAll(partition, states)));
+            }
+            for (Future<?> partition : running) {
+
+                partition.get();
+            }
+
+            return thread_count;
+        }
+        catch (InterruptedException error) {
+
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while replaying events");
+        }
+        catch (ExecutionException error) {
+
+            throw new IllegalStateException("Error replaying events", error.getCause());
+        }
+        finally {
+
+            executor.shutdownNow();
+        }
+    }
+
+    int partitionOf(int account_num) {
+
+        return Math.floorMod(account_num, thread_count);
+    }
+
+    private static void applyAll(List<AccountEvent> events, Map<Integer, AccountState> states) {
+
+        for (AccountEvent event : events) {
+
+            AccountState next = AccountState.fold(states.get(event.account_num()), event);
+            if (next == null) {
+
+                states.remove(event.account_num());
+            }
+            else {
+
+                states.put(event.account_num(), next);
+            }
+        }
+    }
+
+    public int getThreadCount() {
+
+        return thread_count;
+    }
+}
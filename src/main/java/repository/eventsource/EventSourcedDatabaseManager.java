@@ -0,0 +1,654 @@
+package repository.eventsource;
+
+import model.account.Account;
+import model.account.AccountLimits;
+import model.account.NewAccount;
+import model.session.SessionContext;
+import model.transaction.ActivitySummary;
+import model.transaction.ActivityTotals;
+import model.transaction.RollupPeriod;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+import model.user.Administrator;
+import model.user.Customer;
+import model.user.User;
+import repository.AccountConsumer;
+import repository.AccountKeyConsumer;
+import repository.DatabaseManager;
+import repository.allocation.NumberBlockSource;
+import repository.exception.DatabaseException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class EventSourcedDatabaseManager extends DatabaseManager implements NumberBlockSource, Closeable {
+
+    //Keeps accounts in memory, as the sum of the events in an append-only EventLog on this host, instead of in
+    //MySQL. Every write appends one event (account created, deposited, withdrawn, info updated, deleted) and only
+    //then changes the in-memory state, so whatever a caller was told is on disk. Reads never touch the disk.
+    //Every account's state is written to a StateSnapshot from time to time (see start()); at startup the snapshot is
+    //loaded and only the events after it are read from the log, then applied on several threads, split by account
+    //(see EventReplayer). If the snapshot can't be read, the whole log is replayed instead: the log alone is enough.
+    //It offers the operations the customer and admin services use; history, statements and reports come from an
+    //ActivityLedger kept alongside the states (and in the snapshot). The rest (sub-balances, offline journal
+    //replay, rollup rebuilds) are MySQL features, and fail as they would against a database that can't be reached
+
+    static final String LOG_FILE = "events.log";
+    static final String SNAPSHOT_FILE = "accounts.snapshot";
+
+    private final Path snapshot_path;
+    private final EventLog log;
+
+    private final Map<Integer, AccountState> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Integer> logins = new ConcurrentHashMap<>();
+    private final ActivityLedger ledger = new ActivityLedger();
+
+    //The numbers of deleted accounts, which are never handed out again, as the database's AUTO_INCREMENT never is
+    private final Set<Integer> retired_account_nums = ConcurrentHashMap.newKeySet();
+
+    //Guards appends together with the state changes they cause, so the log and the states agree in order
+    private final Object write_lock = new Object();
+    private int highest_account_num;
+
+    private final ReplayResult replay_result;
+    private final Object snapshot_lock = new Object();
+    private volatile long snapshot_sequence;
+    private ScheduledExecutorService executor;
+
+    private final LongAdder appended_events = new LongAdder();
+    private final LongAdder snapshots_written = new LongAdder();
+    private final LongAdder failed_snapshots = new LongAdder();
+
+    public EventSourcedDatabaseManager(Path directory, int replay_threads) throws IOException {
+
+        Files.createDirectories(directory);
+        this.snapshot_path = directory.resolve(SNAPSHOT_FILE);
+
+        long started = System.nanoTime();
+        StateSnapshot snapshot;
+        try {
+
+            snapshot = StateSnapshot.read(snapshot_path);
+        }
+        catch (IOException error) {
+
+            snapshot = StateSnapshot.EMPTY;
+        }
+
+        for (AccountState account : snapshot.accounts()) {
+
+            accounts.put(account.account_num(), account);
+        }
+        highest_account_num = snapshot.highest_account_num();
+        retired_account_nums.addAll(snapshot.retired_account_nums());
+        snapshot.transactions().forEach((account_num, records) -> records.forEach(record ->
+                ledger.add(account_num, record)));
+
+        //The tail is read in log order, then applied by account in parallel
+        List<AccountEvent> tail = new ArrayList<>();
+        this.log = new EventLog(directory.resolve(LOG_FILE), snapshot.log_position(), snapshot.sequence(), tail::add);
+        int partitions = new EventReplayer(replay_threads).replay(tail, accounts);
+
+        for (AccountEvent event : tail) {
+
+            highest_account_num = Math.max(highest_account_num, event.account_num());
+            record(event);
+        }
+        for (AccountState account : accounts.values()) {
+
+            logins.put(account.login(), account.account_num());
+        }
+
+        snapshot_sequence = snapshot.sequence();
+        replay_result = new ReplayResult(snapshot.sequence(), snapshot.accounts().size(), tail.size(), partitions,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        //There is no database behind this manager; operations that only MySQL offers fail here
+        throw new SQLException("An event-sourced manager has no database connection");
+    }
+
+    private AccountEvent append(AccountEventType type, int account_num, int amount, int balance, String login,
+                                String pin, String holder, String status, String role) throws DatabaseException {
+
+        //Called with write_lock held. The event is on disk before the state changes
+        try {
+
+            AccountEvent event = log.append(type, account_num, amount, balance, login, pin, holder, status, role);
+            appended_events.increment();
+            record(event);
+
+            AccountState previous = accounts.get(account_num);
+            AccountState next = AccountState.fold(previous, event);
+            if (previous != null && (next == null || !previous.login().equals(next.login()))) {
+
+                logins.remove(previous.login());
+            }
+            if (next == null) {
+
+                accounts.remove(account_num);
+            }
+            else {
+
+                accounts.put(account_num, next);
+                logins.put(next.login(), account_num);
+            }
+
+            return event;
+        }
+        catch (IOException error) {
+
+            throw new DatabaseException("Error appending " + type + " event for account: " + account_num, error);
+        }
+    }
+
+    private void record(AccountEvent event) {
+
+        //What an event adds besides the account's state: a transaction for the ledger, or a number that is retired
+        if (event.type() == AccountEventType.DEPOSITED || event.type() == AccountEventType.WITHDRAWN) {
+
+            ledger.add(event.account_num(), new TransactionRecord(event.type() == AccountEventType.DEPOSITED ?
+                    TransactionType.DEPOSIT : TransactionType.WITHDRAWAL, event.amount(), event.balance(),
+                    AccountState.toDateTime(event.recorded_at())));
+        }
+        else if (event.type() == AccountEventType.ACCOUNT_DELETED) {
+
+            retired_account_nums.add(event.account_num());
+        }
+    }
+
+    private AccountState findByLogin(String login) {
+
+        Integer account_num = logins.get(login);
+        return account_num == null ? null : accounts.get(account_num);
+    }
+
+    @Override
+    public User getUser(String login) throws DatabaseException {
+
+        //As with the database, the user comes back with the stored hash; the pin is checked by the caller
+        AccountState account = findByLogin(login);
+        return account == null ? null : account.toUser();
+    }
+
+    @Override
+    public boolean replacePin(String login, String stored_pin, String new_stored_pin) throws DatabaseException {
+
+        //Only applies if the stored hash is still the one that was checked, as the database manager does
+        synchronized (write_lock) {
+
+            AccountState account = findByLogin(login);
+            if (account == null || !stored_pin.equals(account.pin())) {
+
+                return false;
+            }
+
+            append(AccountEventType.INFO_UPDATED, account.account_num(), 0, 0, null, new_stored_pin, null, null,
+                    null);
+            return true;
+        }
+    }
+
+    @Override
+    public User getUser(int account_num) throws DatabaseException {
+
+        AccountState account = accounts.get(account_num);
+        return account == null ? null : account.toUser();
+    }
+
+    @Override
+    public Account getAccount(int account_num) throws DatabaseException {
+
+        AccountState account = accounts.get(account_num);
+        return account == null ? null : account.toAccount();
+    }
+
+    @Override
+    public SessionContext loadSession(String login) throws DatabaseException {
+
+        //Withdrawal limits are kept in MySQL, so every account gets the defaults
+        AccountState account = findByLogin(login);
+        if (account == null) {
+
+            return null;
+        }
+
+        User user = account.toUser();
+        if (user instanceof Administrator) {
+
+            return new SessionContext(user, List.of(), null, 0);
+        }
+        if (!(user instanceof Customer)) {
+
+            return null;
+        }
+
+        return new SessionContext(user, account.recent_activity(), AccountLimits.DEFAULT, RECENT_ACTIVITY_LIMIT);
+    }
+
+    @Override
+    public int applyTransaction(int account_num, int new_balance, TransactionType type, int amount)
+            throws DatabaseException {
+
+        //The balance is worked out from the stored one rather than taken from the caller, who may have read it
+        //before another terminal's transaction. Returns the balance after, -1 if the account can't cover a
+        //withdrawal, or -2 if there is no such account, as DatabaseManager does
+        synchronized (write_lock) {
+
+            AccountState account = accounts.get(account_num);
+            if (account == null) {
+
+                return -2;
+            }
+
+            if (type == TransactionType.DEPOSIT) {
+
+                return append(AccountEventType.DEPOSITED, account_num, amount, account.balance() + amount,
+                        null, null, null, null, null).balance();
+            }
+            if (amount > account.balance()) {
+
+                return -1;
+            }
+
+            return append(AccountEventType.WITHDRAWN, account_num, amount, account.balance() - amount,
+                    null, null, null, null, null).balance();
+        }
+    }
+
+    @Override
+    public int createNewAccount(String login, String stored_pin, String holder, int balance, String status)
+            throws DatabaseException {
+
+        synchronized (write_lock) {
+
+            return create(highest_account_num + 1, login, stored_pin, holder, balance, status, "Customer");
+        }
+    }
+
+    @Override
+    public int createNewAccount(int account_num, String login, String stored_pin, String holder, int balance,
+                                String status) throws DatabaseException {
+
+        synchronized (write_lock) {
+
+            return create(account_num, login, stored_pin, holder, balance, status, "Customer");
+        }
+    }
+
+    @Override
+    public int[] createNewAccounts(List<NewAccount> new_accounts) throws DatabaseException {
+
+        //The pins arrive already hashed, as they do for the database
+        int[] results = new int[new_accounts.size()];
+        synchronized (write_lock) {
+
+            for (int i = 0; i < results.length; i++) {
+
+                NewAccount account = new_accounts.get(i);
+                results[i] = create(account.account_num(), account.login(), account.pin(), account.holder(),
+                        account.balance(), account.status(), "Customer");
+            }
+        }
+
+        return results;
+    }
+
+    public int createAdministrator(String login, String stored_pin) throws DatabaseException {
+
+        //Administrators are not created from the menus, so a store that did not start from a database (see
+        //importFrom()) needs its first one made here
+        synchronized (write_lock) {
+
+            return create(highest_account_num + 1, login, stored_pin, null, 0, null, "Admin");
+        }
+    }
+
+    private int create(int account_num, String login, String stored_pin, String holder, int balance, String status,
+                       String role) throws DatabaseException {
+
+        //Called with write_lock held. Returns -2 for a login or number that is already taken (or was, by an account
+        //since deleted), like a duplicate key
+        if (account_num < 1) {
+
+            return -1;
+        }
+        if (logins.containsKey(login) || accounts.containsKey(account_num) ||
+                retired_account_nums.contains(account_num)) {
+
+            return -2;
+        }
+
+        append(AccountEventType.ACCOUNT_CREATED, account_num, 0, balance, login, stored_pin, holder, status, role);
+        highest_account_num = Math.max(highest_account_num, account_num);
+        return account_num;
+    }
+
+    public int importFrom(DatabaseManager source) throws DatabaseException {
+
+        //Copies every account of another manager (the MySQL one, on the first start of an event-sourced host) into
+        //this store as created events, with their stored PIN hashes and current balances. Accounts this store
+        //already has are left alone; returns the number copied
+        List<Integer> account_numbers = new ArrayList<>();
+        source.scanAccountKeys((account_num, login) -> account_numbers.add(account_num));
+
+        int imported = 0;
+        for (int account_num : account_numbers) {
+
+            User user = source.getUser(account_num);
+            synchronized (write_lock) {
+
+                int result = -1;
+                if (user instanceof Customer customer) {
+
+                    Account account = customer.getAccount();
+                    result = create(account_num, customer.getLogin(), customer.getPin(), account.getHolderName(),
+                            account.getBalance(), account.getStatus(), "Customer");
+                }
+                else if (user instanceof Administrator administrator) {
+
+                    result = create(account_num, administrator.getLogin(), administrator.getPin(), null, 0, null,
+                            "Admin");
+                }
+
+                if (result > 0) {
+
+                    imported++;
+                }
+            }
+        }
+
+        return imported;
+    }
+
+    @Override
+    public long reserveBlock(int block_size) {
+
+        //Numbers reserved but never used are simply skipped; the highest number is only remembered once an account
+        //has it, so after a restart an unused block may be handed out again, which is harmless
+        synchronized (write_lock) {
+
+            long first = highest_account_num + 1L;
+            highest_account_num += block_size;
+            return first;
+        }
+    }
+
+    @Override
+    public void deleteAccount(int account_num) throws DatabaseException {
+
+        synchronized (write_lock) {
+
+            if (accounts.containsKey(account_num)) {
+
+                append(AccountEventType.ACCOUNT_DELETED, account_num, 0, 0, null, null, null, null, null);
+            }
+        }
+    }
+
+    @Override
+    public boolean updateAccountInfo(int account_num, String new_holder,
+                                     String new_status, String new_login, String new_pin) throws DatabaseException {
+
+        //Empty fields stay as they are, and only the changed ones are recorded in the event. A new pin arrives
+        //already hashed
+        String stored_pin = new_pin.isEmpty() ? null : new_pin;
+        synchronized (write_lock) {
+
+            AccountState account = accounts.get(account_num);
+            if (account == null) {
+
+                return false;
+            }
+
+            Integer owner = new_login.isEmpty() ? null : logins.get(new_login);
+            if (owner != null && owner != account_num) {
+
+                throw new DatabaseException("Error updating account info",
+                        new SQLException("Login already in use: " + new_login));
+            }
+
+            append(AccountEventType.INFO_UPDATED, account_num, 0, 0, new_login.isEmpty() ? null : new_login,
+                    stored_pin, new_holder.isEmpty() ? null : new_holder, new_status.isEmpty() ? null : new_status,
+                    null);
+            return true;
+        }
+    }
+
+    @Override
+    public Map<Integer, Account> getAccounts(int[] account_nums) {
+
+        Map<Integer, Account> found = new HashMap<>();
+        for (int account_num : account_nums) {
+
+            AccountState account = accounts.get(account_num);
+            if (account != null) {
+
+                found.put(account_num, account.toAccount());
+            }
+        }
+
+        return found;
+    }
+
+    @Override
+    public int[] updateAccounts(int[] account_nums, String new_holder, String new_status) {
+
+        //One info-updated event per account, with the same results as the database: 1 updated, 0 no such account,
+        //-1 if its event could not be written
+        if (new_holder.isEmpty() && new_status.isEmpty()) {
+
+            throw new IllegalArgumentException("Nothing to update");
+        }
+
+        int[] results = new int[account_nums.length];
+        synchronized (write_lock) {
+
+            for (int i = 0; i < account_nums.length; i++) {
+
+                if (!accounts.containsKey(account_nums[i])) {
+
+                    continue;
+                }
+
+                try {
+
+                    append(AccountEventType.INFO_UPDATED, account_nums[i], 0, 0, null, null,
+                            new_holder.isEmpty() ? null : new_holder, new_status.isEmpty() ? null : new_status, null);
+                    results[i] = 1;
+                }
+                catch (DatabaseException error) {
+
+                    results[i] = -1;
+                }
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    public List<Account> getAllAccounts() {
+
+        return accounts.values().stream().filter(AccountState::isCustomer)
+                .sorted(Comparator.comparingInt(AccountState::account_num)).map(AccountState::toAccount).toList();
+    }
+
+    @Override
+    public boolean loginExists(String login) {
+
+        return logins.containsKey(login);
+    }
+
+    @Override
+    public int scanAccountKeys(AccountKeyConsumer consumer) {
+
+        int scanned = 0;
+        for (AccountState account : accounts.values()) {
+
+            consumer.accept(account.account_num(), account.login());
+            scanned++;
+        }
+
+        return scanned;
+    }
+
+    @Override
+    public int scanAccounts(AccountConsumer consumer) {
+
+        int scanned = 0;
+        for (AccountState account : accounts.values()) {
+
+            if (account.isCustomer()) {
+
+                consumer.accept(account.account_num(), account.holder(), account.balance(), account.status());
+                scanned++;
+            }
+        }
+
+        return scanned;
+    }
+
+    @Override
+    public List<TransactionRecord> getTransactionHistory(int account_num, LocalDateTime from, LocalDateTime to) {
+
+        //Newest first, from <= time < to. Transactions of an earlier account with the same number can't exist,
+        //since numbers are never reused
+        return ledger.getHistory(account_num, from, to);
+    }
+
+    @Override
+    public List<ActivitySummary> getActivitySummaries(int account_num, RollupPeriod period, LocalDate from,
+                                                      LocalDate to) {
+
+        //The same figures the rollup tables hold, oldest period first
+        return ledger.getSummaries(account_num, period, from, to);
+    }
+
+    @Override
+    public List<ActivityTotals> getActivityTotals(RollupPeriod period, LocalDate from, LocalDate to) {
+
+        return ledger.getTotals(period, from, to);
+    }
+
+    public StateSnapshot snapshot() throws IOException {
+
+        //The states and the ledger's views are immutable, so copying the maps under the write lock is enough to get
+        //a consistent view; the file is then written without holding up any writer
+        synchronized (snapshot_lock) {
+
+            StateSnapshot snapshot;
+            synchronized (write_lock) {
+
+                snapshot = new StateSnapshot(log.getLastSequence(), log.getPosition(), highest_account_num,
+                        List.copyOf(accounts.values()), Set.copyOf(retired_account_nums), ledger.getTransactions());
+            }
+
+            //Nothing has happened since the last one
+            if (snapshot.sequence() == snapshot_sequence && Files.exists(snapshot_path)) {
+
+                return snapshot;
+            }
+
+            snapshot.write(snapshot_path);
+            snapshot_sequence = snapshot.sequence();
+            snapshots_written.increment();
+
+            return snapshot;
+        }
+    }
+
+    public void start(long interval_ms) {
+
+        //A single background thread snapshots every interval_ms, which bounds how much of the log the next start
+        //has to replay
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+
+            Thread thread = new Thread(runnable, "event-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        executor.scheduleWithFixedDelay(() -> {
+
+            try {
+
+                snapshot();
+            }
+            catch (IOException error) {
+
+                //The previous snapshot stays in place; the next start only replays more of the log
+                failed_snapshots.increment();
+            }
+        }, interval_ms, interval_ms, TimeUnit.MILLISECONDS);
+    }
+
+    public ReplayResult getReplayResult() {
+
+        return replay_result;
+    }
+
+    public int getAccountCount() {
+
+        return accounts.size();
+    }
+
+    public long getLastSequence() {
+
+        return log.getLastSequence();
+    }
+
+    public long getSnapshotSequence() {
+
+        return snapshot_sequence;
+    }
+
+    public long getAppendedEvents() {
+
+        return appended_events.sum();
+    }
+
+    public long getSnapshotsWritten() {
+
+        return snapshots_written.sum();
+    }
+
+    public long getFailedSnapshots() {
+
+        return failed_snapshots.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        //A final snapshot means the next start replays nothing
+        if (executor != null) {
+
+            executor.shutdownNow();
+        }
+
+        snapshot();
+        log.close();
+    }
+}
@@ -0,0 +1,12 @@
+package repository.eventsource;
+
+//How an event-sourced store was rebuilt at startup: the snapshot it started from (sequence 0 and no accounts if
+//there was none), and the events after it that were replayed on top
+public record ReplayResult(long snapshot_sequence, int snapshot_accounts, long events_replayed, int partitions,
+                           long duration_ms) {
+
+    public double getEventsPerSecond() {
+
+        return duration_ms == 0 ? events_replayed * 1000.0 : events_replayed * 1000.0 / duration_ms;
+    }
+}
@@ -0,0 +1,240 @@
+package repository.eventsource;
+
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+//Every account's state as of one event of the log: sequence is the last event it includes, and log_position is
+//where the next one starts, so a restart reads the log from there instead of from the beginning.
+//highest_account_num is the highest number handed out so far, and retired_account_nums are the numbers of deleted
+//accounts, so numbers are never reused. transactions holds every account's deposits and withdrawals, oldest first
+//(deleted accounts included), which the history and rollups are rebuilt from without reading the log.
+//The file is a header (magic, version, sequence, position, highest number, count), the states, the retired
+//numbers, the transactions, and a CRC32 of everything before it. Like the hot account snapshot, it is written to a
+//temporary file that then replaces the old one. A snapshot of an older version is not read; the whole log is
+//replayed instead
+public record StateSnapshot(long sequence, long log_position, int highest_account_num, List<AccountState> accounts,
+                            Set<Integer> retired_account_nums, Map<Integer, List<TransactionRecord>> transactions) {
+
+    public static final StateSnapshot EMPTY = new StateSnapshot(0, 0, 0, List.of(), Set.of(), Map.of());
+
+    static final int MAGIC = 0x45565453;
+    static final int VERSION = 2;
+
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+
+
+    public void write(Path path) throws IOException {
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16),
+                    new CRC32());
+            DataOutputStream output = new DataOutputStream(checked);
+
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(sequence);
+            output.writeLong(log_position);
+            output.writeInt(highest_account_num);
+            output.writeInt(accounts.size());
+            for (AccountState account : accounts) {
+
+                writeState(output, account);
+            }
+
+            output.writeInt(retired_account_nums.size());
+            for (int account_num : retired_account_nums) {
+
+                output.writeInt(account_num);
+            }
+
+            output.writeInt(transactions.size());
+            for (Map.Entry<Integer, List<TransactionRecord>> account : transactions.entrySet()) {
+
+                output.writeInt(account.getKey());
+                output.writeInt(account.getValue().size());
+                for (TransactionRecord record : account.getValue()) {
+
+                    writeRecord(output, record);
+                }
+            }
+
+            output.flush();
+            output.writeInt((int) checked.getChecksum().getValue());
+            output.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeState(DataOutputStream output, AccountState account) throws IOException {
+
+        output.writeInt(account.account_num());
+        output.writeInt(account.balance());
+        for (String field : new String[] {account.login(), account.pin(), account.holder(), account.status(),
+                account.role()}) {
+
+            //Administrators have no holder or status
+            output.writeBoolean(field != null);
+            if (field != null) {
+
+                output.writeUTF(field);
+            }
+        }
+
+        output.writeByte(account.recent_activity().size());
+        for (TransactionRecord record : account.recent_activity()) {
+
+            writeRecord(output, record);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream output, TransactionRecord record) throws IOException {
+
+        output.writeByte(record.type().ordinal());
+        output.writeInt(record.amount());
+        output.writeInt(record.balance_after());
+        output.writeLong(record.timestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    public static StateSnapshot read(Path path) throws IOException {
+
+        //A store that has never written a snapshot replays its whole log
+        InputStream file;
+        try {
+
+            file = Files.newInputStream(path);
+        }
+        catch (NoSuchFileException error) {
+
+            return EMPTY;
+        }
+
+        try (CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file, 1 << 16),
+                new CRC32());
+             DataInputStream input = new DataInputStream(checked)) {
+
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+
+                throw new IOException("Not an account state snapshot: " + path);
+            }
+
+            long sequence = input.readLong();
+            long log_position = input.readLong();
+            int highest_account_num = input.readInt();
+            int count = input.readInt();
+            if (sequence < 0 || log_position < 0 || count < 0) {
+
+                throw new IOException("Account state snapshot is corrupt: " + path);
+            }
+
+            List<AccountState> accounts = new ArrayList<>(Math.min(count, 1 << 20));
+            for (int i = 0; i < count; i++) {
+
+                accounts.add(readState(input));
+            }
+
+            int retired_count = readCount(input, path);
+            Set<Integer> retired_account_nums = new HashSet<>();
+            for (int i = 0; i < retired_count; i++) {
+
+                retired_account_nums.add(input.readInt());
+            }
+
+            int ledger_count = readCount(input, path);
+            Map<Integer, List<TransactionRecord>> transactions = new HashMap<>();
+            for (int i = 0; i < ledger_count; i++) {
+
+                int account_num = input.readInt();
+                int record_count = readCount(input, path);
+                List<TransactionRecord> records = new ArrayList<>(Math.min(record_count, 1 << 16));
+                for (int j = 0; j < record_count; j++) {
+
+                    records.add(readRecord(input));
+                }
+                transactions.put(account_num, records);
+            }
+
+            int expected_crc = (int) checked.getChecksum().getValue();
+            if (input.readInt() != expected_crc) {
+
+                throw new IOException("Account state snapshot fails its checksum: " + path);
+            }
+
+            return new StateSnapshot(sequence, log_position, highest_account_num, accounts, retired_account_nums,
+                    transactions);
+        }
+        catch (EOFException error) {
+
+            throw new IOException("Account state snapshot is truncated: " + path, error);
+        }
+    }
+
+    private static AccountState readState(DataInputStream input) throws IOException {
+
+        int account_num = input.readInt();
+        int balance = input.readInt();
+        String[] fields = new String[5];
+        for (int i = 0; i < fields.length; i++) {
+
+            fields[i] = input.readBoolean() ? input.readUTF() : null;
+        }
+
+        int activity_count = input.readUnsignedByte();
+        List<TransactionRecord> recent_activity = new ArrayList<>(activity_count);
+        for (int i = 0; i < activity_count; i++) {
+
+            recent_activity.add(readRecord(input));
+        }
+
+        return new AccountState(account_num, fields[0], fields[1], fields[2], balance, fields[3], fields[4],
+                List.copyOf(recent_activity));
+    }
+
+    private static TransactionRecord readRecord(DataInputStream input) throws IOException {
+
+        int type = input.readUnsignedByte();
+        if (type >= TRANSACTION_TYPES.length) {
+
+            throw new IOException("Unknown transaction type in snapshot: " + type);
+        }
+
+        return new TransactionRecord(TRANSACTION_TYPES[type], input.readInt(), input.readInt(),
+                AccountState.toDateTime(input.readLong()));
+    }
+
+    private static int readCount(DataInputStream input, Path path) throws IOException {
+
+        int count = input.readInt();
+        if (count < 0) {
+
+            throw new IOException("Account state snapshot is corrupt: " + path);
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,10 @@
+package repository.exception;
+
+//Thrown instead of running a query while the circuit breaker considers the database unhealthy
+public class CircuitOpenException extends DatabaseException {
+
+    public CircuitOpenException(String message) {
+
+        super(message, null);
+    }
+}
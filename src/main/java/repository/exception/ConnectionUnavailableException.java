@@ -0,0 +1,10 @@
+package repository.exception;
+
+//Thrown when no connection to the database could be opened, so nothing was sent and nothing can have been applied
+public class ConnectionUnavailableException extends DatabaseException {
+
+    public ConnectionUnavailableException(String message, Throwable cause) {
+
+        super(message, cause);
+    }
+}
@@ -0,0 +1,10 @@
+package repository.exception;
+
+//Thrown instead of running a query when the database is already handling as much work as it can for this priority
+public class LimitExceededException extends DatabaseException {
+
+    public LimitExceededException(String message) {
+
+        super(message, null);
+    }
+}
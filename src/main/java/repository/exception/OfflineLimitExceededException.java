@@ -0,0 +1,18 @@
+package repository.exception;
+
+//Thrown instead of recording a withdrawal offline when it would take the account past its offline limit
+public class OfflineLimitExceededException extends DatabaseException {
+
+    private final int remaining;
+
+    public OfflineLimitExceededException(String message, int remaining) {
+
+        super(message, null);
+        this.remaining = remaining;
+    }
+
+    public int getRemaining() {
+
+        return remaining;
+    }
+}
@@ -0,0 +1,113 @@
+package repository.hotspot;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class CountMinSketch {
+
+    //Counts how often each key was seen in a fixed amount of memory, whatever the number of keys. There are depth
+    //rows of width counters; a key adds to one counter in every row, chosen by hashing. Other keys can share a
+    //counter, so each row overcounts and the smallest of a key's counters is the estimate. With
+    //width = e / epsilon and depth = ln(1 / delta), the estimate exceeds the true count by more than
+    //epsilon * (everything added) with probability at most delta, and it is never below the true count
+
+    private final AtomicLongArray counters;
+    private final int width;
+    private final int depth;
+
+    public CountMinSketch(double epsilon, double delta) {
+
+        this(dimension(Math.E / epsilon, epsilon), dimension(Math.log(1 / delta), delta));
+    }
+
+    public CountMinSketch(int width, int depth) {
+
+        if (width < 1 || depth < 1) {
+
+            throw new IllegalArgumentException("Width and depth must be at least 1");
+        }
+
+        this.width = width;
+        this.depth = depth;
+        this.counters = new AtomicLongArray(Math.multiplyExact(width, depth));
+    }
+
+
+    private static int dimension(double size, double rate) {
+
+        if (rate <= 0 || rate >= 1) {
+
+            throw new IllegalArgumentException("Error rate and failure probability must be between 0 and 1");
+        }
+
+        return (int) Math.max(1, Math.ceil(size));
+    }
+
+    private int index(long hash, int row) {
+
+        //The rows' positions come from the two halves of one 64-bit hash, as in CountingBloomFilter
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        return row * width + (int) Math.floorMod(first + (long) row * second, (long) width);
+    }
+
+    public void add(long hash, long count) {
+
+        for (int row = 0; row < depth; row++) {
+
+            counters.addAndGet(index(hash, row), count);
+        }
+    }
+
+    public long estimate(long hash) {
+
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+
+        return estimate;
+    }
+
+    public void subtract(CountMinSketch other) {
+
+        //Sketches of the same size add and subtract counter by counter, so a window's sketch can drop an expired
+        //slice by subtracting that slice's sketch
+        if (other.width != width || other.depth != depth) {
+
+            throw new IllegalArgumentException("Only sketches of the same size can be subtracted");
+        }
+
+        for (int i = 0; i < counters.length(); i++) {
+
+            long count = other.counters.get(i);
+            if (count != 0) {
+
+                counters.addAndGet(i, -count);
+            }
+        }
+    }
+
+    public void clear() {
+
+        for (int i = 0; i < counters.length(); i++) {
+
+            counters.set(i, 0);
+        }
+    }
+
+    public int getWidth() {
+
+        return width;
+    }
+
+    public int getDepth() {
+
+        return depth;
+    }
+
+    public long getMemoryBytes() {
+
+        return (long) counters.length() * Long.BYTES;
+    }
+}
@@ -0,0 +1,260 @@
+package repository.hotspot;
+
+import model.account.HotAccount;
+import repository.bloom.CountingBloomFilter;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class HeavyHitterTracker {
+
+    //Finds the k most used accounts over the last window_ms without keeping a count per account. The window is cut
+    //into slices, each with its own count-min sketch, and one more sketch holds the sum of the slices. A use is
+    //added to the current slice and to the sum; when a slice falls out of the window it is subtracted from the sum
+    //and cleared for reuse. The sum's estimate of an account is its count over the window.
+    //Alongside, a min-heap holds the k accounts with the highest estimates seen so far. An account only needs the
+    //heap's lock if its estimate reaches the smallest one in the heap, so most uses never take it
+
+    private static final Comparator<HotAccount> COOLEST_FIRST =
+            Comparator.comparingLong(HotAccount::estimated_count).thenComparingInt(HotAccount::account_num);
+
+    private final int k;
+    private final long slice_ms;
+    private final Clock clock;
+
+    private final CountMinSketch[] slices;
+    private final CountMinSketch window;
+    private volatile long current_slice;
+
+    //Uses are added under the read lock, so any number can be added at once; moving the window takes the write lock
+    private final ReadWriteLock window_lock = new ReentrantReadWriteLock();
+
+    private final PriorityQueue<HotAccount> heap = new PriorityQueue<>(COOLEST_FIRST);
+    private final Map<Integer, HotAccount> in_heap = new HashMap<>();
+
+    //The estimate an account must reach to get into a full heap; 0 while the heap has room
+    private volatile long admission_threshold;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder heap_updates = new LongAdder();
+
+    public HeavyHitterTracker(int k, double epsilon, double delta, long window_ms, int slice_count) {
+
+        this(k, epsilon, delta, window_ms, slice_count, Clock.systemDefaultZone());
+    }
+
+    public HeavyHitterTracker(int k, double epsilon, double delta, long window_ms, int slice_count, Clock clock) {
+
+        if (k < 1 || slice_count < 1 || window_ms < slice_count) {
+
+            throw new IllegalArgumentException("k and the slice count must be at least 1, and every slice at least 1ms");
+        }
+
+        this.k = k;
+        this.slice_ms = window_ms / slice_count;
+        this.clock = clock;
+
+        this.slices = new CountMinSketch[slice_count];
+        for (int i = 0; i < slice_count; i++) {
+
+            slices[i] = new CountMinSketch(epsilon, delta);
+        }
+        this.window = new CountMinSketch(epsilon, delta);
+        this.current_slice = clock.millis() / slice_ms;
+    }
+
+
+    public void record(int account_num) {
+
+        advance();
+
+        long hash = CountingBloomFilter.hash(account_num);
+        long estimate;
+
+        window_lock.readLock().lock();
+        try {
+
+            slices[(int) (current_slice % slices.length)].add(hash, 1);
+            window.add(hash, 1);
+            estimate = window.estimate(hash);
+        }
+        finally {
+
+            window_lock.readLock().unlock();
+        }
+        recorded.increment();
+
+        //An account already in the heap only gains, so it always passes; any other account must beat the coolest
+        if (estimate >= admission_threshold) {
+
+            offer(account_num, estimate);
+        }
+    }
+
+    private void offer(int account_num, long estimate) {
+
+        synchronized (heap) {
+
+            HotAccount current = in_heap.get(account_num);
+            if (current != null) {
+
+                if (estimate <= current.estimated_count()) {
+
+                    return;
+                }
+                heap.remove(current);
+            }
+            else if (heap.size() == k) {
+
+                if (estimate <= heap.peek().estimated_count()) {
+
+                    return;
+                }
+                in_heap.remove(heap.poll().account_num());
+            }
+
+            HotAccount updated = new HotAccount(account_num, estimate);
+            heap.add(updated);
+            in_heap.put(account_num, updated);
+            heap_updates.increment();
+
+            admission_threshold = heap.size() == k ? heap.peek().estimated_count() : 0;
+        }
+    }
+
+    private void advance() {
+
+        //Moves the window up to the present, dropping every slice that has fallen out of it. Nothing is done until
+        //a use or a read arrives, so an idle tracker costs nothing
+        long now_slice = clock.millis() / slice_ms;
+        if (now_slice <= current_slice) {
+
+            return;
+        }
+
+        window_lock.writeLock().lock();
+        try {
+
+            if (now_slice <= current_slice) {
+
+                return;
+            }
+
+            if (now_slice - current_slice >= slices.length) {
+
+                //The whole window has passed
+                for (CountMinSketch slice : slices) {
+
+                    slice.clear();
+                }
+                window.clear();
+            }
+            else {
+
+                for (long slice = current_slice + 1; slice <= now_slice; slice++) {
+
+                    CountMinSketch expired = slices[(int) (slice % slices.length)];
+                    window.subtract(expired);
+                    expired.clear();
+                }
+            }
+            current_slice = now_slice;
+
+            //The heap's counts are rescored against the smaller window; accounts with nothing left in it go
+            rescore();
+        }
+        finally {
+
+            window_lock.writeLock().unlock();
+        }
+    }
+
+    private void rescore() {
+
+        synchronized (heap) {
+
+            List<HotAccount> rescored = new ArrayList<>();
+            for (HotAccount account : heap) {
+
+                long estimate = window.estimate(CountingBloomFilter.hash(account.account_num()));
+                if (estimate > 0) {
+
+                    rescored.add(new HotAccount(account.account_num(), estimate));
+                }
+            }
+
+            heap.clear();
+            in_heap.clear();
+            for (HotAccount account : rescored) {
+
+                heap.add(account);
+                in_heap.put(account.account_num(), account);
+            }
+
+            admission_threshold = heap.size() == k ? heap.peek().estimated_count() : 0;
+        }
+    }
+
+    public List<HotAccount> getTopK() {
+
+        //The hottest first
+        advance();
+
+        List<HotAccount> top;
+        synchronized (heap) {
+
+            top = new ArrayList<>(heap);
+        }
+        top.sort(COOLEST_FIRST.reversed());
+
+        return top;
+    }
+
+    public long estimate(int account_num) {
+
+        advance();
+
+        window_lock.readLock().lock();
+        try {
+
+            return window.estimate(CountingBloomFilter.hash(account_num));
+        }
+        finally {
+
+            window_lock.readLock().unlock();
+        }
+    }
+
+    public int getK() {
+
+        return k;
+    }
+
+    public long getWindowMs() {
+
+        return slice_ms * slices.length;
+    }
+
+    public long getRecordedCount() {
+
+        return recorded.sum();
+    }
+
+    public long getHeapUpdates() {
+
+        return heap_updates.sum();
+    }
+
+    public long getMemoryBytes() {
+
+        return window.getMemoryBytes() * (slices.length + 1);
+    }
+}
@@ -0,0 +1,148 @@
+package repository.hotspot;
+
+import model.account.Account;
+import model.session.SessionContext;
+import model.transaction.ActivitySummary;
+import model.transaction.RollupPeriod;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+import model.user.Customer;
+import model.user.User;
+import repository.DatabaseManager;
+import repository.ForwardingDatabaseManager;
+import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+import repository.offline.ReplayOutcome;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class HotAccountDatabaseManager extends ForwardingDatabaseManager {
+
+    //Records every call that reads or changes one account in a HeavyHitterTracker, before handing it on. A call
+    //counts even if it fails, since it was load all the same. Logins name no account, so they count once the
+    //database has said which account they belong to
+
+    private final HeavyHitterTracker tracker;
+
+    public HotAccountDatabaseManager(DatabaseManager delegate, HeavyHitterTracker tracker) {
+
+        super(delegate);
+        this.tracker = tracker;
+    }
+
+
+    private void recordUser(User user) {
+
+        if (user instanceof Customer customer && customer.getAccount() != null) {
+
+            tracker.record(customer.getAccount().getAccountNumber());
+        }
+    }
+
+    @Override
+    public User getUser(String login) throws DatabaseException {
+
+        User user = super.getUser(login);
+        recordUser(user);
+
+        return user;
+    }
+
+    @Override
+    public User getUser(int account_num) throws DatabaseException {
+
+        tracker.record(account_num);
+        return super.getUser(account_num);
+    }
+
+    @Override
+    public Account getAccount(int account_num) throws DatabaseException {
+
+        tracker.record(account_num);
+        return super.getAccount(account_num);
+    }
+
+    @Override
+    public void updateAccountBalance(int account_num, int new_balance) throws DatabaseException {
+
+        tracker.record(account_num);
+        super.updateAccountBalance(account_num, new_balance);
+    }
+
+    @Override
+    public void deleteAccount(int account_num) throws DatabaseException {
+
+        tracker.record(account_num);
+        super.deleteAccount(account_num);
+    }
+
+    @Override
+    public boolean updateAccountInfo(int account_num, String new_holder,
+                                     String new_status, String new_login, String new_pin) throws DatabaseException {
+
+        tracker.record(account_num);
+        return super.updateAccountInfo(account_num, new_holder, new_status, new_login, new_pin);
+    }
+
+    @Override
+    public SessionContext loadSession(String login) throws DatabaseException {
+
+        SessionContext session = super.loadSession(login);
+        if (session != null) {
+
+            recordUser(session.getUser());
+        }
+
+        return session;
+    }
+
+    @Override
+    public int applyTransaction(int account_num, int new_balance, TransactionType type, int amount)
+            throws DatabaseException {
+
+        tracker.record(account_num);
+        return super.applyTransaction(account_num, new_balance, type, amount);
+    }
+
+    @Override
+    public int enableSubBalances(int account_num, int slot_count) throws DatabaseException {
+
+        tracker.record(account_num);
+        return super.enableSubBalances(account_num, slot_count);
+    }
+
+    @Override
+    public ReplayOutcome[] applyJournalEntries(String terminal_id, List<JournalEntry> entries)
+            throws DatabaseException {
+
+        for (JournalEntry entry : entries) {
+
+            tracker.record(entry.account_num());
+        }
+
+        return super.applyJournalEntries(terminal_id, entries);
+    }
+
+    @Override
+    public List<TransactionRecord> getTransactionHistory(int account_num, LocalDateTime from, LocalDateTime to)
+            throws DatabaseException {
+
+        tracker.record(account_num);
+        return super.getTransactionHistory(account_num, from, to);
+    }
+
+    @Override
+    public List<ActivitySummary> getActivitySummaries(int account_num, RollupPeriod period, LocalDate from,
+                                                      LocalDate to) throws DatabaseException {
+
+        tracker.record(account_num);
+        return super.getActivitySummaries(account_num, period, from, to);
+    }
+
+    public HeavyHitterTracker getTracker() {
+
+        return tracker;
+    }
+}
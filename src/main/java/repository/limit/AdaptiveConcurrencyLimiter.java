@@ -0,0 +1,133 @@
+package repository.limit;
+
+import repository.WorkPriority;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveConcurrencyLimiter {
+
+    //Share of the current limit each priority may fill. Once admin work fills 75% of the limit (or batch work 50%),
+    //further calls of that priority are turned away, keeping the rest free for customers
+    private static final Map<WorkPriority, Double> SHARE_OF_LIMIT = new EnumMap<>(Map.of(
+            WorkPriority.CUSTOMER, 1.0,
+            WorkPriority.ADMIN, 0.75,
+            WorkPriority.BATCH, 0.5));
+
+    //On a slow or failed call the limit is cut by this factor; on a fast one it grows by 1 / limit (AIMD)
+    private static final double BACKOFF_FACTOR = 0.9;
+
+    private final int min_limit;
+    private final int max_limit;
+    private final long latency_target_nanos;
+    private final long customer_wait_nanos;
+
+    private double limit;
+    private int in_flight = 0;
+    private final Map<WorkPriority, Long> admitted = new EnumMap<>(WorkPriority.class);
+    private final Map<WorkPriority, Long> rejected = new EnumMap<>(WorkPriority.class);
+
+    public AdaptiveConcurrencyLimiter(int initial_limit, int min_limit, int max_limit,
+                                      long latency_target_ms, long customer_wait_ms) {
+
+        if (min_limit < 1 || initial_limit < min_limit || max_limit < initial_limit) {
+
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+
+        this.limit = initial_limit;
+        this.min_limit = min_limit;
+        this.max_limit = max_limit;
+        this.latency_target_nanos = TimeUnit.MILLISECONDS.toNanos(latency_target_ms);
+        this.customer_wait_nanos = TimeUnit.MILLISECONDS.toNanos(customer_wait_ms);
+
+        for (WorkPriority priority : WorkPriority.values()) {
+
+            admitted.put(priority, 0L);
+            rejected.put(priority, 0L);
+        }
+    }
+
+
+    public synchronized boolean acquire(WorkPriority priority) throws InterruptedException {
+
+        long deadline = System.nanoTime() + customer_wait_nanos;
+
+        //Customer calls wait a short while for a slot to open up; admin and batch calls are turned away at once
+        while (in_flight >= capacityFor(priority)) {
+
+            long remaining = deadline - System.nanoTime();
+            if (priority != WorkPriority.CUSTOMER || remaining <= 0) {
+
+                rejected.merge(priority, 1L, Long::sum);
+                return false;
+            }
+
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+
+        in_flight++;
+        admitted.merge(priority, 1L, Long::sum);
+        return true;
+    }
+
+    public synchronized void release(long latency_nanos, boolean overloaded) {
+
+        in_flight--;
+
+        //A call slower than the target (or one that failed because the database was overwhelmed) means the
+        //database has more work than it can handle, so the limit is cut back
+        if (overloaded || latency_nanos > latency_target_nanos) {
+
+            limit = Math.max(min_limit, limit * BACKOFF_FACTOR);
+        }
+        //A fast call only raises the limit if the limit was actually being used; otherwise an idle period would
+        //let it creep up to the maximum without ever being tested
+        else if (in_flight + 1 >= limit / 2) {
+
+            limit = Math.min(max_limit, limit + 1.0 / limit);
+        }
+
+        notifyAll();
+    }
+
+    int capacityFor(WorkPriority priority) {
+
+        return Math.max(1, (int) (limit * SHARE_OF_LIMIT.get(priority)));
+    }
+
+    public synchronized int getLimit() {
+
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+
+        return in_flight;
+    }
+
+    public synchronized long getAdmittedCount(WorkPriority priority) {
+
+        return admitted.get(priority);
+    }
+
+    public synchronized long getRejectedCount(WorkPriority priority) {
+
+        return rejected.get(priority);
+    }
+
+    public synchronized double getRejectionRate() {
+
+        long total_admitted = 0;
+        long total_rejected = 0;
+        for (WorkPriority priority : WorkPriority.values()) {
+
+            total_admitted += admitted.get(priority);
+            total_rejected += rejected.get(priority);
+        }
+
+        long total = total_admitted + total_rejected;
+        return total == 0 ? 0.0 : (double) total_rejected / total;
+    }
+}
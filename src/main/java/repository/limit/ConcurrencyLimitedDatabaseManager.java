@@ -0,0 +1,67 @@
+package repository.limit;
+
+import repository.DatabaseCall;
+import repository.DatabaseManager;
+import repository.DatabaseOperation;
+import repository.ForwardingDatabaseManager;
+import repository.exception.DatabaseException;
+import repository.exception.LimitExceededException;
+import repository.resilience.FailureKind;
+import repository.resilience.SqlStateClassifier;
+
+public class ConcurrencyLimitedDatabaseManager extends ForwardingDatabaseManager {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedDatabaseManager(DatabaseManager delegate, AdaptiveConcurrencyLimiter limiter) {
+
+        super(delegate);
+        this.limiter = limiter;
+    }
+
+
+    @Override
+    protected <T> T invoke(DatabaseOperation operation, DatabaseCall<T> call) throws DatabaseException {
+
+        boolean admitted;
+
+        try {
+
+            admitted = limiter.acquire(operation.getPriority());
+        }
+        catch (InterruptedException error) {
+
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while waiting for the database", error);
+        }
+
+        if (!admitted) {
+
+            throw new LimitExceededException("The database is busy; " + operation + " was turned away");
+        }
+
+        //Every admitted call reports how long it took, which is what the limiter adapts to
+        long start = System.nanoTime();
+        boolean overloaded = false;
+
+        try {
+
+            return call.call();
+        }
+        catch (DatabaseException error) {
+
+            //Timeouts and dropped connections are treated as signs of overload; a duplicate key is not
+            overloaded = SqlStateClassifier.classify(error) == FailureKind.TRANSIENT;
+            throw error;
+        }
+        finally {
+
+            limiter.release(System.nanoTime() - start, overloaded);
+        }
+    }
+
+    public AdaptiveConcurrencyLimiter getLimiter() {
+
+        return limiter;
+    }
+}
@@ -0,0 +1,220 @@
+package repository.migration;
+
+import repository.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+import static repository.migration.Migration.createIndex;
+import static repository.migration.Migration.createTable;
+import static repository.migration.Migration.execute;
+
+public final class AtmSchema {
+
+    //Migrations are never edited once released; a schema change is always a new migration with the next version
+
+    public static final IndexDefinition ACCOUNTS_LOGIN = new IndexDefinition(
+            "accounts", "ux_accounts_login", true, List.of("login"));
+    public static final IndexDefinition TRANSACTIONS_ACCOUNT_CREATED = new IndexDefinition(
+            "transactions", "ix_transactions_account_created", false, List.of("account_num", "created_at"));
+    public static final IndexDefinition TRANSACTIONS_CREATED = new IndexDefinition(
+            "transactions", "ix_transactions_created", false, List.of("created_at"));
+    public static final IndexDefinition DAILY_ROLLUPS_DAY = new IndexDefinition(
+            "account_daily_rollups", "ix_account_daily_rollups_day", false, List.of("day"));
+    public static final IndexDefinition MONTHLY_ROLLUPS_MONTH = new IndexDefinition(
+            "account_monthly_rollups", "ix_account_monthly_rollups_month", false, List.of("month"));
+    public static final IndexDefinition PROFILES_LOGIN = new IndexDefinition(
+            "account_profiles", "ux_account_profiles_login", true, List.of("login"));
+    public static final IndexDefinition DIRECTORY_LOGIN = new IndexDefinition(
+            "account_directory", "ux_account_directory_login", true, List.of("login"));
+
+    public static final List<Migration> MIGRATIONS = List.of(
+
+            new Migration(1, "Create accounts table", List.of(createTable(
+                    "CREATE TABLE IF NOT EXISTS accounts (" +
+                            "account_num INT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+                            "holder VARCHAR(100) NOT NULL, " +
+                            "balance INT NOT NULL DEFAULT 0, " +
+                            "status VARCHAR(20) NOT NULL, " +
+                            "login VARCHAR(50) NOT NULL, " +
+                            "pin VARCHAR(20) NOT NULL, " +
+                            "role VARCHAR(20) NOT NULL DEFAULT 'Customer')"))),
+
+            //getUser() and loadSession() look accounts up by login, and createNewAccount() relies on error 1062
+            //to detect a taken login; both need this unique index
+            new Migration(2, "Unique index on accounts.login", List.of(createIndex(ACCOUNTS_LOGIN))),
+
+            new Migration(3, "Create transactions ledger", List.of(
+                    createTable("CREATE TABLE IF NOT EXISTS transactions (" +
+                            "transaction_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+                            "account_num INT NOT NULL, " +
+                            "type VARCHAR(20) NOT NULL, " +
+                            "amount INT NOT NULL, " +
+                            "balance_after INT NOT NULL, " +
+                            "created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3))"),
+
+                    //The session query reads the newest rows of one account; reports read a range of dates
+                    createIndex(TRANSACTIONS_ACCOUNT_CREATED),
+                    createIndex(TRANSACTIONS_CREATED))),
+
+            new Migration(4, "Create account_limits table", List.of(createTable(
+                    "CREATE TABLE IF NOT EXISTS account_limits (" +
+                            "account_num INT NOT NULL PRIMARY KEY, " +
+                            "daily_withdrawal_limit INT NOT NULL, " +
+                            "single_withdrawal_limit INT NOT NULL)"))),
+
+            //The tables of SchemaLayout.SPLIT. They are created whichever layout is in use, and the accounts that
+            //exist when this runs are copied in. Only the layout in use is written after that, so the copy goes
+            //stale; LayoutSwitch copies the accounts again when a deployment changes layout
+            new Migration(5, "Create split account_profiles and account_balances tables", List.of(
+                    createTable("CREATE TABLE IF NOT EXISTS account_profiles (" +
+                            "account_num INT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+                            "holder VARCHAR(100) NOT NULL, " +
+                            "status VARCHAR(20) NOT NULL, " +
+                            "login VARCHAR(50) NOT NULL, " +
+                            "pin VARCHAR(20) NOT NULL, " +
+                            "role VARCHAR(20) NOT NULL DEFAULT 'Customer')"),
+                    createIndex(PROFILES_LOGIN),
+                    createTable("CREATE TABLE IF NOT EXISTS account_balances (" +
+                            "account_num INT NOT NULL PRIMARY KEY, " +
+                            "balance INT NOT NULL DEFAULT 0, " +
+                            "CONSTRAINT fk_account_balances_profile FOREIGN KEY (account_num) " +
+                            "REFERENCES account_profiles (account_num) ON DELETE CASCADE)"),
+                    execute("INSERT INTO account_profiles (account_num, holder, status, login, pin, role) " +
+                            "SELECT account_num, holder, status, login, pin, role FROM accounts a " +
+                            "WHERE NOT EXISTS (SELECT 1 FROM account_profiles p WHERE p.account_num = a.account_num)"),
+                    execute("INSERT INTO account_balances (account_num, balance) " +
+                            "SELECT account_num, balance FROM accounts a WHERE role = 'Customer' " +
+                            "AND NOT EXISTS (SELECT 1 FROM account_balances b WHERE b.account_num = a.account_num)"))),
+
+            //Sub-balances of very busy accounts; an account has rows here only once an administrator enables them
+            new Migration(6, "Create account_balance_slots table", List.of(createTable(
+                    "CREATE TABLE IF NOT EXISTS account_balance_slots (" +
+                            "account_num INT NOT NULL, " +
+                            "slot INT NOT NULL, " +
+                            "balance INT NOT NULL DEFAULT 0, " +
+                            "PRIMARY KEY (account_num, slot))"))),
+
+            //Blocks of account numbers are reserved from here (see SequenceTable). The account_num sequence starts
+            //after the highest number already used in either account layout
+            new Migration(7, "Create number_sequences table", List.of(
+                    createTable("CREATE TABLE IF NOT EXISTS number_sequences (" +
+                            "name VARCHAR(50) NOT NULL PRIMARY KEY, " +
+                            "next_value BIGINT NOT NULL)"),
+                    execute("INSERT IGNORE INTO number_sequences (name, next_value) " +
+                            "SELECT 'account_num', GREATEST(" +
+                            "COALESCE((SELECT MAX(account_num) FROM accounts), 0), " +
+                            "COALESCE((SELECT MAX(account_num) FROM account_profiles), 0)) + 1"))),
+
+            //PINs are stored as salted PBKDF2 hashes (see PinHasher), which do not fit in 20 characters. Existing
+            //plain-text PINs stay as they are and are hashed the next time their owner logs in
+            new Migration(8, "Widen pin columns for hashed PINs", List.of(
+                    execute("ALTER TABLE accounts MODIFY pin VARCHAR(128) NOT NULL"),
+                    execute("ALTER TABLE account_profiles MODIFY pin VARCHAR(128) NOT NULL"))),
+
+            //Every journal entry a terminal replays after working offline is claimed here, with what became of it,
+            //so an entry is never applied twice and conflicts stay on record (see DatabaseManager.applyJournalEntries)
+            new Migration(9, "Create offline_replays table", List.of(createTable(
+                    "CREATE TABLE IF NOT EXISTS offline_replays (" +
+                            "terminal_id VARCHAR(64) NOT NULL, " +
+                            "sequence BIGINT NOT NULL, " +
+                            "account_num INT NOT NULL, " +
+                            "type VARCHAR(20) NOT NULL, " +
+                            "amount INT NOT NULL, " +
+                            "recorded_at TIMESTAMP(3) NOT NULL, " +
+                            "outcome VARCHAR(30) NOT NULL, " +
+                            "replayed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+                            "PRIMARY KEY (terminal_id, sequence))"))),
+
+            //Per account, the deposits and withdrawals of each day and each month and the balance they closed on,
+            //kept up to date as transactions commit so statements and reports never add up the ledger themselves.
+            //The history that already exists is rolled up here, before any terminal is serving customers
+            new Migration(10, "Create daily and monthly rollup tables", List.of(
+                    rollupTable("account_daily_rollups", "day"),
+                    createIndex(DAILY_ROLLUPS_DAY),
+                    rollupTable("account_monthly_rollups", "month"),
+                    createIndex(MONTHLY_ROLLUPS_MONTH),
+                    AtmSchema::rollUpExistingLedger)),
+
+            //Settings the schema itself depends on, such as which SchemaLayout's tables are the live ones (see
+            //LayoutSwitch)
+            new Migration(11, "Create schema_settings table", List.of(createTable(
+                    "CREATE TABLE IF NOT EXISTS schema_settings (" +
+                            "name VARCHAR(50) NOT NULL PRIMARY KEY, " +
+                            "value VARCHAR(100) NOT NULL)")))
+    );
+
+    //Every index the queries depend on; checked on every startup, not just when a migration runs
+    public static final List<IndexDefinition> REQUIRED_INDEXES = List.of(
+            ACCOUNTS_LOGIN, TRANSACTIONS_ACCOUNT_CREATED, TRANSACTIONS_CREATED, PROFILES_LOGIN, DAILY_ROLLUPS_DAY,
+            MONTHLY_ROLLUPS_MONTH);
+
+    //The login directory of a sharded deployment lives in its own database, so it has its own migrations
+    public static final List<Migration> DIRECTORY_MIGRATIONS = List.of(
+
+            new Migration(1, "Create account_directory table", List.of(
+                    createTable("CREATE TABLE IF NOT EXISTS account_directory (" +
+                            "account_num INT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+                            "login VARCHAR(50) NOT NULL)"),
+                    createIndex(DIRECTORY_LOGIN))),
+
+            //Every shard's new account numbers are reserved from the directory, as from the number_sequences table
+            //of a single database (see SequenceTable)
+            new Migration(2, "Create number_sequences table", List.of(
+                    createTable("CREATE TABLE IF NOT EXISTS number_sequences (" +
+                            "name VARCHAR(50) NOT NULL PRIMARY KEY, " +
+                            "next_value BIGINT NOT NULL)"),
+                    execute("INSERT IGNORE INTO number_sequences (name, next_value) " +
+                            "SELECT 'account_num', COALESCE(MAX(account_num), 0) + 1 FROM account_directory")))
+    );
+
+    public static final List<IndexDefinition> DIRECTORY_REQUIRED_INDEXES = List.of(DIRECTORY_LOGIN);
+
+    private static MigrationStep rollupTable(String table, String period_column) {
+
+        return createTable("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                "account_num INT NOT NULL, " +
+                period_column + " DATE NOT NULL, " +
+                "deposit_count INT NOT NULL, " +
+                "deposit_total BIGINT NOT NULL, " +
+                "withdrawal_count INT NOT NULL, " +
+                "withdrawal_total BIGINT NOT NULL, " +
+                "closing_balance INT NOT NULL, " +
+                "closing_at TIMESTAMP(3) NOT NULL, " +
+                "PRIMARY KEY (account_num, " + period_column + "))");
+    }
+
+    static void rollUpExistingLedger(Connection connection) throws SQLException {
+
+        //One month per statement, as DatabaseManager.rebuildRollups does, so no statement scans (and locks) more than
+        //a month of the ledger. Only the months from the oldest ledger row to the newest are visited
+        LocalDate month;
+        LocalDate end;
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(
+                     "SELECT MIN(created_at) AS oldest, MAX(created_at) AS newest FROM transactions")) {
+
+            if (!result.next() || result.getTimestamp("oldest") == null) {
+
+                return;
+            }
+
+            month = result.getTimestamp("oldest").toLocalDateTime().toLocalDate().withDayOfMonth(1);
+            end = result.getTimestamp("newest").toLocalDateTime().toLocalDate().withDayOfMonth(1).plusMonths(1);
+        }
+
+        while (month.isBefore(end)) {
+
+            DatabaseManager.rollUp(connection, month, month.plusMonths(1));
+            month = month.plusMonths(1);
+        }
+    }
+
+    private AtmSchema() {
+
+    }
+}
@@ -0,0 +1,69 @@
+package repository.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public record IndexDefinition(String table, String name, boolean unique, List<String> columns) {
+
+    public IndexDefinition {
+
+        columns = List.copyOf(columns);
+    }
+
+    public String toDdl() {
+
+        return "CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + name + " ON " + table +
+                " (" + String.join(", ", columns) + ")";
+    }
+
+    public boolean matches(boolean index_unique, List<String> index_columns) {
+
+        //An existing index does the job if it starts with the same columns, whatever it is called. A unique
+        //definition needs a unique index on exactly these columns, since uniqueness over more columns is weaker
+        if (index_columns.size() < columns.size() || !index_columns.subList(0, columns.size()).equals(columns)) {
+
+            return false;
+        }
+
+        return !unique || (index_unique && index_columns.size() == columns.size());
+    }
+
+    public boolean existsIn(Connection connection) throws SQLException {
+
+        //information_schema lists one row per indexed column, in order, so the rows are grouped back into indexes
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT INDEX_NAME, NON_UNIQUE, COLUMN_NAME FROM information_schema.STATISTICS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY INDEX_NAME, SEQ_IN_INDEX")) {
+
+            query.setString(1, table);
+            ResultSet result = query.executeQuery();
+
+            Map<String, List<String>> index_columns = new LinkedHashMap<>();
+            Map<String, Boolean> index_unique = new HashMap<>();
+            while (result.next()) {
+
+                String index_name = result.getString("INDEX_NAME");
+                index_columns.computeIfAbsent(index_name, key -> new ArrayList<>())
+                        .add(result.getString("COLUMN_NAME").toLowerCase());
+                index_unique.put(index_name, result.getInt("NON_UNIQUE") == 0);
+            }
+
+            for (Map.Entry<String, List<String>> index : index_columns.entrySet()) {
+
+                if (matches(index_unique.get(index.getKey()), index.getValue())) {
+
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+}
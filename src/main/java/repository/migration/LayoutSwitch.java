@@ -0,0 +1,248 @@
+package repository.migration;
+
+import repository.DatabaseConnection;
+import repository.SchemaLayout;
+import repository.exception.DatabaseException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+
+public class LayoutSwitch {
+
+    //Only the tables of the SchemaLayout a terminal runs with are written, so the other layout's tables go stale as
+    //soon as an account changes. The layout in use is recorded in schema_settings; a terminal started with a
+    //different one first copies every account into its own layout's tables, batch_size account numbers per
+    //transaction, and only then records it. A copy that stops halfway is started again at the next startup, since
+    //the recorded layout has not changed yet. Every terminal must be stopped for the switch: one still running the
+    //old layout would go on writing tables nobody reads.
+    //A database with no layout recorded (one from before the setting existed) has its two layouts compared; if they
+    //hold the same accounts, the terminal's layout is recorded, and if not, startup stops rather than guess which of
+    //them is current
+
+    static final String LOCK_NAME = "atm_layout_switch";
+    static final int LOCK_TIMEOUT_SECONDS = 60;
+    static final String SETTING = "account_layout";
+
+    private final DatabaseConnection db_connection;
+    private final int batch_size;
+
+    public LayoutSwitch(DatabaseConnection db_connection, int batch_size) {
+
+        if (batch_size < 1) {
+
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+
+        this.db_connection = db_connection;
+        this.batch_size = batch_size;
+    }
+
+
+    public Connection getConnection() throws SQLException {
+
+        return db_connection.open();
+    }
+
+    public int apply(SchemaLayout layout) throws DatabaseException {
+
+        //Returns the number of accounts copied into the layout's tables, or -1 if it was already the one in use
+        try (Connection connection = getConnection()) {
+
+            acquireLock(connection);
+
+            try {
+
+                SchemaLayout recorded = readRecordedLayout(connection);
+                if (recorded == layout) {
+
+                    return -1;
+                }
+
+                if (recorded == null) {
+
+                    if (!sameAccounts(connection)) {
+
+                        throw new DatabaseException("The " + SchemaLayout.SINGLE_TABLE + " and " + SchemaLayout.SPLIT +
+                                " account tables differ, and neither is recorded as the layout in use. Record the " +
+                                "current one with: INSERT INTO schema_settings (name, value) VALUES ('" + SETTING +
+                                "', '<layout>')", null);
+                    }
+
+                    recordLayout(connection, layout);
+                    return -1;
+                }
+
+                int copied = copyInto(connection, layout);
+                recordLayout(connection, layout);
+
+                return copied;
+            }
+            finally {
+
+                releaseLock(connection);
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error switching the account tables to the " + layout + " layout", error);
+        }
+    }
+
+    private static SchemaLayout readRecordedLayout(Connection connection) throws SQLException {
+
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT value FROM schema_settings WHERE name = ?")) {
+
+            query.setString(1, SETTING);
+            ResultSet result = query.executeQuery();
+
+            return result.next() ? SchemaLayout.valueOf(result.getString("value")) : null;
+        }
+    }
+
+    private static void recordLayout(Connection connection, SchemaLayout layout) throws SQLException {
+
+        try (PreparedStatement update = connection.prepareStatement(
+                "INSERT INTO schema_settings (name, value) VALUES (?, ?) " +
+                        "ON DUPLICATE KEY UPDATE value = VALUES(value)")) {
+
+            update.setString(1, SETTING);
+            update.setString(2, layout.name());
+            update.executeUpdate();
+        }
+    }
+
+    private static boolean sameAccounts(Connection connection) throws SQLException {
+
+        //Each layout's accounts are counted and folded into one checksum; administrators have no balance row in
+        //the split layout, so their balance is left out on both sides
+        long[] single = fingerprint(connection, SchemaLayout.SINGLE_TABLE);
+        long[] split = fingerprint(connection, SchemaLayout.SPLIT);
+
+        return single[0] == split[0] && single[1] == split[1];
+    }
+
+    private static long[] fingerprint(Connection connection, SchemaLayout layout) throws SQLException {
+
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT COUNT(*) AS row_count, COALESCE(BIT_XOR(CRC32(CONCAT_WS('|', account_num, holder, status, " +
+                        "login, pin, role, IF(role = 'Customer', COALESCE(balance, -1), 0)))), 0) AS checksum " +
+                        "FROM " + layout.getAccountSource())) {
+
+            ResultSet result = query.executeQuery();
+            result.next();
+
+            return new long[] {result.getLong("row_count"), result.getLong("checksum")};
+        }
+    }
+
+    private int copyInto(Connection connection, SchemaLayout layout) throws SQLException {
+
+        //Every row of the target is deleted before any is copied in, so a login that moved between accounts in
+        //different batches can't collide with its stale copy. Deleting a profile row deletes its balance row too
+        String target = layout.getProfileTable();
+        List<String> inserts = layout == SchemaLayout.SPLIT ?
+                List.of("INSERT INTO account_profiles (account_num, holder, status, login, pin, role) " +
+                                "SELECT account_num, holder, status, login, pin, role FROM accounts " +
+                                "WHERE account_num >= ? AND account_num < ?",
+                        "INSERT INTO account_balances (account_num, balance) " +
+                                "SELECT account_num, balance FROM accounts " +
+                                "WHERE role = 'Customer' AND account_num >= ? AND account_num < ?") :
+                List.of("INSERT INTO accounts (account_num, holder, balance, status, login, pin, role) " +
+                        "SELECT a.account_num, holder, COALESCE(balance, 0), status, login, pin, role " +
+                        "FROM account_profiles a LEFT JOIN account_balances b USING (account_num) " +
+                        "WHERE a.account_num >= ? AND a.account_num < ?");
+
+        int end = highestAccountNum(connection) + 1;
+        boolean auto_commit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+
+        try {
+
+            for (int from = 0; from < end; from += batch_size) {
+
+                runBatch(connection, List.of("DELETE FROM " + target + " WHERE account_num >= ? AND account_num < ?"),
+                        from, Math.min(end, from + batch_size));
+            }
+
+            int copied = 0;
+            for (int from = 0; from < end; from += batch_size) {
+
+                copied += runBatch(connection, inserts, from, Math.min(end, from + batch_size));
+            }
+
+            return copied;
+        }
+        catch (SQLException error) {
+
+            connection.rollback();
+            throw error;
+        }
+        finally {
+
+            connection.setAutoCommit(auto_commit);
+        }
+    }
+
+    private static int runBatch(Connection connection, List<String> statements, int from, int to)
+            throws SQLException {
+
+        //Returns the rows the first statement changed; the batch is one transaction
+        int changed = 0;
+        for (int i = 0; i < statements.size(); i++) {
+
+            try (PreparedStatement update = connection.prepareStatement(statements.get(i))) {
+
+                update.setInt(1, from);
+                update.setInt(2, to);
+                int rows = update.executeUpdate();
+                if (i == 0) {
+
+                    changed = rows;
+                }
+            }
+        }
+        connection.commit();
+
+        return changed;
+    }
+
+    private static int highestAccountNum(Connection connection) throws SQLException {
+
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT GREATEST(COALESCE((SELECT MAX(account_num) FROM accounts), 0), " +
+                        "COALESCE((SELECT MAX(account_num) FROM account_profiles), 0)) AS highest")) {
+
+            ResultSet result = query.executeQuery();
+            return result.next() ? result.getInt("highest") : 0;
+        }
+    }
+
+    private static void acquireLock(Connection connection) throws SQLException {
+
+        try (PreparedStatement query = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+
+            query.setString(1, LOCK_NAME);
+            query.setInt(2, LOCK_TIMEOUT_SECONDS);
+            ResultSet result = query.executeQuery();
+
+            if (!result.next() || result.getInt(1) != 1) {
+
+                throw new SQLTimeoutException("Timed out waiting for the layout switch lock");
+            }
+        }
+    }
+
+    private static void releaseLock(Connection connection) throws SQLException {
+
+        try (PreparedStatement query = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+
+            query.setString(1, LOCK_NAME);
+            query.executeQuery();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package repository.migration;
+
+import java.sql.Statement;
+import java.util.List;
+
+public record Migration(int version, String description, List<MigrationStep> steps) {
+
+    public Migration {
+
+        steps = List.copyOf(steps);
+    }
+
+    public static MigrationStep createTable(String ddl) {
+
+        //Table definitions are written with IF NOT EXISTS, so an existing table (including one created by hand
+        //before migrations existed) is left as it is
+        return execute(ddl);
+    }
+
+    public static MigrationStep execute(String sql) {
+
+        //Any other statement; it must be written so that running it a second time changes nothing
+        return connection -> {
+
+            try (Statement statement = connection.createStatement()) {
+
+                statement.execute(sql);
+            }
+        };
+    }
+
+    public static MigrationStep createIndex(IndexDefinition index) {
+
+        //MySQL has no CREATE INDEX IF NOT EXISTS, so the index is only created when no equivalent one is found
+        return connection -> {
+
+            if (index.existsIn(connection)) {
+
+                return;
+            }
+
+            try (Statement statement = connection.createStatement()) {
+
+                statement.execute(index.toDdl());
+            }
+        };
+    }
+}
@@ -0,0 +1,5 @@
+package repository.migration;
+
+//applied is false for a migration that had already been applied on an earlier startup
+public record MigrationResult(int version, String description, boolean applied, long duration_ms) {
+}
@@ -0,0 +1,12 @@
+package repository.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface MigrationStep {
+
+    //One piece of a migration. Steps must be safe to run again: MySQL commits DDL as it goes, so a migration that
+    //failed halfway is simply run from the start on the next startup
+    void apply(Connection connection) throws SQLException;
+}
@@ -0,0 +1,185 @@
+package repository.migration;
+
+import repository.DatabaseConnection;
+import repository.exception.DatabaseException;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class SchemaMigrator {
+
+    //Several terminals may start at the same time; a named lock makes them take turns, and the ones that come
+    //second find the migrations already recorded
+    static final String LOCK_NAME = "atm_schema_migration";
+    static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private final DatabaseConnection db_connection;
+    private final List<Migration> migrations;
+    private final List<IndexDefinition> required_indexes;
+
+    public SchemaMigrator(DatabaseConnection db_connection, List<Migration> migrations,
+                          List<IndexDefinition> required_indexes) {
+
+        this.db_connection = db_connection;
+        this.migrations = new ArrayList<>(migrations);
+        this.migrations.sort(Comparator.comparingInt(Migration::version));
+        this.required_indexes = List.copyOf(required_indexes);
+    }
+
+
+    public Connection getConnection() throws SQLException {
+
+        return db_connection.open();
+    }
+
+    public List<MigrationResult> migrate() throws DatabaseException {
+
+        List<MigrationResult> results = new ArrayList<>();
+
+        try (Connection connection = getConnection()) {
+
+            acquireLock(connection);
+
+            try {
+
+                try (Statement statement = connection.createStatement()) {
+
+                    statement.execute("CREATE TABLE IF NOT EXISTS schema_migrations (" +
+                            "version INT NOT NULL PRIMARY KEY, " +
+                            "description VARCHAR(200) NOT NULL, " +
+                            "duration_ms BIGINT NOT NULL, " +
+                            "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+                }
+
+                Set<Integer> applied_versions = readAppliedVersions(connection);
+
+                for (Migration migration : migrations) {
+
+                    if (applied_versions.contains(migration.version())) {
+
+                        results.add(new MigrationResult(migration.version(), migration.description(), false, 0));
+                        continue;
+                    }
+
+                    //Each migration is timed, so a slow index build on a large table shows up in the startup output
+                    long start = System.nanoTime();
+                    for (MigrationStep step : migration.steps()) {
+
+                        step.apply(connection);
+                    }
+                    long duration_ms = (System.nanoTime() - start) / 1_000_000;
+
+                    recordVersion(connection, migration, duration_ms);
+                    results.add(new MigrationResult(migration.version(), migration.description(), true, duration_ms));
+                }
+            }
+            finally {
+
+                releaseLock(connection);
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error migrating database schema", error);
+        }
+
+        return results;
+    }
+
+    public List<IndexDefinition> findMissingIndexes() throws DatabaseException {
+
+        //Checked against what the database actually has, so an index dropped by hand after its migration ran is
+        //still noticed
+        List<IndexDefinition> missing = new ArrayList<>();
+
+        try (Connection connection = getConnection()) {
+
+            for (IndexDefinition index : required_indexes) {
+
+                if (!index.existsIn(connection)) {
+
+                    missing.add(index);
+                }
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error verifying database indexes", error);
+        }
+
+        return missing;
+    }
+
+    public void verify() throws DatabaseException {
+
+        List<IndexDefinition> missing = findMissingIndexes();
+
+        if (!missing.isEmpty()) {
+
+            List<String> names = new ArrayList<>();
+            for (IndexDefinition index : missing) {
+
+                names.add(index.table() + "." + index.name());
+            }
+
+            throw new DatabaseException("Required indexes are missing: " + String.join(", ", names), null);
+        }
+    }
+
+    private static void acquireLock(Connection connection) throws SQLException {
+
+        try (PreparedStatement query = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+
+            query.setString(1, LOCK_NAME);
+            query.setInt(2, LOCK_TIMEOUT_SECONDS);
+            ResultSet result = query.executeQuery();
+
+            if (!result.next() || result.getInt(1) != 1) {
+
+                throw new SQLTimeoutException("Timed out waiting for the schema migration lock");
+            }
+        }
+    }
+
+    private static void releaseLock(Connection connection) throws SQLException {
+
+        try (PreparedStatement query = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+
+            query.setString(1, LOCK_NAME);
+            query.executeQuery();
+        }
+    }
+
+    private static Set<Integer> readAppliedVersions(Connection connection) throws SQLException {
+
+        Set<Integer> versions = new HashSet<>();
+
+        try (PreparedStatement query = connection.prepareStatement("SELECT version FROM schema_migrations")) {
+
+            ResultSet result = query.executeQuery();
+            while (result.next()) {
+
+                versions.add(result.getInt("version"));
+            }
+        }
+
+        return versions;
+    }
+
+    private static void recordVersion(Connection connection, Migration migration, long duration_ms)
+            throws SQLException {
+
+        try (PreparedStatement update = connection.prepareStatement(
+                "INSERT INTO schema_migrations (version, description, duration_ms) VALUES (?, ?, ?)")) {
+
+            update.setInt(1, migration.version());
+            update.setString(2, migration.description());
+            update.setLong(3, duration_ms);
+            update.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package repository.offline;
+
+//A journal entry the database could not take when it was replayed, and why
+public record JournalConflict(JournalEntry entry, ReplayOutcome outcome) {
+
+}
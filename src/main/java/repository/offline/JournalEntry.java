@@ -0,0 +1,9 @@
+package repository.offline;
+
+import model.transaction.TransactionType;
+
+//A deposit or withdrawal recorded on this terminal while the database was unreachable. The sequence number is
+//unique per terminal and never reused, which is what lets a replayed entry be recognized if it is replayed again
+public record JournalEntry(long sequence, int account_num, TransactionType type, int amount, long recorded_at) {
+
+}
@@ -0,0 +1,210 @@
+package repository.offline;
+
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+public class JournalReplayer implements Closeable {
+
+    //Applies the offline journal to the database once it can be reached again, batch_size entries per call (and
+    //per database transaction), oldest first. A batch is acknowledged in the journal only after the database has
+    //committed it; if the terminal stops in between, the batch is replayed again and the database recognizes the
+    //entries it already has by the journal's id and the entry's sequence. Entries the database turns down are kept
+    //as conflicts, and counted
+
+    //How many of the latest conflicts are kept for getRecentConflicts(); all of them stay on record in the database
+    static final int RECENT_CONFLICTS = 100;
+
+    private final DatabaseManager target;
+    private final OfflineJournal journal;
+    private final int batch_size;
+
+    private ScheduledExecutorService executor;
+    private final AtomicBoolean replay_requested = new AtomicBoolean();
+
+    //Guarded by this
+    private final ArrayDeque<JournalConflict> recent_conflicts = new ArrayDeque<>();
+    private long replay_nanos;
+
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failed_attempts = new LongAdder();
+
+    public JournalReplayer(DatabaseManager target, OfflineJournal journal, int batch_size) {
+
+        if (batch_size < 1) {
+
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+
+        this.target = target;
+        this.journal = journal;
+        this.batch_size = batch_size;
+    }
+
+
+    public synchronized int replayPending() throws DatabaseException {
+
+        //Replays until the journal is empty; throws if the database fails, leaving the rest for the next attempt
+        int count = 0;
+        long started = System.nanoTime();
+
+        try {
+
+            List<JournalEntry> batch;
+            while (!(batch = journal.pending(batch_size)).isEmpty()) {
+
+                ReplayOutcome[] outcomes = target.applyJournalEntries(journal.getJournalId(), batch);
+                for (int i = 0; i < outcomes.length; i++) {
+
+                    if (outcomes[i].isConflict()) {
+
+                        conflicts.increment();
+                        recent_conflicts.addLast(new JournalConflict(batch.get(i), outcomes[i]));
+                        if (recent_conflicts.size() > RECENT_CONFLICTS) {
+
+                            recent_conflicts.removeFirst();
+                        }
+                    }
+                }
+
+                try {
+
+                    journal.acknowledge(batch.get(batch.size() - 1).sequence());
+                }
+                catch (IOException error) {
+
+                    //The database has the batch; replaying it again later is harmless
+                    throw new DatabaseException("Replayed entries could not be acknowledged in the journal", error);
+                }
+
+                count += batch.size();
+                replayed.add(batch.size());
+                batches.increment();
+            }
+
+            return count;
+        }
+        finally {
+
+            replay_nanos += System.nanoTime() - started;
+        }
+    }
+
+    public void start(long interval_ms) {
+
+        //A single background thread checks the journal every interval_ms; it does nothing while the journal is empty
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+
+            Thread thread = new Thread(runnable, "journal-replayer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        executor.scheduleWithFixedDelay(this::replayInBackground, interval_ms, interval_ms, TimeUnit.MILLISECONDS);
+    }
+
+    public void requestReplay() {
+
+        //Has the background thread replay as soon as it is free instead of at the next interval. A request made while
+        //another is still queued is covered by that one. Without start() there is no thread, and nothing happens
+        if (executor == null || !replay_requested.compareAndSet(false, true)) {
+
+            return;
+        }
+
+        try {
+
+            executor.execute(() -> {
+
+                replay_requested.set(false);
+                replayInBackground();
+            });
+        }
+        catch (RejectedExecutionException error) {
+
+            //The replayer has been closed
+            replay_requested.set(false);
+        }
+    }
+
+    private void replayInBackground() {
+
+        if (journal.getPendingCount() == 0) {
+
+            return;
+        }
+
+        try {
+
+            replayPending();
+        }
+        catch (DatabaseException error) {
+
+            //The database is still unreachable; the entries wait for the next attempt
+            failed_attempts.increment();
+        }
+    }
+
+    @Override
+    public void close() {
+
+        if (executor != null) {
+
+            executor.shutdownNow();
+        }
+    }
+
+    public long getReplayedCount() {
+
+        return replayed.sum();
+    }
+
+    public long getConflictCount() {
+
+        return conflicts.sum();
+    }
+
+    public long getBatchCount() {
+
+        return batches.sum();
+    }
+
+    public long getFailedAttempts() {
+
+        return failed_attempts.sum();
+    }
+
+    public synchronized List<JournalConflict> getRecentConflicts() {
+
+        return new ArrayList<>(recent_conflicts);
+    }
+
+    public synchronized double getReplayThroughput() {
+
+        //Entries replayed per second of replaying, over the replayer's lifetime
+        return replay_nanos == 0 ? 0 : replayed.sum() * 1_000_000_000.0 / replay_nanos;
+    }
+
+    public int getPendingCount() {
+
+        return journal.getPendingCount();
+    }
+
+    public long getLagMs() {
+
+        return journal.getLagMs();
+    }
+}
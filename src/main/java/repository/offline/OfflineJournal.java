@@ -0,0 +1,492 @@
+package repository.offline;
+
+import model.transaction.TransactionType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+public class OfflineJournal implements Closeable {
+
+    //An append-only file of the deposits and withdrawals taken while the database was unreachable. append() only
+    //returns once the entry is on disk, so cash is never handed out for an entry a crash could lose. Flushing to
+    //disk is the slow part, so it is shared: while one flush runs, the entries appended meanwhile wait, and the
+    //next flush makes all of them durable at once (group commit). Under load many entries share each flush.
+    //Replayed entries are acknowledged in a separate file; once everything is acknowledged the journal is emptied.
+    //A torn entry at the end of the file (the power went during a write) fails its checksum and is dropped at open.
+    //Sequence numbers start from 1 in every journal, so the database tells journals apart by the random id each one
+    //is given when its directory is first used; a recreated directory is a new journal with a new id
+
+    //Each entry: sequence (8), account (4), type (1), amount (4) and time (8), then a CRC32 of those 25 bytes (4)
+    static final int RECORD_BYTES = 29;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final String journal_id;
+    private final Path ack_path;
+    private final FileChannel channel;
+    private final LongSupplier clock;
+
+    //Guards the file's layout, the sequence numbers and the per-account totals below
+    private final Object write_lock = new Object();
+    private long last_sequence;
+    private long acknowledged;
+    private long file_base;
+    private boolean failed;
+    private final ArrayDeque<JournalEntry> unsynced = new ArrayDeque<>();
+    private final Map<Integer, int[]> account_totals = new HashMap<>();
+
+    //Guards the group flush
+    private final ReentrantLock sync_lock = new ReentrantLock();
+    private final Condition synced = sync_lock.newCondition();
+    private volatile long written_sequence;
+    private long synced_sequence;
+    private boolean syncing;
+
+    //Durable entries that have not been replayed yet, in sequence order
+    private final ConcurrentSkipListMap<Long, JournalEntry> pending = new ConcurrentSkipListMap<>();
+
+    private final LongAdder appends = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+
+    public OfflineJournal(Path directory) throws IOException {
+
+        this(directory, System::currentTimeMillis);
+    }
+
+    public OfflineJournal(Path directory, LongSupplier clock) throws IOException {
+
+        Files.createDirectories(directory);
+        this.journal_id = readOrCreateId(directory.resolve("journal.id"));
+        this.ack_path = directory.resolve("journal.ack");
+        this.clock = clock;
+        this.channel = FileChannel.open(directory.resolve("journal.log"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        recover();
+    }
+
+
+    private static String readOrCreateId(Path id_path) throws IOException {
+
+        if (Files.exists(id_path)) {
+
+            return Files.readString(id_path, StandardCharsets.UTF_8).trim();
+        }
+
+        //Written to a new file which then takes the id's name, so a crash never leaves half an id behind
+        String id = UUID.randomUUID().toString();
+        Path temporary = id_path.resolveSibling("journal.id.tmp");
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer value = ByteBuffer.wrap(id.getBytes(StandardCharsets.UTF_8));
+            while (value.hasRemaining()) {
+
+                file.write(value);
+            }
+            file.force(true);
+        }
+        Files.move(temporary, id_path, StandardCopyOption.ATOMIC_MOVE);
+
+        return id;
+    }
+
+    private void recover() throws IOException {
+
+        if (Files.exists(ack_path)) {
+
+            acknowledged = ByteBuffer.wrap(Files.readAllBytes(ack_path)).getLong();
+        }
+
+        //Entries are read until the first one that is torn or out of order; anything after it is cut off
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        long position = 0;
+        long first = -1;
+        long last = acknowledged;
+
+        while (position + RECORD_BYTES <= channel.size()) {
+
+            record.clear();
+            JournalEntry entry = readFully(record, position) ? decode(record) : null;
+            if (entry == null || (first >= 0 && entry.sequence() != last + 1)) {
+
+                break;
+            }
+
+            if (first < 0) {
+
+                first = entry.sequence();
+            }
+            last = entry.sequence();
+
+            if (entry.sequence() > acknowledged) {
+
+                pending.put(entry.sequence(), entry);
+                addTotals(entry, 1);
+            }
+            position += RECORD_BYTES;
+        }
+
+        channel.truncate(position);
+        channel.force(true);
+
+        last_sequence = Math.max(last, acknowledged);
+        file_base = first < 0 ? last_sequence : first - 1;
+        written_sequence = last_sequence;
+        synced_sequence = last_sequence;
+    }
+
+    private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+
+        while (buffer.hasRemaining()) {
+
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public long append(int account_num, TransactionType type, int amount) throws IOException {
+
+        return append(account_num, type, amount, Integer.MAX_VALUE);
+    }
+
+    public long append(int account_num, TransactionType type, int amount, int withdrawal_limit) throws IOException {
+
+        //Returns the entry's sequence number, or -1 (with nothing written) if a withdrawal would take the account's
+        //unreplayed withdrawals past withdrawal_limit. The check and the write are one step, so two sessions on
+        //the same account cannot both squeeze under the limit
+        long sequence;
+        synchronized (write_lock) {
+
+            if (failed) {
+
+                throw new IOException("The offline journal could not be written to and is closed");
+            }
+
+            if (type == TransactionType.WITHDRAWAL && getPendingWithdrawn(account_num) + (long) amount >
+                    withdrawal_limit) {
+
+                return -1;
+            }
+
+            sequence = last_sequence + 1;
+            JournalEntry entry = new JournalEntry(sequence, account_num, type, amount, clock.getAsLong());
+
+            ByteBuffer record = encode(entry);
+            long position = (sequence - file_base - 1) * RECORD_BYTES;
+            while (record.hasRemaining()) {
+
+                channel.write(record, position + record.position());
+            }
+
+            last_sequence = sequence;
+            unsynced.add(entry);
+            addTotals(entry, 1);
+            written_sequence = sequence;
+        }
+
+        appends.increment();
+        awaitSync(sequence);
+        return sequence;
+    }
+
+    private void awaitSync(long sequence) throws IOException {
+
+        sync_lock.lock();
+        try {
+
+            while (synced_sequence < sequence) {
+
+                if (syncing) {
+
+                    try {
+
+                        synced.await();
+                    }
+                    catch (InterruptedException error) {
+
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for the journal to be flushed");
+                    }
+                    continue;
+                }
+
+                synchronized (write_lock) {
+
+                    if (failed) {
+
+                        throw new IOException("The offline journal could not be flushed");
+                    }
+                }
+
+                //This thread flushes everything written so far, its own entry and any that came in after it
+                syncing = true;
+                long target = written_sequence;
+                IOException failure = null;
+
+                sync_lock.unlock();
+                try {
+
+                    channel.force(false);
+                }
+                catch (IOException error) {
+
+                    failure = error;
+                }
+                finally {
+
+                    sync_lock.lock();
+                }
+
+                syncing = false;
+                if (failure != null) {
+
+                    discardUnsynced();
+                    synced.signalAll();
+                    throw failure;
+                }
+
+                synced_sequence = Math.max(synced_sequence, target);
+                syncs.increment();
+                publish(target);
+                synced.signalAll();
+            }
+        }
+        finally {
+
+            sync_lock.unlock();
+        }
+    }
+
+    private void publish(long target) {
+
+        //Only durable entries are visible to the replayer
+        synchronized (write_lock) {
+
+            while (!unsynced.isEmpty() && unsynced.peek().sequence() <= target) {
+
+                JournalEntry entry = unsynced.poll();
+                pending.put(entry.sequence(), entry);
+            }
+        }
+    }
+
+    private void discardUnsynced() {
+
+        //Nobody was told their entry was recorded, so the entries are cut from the file rather than left to be
+        //replayed after a restart. The journal then refuses further entries, since the disk can't be trusted
+        synchronized (write_lock) {
+
+            failed = true;
+            for (JournalEntry entry : unsynced) {
+
+                addTotals(entry, -1);
+            }
+            unsynced.clear();
+            last_sequence = synced_sequence;
+
+            try {
+
+                channel.truncate((synced_sequence - file_base) * RECORD_BYTES);
+            }
+            catch (IOException error) {
+
+                //The entries stay in the file; the checksums are intact, so they would be replayed on restart
+            }
+        }
+    }
+
+    public List<JournalEntry> pending(int max_entries) {
+
+        List<JournalEntry> entries = new ArrayList<>(Math.min(max_entries, pending.size()));
+        Iterator<JournalEntry> iterator = pending.values().iterator();
+
+        while (iterator.hasNext() && entries.size() < max_entries) {
+
+            entries.add(iterator.next());
+        }
+
+        return entries;
+    }
+
+    public void acknowledge(long through_sequence) throws IOException {
+
+        synchronized (write_lock) {
+
+            if (through_sequence <= acknowledged) {
+
+                return;
+            }
+
+            //The acknowledgement is written to a new file which then replaces the old one, so a crash leaves
+            //either the old or the new value, never half of one
+            Path temporary = ack_path.resolveSibling("journal.ack.tmp");
+            try (FileChannel ack = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                ByteBuffer value = ByteBuffer.allocate(Long.BYTES).putLong(through_sequence).flip();
+                while (value.hasRemaining()) {
+
+                    ack.write(value);
+                }
+                ack.force(true);
+            }
+            Files.move(temporary, ack_path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            acknowledged = through_sequence;
+
+            while (!pending.isEmpty() && pending.firstKey() <= through_sequence) {
+
+                addTotals(pending.pollFirstEntry().getValue(), -1);
+            }
+
+            //Once every entry has been replayed the file starts over; sequence numbers carry on from the last one
+            if (pending.isEmpty() && unsynced.isEmpty() && !failed) {
+
+                channel.truncate(0);
+                file_base = last_sequence;
+            }
+        }
+    }
+
+    private void addTotals(JournalEntry entry, int direction) {
+
+        //Only called with write_lock held (or during recovery). Per account: unreplayed entries, and the total of
+        //their withdrawals
+        int[] totals = account_totals.computeIfAbsent(entry.account_num(), key -> new int[2]);
+        totals[0] += direction;
+        if (entry.type() == TransactionType.WITHDRAWAL) {
+
+            totals[1] += direction * entry.amount();
+        }
+
+        if (totals[0] == 0) {
+
+            account_totals.remove(entry.account_num());
+        }
+    }
+
+    public boolean hasPending(int account_num) {
+
+        synchronized (write_lock) {
+
+            return account_totals.containsKey(account_num);
+        }
+    }
+
+    public int getPendingWithdrawn(int account_num) {
+
+        synchronized (write_lock) {
+
+            int[] totals = account_totals.get(account_num);
+            return totals == null ? 0 : totals[1];
+        }
+    }
+
+    public String getJournalId() {
+
+        return journal_id;
+    }
+
+    public int getPendingCount() {
+
+        return pending.size();
+    }
+
+    public long getLagMs() {
+
+        //How long the oldest unreplayed entry has been waiting; 0 when the journal is empty
+        Map.Entry<Long, JournalEntry> oldest = pending.firstEntry();
+        return oldest == null ? 0 : Math.max(0, clock.getAsLong() - oldest.getValue().recorded_at());
+    }
+
+    public long getAppendCount() {
+
+        return appends.sum();
+    }
+
+    public long getSyncCount() {
+
+        return syncs.sum();
+    }
+
+    public long getLastSequence() {
+
+        synchronized (write_lock) {
+
+            return last_sequence;
+        }
+    }
+
+    static ByteBuffer encode(JournalEntry entry) {
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        record.putLong(entry.sequence());
+        record.putInt(entry.account_num());
+        record.put((byte) entry.type().ordinal());
+        record.putInt(entry.amount());
+        record.putLong(entry.recorded_at());
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, RECORD_BYTES - Integer.BYTES);
+        record.putInt((int) crc.getValue());
+
+        return record.flip();
+    }
+
+    static JournalEntry decode(ByteBuffer record) {
+
+        //Returns null for a record that is incomplete or fails its checksum
+        if (record.position() < RECORD_BYTES) {
+
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, RECORD_BYTES - Integer.BYTES);
+        record.flip();
+
+        long sequence = record.getLong();
+        int account_num = record.getInt();
+        int type = record.get();
+        int amount = record.getInt();
+        long recorded_at = record.getLong();
+
+        if (record.getInt() != (int) crc.getValue() || type < 0 || type >= TYPES.length || sequence < 1) {
+
+            return null;
+        }
+
+        return new JournalEntry(sequence, account_num, TYPES[type], amount, recorded_at);
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        channel.close();
+    }
+}
@@ -0,0 +1,22 @@
+package repository.offline;
+
+//What happened to a journal entry when it was replayed against the database. Anything other than APPLIED and
+//ALREADY_APPLIED is a conflict: the customer was served offline, but the database could not take the change
+public enum ReplayOutcome {
+
+    APPLIED,
+
+    //The entry had been replayed before (the terminal stopped before noting it was done), so nothing was changed
+    ALREADY_APPLIED,
+
+    //The account was deleted while the terminal was offline
+    ACCOUNT_NOT_FOUND,
+
+    //The account no longer holds enough for a withdrawal that was already paid out
+    INSUFFICIENT_FUNDS;
+
+    public boolean isConflict() {
+
+        return this == ACCOUNT_NOT_FOUND || this == INSUFFICIENT_FUNDS;
+    }
+}
@@ -0,0 +1,162 @@
+package repository.offline;
+
+import model.session.SessionContext;
+import model.transaction.TransactionType;
+import repository.DatabaseManager;
+import repository.ForwardingDatabaseManager;
+import repository.exception.CircuitOpenException;
+import repository.exception.ConnectionUnavailableException;
+import repository.exception.DatabaseException;
+import repository.exception.OfflineLimitExceededException;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StoreAndForwardDatabaseManager extends ForwardingDatabaseManager {
+
+    //Keeps customers who are already logged in able to deposit and withdraw while the database is unreachable.
+    //Such a transaction is written to the offline journal instead, and the JournalReplayer applies it once the
+    //database is back. Deposits are always taken; withdrawals only while the account's not yet replayed offline
+    //withdrawals stay within offline_withdrawal_limit, since the balance the session shows can't be checked.
+    //Logging in still needs the database, as only the database holds the stored PINs.
+    //A transaction goes offline only when it certainly was not applied: the circuit breaker was open, or no
+    //connection could be opened. A connection lost after a statement went out may have committed anyway, so that
+    //failure is reported as before rather than journalled and possibly applied twice.
+    //An account with entries still waiting keeps journalling its transactions behind them until the replayer has
+    //caught up, and the replayer is asked to start at once; the customer never waits for the replay itself
+
+    private final OfflineJournal journal;
+    private final JournalReplayer replayer;
+    private final int offline_withdrawal_limit;
+
+    private final LongAdder offline_deposits = new LongAdder();
+    private final LongAdder offline_withdrawals = new LongAdder();
+    private final LongAdder refused_withdrawals = new LongAdder();
+
+    public StoreAndForwardDatabaseManager(DatabaseManager delegate, OfflineJournal journal, JournalReplayer replayer,
+                                          int offline_withdrawal_limit) {
+
+        super(delegate);
+        this.journal = journal;
+        this.replayer = replayer;
+        this.offline_withdrawal_limit = offline_withdrawal_limit;
+    }
+
+
+    static boolean isUnreachable(DatabaseException error) {
+
+        return error instanceof CircuitOpenException || error instanceof ConnectionUnavailableException;
+    }
+
+    @Override
+    public SessionContext loadSession(String login) throws DatabaseException {
+
+        //Any waiting entries are replayed before a session is loaded, so its balance already includes them
+        if (journal.getPendingCount() > 0) {
+
+            try {
+
+                replayer.replayPending();
+            }
+            catch (DatabaseException error) {
+
+                //The entries are left to the background replayer; the login goes ahead either way
+            }
+        }
+
+        return super.loadSession(login);
+    }
+
+    @Override
+    public int applyTransaction(int account_num, int new_balance, TransactionType type, int amount)
+            throws DatabaseException {
+
+        //The account's offline entries must reach the database before anything newer, or the balance written now
+        //would be overtaken by older changes replayed after it, so the transaction is queued behind them
+        if (journal.hasPending(account_num)) {
+
+            try {
+
+                return recordOffline(account_num, new_balance, type, amount, null);
+            }
+            finally {
+
+                replayer.requestReplay();
+            }
+        }
+
+        try {
+
+            return super.applyTransaction(account_num, new_balance, type, amount);
+        }
+        catch (DatabaseException error) {
+
+            if (!isUnreachable(error)) {
+
+                throw error;
+            }
+
+            return recordOffline(account_num, new_balance, type, amount, error);
+        }
+    }
+
+    private int recordOffline(int account_num, int new_balance, TransactionType type, int amount,
+                              DatabaseException cause) throws DatabaseException {
+
+        long sequence;
+        try {
+
+            sequence = journal.append(account_num, type, amount, offline_withdrawal_limit);
+        }
+        catch (IOException error) {
+
+            //Without the journal there is nowhere to keep the transaction, so the original failure stands
+            if (cause == null) {
+
+                throw new DatabaseException("Error journalling transaction for account: " + account_num, error);
+            }
+            cause.addSuppressed(error);
+            throw cause;
+        }
+
+        if (sequence < 0) {
+
+            refused_withdrawals.increment();
+            int remaining = Math.max(0, offline_withdrawal_limit - journal.getPendingWithdrawn(account_num));
+            throw new OfflineLimitExceededException("Withdrawal of " + amount + " exceeds the offline limit for " +
+                    "account: " + account_num, remaining);
+        }
+
+        if (type == TransactionType.DEPOSIT) {
+
+            offline_deposits.increment();
+        }
+        else {
+
+            offline_withdrawals.increment();
+        }
+
+        //The session's own arithmetic is all there is to go on until the entry is replayed
+        return new_balance;
+    }
+
+    public long getOfflineDeposits() {
+
+        return offline_deposits.sum();
+    }
+
+    public long getOfflineWithdrawals() {
+
+        return offline_withdrawals.sum();
+    }
+
+    public long getRefusedWithdrawals() {
+
+        return refused_withdrawals.sum();
+    }
+
+    public int getOfflineWithdrawalLimit() {
+
+        return offline_withdrawal_limit;
+    }
+}
@@ -0,0 +1,126 @@
+package repository.resilience;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+public class CircuitBreaker {
+
+    public enum State {
+
+        //Calls go through normally
+        CLOSED,
+
+        //The database is considered unhealthy; calls fail immediately without reaching it
+        OPEN,
+
+        //The open period is over; a single trial call is let through to see if the database recovered
+        HALF_OPEN
+    }
+
+    private final int failure_threshold;
+    private final long open_duration_ms;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutive_failures = 0;
+    private long opened_at = 0;
+    private boolean trial_in_flight = false;
+
+    //How many times the breaker has entered each state, and how many calls it turned away while open
+    private final Map<State, Long> transitions = new EnumMap<>(State.class);
+    private long rejected_calls = 0;
+
+    public CircuitBreaker(int failure_threshold, long open_duration_ms) {
+
+        this(failure_threshold, open_duration_ms, System::currentTimeMillis);
+    }
+
+    public CircuitBreaker(int failure_threshold, long open_duration_ms, LongSupplier clock) {
+
+        this.failure_threshold = failure_threshold;
+        this.open_duration_ms = open_duration_ms;
+        this.clock = clock;
+
+        for (State each_state : State.values()) {
+
+            transitions.put(each_state, 0L);
+        }
+    }
+
+
+    public synchronized boolean allowRequest() {
+
+        //Once the open period has passed, the breaker moves to half-open and lets exactly one trial call through
+        if (state == State.OPEN && clock.getAsLong() - opened_at >= open_duration_ms) {
+
+            moveTo(State.HALF_OPEN);
+        }
+
+        if (state == State.CLOSED) {
+
+            return true;
+        }
+
+        if (state == State.HALF_OPEN && !trial_in_flight) {
+
+            trial_in_flight = true;
+            return true;
+        }
+
+        rejected_calls++;
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+
+        consecutive_failures = 0;
+        trial_in_flight = false;
+
+        if (state != State.CLOSED) {
+
+            moveTo(State.CLOSED);
+        }
+    }
+
+    public synchronized void recordNoResponse() {
+
+        //The call ended before it reached the database, so it says nothing about the database's health. A half-open
+        //breaker stays half-open, and lets the next call be the trial
+        trial_in_flight = false;
+    }
+
+    public synchronized void recordFailure() {
+
+        consecutive_failures++;
+        trial_in_flight = false;
+
+        //A failed trial reopens the breaker straight away; otherwise it opens after enough failures in a row
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutive_failures >= failure_threshold)) {
+
+            opened_at = clock.getAsLong();
+            moveTo(State.OPEN);
+        }
+    }
+
+    private void moveTo(State new_state) {
+
+        state = new_state;
+        transitions.merge(new_state, 1L, Long::sum);
+    }
+
+    public synchronized State getState() {
+
+        return state;
+    }
+
+    public synchronized long getTransitionCount(State to_state) {
+
+        return transitions.get(to_state);
+    }
+
+    public synchronized long getRejectedCalls() {
+
+        return rejected_calls;
+    }
+}
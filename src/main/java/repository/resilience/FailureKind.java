@@ -0,0 +1,16 @@
+package repository.resilience;
+
+public enum FailureKind {
+
+    //The database was briefly unreachable or too slow; the same call may well succeed if tried again
+    TRANSIENT,
+
+    //The transaction was rolled back to break a deadlock, so nothing was written and it is always safe to retry
+    DEADLOCK,
+
+    //The data broke a rule such as a unique key; retrying would fail the same way
+    CONSTRAINT_VIOLATION,
+
+    //Anything else, such as bad SQL or a missing table; retrying would not help
+    PERMANENT
+}
@@ -0,0 +1,137 @@
+package repository.resilience;
+
+import repository.DatabaseCall;
+import repository.DatabaseManager;
+import repository.DatabaseOperation;
+import repository.ForwardingDatabaseManager;
+import repository.exception.CircuitOpenException;
+import repository.exception.DatabaseException;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ResilientDatabaseManager extends ForwardingDatabaseManager {
+
+    private final RetryPolicy retry_policy;
+    private final CircuitBreaker circuit_breaker;
+
+    //Counters for how calls failed and how often they were retried, readable while the application runs
+    private final Map<FailureKind, LongAdder> failures = new EnumMap<>(FailureKind.class);
+    private final LongAdder retries = new LongAdder();
+
+    public ResilientDatabaseManager(DatabaseManager delegate, RetryPolicy retry_policy, CircuitBreaker circuit_breaker) {
+
+        super(delegate);
+        this.retry_policy = retry_policy;
+        this.circuit_breaker = circuit_breaker;
+
+        for (FailureKind kind : FailureKind.values()) {
+
+            failures.put(kind, new LongAdder());
+        }
+    }
+
+
+    @Override
+    protected <T> T invoke(DatabaseOperation operation, DatabaseCall<T> call) throws DatabaseException {
+
+        int attempt = 0;
+
+        while (true) {
+
+            //While the breaker is open, the call fails at once instead of waiting on a database that is down
+            if (!circuit_breaker.allowRequest()) {
+
+                throw new CircuitOpenException("The database is currently unavailable; " + operation + " was not attempted");
+            }
+
+            attempt++;
+            DatabaseException failure;
+            FailureKind kind;
+
+            try {
+
+                T result = call.call();
+                circuit_breaker.recordSuccess();
+                return result;
+            }
+            catch (DatabaseException error) {
+
+                failure = error;
+                kind = SqlStateClassifier.classify(error);
+                failures.get(kind).increment();
+            }
+            catch (RuntimeException error) {
+
+                //Counted as a failure so that a half-open breaker is never left waiting on a trial that ended here
+                circuit_breaker.recordFailure();
+                throw error;
+            }
+
+            //Only transient failures say the database is unhealthy. A deadlock or a broken constraint means the
+            //database answered, so the breaker treats those as healthy responses. A failure that never reached the
+            //database (a call the limiter shed, say) counts as neither
+            if (kind == FailureKind.TRANSIENT) {
+
+                circuit_breaker.recordFailure();
+            }
+            else if (SqlStateClassifier.isDatabaseResponse(failure)) {
+
+                circuit_breaker.recordSuccess();
+            }
+            else {
+
+                circuit_breaker.recordNoResponse();
+            }
+
+            if (!isRetryable(operation, kind) || attempt >= retry_policy.getMaxAttempts()) {
+
+                throw failure;
+            }
+
+            retries.increment();
+            pause(retry_policy.delayBeforeRetry(attempt));
+        }
+    }
+
+    static boolean isRetryable(DatabaseOperation operation, FailureKind kind) {
+
+        //A deadlock victim was rolled back, so even an insert can safely run again. After any other transient
+        //failure it is unknown whether the statement took effect, so only idempotent operations are retried
+        if (kind == FailureKind.DEADLOCK) {
+
+            return true;
+        }
+
+        return kind == FailureKind.TRANSIENT && operation.isIdempotent();
+    }
+
+    private void pause(long delay_ms) throws DatabaseException {
+
+        try {
+
+            Thread.sleep(delay_ms);
+        }
+        catch (InterruptedException error) {
+
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while waiting to retry", error);
+        }
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+
+        return circuit_breaker;
+    }
+
+    public long getFailureCount(FailureKind kind) {
+
+        return failures.get(kind).sum();
+    }
+
+    public long getRetryCount() {
+
+        return retries.sum();
+    }
+}
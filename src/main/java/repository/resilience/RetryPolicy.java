@@ -0,0 +1,39 @@
+package repository.resilience;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class RetryPolicy {
+
+    //max_attempts counts the first try, so 3 means the call is retried at most twice
+    private final int max_attempts;
+    private final long base_delay_ms;
+    private final long max_delay_ms;
+
+    public RetryPolicy(int max_attempts, long base_delay_ms, long max_delay_ms) {
+
+        if (max_attempts < 1 || base_delay_ms < 0 || max_delay_ms < base_delay_ms) {
+
+            throw new IllegalArgumentException("Invalid retry policy");
+        }
+
+        this.max_attempts = max_attempts;
+        this.base_delay_ms = base_delay_ms;
+        this.max_delay_ms = max_delay_ms;
+    }
+
+
+    public int getMaxAttempts() {
+
+        return max_attempts;
+    }
+
+    public long delayBeforeRetry(int failed_attempts) {
+
+        //The ceiling doubles with each failure (base, 2 * base, 4 * base, ...) up to max_delay_ms, and the actual
+        //delay is picked at random below it, so terminals that failed together don't all retry at the same moment
+        int doublings = Math.min(failed_attempts - 1, 30);
+        long ceiling = Math.min(max_delay_ms, base_delay_ms << doublings);
+
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
@@ -0,0 +1,80 @@
+package repository.resilience;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+
+public class SqlStateClassifier {
+
+    //MySQL vendor error codes that do not have a distinctive SQLState of their own
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static final int ER_QUERY_INTERRUPTED = 1317;
+
+    private SqlStateClassifier() {
+
+    }
+
+
+    public static FailureKind classify(Throwable error) {
+
+        //DatabaseException wraps the SQLException, so the cause chain is searched for the first one
+        SQLException sql_error = findSqlException(error);
+        if (sql_error == null) {
+
+            return FailureKind.PERMANENT;
+        }
+
+        String sql_state = sql_error.getSQLState() == null ? "" : sql_error.getSQLState();
+        int error_code = sql_error.getErrorCode();
+
+        //SQLState 40001 (serialization failure) is what MySQL reports for a deadlock victim
+        if (error_code == ER_LOCK_DEADLOCK || sql_state.equals("40001")) {
+
+            return FailureKind.DEADLOCK;
+        }
+
+        //Class 23 covers integrity constraint violations, such as duplicate keys and foreign keys
+        if (sql_state.startsWith("23")) {
+
+            return FailureKind.CONSTRAINT_VIOLATION;
+        }
+
+        //Class 08 covers connection failures; the driver's transient exceptions include query timeouts
+        if (sql_state.startsWith("08") || sql_error instanceof SQLTransientException
+                || error_code == ER_LOCK_WAIT_TIMEOUT || error_code == ER_QUERY_INTERRUPTED) {
+
+            return FailureKind.TRANSIENT;
+        }
+
+        return FailureKind.PERMANENT;
+    }
+
+    public static boolean isDatabaseResponse(Throwable error) {
+
+        //Only a failure with an SQLException in its cause chain came from the database (or its driver); anything
+        //else, such as a call shed by the concurrency limiter, never reached it
+        return findSqlException(error) != null;
+    }
+
+    public static boolean isConnectionFailure(Throwable error) {
+
+        //Class 08 alone: the database could not be reached, or the connection to it was lost
+        SQLException sql_error = findSqlException(error);
+        return sql_error != null && sql_error.getSQLState() != null && sql_error.getSQLState().startsWith("08");
+    }
+
+    private static SQLException findSqlException(Throwable error) {
+
+        Throwable current = error;
+        while (current != null) {
+
+            if (current instanceof SQLException) {
+
+                return (SQLException) current;
+            }
+            current = current.getCause();
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,14 @@
+package repository.schedule;
+
+//How the scheduler treats one priority class: its share of the database when classes compete (weight), the most
+//of its calls that may run at once, and how long a call may wait in the queue before it is turned away
+public record ClassPolicy(int weight, int max_concurrent, long max_wait_ms) {
+
+    public ClassPolicy {
+
+        if (weight < 1 || max_concurrent < 1 || max_wait_ms < 0) {
+
+            throw new IllegalArgumentException("Weight and concurrency must be at least 1, and the wait not negative");
+        }
+    }
+}
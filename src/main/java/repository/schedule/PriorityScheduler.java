@@ -0,0 +1,200 @@
+package repository.schedule;
+
+import repository.WorkPriority;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class PriorityScheduler {
+
+    //Decides which waiting database call runs next when all max_concurrent slots are taken. Each priority class has
+    //its own queue, and the queues are served by weighted fair queuing: every call gets a finish tag of
+    //max(virtual time, its class's last tag) + 1 / weight, and the lowest tag goes first. A class with weight 8
+    //therefore gets 8 turns for every 1 of a class with weight 1 while both have work waiting, and an idle class
+    //does not build up credit. A class already running its max_concurrent calls is skipped, so a large batch job
+    //can never hold more than its cap of the slots; customer work simply overtakes it
+
+    private static final class Ticket {
+
+        private final WorkPriority priority;
+        private final double finish_tag;
+        private boolean granted = false;
+
+        private Ticket(WorkPriority priority, double finish_tag) {
+
+            this.priority = priority;
+            this.finish_tag = finish_tag;
+        }
+    }
+
+    private final int max_concurrent;
+    private final Map<WorkPriority, ClassPolicy> policies;
+
+    private final Map<WorkPriority, ArrayDeque<Ticket>> queues = new EnumMap<>(WorkPriority.class);
+    private final Map<WorkPriority, Double> last_finish_tag = new EnumMap<>(WorkPriority.class);
+    private final Map<WorkPriority, Integer> in_flight = new EnumMap<>(WorkPriority.class);
+    private double virtual_time = 0;
+    private int total_in_flight = 0;
+
+    private final Map<WorkPriority, Long> dispatched = new EnumMap<>(WorkPriority.class);
+    private final Map<WorkPriority, Long> timed_out = new EnumMap<>(WorkPriority.class);
+    private final Map<WorkPriority, Long> total_wait_nanos = new EnumMap<>(WorkPriority.class);
+    private final Map<WorkPriority, Long> max_wait_nanos = new EnumMap<>(WorkPriority.class);
+
+    public PriorityScheduler(int max_concurrent, Map<WorkPriority, ClassPolicy> policies) {
+
+        if (max_concurrent < 1) {
+
+            throw new IllegalArgumentException("Max concurrent must be at least 1");
+        }
+
+        this.max_concurrent = max_concurrent;
+        this.policies = new EnumMap<>(policies);
+
+        for (WorkPriority priority : WorkPriority.values()) {
+
+            if (!policies.containsKey(priority)) {
+
+                throw new IllegalArgumentException("No policy for " + priority);
+            }
+
+            queues.put(priority, new ArrayDeque<>());
+            last_finish_tag.put(priority, 0.0);
+            in_flight.put(priority, 0);
+            dispatched.put(priority, 0L);
+            timed_out.put(priority, 0L);
+            total_wait_nanos.put(priority, 0L);
+            max_wait_nanos.put(priority, 0L);
+        }
+    }
+
+
+    public synchronized boolean acquire(WorkPriority priority) throws InterruptedException {
+
+        ClassPolicy policy = policies.get(priority);
+        double finish_tag = Math.max(virtual_time, last_finish_tag.get(priority)) + 1.0 / policy.weight();
+        last_finish_tag.put(priority, finish_tag);
+
+        Ticket ticket = new Ticket(priority, finish_tag);
+        queues.get(priority).addLast(ticket);
+        dispatch();
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(policy.max_wait_ms());
+
+        try {
+
+            while (!ticket.granted) {
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+
+                    //Waited too long; the call leaves the queue without running
+                    queues.get(priority).remove(ticket);
+                    timed_out.merge(priority, 1L, Long::sum);
+                    return false;
+                }
+
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+        catch (InterruptedException error) {
+
+            //A slot granted just as the wait was interrupted is handed straight back
+            if (ticket.granted) {
+
+                release(priority);
+            }
+            else {
+
+                queues.get(priority).remove(ticket);
+            }
+            throw error;
+        }
+
+        long waited = System.nanoTime() - start;
+        total_wait_nanos.merge(priority, waited, Long::sum);
+        max_wait_nanos.merge(priority, waited, Math::max);
+        return true;
+    }
+
+    public synchronized void release(WorkPriority priority) {
+
+        in_flight.merge(priority, -1, Integer::sum);
+        total_in_flight--;
+        dispatch();
+    }
+
+    private void dispatch() {
+
+        boolean granted_any = false;
+
+        //Free slots go to the waiting call with the lowest finish tag, among the classes still under their cap
+        while (total_in_flight < max_concurrent) {
+
+            Ticket next = null;
+            for (WorkPriority priority : WorkPriority.values()) {
+
+                Ticket head = queues.get(priority).peekFirst();
+                if (head != null && in_flight.get(priority) < policies.get(priority).max_concurrent() &&
+                        (next == null || head.finish_tag < next.finish_tag)) {
+
+                    next = head;
+                }
+            }
+
+            if (next == null) {
+
+                break;
+            }
+
+            queues.get(next.priority).removeFirst();
+            next.granted = true;
+            in_flight.merge(next.priority, 1, Integer::sum);
+            total_in_flight++;
+            dispatched.merge(next.priority, 1L, Long::sum);
+
+            //Virtual time follows the work being served, so a class that was idle starts level with the others
+            virtual_time = next.finish_tag;
+            granted_any = true;
+        }
+
+        if (granted_any) {
+
+            notifyAll();
+        }
+    }
+
+    public synchronized int getQueueDepth(WorkPriority priority) {
+
+        return queues.get(priority).size();
+    }
+
+    public synchronized int getInFlight(WorkPriority priority) {
+
+        return in_flight.get(priority);
+    }
+
+    public synchronized long getDispatchedCount(WorkPriority priority) {
+
+        return dispatched.get(priority);
+    }
+
+    public synchronized long getTimedOutCount(WorkPriority priority) {
+
+        return timed_out.get(priority);
+    }
+
+    public synchronized double getAverageWaitMs(WorkPriority priority) {
+
+        long count = dispatched.get(priority);
+        return count == 0 ? 0.0 : total_wait_nanos.get(priority) / 1_000_000.0 / count;
+    }
+
+    public synchronized double getMaxWaitMs(WorkPriority priority) {
+
+        return max_wait_nanos.get(priority) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,56 @@
+package repository.schedule;
+
+import repository.DatabaseCall;
+import repository.DatabaseManager;
+import repository.DatabaseOperation;
+import repository.ForwardingDatabaseManager;
+import repository.exception.DatabaseException;
+import repository.exception.LimitExceededException;
+
+public class ScheduledDatabaseManager extends ForwardingDatabaseManager {
+
+    //Every call waits for its turn from the scheduler, according to the priority of its operation
+    private final PriorityScheduler scheduler;
+
+    public ScheduledDatabaseManager(DatabaseManager delegate, PriorityScheduler scheduler) {
+
+        super(delegate);
+        this.scheduler = scheduler;
+    }
+
+
+    @Override
+    protected <T> T invoke(DatabaseOperation operation, DatabaseCall<T> call) throws DatabaseException {
+
+        boolean admitted;
+
+        try {
+
+            admitted = scheduler.acquire(operation.getPriority());
+        }
+        catch (InterruptedException error) {
+
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while waiting for the database", error);
+        }
+
+        if (!admitted) {
+
+            throw new LimitExceededException("The database is busy; " + operation + " waited too long to run");
+        }
+
+        try {
+
+            return call.call();
+        }
+        finally {
+
+            scheduler.release(operation.getPriority());
+        }
+    }
+
+    public PriorityScheduler getScheduler() {
+
+        return scheduler;
+    }
+}
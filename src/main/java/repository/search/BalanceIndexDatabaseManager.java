@@ -0,0 +1,219 @@
+package repository.search;
+
+import model.account.Account;
+import model.account.NewAccount;
+import model.transaction.TransactionType;
+import repository.DatabaseManager;
+import repository.ForwardingDatabaseManager;
+import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+import repository.offline.ReplayOutcome;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class BalanceIndexDatabaseManager extends ForwardingDatabaseManager {
+
+    //Keeps a BalanceRangeIndex in step with every committed change to an account's balance or status: rebuild()
+    //fills it from a streaming scan, and each transaction, balance write, replayed journal entry, creation, status
+    //change and deletion is applied once the database has returned. It belongs below the offline journal, so a
+    //transaction moves the index when it reaches the database, not when it is journaled
+
+    private final BalanceRangeIndex index;
+
+    //While rebuild() is scanning, the accounts written in the meantime, which the scan may have read either before
+    //or after the write
+    private volatile Set<Integer> written_during_rebuild;
+    private final Object rebuild_lock = new Object();
+
+    public BalanceIndexDatabaseManager(DatabaseManager delegate, BalanceRangeIndex index) {
+
+        super(delegate);
+        this.index = index;
+    }
+
+
+    public int rebuild() throws DatabaseException {
+
+        synchronized (rebuild_lock) {
+
+            Set<Integer> written = ConcurrentHashMap.newKeySet();
+            written_during_rebuild = written;
+
+            try {
+
+                BalanceRangeIndex new_index = new BalanceRangeIndex();
+                int scanned = getDelegate().scanAccounts((account_num, holder, balance, status) ->
+                        new_index.put(account_num, status, balance));
+                index.replaceWith(new_index);
+
+                //The accounts written during the scan are read again, so the index has them as committed
+                if (!written.isEmpty()) {
+
+                    int[] account_nums = written.stream().mapToInt(Integer::intValue).toArray();
+                    Map<Integer, Account> accounts = getDelegate().getAccounts(account_nums);
+                    for (int account_num : account_nums) {
+
+                        Account account = accounts.get(account_num);
+                        if (account == null) {
+
+                            index.remove(account_num);
+                        }
+                        else {
+
+                            index.put(account_num, account.getStatus(), account.getBalance());
+                        }
+                    }
+                }
+
+                return scanned;
+            }
+            finally {
+
+                written_during_rebuild = null;
+            }
+        }
+    }
+
+    private void written(int account_num) {
+
+        Set<Integer> written = written_during_rebuild;
+        if (written != null) {
+
+            written.add(account_num);
+        }
+    }
+
+    @Override
+    public int applyTransaction(int account_num, int new_balance, TransactionType type, int amount)
+            throws DatabaseException {
+
+        //-1 is a withdrawal the database refused and -2 an account that no longer exists; anything else is the
+        //balance it left
+        int balance_after = super.applyTransaction(account_num, new_balance, type, amount);
+        if (balance_after >= 0) {
+
+            index.updateBalance(account_num, balance_after);
+            written(account_num);
+        }
+
+        return balance_after;
+    }
+
+    @Override
+    public void updateAccountBalance(int account_num, int new_balance) throws DatabaseException {
+
+        super.updateAccountBalance(account_num, new_balance);
+        index.updateBalance(account_num, new_balance);
+        written(account_num);
+    }
+
+    @Override
+    public ReplayOutcome[] applyJournalEntries(String terminal_id, List<JournalEntry> entries)
+            throws DatabaseException {
+
+        //A replay does not report the balances it left, but each applied entry moved its account's balance by
+        //exactly its amount
+        ReplayOutcome[] outcomes = super.applyJournalEntries(terminal_id, entries);
+        for (int i = 0; i < outcomes.length; i++) {
+
+            if (outcomes[i] == ReplayOutcome.APPLIED) {
+
+                JournalEntry entry = entries.get(i);
+                index.adjustBalance(entry.account_num(),
+                        entry.type() == TransactionType.DEPOSIT ? entry.amount() : -entry.amount());
+                written(entry.account_num());
+            }
+        }
+
+        return outcomes;
+    }
+
+    @Override
+    public int createNewAccount(String login, String pin, String holder, int balance, String status)
+            throws DatabaseException {
+
+        int account_num = super.createNewAccount(login, pin, holder, balance, status);
+        indexCreated(account_num, status, balance);
+
+        return account_num;
+    }
+
+    @Override
+    public int createNewAccount(int account_num, String login, String pin, String holder, int balance, String status)
+            throws DatabaseException {
+
+        int result = super.createNewAccount(account_num, login, pin, holder, balance, status);
+        indexCreated(result, status, balance);
+
+        return result;
+    }
+
+    @Override
+    public int[] createNewAccounts(List<NewAccount> new_accounts) throws DatabaseException {
+
+        int[] results = super.createNewAccounts(new_accounts);
+        for (int i = 0; i < results.length; i++) {
+
+            indexCreated(results[i], new_accounts.get(i).status(), new_accounts.get(i).balance());
+        }
+
+        return results;
+    }
+
+    private void indexCreated(int account_num, String status, int balance) {
+
+        //Negative results are rows that were not created (a taken login or number)
+        if (account_num > 0) {
+
+            index.put(account_num, status, balance);
+            written(account_num);
+        }
+    }
+
+    @Override
+    public void deleteAccount(int account_num) throws DatabaseException {
+
+        super.deleteAccount(account_num);
+        index.remove(account_num);
+        written(account_num);
+    }
+
+    @Override
+    public boolean updateAccountInfo(int account_num, String new_holder,
+                                     String new_status, String new_login, String new_pin) throws DatabaseException {
+
+        boolean updated = super.updateAccountInfo(account_num, new_holder, new_status, new_login, new_pin);
+
+        //An empty status leaves it as it was
+        if (updated && !new_status.isEmpty()) {
+
+            index.updateStatus(account_num, new_status);
+            written(account_num);
+        }
+
+        return updated;
+    }
+
+    @Override
+    public int[] updateAccounts(int[] account_nums, String new_holder, String new_status) throws DatabaseException {
+
+        int[] results = super.updateAccounts(account_nums, new_holder, new_status);
+
+        if (!new_status.isEmpty()) {
+
+            for (int i = 0; i < results.length; i++) {
+
+                if (results[i] == 1) {
+
+                    index.updateStatus(account_nums[i], new_status);
+                    written(account_nums[i]);
+                }
+            }
+        }
+
+        return results;
+    }
+}
@@ -0,0 +1,248 @@
+package repository.search;
+
+import model.account.BalanceEntry;
+import model.account.BalanceRangePage;
+import model.account.StatusTotals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class BalanceRangeIndex {
+
+    //Answers "accounts with this status and a balance between these two" from memory. Each status has a skip list
+    //of its accounts ordered by balance, then account number, each packed into one long (balance in the high half,
+    //account number in the low half), so a range is a walk from one key to another and a page costs the same
+    //however many accounts the status has. A map from account to its current status and balance finds the key to
+    //take out when either changes.
+    //Writes to one account run one at a time (the map's compute() locks its entry); writes to different accounts,
+    //and every read, run at once. A query running while an account moves may miss it for that moment, the same as
+    //it would have missed it a moment earlier.
+    //Each status also keeps a running count of its accounts and sum of their balances, moved by the same writes, so
+    //totals() costs one read per status instead of a walk over every account
+
+    private record Position(String status, int balance) {
+    }
+
+    private record Totals(LongAdder accounts, LongAdder balance_total) {
+
+        private Totals() {
+
+            this(new LongAdder(), new LongAdder());
+        }
+    }
+
+    private record State(Map<Integer, Position> positions,
+                         Map<String, ConcurrentSkipListSet<Long>> by_status,
+                         Map<String, Totals> totals) {
+
+        private State() {
+
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    private volatile State state = new State();
+
+    //Writes share the read lock, so any number run at once; replaceWith() takes the write lock so no write lands
+    //in the contents it is replacing
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+
+    static long key(int balance, int account_num) {
+
+        return ((long) balance << 32) | (account_num & 0xFFFFFFFFL);
+    }
+
+    private static BalanceEntry entry(long key) {
+
+        return new BalanceEntry((int) key, (int) (key >> 32));
+    }
+
+    public void put(int account_num, String status, int balance) {
+
+        //Adds the account, or moves it to its new status and balance
+        lock.readLock().lock();
+        try {
+
+            State current = state;
+            current.positions.compute(account_num, (number, old) -> move(current, number, old,
+                    new Position(status, balance)));
+        }
+        finally {
+
+            lock.readLock().unlock();
+        }
+    }
+
+    public void updateBalance(int account_num, int balance) {
+
+        //Accounts the index does not have are left out; their status is not known here
+        lock.readLock().lock();
+        try {
+
+            State current = state;
+            current.positions.computeIfPresent(account_num, (number, old) -> move(current, number, old,
+                    new Position(old.status(), balance)));
+        }
+        finally {
+
+            lock.readLock().unlock();
+        }
+    }
+
+    public void adjustBalance(int account_num, int change) {
+
+        lock.readLock().lock();
+        try {
+
+            State current = state;
+            current.positions.computeIfPresent(account_num, (number, old) -> move(current, number, old,
+                    new Position(old.status(), old.balance() + change)));
+        }
+        finally {
+
+            lock.readLock().unlock();
+        }
+    }
+
+    public void updateStatus(int account_num, String status) {
+
+        lock.readLock().lock();
+        try {
+
+            State current = state;
+            current.positions.computeIfPresent(account_num, (number, old) -> move(current, number, old,
+                    new Position(status, old.balance())));
+        }
+        finally {
+
+            lock.readLock().unlock();
+        }
+    }
+
+    public void remove(int account_num) {
+
+        lock.readLock().lock();
+        try {
+
+            State current = state;
+            current.positions.computeIfPresent(account_num, (number, old) -> move(current, number, old, null));
+        }
+        finally {
+
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Position move(State current, int account_num, Position old, Position moved) {
+
+        //Runs inside compute(), so nothing else moves this account meanwhile
+        if (old != null) {
+
+            current.by_status.get(old.status()).remove(key(old.balance(), account_num));
+            Totals totals = current.totals.get(old.status());
+            totals.accounts().decrement();
+            totals.balance_total().add(-old.balance());
+        }
+        if (moved != null && moved.status() != null) {
+
+            current.by_status.computeIfAbsent(moved.status(), status -> new ConcurrentSkipListSet<>())
+                    .add(key(moved.balance(), account_num));
+            Totals totals = current.totals.computeIfAbsent(moved.status(), status -> new Totals());
+            totals.accounts().increment();
+            totals.balance_total().add(moved.balance());
+            return moved;
+        }
+
+        return null;
+    }
+
+    public BalanceRangePage range(String status, int min_balance, int max_balance, BalanceEntry after, int limit) {
+
+        //Up to limit accounts with the status and a balance from min_balance to max_balance, both included,
+        //starting after the given entry (the last one of the previous page), or from the lowest balance if null
+        ConcurrentSkipListSet<Long> accounts = state.by_status.get(status);
+        if (accounts == null || min_balance > max_balance) {
+
+            return BalanceRangePage.EMPTY;
+        }
+
+        long from = key(min_balance, 0);
+        boolean from_inclusive = true;
+        if (after != null && key(after.balance(), after.account_num()) >= from) {
+
+            from = key(after.balance(), after.account_num());
+            from_inclusive = false;
+        }
+
+        long to = key(max_balance, -1);
+        if (from > to) {
+
+            return BalanceRangePage.EMPTY;
+        }
+
+        //One entry more than the page is read, to tell whether there is another page
+        NavigableSet<Long> range = accounts.subSet(from, from_inclusive, to, true);
+        List<BalanceEntry> entries = new ArrayList<>(Math.min(limit, 1024));
+        for (long key : range) {
+
+            if (entries.size() == limit) {
+
+                return new BalanceRangePage(entries, true);
+            }
+            entries.add(entry(key));
+        }
+
+        return new BalanceRangePage(entries, false);
+    }
+
+    public void replaceWith(BalanceRangeIndex other) {
+
+        lock.writeLock().lock();
+        try {
+
+            state = other.state;
+        }
+        finally {
+
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+
+        return state.positions.size();
+    }
+
+    public int count(String status) {
+
+        Totals totals = state.totals.get(status);
+        return totals == null ? 0 : totals.accounts().intValue();
+    }
+
+    public List<StatusTotals> totals() {
+
+        //Every status that has accounts, in alphabetical order. An account moving while this runs may be counted
+        //under both its statuses or neither for that moment
+        List<StatusTotals> totals = new ArrayList<>();
+        for (Map.Entry<String, Totals> entry : state.totals.entrySet()) {
+
+            long accounts = entry.getValue().accounts().sum();
+            if (accounts > 0) {
+
+                totals.add(new StatusTotals(entry.getKey(), accounts, entry.getValue().balance_total().sum()));
+            }
+        }
+        totals.sort(Comparator.comparing(StatusTotals::status));
+
+        return totals;
+    }
+}
@@ -0,0 +1,179 @@
+package repository.search;
+
+import model.account.Account;
+import model.account.NewAccount;
+import repository.DatabaseManager;
+import repository.ForwardingDatabaseManager;
+import repository.exception.DatabaseException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class HolderIndexDatabaseManager extends ForwardingDatabaseManager {
+
+    //Keeps a HolderNameIndex in step with the accounts table: rebuild() fills it from a streaming scan, and every
+    //create, holder change and delete that goes through this manager is applied to it once the database has
+    //committed it. As with the Bloom filters, accounts written by anything else are only seen at the next rebuild
+
+    private final HolderNameIndex index;
+
+    //While rebuild() is scanning, the accounts written in the meantime, which the scan may have read either before
+    //or after the write
+    private volatile Set<Integer> written_during_rebuild;
+    private final Object rebuild_lock = new Object();
+
+    public HolderIndexDatabaseManager(DatabaseManager delegate, HolderNameIndex index) {
+
+        super(delegate);
+        this.index = index;
+    }
+
+
+    public int rebuild() throws DatabaseException {
+
+        synchronized (rebuild_lock) {
+
+            Set<Integer> written = ConcurrentHashMap.newKeySet();
+            written_during_rebuild = written;
+
+            try {
+
+                //The names are streamed into a new index, which replaces the old one in one step; searches use the
+                //old one until then
+                HolderNameIndex new_index = new HolderNameIndex();
+                int scanned = getDelegate().scanAccounts((account_num, holder, balance, status) ->
+                        new_index.put(account_num, holder));
+                index.replaceWith(new_index);
+
+                //The accounts written during the scan are read again, so the index has their names as committed
+                if (!written.isEmpty()) {
+
+                    int[] account_nums = written.stream().mapToInt(Integer::intValue).toArray();
+                    Map<Integer, Account> accounts = getDelegate().getAccounts(account_nums);
+                    for (int account_num : account_nums) {
+
+                        Account account = accounts.get(account_num);
+                        if (account == null) {
+
+                            index.remove(account_num);
+                        }
+                        else {
+
+                            index.put(account_num, account.getHolderName());
+                        }
+                    }
+                }
+
+                return scanned;
+            }
+            finally {
+
+                written_during_rebuild = null;
+            }
+        }
+    }
+
+    private void written(int account_num) {
+
+        Set<Integer> written = written_during_rebuild;
+        if (written != null) {
+
+            written.add(account_num);
+        }
+    }
+
+    private void indexHolder(int account_num, String holder) {
+
+        index.put(account_num, holder);
+        written(account_num);
+    }
+
+    @Override
+    public int createNewAccount(String login, String pin, String holder, int balance, String status)
+            throws DatabaseException {
+
+        int account_num = super.createNewAccount(login, pin, holder, balance, status);
+
+        //Negative results (duplicate login, error) created nothing
+        if (account_num > 0) {
+
+            indexHolder(account_num, holder);
+        }
+
+        return account_num;
+    }
+
+    @Override
+    public int createNewAccount(int account_num, String login, String pin, String holder, int balance, String status)
+            throws DatabaseException {
+
+        int result = super.createNewAccount(account_num, login, pin, holder, balance, status);
+
+        if (result > 0) {
+
+            indexHolder(result, holder);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int[] createNewAccounts(List<NewAccount> new_accounts) throws DatabaseException {
+
+        int[] results = super.createNewAccounts(new_accounts);
+
+        for (int i = 0; i < results.length; i++) {
+
+            if (results[i] > 0) {
+
+                indexHolder(results[i], new_accounts.get(i).holder());
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    public void deleteAccount(int account_num) throws DatabaseException {
+
+        super.deleteAccount(account_num);
+        index.remove(account_num);
+        written(account_num);
+    }
+
+    @Override
+    public boolean updateAccountInfo(int account_num, String new_holder,
+                                     String new_status, String new_login, String new_pin) throws DatabaseException {
+
+        boolean updated = super.updateAccountInfo(account_num, new_holder, new_status, new_login, new_pin);
+
+        //An empty holder leaves the name as it was
+        if (updated && !new_holder.isEmpty()) {
+
+            indexHolder(account_num, new_holder);
+        }
+
+        return updated;
+    }
+
+    @Override
+    public int[] updateAccounts(int[] account_nums, String new_holder, String new_status) throws DatabaseException {
+
+        int[] results = super.updateAccounts(account_nums, new_holder, new_status);
+
+        if (!new_holder.isEmpty()) {
+
+            for (int i = 0; i < results.length; i++) {
+
+                if (results[i] == 1) {
+
+                    indexHolder(account_nums[i], new_holder);
+                }
+            }
+        }
+
+        return results;
+    }
+}
@@ -0,0 +1,429 @@
+package repository.search;
+
+import model.account.HolderMatch;
+import model.account.HolderSearchResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class HolderNameIndex {
+
+    //Finds accounts by the start of any word of the holder's name, without scanning every name. Each name is split
+    //into lower-case words ("Mary-Jane O'Neil" is "mary", "jane" and "oneil"), and every word is stored in a trie,
+    //one node per letter, with the accounts whose name has that word kept in the node where it ends. The accounts
+    //whose names have a word starting with "jo" are then the ones in the "j"-"o" node and below it.
+    //A search for several words ("jo smi") starts from its rarest word, using the number of accounts under each
+    //node, and keeps the accounts whose names also have the other words. Accounts come back in trie order: the
+    //whole-word matches first, then the longer words alphabetically, and by account number within a word. At most
+    //MAX_MATCHES accounts are gathered, so a one-letter search costs no more than a precise one
+
+    public static final int MAX_MATCHES = 1000;
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_ACCOUNTS = new int[0];
+
+    private static final class Node {
+
+        //The children, sorted by their letter
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private int child_count;
+
+        //The accounts with a word that ends here, in ascending order
+        private int[] accounts = NO_ACCOUNTS;
+        private int account_count;
+
+        //How many (account, word) entries this node and everything below it hold
+        private int subtree_count;
+
+        private Node child(char key) {
+
+            int index = Arrays.binarySearch(keys, 0, child_count, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node addChild(char key) {
+
+            int index = Arrays.binarySearch(keys, 0, child_count, key);
+            if (index >= 0) {
+
+                return children[index];
+            }
+
+            index = -index - 1;
+            if (child_count == keys.length) {
+
+                int capacity = Math.max(2, child_count * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+
+            System.arraycopy(keys, index, keys, index + 1, child_count - index);
+            System.arraycopy(children, index, children, index + 1, child_count - index);
+            keys[index] = key;
+            children[index] = new Node();
+            child_count++;
+
+            return children[index];
+        }
+
+        private void removeChild(char key) {
+
+            int index = Arrays.binarySearch(keys, 0, child_count, key);
+            System.arraycopy(keys, index + 1, keys, index, child_count - index - 1);
+            System.arraycopy(children, index + 1, children, index, child_count - index - 1);
+            children[--child_count] = null;
+        }
+
+        private boolean addAccount(int account_num) {
+
+            int index = Arrays.binarySearch(accounts, 0, account_count, account_num);
+            if (index >= 0) {
+
+                return false;
+            }
+
+            index = -index - 1;
+            if (account_count == accounts.length) {
+
+                accounts = Arrays.copyOf(accounts, Math.max(2, account_count * 2));
+            }
+
+            System.arraycopy(accounts, index, accounts, index + 1, account_count - index);
+            accounts[index] = account_num;
+            account_count++;
+
+            return true;
+        }
+
+        private boolean removeAccount(int account_num) {
+
+            int index = Arrays.binarySearch(accounts, 0, account_count, account_num);
+            if (index < 0) {
+
+                return false;
+            }
+
+            System.arraycopy(accounts, index + 1, accounts, index, account_count - index - 1);
+            account_count--;
+
+            return true;
+        }
+    }
+
+    //The trie and the name of every account in it, swapped together by replaceWith()
+    private Node root = new Node();
+    private Map<Integer, String> holders = new HashMap<>();
+    private long node_count = 1;
+
+    //Searches share the read lock; adding, changing and removing names take the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+
+    static List<String> words(String name) {
+
+        //Letters and digits are kept, lower-cased; apostrophes are dropped, and anything else ends a word
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+
+                word.append(c);
+            }
+            else if (c != '\'' && c != '’' && word.length() > 0) {
+
+                words.add(word.toString().toLowerCase(Locale.ROOT));
+                word.setLength(0);
+            }
+        }
+
+        if (word.length() > 0) {
+
+            words.add(word.toString().toLowerCase(Locale.ROOT));
+        }
+
+        return words;
+    }
+
+    public void put(int account_num, String holder) {
+
+        //Adds the account, or replaces the name it was indexed under. An account with no name is removed
+        lock.writeLock().lock();
+        try {
+
+            unlink(account_num);
+            if (holder == null) {
+
+                return;
+            }
+
+            holders.put(account_num, holder);
+            for (String word : new HashSet<>(words(holder))) {
+
+                link(word, account_num);
+            }
+        }
+        finally {
+
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int account_num) {
+
+        lock.writeLock().lock();
+        try {
+
+            unlink(account_num);
+        }
+        finally {
+
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void link(String word, int account_num) {
+
+        Node[] path = new Node[word.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < word.length(); i++) {
+
+            Node next = path[i].child(word.charAt(i));
+            if (next == null) {
+
+                next = path[i].addChild(word.charAt(i));
+                node_count++;
+            }
+            path[i + 1] = next;
+        }
+
+        if (path[word.length()].addAccount(account_num)) {
+
+            for (Node node : path) {
+
+                node.subtree_count++;
+            }
+        }
+    }
+
+    private void unlink(int account_num) {
+
+        String holder = holders.remove(account_num);
+        if (holder == null) {
+
+            return;
+        }
+
+        for (String word : new HashSet<>(words(holder))) {
+
+            Node[] path = new Node[word.length() + 1];
+            path[0] = root;
+            for (int i = 0; i < word.length(); i++) {
+
+                path[i + 1] = path[i].child(word.charAt(i));
+            }
+
+            if (!path[word.length()].removeAccount(account_num)) {
+
+                continue;
+            }
+
+            for (Node node : path) {
+
+                node.subtree_count--;
+            }
+
+            //Nodes that no longer lead to any account are cut off, so names that come and go leave nothing behind
+            for (int i = word.length(); i > 0 && path[i].subtree_count == 0; i--) {
+
+                path[i - 1].removeChild(word.charAt(i - 1));
+                node_count--;
+            }
+        }
+    }
+
+    public HolderSearchResult search(String query, int offset, int limit) {
+
+        //Returns the matches from offset to offset + limit, counting matches up to MAX_MATCHES
+        List<String> query_words = words(query);
+        if (query_words.isEmpty()) {
+
+            return HolderSearchResult.EMPTY;
+        }
+
+        lock.readLock().lock();
+        try {
+
+            //The rarest word's node is walked; a word that no name starts with means there are no matches
+            Node start = null;
+            for (String word : query_words) {
+
+                Node node = find(word);
+                if (node == null) {
+
+                    return HolderSearchResult.EMPTY;
+                }
+                if (start == null || node.subtree_count < start.subtree_count) {
+
+                    start = node;
+                }
+            }
+
+            Gatherer gatherer = new Gatherer(query_words, offset, limit);
+            gatherer.walk(start);
+
+            return new HolderSearchResult(gatherer.page, Math.min(gatherer.matched, MAX_MATCHES),
+                    gatherer.matched > MAX_MATCHES);
+        }
+        finally {
+
+            lock.readLock().unlock();
+        }
+    }
+
+    private Node find(String prefix) {
+
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+
+            node = node.child(prefix.charAt(i));
+        }
+
+        return node;
+    }
+
+    private final class Gatherer {
+
+        private final List<String> query_words;
+        private final int offset;
+        private final int limit;
+
+        private final Set<Integer> seen = new HashSet<>();
+        private final List<HolderMatch> page = new ArrayList<>();
+        private int matched;
+
+        private Gatherer(List<String> query_words, int offset, int limit) {
+
+            this.query_words = query_words;
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        private boolean walk(Node node) {
+
+            //Returns false once one match more than MAX_MATCHES has been found, which is enough to say there are
+            //more
+            for (int i = 0; i < node.account_count; i++) {
+
+                int account_num = node.accounts[i];
+                if (!seen.add(account_num)) {
+
+                    continue;
+                }
+
+                String holder = holders.get(account_num);
+                if (query_words.size() > 1 && !matchesAll(holder)) {
+
+                    continue;
+                }
+
+                if (matched >= offset && matched < offset + limit) {
+
+                    page.add(new HolderMatch(account_num, holder));
+                }
+                if (++matched > MAX_MATCHES) {
+
+                    return false;
+                }
+            }
+
+            for (int i = 0; i < node.child_count; i++) {
+
+                if (!walk(node.children[i])) {
+
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private boolean matchesAll(String holder) {
+
+            //Every word of the query must start some word of the name
+            List<String> name_words = words(holder);
+            for (String query_word : query_words) {
+
+                boolean found = false;
+                for (String name_word : name_words) {
+
+                    if (name_word.startsWith(query_word)) {
+
+                        found = true;
+                        break;
+                    }
+                }
+
+                if (!found) {
+
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    public void replaceWith(HolderNameIndex other) {
+
+        //Takes over another index's contents in one step, so searches never see a half-built index
+        lock.writeLock().lock();
+        try {
+
+            root = other.root;
+            holders = other.holders;
+            node_count = other.node_count;
+        }
+        finally {
+
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+
+        lock.readLock().lock();
+        try {
+
+            return holders.size();
+        }
+        finally {
+
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getNodeCount() {
+
+        lock.readLock().lock();
+        try {
+
+            return node_count;
+        }
+        finally {
+
+            lock.readLock().unlock();
+        }
+    }
+}
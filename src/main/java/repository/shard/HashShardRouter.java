@@ -0,0 +1,30 @@
+package repository.shard;
+
+public class HashShardRouter implements ShardRouter {
+
+    private final int shard_count;
+
+    public HashShardRouter(int shard_count) {
+
+        if (shard_count <= 0) {
+
+            throw new IllegalArgumentException("Shard count must be greater than 0");
+        }
+
+        this.shard_count = shard_count;
+    }
+
+    @Override
+    public int shardFor(int account_num) {
+
+        //Consecutive account numbers are spread evenly across the shards, so new accounts (which are usually the
+        //busiest) never all land on the same database. floorMod keeps the result positive for any input
+        return Math.floorMod(account_num, shard_count);
+    }
+
+    @Override
+    public int getShardCount() {
+
+        return shard_count;
+    }
+}
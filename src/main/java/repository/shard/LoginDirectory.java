@@ -0,0 +1,154 @@
+package repository.shard;
+
+import repository.DatabaseConnection;
+import repository.exception.DatabaseException;
+
+import java.sql.*;
+
+public class LoginDirectory {
+
+    //The directory lives in its own database, separate from the shards. It maps every login to the account number
+    //that owns it, which is how a login (which says nothing about the shard) finds its way to the right shard
+    private final DatabaseConnection db_connection;
+
+    public LoginDirectory(DatabaseConnection db_connection) {
+
+        this.db_connection = db_connection;
+    }
+
+
+    public Connection getConnection() throws SQLException {
+
+        return db_connection.open();
+    }
+
+    public int reserve(String login) throws DatabaseException {
+
+        //The directory's AUTO_INCREMENT column hands out account numbers that are unique across every shard, and its
+        //unique key on login catches duplicate logins before any shard is touched
+        try (Connection connection = getConnection();
+             PreparedStatement update = connection.prepareStatement(
+                     "INSERT INTO account_directory (login) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+
+            update.setString(1, login);
+            update.executeUpdate();
+
+            ResultSet result = update.getGeneratedKeys();
+            if (result.next()) {
+
+                return result.getInt(1);
+            }
+        }
+        catch (SQLException error) {
+
+            if (error.getErrorCode() == 1062) {
+
+                //The login is already taken on some shard; -2 is returned, as with createNewAccount()
+                return -2;
+            }
+
+            throw new DatabaseException("Error reserving account number for login: " + login, error);
+        }
+
+        return -1;
+    }
+
+    public boolean register(int account_num, String login) throws DatabaseException {
+
+        //Records a login for an account number that was chosen elsewhere; false means either one is already taken
+        try (Connection connection = getConnection();
+             PreparedStatement update = connection.prepareStatement(
+                     "INSERT INTO account_directory (account_num, login) VALUES (?, ?)")) {
+
+            update.setInt(1, account_num);
+            update.setString(2, login);
+            return update.executeUpdate() > 0;
+        }
+        catch (SQLException error) {
+
+            if (error.getErrorCode() == 1062) {
+
+                return false;
+            }
+
+            throw new DatabaseException("Error registering login: " + login, error);
+        }
+    }
+
+    public int lookup(String login) throws DatabaseException {
+
+        try (Connection connection = getConnection();
+             PreparedStatement query = connection.prepareStatement(
+                     "SELECT account_num FROM account_directory WHERE login = ?")) {
+
+            query.setString(1, login);
+            ResultSet result = query.executeQuery();
+
+            if (result.next()) {
+
+                return result.getInt("account_num");
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error looking up login: " + login, error);
+        }
+
+        //-1 means no account on any shard uses this login
+        return -1;
+    }
+
+    public String loginFor(int account_num) throws DatabaseException {
+
+        try (Connection connection = getConnection();
+             PreparedStatement query = connection.prepareStatement(
+                     "SELECT login FROM account_directory WHERE account_num = ?")) {
+
+            query.setInt(1, account_num);
+            ResultSet result = query.executeQuery();
+
+            if (result.next()) {
+
+                return result.getString("login");
+            }
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error looking up login for account number: " + account_num, error);
+        }
+
+        //null means the account is not in the directory
+        return null;
+    }
+
+    public void updateLogin(int account_num, String new_login) throws DatabaseException {
+
+        try (Connection connection = getConnection();
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE account_directory SET login = ? WHERE account_num = ?")) {
+
+            update.setString(1, new_login);
+            update.setInt(2, account_num);
+            update.executeUpdate();
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error updating login for account number: " + account_num, error);
+        }
+    }
+
+    public void remove(int account_num) throws DatabaseException {
+
+        try (Connection connection = getConnection();
+             PreparedStatement update = connection.prepareStatement(
+                     "DELETE FROM account_directory WHERE account_num = ?")) {
+
+            update.setInt(1, account_num);
+            update.executeUpdate();
+        }
+        catch (SQLException error) {
+
+            throw new DatabaseException("Error removing account number from directory: " + account_num, error);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package repository.shard;
+
+public class RangeShardRouter implements ShardRouter {
+
+    private final int shard_count;
+    private final int range_size;
+
+    public RangeShardRouter(int shard_count, int range_size) {
+
+        if (shard_count <= 0 || range_size <= 0) {
+
+            throw new IllegalArgumentException("Shard count and range size must be greater than 0");
+        }
+
+        this.shard_count = shard_count;
+        this.range_size = range_size;
+    }
+
+    @Override
+    public int shardFor(int account_num) {
+
+        //Account numbers 0 to range_size - 1 belong to shard 0, the next range to shard 1, and so on. Numbers past
+        //the last range stay on the last shard, so the newest accounts never fall off the end of the table
+        int shard = Math.max(account_num, 0) / range_size;
+        return Math.min(shard, shard_count - 1);
+    }
+
+    @Override
+    public int getShardCount() {
+
+        return shard_count;
+    }
+}
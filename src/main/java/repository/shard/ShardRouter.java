@@ -0,0 +1,10 @@
+package repository.shard;
+
+//Decides which shard an account lives on. Every account number maps to exactly one shard, so any operation that
+//knows the account number can be sent straight to the right database without asking the others
+public interface ShardRouter {
+
+    int shardFor(int account_num);
+
+    int getShardCount();
+}
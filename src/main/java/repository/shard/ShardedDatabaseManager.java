@@ -0,0 +1,544 @@
+package repository.shard;
+
+import model.account.Account;
+import model.account.NewAccount;
+import model.session.SessionContext;
+import model.transaction.ActivitySummary;
+import model.transaction.ActivityTotals;
+import model.transaction.RollupPeriod;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+import model.user.User;
+import repository.AccountConsumer;
+import repository.AccountKeyConsumer;
+import repository.DatabaseManager;
+import repository.DatabaseOperation;
+import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+import repository.offline.ReplayOutcome;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ShardedDatabaseManager extends DatabaseManager {
+
+    //Each shard is an ordinary DatabaseManager pointed at its own MySQL instance. The router picks the shard for an
+    //account number, and the directory answers the one question the router can't: which account owns a login
+    private final LoginDirectory directory;
+    private final List<DatabaseManager> shards;
+    private final ShardRouter router;
+
+    public ShardedDatabaseManager(LoginDirectory directory, List<DatabaseManager> shards, ShardRouter router) {
+
+        if (shards.size() != router.getShardCount()) {
+
+            throw new IllegalArgumentException("The router expects " + router.getShardCount() +
+                    " shards but " + shards.size() + " were provided");
+        }
+
+        this.directory = directory;
+        this.shards = List.copyOf(shards);
+        this.router = router;
+    }
+
+
+    DatabaseManager shardFor(int account_num) {
+
+        return shards.get(router.shardFor(account_num));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        //There is no single database behind this manager; callers must go through the shard for their account
+        throw new SQLException("A sharded manager has no single connection");
+    }
+
+    @Override
+    public void setQueryTimeout(DatabaseOperation operation, int seconds) {
+
+        //Every shard uses the same timeouts
+        for (DatabaseManager shard : shards) {
+
+            shard.setQueryTimeout(operation, seconds);
+        }
+    }
+
+    @Override
+    public User getUser(String login) throws DatabaseException {
+
+        //The directory is asked which account owns the login, and only that account's shard is read
+        int account_num = directory.lookup(login);
+
+        if (account_num < 0) {
+
+            return null;
+        }
+
+        return shardFor(account_num).getUser(login);
+    }
+
+    @Override
+    public boolean replacePin(String login, String stored_pin, String new_stored_pin) throws DatabaseException {
+
+        int account_num = directory.lookup(login);
+
+        if (account_num < 0) {
+
+            return false;
+        }
+
+        return shardFor(account_num).replacePin(login, stored_pin, new_stored_pin);
+    }
+
+    @Override
+    public SessionContext loadSession(String login) throws DatabaseException {
+
+        int account_num = directory.lookup(login);
+
+        if (account_num < 0) {
+
+            return null;
+        }
+
+        return shardFor(account_num).loadSession(login);
+    }
+
+    @Override
+    public User getUser(int account_num) throws DatabaseException {
+
+        return shardFor(account_num).getUser(account_num);
+    }
+
+    @Override
+    public Account getAccount(int account_num) throws DatabaseException {
+
+        return shardFor(account_num).getAccount(account_num);
+    }
+
+    @Override
+    public void updateAccountBalance(int account_num, int new_balance) throws DatabaseException {
+
+        shardFor(account_num).updateAccountBalance(account_num, new_balance);
+    }
+
+    @Override
+    public int applyTransaction(int account_num, int new_balance, TransactionType type, int amount)
+            throws DatabaseException {
+
+        //An account's ledger lives on the same shard as the account, so the update and insert stay one transaction
+        return shardFor(account_num).applyTransaction(account_num, new_balance, type, amount);
+    }
+
+    @Override
+    public List<TransactionRecord> getTransactionHistory(int account_num, LocalDateTime from, LocalDateTime to)
+            throws DatabaseException {
+
+        return shardFor(account_num).getTransactionHistory(account_num, from, to);
+    }
+
+    @Override
+    public int enableSubBalances(int account_num, int slot_count) throws DatabaseException {
+
+        //The slots live next to the account on its shard
+        return shardFor(account_num).enableSubBalances(account_num, slot_count);
+    }
+
+    @Override
+    public int createNewAccount(String login, String pin, String holder, int balance, String status)
+            throws DatabaseException {
+
+        //The directory hands out the account number (and rejects duplicate logins across all shards); the number
+        //then decides which shard stores the account
+        int account_num = directory.reserve(login);
+
+        if (account_num < 0) {
+
+            return account_num;
+        }
+
+        int result = shardFor(account_num).createNewAccount(account_num, login, pin, holder, balance, status);
+
+        //If the shard could not store the account, the directory entry is released so the login can be used again
+        if (result < 0) {
+
+            directory.remove(account_num);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int createNewAccount(int account_num, String login, String pin, String holder, int balance, String status)
+            throws DatabaseException {
+
+        //The caller already chose the number, so it only has to be recorded in the directory before the insert
+        if (!directory.register(account_num, login)) {
+
+            return -2;
+        }
+
+        int result = shardFor(account_num).createNewAccount(account_num, login, pin, holder, balance, status);
+
+        if (result < 0) {
+
+            directory.remove(account_num);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int[] createNewAccounts(List<NewAccount> new_accounts) throws DatabaseException {
+
+        //Every login is recorded in the directory first; the accounts that got in are then grouped by shard so
+        //each shard receives one batched call
+        int[] results = new int[new_accounts.size()];
+        List<List<Integer>> positions_by_shard = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+
+            positions_by_shard.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < new_accounts.size(); i++) {
+
+            NewAccount account = new_accounts.get(i);
+            if (directory.register(account.account_num(), account.login())) {
+
+                positions_by_shard.get(router.shardFor(account.account_num())).add(i);
+            }
+            else {
+
+                results[i] = -2;
+            }
+        }
+
+        for (int shard = 0; shard < shards.size(); shard++) {
+
+            List<Integer> positions = positions_by_shard.get(shard);
+            if (positions.isEmpty()) {
+
+                continue;
+            }
+
+            List<NewAccount> shard_accounts = new ArrayList<>();
+            for (int position : positions) {
+
+                shard_accounts.add(new_accounts.get(position));
+            }
+
+            int[] shard_results = shards.get(shard).createNewAccounts(shard_accounts);
+            for (int i = 0; i < positions.size(); i++) {
+
+                results[positions.get(i)] = shard_results[i];
+
+                //As with single creations, a login the shard refused is released again
+                if (shard_results[i] < 0) {
+
+                    directory.remove(shard_accounts.get(i).account_num());
+                }
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    public ReplayOutcome[] applyJournalEntries(String terminal_id, List<JournalEntry> entries)
+            throws DatabaseException {
+
+        //Each shard replays its own accounts' entries, keeping their order, in one transaction of its own. If a
+        //later shard fails, the whole batch is replayed again, and the shards that already took their entries
+        //recognize them as applied
+        ReplayOutcome[] outcomes = new ReplayOutcome[entries.size()];
+        List<List<Integer>> positions_by_shard = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+
+            positions_by_shard.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < entries.size(); i++) {
+
+            positions_by_shard.get(router.shardFor(entries.get(i).account_num())).add(i);
+        }
+
+        for (int shard = 0; shard < shards.size(); shard++) {
+
+            List<Integer> positions = positions_by_shard.get(shard);
+            if (positions.isEmpty()) {
+
+                continue;
+            }
+
+            List<JournalEntry> shard_entries = new ArrayList<>();
+            for (int position : positions) {
+
+                shard_entries.add(entries.get(position));
+            }
+
+            ReplayOutcome[] shard_outcomes = shards.get(shard).applyJournalEntries(terminal_id, shard_entries);
+            for (int i = 0; i < positions.size(); i++) {
+
+                outcomes[positions.get(i)] = shard_outcomes[i];
+            }
+        }
+
+        return outcomes;
+    }
+
+    @Override
+    public void deleteAccount(int account_num) throws DatabaseException {
+
+        shardFor(account_num).deleteAccount(account_num);
+        directory.remove(account_num);
+    }
+
+    @Override
+    public boolean updateAccountInfo(int account_num, String new_holder,
+                                     String new_status, String new_login, String new_pin) throws DatabaseException {
+
+        DatabaseManager shard = shardFor(account_num);
+        if (new_login.isEmpty()) {
+
+            return shard.updateAccountInfo(account_num, new_holder, new_status, new_login, new_pin);
+        }
+
+        //A login change goes to the directory first, so a duplicate login is rejected before the shard is changed.
+        //The directory and the shard are separate databases, so if the shard then fails or finds no account, the
+        //directory is put back to the old login; otherwise the old login would no longer find the account
+        String old_login = directory.loginFor(account_num);
+        directory.updateLogin(account_num, new_login);
+
+        boolean updated;
+        try {
+
+            updated = shard.updateAccountInfo(account_num, new_holder, new_status, new_login, new_pin);
+        }
+        catch (DatabaseException error) {
+
+            restoreLogin(account_num, old_login, error);
+            throw error;
+        }
+
+        if (!updated) {
+
+            restoreLogin(account_num, old_login, null);
+        }
+
+        return updated;
+    }
+
+    private void restoreLogin(int account_num, String old_login, DatabaseException cause) throws DatabaseException {
+
+        if (old_login == null) {
+
+            return;
+        }
+
+        try {
+
+            directory.updateLogin(account_num, old_login);
+        }
+        catch (DatabaseException error) {
+
+            //The shard's error is the one the caller needs; the failed restore rides along with it
+            if (cause == null) {
+
+                throw error;
+            }
+            cause.addSuppressed(error);
+        }
+    }
+
+    @Override
+    public boolean loginExists(String login) throws DatabaseException {
+
+        //The directory knows every login on every shard
+        return directory.lookup(login) >= 0;
+    }
+
+    @Override
+    public int scanAccountKeys(AccountKeyConsumer consumer) throws DatabaseException {
+
+        //The shards are streamed one after another, so the consumer never sees two rows at the same time
+        int scanned = 0;
+        for (DatabaseManager shard : shards) {
+
+            scanned += shard.scanAccountKeys(consumer);
+        }
+
+        return scanned;
+    }
+
+    @Override
+    public int scanAccounts(AccountConsumer consumer) throws DatabaseException {
+
+        int scanned = 0;
+        for (DatabaseManager shard : shards) {
+
+            scanned += shard.scanAccounts(consumer);
+        }
+
+        return scanned;
+    }
+
+    @Override
+    public List<ActivitySummary> getActivitySummaries(int account_num, RollupPeriod period, LocalDate from,
+                                                      LocalDate to) throws DatabaseException {
+
+        //An account's rollups are written in the same transaction as its ledger, on its own shard
+        return shardFor(account_num).getActivitySummaries(account_num, period, from, to);
+    }
+
+    @Override
+    public List<ActivityTotals> getActivityTotals(RollupPeriod period, LocalDate from, LocalDate to)
+            throws DatabaseException {
+
+        //Each shard adds up its own accounts; the shards' totals of the same period are then added together
+        TreeMap<LocalDate, ActivityTotals> totals = new TreeMap<>();
+        for (DatabaseManager shard : shards) {
+
+            for (ActivityTotals shard_totals : shard.getActivityTotals(period, from, to)) {
+
+                totals.merge(shard_totals.period_start(), shard_totals, ActivityTotals::plus);
+            }
+        }
+
+        return new ArrayList<>(totals.values());
+    }
+
+    @Override
+    public int rebuildRollups(LocalDate from, LocalDate to) throws DatabaseException {
+
+        //Every shard rebuilds the same months from its own ledger
+        int months = 0;
+        for (DatabaseManager shard : shards) {
+
+            months = Math.max(months, shard.rebuildRollups(from, to));
+        }
+
+        return months;
+    }
+
+    private List<List<Integer>> positionsByShard(int[] account_nums) {
+
+        //The positions in account_nums of each shard's accounts, in their original order
+        List<List<Integer>> positions_by_shard = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+
+            positions_by_shard.add(new ArrayList<>());
+        }
+        for (int i = 0; i < account_nums.length; i++) {
+
+            positions_by_shard.get(router.shardFor(account_nums[i])).add(i);
+        }
+
+        return positions_by_shard;
+    }
+
+    private static int[] numbersAt(int[] account_nums, List<Integer> positions) {
+
+        return positions.stream().mapToInt(position -> account_nums[position]).toArray();
+    }
+
+    @Override
+    public Map<Integer, Account> getAccounts(int[] account_nums) throws DatabaseException {
+
+        //Each shard is asked only for its own accounts, in one call
+        Map<Integer, Account> accounts = new HashMap<>();
+        List<List<Integer>> positions_by_shard = positionsByShard(account_nums);
+        for (int shard = 0; shard < shards.size(); shard++) {
+
+            if (!positions_by_shard.get(shard).isEmpty()) {
+
+                accounts.putAll(shards.get(shard).getAccounts(numbersAt(account_nums,
+                        positions_by_shard.get(shard))));
+            }
+        }
+
+        return accounts;
+    }
+
+    @Override
+    public int[] updateAccounts(int[] account_nums, String new_holder, String new_status) throws DatabaseException {
+
+        //Each shard updates its own accounts, and the results are put back in the order they were asked for
+        int[] results = new int[account_nums.length];
+        List<List<Integer>> positions_by_shard = positionsByShard(account_nums);
+        for (int shard = 0; shard < shards.size(); shard++) {
+
+            List<Integer> positions = positions_by_shard.get(shard);
+            if (positions.isEmpty()) {
+
+                continue;
+            }
+
+            int[] shard_results = shards.get(shard).updateAccounts(numbersAt(account_nums, positions), new_holder,
+                    new_status);
+            for (int i = 0; i < positions.size(); i++) {
+
+                results[positions.get(i)] = shard_results[i];
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    public List<Account> getAllAccounts() throws DatabaseException {
+
+        //Every shard is scanned at the same time on its own thread, so an export takes about as long as the
+        //slowest shard instead of the sum of all of them
+        ExecutorService executor = Executors.newFixedThreadPool(shards.size());
+
+        try {
+
+            List<Future<List<Account>>> scans = new ArrayList<>();
+            for (DatabaseManager shard : shards) {
+
+                scans.add(executor.submit(shard::getAllAccounts));
+            }
+
+            List<Account> accounts = new ArrayList<>();
+            for (Future<List<Account>> scan : scans) {
+
+                accounts.addAll(scan.get());
+            }
+
+            //The shards are merged back into a single list ordered by account number, as on a single database
+            accounts.sort(Comparator.comparingInt(Account::getAccountNumber));
+            return accounts;
+        }
+        catch (InterruptedException error) {
+
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while scanning shards", error);
+        }
+        catch (ExecutionException error) {
+
+            //A shard's own DatabaseException is passed along unchanged so the caller sees the original message
+            if (error.getCause() instanceof DatabaseException) {
+
+                throw (DatabaseException) error.getCause();
+            }
+
+            throw new DatabaseException("Error scanning shards", error.getCause());
+        }
+        finally {
+
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package repository.warmup;
+
+import model.account.HotAccount;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class HotSetSnapshot {
+
+    //The accounts that were hottest when this host last shut down, kept so the next start can warm them first.
+    //The file is a header (magic, version, count) followed by 12 bytes per account: its number and how often it
+    //was used, hottest first. It is written to a temporary file that then replaces the old one, so a crash
+    //leaves the previous snapshot rather than half of a new one
+
+    static final int MAGIC = 0x484F5453;
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int ENTRY_BYTES = Integer.BYTES + Long.BYTES;
+
+    private HotSetSnapshot() {
+
+    }
+
+
+    public static void write(Path path, List<HotAccount> hot_set) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + hot_set.size() * ENTRY_BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(hot_set.size());
+        for (HotAccount hot_account : hot_set) {
+
+            buffer.putInt(hot_account.account_num()).putLong(hot_account.estimated_count());
+        }
+        buffer.flip();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            while (buffer.hasRemaining()) {
+
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static List<HotAccount> read(Path path) throws IOException {
+
+        //A host that never shut down cleanly has no snapshot, and starts cold
+        byte[] bytes;
+        try {
+
+            bytes = Files.readAllBytes(path);
+        }
+        catch (NoSuchFileException error) {
+
+            return List.of();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+
+            throw new IOException("Not a hot account snapshot: " + path);
+        }
+
+        int count = buffer.getInt();
+        if (count < 0 || buffer.remaining() != (long) count * ENTRY_BYTES) {
+
+            throw new IOException("Hot account snapshot is truncated: " + path);
+        }
+
+        List<HotAccount> hot_set = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+
+            hot_set.add(new HotAccount(buffer.getInt(), buffer.getLong()));
+        }
+
+        return hot_set;
+    }
+}
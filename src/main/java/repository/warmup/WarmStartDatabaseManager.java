@@ -0,0 +1,192 @@
+package repository.warmup;
+
+import model.account.HotAccount;
+import model.session.SessionContext;
+import model.transaction.TransactionType;
+import model.user.Customer;
+import model.user.User;
+import repository.DatabaseManager;
+import repository.ForwardingDatabaseManager;
+import repository.exception.DatabaseException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+public class WarmStartDatabaseManager extends ForwardingDatabaseManager {
+
+    //Makes the first transactions after a restart as fast as later ones. Connections are not pooled and account
+    //rows are not cached in this process (balances change on every terminal), so what is cold after a restart is
+    //everything on the way to the database: the driver, the server's connection threads, and the buffer pool pages
+    //holding the hot accounts' rows and ledger index entries. warm() reads every account of the last hot set,
+    //hottest first, on thread_count threads, before any terminal input is taken.
+    //Afterwards each account's first customer use counts as a hit if it was warmed and a miss if not, which shows
+    //how well the last hot set predicted this run's
+
+    private static final long HISTORY_WARM_UP_DAYS = 1;
+
+    private final int thread_count;
+
+    private final Set<Integer> warmed = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> first_uses = ConcurrentHashMap.newKeySet();
+    private final int max_tracked_uses;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public WarmStartDatabaseManager(DatabaseManager delegate, int thread_count, int max_tracked_uses) {
+
+        super(delegate);
+
+        if (thread_count < 1) {
+
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+
+        this.thread_count = thread_count;
+        this.max_tracked_uses = max_tracked_uses;
+    }
+
+
+    public WarmUpResult warm(List<HotAccount> hot_set) throws DatabaseException {
+
+        long started = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(thread_count);
+
+        try {
+
+            //The snapshot is in hottest-first order, so the accounts most likely to be used first are read first
+            List<Future<Boolean>> reads = new ArrayList<>();
+            for (HotAccount hot_account : hot_set) {
+
+                reads.add(executor.submit(() -> warmAccount(hot_account.account_num())));
+            }
+
+            int loaded = 0;
+            int missing = 0;
+            int failed = 0;
+            for (Future<Boolean> read : reads) {
+
+                try {
+
+                    if (read.get()) {
+
+                        loaded++;
+                    }
+                    else {
+
+                        missing++;
+                    }
+                }
+                catch (ExecutionException error) {
+
+                    //One account that can't be read is no reason to hold up the rest
+                    failed++;
+                }
+            }
+
+            return new WarmUpResult(hot_set.size(), loaded, missing, failed, (System.nanoTime() - started) / 1_000_000);
+        }
+        catch (InterruptedException error) {
+
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while warming up", error);
+        }
+        finally {
+
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean warmAccount(int account_num) throws DatabaseException {
+
+        //The account row (with its credentials) and its latest ledger entries are what a login and a first
+        //transaction read. Returns false for an account deleted since the snapshot was taken
+        if (getDelegate().getUser(account_num) == null) {
+
+            return false;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        getDelegate().getTransactionHistory(account_num, now.minusDays(HISTORY_WARM_UP_DAYS), now);
+        warmed.add(account_num);
+
+        return true;
+    }
+
+    private void recordFirstUse(int account_num) {
+
+        //Only the first use of each account counts; after that it is warm whether or not warm-up read it
+        if (first_uses.size() < max_tracked_uses && first_uses.add(account_num)) {
+
+            if (warmed.contains(account_num)) {
+
+                hits.increment();
+            }
+            else {
+
+                misses.increment();
+            }
+        }
+    }
+
+    @Override
+    public SessionContext loadSession(String login) throws DatabaseException {
+
+        SessionContext session = super.loadSession(login);
+        if (session != null && session.getUser() instanceof Customer customer && customer.getAccount() != null) {
+
+            recordFirstUse(customer.getAccount().getAccountNumber());
+        }
+
+        return session;
+    }
+
+    @Override
+    public User getUser(String login) throws DatabaseException {
+
+        User user = super.getUser(login);
+        if (user instanceof Customer customer && customer.getAccount() != null) {
+
+            recordFirstUse(customer.getAccount().getAccountNumber());
+        }
+
+        return user;
+    }
+
+    @Override
+    public int applyTransaction(int account_num, int new_balance, TransactionType type, int amount)
+            throws DatabaseException {
+
+        recordFirstUse(account_num);
+        return super.applyTransaction(account_num, new_balance, type, amount);
+    }
+
+    public int getWarmedCount() {
+
+        return warmed.size();
+    }
+
+    public long getHits() {
+
+        return hits.sum();
+    }
+
+    public long getMisses() {
+
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+
+        long total = hits.sum() + misses.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+}
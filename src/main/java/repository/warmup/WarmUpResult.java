@@ -0,0 +1,6 @@
+package repository.warmup;
+
+//One warm-up: how many hot accounts were asked for, how many were read, how many no longer exist, how many reads
+//failed, and how long it took from the first read to the last
+public record WarmUpResult(int requested, int loaded, int missing, int failed, long duration_ms) {
+}
@@ -1,12 +1,41 @@
 package service;
 
 import model.account.AccountInfo;
+import model.account.AccountList;
+import model.account.BalanceEntry;
+import model.account.BalanceRangePage;
+import model.account.BulkUpdateResult;
 import model.account.CreationResult;
+import model.account.Dashboard;
 import model.account.DeletionResult;
+import model.account.HolderSearchResult;
+import model.account.HotAccount;
+import model.account.NewAccount;
+import model.account.NewAccountList;
+import model.account.SubBalanceResult;
+import model.transaction.ActivityTotals;
+import model.transaction.RollupPeriod;
 import model.user.User;
 import model.account.Account;
 import repository.DatabaseManager;
+import repository.allocation.AccountNumberAllocator;
+import repository.credential.PinHasher;
+import repository.dashboard.ActivityCounters;
 import repository.exception.DatabaseException;
+import repository.hotspot.HeavyHitterTracker;
+import repository.search.BalanceRangeIndex;
+import repository.search.HolderNameIndex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class AdminService {
 
@@ -14,9 +43,107 @@ public class AdminService {
     //make changes to certain rows or columns
     private final DatabaseManager db_manager;
 
-    public AdminService(DatabaseManager db_manager) {
+    //Hands out account numbers from blocks reserved in advance; without one, the database chooses each number
+    private final AccountNumberAllocator allocator;
+
+    //Knows which accounts have been used most lately; without one, there is nothing to report
+    private final HeavyHitterTracker hot_accounts;
+
+    //Finds accounts by their holder's name; without one, a name search finds nothing
+    private final HolderNameIndex holder_index;
+
+    //Lists accounts by status and balance range; without one, a range query finds nothing
+    private final BalanceRangeIndex balance_index;
+
+    //Counts today's deposits and withdrawals; without it (or the balance index), there is no dashboard
+    private final ActivityCounters activity;
+
+    //Whether the repository can split an account's balance into sub-balances (an event-sourced one can't)
+    private final boolean sub_balances_available;
+
+    //Hashes new pins before they are handed to the repository, so the KDF never runs while a database
+    //connection or slot is held
+    private final PinHasher pin_hasher;
+
+    //How many accounts a page of name search or balance range results lists
+    public static final int HOLDER_PAGE_SIZE = 10;
+    public static final int BALANCE_PAGE_SIZE = 10;
+
+    private AdminService(Builder builder) {
+
+        this.db_manager = builder.db_manager;
+        this.allocator = builder.allocator;
+        this.hot_accounts = builder.hot_accounts;
+        this.holder_index = builder.holder_index;
+        this.balance_index = builder.balance_index;
+        this.activity = builder.activity;
+        this.sub_balances_available = builder.sub_balances_available;
+        this.pin_hasher = builder.pin_hasher;
+    }
+
+    public static Builder builder(DatabaseManager db_manager, PinHasher pin_hasher) {
+
+        //The repository and the pin hasher are always needed; everything else is optional and left out when null
+        return new Builder(db_manager, pin_hasher);
+    }
+
+    public static class Builder {
+
+        private final DatabaseManager db_manager;
+        private final PinHasher pin_hasher;
+        private AccountNumberAllocator allocator;
+        private HeavyHitterTracker hot_accounts;
+        private HolderNameIndex holder_index;
+        private BalanceRangeIndex balance_index;
+        private ActivityCounters activity;
+        private boolean sub_balances_available = true;
+
+        private Builder(DatabaseManager db_manager, PinHasher pin_hasher) {
+
+            this.db_manager = db_manager;
+            this.pin_hasher = pin_hasher;
+        }
+
+        public Builder allocator(AccountNumberAllocator allocator) {
+
+            this.allocator = allocator;
+            return this;
+        }
+
+        public Builder hotAccounts(HeavyHitterTracker hot_accounts) {
 
-        this.db_manager = db_manager;
+            this.hot_accounts = hot_accounts;
+            return this;
+        }
+
+        public Builder holderIndex(HolderNameIndex holder_index) {
+
+            this.holder_index = holder_index;
+            return this;
+        }
+
+        public Builder balanceIndex(BalanceRangeIndex balance_index) {
+
+            this.balance_index = balance_index;
+            return this;
+        }
+
+        public Builder activity(ActivityCounters activity) {
+
+            this.activity = activity;
+            return this;
+        }
+
+        public Builder subBalancesAvailable(boolean sub_balances_available) {
+
+            this.sub_balances_available = sub_balances_available;
+            return this;
+        }
+
+        public AdminService build() {
+
+            return new AdminService(this);
+        }
     }
 
 
@@ -26,6 +153,11 @@ public class AdminService {
     }
 
 
+    public boolean isLoginTaken(String login) throws DatabaseException {
+
+        return db_manager.loginExists(login);
+    }
+
     public CreationResult createAccount(String login, String pin, String holder,
                                         int starting_balance, boolean is_active) throws DatabaseException {
 
@@ -45,8 +177,20 @@ public class AdminService {
         }
 
         //The following parameters are now passed through to the DatabaseManager's createNewAccount function.
-        //The result is returned and stored in the account_num int
-        int account_num = db_manager.createNewAccount(login, pin, holder, starting_balance, status);
+        //The result is returned and stored in the account_num int. With an allocator, the number is chosen here
+        //from memory, so the insert does not have to wait for the database to generate it. Only the pin's hash is
+        //stored
+        String stored_pin = pin_hasher.hash(pin);
+        int account_num;
+        if (allocator != null) {
+
+            account_num = db_manager.createNewAccount(allocator.next(), login, stored_pin, holder, starting_balance,
+                    status);
+        }
+        else {
+
+            account_num = db_manager.createNewAccount(login, stored_pin, holder, starting_balance, status);
+        }
 
         //If the account number is equal to -2:
         if (account_num == -2) {
@@ -67,6 +211,49 @@ public class AdminService {
         }
     }
 
+    public List<CreationResult> createAccounts(List<NewAccount> new_accounts) throws DatabaseException {
+
+        //Every account gets its number up front, so the inserts can be sent in batches
+        if (allocator == null) {
+
+            throw new IllegalStateException("Bulk account creation needs an account number allocator");
+        }
+
+        //Hashing is by far the slowest part of creating an account, so all the pins are hashed up front, in
+        //parallel, before any database work starts
+        String[] stored_pins = new_accounts.parallelStream().map(account -> pin_hasher.hash(account.pin()))
+                .toArray(String[]::new);
+
+        int[] numbers = allocator.next(new_accounts.size());
+        List<NewAccount> numbered = new ArrayList<>();
+        for (int i = 0; i < new_accounts.size(); i++) {
+
+            numbered.add(new_accounts.get(i).withAccountNumber(numbers[i]).withPin(stored_pins[i]));
+        }
+
+        int[] results = db_manager.createNewAccounts(numbered);
+
+        //Each result becomes a CreationResult, just as createAccount() reports a single account
+        List<CreationResult> creation_results = new ArrayList<>();
+        for (int result : results) {
+
+            if (result == -2) {
+
+                creation_results.add(new CreationResult(CreationResult.Status.DUPLICATE_ACCOUNT, -1));
+            }
+            else if (result < 0) {
+
+                creation_results.add(new CreationResult(CreationResult.Status.ERROR, -1));
+            }
+            else {
+
+                creation_results.add(new CreationResult(CreationResult.Status.SUCCESS, result));
+            }
+        }
+
+        return creation_results;
+    }
+
     public DeletionResult deleteAccount(int account_num, int confirmation_input) throws DatabaseException {
 
         //If the confirmation_input is not equal to the account number:
@@ -86,8 +273,9 @@ public class AdminService {
                                  String new_status, String new_login, String new_pin) throws DatabaseException {
 
         //The updateAccountInfo() function is called, with the same parameters provided to updateAccount()
-        //provided to this function
-        return db_manager.updateAccountInfo(account_num, new_holder, new_status, new_login, new_pin);
+        //provided to this function, except that a new pin is handed over hashed
+        return db_manager.updateAccountInfo(account_num, new_holder, new_status, new_login,
+                new_pin.isEmpty() ? new_pin : pin_hasher.hash(new_pin));
     }
 
     public AccountInfo searchAccount(int account_num) throws DatabaseException {
@@ -110,4 +298,260 @@ public class AdminService {
             return null;
         }
     }
+
+    public boolean areSubBalancesAvailable() {
+
+        return sub_balances_available;
+    }
+
+    public SubBalanceResult enableSubBalances(int account_num, int slot_count) throws DatabaseException {
+
+        //A single slot would be no different from the plain balance, so at least 2 are needed
+        if (slot_count < 2 || slot_count > DatabaseManager.MAX_SUB_BALANCE_SLOTS) {
+
+            return new SubBalanceResult(SubBalanceResult.Status.INVALID_SLOT_COUNT, account_num, slot_count);
+        }
+
+        //The account's balance is moved into the slots; -1 and -2 mean the account is missing or already split
+        int result = db_manager.enableSubBalances(account_num, slot_count);
+
+        if (result == -1) {
+
+            return new SubBalanceResult(SubBalanceResult.Status.ACCOUNT_NOT_FOUND, account_num, slot_count);
+        }
+        else if (result == -2) {
+
+            return new SubBalanceResult(SubBalanceResult.Status.ALREADY_ENABLED, account_num, slot_count);
+        }
+
+        return new SubBalanceResult(SubBalanceResult.Status.SUCCESS, account_num, slot_count);
+    }
+
+    public List<ActivityTotals> getActivityReport(YearMonth month) throws DatabaseException {
+
+        //The bank's deposits and withdrawals for each day of the month that had any, added up from the daily
+        //rollups rather than from the ledger
+        return db_manager.getActivityTotals(RollupPeriod.DAY, month.atDay(1), month.plusMonths(1).atDay(1));
+    }
+
+    public List<HotAccount> getHotAccounts() {
+
+        //The most used accounts of the tracker's window, hottest first; the counts are estimates and can run high
+        if (hot_accounts == null) {
+
+            return List.of();
+        }
+
+        return hot_accounts.getTopK();
+    }
+
+    public long getHotAccountWindowMs() {
+
+        return hot_accounts == null ? 0 : hot_accounts.getWindowMs();
+    }
+
+    public HolderSearchResult searchHolders(String query, int page) {
+
+        //Page 0 is the first HOLDER_PAGE_SIZE matches. The search is answered from memory, so it never touches the
+        //database
+        if (holder_index == null || page < 0) {
+
+            return HolderSearchResult.EMPTY;
+        }
+
+        return holder_index.search(query, page * HOLDER_PAGE_SIZE, HOLDER_PAGE_SIZE);
+    }
+
+    public BalanceRangePage findByBalance(String status, int min_balance, int max_balance, BalanceEntry after) {
+
+        //One page of the accounts with the status and a balance in the range, lowest first, starting after the
+        //last entry of the previous page (null for the first page). Answered from memory, like searchHolders()
+        if (balance_index == null) {
+
+            return BalanceRangePage.EMPTY;
+        }
+
+        return balance_index.range(status, min_balance, max_balance, after, BALANCE_PAGE_SIZE);
+    }
+
+    public Dashboard getDashboard() {
+
+        //Read from counters kept up to date as accounts and transactions are written, so it costs no query
+        //however many accounts there are. Returns null if the counters are not configured
+        if (balance_index == null || activity == null) {
+
+            return null;
+        }
+
+        return new Dashboard(balance_index.totals(), activity.today(), activity.getCheckpointAt());
+    }
+
+    public AccountList readAccountList(Reader reader) throws IOException {
+
+        //One account number per line. Blank lines and lines starting with # are ignored; any other line that is
+        //not a positive number is skipped and counted. A number listed twice is only kept once
+        Set<Integer> account_nums = new LinkedHashSet<>();
+        int skipped_lines = 0;
+
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+
+                continue;
+            }
+
+            try {
+
+                int account_num = Integer.parseInt(line);
+                if (account_num > 0) {
+
+                    account_nums.add(account_num);
+                    continue;
+                }
+            }
+            catch (NumberFormatException error) {
+
+                //Counted below with the other lines that are not account numbers
+            }
+            skipped_lines++;
+        }
+
+        return new AccountList(account_nums.stream().mapToInt(Integer::intValue).toArray(), skipped_lines);
+    }
+
+    public NewAccountList readNewAccounts(Reader reader) throws IOException {
+
+        //One account per line, as login,pin,starting balance,Active or Disabled,holder's name; the name comes last
+        //so it may contain commas. Blank lines and lines starting with # are ignored; any other line that does not
+        //describe a valid account is skipped and counted
+        List<NewAccount> new_accounts = new ArrayList<>();
+        int skipped_lines = 0;
+
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+
+                continue;
+            }
+
+            NewAccount new_account = parseNewAccount(line);
+            if (new_account == null) {
+
+                skipped_lines++;
+            }
+            else {
+
+                new_accounts.add(new_account);
+            }
+        }
+
+        return new NewAccountList(new_accounts, skipped_lines);
+    }
+
+    private static NewAccount parseNewAccount(String line) {
+
+        String[] fields = line.split(",", 5);
+        if (fields.length < 5) {
+
+            return null;
+        }
+
+        String login = fields[0].strip();
+        String pin = fields[1].strip();
+        String status = fields[3].strip();
+        String holder = fields[4].strip();
+
+        //The same rules apply as when an account is typed in at the terminal
+        if (login.isEmpty() || login.contains(" ") || !pin.matches("\\d{5}") || holder.isEmpty()) {
+
+            return null;
+        }
+        if (!status.equalsIgnoreCase("Active") && !status.equalsIgnoreCase("Disabled")) {
+
+            return null;
+        }
+
+        try {
+
+            int balance = Integer.parseInt(fields[2].strip());
+            if (balance < 0) {
+
+                return null;
+            }
+
+            return new NewAccount(0, login, pin, holder, balance,
+                    status.equalsIgnoreCase("Active") ? "Active" : "Disabled");
+        }
+        catch (NumberFormatException error) {
+
+            return null;
+        }
+    }
+
+    public Map<Integer, Account> getAccounts(int[] account_nums) throws DatabaseException {
+
+        //Every listed account that exists, read in a few large queries rather than one per account
+        return db_manager.getAccounts(account_nums);
+    }
+
+    public List<BulkUpdateResult> updateAccounts(int[] account_nums, String new_holder, String new_status)
+            throws DatabaseException {
+
+        //The same holder and/or status is set on every listed account, in batches; as with updateAccount(), an
+        //empty string leaves that field unchanged. Each account gets its own result
+        int[] results = db_manager.updateAccounts(account_nums, new_holder, new_status);
+
+        List<BulkUpdateResult> update_results = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+
+            if (results[i] == 1) {
+
+                update_results.add(new BulkUpdateResult(BulkUpdateResult.Status.UPDATED, account_nums[i]));
+            }
+            else if (results[i] == 0) {
+
+                update_results.add(new BulkUpdateResult(BulkUpdateResult.Status.NOT_FOUND, account_nums[i]));
+            }
+            else {
+
+                update_results.add(new BulkUpdateResult(BulkUpdateResult.Status.FAILED, account_nums[i]));
+            }
+        }
+
+        return update_results;
+    }
+
+    public int exportAccounts(Writer writer) throws DatabaseException, IOException {
+
+        //Every customer account is read (on a sharded database, from all shards at once) and written out as CSV
+        List<Account> accounts = db_manager.getAllAccounts();
+
+        writer.write("account_num,holder,balance,status\n");
+        for (Account account : accounts) {
+
+            writer.write(account.getAccountNumber() + "," + quoteCsv(account.getHolderName()) + ","
+                    + account.getBalance() + "," + account.getStatus() + "\n");
+        }
+        writer.flush();
+
+        //The number of exported accounts is returned so it can be shown to the administrator
+        return accounts.size();
+    }
+
+    static String quoteCsv(String value) {
+
+        //Holder names may contain commas or quotes, so those values are wrapped in quotes with inner quotes doubled
+        if (value.contains(",") || value.contains("\"")) {
+
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+
+        return value;
+    }
 }
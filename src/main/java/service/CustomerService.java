@@ -1,12 +1,20 @@
 package service;
 
 import model.account.Account;
+import model.transaction.ActivitySummary;
 import model.transaction.DepositResult;
+import model.transaction.RollupPeriod;
+import model.transaction.StatementResult;
+import model.transaction.TransactionType;
 import model.transaction.WithdrawalResult;
 import model.user.Customer;
 import repository.DatabaseManager;
 import repository.exception.DatabaseException;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
 public class CustomerService {
 
     //The DatabaseManager will be used to access the database of accounts in order to
@@ -34,7 +42,35 @@ public class CustomerService {
         //If the account exists (is not null) and the amount provided can safely be withdrawn:
         if (account.withdraw(amount)) {
 
-            db_manager.updateAccountBalance(account.getAccountNumber(), account.getBalance());
+            int balance_after;
+            try {
+
+                balance_after = db_manager.applyTransaction(account.getAccountNumber(), account.getBalance(),
+                        TransactionType.WITHDRAWAL, amount);
+            }
+            catch (DatabaseException error) {
+
+                //The database never took the new balance, so the cash is put back on the in-memory account to keep
+                //the session's balance matching the database
+                account.deposit(amount);
+                throw error;
+            }
+
+            //An account with sub-balances is checked against its slots in the database, which can turn out to hold
+            //less than this session last saw
+            if (balance_after == -1) {
+
+                account.deposit(amount);
+                return new WithdrawalResult(WithdrawalResult.Status.INSUFFICIENT_FUNDS, account, amount);
+            }
+
+            //-2 means the account was deleted after the session loaded it, so nothing was written
+            if (balance_after == -2) {
+
+                account.deposit(amount);
+                return new WithdrawalResult(WithdrawalResult.Status.ACCOUNT_NOT_FOUND, null, amount);
+            }
+            account.setBalance(balance_after);
 
             //A WithdrawalResult object with a SUCCESS status is created and returned
             return new WithdrawalResult(WithdrawalResult.Status.SUCCESS, account, amount);
@@ -55,10 +91,33 @@ public class CustomerService {
         //If the account is not equal to null, meaning it exists:
         if (account != null) {
 
-            //The deposit function is called to update the current state of the account. The updateAccountBalance
-            //for db_manager is then called to ensure that the database is up to date
+            //The deposit function is called to update the current state of the account. The applyTransaction
+            //for db_manager is then called to ensure that the database (balance and history) is up to date
             account.deposit(amount);
-            db_manager.updateAccountBalance(account.getAccountNumber(), account.getBalance());
+
+            int balance_after;
+            try {
+
+                balance_after = db_manager.applyTransaction(account.getAccountNumber(), account.getBalance(),
+                        TransactionType.DEPOSIT, amount);
+            }
+            catch (DatabaseException error) {
+
+                //As with withdrawals, a failed update is undone on the in-memory account
+                account.withdraw(amount);
+                throw error;
+            }
+
+            //-2 means the account was deleted after the session loaded it, so nothing was written
+            if (balance_after == -2) {
+
+                account.withdraw(amount);
+                return new DepositResult(DepositResult.Status.ACCOUNT_NOT_FOUND, null, amount);
+            }
+
+            //The database's balance after the deposit is kept, since other sessions may have changed an account
+            //with sub-balances at the same time
+            account.setBalance(balance_after);
 
             //A WithdrawalResult object with a SUCCESS status is created and returned
             return new DepositResult(DepositResult.Status.SUCCESS, account, amount);
@@ -67,4 +126,29 @@ public class CustomerService {
         //A WithdrawalResult object with an ACCOUNT_NOT_FOUND status is created and returned
         return new DepositResult(DepositResult.Status.ACCOUNT_NOT_FOUND, null, amount);
     }
-}
\ No newline at end of file
+
+    public StatementResult getMonthlyStatement(Customer customer, YearMonth month) throws DatabaseException {
+
+        Account account = customer.getAccount();
+        if (account == null) {
+
+            return new StatementResult(StatementResult.Status.ACCOUNT_NOT_FOUND, month, null, List.of());
+        }
+
+        //The statement is read from the rollups: one row for the month and one per day that had transactions,
+        //rather than every transaction of the month
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        List<ActivitySummary> month_summary = db_manager.getActivitySummaries(account.getAccountNumber(),
+                RollupPeriod.MONTH, from, to);
+
+        if (month_summary.isEmpty()) {
+
+            return new StatementResult(StatementResult.Status.NO_ACTIVITY, month, null, List.of());
+        }
+
+        List<ActivitySummary> days = db_manager.getActivitySummaries(account.getAccountNumber(), RollupPeriod.DAY,
+                from, to);
+        return new StatementResult(StatementResult.Status.SUCCESS, month, month_summary.get(0), days);
+    }
+}
@@ -0,0 +1,59 @@
+package service;
+
+import model.session.SessionContext;
+import repository.DatabaseManager;
+import repository.credential.CredentialVerifier;
+import repository.exception.DatabaseException;
+
+public class LoginService {
+
+    //The repository only finds the session for a login, with the pin's stored hash; the pin is checked here,
+    //after the repository call has returned. The KDF takes far longer than the query, so running it here means no
+    //database connection, scheduler slot or concurrency permit is held while it runs, and a burst of wrong pins
+    //never shows up as database latency
+
+    private final DatabaseManager db_manager;
+    private final CredentialVerifier credentials;
+
+    public LoginService(DatabaseManager db_manager, CredentialVerifier credentials) {
+
+        this.db_manager = db_manager;
+        this.credentials = credentials;
+    }
+
+
+    public SessionContext login(String login, String pin) throws DatabaseException {
+
+        //No session means no account has this login; a stored hash that does not match means a wrong pin. Either
+        //way null is returned, so the two can't be told apart
+        SessionContext session = db_manager.loadSession(login);
+        String stored_pin = session == null ? null : session.getUser().getPin();
+        if (!credentials.verify(login, pin, stored_pin)) {
+
+            return null;
+        }
+
+        rehashIfNeeded(login, pin, stored_pin);
+        return session;
+    }
+
+    private void rehashIfNeeded(String login, String pin, String stored_pin) {
+
+        //A pin stored in plain text, or hashed at a lower cost than is now configured, is re-hashed now that the
+        //plain pin is known. The repository only replaces it if the stored value is still the one that was checked
+        if (!credentials.needsRehash(stored_pin)) {
+
+            return;
+        }
+
+        try {
+
+            db_manager.replacePin(login, stored_pin, credentials.hash(pin));
+            credentials.forget(login);
+        }
+        catch (DatabaseException error) {
+
+            //The login itself succeeded; the upgrade is simply tried again next time
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package service.ratelimit;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+public class ExpiringMap<K, V extends ExpiringMap.Expirable> {
+
+    //A ConcurrentHashMap that holds at most max_entries values. A value says itself when it has expired (its
+    //bucket refilled, its lockout over, nothing left worth remembering). Once the map is full, expired values are
+    //swept out; if that is not enough, values that are not protected (see put's caller) are dropped next, and only
+    //then any value. One thread sweeps at a time; the others carry on without waiting for it
+
+    public interface Expirable {
+
+        boolean isExpired(long now);
+    }
+
+    private final int max_entries;
+    private final Predicate<V> is_protected;
+    private final ConcurrentHashMap<K, V> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean(false);
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringMap(int max_entries, Predicate<V> is_protected) {
+
+        if (max_entries < 1) {
+
+            throw new IllegalArgumentException("Max entries must be at least 1");
+        }
+
+        this.max_entries = max_entries;
+        this.is_protected = is_protected;
+    }
+
+
+    public V get(K key) {
+
+        return entries.get(key);
+    }
+
+    public V getOrCreate(K key, Function<K, V> factory, long now) {
+
+        V value = entries.get(key);
+        if (value != null) {
+
+            return value;
+        }
+
+        if (entries.size() >= max_entries) {
+
+            sweep(now);
+        }
+
+        return entries.computeIfAbsent(key, factory);
+    }
+
+    private void sweep(long now) {
+
+        if (!sweeping.compareAndSet(false, true)) {
+
+            return;
+        }
+
+        try {
+
+            entries.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+
+            //Still full: unprotected values go first, then anything, until there is room again
+            if (entries.size() >= max_entries) {
+
+                evict(entry -> !is_protected.test(entry.getValue()));
+            }
+            if (entries.size() >= max_entries) {
+
+                evict(entry -> true);
+            }
+        }
+        finally {
+
+            sweeping.set(false);
+        }
+    }
+
+    private void evict(Predicate<Map.Entry<K, V>> candidate) {
+
+        Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        while (entries.size() >= max_entries && iterator.hasNext()) {
+
+            if (candidate.test(iterator.next())) {
+
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public int size() {
+
+        return entries.size();
+    }
+
+    public long getEvictions() {
+
+        return evictions.sum();
+    }
+}
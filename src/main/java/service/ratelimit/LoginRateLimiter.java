@@ -0,0 +1,218 @@
+package service.ratelimit;
+
+import model.user.LoginPermit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class LoginRateLimiter {
+
+    //Decides whether a login attempt may go to the database at all. Every login and every terminal has its own
+    //token bucket, so neither guessing one login's pin nor trying many logins from one terminal can go faster than
+    //its bucket refills. On top of that, a login that fails failures_before_lockout times in a row is locked out;
+    //each further lockout lasts twice as long as the last, up to max_lockout_ms, until a successful login.
+    //Everything is counted with atomics, so terminals never wait on each other here
+
+    private static final class LoginState implements ExpiringMap.Expirable {
+
+        private final TokenBucket bucket;
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger lockout_level = new AtomicInteger();
+        private final AtomicLong locked_until = new AtomicLong();
+        private final AtomicLong last_seen;
+        private final long idle_ttl_ms;
+
+        private LoginState(TokenBucket bucket, long now, long idle_ttl_ms) {
+
+            this.bucket = bucket;
+            this.last_seen = new AtomicLong(now);
+            this.idle_ttl_ms = idle_ttl_ms;
+        }
+
+        private boolean isLocked(long now) {
+
+            return locked_until.get() > now;
+        }
+
+        @Override
+        public boolean isExpired(long now) {
+
+            //A login is forgotten (failures, lockout history and all) once it has been left alone for idle_ttl_ms
+            return !isLocked(now) && bucket.isFull(now) && now - last_seen.get() >= idle_ttl_ms;
+        }
+    }
+
+    private static final class TerminalState implements ExpiringMap.Expirable {
+
+        private final TokenBucket bucket;
+
+        private TerminalState(TokenBucket bucket) {
+
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean isExpired(long now) {
+
+            return bucket.isFull(now);
+        }
+    }
+
+    private final int login_burst;
+    private final long login_refill_ms;
+    private final int terminal_burst;
+    private final long terminal_refill_ms;
+    private final int failures_before_lockout;
+    private final long base_lockout_ms;
+    private final long max_lockout_ms;
+    private final long idle_ttl_ms;
+    private final LongSupplier clock;
+
+    //When the maps are full, logins with a lockout (or a history of them) are the last to be dropped
+    private final ExpiringMap<String, LoginState> logins;
+    private final ExpiringMap<String, TerminalState> terminals;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder locked_out = new LongAdder();
+    private final LongAdder lockouts_started = new LongAdder();
+
+    public LoginRateLimiter(int login_burst, long login_refill_ms, int terminal_burst, long terminal_refill_ms,
+                            int failures_before_lockout, long base_lockout_ms, long max_lockout_ms,
+                            int max_entries, long idle_ttl_ms) {
+
+        this(login_burst, login_refill_ms, terminal_burst, terminal_refill_ms, failures_before_lockout,
+                base_lockout_ms, max_lockout_ms, max_entries, idle_ttl_ms, System::currentTimeMillis);
+    }
+
+    public LoginRateLimiter(int login_burst, long login_refill_ms, int terminal_burst, long terminal_refill_ms,
+                            int failures_before_lockout, long base_lockout_ms, long max_lockout_ms,
+                            int max_entries, long idle_ttl_ms, LongSupplier clock) {
+
+        if (failures_before_lockout < 1 || base_lockout_ms < 1 || max_lockout_ms < base_lockout_ms) {
+
+            throw new IllegalArgumentException("Lockout must follow at least 1 failure and last 1 ms to max");
+        }
+
+        this.login_burst = login_burst;
+        this.login_refill_ms = login_refill_ms;
+        this.terminal_burst = terminal_burst;
+        this.terminal_refill_ms = terminal_refill_ms;
+        this.failures_before_lockout = failures_before_lockout;
+        this.base_lockout_ms = base_lockout_ms;
+        this.max_lockout_ms = max_lockout_ms;
+        this.idle_ttl_ms = idle_ttl_ms;
+        this.clock = clock;
+        this.logins = new ExpiringMap<>(max_entries, state -> state.lockout_level.get() > 0);
+        this.terminals = new ExpiringMap<>(max_entries, state -> false);
+    }
+
+
+    public LoginPermit tryAcquire(String terminal_id, String login) {
+
+        long now = clock.getAsLong();
+        LoginState login_state = loginState(login, now);
+        login_state.last_seen.set(now);
+
+        //A locked login is turned away without using up any tokens
+        long locked_until = login_state.locked_until.get();
+        if (locked_until > now) {
+
+            locked_out.increment();
+            return new LoginPermit(LoginPermit.Status.LOCKED_OUT, locked_until - now);
+        }
+
+        TerminalState terminal_state = terminals.getOrCreate(terminal_id,
+                key -> new TerminalState(new TokenBucket(terminal_burst, terminal_refill_ms, now)), now);
+
+        long wait = terminal_state.bucket.tryTake(now);
+        if (wait == 0) {
+
+            wait = login_state.bucket.tryTake(now);
+        }
+
+        if (wait > 0) {
+
+            throttled.increment();
+            return new LoginPermit(LoginPermit.Status.THROTTLED, wait);
+        }
+
+        allowed.increment();
+        return LoginPermit.ALLOWED;
+    }
+
+    public void recordFailure(String login) {
+
+        long now = clock.getAsLong();
+        LoginState state = loginState(login, now);
+        state.last_seen.set(now);
+
+        //Only the attempt that reaches the threshold starts the lockout; the count then starts over
+        int failures = state.failures.incrementAndGet();
+        if (failures >= failures_before_lockout && state.failures.compareAndSet(failures, 0)) {
+
+            int level = state.lockout_level.incrementAndGet();
+            long duration = base_lockout_ms << Math.min(level - 1, 30);
+            state.locked_until.set(now + Math.min(duration, max_lockout_ms));
+            lockouts_started.increment();
+        }
+    }
+
+    public void recordSuccess(String login) {
+
+        LoginState state = logins.get(login);
+        if (state != null) {
+
+            state.failures.set(0);
+            state.lockout_level.set(0);
+        }
+    }
+
+    private LoginState loginState(String login, long now) {
+
+        return logins.getOrCreate(login,
+                key -> new LoginState(new TokenBucket(login_burst, login_refill_ms, now), now, idle_ttl_ms), now);
+    }
+
+    public long getAllowedCount() {
+
+        return allowed.sum();
+    }
+
+    public long getThrottledCount() {
+
+        return throttled.sum();
+    }
+
+    public long getLockedOutCount() {
+
+        return locked_out.sum();
+    }
+
+    public long getLockoutsStarted() {
+
+        return lockouts_started.sum();
+    }
+
+    public long getRejectedCount() {
+
+        return throttled.sum() + locked_out.sum();
+    }
+
+    public int getTrackedLogins() {
+
+        return logins.size();
+    }
+
+    public int getTrackedTerminals() {
+
+        return terminals.size();
+    }
+
+    public long getEvictions() {
+
+        return logins.getEvictions() + terminals.getEvictions();
+    }
+}
@@ -0,0 +1,54 @@
+package service.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TokenBucket {
+
+    //A token bucket holding up to capacity tokens and gaining one every refill_ms. It is kept as a single number,
+    //the time at which the bucket would next be full (GCRA, the generic cell rate algorithm), which behaves exactly
+    //like counting tokens but lets a take be one compare-and-set on one AtomicLong, with no lock
+
+    private final long refill_ms;
+    private final long burst_ms;
+    private final AtomicLong full_at;
+
+    public TokenBucket(int capacity, long refill_ms, long now) {
+
+        if (capacity < 1 || refill_ms < 1) {
+
+            throw new IllegalArgumentException("Capacity and refill time must be at least 1");
+        }
+
+        this.refill_ms = refill_ms;
+        this.burst_ms = (capacity - 1) * refill_ms;
+        this.full_at = new AtomicLong(now);
+    }
+
+
+    public long tryTake(long now) {
+
+        //Returns 0 if a token was taken, or else how many milliseconds until one is available
+        while (true) {
+
+            long current = full_at.get();
+            long start = Math.max(current, now);
+
+            //The bucket is empty when it would take longer than a full burst to refill it
+            long wait = start - now - burst_ms;
+            if (wait > 0) {
+
+                return wait;
+            }
+
+            if (full_at.compareAndSet(current, start + refill_ms)) {
+
+                return 0;
+            }
+        }
+    }
+
+    public boolean isFull(long now) {
+
+        return full_at.get() <= now;
+    }
+}
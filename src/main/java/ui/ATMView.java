@@ -3,15 +3,54 @@ package ui;
 import model.account.Account;
 import model.user.User;
 
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.Scanner;
 
 public class ATMView {
 
-    private final Scanner scanner;
+    private Scanner scanner;
+
+    //Set when the view reads a terminal through an IdleTimeoutReader; null means prompts wait as long as it takes
+    private final IdleTimeoutReader input;
 
     public ATMView(Scanner scanner) {
 
         this.scanner = scanner;
+        this.input = null;
+    }
+
+    public ATMView(IdleTimeoutReader input) {
+
+        this.scanner = new Scanner(input);
+        this.input = input;
+    }
+
+
+    public void setIdleTimeoutArmed(boolean armed) {
+
+        if (input != null) {
+
+            input.setArmed(armed);
+        }
+    }
+
+    public void cancelInput() {
+
+        if (input != null) {
+
+            input.cancel();
+        }
+    }
+
+    public void resetInput() {
+
+        //A Scanner cannot be used again once a read has thrown out of it, and anything half-typed before a timeout
+        //belongs to the previous user anyway, so the next prompt starts on a fresh Scanner over the same terminal
+        if (input != null) {
+
+            scanner = new Scanner(input);
+        }
     }
 
 
@@ -138,7 +177,8 @@ public class ATMView {
         System.out.println("\n1----Withdraw Cash");
         System.out.println("2----Deposit Cash");
         System.out.println("3----Display Balance");
-        System.out.println("4----Exit");
+        System.out.println("4----Monthly Statement");
+        System.out.println("5----Exit");
     }
 
     public void displayAdminMenu() {
@@ -147,7 +187,16 @@ public class ATMView {
         System.out.println("2----Delete Existing Account");
         System.out.println("3----Update Account Information");
         System.out.println("4----Search for Account");
-        System.out.println("5----Exit");
+        System.out.println("5----Export Accounts");
+        System.out.println("6----Enable Sub-Balances");
+        System.out.println("7----Activity Report");
+        System.out.println("8----Hot Accounts");
+        System.out.println("9----Bulk Account Operations");
+        System.out.println("10----Find Accounts by Name");
+        System.out.println("11----Accounts by Status and Balance");
+        System.out.println("12----Dashboard");
+        System.out.println("13----Create Accounts from File");
+        System.out.println("14----Exit");
     }
 
     public void displayUpdateChoice() {
@@ -159,6 +208,14 @@ public class ATMView {
         System.out.println("5----Exit");
     }
 
+    public void displayBulkChoice() {
+
+        System.out.println("\nSelect the bulk operation:");
+        System.out.println("1----Show Accounts");
+        System.out.println("2----Change Status");
+        System.out.println("3----Change Holder’s Name");
+    }
+
     public int promptMenuChoice() {
 
         System.out.print("Enter choice: ");
@@ -304,6 +361,145 @@ public class ATMView {
         }
     }
 
+    public int promptSlotCount(int max_slots) {
+
+        while (true) {
+
+            System.out.print("Enter the number of sub-balance slots (2-" + max_slots + "): ");
+
+            if (scanner.hasNextInt()) {
+
+                int slot_count = scanner.nextInt();
+
+                if (slot_count < 2 || slot_count > max_slots) {
+
+                    System.out.println("The number of slots must be between 2 and " + max_slots + ".");
+                }
+                else {
+
+                    return slot_count;
+                }
+            }
+            else {
+
+                System.out.println("Invalid input. Please enter a valid integer.");
+                scanner.next();
+            }
+        }
+    }
+
+    public YearMonth promptMonth() {
+
+        while (true) {
+
+            System.out.print("Enter the month (YYYY-MM): ");
+
+            try {
+
+                return YearMonth.parse(scanner.next());
+            }
+            catch (DateTimeParseException error) {
+
+                System.out.println("Invalid month. Please enter it as YYYY-MM, for example 2025-03.");
+            }
+        }
+    }
+
+    public String promptExportPath() {
+
+        System.out.print("Enter the file to export accounts to: ");
+        return scanner.next();
+    }
+
+    public String promptHolderQuery() {
+
+        scanner.nextLine();
+        System.out.print("Enter all or part of the Holder's Name: ");
+        return scanner.nextLine();
+    }
+
+    public String promptPageAction() {
+
+        while (true) {
+
+            System.out.print("Enter N for the next page, P for the previous page, or Q to stop: ");
+            String action = scanner.next().toLowerCase();
+            if (action.equals("n") || action.equals("p") || action.equals("q")) {
+
+                return action;
+            }
+
+            System.out.println("Invalid input. Please enter 'N', 'P' or 'Q'.");
+        }
+    }
+
+    public int promptMinimumBalance() {
+
+        while (true) {
+
+            System.out.print("Enter the lowest balance to list: ");
+
+            if (scanner.hasNextInt()) {
+
+                int balance = scanner.nextInt();
+
+                if (balance < 0) {
+
+                    System.out.println("The balance must be 0 or more. Please try again.");
+                }
+                else {
+
+                    return balance;
+                }
+            }
+            else {
+
+                System.out.println("Invalid input. Please enter a valid integer.");
+                scanner.next();
+            }
+        }
+    }
+
+    public int promptMaximumBalance() {
+
+        //-1 means there is no upper limit
+        while (true) {
+
+            System.out.print("Enter the highest balance to list, or -1 for no limit: ");
+
+            if (scanner.hasNextInt()) {
+
+                int balance = scanner.nextInt();
+
+                if (balance < -1) {
+
+                    System.out.println("The balance must be 0 or more, or -1. Please try again.");
+                }
+                else {
+
+                    return balance;
+                }
+            }
+            else {
+
+                System.out.println("Invalid input. Please enter a valid integer.");
+                scanner.next();
+            }
+        }
+    }
+
+    public String promptAccountListPath() {
+
+        System.out.print("Enter the file listing the account numbers: ");
+        return scanner.next();
+    }
+
+    public String promptNewAccountListPath() {
+
+        System.out.print("Enter the file listing the new accounts: ");
+        return scanner.next();
+    }
+
     public void showAccountInfo(Account account, User user) {
 
         System.out.println("Account #" + account.getAccountNumber());
@@ -311,6 +507,15 @@ public class ATMView {
         System.out.println("Balance: $" + account.getBalance());
         System.out.println("Status: " + account.getStatus());
         System.out.println("Login: " + user.getLogin());
-        System.out.println("Pin Code: " + user.getPin());
+
+        //Hashed pin codes cannot be shown; only one still stored in plain text (5 digits) can be
+        if (user.getPin() != null && user.getPin().matches("\\d{5}")) {
+
+            System.out.println("Pin Code: " + user.getPin());
+        }
+        else {
+
+            System.out.println("Pin Code: (stored hashed)");
+        }
     }
 }
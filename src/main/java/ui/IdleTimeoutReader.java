@@ -0,0 +1,229 @@
+package ui;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class IdleTimeoutReader extends Reader {
+
+    //Sits between a terminal's input and the view's Scanner so that a prompt can give up waiting. A read on
+    //System.in cannot be interrupted, so a single pump thread per terminal does the blocking read and hands the
+    //characters over here. A prompt then waits on a condition with a deadline instead: once the terminal has been
+    //idle for idle_timeout_ms (or cancel() is called) the read throws SessionTimeoutException. No timer thread is
+    //ever started; the deadline is just how long the waiting read is willing to wait.
+    //The timeout only applies while it is armed, so the login screen can wait for the next customer indefinitely
+
+    private final Reader source;
+    private final long idle_timeout_ms;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    //Everything below is guarded by lock
+    private final StringBuilder pending = new StringBuilder();
+    private boolean end_of_input;
+    private IOException failure;
+    private boolean armed;
+    private boolean cancelled;
+    private long last_activity_nanos = System.nanoTime();
+    private Thread pump;
+
+    private final LongAdder timeouts = new LongAdder();
+
+    public IdleTimeoutReader(Reader source, long idle_timeout_ms) {
+
+        if (idle_timeout_ms < 1) {
+
+            throw new IllegalArgumentException("Idle timeout must be at least 1 ms");
+        }
+
+        this.source = source;
+        this.idle_timeout_ms = idle_timeout_ms;
+    }
+
+
+    public void setArmed(boolean armed) {
+
+        lock.lock();
+        try {
+
+            //Arming starts the idle clock afresh, so time spent at the login screen never counts against a session
+            this.armed = armed;
+            last_activity_nanos = System.nanoTime();
+            changed.signalAll();
+        }
+        finally {
+
+            lock.unlock();
+        }
+    }
+
+    public void cancel() {
+
+        //Ends the read that is waiting now (or the next one to start), whether or not the timeout is armed
+        lock.lock();
+        try {
+
+            cancelled = true;
+            changed.signalAll();
+        }
+        finally {
+
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+
+        if (length == 0) {
+
+            return 0;
+        }
+
+        lock.lock();
+        try {
+
+            startPump();
+
+            while (pending.length() == 0 && !end_of_input) {
+
+                if (cancelled) {
+
+                    cancelled = false;
+                    throw new SessionTimeoutException("Input was cancelled");
+                }
+
+                try {
+
+                    if (armed) {
+
+                        long remaining = last_activity_nanos + TimeUnit.MILLISECONDS.toNanos(idle_timeout_ms) -
+                                System.nanoTime();
+                        if (remaining <= 0) {
+
+                            timeouts.increment();
+                            throw new SessionTimeoutException("No input for " + idle_timeout_ms + " ms");
+                        }
+
+                        changed.awaitNanos(remaining);
+                    }
+                    else {
+
+                        changed.await();
+                    }
+                }
+                catch (InterruptedException error) {
+
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for input");
+                }
+            }
+
+            if (pending.length() == 0) {
+
+                //The input has ended; a read error is reported once, then the end of input as usual
+                if (failure != null) {
+
+                    IOException error = failure;
+                    failure = null;
+                    throw error;
+                }
+
+                return -1;
+            }
+
+            int count = Math.min(length, pending.length());
+            pending.getChars(0, count, buffer, offset);
+            pending.delete(0, count);
+            return count;
+        }
+        finally {
+
+            lock.unlock();
+        }
+    }
+
+    private void startPump() {
+
+        //Only called with lock held. The pump is started by the first read, so an unused reader costs no thread
+        if (pump != null) {
+
+            return;
+        }
+
+        pump = new Thread(this::pumpInput, "terminal-input");
+        pump.setDaemon(true);
+        pump.start();
+    }
+
+    private void pumpInput() {
+
+        char[] buffer = new char[1024];
+
+        try {
+
+            int count;
+            while ((count = source.read(buffer)) != -1) {
+
+                lock.lock();
+                try {
+
+                    pending.append(buffer, 0, count);
+                    last_activity_nanos = System.nanoTime();
+                    changed.signalAll();
+                }
+                finally {
+
+                    lock.unlock();
+                }
+            }
+        }
+        catch (IOException error) {
+
+            lock.lock();
+            try {
+
+                failure = error;
+            }
+            finally {
+
+                lock.unlock();
+            }
+        }
+        finally {
+
+            lock.lock();
+            try {
+
+                end_of_input = true;
+                changed.signalAll();
+            }
+            finally {
+
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        //Closing the source ends the pump's read, which in turn ends any read waiting here
+        source.close();
+    }
+
+    public long getIdleTimeoutMs() {
+
+        return idle_timeout_ms;
+    }
+
+    public long getTimeouts() {
+
+        return timeouts.sum();
+    }
+}
@@ -0,0 +1,12 @@
+package ui;
+
+public class SessionTimeoutException extends RuntimeException {
+
+    //Thrown out of a prompt when the user has left the terminal idle for too long, or when the read was cancelled.
+    //It is unchecked so it can pass through the menus untouched, up to the controller that ends the session
+
+    public SessionTimeoutException(String message) {
+
+        super(message);
+    }
+}
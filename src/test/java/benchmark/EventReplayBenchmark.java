@@ -0,0 +1,154 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import repository.eventsource.AccountEvent;
+import repository.eventsource.AccountEventType;
+import repository.eventsource.AccountState;
+import repository.eventsource.EventLog;
+import repository.eventsource.EventReplayer;
+import repository.eventsource.EventSourcedDatabaseManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+//Measures how many events per second an event-sourced store replays at startup: applying already decoded events
+//to account states on 1, 4 and 8 threads, and a whole start (reading the log from disk, decoding it and applying
+//it) with no snapshot. The log holds 1,000,000 events over 10,000 accounts: each account is created, then deposited
+//to and withdrawn from at random. Run with:
+//  mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmark.EventReplayBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class EventReplayBenchmark {
+
+    private static final int EVENTS = 1_000_000;
+    private static final int ACCOUNTS = 10_000;
+
+    @Param({"1", "4", "8"})
+    public int threads;
+
+    private List<AccountEvent> events;
+    private EventReplayer replayer;
+    private Path directory;
+    private EventSourcedDatabaseManager store;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        Random random = new Random(42);
+        int[] balances = new int[ACCOUNTS + 1];
+        events = new ArrayList<>(EVENTS);
+        for (int i = 1; i <= EVENTS; i++) {
+
+            int account_num = i <= ACCOUNTS ? i : 1 + random.nextInt(ACCOUNTS);
+            if (i <= ACCOUNTS) {
+
+                balances[account_num] = 1_000;
+                events.add(new AccountEvent(i, AccountEventType.ACCOUNT_CREATED, account_num, 0, 1_000,
+                        "user" + account_num, "hash", "Holder " + account_num, "Active", "Customer", i));
+            }
+            else {
+
+                int amount = 1 + random.nextInt(100);
+                boolean deposit = random.nextBoolean() || balances[account_num] < amount;
+                balances[account_num] += deposit ? amount : -amount;
+                events.add(new AccountEvent(i, deposit ? AccountEventType.DEPOSITED : AccountEventType.WITHDRAWN,
+                        account_num, amount, balances[account_num], null, null, null, null, null, i));
+            }
+        }
+
+        //The log file is written in one go rather than through append(), which waits for the disk every event
+        directory = Files.createTempDirectory("event-replay");
+        try (FileChannel channel = FileChannel.open(directory.resolve("events.log"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+
+            for (AccountEvent event : events) {
+
+                ByteBuffer entry = EventLog.encode(event);
+                while (entry.hasRemaining()) {
+
+                    channel.write(entry);
+                }
+            }
+        }
+
+        replayer = new EventReplayer(threads);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+
+        try (Stream<Path> files = Files.walk(directory)) {
+
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public Map<Integer, AccountState> applyDecoded() throws IOException {
+
+        Map<Integer, AccountState> states = new ConcurrentHashMap<>(ACCOUNTS * 2);
+        replayer.replay(events, states);
+        return states;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int startFromLog() throws IOException {
+
+        store = new EventSourcedDatabaseManager(directory, threads);
+        return store.getAccountCount();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeStore() throws IOException {
+
+        //Closing writes a snapshot, which is removed so that every start replays the whole log
+        if (store != null) {
+
+            store.close();
+            Files.deleteIfExists(directory.resolve("accounts.snapshot"));
+            store = null;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+
+        new Runner(new OptionsBuilder().include(EventReplayBenchmark.class.getSimpleName()).build()).run();
+    }
+}
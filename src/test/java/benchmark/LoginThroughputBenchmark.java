@@ -0,0 +1,66 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import repository.credential.CredentialVerifier;
+import repository.credential.PinHasher;
+import repository.credential.VerifiedCredentialCache;
+
+import java.util.concurrent.TimeUnit;
+
+//Measures how many logins per second the PIN check allows at different KDF costs, with the verified-credential
+//cache in use (a repeat login within its time to live) and without it (every login pays for the KDF). The database
+//lookup by login is left out, since it costs the same whatever the hash. Run with:
+//  mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmark.LoginThroughputBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class LoginThroughputBenchmark {
+
+    @Param({"10000", "100000", "600000"})
+    public int iterations;
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private CredentialVerifier verifier;
+    private String stored_pin;
+
+    @Setup
+    public void setUp() {
+
+        PinHasher pin_hasher = new PinHasher(iterations);
+        stored_pin = pin_hasher.hash("12345");
+
+        //A time to live of 0 makes every entry expire at once, so every login runs the KDF
+        verifier = new CredentialVerifier(pin_hasher, new VerifiedCredentialCache(10_000, cached ? 60_000 : 0));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean login() {
+
+        return verifier.verify("john_doe", "12345", stored_pin);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+
+        new Runner(new OptionsBuilder().include(LoginThroughputBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -2,26 +2,65 @@ package controller;
 
 import model.account.Account;
 import model.account.AccountInfo;
+import model.account.AccountList;
+import model.account.BalanceEntry;
+import model.account.BalanceRangePage;
+import model.account.BulkUpdateResult;
 import model.account.CreationResult;
+import model.account.Dashboard;
 import model.account.DeletionResult;
+import model.account.HolderMatch;
+import model.account.HolderSearchResult;
+import model.account.HotAccount;
+import model.account.NewAccount;
+import model.account.NewAccountList;
+import model.account.StatusTotals;
+import model.account.SubBalanceResult;
+import model.account.AccountLimits;
+import model.session.SessionContext;
+import model.transaction.ActivitySummary;
+import model.transaction.ActivityTotals;
+import model.transaction.DailyActivity;
 import model.transaction.DepositResult;
+import model.transaction.StatementResult;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
 import model.transaction.WithdrawalResult;
 import model.user.Administrator;
 import model.user.Customer;
+import model.user.LoginPermit;
+import model.user.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 import repository.DatabaseManager;
 import repository.exception.DatabaseException;
+import repository.exception.OfflineLimitExceededException;
 import service.AdminService;
 import service.CustomerService;
+import service.LoginService;
+import service.ratelimit.LoginRateLimiter;
 import ui.ATMView;
-
+import ui.SessionTimeoutException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 public class ATMControllerTest {
 
-    private DatabaseManager db_manager_mock;
+    private LoginService login_service_mock;
     private CustomerService customer_service_mock;
     private AdminService admin_service_mock;
     private ATMView view_mock;
@@ -31,11 +70,17 @@ public class ATMControllerTest {
     public void setUp() {
 
         //Before every test is run, mocks are established to ensure only ATMController is tested
-        db_manager_mock = mock(DatabaseManager.class);
+        login_service_mock = mock(LoginService.class);
         customer_service_mock = mock(CustomerService.class);
         admin_service_mock = mock(AdminService.class);
         view_mock = mock(ATMView.class);
-        controller = new ATMController(db_manager_mock, customer_service_mock, admin_service_mock, view_mock);
+        controller = new ATMController(login_service_mock, customer_service_mock, admin_service_mock, view_mock);
+    }
+
+    private static SessionContext sessionOf(User user) {
+
+        //A session with no recent activity and the default limits, as loaded for a brand-new account
+        return new SessionContext(user, List.of(), AccountLimits.DEFAULT, 5);
     }
 
 
@@ -52,8 +97,8 @@ public class ATMControllerTest {
         when(view_mock.promptLogin()).thenReturn("Customer");
         when(view_mock.promptPin()).thenReturn("12345");
 
-        //When db_manager_mock needs to get a user, the customer_mock is provided
-        when(db_manager_mock.getUser("Customer", "12345")).thenReturn(customer_mock);
+        //When login_service_mock is asked to log in, a session for customer_mock is provided
+        when(login_service_mock.login("Customer", "12345")).thenReturn(sessionOf(customer_mock));
 
         //The following ensures that when handleCustomerMenu() is called, nothing actually happens, which
         //prevents the test getting trapped in a loop
@@ -79,8 +124,8 @@ public class ATMControllerTest {
         when(view_mock.promptLogin()).thenReturn("Admin");
         when(view_mock.promptPin()).thenReturn("56789");
 
-        //When db_manager_mock needs to get a user, the admin_mock is provided
-        when(db_manager_mock.getUser("Admin", "56789")).thenReturn(admin_mock);
+        //When login_service_mock is asked to log in, a session for admin_mock is provided
+        when(login_service_mock.login("Admin", "56789")).thenReturn(sessionOf(admin_mock));
 
         //The following ensures that when handleAdminMenu() is called, nothing actually happens, which
         //prevents the test getting trapped in a loop
@@ -108,8 +153,8 @@ public class ATMControllerTest {
         when(view_mock.promptLogin()).thenReturn("Not_Customer", "Customer");
         when(view_mock.promptPin()).thenReturn("00000", "12345");
 
-        when(db_manager_mock.getUser("Not_Customer", "00000")).thenReturn(null);
-        when(db_manager_mock.getUser("Customer", "12345")).thenReturn(customer_mock);
+        when(login_service_mock.login("Not_Customer", "00000")).thenReturn(null);
+        when(login_service_mock.login("Customer", "12345")).thenReturn(sessionOf(customer_mock));
 
         //The following ensures that when handleCustomerMenu() is called, nothing actually happens, which
         //prevents the test getting trapped in a loop
@@ -125,6 +170,139 @@ public class ATMControllerTest {
     }
 
 
+    @Test
+    public void test_start_when_session_times_out_should_log_out_and_return_to_login() throws DatabaseException {
+
+        ATMController controller_spy = Mockito.spy(controller);
+
+        Customer customer_mock = new Customer("Customer", "12345",
+                new Account(1, "John Doe", 10000, "Active"));
+        Administrator admin_mock = new Administrator("Admin", "56789");
+
+        //The customer walks away mid-session; the next user is an administrator who exits normally
+        when(view_mock.promptLogin()).thenReturn("Customer", "Admin");
+        when(view_mock.promptPin()).thenReturn("12345", "56789");
+        when(login_service_mock.login("Customer", "12345")).thenReturn(sessionOf(customer_mock));
+        when(login_service_mock.login("Admin", "56789")).thenReturn(sessionOf(admin_mock));
+        doThrow(new SessionTimeoutException("No input")).when(controller_spy).handleCustomerMenu(customer_mock);
+        doNothing().when(controller_spy).handleAdminMenu();
+
+        controller_spy.start();
+
+        //When the customer's session times out, they are logged out, the input is reset and the terminal goes back
+        //to the login screen, where the next user can log in
+        verify(view_mock).displayMessage("\nYour session timed out due to inactivity and you have been logged out.\n");
+        verify(view_mock).resetInput();
+        verify(view_mock, times(2)).setIdleTimeoutArmed(true);
+        verify(view_mock, times(2)).setIdleTimeoutArmed(false);
+        verify(controller_spy).handleAdminMenu();
+        assertEquals(1, controller_spy.getTimedOutSessions());
+    }
+
+    @Test
+    public void test_start_when_session_ends_normally_should_disarm_idle_timeout() throws DatabaseException {
+
+        ATMController controller_spy = Mockito.spy(controller);
+
+        Customer customer_mock = new Customer("Customer", "12345",
+                new Account(1, "John Doe", 10000, "Active"));
+
+        when(view_mock.promptLogin()).thenReturn("Customer");
+        when(view_mock.promptPin()).thenReturn("12345");
+        when(login_service_mock.login("Customer", "12345")).thenReturn(sessionOf(customer_mock));
+        doNothing().when(controller_spy).handleCustomerMenu(customer_mock);
+
+        controller_spy.start();
+
+        //When the user exits on their own, the timeout is armed only for the session and nothing is reported
+        verify(view_mock).setIdleTimeoutArmed(true);
+        verify(view_mock).setIdleTimeoutArmed(false);
+        verify(view_mock, never()).resetInput();
+        assertEquals(0, controller_spy.getTimedOutSessions());
+    }
+
+    @Test
+    public void test_start_when_login_throttled_should_not_query_database_until_allowed() throws DatabaseException {
+
+        //The controller is given a rate limiter that refuses the first attempt and allows the second
+        LoginRateLimiter rate_limiter_mock = mock(LoginRateLimiter.class);
+        ATMController limited_controller = Mockito.spy(new ATMController(login_service_mock, customer_service_mock,
+                admin_service_mock, view_mock, rate_limiter_mock, "terminal-1"));
+
+        Administrator admin_mock = new Administrator("Admin", "56789");
+        when(view_mock.promptLogin()).thenReturn("Admin");
+        when(view_mock.promptPin()).thenReturn("56789");
+        when(rate_limiter_mock.tryAcquire("terminal-1", "Admin")).thenReturn(
+                new LoginPermit(LoginPermit.Status.THROTTLED, 1500), LoginPermit.ALLOWED);
+        when(login_service_mock.login("Admin", "56789")).thenReturn(sessionOf(admin_mock));
+        doNothing().when(limited_controller).handleAdminMenu();
+
+        limited_controller.start();
+
+        //When the first attempt is throttled, the user should be told to wait (rounded up to whole seconds), and
+        //only the allowed attempt should reach the database and count as a success
+        verify(view_mock).displayMessage("Too many login attempts. Please wait 2 seconds and try again.\n");
+        verify(login_service_mock, times(1)).login("Admin", "56789");
+        verify(rate_limiter_mock).recordSuccess("Admin");
+    }
+
+    @Test
+    public void test_start_when_login_fails_should_record_failure_with_rate_limiter() throws DatabaseException {
+
+        LoginRateLimiter rate_limiter_mock = mock(LoginRateLimiter.class);
+        ATMController limited_controller = Mockito.spy(new ATMController(login_service_mock, customer_service_mock,
+                admin_service_mock, view_mock, rate_limiter_mock, "terminal-1"));
+
+        //The first attempt uses a wrong pin, the second the right one
+        Administrator admin_mock = new Administrator("Admin", "56789");
+        when(view_mock.promptLogin()).thenReturn("Admin");
+        when(view_mock.promptPin()).thenReturn("00000", "56789");
+        when(rate_limiter_mock.tryAcquire("terminal-1", "Admin")).thenReturn(LoginPermit.ALLOWED);
+        when(login_service_mock.login("Admin", "56789")).thenReturn(sessionOf(admin_mock));
+        doNothing().when(limited_controller).handleAdminMenu();
+
+        limited_controller.start();
+
+        //When an attempt fails, the limiter should be told, so repeated failures can lead to a lockout
+        verify(rate_limiter_mock).recordFailure("Admin");
+        verify(rate_limiter_mock).recordSuccess("Admin");
+    }
+
+    @Test
+    public void test_permitMessage_when_locked_out_should_report_lockout() {
+
+        //When a login is locked out, the message should say so and for how long
+        assertEquals("Too many failed attempts. This login is locked for 60 seconds.\n",
+                ATMController.permitMessage(new LoginPermit(LoginPermit.Status.LOCKED_OUT, 60_000)));
+    }
+
+    @Test
+    public void test_start_when_database_unavailable_should_stay_on_login_and_retry() throws DatabaseException {
+
+        //For this test, a controller_spy of ATMController is needed to be made
+        ATMController controller_spy = Mockito.spy(controller);
+
+        Customer customer_mock = new Customer("Customer", "12345",
+                new Account(2, "Jane Doe", 5000, "Active"));
+
+        when(view_mock.promptLogin()).thenReturn("Customer");
+        when(view_mock.promptPin()).thenReturn("12345");
+
+        //The first login attempt fails because the database is down; the second succeeds
+        when(login_service_mock.login("Customer", "12345"))
+                .thenThrow(new DatabaseException("Error loading session for login: Customer", null))
+                .thenReturn(sessionOf(customer_mock));
+        doNothing().when(controller_spy).handleCustomerMenu(customer_mock);
+
+        controller_spy.start();
+
+        //When start() hits a database failure, the error should be shown and the user asked to log in again,
+        //without the invalid login message
+        verify(view_mock).displayError(ATMController.UNAVAILABLE_MESSAGE);
+        verify(view_mock, never()).displayMessage("Invalid login or pin code. Please try again.\n");
+        verify(controller_spy).handleCustomerMenu(customer_mock);
+    }
+
     @Test
     public void test_handleCustomerMenu_when_withdraw_then_exit_should_call_handleWithdraw_and_print_exit_message() throws DatabaseException {
 
@@ -134,8 +312,8 @@ public class ATMControllerTest {
         Customer customer_mock = new Customer("Customer", "12345",
                 new Account(1, "John Doe", 5000, "Active"));
 
-        //When prompted with a menu choice, 1 is first selected, then 4
-        when(view_mock.promptMenuChoice()).thenReturn(1, 4);
+        //When prompted with a menu choice, 1 is first selected, then 5
+        when(view_mock.promptMenuChoice()).thenReturn(1, 5);
 
         //The following ensures that the program does not get caught in a loop or stuck
         doNothing().when(view_mock).displayCustomerMenu();
@@ -160,8 +338,8 @@ public class ATMControllerTest {
         Customer customer_mock = new Customer("Customer", "12345",
                 new Account(2, "Jane Doe", 5000, "Active"));
 
-        //When prompted with a menu choice, 2 is first selected, then 4
-        when(view_mock.promptMenuChoice()).thenReturn(2, 4);
+        //When prompted with a menu choice, 2 is first selected, then 5
+        when(view_mock.promptMenuChoice()).thenReturn(2, 5);
 
         //The following ensures that the program does not get caught in a loop or stuck
         doNothing().when(view_mock).displayCustomerMenu();
@@ -186,8 +364,8 @@ public class ATMControllerTest {
         Customer customer_mock = new Customer("Customer", "12345",
                 new Account(3, "John Doe", 5000, "Active"));
 
-        //When prompted with a menu choice, 3 is first selected, then 4
-        when(view_mock.promptMenuChoice()).thenReturn(3, 4);
+        //When prompted with a menu choice, 3 is first selected, then 5
+        when(view_mock.promptMenuChoice()).thenReturn(3, 5);
 
         //The following ensures that the program does not get caught in a loop or stuck
         doNothing().when(view_mock).displayCustomerMenu();
@@ -212,8 +390,8 @@ public class ATMControllerTest {
         Customer customer_mock = new Customer("Customer", "12345",
                 new Account(4, "Jane Doe", 5000, "Active"));
 
-        //When prompted with a menu choice, an invalid integer is first selected, then 4
-        when(view_mock.promptMenuChoice()).thenReturn(99, 4);
+        //When prompted with a menu choice, an invalid integer is first selected, then 5
+        when(view_mock.promptMenuChoice()).thenReturn(99, 5);
 
         //The following ensures that the program does not get caught in a loop or stuck
         doNothing().when(view_mock).displayCustomerMenu();
@@ -229,14 +407,53 @@ public class ATMControllerTest {
     }
 
 
+    @Test
+    public void test_handleCustomerMenu_when_database_fails_should_display_error_and_keep_session() throws DatabaseException {
+
+        //For this test, a controller_spy of ATMController is needed to be made
+        ATMController controller_spy = spy(controller);
+        Customer customer_mock = new Customer("Customer", "12345", new Account(1, "John Doe", 100, "Active"));
+
+        //When prompted with a menu choice, 1 is first selected, then 4; the withdrawal fails in the database
+        when(view_mock.promptMenuChoice()).thenReturn(1, 5);
+        doThrow(new DatabaseException("Error updating account balance", null))
+                .when(controller_spy).handleWithdrawal(customer_mock);
+
+        controller_spy.handleCustomerMenu(customer_mock);
+
+        //When handleCustomerMenu() hits a database failure, the error should be shown and the menu displayed again
+        verify(view_mock).displayError(ATMController.UNAVAILABLE_MESSAGE);
+        verify(view_mock, times(2)).displayCustomerMenu();
+        verify(view_mock).displayMessage("Thank you for using the ATM. Goodbye!");
+    }
+
+    @Test
+    public void test_handleCustomerMenu_when_offline_limit_exceeded_should_show_remaining_offline_allowance() throws DatabaseException {
+
+        ATMController controller_spy = spy(controller);
+        Customer customer_mock = new Customer("Customer", "12345", new Account(1, "John Doe", 1000, "Active"));
+
+        //When prompted with a menu choice, 1 is first selected, then 4; the database is down and $50 is left offline
+        when(view_mock.promptMenuChoice()).thenReturn(1, 5);
+        doThrow(new OfflineLimitExceededException("Withdrawal exceeds the offline limit", 50))
+                .when(controller_spy).handleWithdrawal(customer_mock);
+
+        controller_spy.handleCustomerMenu(customer_mock);
+
+        //When the withdrawal is over the offline limit, the customer is told how much can still be withdrawn
+        verify(view_mock).displayMessage("The bank's system is offline, so withdrawals are limited for now. " +
+                "You can withdraw up to $50 until it is back.");
+        verify(view_mock, never()).displayError(ATMController.UNAVAILABLE_MESSAGE);
+    }
+
     @Test
     public void test_handleAdminMenu_when_create_account_then_exit_should_call_handleAccountCreation_and_print_exit_message() throws DatabaseException {
 
         //For this test, a controller_spy of ATMController is needed to be made
         ATMController controller_spy = Mockito.spy(controller);
 
-        //When prompted with a menu choice, 1 is first selected, then 5
-        when(view_mock.promptMenuChoice()).thenReturn(1, 5);
+        //When prompted with a menu choice, 1 is first selected, then 14
+        when(view_mock.promptMenuChoice()).thenReturn(1, 14);
 
         //The following ensures that the program does not get caught in a loop or stuck
         doNothing().when(view_mock).displayAdminMenu();
@@ -258,8 +475,8 @@ public class ATMControllerTest {
         //For this test, a controller_spy of ATMController is needed to be made
         ATMController controller_spy = Mockito.spy(controller);
 
-        //When prompted with a menu choice, 2 is first selected, then 5
-        when(view_mock.promptMenuChoice()).thenReturn(2, 5);
+        //When prompted with a menu choice, 2 is first selected, then 14
+        when(view_mock.promptMenuChoice()).thenReturn(2, 14);
 
         //The following ensures that the program does not get caught in a loop or stuck
         doNothing().when(view_mock).displayAdminMenu();
@@ -281,8 +498,8 @@ public class ATMControllerTest {
         //For this test, a controller_spy of ATMController is needed to be made
         ATMController controller_spy = Mockito.spy(controller);
 
-        //When prompted with a menu choice, 3 is first selected, then 5
-        when(view_mock.promptMenuChoice()).thenReturn(3, 5);
+        //When prompted with a menu choice, 3 is first selected, then 14
+        when(view_mock.promptMenuChoice()).thenReturn(3, 14);
 
         //The following ensures that the program does not get caught in a loop or stuck
         doNothing().when(view_mock).displayAdminMenu();
@@ -304,8 +521,8 @@ public class ATMControllerTest {
         //For this test, a controller_spy of ATMController is needed to be made
         ATMController controller_spy = Mockito.spy(controller);
 
-        //When prompted with a menu choice, 4 is first selected, then 5
-        when(view_mock.promptMenuChoice()).thenReturn(4, 5);
+        //When prompted with a menu choice, 4 is first selected, then 14
+        when(view_mock.promptMenuChoice()).thenReturn(4, 14);
 
         //The following ensures that the program does not get caught in a loop or stuck
         doNothing().when(view_mock).displayAdminMenu();
@@ -321,14 +538,158 @@ public class ATMControllerTest {
         verify(view_mock).displayMessage("Thank you for using the ATM. Goodbye!");
     }
 
+    @Test
+    public void test_handleAdminMenu_when_export_accounts_then_exit_should_call_handleAccountExport_and_print_exit_message() throws DatabaseException {
+
+        //For this test, a controller_spy of ATMController is needed to be made
+        ATMController controller_spy = Mockito.spy(controller);
+
+        //When prompted with a menu choice, 5 is first selected, then 14
+        when(view_mock.promptMenuChoice()).thenReturn(5, 14);
+
+        //The following ensures that the program does not get caught in a loop or stuck
+        doNothing().when(view_mock).displayAdminMenu();
+        doNothing().when(view_mock).displayMessage(anyString());
+        doNothing().when(controller_spy).handleAccountExport();
+
+        controller_spy.handleAdminMenu();
+
+        //When handleAdminMenu() is called, the menu should be displayed twice, handleAccountExport() should be
+        //called, and view_mock should be instructed to print the exit message
+        verify(view_mock, times(2)).displayAdminMenu();
+        verify(controller_spy).handleAccountExport();
+        verify(view_mock).displayMessage("Thank you for using the ATM. Goodbye!");
+    }
+
+    @Test
+    public void test_handleAdminMenu_when_enable_sub_balances_then_exit_should_call_handleSubBalanceSetup_and_print_exit_message() throws DatabaseException {
+
+        //For this test, a controller_spy of ATMController is needed to be made
+        ATMController controller_spy = Mockito.spy(controller);
+
+        //When prompted with a menu choice, 6 is first selected, then 14
+        when(view_mock.promptMenuChoice()).thenReturn(6, 14);
+
+        //The following ensures that the program does not get caught in a loop or stuck
+        doNothing().when(view_mock).displayAdminMenu();
+        doNothing().when(view_mock).displayMessage(anyString());
+        doNothing().when(controller_spy).handleSubBalanceSetup();
+
+        controller_spy.handleAdminMenu();
+
+        //When handleAdminMenu() is called, handleSubBalanceSetup() should be called before the exit message
+        verify(view_mock, times(2)).displayAdminMenu();
+        verify(controller_spy).handleSubBalanceSetup();
+        verify(view_mock).displayMessage("Thank you for using the ATM. Goodbye!");
+    }
+
+    @Test
+    public void test_handleAdminMenu_when_hot_accounts_then_exit_should_list_hot_accounts_and_print_exit_message() throws DatabaseException {
+
+        //When prompted with a menu choice, 8 is first selected, then 14
+        when(view_mock.promptMenuChoice()).thenReturn(8, 14);
+        when(admin_service_mock.getHotAccounts()).thenReturn(List.of());
+
+        controller.handleAdminMenu();
+
+        //When the choice is 8, the hot accounts should be asked for, and 14 should end the session
+        verify(admin_service_mock).getHotAccounts();
+        verify(view_mock).displayMessage("Thank you for using the ATM. Goodbye!");
+    }
+
+    @Test
+    public void test_handleAdminMenu_when_bulk_operations_then_exit_should_call_handleBulkOperations_and_print_exit_message() throws DatabaseException {
+
+        //For this test, a controller_spy of ATMController is needed to be made
+        ATMController controller_spy = spy(controller);
+
+        //When prompted with a menu choice, 9 is first selected, then 14
+        when(view_mock.promptMenuChoice()).thenReturn(9, 14);
+        doNothing().when(controller_spy).handleBulkOperations();
+
+        controller_spy.handleAdminMenu();
+
+        //When the choice is 9, handleBulkOperations() should be called, and 14 should end the session
+        verify(controller_spy).handleBulkOperations();
+        verify(view_mock).displayMessage("Thank you for using the ATM. Goodbye!");
+    }
+
+    @Test
+    public void test_handleAdminMenu_when_find_by_name_then_exit_should_call_handleHolderSearch_and_print_exit_message() throws DatabaseException {
+
+        //For this test, a controller_spy of ATMController is needed to be made
+        ATMController controller_spy = spy(controller);
+
+        //When prompted with a menu choice, 10 is first selected, then 14
+        when(view_mock.promptMenuChoice()).thenReturn(10, 14);
+        doNothing().when(controller_spy).handleHolderSearch();
+
+        controller_spy.handleAdminMenu();
+
+        //When the choice is 10, handleHolderSearch() should be called, and 14 should end the session
+        verify(controller_spy).handleHolderSearch();
+        verify(view_mock).displayMessage("Thank you for using the ATM. Goodbye!");
+    }
+
+    @Test
+    public void test_handleAdminMenu_when_balance_range_then_exit_should_call_handleBalanceRange_and_print_exit_message() throws DatabaseException {
+
+        //For this test, a controller_spy of ATMController is needed to be made
+        ATMController controller_spy = spy(controller);
+
+        //When prompted with a menu choice, 11 is first selected, then 14
+        when(view_mock.promptMenuChoice()).thenReturn(11, 14);
+        doNothing().when(controller_spy).handleBalanceRange();
+
+        controller_spy.handleAdminMenu();
+
+        //When the choice is 11, handleBalanceRange() should be called, and 14 should end the session
+        verify(controller_spy).handleBalanceRange();
+        verify(view_mock).displayMessage("Thank you for using the ATM. Goodbye!");
+    }
+
+    @Test
+    public void test_handleAdminMenu_when_dashboard_then_exit_should_call_handleDashboard_and_print_exit_message() throws DatabaseException {
+
+        //For this test, a controller_spy of ATMController is needed to be made
+        ATMController controller_spy = spy(controller);
+
+        //When prompted with a menu choice, 12 is first selected, then 14
+        when(view_mock.promptMenuChoice()).thenReturn(12, 14);
+        doNothing().when(controller_spy).handleDashboard();
+
+        controller_spy.handleAdminMenu();
+
+        //When the choice is 12, handleDashboard() should be called, and 14 should end the session
+        verify(controller_spy).handleDashboard();
+        verify(view_mock).displayMessage("Thank you for using the ATM. Goodbye!");
+    }
+
+    @Test
+    public void test_handleAdminMenu_when_create_from_file_then_exit_should_call_handleAccountImport_and_print_exit_message() throws DatabaseException {
+
+        //For this test, a controller_spy of ATMController is needed to be made
+        ATMController controller_spy = spy(controller);
+
+        //When prompted with a menu choice, 13 is first selected, then 14
+        when(view_mock.promptMenuChoice()).thenReturn(13, 14);
+        doNothing().when(controller_spy).handleAccountImport();
+
+        controller_spy.handleAdminMenu();
+
+        //When the choice is 13, handleAccountImport() should be called, and 14 should end the session
+        verify(controller_spy).handleAccountImport();
+        verify(view_mock).displayMessage("Thank you for using the ATM. Goodbye!");
+    }
+
     @Test
     public void test_handleAdminMenu_when_invalid_input_then_exit_should_print_invalid_choice_and_exit_message() throws DatabaseException {
 
         //For this test, a controller_spy of ATMController is needed to be made
         ATMController controller_spy = spy(controller);
 
-        //When prompted with a menu choice, an invalid integer is first selected, then 5
-        when(view_mock.promptMenuChoice()).thenReturn(99, 5);
+        //When prompted with a menu choice, an invalid integer is first selected, then 14
+        when(view_mock.promptMenuChoice()).thenReturn(99, 14);
 
         //The following ensures that the program does not get caught in a loop or stuck
         doNothing().when(view_mock).displayAdminMenu();
@@ -469,6 +830,60 @@ public class ATMControllerTest {
         verify(view_mock).displayMessage("Balance: $20000");
     }
 
+    @Test
+    public void test_handleBalanceInfo_when_session_has_recent_activity_should_display_it_without_database() throws DatabaseException {
+
+        //For this test, a controller_spy of ATMController is needed to be made
+        ATMController controller_spy = spy(controller);
+        Customer customer = new Customer("Customer", "12345", new Account(1, "John Doe", 900, "Active"));
+
+        //The session loaded at login already holds one withdrawal
+        TransactionRecord withdrawal = new TransactionRecord(TransactionType.WITHDRAWAL, 100, 900,
+                LocalDateTime.of(2026, 10, 1, 9, 30));
+        when(view_mock.promptLogin()).thenReturn("Customer");
+        when(view_mock.promptPin()).thenReturn("12345");
+        when(login_service_mock.login("Customer", "12345")).thenReturn(
+                new SessionContext(customer, List.of(withdrawal), AccountLimits.DEFAULT, 5));
+        doNothing().when(controller_spy).handleCustomerMenu(customer);
+        controller_spy.start();
+
+        controller_spy.handleBalanceInfo(customer);
+
+        //When handleBalanceInfo() is called, the recent activity should be shown from the session, and the database
+        //should not have been asked for anything beyond the login
+        verify(view_mock).displayMessage("Recent Activity:");
+        verify(view_mock).displayMessage("10/01/2026 WITHDRAWAL $100 (Balance: $900)");
+        verify(login_service_mock, times(1)).login("Customer", "12345");
+        verifyNoMoreInteractions(login_service_mock);
+    }
+
+    @Test
+    public void test_handleDeposit_when_success_should_add_deposit_to_session_activity() throws DatabaseException {
+
+        //For this test, a controller_spy of ATMController is needed to be made
+        ATMController controller_spy = spy(controller);
+        Customer customer = new Customer("Customer", "12345", new Account(1, "John Doe", 1000, "Active"));
+
+        when(view_mock.promptLogin()).thenReturn("Customer");
+        when(view_mock.promptPin()).thenReturn("12345");
+        when(login_service_mock.login("Customer", "12345")).thenReturn(sessionOf(customer));
+        doNothing().when(controller_spy).handleCustomerMenu(customer);
+        controller_spy.start();
+
+        //The deposit succeeds and leaves a balance of 1250
+        when(view_mock.promptDeposit()).thenReturn(250);
+        when(customer_service_mock.depositCash(customer, 250)).thenReturn(new DepositResult(
+                DepositResult.Status.SUCCESS, new Account(1, "John Doe", 1250, "Active"), 250));
+
+        controller_spy.handleDeposit(customer);
+
+        //When handleDeposit() succeeds, the deposit should be at the front of the session's recent activity
+        TransactionRecord latest = controller_spy.getSession().getRecentActivity().get(0);
+        assertEquals(TransactionType.DEPOSIT, latest.type());
+        assertEquals(250, latest.amount());
+        assertEquals(1250, latest.balance_after());
+    }
+
     @Test
     public void test_handleBalanceInfo_when_account_is_nonexistent_should_display_error() {
 
@@ -505,6 +920,21 @@ public class ATMControllerTest {
         verify(view_mock).displayMessage("Account Successfully Created – the account number assigned is: 1");
     }
 
+    @Test
+    public void test_handleAccountCreation_when_login_already_taken_should_display_duplicate_message_without_prompting_further() throws DatabaseException {
+
+        //When view_mock prompts for a login, one that is already taken is to be provided
+        when(view_mock.promptLogin()).thenReturn("ZP6400");
+        when(admin_service_mock.isLoginTaken("ZP6400")).thenReturn(true);
+
+        controller.handleAccountCreation();
+
+        //When the login is taken, the duplicate message should be shown before the rest of the details are asked for
+        verify(view_mock).displayMessage("Account Creation Failed - Duplicate Entry.");
+        verify(view_mock, never()).promptPin();
+        verify(admin_service_mock, never()).createAccount(anyString(), anyString(), anyString(), anyInt(), anyBoolean());
+    }
+
     @Test
     public void test_handleAccountCreation_when_duplicate_account_should_display_duplicate_message() throws DatabaseException {
 
@@ -789,5 +1219,528 @@ public class ATMControllerTest {
         verify(view_mock).displayMessage("An Account with this account number does not exist.");
         verify(view_mock).showAccountInfo(account_mock, user_mock);
     }
-}
 
+    @Test
+    public void test_handleAccountExport_when_export_succeeds_should_display_exported_count(@TempDir Path temp_dir)
+            throws DatabaseException, IOException {
+
+        Path export_file = temp_dir.resolve("accounts.csv");
+
+        //When view_mock prompts for the export file, the temporary file is provided, and the admin service reports
+        //that three accounts were written
+        when(view_mock.promptExportPath()).thenReturn(export_file.toString());
+        when(admin_service_mock.exportAccounts(any(Writer.class))).thenReturn(3);
+
+        controller.handleAccountExport();
+
+        //When handleAccountExport() is called, the export should be written to the file and the count displayed
+        verify(admin_service_mock).exportAccounts(any(Writer.class));
+        verify(view_mock).displayMessage("Exported 3 accounts to " + export_file + ".");
+    }
+
+    @Test
+    public void test_handleAccountExport_when_file_cannot_be_written_should_display_error(@TempDir Path temp_dir)
+            throws DatabaseException, IOException {
+
+        //A path inside a directory that does not exist is provided, so the file cannot be opened
+        Path export_file = temp_dir.resolve("missing").resolve("accounts.csv");
+        when(view_mock.promptExportPath()).thenReturn(export_file.toString());
+
+        controller.handleAccountExport();
+
+        //When handleAccountExport() is called, the admin service should never be reached and an error is displayed
+        verify(admin_service_mock, never()).exportAccounts(any(Writer.class));
+        verify(view_mock).displayError(startsWith("Could not write export file"));
+    }
+
+
+    @Test
+    public void test_handleAccountImport_when_file_lists_accounts_should_report_each_one_against_its_login(
+            @TempDir Path temp_dir) throws DatabaseException, IOException {
+
+        Path list_file = temp_dir.resolve("new_accounts.csv");
+        Files.writeString(list_file, "jdoe,12345,100,Active,John Doe\nbad line\nasmith,54321,0,Disabled,Ann Smith\n");
+
+        //When the file is read, one line is skipped; asmith's login turns out to be taken
+        List<NewAccount> new_accounts = List.of(new NewAccount(0, "jdoe", "12345", "John Doe", 100, "Active"),
+                new NewAccount(0, "asmith", "54321", "Ann Smith", 0, "Disabled"));
+        when(view_mock.promptNewAccountListPath()).thenReturn(list_file.toString());
+        when(admin_service_mock.readNewAccounts(any(Reader.class))).thenReturn(new NewAccountList(new_accounts, 1));
+        when(admin_service_mock.createAccounts(new_accounts)).thenReturn(List.of(
+                new CreationResult(CreationResult.Status.SUCCESS, 501),
+                new CreationResult(CreationResult.Status.DUPLICATE_ACCOUNT, -1)));
+
+        controller.handleAccountImport();
+
+        //When handleAccountImport() is called, the skipped line, each account's outcome and the count are shown
+        verify(view_mock).displayMessage("Skipped 1 lines that do not describe an account.");
+        verify(view_mock).displayMessage("jdoe - account #501");
+        verify(view_mock).displayMessage("asmith - failed, duplicate entry");
+        verify(view_mock).displayMessage("Created 1 of 2 accounts.");
+    }
+
+    @Test
+    public void test_handleAccountImport_when_file_lists_no_accounts_should_create_nothing(@TempDir Path temp_dir)
+            throws DatabaseException, IOException {
+
+        Path list_file = temp_dir.resolve("new_accounts.csv");
+        Files.writeString(list_file, "# login,pin,balance,status,holder\n");
+
+        when(view_mock.promptNewAccountListPath()).thenReturn(list_file.toString());
+        when(admin_service_mock.readNewAccounts(any(Reader.class))).thenReturn(new NewAccountList(List.of(), 0));
+
+        controller.handleAccountImport();
+
+        //When the file lists no accounts, the admin service should never be asked to create any
+        verify(view_mock).displayMessage("The file does not list any new accounts.");
+        verify(admin_service_mock, never()).createAccounts(any());
+    }
+
+    @Test
+    public void test_handleAccountImport_when_file_cannot_be_read_should_display_error(@TempDir Path temp_dir)
+            throws DatabaseException, IOException {
+
+        //A file that does not exist is provided
+        when(view_mock.promptNewAccountListPath()).thenReturn(temp_dir.resolve("missing.csv").toString());
+
+        controller.handleAccountImport();
+
+        //When handleAccountImport() is called, an error should be displayed and nothing created
+        verify(view_mock).displayError(startsWith("Could not read new accounts"));
+        verify(admin_service_mock, never()).createAccounts(any());
+    }
+
+    @Test
+    public void test_handleBulkOperations_when_showing_accounts_should_list_found_and_missing_accounts(
+            @TempDir Path temp_dir) throws DatabaseException, IOException {
+
+        Path list_file = temp_dir.resolve("accounts.txt");
+        Files.writeString(list_file, "7\nseven\n9\n");
+
+        //When view_mock prompts for the list file, the temporary file is provided, and Show Accounts is chosen;
+        //only account 7 exists
+        when(view_mock.promptAccountListPath()).thenReturn(list_file.toString());
+        when(view_mock.promptMenuChoice()).thenReturn(1);
+        when(admin_service_mock.readAccountList(any(Reader.class))).thenReturn(new AccountList(new int[] {7, 9}, 1));
+        when(admin_service_mock.getAccounts(new int[] {7, 9}))
+                .thenReturn(Map.of(7, new Account(7, "John Doe", 500, "Active")));
+
+        controller.handleBulkOperations();
+
+        //When handleBulkOperations() is called, the skipped line is reported and each listed account is shown
+        verify(view_mock).displayMessage("Skipped 1 lines that are not account numbers.");
+        verify(view_mock).displayMessage("Account #7 - John Doe - $500 - Active");
+        verify(view_mock).displayMessage("Account #9 - not found");
+        verify(view_mock).displayMessage("Found 1 of 2 accounts.");
+    }
+
+    @Test
+    public void test_handleBulkOperations_when_changing_status_should_report_each_account_not_updated(
+            @TempDir Path temp_dir) throws DatabaseException, IOException {
+
+        Path list_file = temp_dir.resolve("accounts.txt");
+        Files.writeString(list_file, "7\n8\n9\n");
+
+        //When Change Status is chosen and the accounts are to be disabled, 8 does not exist and 9's batch fails
+        when(view_mock.promptAccountListPath()).thenReturn(list_file.toString());
+        when(view_mock.promptMenuChoice()).thenReturn(2);
+        when(view_mock.promptNewStatus()).thenReturn("Disabled");
+        when(admin_service_mock.readAccountList(any(Reader.class)))
+                .thenReturn(new AccountList(new int[] {7, 8, 9}, 0));
+        when(admin_service_mock.updateAccounts(new int[] {7, 8, 9}, "", "Disabled")).thenReturn(List.of(
+                new BulkUpdateResult(BulkUpdateResult.Status.UPDATED, 7),
+                new BulkUpdateResult(BulkUpdateResult.Status.NOT_FOUND, 8),
+                new BulkUpdateResult(BulkUpdateResult.Status.FAILED, 9)));
+
+        controller.handleBulkOperations();
+
+        //When handleBulkOperations() is called, only the accounts that were not updated are listed, then the count
+        verify(view_mock).displayMessage("Account #8 - not found");
+        verify(view_mock).displayMessage("Account #9 - failed, please try again");
+        verify(view_mock).displayMessage("Updated 1 of 3 accounts.");
+        verify(view_mock, never()).displayMessage(startsWith("Skipped"));
+    }
+
+    @Test
+    public void test_handleBulkOperations_when_new_name_is_blank_should_change_nothing(@TempDir Path temp_dir)
+            throws DatabaseException, IOException {
+
+        Path list_file = temp_dir.resolve("accounts.txt");
+        Files.writeString(list_file, "7\n");
+
+        //When Change Holder's Name is chosen but no name is entered
+        when(view_mock.promptAccountListPath()).thenReturn(list_file.toString());
+        when(view_mock.promptMenuChoice()).thenReturn(3);
+        when(view_mock.promptNewHolderName()).thenReturn(" ");
+        when(admin_service_mock.readAccountList(any(Reader.class))).thenReturn(new AccountList(new int[] {7}, 0));
+
+        controller.handleBulkOperations();
+
+        //When handleBulkOperations() is called, no update should be made
+        verify(admin_service_mock, never()).updateAccounts(any(), any(), any());
+        verify(view_mock).displayMessage("No name entered. No accounts were changed.");
+    }
+
+    @Test
+    public void test_handleBulkOperations_when_file_lists_no_accounts_should_say_so(@TempDir Path temp_dir)
+            throws DatabaseException, IOException {
+
+        Path list_file = temp_dir.resolve("accounts.txt");
+        Files.writeString(list_file, "# nothing yet\n");
+
+        when(view_mock.promptAccountListPath()).thenReturn(list_file.toString());
+        when(admin_service_mock.readAccountList(any(Reader.class))).thenReturn(new AccountList(new int[0], 0));
+
+        controller.handleBulkOperations();
+
+        //When the file lists no account numbers, the bulk menu should never be shown
+        verify(view_mock).displayMessage("The file does not list any account numbers.");
+        verify(view_mock, never()).displayBulkChoice();
+    }
+
+    @Test
+    public void test_handleBulkOperations_when_file_cannot_be_read_should_display_error(@TempDir Path temp_dir)
+            throws DatabaseException, IOException {
+
+        //A file that does not exist is provided
+        when(view_mock.promptAccountListPath()).thenReturn(temp_dir.resolve("missing.txt").toString());
+
+        controller.handleBulkOperations();
+
+        //When handleBulkOperations() is called, the admin service should never be reached and an error is displayed
+        verify(admin_service_mock, never()).readAccountList(any(Reader.class));
+        verify(view_mock).displayError(startsWith("Could not read account list"));
+    }
+
+    @Test
+    public void test_handleHolderSearch_when_matches_fit_on_one_page_should_list_them_without_paging() {
+
+        //When view_mock prompts for a name, "doe" is to be provided, and two accounts match
+        when(view_mock.promptHolderQuery()).thenReturn("doe");
+        when(admin_service_mock.searchHolders("doe", 0)).thenReturn(new HolderSearchResult(List.of(
+                new HolderMatch(7, "John Doe"), new HolderMatch(9, "Jane Doe")), 2, false));
+
+        controller.handleHolderSearch();
+
+        //When handleHolderSearch() is called, both matches should be listed and no page prompt shown
+        verify(view_mock).displayMessage("Accounts matching \"doe\" (page 1 of 1):");
+        verify(view_mock).displayMessage("Account #7 - John Doe");
+        verify(view_mock).displayMessage("Account #9 - Jane Doe");
+        verify(view_mock, never()).promptPageAction();
+    }
+
+    @Test
+    public void test_handleHolderSearch_when_paging_should_move_between_pages_until_quit() {
+
+        //15 accounts match, so there are two pages; the user goes forward, tries to go past the end, goes back and
+        //quits
+        HolderSearchResult first = new HolderSearchResult(List.of(new HolderMatch(1, "Jo Smith")), 15, false);
+        HolderSearchResult second = new HolderSearchResult(List.of(new HolderMatch(2, "Jo Smythe")), 15, false);
+        when(view_mock.promptHolderQuery()).thenReturn("jo");
+        when(admin_service_mock.searchHolders("jo", 0)).thenReturn(first);
+        when(admin_service_mock.searchHolders("jo", 1)).thenReturn(second);
+        when(view_mock.promptPageAction()).thenReturn("n", "n", "p", "q");
+
+        controller.handleHolderSearch();
+
+        //When handleHolderSearch() is called, each page should be shown as it is reached, and the last page should
+        //say so instead of moving on
+        verify(view_mock, times(2)).displayMessage("Accounts matching \"jo\" (page 1 of 2):");
+        verify(view_mock, times(2)).displayMessage("Accounts matching \"jo\" (page 2 of 2):");
+        verify(view_mock).displayMessage("This is the last page.");
+        verify(admin_service_mock, never()).searchHolders("jo", 2);
+    }
+
+    @Test
+    public void test_handleHolderSearch_when_too_many_matches_should_ask_for_more_of_the_name() {
+
+        when(view_mock.promptHolderQuery()).thenReturn("j");
+        when(admin_service_mock.searchHolders("j", 0)).thenReturn(new HolderSearchResult(List.of(
+                new HolderMatch(1, "Jo Smith")), 1000, true));
+        when(view_mock.promptPageAction()).thenReturn("q");
+
+        controller.handleHolderSearch();
+
+        //When the search was cut off, the user should be told to narrow it
+        verify(view_mock).displayMessage("Accounts matching \"j\" (page 1 of 100):");
+        verify(view_mock).displayMessage("Only the first 1000 matches are listed. Enter more of the name to narrow " +
+                "the search.");
+    }
+
+    @Test
+    public void test_handleHolderSearch_when_nothing_matches_should_say_so() {
+
+        when(view_mock.promptHolderQuery()).thenReturn(" zed ");
+        when(admin_service_mock.searchHolders(" zed ", 0)).thenReturn(HolderSearchResult.EMPTY);
+
+        controller.handleHolderSearch();
+
+        //When no account matches, only that should be displayed
+        verify(view_mock).displayMessage("No accounts found for \"zed\".");
+        verify(view_mock, never()).promptPageAction();
+    }
+
+    @Test
+    public void test_handleBalanceRange_when_accounts_fit_on_one_page_should_list_them_without_paging() {
+
+        //When view_mock prompts for the query, active accounts from $0 to $100 are asked for, and two are found
+        when(view_mock.promptNewStatus()).thenReturn("Active");
+        when(view_mock.promptMinimumBalance()).thenReturn(0);
+        when(view_mock.promptMaximumBalance()).thenReturn(100);
+        when(admin_service_mock.findByBalance("Active", 0, 100, null)).thenReturn(new BalanceRangePage(List.of(
+                new BalanceEntry(7, 20), new BalanceEntry(3, 90)), false));
+
+        controller.handleBalanceRange();
+
+        //When handleBalanceRange() is called, both accounts should be listed and no page prompt shown
+        verify(view_mock).displayMessage("Active accounts with a balance from $0 to $100 (page 1):");
+        verify(view_mock).displayMessage("Account #7 - $20");
+        verify(view_mock).displayMessage("Account #3 - $90");
+        verify(view_mock, never()).promptPageAction();
+    }
+
+    @Test
+    public void test_handleBalanceRange_when_paging_should_start_each_page_after_the_last_account_shown() {
+
+        //There are two pages of disabled accounts with no upper limit; the user tries to go back from the first,
+        //goes forward, tries to go past the end, goes back and quits
+        BalanceRangePage first = new BalanceRangePage(List.of(new BalanceEntry(4, 500)), true);
+        BalanceRangePage second = new BalanceRangePage(List.of(new BalanceEntry(9, 800)), false);
+        when(view_mock.promptNewStatus()).thenReturn("Disabled");
+        when(view_mock.promptMinimumBalance()).thenReturn(1);
+        when(view_mock.promptMaximumBalance()).thenReturn(-1);
+        when(admin_service_mock.findByBalance("Disabled", 1, Integer.MAX_VALUE, null)).thenReturn(first);
+        when(admin_service_mock.findByBalance("Disabled", 1, Integer.MAX_VALUE, new BalanceEntry(4, 500)))
+                .thenReturn(second);
+        when(view_mock.promptPageAction()).thenReturn("p", "n", "n", "p", "q");
+
+        controller.handleBalanceRange();
+
+        //When handleBalanceRange() is called, the second page should be asked for from the first page's last
+        //account, and both ends should say so instead of moving on
+        verify(view_mock, times(3)).displayMessage("Disabled accounts with a balance of $1 or more (page 1):");
+        verify(view_mock, times(2)).displayMessage("Disabled accounts with a balance of $1 or more (page 2):");
+        verify(view_mock).displayMessage("This is the first page.");
+        verify(view_mock).displayMessage("This is the last page.");
+    }
+
+    @Test
+    public void test_handleBalanceRange_when_nothing_found_should_say_so() {
+
+        when(view_mock.promptNewStatus()).thenReturn("Active");
+        when(view_mock.promptMinimumBalance()).thenReturn(5000);
+        when(view_mock.promptMaximumBalance()).thenReturn(-1);
+        when(admin_service_mock.findByBalance("Active", 5000, Integer.MAX_VALUE, null))
+                .thenReturn(BalanceRangePage.EMPTY);
+
+        controller.handleBalanceRange();
+
+        //When no account is in the range, only that should be displayed
+        verify(view_mock).displayMessage("No Active accounts with a balance of $5000 or more.");
+        verify(view_mock, never()).promptPageAction();
+    }
+
+    @Test
+    public void test_handleBalanceRange_when_highest_below_lowest_should_not_query() {
+
+        when(view_mock.promptNewStatus()).thenReturn("Active");
+        when(view_mock.promptMinimumBalance()).thenReturn(500);
+        when(view_mock.promptMaximumBalance()).thenReturn(100);
+
+        controller.handleBalanceRange();
+
+        //When the range is the wrong way round, the admin should be told and the index never asked
+        verify(view_mock).displayMessage("The highest balance cannot be below the lowest.");
+        verify(admin_service_mock, never()).findByBalance(anyString(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void test_handleDashboard_when_available_should_display_each_status_and_todays_activity() {
+
+        //admin_service_mock is to report two statuses and a checkpoint taken at 09:30 today
+        when(admin_service_mock.getDashboard()).thenReturn(new Dashboard(List.of(
+                new StatusTotals("Active", 2, 350), new StatusTotals("Disabled", 1, 40)),
+                new DailyActivity(LocalDate.of(2025, 3, 4), 3, 500, 2, 120), LocalDateTime.of(2025, 3, 4, 9, 30)));
+
+        controller.handleDashboard();
+
+        //When handleDashboard() is called, every figure should be displayed, with the time it was last checked
+        verify(view_mock).displayMessage("Dashboard for 03/04/2025 (checked against the database at 09:30:00):");
+        verify(view_mock).displayMessage("Active accounts: 2 holding $350");
+        verify(view_mock).displayMessage("Disabled accounts: 1 holding $40");
+        verify(view_mock).displayMessage("All accounts: 3 holding $390");
+        verify(view_mock).displayMessage("Deposits today: 3 totalling $500");
+        verify(view_mock).displayMessage("Withdrawals today: 2 totalling $120");
+    }
+
+    @Test
+    public void test_handleDashboard_when_never_checked_should_say_so() {
+
+        when(admin_service_mock.getDashboard()).thenReturn(new Dashboard(List.of(),
+                new DailyActivity(LocalDate.of(2025, 3, 4), 0, 0, 0, 0), null));
+
+        controller.handleDashboard();
+
+        //When the figures have not been checked against the database yet, the heading should say so
+        verify(view_mock).displayMessage("Dashboard for 03/04/2025 (not yet checked against the database):");
+        verify(view_mock).displayMessage("All accounts: 0 holding $0");
+    }
+
+    @Test
+    public void test_handleDashboard_when_not_available_should_say_so() {
+
+        when(admin_service_mock.getDashboard()).thenReturn(null);
+
+        controller.handleDashboard();
+
+        //When the terminal keeps no counters, only that should be displayed
+        verify(view_mock).displayMessage("The dashboard is not available on this terminal.");
+        verify(view_mock, times(1)).displayMessage(anyString());
+    }
+
+    @Test
+    public void test_handleMonthlyStatement_when_month_has_activity_should_display_days_and_totals() throws DatabaseException {
+
+        Customer customer_mock = mock(Customer.class);
+        when(customer_mock.getAccount()).thenReturn(new Account(17, "John Doe", 1300, "Active"));
+
+        YearMonth month = YearMonth.of(2025, 3);
+        ActivitySummary day = new ActivitySummary(LocalDate.of(2025, 3, 4), 1, 500, 2, 200, 1300);
+        when(view_mock.promptMonth()).thenReturn(month);
+        when(customer_service_mock.getMonthlyStatement(customer_mock, month)).thenReturn(
+                new StatementResult(StatementResult.Status.SUCCESS, month, day, List.of(day)));
+
+        controller.handleMonthlyStatement(customer_mock);
+
+        //When the month has transactions, each day is listed and followed by the month's totals
+        verify(view_mock).displayMessage("Statement for Account #17, 2025-03");
+        verify(view_mock).displayMessage(
+                "03/04/2025 Deposits: 1 ($500) Withdrawals: 2 ($200) Closing Balance: $1300");
+        verify(view_mock).displayMessage("Total Deposits: 1 ($500)");
+        verify(view_mock).displayMessage("Total Withdrawals: 2 ($200)");
+        verify(view_mock).displayMessage("Closing Balance: $1300");
+    }
+
+    @Test
+    public void test_handleMonthlyStatement_when_month_has_no_activity_should_say_so() throws DatabaseException {
+
+        Customer customer_mock = mock(Customer.class);
+        YearMonth month = YearMonth.of(2025, 3);
+        when(view_mock.promptMonth()).thenReturn(month);
+        when(customer_service_mock.getMonthlyStatement(customer_mock, month)).thenReturn(
+                new StatementResult(StatementResult.Status.NO_ACTIVITY, month, null, List.of()));
+
+        controller.handleMonthlyStatement(customer_mock);
+
+        //When the account had no transactions that month, only that is displayed
+        verify(view_mock).displayMessage("No transactions in 2025-03.");
+        verify(view_mock, never()).displayMessage(startsWith("Statement for"));
+    }
+
+    @Test
+    public void test_handleActivityReport_when_month_has_activity_should_display_days_and_totals() throws DatabaseException {
+
+        YearMonth month = YearMonth.of(2025, 3);
+        when(view_mock.promptMonth()).thenReturn(month);
+        when(admin_service_mock.getActivityReport(month)).thenReturn(List.of(
+                new ActivityTotals(LocalDate.of(2025, 3, 4), 2, 3, 900, 1, 100),
+                new ActivityTotals(LocalDate.of(2025, 3, 5), 1, 0, 0, 2, 400)));
+
+        controller.handleActivityReport();
+
+        //When there were transactions, each day is listed and the month's totals add the days up
+        verify(view_mock).displayMessage("Activity Report for 2025-03");
+        verify(view_mock).displayMessage("03/04/2025 Accounts: 2 Deposits: 3 ($900) Withdrawals: 1 ($100)");
+        verify(view_mock).displayMessage("03/05/2025 Accounts: 1 Deposits: 0 ($0) Withdrawals: 2 ($400)");
+        verify(view_mock).displayMessage("Total Deposits: 3 ($900)");
+        verify(view_mock).displayMessage("Total Withdrawals: 3 ($500)");
+    }
+
+    @Test
+    public void test_handleActivityReport_when_month_has_no_activity_should_say_so() throws DatabaseException {
+
+        YearMonth month = YearMonth.of(2025, 3);
+        when(view_mock.promptMonth()).thenReturn(month);
+        when(admin_service_mock.getActivityReport(month)).thenReturn(List.of());
+
+        controller.handleActivityReport();
+
+        //When nothing happened that month, only that is displayed
+        verify(view_mock).displayMessage("No transactions in 2025-03.");
+        verify(view_mock, never()).displayMessage(startsWith("Total"));
+    }
+
+    @Test
+    public void test_handleHotAccounts_when_accounts_are_hot_should_list_them_by_rank() {
+
+        when(admin_service_mock.getHotAccounts()).thenReturn(List.of(new HotAccount(7, 40), new HotAccount(3, 12)));
+        when(admin_service_mock.getHotAccountWindowMs()).thenReturn(3_600_000L);
+
+        controller.handleHotAccounts();
+
+        //When accounts were used in the window, they should be listed hottest first with their estimated counts
+        verify(view_mock).displayMessage("Most used accounts in the last 60 minutes:");
+        verify(view_mock).displayMessage("1. Account #7 - about 40 requests");
+        verify(view_mock).displayMessage("2. Account #3 - about 12 requests");
+    }
+
+    @Test
+    public void test_handleHotAccounts_when_nothing_was_used_should_say_so() {
+
+        when(admin_service_mock.getHotAccounts()).thenReturn(List.of());
+        when(admin_service_mock.getHotAccountWindowMs()).thenReturn(3_600_000L);
+
+        controller.handleHotAccounts();
+
+        //When no account was used in the window, only that is displayed
+        verify(view_mock).displayMessage("No account activity in the last 60 minutes.");
+    }
+
+    @Test
+    public void test_handleSubBalanceSetup_when_successful_should_display_slot_count() throws DatabaseException {
+
+        when(admin_service_mock.areSubBalancesAvailable()).thenReturn(true);
+
+        //When view_mock prompts for the account and slot count, 12 and 8 are to be provided
+        when(view_mock.promptAccountNumber()).thenReturn(12);
+        when(view_mock.promptSlotCount(DatabaseManager.MAX_SUB_BALANCE_SLOTS)).thenReturn(8);
+        when(admin_service_mock.enableSubBalances(12, 8))
+                .thenReturn(new SubBalanceResult(SubBalanceResult.Status.SUCCESS, 12, 8));
+
+        controller.handleSubBalanceSetup();
+
+        //When handleSubBalanceSetup() succeeds, the new slot count should be displayed
+        verify(view_mock).displayMessage("Account #12 now uses 8 sub-balances.");
+    }
+
+    @Test
+    public void test_handleSubBalanceSetup_when_already_enabled_should_say_so() throws DatabaseException {
+
+        when(admin_service_mock.areSubBalancesAvailable()).thenReturn(true);
+
+        //When the admin service reports that the account already has sub-balances
+        when(view_mock.promptAccountNumber()).thenReturn(12);
+        when(view_mock.promptSlotCount(DatabaseManager.MAX_SUB_BALANCE_SLOTS)).thenReturn(4);
+        when(admin_service_mock.enableSubBalances(12, 4))
+                .thenReturn(new SubBalanceResult(SubBalanceResult.Status.ALREADY_ENABLED, 12, 4));
+
+        controller.handleSubBalanceSetup();
+
+        //When handleSubBalanceSetup() is called, the administrator should be told nothing changed
+        verify(view_mock).displayMessage("Account #12 already uses sub-balances.");
+    }
+
+    @Test
+    public void test_handleSubBalanceSetup_when_not_available_should_say_so_without_prompting() throws DatabaseException {
+
+        //When the terminal's repository has no sub-balances (an event-sourced one)
+        when(admin_service_mock.areSubBalancesAvailable()).thenReturn(false);
+
+        controller.handleSubBalanceSetup();
+
+        //When handleSubBalanceSetup() is called, the administrator should be told, and asked for nothing
+        verify(view_mock).displayMessage("Sub-balances are not available on this terminal.");
+        verify(view_mock, never()).promptAccountNumber();
+        verify(admin_service_mock, never()).enableSubBalances(anyInt(), anyInt());
+    }
+}
@@ -0,0 +1,24 @@
+package model.account;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AccountLimitsTest {
+
+    @Test
+    public void test_account_limits_constructor_and_getters() {
+
+        AccountLimits limits = new AccountLimits(2000, 800);
+
+        assertEquals(2000, limits.daily_withdrawal_limit());
+        assertEquals(800, limits.single_withdrawal_limit());
+    }
+
+    @Test
+    public void test_default_limits_should_match_documented_values() {
+
+        assertEquals(1000, AccountLimits.DEFAULT.daily_withdrawal_limit());
+        assertEquals(500, AccountLimits.DEFAULT.single_withdrawal_limit());
+    }
+}
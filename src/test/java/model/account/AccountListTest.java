@@ -0,0 +1,19 @@
+package model.account;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AccountListTest {
+
+    @Test
+    public void test_account_list_constructor_and_getters() {
+
+        AccountList account_list = new AccountList(new int[] {4, 9}, 3);
+
+        assertArrayEquals(new int[] {4, 9}, account_list.account_nums());
+        assertEquals(3, account_list.skipped_lines());
+        assertEquals(2, account_list.size());
+    }
+}
@@ -0,0 +1,17 @@
+package model.account;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BalanceEntryTest {
+
+    @Test
+    public void test_balance_entry_constructor_and_getters() {
+
+        BalanceEntry entry = new BalanceEntry(7, 500);
+
+        assertEquals(7, entry.account_num());
+        assertEquals(500, entry.balance());
+    }
+}
@@ -0,0 +1,28 @@
+package model.account;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BalanceRangePageTest {
+
+    @Test
+    public void test_balance_range_page_constructor_and_getters() {
+
+        BalanceRangePage page = new BalanceRangePage(List.of(new BalanceEntry(2, 40), new BalanceEntry(7, 500)),
+                true);
+
+        assertEquals(2, page.entries().size());
+        assertTrue(page.has_more());
+        assertEquals(new BalanceEntry(7, 500), page.last());
+    }
+
+    @Test
+    public void test_last_when_page_is_empty_should_return_null() {
+
+        assertNull(BalanceRangePage.EMPTY.last());
+        assertFalse(BalanceRangePage.EMPTY.has_more());
+    }
+}
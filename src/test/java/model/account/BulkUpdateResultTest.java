@@ -0,0 +1,20 @@
+package model.account;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BulkUpdateResultTest {
+
+    @Test
+    public void test_bulkUpdateResult_constructor_and_getters() {
+
+        BulkUpdateResult.Status status = BulkUpdateResult.Status.NOT_FOUND;
+        int account_number = 42;
+
+        BulkUpdateResult result = new BulkUpdateResult(status, account_number);
+
+        assertEquals(status, result.getStatus());
+        assertEquals(account_number, result.getAccountNumber());
+    }
+}
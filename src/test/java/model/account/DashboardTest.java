@@ -0,0 +1,35 @@
+package model.account;
+
+import model.transaction.DailyActivity;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DashboardTest {
+
+    @Test
+    public void test_dashboard_constructor_and_getters() {
+
+        DailyActivity today = new DailyActivity(LocalDate.of(2025, 3, 4), 1, 100, 0, 0);
+        Dashboard dashboard = new Dashboard(List.of(new StatusTotals("Active", 2, 350)), today,
+                LocalDateTime.of(2025, 3, 4, 9, 30));
+
+        assertEquals(List.of(new StatusTotals("Active", 2, 350)), dashboard.statuses());
+        assertEquals(today, dashboard.today());
+        assertEquals(LocalDateTime.of(2025, 3, 4, 9, 30), dashboard.checkpoint_at());
+    }
+
+    @Test
+    public void test_accounts_and_balance_total_should_add_up_every_status() {
+
+        Dashboard dashboard = new Dashboard(List.of(new StatusTotals("Active", 2, 350),
+                new StatusTotals("Disabled", 1, 40)), new DailyActivity(LocalDate.of(2025, 3, 4), 0, 0, 0, 0), null);
+
+        assertEquals(3, dashboard.accounts());
+        assertEquals(390, dashboard.balance_total());
+    }
+}
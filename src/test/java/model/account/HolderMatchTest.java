@@ -0,0 +1,17 @@
+package model.account;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HolderMatchTest {
+
+    @Test
+    public void test_holder_match_constructor_and_getters() {
+
+        HolderMatch match = new HolderMatch(7, "John Doe");
+
+        assertEquals(7, match.account_num());
+        assertEquals("John Doe", match.holder());
+    }
+}
@@ -0,0 +1,28 @@
+package model.account;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HolderSearchResultTest {
+
+    @Test
+    public void test_holder_search_result_constructor_and_getters() {
+
+        HolderSearchResult result = new HolderSearchResult(List.of(new HolderMatch(7, "John Doe")), 12, true);
+
+        assertEquals(List.of(new HolderMatch(7, "John Doe")), result.matches());
+        assertEquals(12, result.total_matches());
+        assertTrue(result.truncated());
+    }
+
+    @Test
+    public void test_EMPTY_should_have_no_matches() {
+
+        assertTrue(HolderSearchResult.EMPTY.matches().isEmpty());
+        assertEquals(0, HolderSearchResult.EMPTY.total_matches());
+        assertFalse(HolderSearchResult.EMPTY.truncated());
+    }
+}
@@ -0,0 +1,17 @@
+package model.account;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HotAccountTest {
+
+    @Test
+    public void test_hot_account_constructor_and_getters() {
+
+        HotAccount hot_account = new HotAccount(7, 40);
+
+        assertEquals(7, hot_account.account_num());
+        assertEquals(40, hot_account.estimated_count());
+    }
+}
@@ -0,0 +1,21 @@
+package model.account;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NewAccountListTest {
+
+    @Test
+    public void test_new_account_list_constructor_and_getters() {
+
+        NewAccount new_account = new NewAccount(0, "jdoe", "12345", "John Doe", 100, "Active");
+        NewAccountList new_account_list = new NewAccountList(List.of(new_account), 2);
+
+        assertEquals(List.of(new_account), new_account_list.accounts());
+        assertEquals(2, new_account_list.skipped_lines());
+        assertEquals(1, new_account_list.size());
+    }
+}
@@ -0,0 +1,25 @@
+package model.account;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NewAccountTest {
+
+    @Test
+    public void test_withAccountNumber_should_copy_every_field_with_new_number() {
+
+        NewAccount draft = new NewAccount(0, "JD6100", "12345", "John Doe", 300, "Active");
+
+        NewAccount numbered = draft.withAccountNumber(42);
+
+        //When withAccountNumber() is called, only the account number should differ
+        assertEquals(42, numbered.account_num());
+        assertEquals("JD6100", numbered.login());
+        assertEquals("12345", numbered.pin());
+        assertEquals("John Doe", numbered.holder());
+        assertEquals(300, numbered.balance());
+        assertEquals("Active", numbered.status());
+        assertEquals(0, draft.account_num());
+    }
+}
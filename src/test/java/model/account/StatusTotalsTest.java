@@ -0,0 +1,18 @@
+package model.account;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StatusTotalsTest {
+
+    @Test
+    public void test_status_totals_constructor_and_getters() {
+
+        StatusTotals totals = new StatusTotals("Active", 12, 4500);
+
+        assertEquals("Active", totals.status());
+        assertEquals(12, totals.accounts());
+        assertEquals(4500, totals.balance_total());
+    }
+}
@@ -0,0 +1,18 @@
+package model.account;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SubBalanceResultTest {
+
+    @Test
+    public void test_sub_balance_result_constructor_and_getters() {
+
+        SubBalanceResult result = new SubBalanceResult(SubBalanceResult.Status.SUCCESS, 12, 8);
+
+        assertEquals(SubBalanceResult.Status.SUCCESS, result.getStatus());
+        assertEquals(12, result.getAccountNumber());
+        assertEquals(8, result.getSlotCount());
+    }
+}
@@ -0,0 +1,57 @@
+package model.session;
+
+import model.account.Account;
+import model.account.AccountLimits;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+import model.user.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionContextTest {
+
+    private static TransactionRecord deposit(int amount) {
+
+        return new TransactionRecord(TransactionType.DEPOSIT, amount, amount, LocalDateTime.now());
+    }
+
+    @Test
+    public void test_session_context_constructor_and_getters() {
+
+        Customer customer = new Customer("JD5400", "12345", new Account(3, "Jane Doe", 100, "Active"));
+        List<TransactionRecord> activity = List.of(deposit(100));
+
+        SessionContext session = new SessionContext(customer, activity, AccountLimits.DEFAULT, 5);
+
+        assertEquals(customer, session.getUser());
+        assertEquals(activity, session.getRecentActivity());
+        assertEquals(AccountLimits.DEFAULT, session.getLimits());
+    }
+
+    @Test
+    public void test_recordActivity_when_full_should_add_newest_first_and_drop_oldest() {
+
+        SessionContext session = new SessionContext(null, List.of(deposit(2), deposit(1)), null, 2);
+
+        session.recordActivity(deposit(3));
+
+        //When recordActivity() is called on a full session, the new record should come first and the oldest go
+        List<TransactionRecord> activity = session.getRecentActivity();
+        assertEquals(2, activity.size());
+        assertEquals(3, activity.get(0).amount());
+        assertEquals(2, activity.get(1).amount());
+    }
+
+    @Test
+    public void test_getRecentActivity_should_not_allow_changes_to_session() {
+
+        SessionContext session = new SessionContext(null, List.of(), null, 5);
+
+        //When the returned list is changed, an exception should be thrown instead of changing the session
+        assertThrows(UnsupportedOperationException.class, () -> session.getRecentActivity().add(deposit(1)));
+    }
+}
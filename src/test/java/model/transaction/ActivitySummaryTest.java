@@ -0,0 +1,34 @@
+package model.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ActivitySummaryTest {
+
+    @Test
+    public void test_activity_summary_constructor_and_getters() {
+
+        LocalDate period_start = LocalDate.of(2025, 3, 1);
+
+        ActivitySummary summary = new ActivitySummary(period_start, 2, 700, 1, 200, 1500);
+
+        assertEquals(period_start, summary.period_start());
+        assertEquals(2, summary.deposit_count());
+        assertEquals(700, summary.deposit_total());
+        assertEquals(1, summary.withdrawal_count());
+        assertEquals(200, summary.withdrawal_total());
+        assertEquals(1500, summary.closing_balance());
+    }
+
+    @Test
+    public void test_getNetChange_when_withdrawals_exceed_deposits_should_be_negative() {
+
+        ActivitySummary summary = new ActivitySummary(LocalDate.of(2025, 3, 4), 1, 100, 2, 250, 850);
+
+        //When more was withdrawn than deposited, the net change should be the difference, below zero
+        assertEquals(-150, summary.getNetChange());
+    }
+}
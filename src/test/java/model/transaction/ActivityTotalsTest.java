@@ -0,0 +1,36 @@
+package model.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ActivityTotalsTest {
+
+    @Test
+    public void test_activity_totals_constructor_and_getters() {
+
+        LocalDate period_start = LocalDate.of(2025, 3, 4);
+
+        ActivityTotals totals = new ActivityTotals(period_start, 3, 4, 900, 2, 150);
+
+        assertEquals(period_start, totals.period_start());
+        assertEquals(3, totals.active_accounts());
+        assertEquals(4, totals.deposit_count());
+        assertEquals(900, totals.deposit_total());
+        assertEquals(2, totals.withdrawal_count());
+        assertEquals(150, totals.withdrawal_total());
+    }
+
+    @Test
+    public void test_plus_when_called_should_add_every_count_and_keep_the_period() {
+
+        LocalDate period_start = LocalDate.of(2025, 3, 4);
+        ActivityTotals first = new ActivityTotals(period_start, 3, 4, 900, 2, 150);
+        ActivityTotals second = new ActivityTotals(period_start, 1, 0, 0, 1, 40);
+
+        //When two totals of the same period are added, every count and total should be summed
+        assertEquals(new ActivityTotals(period_start, 4, 4, 900, 3, 190), first.plus(second));
+    }
+}
@@ -0,0 +1,24 @@
+package model.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DailyActivityTest {
+
+    @Test
+    public void test_daily_activity_constructor_and_getters() {
+
+        LocalDate day = LocalDate.of(2025, 3, 4);
+
+        DailyActivity activity = new DailyActivity(day, 4, 900, 2, 150);
+
+        assertEquals(day, activity.day());
+        assertEquals(4, activity.deposit_count());
+        assertEquals(900, activity.deposit_total());
+        assertEquals(2, activity.withdrawal_count());
+        assertEquals(150, activity.withdrawal_total());
+    }
+}
@@ -0,0 +1,28 @@
+package model.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StatementResultTest {
+
+    @Test
+    public void test_statementResult_constructor_and_getters() {
+
+        YearMonth month = YearMonth.of(2025, 3);
+        ActivitySummary month_summary = new ActivitySummary(LocalDate.of(2025, 3, 1), 1, 500, 0, 0, 1500);
+        List<ActivitySummary> days = List.of(new ActivitySummary(LocalDate.of(2025, 3, 4), 1, 500, 0, 0, 1500));
+        StatementResult.Status status = StatementResult.Status.SUCCESS;
+
+        StatementResult result = new StatementResult(status, month, month_summary, days);
+
+        assertEquals(status, result.getStatus());
+        assertEquals(month, result.getMonth());
+        assertEquals(month_summary, result.getMonthSummary());
+        assertEquals(days, result.getDays());
+    }
+}
@@ -0,0 +1,23 @@
+package model.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TransactionRecordTest {
+
+    @Test
+    public void test_transaction_record_constructor_and_getters() {
+
+        LocalDateTime timestamp = LocalDateTime.of(2026, 10, 1, 9, 30);
+
+        TransactionRecord record = new TransactionRecord(TransactionType.DEPOSIT, 250, 1250, timestamp);
+
+        assertEquals(TransactionType.DEPOSIT, record.type());
+        assertEquals(250, record.amount());
+        assertEquals(1250, record.balance_after());
+        assertEquals(timestamp, record.timestamp());
+    }
+}
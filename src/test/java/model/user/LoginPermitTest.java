@@ -0,0 +1,19 @@
+package model.user;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoginPermitTest {
+
+    @Test
+    public void test_loginPermit_constructor_and_getters() {
+
+        LoginPermit permit = new LoginPermit(LoginPermit.Status.LOCKED_OUT, 60_000);
+
+        assertEquals(LoginPermit.Status.LOCKED_OUT, permit.getStatus());
+        assertEquals(60_000, permit.getRetryAfterMs());
+        assertFalse(permit.isAllowed());
+        assertTrue(LoginPermit.ALLOWED.isAllowed());
+    }
+}
@@ -1,14 +1,31 @@
 package repository;
 
 import model.account.Account;
+import model.account.AccountLimits;
+import model.account.NewAccount;
+import model.session.SessionContext;
+import model.transaction.ActivitySummary;
+import model.transaction.ActivityTotals;
+import model.transaction.RollupPeriod;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
 import model.user.Administrator;
 import model.user.Customer;
 import model.user.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import repository.exception.ConnectionUnavailableException;
 import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+import repository.offline.ReplayOutcome;
 
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -23,6 +40,9 @@ public class DatabaseManagerTest {
     private PreparedStatement statement_mock;
     private ResultSet result_set_mock;
 
+    //The repository stores and returns pin hashes as they are; hashing and checking them is left to the services
+    private static final String STORED_PIN = "pbkdf2-sha256$1000$c2FsdHNhbHRzYWx0c2FsdA$aGFzaGhhc2hoYXNoaGFzaA";
+
     @BeforeEach
     public void setUp() {
 
@@ -35,7 +55,7 @@ public class DatabaseManagerTest {
         when(db_connection_mock.username()).thenReturn("test_name");
         when(db_connection_mock.password()).thenReturn("test_pass");
 
-        db_manager = new DatabaseManager(db_connection_mock) {
+        db_manager = new DatabaseManager(db_connection_mock, SchemaLayout.SINGLE_TABLE) {
 
             @Override
             public Connection getConnection() {
@@ -60,15 +80,16 @@ public class DatabaseManagerTest {
         when(result_set_mock.getString("holder")).thenReturn("John Doe");
         when(result_set_mock.getInt("balance")).thenReturn(3000);
         when(result_set_mock.getString("status")).thenReturn("Active");
+        when(result_set_mock.getString("pin")).thenReturn(STORED_PIN);
 
-        User user = db_manager.getUser("JD6100", "12345");
+        User user = db_manager.getUser("JD6100");
 
         //When getUser() is run, it should determine that the user is a Customer and correctly assign the proper
-        //information to both the customer and account objects
+        //information to both the customer and account objects; the pin is kept as stored
         assertInstanceOf(Customer.class, user);
         Customer customer = (Customer) user;
         assertEquals("JD6100", customer.getLogin());
-        assertEquals("12345", customer.getPin());
+        assertEquals(STORED_PIN, customer.getPin());
         Account account = customer.getAccount();
         assertEquals(1, account.getAccountNumber());
         assertEquals("John Doe", account.getHolderName());
@@ -86,16 +107,70 @@ public class DatabaseManagerTest {
         //When result_set_mock performs the following, mocked return values are to be provided
         when(result_set_mock.next()).thenReturn(true);
         when(result_set_mock.getString("role")).thenReturn("Admin");
+        when(result_set_mock.getString("pin")).thenReturn(STORED_PIN);
 
-        User user = db_manager.getUser("admin_user", "admin_pin");
+        User user = db_manager.getUser("admin_user");
 
         //When getUser() is run, it should determine that the user is an Administrator and correctly assign the proper
         //information to the user object
         assertInstanceOf(Administrator.class, user);
         assertEquals("admin_user", user.getLogin());
-        assertEquals("admin_pin", user.getPin());
+        assertEquals(STORED_PIN, user.getPin());
     }
 
+    @Test
+    public void test_getUser_when_called_should_look_up_by_login_only() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and executeQuery() are run, mocks are to be returned
+        when(connection_mock.prepareStatement(any())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true);
+        when(result_set_mock.getString("role")).thenReturn("Customer");
+        when(result_set_mock.getString("pin")).thenReturn(STORED_PIN);
+
+        db_manager.getUser("JD6100");
+
+        //When getUser() is run, the lookup should use the login only; no pin is ever sent to the database
+        verify(statement_mock).setString(1, "JD6100");
+        verify(statement_mock, never()).setString(eq(2), anyString());
+    }
+
+    @Test
+    public void test_replacePin_when_stored_pin_is_unchanged_should_replace_it() throws DatabaseException, SQLException {
+
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeUpdate()).thenReturn(1);
+
+        //When replacePin() is run, the new hash should only be written over the one that was checked
+        assertTrue(db_manager.replacePin("JD6100", "12345", STORED_PIN));
+        verify(connection_mock).prepareStatement("UPDATE accounts SET pin = ? WHERE login = ? AND pin = ?");
+        verify(statement_mock).setString(1, STORED_PIN);
+        verify(statement_mock).setString(2, "JD6100");
+        verify(statement_mock).setString(3, "12345");
+    }
+
+    @Test
+    public void test_replacePin_when_pin_changed_in_the_meantime_should_return_false() throws DatabaseException, SQLException {
+
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeUpdate()).thenReturn(0);
+
+        //When the stored pin no longer matches, nothing should be replaced
+        assertFalse(db_manager.replacePin("JD6100", "12345", STORED_PIN));
+    }
+
+    @Test
+    public void test_replacePin_when_SQLException_occurs_should_throw_DatabaseException() throws SQLException {
+
+        when(connection_mock.prepareStatement(anyString())).thenThrow(new SQLException("Database error"));
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () ->
+                db_manager.replacePin("JD6100", "12345", STORED_PIN));
+
+        assertTrue(exception.getMessage().contains("Error replacing the pin for login: JD6100"));
+    }
+
+
     @Test
     public void test_getUser_when_no_user_found_should_return_null() throws DatabaseException, SQLException {
 
@@ -106,7 +181,7 @@ public class DatabaseManagerTest {
         //When result_set_mock performs the following, false is to be returned; no user is found
         when(result_set_mock.next()).thenReturn(false);
 
-        User user = db_manager.getUser("nonexistent_user", "57473");
+        User user = db_manager.getUser("nonexistent_user");
 
         //When getUser() is run, it should determine that the user is null/doesn't exist
         assertNull(user);
@@ -121,7 +196,7 @@ public class DatabaseManagerTest {
 
         DatabaseException exception = assertThrows(DatabaseException.class, () -> {
 
-            db_manager.getUser("user", "pin");
+            db_manager.getUser("user");
         });
 
         //When getUser() is run, the thrown error should contain the message below, and should also be an
@@ -228,6 +303,35 @@ public class DatabaseManagerTest {
     }
 
 
+    @Test
+    public void test_setQueryTimeout_when_timeout_configured_should_apply_it_to_statement() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and executeQuery() are run, mocks are to be returned
+        when(connection_mock.prepareStatement(any())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(false);
+
+        db_manager.setQueryTimeout(DatabaseOperation.GET_ACCOUNT, 5);
+        db_manager.getAccount(1);
+
+        //When a timeout is configured for the operation, the statement should be given that timeout
+        verify(statement_mock).setQueryTimeout(5);
+    }
+
+    @Test
+    public void test_setQueryTimeout_when_no_timeout_configured_should_leave_statement_unchanged() throws DatabaseException, SQLException {
+
+        when(connection_mock.prepareStatement(any())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(false);
+
+        db_manager.setQueryTimeout(DatabaseOperation.GET_USER, 5);
+        db_manager.getAccount(1);
+
+        //When only another operation has a timeout, this statement should not be given one
+        verify(statement_mock, never()).setQueryTimeout(anyInt());
+    }
+
     @Test
     public void test_getAccount_when_successful_should_return_account() throws DatabaseException, SQLException {
 
@@ -349,6 +453,21 @@ public class DatabaseManagerTest {
         verify(statement_mock).getGeneratedKeys();
     }
 
+    @Test
+    public void test_createNewAccount_when_called_should_store_pin_hash_as_given() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and getGeneratedKeys() are run, mocks are to be returned
+        when(connection_mock.prepareStatement(any(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(statement_mock);
+        when(statement_mock.getGeneratedKeys()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true);
+        when(result_set_mock.getInt(1)).thenReturn(17);
+
+        db_manager.createNewAccount("john_doe", STORED_PIN, "John Doe", 100, "Active");
+
+        //When an account is created, the hash it was given should be written as it is; it was made by the caller
+        verify(statement_mock).setString(5, STORED_PIN);
+    }
+
     @Test
     public void test_createNewAccount_when_duplicate_entry_should_return_negative_2() throws DatabaseException, SQLException {
 
@@ -397,6 +516,34 @@ public class DatabaseManagerTest {
     }
 
 
+    @Test
+    public void test_createNewAccount_with_account_number_when_successful_should_return_that_number() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and executeUpdate() are run, statement_mock and 1 are to be returned respectively
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeUpdate()).thenReturn(1);
+
+        int result = db_manager.createNewAccount(4001, "john_doe", "12345", "John Doe", 500, "Active");
+
+        //When createNewAccount() is called with a chosen account number, that number should be written into the
+        //first placeholder and returned
+        assertEquals(4001, result);
+        verify(statement_mock).setInt(1, 4001);
+        verify(statement_mock).executeUpdate();
+    }
+
+    @Test
+    public void test_createNewAccount_with_account_number_when_duplicate_entry_should_return_negative_2() throws DatabaseException, SQLException {
+
+        //When prepareStatement() is run, the duplicate entry error is to occur
+        when(connection_mock.prepareStatement(anyString())).thenThrow(new SQLException("Duplicate entry", "23000", 1062));
+
+        int result = db_manager.createNewAccount(4001, "jane_doe", "12345", "Jane Doe", 1000, "Active");
+
+        //When createNewAccount() is called, the result should be -2, indicating a duplicate entry
+        assertEquals(-2, result);
+    }
+
     @Test
     public void test_deleteAccount_when_successful_should_call_execute_update() throws DatabaseException, SQLException {
 
@@ -498,4 +645,930 @@ public class DatabaseManagerTest {
         assertTrue(exception.getMessage().contains("Error updating account info"));
         assertInstanceOf(SQLException.class, exception.getCause());
     }
+
+    @Test
+    public void test_getAllAccounts_when_accounts_exist_should_return_every_account() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and executeQuery() are run, mocks are to be returned
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+
+        //Two rows are to be returned by result_set_mock before it runs out
+        when(result_set_mock.next()).thenReturn(true, true, false);
+        when(result_set_mock.getInt("account_num")).thenReturn(1, 2);
+        when(result_set_mock.getString("holder")).thenReturn("John Doe", "Jane Doe");
+        when(result_set_mock.getInt("balance")).thenReturn(100, 200);
+        when(result_set_mock.getString("status")).thenReturn("Active", "Disabled");
+
+        List<Account> accounts = db_manager.getAllAccounts();
+
+        //When getAllAccounts() is called, both rows should be turned into accounts, in order
+        assertEquals(2, accounts.size());
+        assertEquals(1, accounts.get(0).getAccountNumber());
+        assertEquals("Jane Doe", accounts.get(1).getHolderName());
+        assertEquals(200, accounts.get(1).getBalance());
+    }
+
+    @Test
+    public void test_getAllAccounts_when_SQLException_occurs_should_throw_DatabaseException() throws SQLException {
+
+        //When prepareStatement() is run, an SQLException is to occur
+        when(connection_mock.prepareStatement(anyString())).thenThrow(new SQLException("Database error"));
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> {
+
+            db_manager.getAllAccounts();
+        });
+
+        //When getAllAccounts() is run, the thrown error should contain the message below
+        assertTrue(exception.getMessage().contains("Error retrieving all accounts"));
+        assertInstanceOf(SQLException.class, exception.getCause());
+    }
+
+
+    @Test
+    public void test_loginExists_when_login_found_should_return_true() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and executeQuery() are run, mocks are to be returned, with one row found
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true);
+
+        //When loginExists() finds a row for the login, true should be returned
+        assertTrue(db_manager.loginExists("JD6100"));
+        verify(connection_mock).prepareStatement("SELECT 1 FROM accounts WHERE login = ?");
+        verify(statement_mock).setString(1, "JD6100");
+    }
+
+    @Test
+    public void test_loginExists_when_login_not_found_should_return_false() throws DatabaseException, SQLException {
+
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(false);
+
+        //When loginExists() finds no row, false should be returned
+        assertFalse(db_manager.loginExists("nobody"));
+    }
+
+    @Test
+    public void test_scanAccountKeys_when_accounts_exist_should_stream_each_row_to_consumer() throws DatabaseException, SQLException {
+
+        //When the scan's statement is prepared and executed, mocks are to be returned, with two rows
+        when(connection_mock.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true, true, false);
+        when(result_set_mock.getInt("account_num")).thenReturn(1, 2);
+        when(result_set_mock.getString("login")).thenReturn("JD6100", "admin");
+
+        List<String> seen = new ArrayList<>();
+        int scanned = db_manager.scanAccountKeys((account_num, login) -> seen.add(account_num + ":" + login));
+
+        //When scanAccountKeys() is called, each row should reach the consumer, and the driver should stream them
+        assertEquals(2, scanned);
+        assertEquals(List.of("1:JD6100", "2:admin"), seen);
+        verify(statement_mock).setFetchSize(Integer.MIN_VALUE);
+    }
+
+    @Test
+    public void test_scanAccountKeys_when_SQLException_occurs_should_throw_DatabaseException() throws SQLException {
+
+        when(connection_mock.prepareStatement(anyString(), anyInt(), anyInt())).thenThrow(new SQLException("Database error"));
+
+        //When the scan fails, a DatabaseException should be thrown
+        DatabaseException exception = assertThrows(DatabaseException.class,
+                () -> db_manager.scanAccountKeys((account_num, login) -> { }));
+        assertTrue(exception.getMessage().contains("Error scanning accounts"));
+    }
+
+    @Test
+    public void test_scanAccounts_when_accounts_exist_should_stream_each_customer_to_consumer() throws DatabaseException, SQLException {
+
+        //When the scan's statement is prepared and executed, mocks are to be returned, with two rows
+        when(connection_mock.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true, true, false);
+        when(result_set_mock.getInt("account_num")).thenReturn(1, 2);
+        when(result_set_mock.getString("holder")).thenReturn("John Doe", "Jane Doe");
+        when(result_set_mock.getInt("balance")).thenReturn(100, 200);
+        when(result_set_mock.getString("status")).thenReturn("Active", "Disabled");
+
+        List<String> seen = new ArrayList<>();
+        int scanned = db_manager.scanAccounts((account_num, holder, balance, status) ->
+                seen.add(account_num + ":" + holder + ":" + balance + ":" + status));
+
+        //When scanAccounts() is called, only customers should be read, each row should reach the consumer, and the
+        //driver should stream them
+        assertEquals(2, scanned);
+        assertEquals(List.of("1:John Doe:100:Active", "2:Jane Doe:200:Disabled"), seen);
+        verify(connection_mock).prepareStatement(contains("WHERE role = 'Customer'"), anyInt(), anyInt());
+        verify(statement_mock).setFetchSize(Integer.MIN_VALUE);
+    }
+
+    @Test
+    public void test_scanAccounts_when_SQLException_occurs_should_throw_DatabaseException() throws SQLException {
+
+        when(connection_mock.prepareStatement(anyString(), anyInt(), anyInt())).thenThrow(new SQLException("Database error"));
+
+        //When the scan fails, a DatabaseException should be thrown
+        DatabaseException exception = assertThrows(DatabaseException.class,
+                () -> db_manager.scanAccounts((account_num, holder, balance, status) -> { }));
+        assertTrue(exception.getMessage().contains("Error scanning accounts"));
+    }
+
+    @Test
+    public void test_loadSession_when_customer_has_activity_should_return_account_limits_and_history() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and executeQuery() are run, mocks are to be returned
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+
+        //When result_set_mock is read, two joined rows are to be provided, one per transaction
+        when(result_set_mock.next()).thenReturn(true, true, false);
+        when(result_set_mock.getString("role")).thenReturn("Customer");
+        when(result_set_mock.getInt("account_num")).thenReturn(1);
+        when(result_set_mock.getString("holder")).thenReturn("John Doe");
+        when(result_set_mock.getInt("balance")).thenReturn(3000);
+        when(result_set_mock.getString("status")).thenReturn("Active");
+        when(result_set_mock.getInt("daily_withdrawal_limit")).thenReturn(2000);
+        when(result_set_mock.getInt("single_withdrawal_limit")).thenReturn(800);
+        when(result_set_mock.wasNull()).thenReturn(false);
+        when(result_set_mock.getString("type")).thenReturn("DEPOSIT", "WITHDRAWAL");
+        when(result_set_mock.getInt("amount")).thenReturn(500, 200);
+        when(result_set_mock.getInt("balance_after")).thenReturn(3000, 2500);
+        when(result_set_mock.getTimestamp("created_at")).thenReturn(Timestamp.valueOf("2026-10-01 09:30:00"));
+        when(result_set_mock.getString("pin")).thenReturn(STORED_PIN);
+
+        SessionContext session = db_manager.loadSession("JD6100");
+
+        //When loadSession() is run, the account, its limits and both transactions should come from the one query
+        Customer customer = (Customer) session.getUser();
+        assertEquals(3000, customer.getAccount().getBalance());
+        assertEquals(new AccountLimits(2000, 800), session.getLimits());
+        List<TransactionRecord> activity = session.getRecentActivity();
+        assertEquals(2, activity.size());
+        assertEquals(TransactionType.DEPOSIT, activity.get(0).type());
+        assertEquals(TransactionType.WITHDRAWAL, activity.get(1).type());
+        assertEquals(2500, activity.get(1).balance_after());
+        verify(connection_mock, times(1)).prepareStatement(anyString());
+        verify(statement_mock).setInt(1, DatabaseManager.RECENT_ACTIVITY_LIMIT);
+    }
+
+    @Test
+    public void test_loadSession_when_customer_has_no_limits_or_activity_should_use_defaults() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and executeQuery() are run, mocks are to be returned
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+
+        //When result_set_mock is read, a single row with empty limit and transaction columns is to be provided
+        when(result_set_mock.next()).thenReturn(true, false);
+        when(result_set_mock.getString("role")).thenReturn("Customer");
+        when(result_set_mock.getString("status")).thenReturn("Active");
+        when(result_set_mock.wasNull()).thenReturn(true);
+        when(result_set_mock.getString("type")).thenReturn(null);
+        when(result_set_mock.getString("pin")).thenReturn(STORED_PIN);
+
+        SessionContext session = db_manager.loadSession("JD6100");
+
+        //When loadSession() is run, the default limits and an empty history should be used
+        assertEquals(AccountLimits.DEFAULT, session.getLimits());
+        assertTrue(session.getRecentActivity().isEmpty());
+    }
+
+    @Test
+    public void test_loadSession_when_admin_provided_should_return_session_without_account_data() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and executeQuery() are run, mocks are to be returned
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true);
+        when(result_set_mock.getString("role")).thenReturn("Admin");
+        when(result_set_mock.getString("pin")).thenReturn(STORED_PIN);
+
+        SessionContext session = db_manager.loadSession("admin");
+
+        //When loadSession() is run for an admin, the session should hold an Administrator and nothing else
+        assertInstanceOf(Administrator.class, session.getUser());
+        assertNull(session.getLimits());
+        assertTrue(session.getRecentActivity().isEmpty());
+    }
+
+    @Test
+    public void test_loadSession_when_login_is_unknown_should_return_null() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and executeQuery() are run, an empty result is to be returned
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(false);
+
+        //When loadSession() is run with an unknown login, null should be returned
+        assertNull(db_manager.loadSession("JD6100"));
+    }
+
+    @Test
+    public void test_loadSession_when_SQLException_occurs_should_throw_DatabaseException() throws SQLException {
+
+        //When prepareStatement() is run, an SQLException is to occur
+        when(connection_mock.prepareStatement(anyString())).thenThrow(new SQLException("Database error"));
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> {
+
+            db_manager.loadSession("JD6100");
+        });
+
+        //When loadSession() is run, the thrown error should contain the message below
+        assertTrue(exception.getMessage().contains("Error loading session"));
+        assertInstanceOf(SQLException.class, exception.getCause());
+    }
+
+    @Test
+    public void test_applyTransaction_when_successful_should_write_balance_and_ledger_then_commit() throws DatabaseException, SQLException {
+
+        //When prepareStatement() is run, a mock is to be returned for both statements, and the balance row is found
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeUpdate()).thenReturn(1);
+
+        int balance_after = db_manager.applyTransaction(1, 2500, TransactionType.WITHDRAWAL, 500);
+
+        //When applyTransaction() is run, the update, the insert and both rollups should run and be committed together
+        assertEquals(2500, balance_after);
+        verify(connection_mock).setAutoCommit(false);
+        verify(statement_mock, times(4)).executeUpdate();
+        verify(statement_mock).setString(2, "WITHDRAWAL");
+        verify(connection_mock).commit();
+        verify(connection_mock, never()).rollback();
+    }
+
+    @Test
+    public void test_applyTransaction_when_SQLException_occurs_should_roll_back_and_throw_DatabaseException() throws SQLException {
+
+        //When the ledger insert is run, an SQLException is to occur
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeUpdate()).thenReturn(1).thenThrow(new SQLException("Database error"));
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> {
+
+            db_manager.applyTransaction(1, 2500, TransactionType.WITHDRAWAL, 500);
+        });
+
+        //When applyTransaction() fails, nothing should be committed and the error should name the account
+        verify(connection_mock).rollback();
+        verify(connection_mock, never()).commit();
+        assertTrue(exception.getMessage().contains("Error applying transaction to account: 1"));
+    }
+
+    @Test
+    public void test_applyTransaction_when_no_connection_can_be_opened_should_throw_ConnectionUnavailableException() {
+
+        //When getConnection() is run, the database is to be unreachable
+        DatabaseManager unreachable = new DatabaseManager(db_connection_mock, SchemaLayout.SINGLE_TABLE) {
+
+            @Override
+            public Connection getConnection() throws SQLException {
+
+                throw new SQLException("Communications link failure", "08S01");
+            }
+        };
+
+        //When nothing could be sent, the failure should say so, as the transaction certainly was not applied
+        assertThrows(ConnectionUnavailableException.class,
+                () -> unreachable.applyTransaction(1, 2500, TransactionType.WITHDRAWAL, 500));
+    }
+
+    @Test
+    public void test_applyTransaction_when_connection_lost_after_update_should_not_throw_ConnectionUnavailableException() throws SQLException {
+
+        //When the ledger insert is run, the connection is to be lost
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeUpdate()).thenReturn(1)
+                .thenThrow(new SQLException("Communications link failure", "08S01"));
+
+        DatabaseException exception = assertThrows(DatabaseException.class,
+                () -> db_manager.applyTransaction(1, 2500, TransactionType.WITHDRAWAL, 500));
+
+        //When a statement had already gone out, whether the transaction was applied is unknown
+        assertFalse(exception instanceof ConnectionUnavailableException);
+    }
+
+
+    @Test
+    public void test_getTransactionHistory_when_rows_exist_should_return_them_in_query_order() throws DatabaseException, SQLException {
+
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 2, 1, 0, 0);
+        LocalDateTime later = LocalDateTime.of(2025, 1, 20, 9, 30);
+        LocalDateTime earlier = LocalDateTime.of(2025, 1, 3, 14, 0);
+
+        //When the query runs, two ledger rows are to come back, newest first
+        when(connection_mock.prepareStatement(any())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true, true, false);
+        when(result_set_mock.getString("type")).thenReturn("WITHDRAWAL", "DEPOSIT");
+        when(result_set_mock.getInt("amount")).thenReturn(40, 100);
+        when(result_set_mock.getInt("balance_after")).thenReturn(1_060, 1_100);
+        when(result_set_mock.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(later),
+                Timestamp.valueOf(earlier));
+
+        //When getTransactionHistory() is called, the rows should be returned in the order the query gave them
+        assertEquals(List.of(new TransactionRecord(TransactionType.WITHDRAWAL, 40, 1_060, later),
+                        new TransactionRecord(TransactionType.DEPOSIT, 100, 1_100, earlier)),
+                db_manager.getTransactionHistory(1, from, to));
+        verify(statement_mock).setInt(1, 1);
+        verify(statement_mock).setTimestamp(2, Timestamp.valueOf(from));
+        verify(statement_mock).setTimestamp(3, Timestamp.valueOf(to));
+    }
+
+    @Test
+    public void test_getTransactionHistory_when_SQLException_occurs_should_throw_DatabaseException() throws SQLException {
+
+        //When prepareStatement() is run, an SQLException is to occur
+        when(connection_mock.prepareStatement(any())).thenThrow(new SQLException("Database error"));
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> {
+
+            db_manager.getTransactionHistory(1, LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 2, 1, 0, 0));
+        });
+
+        //When getTransactionHistory() fails, the error should name the account
+        assertTrue(exception.getMessage().contains("Error reading transaction history of account: 1"));
+    }
+
+    @Test
+    public void test_getActivitySummaries_when_rows_exist_should_read_them_from_the_period_table() throws DatabaseException, SQLException {
+
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        LocalDate to = LocalDate.of(2025, 4, 1);
+
+        //When the query runs, one monthly rollup row is to come back
+        when(connection_mock.prepareStatement(any())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true, false);
+        when(result_set_mock.getDate("month")).thenReturn(Date.valueOf(from));
+        when(result_set_mock.getInt("deposit_count")).thenReturn(2);
+        when(result_set_mock.getLong("deposit_total")).thenReturn(700L);
+        when(result_set_mock.getInt("withdrawal_count")).thenReturn(1);
+        when(result_set_mock.getLong("withdrawal_total")).thenReturn(200L);
+        when(result_set_mock.getInt("closing_balance")).thenReturn(1_500);
+
+        //When getActivitySummaries() is called for months, the monthly rollups should be read for that account
+        assertEquals(List.of(new ActivitySummary(from, 2, 700, 1, 200, 1_500)),
+                db_manager.getActivitySummaries(1, RollupPeriod.MONTH, from, to));
+        verify(connection_mock).prepareStatement(contains("FROM account_monthly_rollups"));
+        verify(statement_mock).setInt(1, 1);
+        verify(statement_mock).setDate(2, Date.valueOf(from));
+        verify(statement_mock).setDate(3, Date.valueOf(to));
+    }
+
+    @Test
+    public void test_getActivityTotals_when_rows_exist_should_return_one_total_per_day() throws DatabaseException, SQLException {
+
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        LocalDate to = LocalDate.of(2025, 4, 1);
+        LocalDate day = LocalDate.of(2025, 3, 4);
+
+        //When the query runs, one day's totals are to come back
+        when(connection_mock.prepareStatement(any())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true, false);
+        when(result_set_mock.getDate("day")).thenReturn(Date.valueOf(day));
+        when(result_set_mock.getInt("active_accounts")).thenReturn(3);
+        when(result_set_mock.getInt("deposit_count")).thenReturn(4);
+        when(result_set_mock.getLong("deposit_total")).thenReturn(900L);
+        when(result_set_mock.getInt("withdrawal_count")).thenReturn(2);
+        when(result_set_mock.getLong("withdrawal_total")).thenReturn(150L);
+
+        //When getActivityTotals() is called for days, the daily rollups should be grouped by day
+        assertEquals(List.of(new ActivityTotals(day, 3, 4, 900, 2, 150)),
+                db_manager.getActivityTotals(RollupPeriod.DAY, from, to));
+        verify(connection_mock).prepareStatement(contains("FROM account_daily_rollups"));
+        verify(connection_mock).prepareStatement(contains("GROUP BY day"));
+    }
+
+    @Test
+    public void test_rebuildRollups_when_successful_should_commit_once_per_month() throws DatabaseException, SQLException {
+
+        //When prepareStatement() is run, a mock is to be returned
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+
+        //When rebuildRollups() covers three months, each should be rebuilt and committed on its own
+        assertEquals(3, db_manager.rebuildRollups(LocalDate.of(2025, 1, 15), LocalDate.of(2025, 4, 1)));
+        verify(connection_mock).setAutoCommit(false);
+        verify(connection_mock, times(3)).commit();
+        verify(statement_mock).setTimestamp(1, Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 0, 0)));
+    }
+
+    @Test
+    public void test_rebuildRollups_when_SQLException_occurs_should_roll_back_the_month_and_throw_DatabaseException() throws SQLException {
+
+        //When the second month's statements run, an SQLException is to occur
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeUpdate()).thenReturn(1, 1, 1).thenThrow(new SQLException("Lock wait timeout"));
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> {
+
+            db_manager.rebuildRollups(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 4, 1));
+        });
+
+        //When rebuildRollups() fails, the first month stays committed, the second is rolled back and named
+        verify(connection_mock, times(1)).commit();
+        verify(connection_mock, times(1)).rollback();
+        assertTrue(exception.getMessage().contains("Error rebuilding rollups for: 2025-02-01"));
+    }
+
+    @Test
+    public void test_applyJournalEntries_when_entry_is_new_should_apply_change_record_claim_and_commit() throws DatabaseException, SQLException {
+
+        PreparedStatement claimed = mock(PreparedStatement.class);
+        PreparedStatement update = mock(PreparedStatement.class);
+        PreparedStatement balance = mock(PreparedStatement.class);
+        PreparedStatement other = mock(PreparedStatement.class);
+        ResultSet no_claim = mock(ResultSet.class);
+        ResultSet balance_row = mock(ResultSet.class);
+
+        //When the statements are prepared, the claim check finds nothing and the balance update finds the account
+        when(connection_mock.prepareStatement(anyString())).thenReturn(other);
+        when(connection_mock.prepareStatement(startsWith("SELECT 1 FROM offline_replays"))).thenReturn(claimed);
+        when(connection_mock.prepareStatement(startsWith("UPDATE accounts SET balance = balance + ?"))).thenReturn(update);
+        when(connection_mock.prepareStatement(startsWith("SELECT balance FROM accounts"))).thenReturn(balance);
+        when(claimed.executeQuery()).thenReturn(no_claim);
+        when(update.executeUpdate()).thenReturn(1);
+        when(balance.executeQuery()).thenReturn(balance_row);
+        when(balance_row.next()).thenReturn(true);
+        when(balance_row.getInt("balance")).thenReturn(800);
+
+        ReplayOutcome[] outcomes = db_manager.applyJournalEntries("terminal-1",
+                List.of(new JournalEntry(7, 1, TransactionType.WITHDRAWAL, 200, 1_000)));
+
+        //When a new entry is replayed, the balance changes by the amount, and the ledger row and claim are written
+        assertArrayEquals(new ReplayOutcome[] {ReplayOutcome.APPLIED}, outcomes);
+        verify(update).setInt(1, -200);
+        verify(other).setInt(4, 800);
+        verify(other).setString(7, "APPLIED");
+        verify(other, times(4)).executeUpdate();
+        verify(connection_mock).commit();
+    }
+
+    @Test
+    public void test_applyJournalEntries_when_entry_was_claimed_before_should_skip_it() throws DatabaseException, SQLException {
+
+        PreparedStatement claimed = mock(PreparedStatement.class);
+        PreparedStatement other = mock(PreparedStatement.class);
+        ResultSet claim_row = mock(ResultSet.class);
+
+        when(connection_mock.prepareStatement(anyString())).thenReturn(other);
+        when(connection_mock.prepareStatement(startsWith("SELECT 1 FROM offline_replays"))).thenReturn(claimed);
+        when(claimed.executeQuery()).thenReturn(claim_row);
+        when(claim_row.next()).thenReturn(true);
+
+        ReplayOutcome[] outcomes = db_manager.applyJournalEntries("terminal-1",
+                List.of(new JournalEntry(7, 1, TransactionType.DEPOSIT, 200, 1_000)));
+
+        //When the entry was already replayed, nothing else is run for it
+        assertArrayEquals(new ReplayOutcome[] {ReplayOutcome.ALREADY_APPLIED}, outcomes);
+        verify(other, never()).executeUpdate();
+        verify(connection_mock).commit();
+    }
+
+    @Test
+    public void test_applyJournalEntries_when_account_is_gone_should_claim_entry_as_conflict() throws DatabaseException, SQLException {
+
+        PreparedStatement other = mock(PreparedStatement.class);
+        PreparedStatement claim = mock(PreparedStatement.class);
+        ResultSet empty = mock(ResultSet.class);
+
+        //When any query runs, nothing is found, and the balance update changes no row
+        when(connection_mock.prepareStatement(anyString())).thenReturn(other);
+        when(connection_mock.prepareStatement(startsWith("INSERT INTO offline_replays"))).thenReturn(claim);
+        when(other.executeQuery()).thenReturn(empty);
+        when(other.executeUpdate()).thenReturn(0);
+
+        ReplayOutcome[] outcomes = db_manager.applyJournalEntries("terminal-1",
+                List.of(new JournalEntry(8, 99, TransactionType.DEPOSIT, 50, 1_000)));
+
+        //When the account no longer exists, no ledger row is written, but the entry is claimed with the conflict
+        assertArrayEquals(new ReplayOutcome[] {ReplayOutcome.ACCOUNT_NOT_FOUND}, outcomes);
+        verify(claim).setString(7, "ACCOUNT_NOT_FOUND");
+        verify(claim).executeUpdate();
+        verify(connection_mock).commit();
+    }
+
+    @Test
+    public void test_applyJournalEntries_when_SQLException_occurs_should_roll_back_whole_batch() throws SQLException {
+
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenThrow(new SQLException("Database error"));
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> db_manager.applyJournalEntries(
+                "terminal-1", List.of(new JournalEntry(1, 1, TransactionType.DEPOSIT, 10, 1_000))));
+
+        //When replaying fails, nothing of the batch is committed, so it can be replayed again
+        verify(connection_mock).rollback();
+        verify(connection_mock, never()).commit();
+        assertTrue(exception.getMessage().contains("terminal-1"));
+    }
+
+
+    private DatabaseManager splitManager() {
+
+        return new DatabaseManager(db_connection_mock, SchemaLayout.SPLIT) {
+
+            @Override
+            public Connection getConnection() {
+
+                return connection_mock;
+            }
+        };
+    }
+
+    @Test
+    public void test_getUser_when_called_should_select_only_needed_columns() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and executeQuery() are run, mocks are to be returned
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(false);
+
+        db_manager.getUser("JD6100");
+
+        //When getUser() is run, the query should name its columns instead of selecting every one
+        verify(connection_mock).prepareStatement(startsWith("SELECT account_num, holder, balance"));
+        verify(connection_mock).prepareStatement(endsWith("status, role, pin FROM accounts a WHERE login = ?"));
+        verify(connection_mock, never()).prepareStatement(contains("*"));
+    }
+
+    @Test
+    public void test_getAccount_when_split_layout_should_join_profile_and_balance_tables() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and executeQuery() are run, mocks are to be returned
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true);
+        when(result_set_mock.getInt("balance")).thenReturn(700);
+
+        Account account = splitManager().getAccount(4);
+
+        //When getAccount() is run in the split layout, the balance should come from account_balances
+        assertEquals(700, account.getBalance());
+        verify(connection_mock).prepareStatement(contains(
+                "FROM account_profiles a LEFT JOIN account_balances b USING (account_num)"));
+    }
+
+    @Test
+    public void test_updateAccountBalance_when_split_layout_should_only_update_balance_table() throws DatabaseException, SQLException {
+
+        //When prepareStatement() is run, a mock is to be returned
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+
+        splitManager().updateAccountBalance(4, 900);
+
+        //When updateAccountBalance() is run in the split layout, only the narrow balance row should be written
+        verify(connection_mock).prepareStatement("UPDATE account_balances SET balance = ? WHERE account_num = ?");
+    }
+
+    @Test
+    public void test_updateAccountInfo_when_split_layout_should_only_touch_profile_table() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and executeQuery() are run, mocks are to be returned
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(false);
+        when(statement_mock.executeUpdate()).thenReturn(1);
+
+        splitManager().updateAccountInfo(4, "Jane Doe", "", "", "");
+
+        //When updateAccountInfo() is run in the split layout, the balance table should not be read or written
+        verify(connection_mock).prepareStatement(contains("FROM account_profiles WHERE account_num = ?"));
+        verify(connection_mock).prepareStatement(startsWith("UPDATE account_profiles SET holder"));
+        verify(connection_mock, never()).prepareStatement(contains("account_balances"));
+    }
+
+    @Test
+    public void test_createNewAccount_when_split_layout_should_insert_profile_and_balance_in_one_transaction() throws DatabaseException, SQLException {
+
+        PreparedStatement balance_statement_mock = mock(PreparedStatement.class);
+
+        //When the two inserts are prepared, separate mocks are to be returned, and the profile is to get number 8
+        when(connection_mock.prepareStatement(startsWith("INSERT INTO account_profiles"), eq(Statement.RETURN_GENERATED_KEYS)))
+                .thenReturn(statement_mock);
+        when(connection_mock.prepareStatement(startsWith("INSERT INTO account_balances"))).thenReturn(balance_statement_mock);
+        when(statement_mock.getGeneratedKeys()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true);
+        when(result_set_mock.getInt(1)).thenReturn(8);
+
+        int account_num = splitManager().createNewAccount("JD6100", "12345", "John Doe", 300, "Active");
+
+        //When createNewAccount() is run in the split layout, both rows should be written and committed together
+        assertEquals(8, account_num);
+        verify(balance_statement_mock).setInt(1, 8);
+        verify(balance_statement_mock).setInt(2, 300);
+        verify(connection_mock).setAutoCommit(false);
+        verify(connection_mock).commit();
+    }
+
+    @Test
+    public void test_createNewAccount_when_split_layout_and_login_taken_should_roll_back_and_return_negative_2() throws DatabaseException, SQLException {
+
+        //When the profile insert is run, the duplicate entry error is to occur
+        when(connection_mock.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(statement_mock);
+        when(connection_mock.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        when(statement_mock.executeUpdate()).thenThrow(new SQLException("Duplicate entry", "23000", 1062));
+
+        //When createNewAccount() is run with a taken login, nothing should be kept and -2 should be returned
+        assertEquals(-2, splitManager().createNewAccount(5, "JD6100", "12345", "John Doe", 300, "Active"));
+        verify(connection_mock).rollback();
+        verify(connection_mock, never()).commit();
+    }
+
+
+    private ResultSet slotRows(int[] slots, int[] balances) throws SQLException {
+
+        //Builds the rows of the account_balance_slots query
+        ResultSet rows = mock(ResultSet.class);
+        Boolean[] more = new Boolean[slots.length];
+        Integer[] slot_values = new Integer[slots.length];
+        Integer[] balance_values = new Integer[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+
+            more[i] = i + 1 < slots.length;
+            slot_values[i] = slots[i];
+            balance_values[i] = balances[i];
+        }
+        when(rows.next()).thenReturn(slots.length > 0, more);
+        when(rows.getInt("slot")).thenReturn(slot_values[0], Arrays.copyOfRange(slot_values, 1, slots.length));
+        when(rows.getInt("balance")).thenReturn(balance_values[0],
+                Arrays.copyOfRange(balance_values, 1, slots.length));
+        return rows;
+    }
+
+    @Test
+    public void test_applyTransaction_when_account_has_sub_balances_should_deposit_into_a_slot() throws DatabaseException, SQLException {
+
+        PreparedStatement insert_mock = mock(PreparedStatement.class);
+        PreparedStatement slots_mock = mock(PreparedStatement.class);
+        PreparedStatement slot_update_mock = mock(PreparedStatement.class);
+        PreparedStatement total_mock = mock(PreparedStatement.class);
+        PreparedStatement rollup_mock = mock(PreparedStatement.class);
+        ResultSet total_result_mock = mock(ResultSet.class);
+
+        //When the balance row is updated, no row is to match, since the account keeps its money in two slots
+        when(connection_mock.prepareStatement(startsWith("UPDATE accounts SET balance"))).thenReturn(statement_mock);
+        when(connection_mock.prepareStatement(startsWith("INSERT INTO transactions"))).thenReturn(insert_mock);
+        when(connection_mock.prepareStatement(startsWith("SELECT slot, balance"))).thenReturn(slots_mock);
+        when(connection_mock.prepareStatement(startsWith("UPDATE account_balance_slots"))).thenReturn(slot_update_mock);
+        when(connection_mock.prepareStatement(startsWith("SELECT COALESCE(SUM"))).thenReturn(total_mock);
+        when(connection_mock.prepareStatement(contains("_rollups"))).thenReturn(rollup_mock);
+        when(statement_mock.executeUpdate()).thenReturn(0);
+        ResultSet slot_rows = slotRows(new int[] {0, 1}, new int[] {1000, 200});
+        when(slots_mock.executeQuery()).thenReturn(slot_rows);
+        when(slot_update_mock.executeUpdate()).thenReturn(1);
+        when(total_mock.executeQuery()).thenReturn(total_result_mock);
+        when(total_result_mock.next()).thenReturn(true);
+        when(total_result_mock.getInt("total")).thenReturn(1300);
+
+        int balance_after = db_manager.applyTransaction(7, 600, TransactionType.DEPOSIT, 100);
+
+        //When applyTransaction() is run, one slot should get the deposit and the ledger should record the total
+        assertEquals(1300, balance_after);
+        verify(slot_update_mock, times(1)).setInt(1, 100);
+        verify(slot_update_mock, times(1)).executeUpdate();
+        verify(insert_mock).setInt(4, 1300);
+        verify(rollup_mock, times(2)).setInt(7, 1300);
+        verify(connection_mock).commit();
+    }
+
+    @Test
+    public void test_applyTransaction_when_sub_balances_cannot_cover_withdrawal_should_roll_back_and_return_negative_1() throws DatabaseException, SQLException {
+
+        PreparedStatement insert_mock = mock(PreparedStatement.class);
+        PreparedStatement slots_mock = mock(PreparedStatement.class);
+        PreparedStatement locked_slots_mock = mock(PreparedStatement.class);
+        PreparedStatement rollup_mock = mock(PreparedStatement.class);
+
+        //When the slots are read, with or without locking, they are to hold 50 and 20 between them
+        when(connection_mock.prepareStatement(startsWith("UPDATE accounts SET balance"))).thenReturn(statement_mock);
+        when(connection_mock.prepareStatement(contains("_rollups"))).thenReturn(rollup_mock);
+        when(connection_mock.prepareStatement(startsWith("INSERT INTO transactions"))).thenReturn(insert_mock);
+        when(connection_mock.prepareStatement(startsWith("SELECT slot, balance"))).thenReturn(slots_mock);
+        when(connection_mock.prepareStatement(contains("FOR UPDATE"))).thenReturn(locked_slots_mock);
+        when(statement_mock.executeUpdate()).thenReturn(0);
+        ResultSet slot_rows = slotRows(new int[] {0, 1}, new int[] {50, 20});
+        ResultSet locked_rows = slotRows(new int[] {0, 1}, new int[] {50, 20});
+        when(slots_mock.executeQuery()).thenReturn(slot_rows);
+        when(locked_slots_mock.executeQuery()).thenReturn(locked_rows);
+
+        int balance_after = db_manager.applyTransaction(7, 0, TransactionType.WITHDRAWAL, 100);
+
+        //When applyTransaction() finds the slots' total too low, nothing should be written or committed
+        assertEquals(-1, balance_after);
+        verify(connection_mock).rollback();
+        verify(connection_mock, never()).commit();
+        verify(insert_mock, never()).executeUpdate();
+        verify(rollup_mock, never()).executeUpdate();
+    }
+
+    @Test
+    public void test_applyTransaction_when_account_was_deleted_should_roll_back_and_return_negative_2() throws DatabaseException, SQLException {
+
+        PreparedStatement insert_mock = mock(PreparedStatement.class);
+        PreparedStatement slots_mock = mock(PreparedStatement.class);
+        PreparedStatement rollup_mock = mock(PreparedStatement.class);
+
+        //When the balance row is updated, no row is to match, and the account is to have no slots either
+        when(connection_mock.prepareStatement(startsWith("UPDATE accounts SET balance"))).thenReturn(statement_mock);
+        when(connection_mock.prepareStatement(contains("_rollups"))).thenReturn(rollup_mock);
+        when(connection_mock.prepareStatement(startsWith("INSERT INTO transactions"))).thenReturn(insert_mock);
+        when(connection_mock.prepareStatement(startsWith("SELECT slot, balance"))).thenReturn(slots_mock);
+        when(statement_mock.executeUpdate()).thenReturn(0);
+        ResultSet slot_rows = mock(ResultSet.class);
+        when(slot_rows.next()).thenReturn(false);
+        when(slots_mock.executeQuery()).thenReturn(slot_rows);
+
+        int balance_after = db_manager.applyTransaction(7, 600, TransactionType.DEPOSIT, 100);
+
+        //When applyTransaction() finds no such account, no ledger row or rollup should be written or committed
+        assertEquals(-2, balance_after);
+        verify(connection_mock).rollback();
+        verify(connection_mock, never()).commit();
+        verify(insert_mock, never()).executeUpdate();
+        verify(rollup_mock, never()).executeUpdate();
+    }
+
+    @Test
+    public void test_enableSubBalances_when_successful_should_move_balance_into_slots() throws DatabaseException, SQLException {
+
+        PreparedStatement balance_mock = mock(PreparedStatement.class);
+        PreparedStatement existing_mock = mock(PreparedStatement.class);
+        PreparedStatement insert_mock = mock(PreparedStatement.class);
+        ResultSet existing_result_mock = mock(ResultSet.class);
+
+        //When the account is read it is to hold 700, and it is to have no slots yet
+        when(connection_mock.prepareStatement(startsWith("SELECT balance FROM accounts"))).thenReturn(balance_mock);
+        when(connection_mock.prepareStatement(startsWith("SELECT COUNT(*)"))).thenReturn(existing_mock);
+        when(connection_mock.prepareStatement(startsWith("INSERT INTO account_balance_slots"))).thenReturn(insert_mock);
+        when(connection_mock.prepareStatement(startsWith("UPDATE accounts SET balance = 0"))).thenReturn(statement_mock);
+        when(balance_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true);
+        when(result_set_mock.getInt("balance")).thenReturn(700);
+        when(existing_mock.executeQuery()).thenReturn(existing_result_mock);
+        when(existing_result_mock.next()).thenReturn(true);
+        when(existing_result_mock.getInt("slots")).thenReturn(0);
+
+        //When enableSubBalances() is run, four slots should be inserted with all 700 in slot 0, then committed
+        assertEquals(4, db_manager.enableSubBalances(9, 4));
+        verify(insert_mock, times(4)).addBatch();
+        verify(insert_mock).setInt(3, 700);
+        verify(statement_mock).executeUpdate();
+        verify(connection_mock).commit();
+    }
+
+    @Test
+    public void test_enableSubBalances_when_account_does_not_exist_should_return_negative_1() throws DatabaseException, SQLException {
+
+        //When the account is read, no row is to be found
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(false);
+
+        //When enableSubBalances() is run for a missing account, -1 should be returned and nothing committed
+        assertEquals(-1, db_manager.enableSubBalances(9, 4));
+        verify(connection_mock).rollback();
+        verify(connection_mock, never()).commit();
+    }
+
+
+    @Test
+    public void test_createNewAccounts_when_batch_succeeds_should_return_assigned_numbers() throws DatabaseException, SQLException {
+
+        //When prepareStatement() is run, a mock is to be returned
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+
+        int[] results = db_manager.createNewAccounts(List.of(
+                new NewAccount(101, "JD6100", "12345", "John Doe", 300, "Active"),
+                new NewAccount(102, "JS6200", "54321", "Jane Smith", 500, "Active")));
+
+        //When createNewAccounts() is run, both rows should go in one batch and one commit
+        assertArrayEquals(new int[] {101, 102}, results);
+        verify(statement_mock, times(2)).addBatch();
+        verify(statement_mock, times(1)).executeBatch();
+        verify(connection_mock, times(1)).commit();
+    }
+
+    @Test
+    public void test_createNewAccounts_when_batch_is_refused_should_retry_rows_one_at_a_time() throws DatabaseException, SQLException {
+
+        PreparedStatement single_mock = mock(PreparedStatement.class);
+
+        //When the batch is run a duplicate login is to be reported, and on the single inserts the second row is to fail
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock, single_mock, single_mock);
+        when(statement_mock.executeBatch()).thenThrow(new BatchUpdateException("Duplicate entry", "23000", 1062, new int[0]));
+        when(single_mock.executeUpdate()).thenReturn(1).thenThrow(new SQLException("Duplicate entry", "23000", 1062));
+
+        //Connections closed and single rows inserted are to be recorded in the order they happen
+        List<String> events = new ArrayList<>();
+        doAnswer(invocation -> events.add("close")).when(connection_mock).close();
+        doAnswer(invocation -> events.add("insert")).when(single_mock).setString(anyInt(), anyString());
+
+        int[] results = db_manager.createNewAccounts(List.of(
+                new NewAccount(101, "JD6100", "12345", "John Doe", 300, "Active"),
+                new NewAccount(102, "JD6100", "54321", "Jane Smith", 500, "Active")));
+
+        //When createNewAccounts() falls back, the batch should be rolled back and each row should get its own result.
+        //The chunk's connection should be closed before the first row is inserted on a connection of its own
+        verify(connection_mock).rollback();
+        assertArrayEquals(new int[] {101, -2}, results);
+        assertEquals("close", events.get(0));
+    }
+
+    @Test
+    public void test_getAccounts_when_numbers_span_chunks_should_query_each_chunk_on_one_connection() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and executeQuery() are run, mocks are to be returned; each chunk finds one account
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true, false, true, false);
+        when(result_set_mock.getInt("account_num")).thenReturn(1, DatabaseManager.BULK_CHUNK_SIZE + 1);
+        when(result_set_mock.getString("holder")).thenReturn("John Doe", "Jane Doe");
+        when(result_set_mock.getInt("balance")).thenReturn(100, 200);
+        when(result_set_mock.getString("status")).thenReturn("Active", "Disabled");
+
+        //One more number than fits in a chunk, with the first number listed twice
+        int[] account_nums = new int[DatabaseManager.BULK_CHUNK_SIZE + 2];
+        for (int i = 0; i < DatabaseManager.BULK_CHUNK_SIZE + 1; i++) {
+
+            account_nums[i] = i + 1;
+        }
+        account_nums[DatabaseManager.BULK_CHUNK_SIZE + 1] = 1;
+
+        Map<Integer, Account> accounts = db_manager.getAccounts(account_nums);
+
+        //When getAccounts() is called, the duplicate should be dropped, so there are two IN-list queries, and only the
+        //accounts found should be in the map
+        verify(connection_mock, times(1)).prepareStatement(contains("IN (" + "?, ".repeat(DatabaseManager.BULK_CHUNK_SIZE - 1) + "?)"));
+        verify(connection_mock, times(1)).prepareStatement(contains("IN (?)"));
+        assertEquals(2, accounts.size());
+        assertEquals("John Doe", accounts.get(1).getHolderName());
+        assertEquals(200, accounts.get(DatabaseManager.BULK_CHUNK_SIZE + 1).getBalance());
+    }
+
+    @Test
+    public void test_getAccounts_when_SQLException_occurs_should_throw_DatabaseException() throws SQLException {
+
+        //When prepareStatement() is run, an SQLException is to occur
+        when(connection_mock.prepareStatement(anyString())).thenThrow(new SQLException("Database error"));
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> {
+
+            db_manager.getAccounts(new int[] {1, 2});
+        });
+
+        //When getAccounts() is run, the thrown error should contain the message below
+        assertTrue(exception.getMessage().contains("Error retrieving 2 accounts"));
+        assertInstanceOf(SQLException.class, exception.getCause());
+    }
+
+    @Test
+    public void test_updateAccounts_when_batch_succeeds_should_commit_once_and_report_missing_accounts() throws DatabaseException, SQLException {
+
+        //When the batch is run, the second account is to match no row
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeBatch()).thenReturn(new int[] {1, 0, Statement.SUCCESS_NO_INFO});
+
+        int[] results = db_manager.updateAccounts(new int[] {4, 5, 6}, "", "Disabled");
+
+        //When updateAccounts() is run, only the status should be set, all three in one batch and one commit
+        verify(connection_mock).prepareStatement("UPDATE accounts SET status = ? WHERE account_num = ?");
+        verify(statement_mock, times(3)).addBatch();
+        verify(connection_mock, times(1)).commit();
+        assertArrayEquals(new int[] {1, 0, 1}, results);
+    }
+
+    @Test
+    public void test_updateAccounts_when_a_chunk_fails_should_roll_it_back_and_keep_the_others() throws DatabaseException, SQLException {
+
+        //Two chunks are needed; the first one's batch is to fail
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeBatch()).thenThrow(new SQLException("Lock wait timeout"))
+                .thenReturn(new int[] {1});
+
+        int[] account_nums = new int[DatabaseManager.BULK_CHUNK_SIZE + 1];
+        Arrays.setAll(account_nums, i -> i + 1);
+
+        int[] results = db_manager.updateAccounts(account_nums, "Jane Doe", "Active");
+
+        //When updateAccounts() is run, the failed chunk should be rolled back and marked -1, and the last one committed
+        verify(connection_mock, times(1)).rollback();
+        verify(connection_mock, times(1)).commit();
+        assertEquals(-1, results[0]);
+        assertEquals(-1, results[DatabaseManager.BULK_CHUNK_SIZE - 1]);
+        assertEquals(1, results[DatabaseManager.BULK_CHUNK_SIZE]);
+    }
+
+    @Test
+    public void test_updateAccounts_when_nothing_to_change_should_throw_IllegalArgumentException() throws SQLException {
+
+        //When updateAccounts() is run with neither a holder nor a status, no connection should be opened
+        assertThrows(IllegalArgumentException.class, () -> db_manager.updateAccounts(new int[] {1}, "", ""));
+        verify(connection_mock, never()).prepareStatement(anyString());
+    }
 }
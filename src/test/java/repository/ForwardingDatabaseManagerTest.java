@@ -0,0 +1,226 @@
+package repository;
+
+import model.account.Account;
+import model.transaction.ActivitySummary;
+import model.transaction.ActivityTotals;
+import model.transaction.RollupPeriod;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+import repository.offline.ReplayOutcome;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ForwardingDatabaseManagerTest {
+
+    private DatabaseManager delegate_mock;
+    private List<DatabaseOperation> invoked;
+    private ForwardingDatabaseManager forwarding_manager;
+
+    @BeforeEach
+    public void setUp() {
+
+        delegate_mock = mock(DatabaseManager.class);
+        invoked = new ArrayList<>();
+
+        //The forwarding manager records every operation that passes through invoke()
+        forwarding_manager = new ForwardingDatabaseManager(delegate_mock) {
+
+            @Override
+            protected <T> T invoke(DatabaseOperation operation, DatabaseCall<T> call) throws DatabaseException {
+
+                invoked.add(operation);
+                return call.call();
+            }
+        };
+    }
+
+
+    @Test
+    public void test_getAccount_when_called_should_pass_through_invoke_to_delegate() throws DatabaseException {
+
+        Account account = new Account(1, "John Doe", 100, "Active");
+        when(delegate_mock.getAccount(1)).thenReturn(account);
+
+        //When getAccount() is called, the delegate's account should be returned and invoke() should see GET_ACCOUNT
+        assertEquals(account, forwarding_manager.getAccount(1));
+        assertEquals(List.of(DatabaseOperation.GET_ACCOUNT), invoked);
+    }
+
+    @Test
+    public void test_updateAccountBalance_when_called_should_forward_to_delegate() throws DatabaseException {
+
+        forwarding_manager.updateAccountBalance(3, 500);
+
+        //When updateAccountBalance() is called, the delegate should receive the same arguments
+        verify(delegate_mock).updateAccountBalance(3, 500);
+        assertEquals(List.of(DatabaseOperation.UPDATE_BALANCE), invoked);
+    }
+
+    @Test
+    public void test_applyTransaction_when_called_should_forward_to_delegate() throws DatabaseException {
+
+        forwarding_manager.applyTransaction(3, 500, TransactionType.DEPOSIT, 200);
+
+        //When applyTransaction() is called, the delegate should receive the same arguments as APPLY_TRANSACTION
+        verify(delegate_mock).applyTransaction(3, 500, TransactionType.DEPOSIT, 200);
+        assertEquals(List.of(DatabaseOperation.APPLY_TRANSACTION), invoked);
+    }
+
+    @Test
+    public void test_createNewAccount_when_called_should_return_delegate_result() throws DatabaseException {
+
+        when(delegate_mock.createNewAccount("john_doe", "12345", "John Doe", 10, "Active")).thenReturn(12);
+
+        //When createNewAccount() is called, the delegate's account number should be returned
+        assertEquals(12, forwarding_manager.createNewAccount("john_doe", "12345", "John Doe", 10, "Active"));
+        assertEquals(List.of(DatabaseOperation.CREATE_ACCOUNT), invoked);
+    }
+
+    @Test
+    public void test_getUser_when_delegate_throws_should_pass_exception_through() throws DatabaseException {
+
+        DatabaseException error = new DatabaseException("Error retrieving user with login: user", null);
+        when(delegate_mock.getUser("user")).thenThrow(error);
+
+        //When the delegate fails, the same exception should reach the caller
+        DatabaseException thrown = assertThrows(DatabaseException.class, () -> forwarding_manager.getUser("user"));
+        assertSame(error, thrown);
+    }
+
+    @Test
+    public void test_loginExists_when_called_should_forward_to_delegate() throws DatabaseException {
+
+        when(delegate_mock.loginExists("john_doe")).thenReturn(true);
+
+        //When loginExists() is called, the delegate's answer should be returned as LOGIN_EXISTS
+        assertTrue(forwarding_manager.loginExists("john_doe"));
+        assertEquals(List.of(DatabaseOperation.LOGIN_EXISTS), invoked);
+    }
+
+    @Test
+    public void test_scanAccountKeys_when_called_should_forward_consumer_to_delegate() throws DatabaseException {
+
+        AccountKeyConsumer consumer = (account_num, login) -> { };
+        when(delegate_mock.scanAccountKeys(consumer)).thenReturn(3);
+
+        //When scanAccountKeys() is called, the same consumer should reach the delegate as SCAN_ACCOUNT_KEYS
+        assertEquals(3, forwarding_manager.scanAccountKeys(consumer));
+        assertEquals(List.of(DatabaseOperation.SCAN_ACCOUNT_KEYS), invoked);
+    }
+
+    @Test
+    public void test_scanAccounts_when_called_should_forward_consumer_to_delegate() throws DatabaseException {
+
+        AccountConsumer consumer = (account_num, holder, balance, status) -> { };
+        when(delegate_mock.scanAccounts(consumer)).thenReturn(3);
+
+        //When scanAccounts() is called, the same consumer should reach the delegate as SCAN_ACCOUNTS
+        assertEquals(3, forwarding_manager.scanAccounts(consumer));
+        assertEquals(List.of(DatabaseOperation.SCAN_ACCOUNTS), invoked);
+    }
+
+    @Test
+    public void test_applyJournalEntries_when_called_should_forward_to_delegate_as_REPLAY_JOURNAL() throws DatabaseException {
+
+        List<JournalEntry> entries = List.of(new JournalEntry(1, 1, TransactionType.DEPOSIT, 10, 1_000));
+        ReplayOutcome[] outcomes = {ReplayOutcome.APPLIED};
+        when(delegate_mock.applyJournalEntries("terminal-1", entries)).thenReturn(outcomes);
+
+        //When applyJournalEntries() is called, the delegate's outcomes should come back through REPLAY_JOURNAL
+        assertSame(outcomes, forwarding_manager.applyJournalEntries("terminal-1", entries));
+        assertEquals(List.of(DatabaseOperation.REPLAY_JOURNAL), invoked);
+    }
+
+    @Test
+    public void test_getTransactionHistory_when_called_should_forward_to_delegate_as_GET_TRANSACTION_HISTORY() throws DatabaseException {
+
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 2, 1, 0, 0);
+        List<TransactionRecord> history = List.of(new TransactionRecord(TransactionType.DEPOSIT, 10, 110,
+                LocalDateTime.of(2025, 1, 5, 9, 0)));
+        when(delegate_mock.getTransactionHistory(1, from, to)).thenReturn(history);
+
+        //When getTransactionHistory() is called, the delegate's rows should come back through GET_TRANSACTION_HISTORY
+        assertEquals(history, forwarding_manager.getTransactionHistory(1, from, to));
+        assertEquals(List.of(DatabaseOperation.GET_TRANSACTION_HISTORY), invoked);
+    }
+
+    @Test
+    public void test_getActivitySummaries_when_called_should_forward_to_delegate_as_GET_ACTIVITY_SUMMARIES() throws DatabaseException {
+
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        LocalDate to = LocalDate.of(2025, 4, 1);
+        List<ActivitySummary> summaries = List.of(new ActivitySummary(from, 1, 100, 0, 0, 1_100));
+        when(delegate_mock.getActivitySummaries(1, RollupPeriod.MONTH, from, to)).thenReturn(summaries);
+
+        //When getActivitySummaries() is called, the delegate's rows should come back through GET_ACTIVITY_SUMMARIES
+        assertEquals(summaries, forwarding_manager.getActivitySummaries(1, RollupPeriod.MONTH, from, to));
+        assertEquals(List.of(DatabaseOperation.GET_ACTIVITY_SUMMARIES), invoked);
+    }
+
+    @Test
+    public void test_getActivityTotals_when_called_should_forward_to_delegate_as_GET_ACTIVITY_TOTALS() throws DatabaseException {
+
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        LocalDate to = LocalDate.of(2025, 4, 1);
+        List<ActivityTotals> totals = List.of(new ActivityTotals(from, 2, 3, 300, 1, 50));
+        when(delegate_mock.getActivityTotals(RollupPeriod.DAY, from, to)).thenReturn(totals);
+
+        //When getActivityTotals() is called, the delegate's rows should come back through GET_ACTIVITY_TOTALS
+        assertEquals(totals, forwarding_manager.getActivityTotals(RollupPeriod.DAY, from, to));
+        assertEquals(List.of(DatabaseOperation.GET_ACTIVITY_TOTALS), invoked);
+    }
+
+    @Test
+    public void test_rebuildRollups_when_called_should_forward_to_delegate_as_REBUILD_ROLLUPS() throws DatabaseException {
+
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 4, 1);
+        when(delegate_mock.rebuildRollups(from, to)).thenReturn(3);
+
+        //When rebuildRollups() is called, the delegate's month count should come back through REBUILD_ROLLUPS
+        assertEquals(3, forwarding_manager.rebuildRollups(from, to));
+        assertEquals(List.of(DatabaseOperation.REBUILD_ROLLUPS), invoked);
+    }
+
+    @Test
+    public void test_getAccounts_when_called_should_forward_to_delegate_as_GET_ACCOUNTS() throws DatabaseException {
+
+        Map<Integer, Account> accounts = Map.of(1, new Account(1, "John Doe", 100, "Active"));
+        when(delegate_mock.getAccounts(new int[] {1, 2})).thenReturn(accounts);
+
+        //When getAccounts() is called, the delegate's accounts should come back through GET_ACCOUNTS
+        assertEquals(accounts, forwarding_manager.getAccounts(new int[] {1, 2}));
+        assertEquals(List.of(DatabaseOperation.GET_ACCOUNTS), invoked);
+    }
+
+    @Test
+    public void test_updateAccounts_when_called_should_forward_to_delegate_as_UPDATE_ACCOUNTS() throws DatabaseException {
+
+        when(delegate_mock.updateAccounts(new int[] {1, 2}, "", "Disabled")).thenReturn(new int[] {1, 0});
+
+        //When updateAccounts() is called, the delegate's results should come back through UPDATE_ACCOUNTS
+        assertArrayEquals(new int[] {1, 0}, forwarding_manager.updateAccounts(new int[] {1, 2}, "", "Disabled"));
+        assertEquals(List.of(DatabaseOperation.UPDATE_ACCOUNTS), invoked);
+    }
+
+    @Test
+    public void test_setQueryTimeout_when_called_should_forward_to_delegate() {
+
+        forwarding_manager.setQueryTimeout(DatabaseOperation.GET_USER, 4);
+
+        //When setQueryTimeout() is called, the delegate should be configured instead
+        verify(delegate_mock).setQueryTimeout(DatabaseOperation.GET_USER, 4);
+    }
+}
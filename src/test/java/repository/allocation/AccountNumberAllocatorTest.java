@@ -0,0 +1,107 @@
+package repository.allocation;
+
+import org.junit.jupiter.api.Test;
+import repository.exception.DatabaseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class AccountNumberAllocatorTest {
+
+    //A block source that hands out consecutive blocks starting at 1000, as the sequence table would
+    private static NumberBlockSource countingSource() {
+
+        AtomicLong next_value = new AtomicLong(1000);
+        return block_size -> next_value.getAndAdd(block_size);
+    }
+
+
+    @Test
+    public void test_next_when_block_has_numbers_should_hand_them_out_in_order() throws DatabaseException {
+
+        NumberBlockSource source_mock = mock(NumberBlockSource.class);
+        when(source_mock.reserveBlock(10)).thenReturn(500L);
+        AccountNumberAllocator allocator = new AccountNumberAllocator(source_mock, 10);
+
+        //When next() is called three times, one block should be reserved and its first numbers returned
+        assertEquals(500, allocator.next());
+        assertEquals(501, allocator.next());
+        assertEquals(502, allocator.next());
+        verify(source_mock, times(1)).reserveBlock(10);
+        assertEquals(7, allocator.getRemainingInBlock());
+    }
+
+    @Test
+    public void test_next_when_block_is_used_up_should_reserve_another_and_count_exhaustion() throws DatabaseException {
+
+        AccountNumberAllocator allocator = new AccountNumberAllocator(countingSource(), 2);
+
+        int[] numbers = allocator.next(5);
+
+        //When more numbers are needed than one block holds, new blocks should be reserved as each runs out
+        assertArrayEquals(new int[] {1000, 1001, 1002, 1003, 1004}, numbers);
+        assertEquals(3, allocator.getBlocksReserved());
+        assertEquals(2, allocator.getBlockExhaustions());
+        assertEquals(5, allocator.getAllocatedCount());
+    }
+
+    @Test
+    public void test_next_when_called_concurrently_should_never_repeat_a_number() throws Exception {
+
+        AccountNumberAllocator allocator = new AccountNumberAllocator(countingSource(), 16);
+        Set<Integer> numbers = ConcurrentHashMap.newKeySet();
+
+        //Eight threads take 500 numbers each while blocks keep running out underneath them
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int worker = 0; worker < 8; worker++) {
+
+            workers.add(executor.submit(() -> {
+
+                for (int i = 0; i < 500; i++) {
+
+                    assertTrue(numbers.add(allocator.next()));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+
+            worker.get();
+        }
+        executor.shutdown();
+
+        //When the allocator is shared, every number handed out should be different
+        assertEquals(4000, numbers.size());
+        assertEquals(4000, allocator.getAllocatedCount());
+    }
+
+    @Test
+    public void test_getAllocationRate_when_time_has_passed_should_report_numbers_per_second() throws DatabaseException {
+
+        long[] now = {0};
+        AccountNumberAllocator allocator = new AccountNumberAllocator(countingSource(), 100, () -> now[0]);
+
+        allocator.next(50);
+        now[0] = 2000;
+
+        //When 50 numbers are handed out over two seconds, the rate should be 25 per second
+        assertEquals(25.0, allocator.getAllocationRate(), 0.001);
+    }
+
+    @Test
+    public void test_constructor_when_block_size_below_1_should_throw_IllegalArgumentException() {
+
+        //When the allocator is created with an empty block size, an IllegalArgumentException should be thrown
+        assertThrows(IllegalArgumentException.class, () -> new AccountNumberAllocator(countingSource(), 0));
+    }
+}
@@ -0,0 +1,87 @@
+package repository.allocation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseConnection;
+import repository.exception.DatabaseException;
+
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SequenceTableTest {
+
+    private Connection connection_mock;
+    private PreparedStatement update_mock;
+    private PreparedStatement query_mock;
+    private ResultSet result_set_mock;
+    private SequenceTable sequence;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+
+        connection_mock = mock(Connection.class);
+        update_mock = mock(PreparedStatement.class);
+        query_mock = mock(PreparedStatement.class);
+        result_set_mock = mock(ResultSet.class);
+
+        when(connection_mock.prepareStatement(startsWith("UPDATE number_sequences"))).thenReturn(update_mock);
+        when(connection_mock.prepareStatement("SELECT LAST_INSERT_ID()")).thenReturn(query_mock);
+        when(query_mock.executeQuery()).thenReturn(result_set_mock);
+
+        sequence = new SequenceTable(new DatabaseConnection("jdbc:mysql://localhost/atm", "user", "pass"),
+                "account_num") {
+
+            @Override
+            public Connection getConnection() {
+
+                return connection_mock;
+            }
+        };
+    }
+
+
+    @Test
+    public void test_reserveBlock_when_successful_should_return_first_number_of_block() throws DatabaseException, SQLException {
+
+        //When the sequence row is moved forward by 100, its new value is to be 1100
+        when(update_mock.executeUpdate()).thenReturn(1);
+        when(result_set_mock.next()).thenReturn(true);
+        when(result_set_mock.getLong(1)).thenReturn(1100L);
+
+        //When reserveBlock() is called, the block should start where the sequence stood before
+        assertEquals(1000L, sequence.reserveBlock(100));
+        verify(update_mock).setInt(1, 100);
+        verify(update_mock).setString(2, "account_num");
+    }
+
+    @Test
+    public void test_reserveBlock_when_sequence_is_unknown_should_throw_DatabaseException() throws SQLException {
+
+        //When the sequence row is moved forward, no row is to match
+        when(update_mock.executeUpdate()).thenReturn(0);
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> {
+
+            sequence.reserveBlock(100);
+        });
+
+        //When reserveBlock() is called for a missing sequence, the error should name it
+        assertTrue(exception.getMessage().contains("Unknown number sequence: account_num"));
+    }
+
+    @Test
+    public void test_reserveBlock_when_SQLException_occurs_should_throw_DatabaseException() throws SQLException {
+
+        //When the update is run, an SQLException is to occur
+        when(update_mock.executeUpdate()).thenThrow(new SQLException("Database error"));
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> {
+
+            sequence.reserveBlock(100);
+        });
+
+        assertInstanceOf(SQLException.class, exception.getCause());
+    }
+}
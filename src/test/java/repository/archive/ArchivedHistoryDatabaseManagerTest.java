@@ -0,0 +1,143 @@
+package repository.archive;
+
+import model.account.Account;
+import model.account.AccountLimits;
+import model.session.SessionContext;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+import model.user.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ArchivedHistoryDatabaseManagerTest {
+
+    @TempDir
+    Path directory;
+
+    private DatabaseManager delegate_mock;
+    private SegmentStore store;
+    private ArchivedHistoryDatabaseManager history_manager;
+
+    private static final LocalDateTime OLD = LocalDateTime.of(2023, 6, 1, 9, 0);
+    private static final LocalDateTime OLDER = LocalDateTime.of(2023, 5, 1, 9, 0);
+    private static final LocalDateTime RECENT = LocalDateTime.of(2025, 2, 1, 9, 0);
+
+    @BeforeEach
+    public void setUp() throws IOException {
+
+        delegate_mock = mock(DatabaseManager.class);
+        store = new SegmentStore(directory);
+        history_manager = new ArchivedHistoryDatabaseManager(delegate_mock, store);
+    }
+
+    private void archive(YearMonth month, LedgerRow... rows) throws IOException {
+
+        Path path = store.nextPath(month);
+        try (SegmentWriter writer = new SegmentWriter(path)) {
+
+            for (LedgerRow row : rows) {
+
+                writer.append(row);
+            }
+            writer.finish();
+        }
+        store.add(path);
+    }
+
+    private static LedgerRow row(long id, LocalDateTime created, int balance_after) {
+
+        return new LedgerRow(id, 1, TransactionType.DEPOSIT, 50, balance_after, Timestamp.valueOf(created).getTime());
+    }
+
+    private static SessionContext customerSession(List<TransactionRecord> activity) {
+
+        Customer customer = new Customer("alice", "hash", new Account(1, "Alice", 500, "Active"));
+        return new SessionContext(customer, activity, AccountLimits.DEFAULT, DatabaseManager.RECENT_ACTIVITY_LIMIT);
+    }
+
+
+    @Test
+    public void test_getTransactionHistory_should_join_live_and_archived_rows_newest_first() throws Exception {
+
+        TransactionRecord live = new TransactionRecord(TransactionType.WITHDRAWAL, 20, 480, RECENT);
+        when(delegate_mock.getTransactionHistory(1, OLDER, RECENT.plusDays(1))).thenReturn(List.of(live));
+        archive(YearMonth.of(2023, 5), row(1, OLDER, 400));
+        archive(YearMonth.of(2023, 6), row(2, OLD, 450));
+
+        //When the range reaches back into the archive, those rows follow the live ones
+        assertEquals(List.of(live, row(2, OLD, 450).toRecord(), row(1, OLDER, 400).toRecord()),
+                history_manager.getTransactionHistory(1, OLDER, RECENT.plusDays(1)));
+        assertEquals(1, history_manager.getArchiveReads());
+    }
+
+    @Test
+    public void test_getTransactionHistory_when_row_is_both_live_and_archived_should_return_it_once() throws Exception {
+
+        //The row was archived, but the run stopped before deleting it from the table
+        LedgerRow row = row(1, OLD, 450);
+        archive(YearMonth.of(2023, 6), row);
+        when(delegate_mock.getTransactionHistory(1, OLDER, RECENT)).thenReturn(List.of(row.toRecord()));
+
+        assertEquals(List.of(row.toRecord()), history_manager.getTransactionHistory(1, OLDER, RECENT));
+    }
+
+    @Test
+    public void test_getTransactionHistory_when_range_before_archive_should_only_read_table() throws Exception {
+
+        archive(YearMonth.of(2023, 6), row(1, OLD, 450));
+        when(delegate_mock.getTransactionHistory(1, RECENT, RECENT.plusDays(1))).thenReturn(List.of());
+
+        //When the range starts after every archived row, the archive adds nothing
+        assertEquals(List.of(), history_manager.getTransactionHistory(1, RECENT, RECENT.plusDays(1)));
+        assertEquals(0, history_manager.getArchiveReads());
+    }
+
+    @Test
+    public void test_loadSession_when_table_has_few_recent_rows_should_top_up_from_archive() throws Exception {
+
+        TransactionRecord live = new TransactionRecord(TransactionType.WITHDRAWAL, 20, 480, RECENT);
+        when(delegate_mock.loadSession("alice")).thenReturn(customerSession(List.of(live)));
+        archive(YearMonth.of(2023, 6), row(1, OLDER, 400), row(2, OLD, 450));
+
+        SessionContext session = history_manager.loadSession("alice");
+
+        //When the table has only one recent transaction, the archived ones fill the rest of the list
+        assertEquals(List.of(live, row(2, OLD, 450).toRecord(), row(1, OLDER, 400).toRecord()),
+                session.getRecentActivity());
+        assertEquals(AccountLimits.DEFAULT, session.getLimits());
+    }
+
+    @Test
+    public void test_loadSession_when_table_has_enough_rows_should_not_read_archive() throws Exception {
+
+        TransactionRecord live = new TransactionRecord(TransactionType.WITHDRAWAL, 20, 480, RECENT);
+        SessionContext full = customerSession(List.of(live, live, live, live, live));
+        when(delegate_mock.loadSession("alice")).thenReturn(full);
+        archive(YearMonth.of(2023, 6), row(1, OLD, 450));
+
+        //When the table already has a full list, the session is passed through untouched
+        assertSame(full, history_manager.loadSession("alice"));
+        assertEquals(0, history_manager.getArchiveReads());
+    }
+
+    @Test
+    public void test_loadSession_when_login_is_unknown_should_return_null() throws DatabaseException {
+
+        when(delegate_mock.loadSession("alice")).thenReturn(null);
+
+        assertNull(history_manager.loadSession("alice"));
+    }
+}
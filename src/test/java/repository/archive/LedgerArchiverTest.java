@@ -0,0 +1,186 @@
+package repository.archive;
+
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repository.DatabaseConnection;
+import repository.exception.DatabaseException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+public class LedgerArchiverTest {
+
+    @TempDir
+    Path directory;
+
+    private Connection connection_mock;
+    private PreparedStatement oldest_mock;
+    private ResultSet oldest_result_mock;
+    private PreparedStatement month_mock;
+    private ResultSet month_result_mock;
+    private PreparedStatement delete_mock;
+    private SegmentStore store;
+    private LedgerArchiver archiver;
+
+    @BeforeEach
+    public void setUp() throws SQLException, IOException {
+
+        connection_mock = mock(Connection.class);
+        oldest_mock = mock(PreparedStatement.class);
+        oldest_result_mock = mock(ResultSet.class);
+        month_mock = mock(PreparedStatement.class);
+        month_result_mock = mock(ResultSet.class);
+        delete_mock = mock(PreparedStatement.class);
+
+        when(connection_mock.prepareStatement(startsWith("SELECT MIN(created_at)"))).thenReturn(oldest_mock);
+        when(oldest_mock.executeQuery()).thenReturn(oldest_result_mock);
+        when(connection_mock.prepareStatement(startsWith("SELECT transaction_id"), anyInt(), anyInt()))
+                .thenReturn(month_mock);
+        when(month_mock.executeQuery()).thenReturn(month_result_mock);
+        when(connection_mock.prepareStatement(startsWith("DELETE FROM transactions"))).thenReturn(delete_mock);
+        when(delete_mock.executeUpdate()).thenAnswer(invocation -> 2);
+
+        //It is March 2025 and rows are kept 13 months, so everything before February 2024 is archived. Rows are
+        //deleted 2 at a time
+        store = new SegmentStore(directory);
+        Clock clock = Clock.fixed(LocalDateTime.of(2025, 3, 15, 12, 0).atZone(ZoneId.systemDefault()).toInstant(),
+                ZoneId.systemDefault());
+        archiver = new LedgerArchiver(new DatabaseConnection("jdbc:mysql://localhost/atm", "user", "pass"), store,
+                13, 2, 0, clock) {
+
+            @Override
+            public Connection getConnection() {
+
+                return connection_mock;
+            }
+        };
+    }
+
+    private void givenJanuary2024Rows() throws SQLException {
+
+        //The oldest row is from January 2024, which holds three rows
+        when(oldest_result_mock.next()).thenReturn(true);
+        when(oldest_result_mock.getTimestamp(1)).thenReturn(Timestamp.valueOf(LocalDateTime.of(2024, 1, 5, 10, 0)));
+
+        when(month_result_mock.next()).thenReturn(true, true, true, false);
+        when(month_result_mock.getLong("transaction_id")).thenReturn(11L, 12L, 13L);
+        when(month_result_mock.getInt("account_num")).thenReturn(1, 1, 2);
+        when(month_result_mock.getString("type")).thenReturn("DEPOSIT", "WITHDRAWAL", "DEPOSIT");
+        when(month_result_mock.getInt("amount")).thenReturn(100, 40, 70);
+        when(month_result_mock.getInt("balance_after")).thenReturn(1_100, 1_060, 570);
+        when(month_result_mock.getTimestamp("created_at")).thenReturn(
+                Timestamp.valueOf(LocalDateTime.of(2024, 1, 5, 10, 0)),
+                Timestamp.valueOf(LocalDateTime.of(2024, 1, 6, 10, 0)),
+                Timestamp.valueOf(LocalDateTime.of(2024, 1, 7, 10, 0)));
+    }
+
+
+    @Test
+    public void test_getCutoff_should_keep_retention_months_live() {
+
+        assertEquals(YearMonth.of(2024, 2), archiver.getCutoff());
+    }
+
+    @Test
+    public void test_archive_when_old_rows_exist_should_write_segment_then_delete_them_in_batches() throws Exception {
+
+        givenJanuary2024Rows();
+
+        List<ArchiveResult> results = archiver.archive();
+
+        //When January is archived, its three rows are in a segment and deleted by id, two and then one per delete
+        assertEquals(1, results.size());
+        assertEquals(YearMonth.of(2024, 1), results.get(0).month());
+        assertEquals(3, results.get(0).rows());
+        assertEquals(Files.size(directory.resolve("ledger-2024-01-1.seg")), results.get(0).bytes());
+
+        verify(connection_mock).prepareStatement("DELETE FROM transactions WHERE transaction_id IN (?, ?)");
+        verify(connection_mock).prepareStatement("DELETE FROM transactions WHERE transaction_id IN (?)");
+        verify(delete_mock).setLong(1, 11L);
+        verify(delete_mock).setLong(2, 12L);
+        verify(delete_mock).setLong(1, 13L);
+        verify(month_mock).setFetchSize(Integer.MIN_VALUE);
+
+        //The rows are readable from the archive, and the segment needs no more deletes
+        assertEquals(List.of(new LedgerRow(11, 1, TransactionType.DEPOSIT, 100, 1_100,
+                        Timestamp.valueOf(LocalDateTime.of(2024, 1, 5, 10, 0)).getTime()),
+                new LedgerRow(12, 1, TransactionType.WITHDRAWAL, 40, 1_060,
+                        Timestamp.valueOf(LocalDateTime.of(2024, 1, 6, 10, 0)).getTime())),
+                LedgerSegment.open(directory.resolve("ledger-2024-01-1.seg")).read(1));
+        assertTrue(store.getUnpurged().isEmpty());
+        assertEquals(3, archiver.getArchivedRows());
+    }
+
+    @Test
+    public void test_archive_when_nothing_is_old_enough_should_do_nothing() throws Exception {
+
+        //When no row is older than the cutoff, MIN() comes back NULL
+        when(oldest_result_mock.next()).thenReturn(true);
+        when(oldest_result_mock.getTimestamp(1)).thenReturn(null);
+
+        assertEquals(List.of(), archiver.archive());
+        verify(connection_mock, never()).prepareStatement(startsWith("DELETE"));
+        assertEquals(0, store.getSegmentCount());
+    }
+
+    @Test
+    public void test_archive_when_earlier_run_stopped_before_deleting_should_finish_the_deletes() throws Exception {
+
+        //A segment is on disk but its rows were never deleted from the table
+        Path path = store.nextPath(YearMonth.of(2023, 12));
+        try (SegmentWriter writer = new SegmentWriter(path)) {
+
+            writer.append(new LedgerRow(5, 3, TransactionType.DEPOSIT, 10, 10, 1_000));
+            writer.finish();
+        }
+        store.add(path);
+        when(oldest_result_mock.next()).thenReturn(true);
+
+        archiver.archive();
+
+        //When the archiver runs again, the segment's rows are deleted and it is marked as done
+        verify(delete_mock).setLong(1, 5L);
+        assertTrue(store.getUnpurged().isEmpty());
+    }
+
+    @Test
+    public void test_archive_when_read_fails_should_throw_and_leave_nothing_behind() throws Exception {
+
+        givenJanuary2024Rows();
+        when(month_mock.executeQuery()).thenThrow(new SQLException("Lost connection"));
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> archiver.archive());
+
+        //When the month can't be read, no segment is kept and nothing is deleted
+        assertTrue(exception.getMessage().contains("Error archiving ledger rows before: 2024-02"));
+        assertEquals(0, store.getSegmentCount());
+        assertFalse(Files.exists(directory.resolve("ledger-2024-01-1.seg.tmp")));
+        verify(connection_mock, never()).prepareStatement(startsWith("DELETE"));
+        assertEquals(1, archiver.getFailedRuns());
+    }
+
+    @Test
+    public void test_constructor_when_batch_size_not_positive_should_throw() {
+
+        assertThrows(IllegalArgumentException.class, () -> new LedgerArchiver(
+                new DatabaseConnection("jdbc:mysql://localhost/atm", "user", "pass"), store, 13, 0, 0));
+    }
+}
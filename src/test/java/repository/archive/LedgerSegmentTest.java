@@ -0,0 +1,120 @@
+package repository.archive;
+
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LedgerSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    private Path write(List<LedgerRow> rows) throws IOException {
+
+        Path target = directory.resolve("ledger-2024-01-1.seg");
+        try (SegmentWriter writer = new SegmentWriter(target)) {
+
+            for (LedgerRow row : rows) {
+
+                writer.append(row);
+            }
+            writer.finish();
+        }
+
+        return target;
+    }
+
+    private static List<LedgerRow> ledger(int accounts, int rows_per_account) {
+
+        //Account 2 * n holds rows_per_account rows, so odd accounts are never in the segment
+        List<LedgerRow> rows = new ArrayList<>();
+        for (int account = 1; account <= accounts; account++) {
+
+            for (int i = 0; i < rows_per_account; i++) {
+
+                rows.add(new LedgerRow(account * 1_000L + i, account * 2,
+                        i % 2 == 0 ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL, 10 + i, 500 - i,
+                        1_700_000_000_000L + i * 1_000L));
+            }
+        }
+
+        return rows;
+    }
+
+
+    @Test
+    public void test_read_when_account_in_segment_should_return_its_rows_oldest_first() throws IOException {
+
+        List<LedgerRow> rows = ledger(10, 3);
+        LedgerSegment segment = LedgerSegment.open(write(rows));
+
+        //When one account is read, exactly its rows come back as they were written
+        assertEquals(rows.subList(9, 12), segment.read(8));
+        assertTrue(segment.contains(8));
+        assertEquals(30, segment.getRowCount());
+        assertEquals(10, segment.getAccountCount());
+        assertEquals(1_700_000_000_000L, segment.getMinCreated());
+        assertEquals(1_700_000_002_000L, segment.getMaxCreated());
+    }
+
+    @Test
+    public void test_read_when_account_not_in_segment_should_return_empty() throws IOException {
+
+        LedgerSegment segment = LedgerSegment.open(write(ledger(10, 3)));
+
+        //When the index has no entry for the account, nothing is decompressed
+        assertFalse(segment.contains(7));
+        assertEquals(List.of(), segment.read(7));
+    }
+
+    @Test
+    public void test_read_when_account_spans_blocks_should_join_them() throws IOException {
+
+        //Each account has more rows than fit in one block, so every account crosses a block boundary
+        List<LedgerRow> rows = ledger(3, SegmentWriter.BLOCK_ROWS + 10);
+        LedgerSegment segment = LedgerSegment.open(write(rows));
+
+        int per_account = SegmentWriter.BLOCK_ROWS + 10;
+        assertEquals(rows.subList(per_account, 2 * per_account), segment.read(4));
+        assertEquals(rows.subList(2 * per_account, 3 * per_account), segment.read(6));
+    }
+
+    @Test
+    public void test_forEachRow_should_visit_every_row_in_order() throws IOException {
+
+        List<LedgerRow> rows = ledger(5, 1_000);
+        LedgerSegment segment = LedgerSegment.open(write(rows));
+
+        //When the whole segment is scanned, every row comes back in the order it was written
+        List<LedgerRow> scanned = new ArrayList<>();
+        segment.forEachRow(scanned::add);
+        assertEquals(rows, scanned);
+    }
+
+    @Test
+    public void test_open_when_file_is_not_a_segment_should_throw() throws IOException {
+
+        Path bogus = directory.resolve("ledger-2024-01-1.seg");
+        Files.write(bogus, new byte[64]);
+
+        //When the file lacks the segment's magic number, it is refused
+        assertThrows(IOException.class, () -> LedgerSegment.open(bogus));
+    }
+
+    @Test
+    public void test_open_when_file_is_truncated_should_throw() throws IOException {
+
+        Path bogus = directory.resolve("ledger-2024-01-1.seg");
+        Files.write(bogus, new byte[4]);
+
+        assertThrows(IOException.class, () -> LedgerSegment.open(bogus));
+    }
+}
@@ -0,0 +1,120 @@
+package repository.archive;
+
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private static LedgerRow row(long id, int account, LocalDateTime created) {
+
+        return new LedgerRow(id, account, TransactionType.DEPOSIT, 10, 100 + (int) id, Timestamp.valueOf(created)
+                .getTime());
+    }
+
+    private static LedgerSegment archive(SegmentStore store, YearMonth month, LedgerRow... rows) throws IOException {
+
+        Path path = store.nextPath(month);
+        try (SegmentWriter writer = new SegmentWriter(path)) {
+
+            for (LedgerRow row : rows) {
+
+                writer.append(row);
+            }
+            writer.finish();
+        }
+
+        return store.add(path);
+    }
+
+
+    @Test
+    public void test_history_when_account_spans_months_should_return_rows_newest_first() throws IOException {
+
+        SegmentStore store = new SegmentStore(directory);
+        LedgerRow january = row(1, 7, LocalDateTime.of(2024, 1, 10, 9, 0));
+        LedgerRow february = row(2, 7, LocalDateTime.of(2024, 2, 3, 9, 0));
+        LedgerRow other_account = row(3, 8, LocalDateTime.of(2024, 2, 4, 9, 0));
+        archive(store, YearMonth.of(2024, 1), january);
+        archive(store, YearMonth.of(2024, 2), february, other_account);
+
+        //When the range covers both months, both of the account's rows come back, the latest first
+        assertEquals(List.of(february, january), store.history(7, Long.MIN_VALUE, Long.MAX_VALUE));
+
+        //When the range covers only February, January's segment is left out
+        assertEquals(List.of(february), store.history(7, Timestamp.valueOf(LocalDateTime.of(2024, 2, 1, 0, 0))
+                .getTime(), Long.MAX_VALUE));
+    }
+
+    @Test
+    public void test_newest_should_stop_at_limit() throws IOException {
+
+        SegmentStore store = new SegmentStore(directory);
+        LedgerRow first = row(1, 7, LocalDateTime.of(2024, 1, 10, 9, 0));
+        LedgerRow second = row(2, 7, LocalDateTime.of(2024, 1, 11, 9, 0));
+        LedgerRow third = row(3, 7, LocalDateTime.of(2024, 2, 3, 9, 0));
+        archive(store, YearMonth.of(2024, 1), first, second);
+        archive(store, YearMonth.of(2024, 2), third);
+
+        //When only two rows are asked for, the two latest come back
+        assertEquals(List.of(third, second), store.newest(7, 2));
+        assertEquals(List.of(), store.newest(9, 2));
+    }
+
+    @Test
+    public void test_nextPath_when_month_already_archived_should_use_next_part() throws IOException {
+
+        SegmentStore store = new SegmentStore(directory);
+        YearMonth month = YearMonth.of(2024, 3);
+        assertEquals(directory.resolve("ledger-2024-03-1.seg"), store.nextPath(month));
+
+        archive(store, month, row(1, 1, LocalDateTime.of(2024, 3, 1, 0, 0)));
+
+        //When the month already has a segment, a later run writes a second part next to it
+        assertEquals(directory.resolve("ledger-2024-03-2.seg"), store.nextPath(month));
+    }
+
+    @Test
+    public void test_constructor_when_reopened_should_load_segments_and_drop_unfinished_ones() throws IOException {
+
+        SegmentStore store = new SegmentStore(directory);
+        LedgerRow archived = row(1, 7, LocalDateTime.of(2024, 1, 10, 9, 0));
+        archive(store, YearMonth.of(2024, 1), archived);
+        Files.write(directory.resolve("ledger-2024-02-1.seg.tmp"), new byte[16]);
+
+        //When the store is opened again, the finished segment is found and the half written one is removed
+        SegmentStore reopened = new SegmentStore(directory);
+        assertEquals(1, reopened.getSegmentCount());
+        assertEquals(1, reopened.getArchivedRows());
+        assertEquals(List.of(archived), reopened.newest(7, 5));
+        assertFalse(Files.exists(directory.resolve("ledger-2024-02-1.seg.tmp")));
+    }
+
+    @Test
+    public void test_markPurged_should_remove_segment_from_unpurged() throws IOException {
+
+        SegmentStore store = new SegmentStore(directory);
+        LedgerSegment segment = archive(store, YearMonth.of(2024, 1), row(1, 7, LocalDateTime.of(2024, 1, 10, 9, 0)));
+
+        //When a segment's rows have not been deleted yet, it is listed for the archiver to finish
+        assertEquals(1, store.getUnpurged().size());
+
+        store.markPurged(segment);
+        assertTrue(store.isPurged(segment));
+        assertTrue(store.getUnpurged().isEmpty());
+        assertTrue(new SegmentStore(directory).getUnpurged().isEmpty());
+    }
+}
@@ -0,0 +1,101 @@
+package repository.archive;
+
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentWriterTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    public void test_finish_when_rows_written_should_move_segment_into_place() throws IOException {
+
+        Path target = directory.resolve("ledger-2024-01-1.seg");
+
+        try (SegmentWriter writer = new SegmentWriter(target)) {
+
+            writer.append(new LedgerRow(1, 1, TransactionType.DEPOSIT, 100, 1_100, 1_000));
+
+            //When the segment is not finished yet, it only exists under its temporary name
+            assertFalse(Files.exists(target));
+            assertTrue(Files.exists(directory.resolve("ledger-2024-01-1.seg.tmp")));
+
+            //When it is finished, it is renamed into place and its size is returned
+            long bytes = writer.finish();
+            assertEquals(Files.size(target), bytes);
+            assertEquals(1, writer.getRowCount());
+        }
+
+        assertFalse(Files.exists(directory.resolve("ledger-2024-01-1.seg.tmp")));
+    }
+
+    @Test
+    public void test_close_when_not_finished_should_delete_temporary_file() throws IOException {
+
+        try (SegmentWriter writer = new SegmentWriter(directory.resolve("ledger-2024-01-1.seg"))) {
+
+            writer.append(new LedgerRow(1, 1, TransactionType.DEPOSIT, 100, 1_100, 1_000));
+        }
+
+        //When a segment is abandoned, nothing is left behind
+        try (Stream<Path> files = Files.list(directory)) {
+
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void test_append_when_account_out_of_order_should_throw() throws IOException {
+
+        try (SegmentWriter writer = new SegmentWriter(directory.resolve("ledger-2024-01-1.seg"))) {
+
+            writer.append(new LedgerRow(1, 5, TransactionType.DEPOSIT, 100, 100, 1_000));
+
+            //When an account comes after a higher one, the index could not find it, so the row is refused
+            assertThrows(IllegalArgumentException.class,
+                    () -> writer.append(new LedgerRow(2, 4, TransactionType.DEPOSIT, 100, 100, 1_000)));
+        }
+    }
+
+    @Test
+    public void test_finish_when_history_is_repetitive_should_compress_well_below_raw_size() throws IOException {
+
+        //A month of a typical ledger: 1,000 accounts with 20 transactions each, a minute apart
+        Path target = directory.resolve("ledger-2024-01-1.seg");
+        long bytes;
+        int rows = 0;
+
+        try (SegmentWriter writer = new SegmentWriter(target)) {
+
+            for (int account = 1; account <= 1_000; account++) {
+
+                int balance = 1_000;
+                for (int i = 0; i < 20; i++) {
+
+                    TransactionType type = i % 3 == 0 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT;
+                    int amount = (i % 5 + 1) * 20;
+                    balance += type == TransactionType.DEPOSIT ? amount : -amount;
+                    writer.append(new LedgerRow(account * 100L + i, account, type, amount, balance,
+                            1_700_000_000_000L + i * 60_000L + account));
+                    rows++;
+                }
+            }
+
+            bytes = writer.finish();
+        }
+
+        //When the rows are stored by column, they take well under the 33 bytes a row takes uncompressed
+        //(8 id, 4 account, 1 type, 4 amount, 4 balance, 8 time, plus 4 for the row's length)
+        assertTrue(bytes < rows * 33L / 4, "segment took " + bytes + " bytes for " + rows + " rows");
+    }
+}
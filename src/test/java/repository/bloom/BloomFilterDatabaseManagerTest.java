@@ -0,0 +1,248 @@
+package repository.bloom;
+
+import model.account.Account;
+import model.account.NewAccount;
+import model.session.SessionContext;
+import model.user.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.AccountKeyConsumer;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BloomFilterDatabaseManagerTest {
+
+    private DatabaseManager delegate_mock;
+    private BloomFilterDatabaseManager bloom_manager;
+
+    @BeforeEach
+    public void setUp() throws DatabaseException {
+
+        delegate_mock = mock(DatabaseManager.class);
+        bloom_manager = new BloomFilterDatabaseManager(delegate_mock, 1000, 0.01);
+
+        //The table is to hold two accounts when the filters are built
+        doAnswer(invocation -> {
+
+            AccountKeyConsumer consumer = invocation.getArgument(0);
+            consumer.accept(1, "john_doe");
+            consumer.accept(2, "jane_doe");
+            return 2;
+        }).when(delegate_mock).scanAccountKeys(any());
+    }
+
+
+    @Test
+    public void test_rebuild_when_accounts_scanned_should_return_count_and_fill_filters() throws DatabaseException {
+
+        //When rebuild() is called, every scanned account should be counted into the filters
+        assertEquals(2, bloom_manager.rebuild());
+        assertEquals(2, bloom_manager.getAccountCount());
+        assertTrue(bloom_manager.getMemoryBytes() > 0);
+    }
+
+    @Test
+    public void test_getAccount_when_number_definitely_missing_should_not_query_database() throws DatabaseException {
+
+        bloom_manager.rebuild();
+
+        //When an account number was never seen, null should be returned without asking the delegate
+        assertNull(bloom_manager.getAccount(999));
+        verify(delegate_mock, never()).getAccount(anyInt());
+        assertEquals(1, bloom_manager.getDefiniteMisses());
+    }
+
+    @Test
+    public void test_getAccount_when_number_may_exist_should_query_database() throws DatabaseException {
+
+        bloom_manager.rebuild();
+        Account account = new Account(1, "John Doe", 100, "Active");
+        when(delegate_mock.getAccount(1)).thenReturn(account);
+
+        //When the filter holds the number, the delegate should be asked for the account
+        assertSame(account, bloom_manager.getAccount(1));
+        assertEquals(0, bloom_manager.getDefiniteMisses());
+    }
+
+    @Test
+    public void test_getAccount_when_filter_passes_but_database_finds_nothing_should_count_false_positive() throws DatabaseException {
+
+        bloom_manager.rebuild();
+        when(delegate_mock.getAccount(1)).thenReturn(null);
+
+        //When the filter lets a lookup through that finds nothing, it should be counted as a false positive
+        assertNull(bloom_manager.getAccount(1));
+        assertEquals(1, bloom_manager.getFalsePositives());
+        assertEquals(1.0, bloom_manager.getObservedFalsePositiveRate());
+    }
+
+    @Test
+    public void test_loadSession_when_login_not_in_filter_should_still_query_database() throws DatabaseException {
+
+        bloom_manager.rebuild();
+        SessionContext session = mock(SessionContext.class);
+        when(delegate_mock.loadSession("opened_elsewhere")).thenReturn(session);
+
+        //When a login is missing from the filter (its account was opened at another terminal), the login should
+        //still be looked up in the database
+        assertSame(session, bloom_manager.loadSession("opened_elsewhere"));
+        bloom_manager.getUser("opened_elsewhere");
+        verify(delegate_mock).getUser("opened_elsewhere");
+    }
+
+    @Test
+    public void test_loginExists_when_login_definitely_missing_should_return_false_without_query() throws DatabaseException {
+
+        bloom_manager.rebuild();
+        when(delegate_mock.loginExists("john_doe")).thenReturn(true);
+
+        //When a login was never seen, it should be reported free; a known login should be checked in the database
+        assertFalse(bloom_manager.loginExists("new_login"));
+        assertTrue(bloom_manager.loginExists("john_doe"));
+        verify(delegate_mock, never()).loginExists("new_login");
+    }
+
+    @Test
+    public void test_createNewAccount_when_successful_should_add_number_and_login() throws DatabaseException {
+
+        when(delegate_mock.createNewAccount(5, "new_login", "12345", "New Holder", 10, "Active")).thenReturn(5);
+        when(delegate_mock.loginExists("new_login")).thenReturn(true);
+
+        bloom_manager.createNewAccount(5, "new_login", "12345", "New Holder", 10, "Active");
+        bloom_manager.getAccount(5);
+
+        //When an account is created, later lookups of its number and login should reach the database
+        verify(delegate_mock).getAccount(5);
+        assertTrue(bloom_manager.loginExists("new_login"));
+    }
+
+    @Test
+    public void test_createNewAccount_when_duplicate_should_not_add_number() throws DatabaseException {
+
+        when(delegate_mock.createNewAccount("john_doe", "12345", "John Doe", 10, "Active")).thenReturn(-2);
+
+        //When creation fails, nothing should be added to the filters
+        assertEquals(-2, bloom_manager.createNewAccount("john_doe", "12345", "John Doe", 10, "Active"));
+        assertEquals(0, bloom_manager.getAccountCount());
+    }
+
+    @Test
+    public void test_createNewAccounts_when_some_refused_should_add_only_created_accounts() throws DatabaseException {
+
+        List<NewAccount> new_accounts = List.of(
+                new NewAccount(7, "first", "12345", "First", 0, "Active"),
+                new NewAccount(8, "second", "12345", "Second", 0, "Active"));
+        when(delegate_mock.createNewAccounts(new_accounts)).thenReturn(new int[] {7, -2});
+
+        bloom_manager.createNewAccounts(new_accounts);
+
+        //When one account of the batch is refused, only the other should be added
+        assertEquals(1, bloom_manager.getAccountCount());
+        assertNull(bloom_manager.getAccount(8));
+        verify(delegate_mock, never()).getAccount(8);
+    }
+
+    @Test
+    public void test_deleteAccount_when_account_exists_should_remove_number_and_login() throws DatabaseException {
+
+        bloom_manager.rebuild();
+        when(delegate_mock.getUser(1)).thenReturn(
+                new Customer("john_doe", "12345", new Account(1, "John Doe", 100, "Active")));
+
+        bloom_manager.deleteAccount(1);
+
+        //When an account is deleted, its number and login should be definite misses again
+        verify(delegate_mock).deleteAccount(1);
+        assertNull(bloom_manager.getAccount(1));
+        assertFalse(bloom_manager.loginExists("john_doe"));
+        verify(delegate_mock, never()).getAccount(1);
+    }
+
+    @Test
+    public void test_deleteAccount_when_account_not_in_filter_should_delete_without_clearing_other_keys() throws DatabaseException {
+
+        bloom_manager.rebuild();
+        when(delegate_mock.getUser(999)).thenReturn(
+                new Customer("opened_elsewhere", "12345", new Account(999, "Jane Roe", 0, "Active")));
+        when(delegate_mock.getAccount(1)).thenReturn(new Account(1, "John Doe", 100, "Active"));
+
+        bloom_manager.deleteAccount(999);
+
+        //When an account opened at another terminal is deleted, it should reach the database, and the accounts the
+        //filters do hold should still be found
+        verify(delegate_mock).deleteAccount(999);
+        assertEquals(2, bloom_manager.getAccountCount());
+        assertNotNull(bloom_manager.getAccount(1));
+    }
+
+    @Test
+    public void test_updateAccountInfo_when_login_changed_should_swap_logins_in_filter() throws DatabaseException {
+
+        bloom_manager.rebuild();
+        when(delegate_mock.getUser(1)).thenReturn(
+                new Customer("john_doe", "12345", new Account(1, "John Doe", 100, "Active")));
+        when(delegate_mock.updateAccountInfo(1, "", "", "johnny", "")).thenReturn(true);
+        when(delegate_mock.loginExists("johnny")).thenReturn(true);
+
+        //When a login is changed, the old login should become free and the new one taken
+        assertTrue(bloom_manager.updateAccountInfo(1, "", "", "johnny", ""));
+        assertFalse(bloom_manager.loginExists("john_doe"));
+        assertTrue(bloom_manager.loginExists("johnny"));
+    }
+
+    @Test
+    public void test_updateAccounts_when_numbers_not_in_filter_should_send_them_all_to_database() throws DatabaseException {
+
+        bloom_manager.rebuild();
+        Map<Integer, Account> accounts = Map.of(999, new Account(999, "Jane Roe", 0, "Active"));
+        when(delegate_mock.getAccounts(new int[] {999, 2})).thenReturn(accounts);
+        when(delegate_mock.updateAccounts(new int[] {999, 2}, "", "Disabled")).thenReturn(new int[] {1, 1});
+        when(delegate_mock.enableSubBalances(999, 4)).thenReturn(4);
+
+        //When the filters have not seen an account yet, batch lookups and updates should still reach it
+        assertEquals(accounts, bloom_manager.getAccounts(new int[] {999, 2}));
+        assertArrayEquals(new int[] {1, 1}, bloom_manager.updateAccounts(new int[] {999, 2}, "", "Disabled"));
+        assertEquals(4, bloom_manager.enableSubBalances(999, 4));
+    }
+
+    @Test
+    public void test_start_when_another_terminal_creates_an_account_should_find_it_after_the_next_rebuild() throws Exception {
+
+        bloom_manager.rebuild();
+        when(delegate_mock.getAccount(3)).thenReturn(new Account(3, "Jane Roe", 0, "Active"));
+
+        //The next scan is to find a third account, opened at another terminal
+        doAnswer(invocation -> {
+
+            AccountKeyConsumer consumer = invocation.getArgument(0);
+            consumer.accept(1, "john_doe");
+            consumer.accept(2, "jane_doe");
+            consumer.accept(3, "jane_roe");
+            return 3;
+        }).when(delegate_mock).scanAccountKeys(any());
+
+        try {
+
+            bloom_manager.start(10);
+
+            //When the filters are rebuilt in the background, the new account should be found
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (bloom_manager.getAccountCount() < 3 && System.currentTimeMillis() < deadline) {
+
+                Thread.sleep(10);
+            }
+            assertNotNull(bloom_manager.getAccount(3));
+        }
+        finally {
+
+            bloom_manager.close();
+        }
+    }
+}
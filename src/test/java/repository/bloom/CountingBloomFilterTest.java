@@ -0,0 +1,120 @@
+package repository.bloom;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CountingBloomFilterTest {
+
+    @Test
+    public void test_mightContain_when_keys_added_should_find_every_one() {
+
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+
+        for (int account_num = 1; account_num <= 1000; account_num++) {
+
+            filter.add(CountingBloomFilter.hash(account_num));
+        }
+
+        //When keys are added, the filter should never report one of them as missing
+        for (int account_num = 1; account_num <= 1000; account_num++) {
+
+            assertTrue(filter.mightContain(CountingBloomFilter.hash(account_num)));
+        }
+        assertEquals(1000, filter.getElementCount());
+    }
+
+    @Test
+    public void test_mightContain_when_keys_never_added_should_mostly_miss() {
+
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+
+        for (int account_num = 1; account_num <= 1000; account_num++) {
+
+            filter.add(CountingBloomFilter.hash("login_" + account_num));
+        }
+
+        int false_positives = 0;
+        for (int account_num = 1001; account_num <= 11000; account_num++) {
+
+            if (filter.mightContain(CountingBloomFilter.hash("login_" + account_num))) {
+
+                false_positives++;
+            }
+        }
+
+        //When the filter holds as many keys as it was sized for, about 1% of unknown keys should get through;
+        //3% leaves room for chance
+        assertTrue(false_positives < 300, "false positives: " + false_positives);
+        assertEquals(0.01, filter.getExpectedFalsePositiveRate(), 0.005);
+    }
+
+    @Test
+    public void test_remove_when_key_was_added_should_report_it_missing_again() {
+
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        long hash = CountingBloomFilter.hash("john_doe");
+
+        filter.add(hash);
+        filter.remove(hash);
+
+        //When the only key is removed, the filter should be empty again
+        assertFalse(filter.mightContain(hash));
+        assertEquals(0, filter.getElementCount());
+    }
+
+    @Test
+    public void test_remove_when_key_added_twice_should_keep_it_until_removed_twice() {
+
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        long hash = CountingBloomFilter.hash(42);
+
+        filter.add(hash);
+        filter.add(hash);
+        filter.remove(hash);
+
+        //When a key was added twice, one removal should leave it present
+        assertTrue(filter.mightContain(hash));
+        filter.remove(hash);
+        assertFalse(filter.mightContain(hash));
+    }
+
+    @Test
+    public void test_remove_when_counters_saturated_should_keep_key_present() {
+
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        long hash = CountingBloomFilter.hash(7);
+
+        for (int i = 0; i < 20; i++) {
+
+            filter.add(hash);
+        }
+        for (int i = 0; i < 20; i++) {
+
+            filter.remove(hash);
+        }
+
+        //When a counter has reached its maximum, its true count is unknown, so it should never be cleared
+        assertTrue(filter.mightContain(hash));
+    }
+
+    @Test
+    public void test_constructor_when_sized_should_report_memory_and_hashes() {
+
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+
+        //When sized for 1000 keys at 1%, about 9586 4-bit counters and 7 hashes should be used
+        assertTrue(filter.getCounterCount() >= 9586);
+        assertEquals(7, filter.getHashCount());
+        assertEquals(filter.getCounterCount() / 2, filter.getMemoryBytes());
+    }
+
+    @Test
+    public void test_constructor_when_arguments_invalid_should_throw_IllegalArgumentException() {
+
+        //When the size or rate cannot describe a filter, the constructor should refuse them
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(100, 1));
+    }
+}
@@ -0,0 +1,134 @@
+package repository.cdc;
+
+import model.account.NewAccount;
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+import repository.offline.ReplayOutcome;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ChangeCaptureDatabaseManagerTest {
+
+    private DatabaseManager delegate_mock;
+    private ChangeRing ring;
+    private ChangeConsumer consumer;
+    private List<String> events;
+    private ChangeCaptureDatabaseManager capture_manager;
+
+    @BeforeEach
+    public void setUp() {
+
+        //Each event is copied out as text, since the ring reuses its slots
+        delegate_mock = mock(DatabaseManager.class);
+        ring = new ChangeRing(64, OverflowPolicy.DROP, 0);
+        events = new ArrayList<>();
+        consumer = ring.register((event, sequence, end_of_batch) -> events.add(event.getType() + " " +
+                event.getAccountNumber() + " " + event.getTransactionType() + " " + event.getAmount() + " " +
+                event.getBalanceAfter()), 64);
+        capture_manager = new ChangeCaptureDatabaseManager(delegate_mock, ring);
+    }
+
+
+    @Test
+    public void test_applyTransaction_when_committed_should_publish_balance_change_with_balance_after() throws DatabaseException {
+
+        when(delegate_mock.applyTransaction(7, 960, TransactionType.WITHDRAWAL, 40)).thenReturn(960);
+
+        //When the withdrawal commits, one BALANCE_CHANGED event with the database's balance should be published
+        assertEquals(960, capture_manager.applyTransaction(7, 960, TransactionType.WITHDRAWAL, 40));
+        consumer.drain();
+        assertEquals(List.of("BALANCE_CHANGED 7 WITHDRAWAL 40 960"), events);
+    }
+
+    @Test
+    public void test_applyTransaction_when_refused_or_failed_should_publish_nothing() throws DatabaseException {
+
+        when(delegate_mock.applyTransaction(7, 960, TransactionType.WITHDRAWAL, 40)).thenReturn(-1);
+        when(delegate_mock.applyTransaction(8, 960, TransactionType.WITHDRAWAL, 40))
+                .thenThrow(new DatabaseException("Error applying transaction", new SQLException()));
+        when(delegate_mock.applyTransaction(9, 1040, TransactionType.DEPOSIT, 40)).thenReturn(-2);
+
+        capture_manager.applyTransaction(7, 960, TransactionType.WITHDRAWAL, 40);
+        capture_manager.applyTransaction(9, 1040, TransactionType.DEPOSIT, 40);
+        assertThrows(DatabaseException.class, () -> capture_manager.applyTransaction(8, 960,
+                TransactionType.WITHDRAWAL, 40));
+
+        //When the database refused the withdrawal, found no account or failed, nothing was committed to publish
+        assertEquals(-1, ring.getPublished());
+    }
+
+    @Test
+    public void test_account_writes_when_committed_should_publish_matching_events() throws DatabaseException {
+
+        when(delegate_mock.createNewAccount("jd", "12345", "John Doe", 300, "Active")).thenReturn(101);
+        when(delegate_mock.createNewAccounts(anyList())).thenReturn(new int[] {102, -2});
+        when(delegate_mock.updateAccountInfo(101, "Jane Doe", null, null, null)).thenReturn(true);
+        when(delegate_mock.updateAccountInfo(999, "Jane Doe", null, null, null)).thenReturn(false);
+
+        capture_manager.createNewAccount("jd", "12345", "John Doe", 300, "Active");
+        capture_manager.createNewAccounts(List.of(new NewAccount(102, "a1", "12345", "A", 50, "Active"),
+                new NewAccount(103, "a1", "12345", "B", 60, "Active")));
+        capture_manager.updateAccountInfo(101, "Jane Doe", null, null, null);
+        capture_manager.updateAccountInfo(999, "Jane Doe", null, null, null);
+        capture_manager.updateAccountBalance(101, 500);
+        capture_manager.deleteAccount(101);
+
+        //When accounts are created, changed and deleted, one event per committed write should be published in
+        //order, and none for the rejected row or the update that matched nothing
+        consumer.drain();
+        assertEquals(List.of("ACCOUNT_CREATED 101 null 0 300", "ACCOUNT_CREATED 102 null 0 50",
+                "ACCOUNT_UPDATED 101 null 0 " + ChangeEvent.UNKNOWN_BALANCE, "BALANCE_SET 101 null 0 500",
+                "ACCOUNT_DELETED 101 null 0 " + ChangeEvent.UNKNOWN_BALANCE), events);
+    }
+
+    @Test
+    public void test_applyJournalEntries_when_replayed_should_publish_only_applied_entries() throws DatabaseException {
+
+        List<JournalEntry> entries = List.of(new JournalEntry(1, 3, TransactionType.DEPOSIT, 10, 1_000),
+                new JournalEntry(2, 4, TransactionType.WITHDRAWAL, 5, 1_001),
+                new JournalEntry(3, 5, TransactionType.WITHDRAWAL, 20, 1_002));
+        when(delegate_mock.applyJournalEntries("terminal-1", entries)).thenReturn(new ReplayOutcome[] {
+                ReplayOutcome.APPLIED, ReplayOutcome.ALREADY_APPLIED, ReplayOutcome.INSUFFICIENT_FUNDS});
+
+        capture_manager.applyJournalEntries("terminal-1", entries);
+
+        //When a batch is replayed, only the entry this replay applied is a new change
+        consumer.drain();
+        assertEquals(List.of("BALANCE_CHANGED 3 DEPOSIT 10 " + ChangeEvent.UNKNOWN_BALANCE), events);
+    }
+
+    @Test
+    public void test_enableSubBalances_when_account_missing_should_publish_nothing() throws DatabaseException {
+
+        when(delegate_mock.enableSubBalances(7, 4)).thenReturn(4);
+        when(delegate_mock.enableSubBalances(8, 4)).thenReturn(-1);
+
+        capture_manager.enableSubBalances(7, 4);
+        capture_manager.enableSubBalances(8, 4);
+
+        //When only one account was split, only it should be published as updated
+        consumer.drain();
+        assertEquals(List.of("ACCOUNT_UPDATED 7 null 0 " + ChangeEvent.UNKNOWN_BALANCE), events);
+    }
+
+    @Test
+    public void test_updateAccounts_when_some_not_updated_should_publish_only_updated_accounts() throws DatabaseException {
+
+        when(delegate_mock.updateAccounts(new int[] {3, 4, 5}, "", "Disabled")).thenReturn(new int[] {1, 0, -1});
+
+        capture_manager.updateAccounts(new int[] {3, 4, 5}, "", "Disabled");
+
+        //When a bulk update leaves one account missing and one rolled back, only the updated one is a change
+        consumer.drain();
+        assertEquals(List.of("ACCOUNT_UPDATED 3 null 0 " + ChangeEvent.UNKNOWN_BALANCE), events);
+    }
+}
@@ -0,0 +1,113 @@
+package repository.cdc;
+
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeConsumerTest {
+
+    @Test
+    public void test_drain_when_more_events_than_batch_should_hand_over_one_batch_and_mark_its_end() {
+
+        ChangeRing ring = new ChangeRing(16, OverflowPolicy.DROP, 0);
+        List<String> seen = new ArrayList<>();
+        ChangeConsumer consumer = ring.register((event, sequence, end_of_batch) ->
+                seen.add(event.getAccountNumber() + (end_of_batch ? "|" : "")), 3);
+
+        for (int account_num = 1; account_num <= 5; account_num++) {
+
+            ring.publish(ChangeType.BALANCE_CHANGED, account_num, TransactionType.DEPOSIT, 10, 100);
+        }
+
+        //When drained with a batch of 3, the first 3 should come in one batch and the last 2 in the next
+        assertEquals(3, consumer.drain());
+        assertEquals(2, consumer.getLag());
+        assertEquals(2, consumer.drain());
+        assertEquals(0, consumer.drain());
+        assertEquals(List.of("1", "2", "3|", "4", "5|"), seen);
+        assertEquals(5, consumer.getHandledCount());
+    }
+
+    @Test
+    public void test_drain_when_events_published_should_carry_every_field() {
+
+        ChangeRing ring = new ChangeRing(16, OverflowPolicy.DROP, 0);
+        List<String> seen = new ArrayList<>();
+        ChangeConsumer consumer = ring.register((event, sequence, end_of_batch) -> seen.add(event.getType() + " " +
+                event.getAccountNumber() + " " + event.getTransactionType() + " " + event.getAmount() + " " +
+                event.getBalanceAfter() + " " + event.getChangeNumber() + " " + (event.getCommittedAt() > 0)), 16);
+
+        ring.publish(ChangeType.BALANCE_CHANGED, 7, TransactionType.WITHDRAWAL, 40, 960);
+
+        //When drained, the handler should see the event exactly as it was published
+        consumer.drain();
+        assertEquals(List.of("BALANCE_CHANGED 7 WITHDRAWAL 40 960 1 true"), seen);
+    }
+
+    @Test
+    public void test_register_when_events_already_published_should_start_at_the_end() {
+
+        ChangeRing ring = new ChangeRing(16, OverflowPolicy.DROP, 0);
+        ring.publish(ChangeType.ACCOUNT_CREATED, 1, null, 0, 100);
+
+        ChangeConsumer consumer = ring.register((event, sequence, end_of_batch) -> { }, 16);
+
+        //When a consumer joins late, it should only see what is published after it joined
+        assertEquals(0, consumer.drain());
+        ring.publish(ChangeType.ACCOUNT_CREATED, 2, null, 0, 100);
+        assertEquals(1, consumer.drain());
+    }
+
+    @Test
+    public void test_drain_when_handler_throws_should_skip_the_event_and_carry_on() {
+
+        ChangeRing ring = new ChangeRing(16, OverflowPolicy.DROP, 0);
+        List<Integer> seen = new ArrayList<>();
+        ChangeConsumer consumer = ring.register((event, sequence, end_of_batch) -> {
+
+            if (event.getAccountNumber() == 2) {
+
+                throw new IllegalStateException("Notification service down");
+            }
+            seen.add(event.getAccountNumber());
+        }, 16);
+
+        for (int account_num = 1; account_num <= 3; account_num++) {
+
+            ring.publish(ChangeType.ACCOUNT_DELETED, account_num, null, 0, ChangeEvent.UNKNOWN_BALANCE);
+        }
+
+        //When the handler fails on one event, the others should still be handled and the cursor move past all
+        assertEquals(3, consumer.drain());
+        assertEquals(List.of(1, 3), seen);
+        assertEquals(1, consumer.getFailedCount());
+        assertEquals(2, consumer.getCursor());
+    }
+
+    @Test
+    public void test_start_when_events_published_should_drain_them_on_its_own_thread_and_close_cleanly() {
+
+        ChangeRing ring = new ChangeRing(64, OverflowPolicy.WAIT, 5_000);
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        ChangeConsumer consumer = ring.register((event, sequence, end_of_batch) ->
+                seen.add(event.getAccountNumber()), 8);
+        consumer.start("cdc-test", 1);
+
+        for (int account_num = 1; account_num <= 500; account_num++) {
+
+            assertTrue(ring.publish(ChangeType.BALANCE_SET, account_num, null, 0, 100));
+        }
+        consumer.close();
+
+        //When closed, every event published before should have been handled in order, and the ring released
+        assertEquals(500, seen.size());
+        assertEquals(1, seen.get(0));
+        assertEquals(500, seen.get(499));
+        assertEquals(0, ring.getConsumerCount());
+    }
+}
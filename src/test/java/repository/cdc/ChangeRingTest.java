@@ -0,0 +1,152 @@
+package repository.cdc;
+
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ChangeRingTest {
+
+    @Test
+    public void test_constructor_when_capacity_is_not_a_power_of_two_should_throw_IllegalArgumentException() {
+
+        //When the capacity can't be masked into a slot index, an IllegalArgumentException should be thrown
+        assertThrows(IllegalArgumentException.class, () -> new ChangeRing(1000, OverflowPolicy.DROP, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ChangeRing(0, OverflowPolicy.DROP, 0));
+    }
+
+    @Test
+    public void test_publish_when_no_consumers_should_never_drop() {
+
+        ChangeRing ring = new ChangeRing(4, OverflowPolicy.DROP, 0);
+
+        for (int i = 0; i < 10; i++) {
+
+            assertTrue(ring.publish(ChangeType.BALANCE_CHANGED, 1, TransactionType.DEPOSIT, 10, 100 + i * 10));
+        }
+
+        //When nobody reads the ring, nothing holds the producer back, so every slot is simply reused
+        assertEquals(9, ring.getPublished());
+        assertEquals(10, ring.getPublishedCount());
+        assertEquals(0, ring.getDroppedCount());
+    }
+
+    @Test
+    public void test_publish_when_consumer_is_a_whole_ring_behind_and_policy_is_DROP_should_drop_new_events() {
+
+        ChangeRing ring = new ChangeRing(4, OverflowPolicy.DROP, 0);
+        List<Long> change_numbers = new ArrayList<>();
+        ChangeConsumer consumer = ring.register((event, sequence, end_of_batch) ->
+                change_numbers.add(event.getChangeNumber()), 16);
+
+        for (int i = 0; i < 6; i++) {
+
+            ring.publish(ChangeType.BALANCE_CHANGED, 1, TransactionType.DEPOSIT, 10, 100);
+        }
+
+        //When the consumer has read nothing, only 4 events fit; the other 2 are dropped, and once it catches up
+        //the next event's change number shows the gap
+        assertEquals(2, ring.getDroppedCount());
+        assertEquals(4, consumer.drain());
+        assertTrue(ring.publish(ChangeType.BALANCE_CHANGED, 1, TransactionType.DEPOSIT, 10, 100));
+        consumer.drain();
+        assertEquals(List.of(1L, 2L, 3L, 4L, 7L), change_numbers);
+    }
+
+    @Test
+    public void test_publish_when_policy_is_WAIT_and_consumer_catches_up_should_publish_after_waiting() throws InterruptedException {
+
+        ChangeRing ring = new ChangeRing(2, OverflowPolicy.WAIT, 5_000);
+        ChangeConsumer consumer = ring.register((event, sequence, end_of_batch) -> { }, 16);
+        ring.publish(ChangeType.ACCOUNT_CREATED, 1, null, 0, 100);
+        ring.publish(ChangeType.ACCOUNT_CREATED, 2, null, 0, 100);
+
+        Thread reader = new Thread(() -> {
+
+            try {
+
+                Thread.sleep(100);
+            }
+            catch (InterruptedException error) {
+
+                Thread.currentThread().interrupt();
+            }
+            consumer.drain();
+        });
+        reader.start();
+
+        //When the ring is full, the producer should wait for the consumer to make room instead of dropping
+        assertTrue(ring.publish(ChangeType.ACCOUNT_CREATED, 3, null, 0, 100));
+        reader.join();
+        assertEquals(1, ring.getWaitedCount());
+        assertEquals(0, ring.getDroppedCount());
+    }
+
+    @Test
+    public void test_publish_when_policy_is_WAIT_and_consumer_stays_behind_should_drop_after_the_limit() {
+
+        ChangeRing ring = new ChangeRing(2, OverflowPolicy.WAIT, 50);
+        ring.register((event, sequence, end_of_batch) -> { }, 16);
+        ring.publish(ChangeType.ACCOUNT_CREATED, 1, null, 0, 100);
+        ring.publish(ChangeType.ACCOUNT_CREATED, 2, null, 0, 100);
+
+        long started = System.nanoTime();
+        boolean published = ring.publish(ChangeType.ACCOUNT_CREATED, 3, null, 0, 100);
+        long waited_ms = (System.nanoTime() - started) / 1_000_000;
+
+        //When the consumer never makes room, the producer should give up after about 50ms and drop the event
+        assertFalse(published);
+        assertTrue(waited_ms >= 50 && waited_ms < 2_000, "waited " + waited_ms + " ms");
+        assertEquals(1, ring.getDroppedCount());
+    }
+
+    @Test
+    public void test_remove_when_consumer_is_behind_should_stop_holding_the_producer_back() {
+
+        ChangeRing ring = new ChangeRing(2, OverflowPolicy.DROP, 0);
+        ChangeConsumer consumer = ring.register((event, sequence, end_of_batch) -> { }, 16);
+        ring.publish(ChangeType.ACCOUNT_CREATED, 1, null, 0, 100);
+        ring.publish(ChangeType.ACCOUNT_CREATED, 2, null, 0, 100);
+
+        ring.remove(consumer);
+
+        //When the lagging consumer is removed, the next event should fit again
+        assertTrue(ring.publish(ChangeType.ACCOUNT_CREATED, 3, null, 0, 100));
+        assertEquals(0, ring.getConsumerCount());
+    }
+
+    @Test
+    public void test_publish_when_warmed_up_should_not_allocate() {
+
+        ChangeRing ring = new ChangeRing(1024, OverflowPolicy.DROP, 0);
+        ChangeConsumer consumer = ring.register((event, sequence, end_of_batch) -> { }, 256);
+
+        //Only JVMs that count allocated bytes per thread can run this check
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        //The code paths are run once first, so class loading and the counters' setup are not measured
+        for (int i = 0; i < 20_000; i++) {
+
+            ring.publish(ChangeType.BALANCE_CHANGED, i, TransactionType.WITHDRAWAL, 20, 500);
+            consumer.drain();
+        }
+
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 100_000; i++) {
+
+            ring.publish(ChangeType.BALANCE_CHANGED, i, TransactionType.WITHDRAWAL, 20, 500);
+            consumer.drain();
+        }
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+        //When 100,000 events go through, the bytes allocated should be far fewer than even one object per event
+        assertTrue(allocated < 100_000, "allocated " + allocated + " bytes");
+    }
+}
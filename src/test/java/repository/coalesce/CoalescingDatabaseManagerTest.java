@@ -0,0 +1,78 @@
+package repository.coalesce;
+
+import model.account.Account;
+import model.user.Administrator;
+import model.user.Customer;
+import model.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CoalescingDatabaseManagerTest {
+
+    private DatabaseManager delegate_mock;
+    private CoalescingDatabaseManager coalescing_manager;
+
+    @BeforeEach
+    public void setUp() {
+
+        delegate_mock = mock(DatabaseManager.class);
+        coalescing_manager = new CoalescingDatabaseManager(delegate_mock);
+    }
+
+
+    @Test
+    public void test_getAccount_when_account_exists_should_return_copy_of_delegate_account() throws DatabaseException {
+
+        Account account = new Account(1, "John Doe", 100, "Active");
+        when(delegate_mock.getAccount(1)).thenReturn(account);
+
+        Account result = coalescing_manager.getAccount(1);
+
+        //When getAccount() is called, an equal but separate Account object should be returned
+        assertNotSame(account, result);
+        assertEquals(1, result.getAccountNumber());
+        assertEquals("John Doe", result.getHolderName());
+        assertEquals(100, result.getBalance());
+        assertEquals("Active", result.getStatus());
+        assertEquals(1, coalescing_manager.getExecutedCount());
+    }
+
+    @Test
+    public void test_getAccount_when_account_does_not_exist_should_return_null() throws DatabaseException {
+
+        when(delegate_mock.getAccount(2)).thenReturn(null);
+
+        //When getAccount() finds nothing, null should be returned
+        assertNull(coalescing_manager.getAccount(2));
+    }
+
+    @Test
+    public void test_getUser_when_customer_should_copy_account_and_keep_credentials() throws DatabaseException {
+
+        Customer customer = new Customer("jane_doe", "12345", new Account(3, "Jane Doe", 50, "Active"));
+        when(delegate_mock.getUser(3)).thenReturn(customer);
+
+        User result = coalescing_manager.getUser(3);
+
+        //When getUser() returns a customer, their login and pin should be kept and their account copied
+        assertInstanceOf(Customer.class, result);
+        assertEquals("jane_doe", result.getLogin());
+        assertEquals("12345", result.getPin());
+        assertNotSame(customer.getAccount(), ((Customer) result).getAccount());
+    }
+
+    @Test
+    public void test_getUser_when_administrator_should_return_same_object() throws DatabaseException {
+
+        Administrator administrator = new Administrator("admin", "00000");
+        when(delegate_mock.getUser(4)).thenReturn(administrator);
+
+        //When getUser() returns an administrator, nothing needs copying
+        assertSame(administrator, coalescing_manager.getUser(4));
+    }
+}
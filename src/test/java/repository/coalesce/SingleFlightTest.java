@@ -0,0 +1,95 @@
+package repository.coalesce;
+
+import org.junit.jupiter.api.Test;
+import repository.exception.DatabaseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void test_execute_when_same_key_requested_concurrently_should_run_call_once() throws Exception {
+
+        SingleFlight<Integer, String> single_flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch call_started = new CountDownLatch(1);
+        CountDownLatch release_call = new CountDownLatch(1);
+
+        //The shared call blocks until the test lets it finish, so the other lookups arrive while it is running
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> lookups = new ArrayList<>();
+        lookups.add(executor.submit(() -> single_flight.execute(7, () -> {
+
+            calls.incrementAndGet();
+            call_started.countDown();
+            try {
+
+                release_call.await();
+            }
+            catch (InterruptedException error) {
+
+                Thread.currentThread().interrupt();
+            }
+            return "account 7";
+        })));
+        call_started.await();
+
+        for (int follower = 0; follower < 3; follower++) {
+
+            lookups.add(executor.submit(() -> single_flight.execute(7, () -> {
+
+                calls.incrementAndGet();
+                return "second read";
+            })));
+        }
+
+        //The followers are given time to find the running call before it is released
+        while (single_flight.getCoalescedCount() < 3) {
+
+            Thread.sleep(5);
+        }
+        release_call.countDown();
+
+        //When four lookups for the same key overlap, they should all get the one call's result
+        for (Future<String> lookup : lookups) {
+
+            assertEquals("account 7", lookup.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, single_flight.getExecutedCount());
+        assertEquals(3, single_flight.getCoalescedCount());
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void test_execute_when_calls_do_not_overlap_should_run_each_call() throws DatabaseException {
+
+        SingleFlight<Integer, String> single_flight = new SingleFlight<>();
+
+        //When lookups for the same key happen one after another, each should read fresh data
+        assertEquals("first", single_flight.execute(1, () -> "first"));
+        assertEquals("second", single_flight.execute(1, () -> "second"));
+        assertEquals(2, single_flight.getExecutedCount());
+        assertEquals(0, single_flight.getCoalescedCount());
+    }
+
+    @Test
+    public void test_execute_when_call_fails_should_throw_and_free_key() throws DatabaseException {
+
+        SingleFlight<Integer, String> single_flight = new SingleFlight<>();
+        DatabaseException error = new DatabaseException("Error retrieving account", null);
+
+        //When the call fails, its exception should be thrown, and the next lookup should run normally
+        DatabaseException thrown = assertThrows(DatabaseException.class, () -> single_flight.execute(1, () -> {
+
+            throw error;
+        }));
+        assertSame(error, thrown);
+        assertEquals("retry", single_flight.execute(1, () -> "retry"));
+    }
+}
@@ -0,0 +1,43 @@
+package repository.credential;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CredentialVerifierTest {
+
+    private final PinHasher pin_hasher = new PinHasher(1_000);
+    private final CredentialVerifier verifier = new CredentialVerifier(pin_hasher,
+            new VerifiedCredentialCache(10, 60_000));
+
+    @Test
+    public void test_verify_when_login_repeats_should_skip_kdf_the_second_time() {
+
+        String stored = pin_hasher.hash("12345");
+
+        //When the same login succeeds twice, only the first should run the KDF
+        assertTrue(verifier.verify("john_doe", "12345", stored));
+        assertTrue(verifier.verify("john_doe", "12345", stored));
+        assertEquals(1, verifier.getKdfRuns());
+    }
+
+    @Test
+    public void test_verify_when_pin_is_wrong_should_not_cache_failure() {
+
+        String stored = pin_hasher.hash("12345");
+
+        //When a wrong pin is tried repeatedly, every attempt should pay for the KDF
+        assertFalse(verifier.verify("john_doe", "00000", stored));
+        assertFalse(verifier.verify("john_doe", "00000", stored));
+        assertEquals(2, verifier.getKdfRuns());
+        assertEquals(0, verifier.getCache().size());
+    }
+
+    @Test
+    public void test_verify_when_no_stored_pin_should_return_false_without_kdf() {
+
+        //When the login does not exist, there is nothing to check
+        assertFalse(verifier.verify("nobody", "12345", null));
+        assertEquals(0, verifier.getKdfRuns());
+    }
+}
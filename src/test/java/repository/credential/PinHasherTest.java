@@ -0,0 +1,72 @@
+package repository.credential;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PinHasherTest {
+
+    private final PinHasher pin_hasher = new PinHasher(1_000);
+
+    @Test
+    public void test_hash_when_called_twice_should_salt_each_hash() {
+
+        String first = pin_hasher.hash("12345");
+        String second = pin_hasher.hash("12345");
+
+        //When the same pin is hashed twice, the salts should make the stored values differ, and both should verify
+        assertNotEquals(first, second);
+        assertTrue(first.startsWith("pbkdf2-sha256$1000$"));
+        assertTrue(pin_hasher.verify("12345", first));
+        assertTrue(pin_hasher.verify("12345", second));
+    }
+
+    @Test
+    public void test_verify_when_pin_is_wrong_should_return_false() {
+
+        //When a different pin is checked against the hash, it should not match
+        assertFalse(pin_hasher.verify("54321", pin_hasher.hash("12345")));
+    }
+
+    @Test
+    public void test_verify_when_stored_in_plain_text_should_compare_directly() {
+
+        //When a pin from before hashing is checked, only the same plain pin should match
+        assertTrue(pin_hasher.verify("12345", "12345"));
+        assertFalse(pin_hasher.verify("12346", "12345"));
+    }
+
+    @Test
+    public void test_verify_when_stored_value_is_malformed_or_missing_should_return_false() {
+
+        //When the stored value cannot be read as a hash, or there is none, nothing should match
+        assertFalse(pin_hasher.verify("12345", "pbkdf2-sha256$x$y"));
+        assertFalse(pin_hasher.verify("12345", "pbkdf2-sha256$abc$c2FsdA$aGFzaA"));
+        assertFalse(pin_hasher.verify("12345", null));
+    }
+
+    @Test
+    public void test_verify_when_hashed_at_another_cost_should_use_stored_cost() {
+
+        String cheap = new PinHasher(500).hash("12345");
+
+        //When a hash was made at a different cost, it should still verify, and be due for re-hashing
+        assertTrue(pin_hasher.verify("12345", cheap));
+        assertTrue(pin_hasher.needsRehash(cheap));
+    }
+
+    @Test
+    public void test_needsRehash_when_current_or_plain_should_report_correctly() {
+
+        //When the hash already uses the configured cost, it should be kept; a plain pin should always be re-hashed
+        assertFalse(pin_hasher.needsRehash(pin_hasher.hash("12345")));
+        assertTrue(pin_hasher.needsRehash("12345"));
+    }
+
+    @Test
+    public void test_constructor_when_iterations_below_1_should_throw_IllegalArgumentException() {
+
+        //When the cost is not positive, the hasher should refuse it
+        assertThrows(IllegalArgumentException.class, () -> new PinHasher(0));
+    }
+}
@@ -0,0 +1,69 @@
+package repository.credential;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VerifiedCredentialCacheTest {
+
+    private final AtomicLong now = new AtomicLong(0);
+
+    @Test
+    public void test_isVerified_when_remembered_should_match_same_pin_and_hash_only() {
+
+        VerifiedCredentialCache cache = new VerifiedCredentialCache(10, 1000, now::get);
+        cache.remember("john_doe", "12345", "stored");
+
+        //When a login was remembered, only the same pin against the same stored hash should count as verified
+        assertTrue(cache.isVerified("john_doe", "12345", "stored"));
+        assertFalse(cache.isVerified("john_doe", "54321", "stored"));
+        assertFalse(cache.isVerified("john_doe", "12345", "changed"));
+        assertFalse(cache.isVerified("jane_doe", "12345", "stored"));
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void test_isVerified_when_entry_expired_should_miss_and_drop_it() {
+
+        VerifiedCredentialCache cache = new VerifiedCredentialCache(10, 1000, now::get);
+        cache.remember("john_doe", "12345", "stored");
+
+        now.set(1000);
+
+        //When the time to live has passed, the entry should no longer count and should be removed
+        assertFalse(cache.isVerified("john_doe", "12345", "stored"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void test_remember_when_full_should_evict_least_recently_used() {
+
+        VerifiedCredentialCache cache = new VerifiedCredentialCache(2, 1000, now::get);
+        cache.remember("first", "11111", "a");
+        cache.remember("second", "22222", "b");
+
+        //The first login is used again, so the second is now the least recently used
+        cache.isVerified("first", "11111", "a");
+        cache.remember("third", "33333", "c");
+
+        //When a third login is remembered, the least recently used one should be dropped
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.isVerified("first", "11111", "a"));
+        assertFalse(cache.isVerified("second", "22222", "b"));
+    }
+
+    @Test
+    public void test_forget_when_called_should_remove_login() {
+
+        VerifiedCredentialCache cache = new VerifiedCredentialCache(10, 1000, now::get);
+        cache.remember("john_doe", "12345", "stored");
+        cache.forget("john_doe");
+
+        //When a login is forgotten, its next check should miss
+        assertFalse(cache.isVerified("john_doe", "12345", "stored"));
+    }
+}
@@ -0,0 +1,132 @@
+package repository.dashboard;
+
+import model.transaction.ActivityTotals;
+import model.transaction.DailyActivity;
+import model.transaction.RollupPeriod;
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ActivityCountersTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 4);
+
+    private AtomicLong now;
+    private ActivityCounters activity;
+    private DatabaseManager db_manager_mock;
+
+    private static long at(LocalDate day, int hour) {
+
+        return day.atTime(hour, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @BeforeEach
+    public void setUp() {
+
+        now = new AtomicLong(at(DAY, 10));
+        activity = new ActivityCounters(now::get);
+        db_manager_mock = mock(DatabaseManager.class);
+    }
+
+
+    @Test
+    public void test_record_should_add_to_todays_counts_and_totals() {
+
+        activity.record(TransactionType.DEPOSIT, 100);
+        activity.record(TransactionType.DEPOSIT, 50);
+        activity.record(TransactionType.WITHDRAWAL, 20);
+
+        //When transactions are recorded, today's figures should count and total them by type
+        assertEquals(new DailyActivity(DAY, 2, 150, 1, 20), activity.today());
+    }
+
+    @Test
+    public void test_record_when_taken_on_an_earlier_day_should_not_count_today() {
+
+        activity.record(TransactionType.DEPOSIT, 100, at(DAY.minusDays(1), 23));
+        activity.record(TransactionType.WITHDRAWAL, 30, at(DAY, 8));
+
+        //When a replayed transaction was taken yesterday, only today's one should be counted
+        assertEquals(new DailyActivity(DAY, 0, 0, 1, 30), activity.today());
+    }
+
+    @Test
+    public void test_today_when_the_day_changes_should_start_from_zero() {
+
+        activity.record(TransactionType.DEPOSIT, 100);
+        now.set(at(DAY.plusDays(1), 0));
+
+        //When midnight passes, the new day's figures should start empty
+        assertEquals(new DailyActivity(DAY.plusDays(1), 0, 0, 0, 0), activity.today());
+        activity.record(TransactionType.WITHDRAWAL, 10);
+        assertEquals(new DailyActivity(DAY.plusDays(1), 0, 0, 1, 10), activity.today());
+    }
+
+    @Test
+    public void test_checkpoint_should_correct_the_figures_to_the_database_and_keep_counting() throws DatabaseException {
+
+        //This terminal has seen one deposit; the database, counting other terminals, has three and a withdrawal
+        activity.record(TransactionType.DEPOSIT, 100);
+        when(db_manager_mock.getActivityTotals(RollupPeriod.DAY, DAY, DAY.plusDays(1))).thenReturn(List.of(
+                new ActivityTotals(DAY, 4, 3, 400, 1, 60)));
+
+        assertTrue(activity.checkpoint(db_manager_mock));
+        activity.record(TransactionType.DEPOSIT, 5);
+
+        //When checkpointed, the figures should be the database's, plus what was recorded afterwards
+        assertEquals(new DailyActivity(DAY, 4, 405, 1, 60), activity.today());
+        assertEquals(LocalDateTime.of(2025, 3, 4, 10, 0), activity.getCheckpointAt());
+    }
+
+    @Test
+    public void test_checkpoint_when_database_has_no_rollup_should_correct_to_zero() throws DatabaseException {
+
+        activity.record(TransactionType.WITHDRAWAL, 40);
+        when(db_manager_mock.getActivityTotals(RollupPeriod.DAY, DAY, DAY.plusDays(1))).thenReturn(List.of());
+
+        //When the database has nothing for today, the figures should be brought down to nothing
+        assertTrue(activity.checkpoint(db_manager_mock));
+        assertEquals(new DailyActivity(DAY, 0, 0, 0, 0), activity.today());
+    }
+
+    @Test
+    public void test_checkpoint_when_write_in_flight_should_change_nothing() throws DatabaseException {
+
+        activity.begin();
+        activity.record(TransactionType.DEPOSIT, 100);
+
+        //When a write has not finished, the database should not be asked and the figures should stay as they are
+        assertFalse(activity.checkpoint(db_manager_mock));
+        verifyNoInteractions(db_manager_mock);
+        assertEquals(new DailyActivity(DAY, 1, 100, 0, 0), activity.today());
+        assertNull(activity.getCheckpointAt());
+    }
+
+    @Test
+    public void test_checkpoint_when_write_begins_during_the_read_should_change_nothing() throws DatabaseException {
+
+        //A deposit is to commit on another thread while the rollup is being read
+        when(db_manager_mock.getActivityTotals(RollupPeriod.DAY, DAY, DAY.plusDays(1))).thenAnswer(invocation -> {
+
+            activity.begin();
+            activity.record(TransactionType.DEPOSIT, 100);
+            activity.end();
+            return List.of(new ActivityTotals(DAY, 1, 1, 100, 0, 0));
+        });
+
+        //When the read may or may not include the deposit, the figures should not be corrected
+        assertFalse(activity.checkpoint(db_manager_mock));
+        assertEquals(new DailyActivity(DAY, 1, 100, 0, 0), activity.today());
+    }
+}
@@ -0,0 +1,83 @@
+package repository.dashboard;
+
+import model.transaction.DailyActivity;
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+import repository.offline.ReplayOutcome;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class DashboardDatabaseManagerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 4);
+
+    private DatabaseManager delegate_mock;
+    private ActivityCounters activity;
+    private DashboardDatabaseManager dashboard_manager;
+
+    private static long at(LocalDate day, int hour) {
+
+        return day.atTime(hour, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @BeforeEach
+    public void setUp() {
+
+        delegate_mock = mock(DatabaseManager.class);
+        activity = new ActivityCounters(() -> at(DAY, 12));
+        dashboard_manager = new DashboardDatabaseManager(delegate_mock, activity);
+    }
+
+
+    @Test
+    public void test_applyTransaction_when_committed_should_count_it_and_not_when_refused() throws DatabaseException {
+
+        when(delegate_mock.applyTransaction(1, 150, TransactionType.DEPOSIT, 50)).thenReturn(150);
+        when(delegate_mock.applyTransaction(2, 0, TransactionType.WITHDRAWAL, 80)).thenReturn(-1);
+
+        dashboard_manager.applyTransaction(1, 150, TransactionType.DEPOSIT, 50);
+        dashboard_manager.applyTransaction(2, 0, TransactionType.WITHDRAWAL, 80);
+
+        //When one deposit commits and a withdrawal is refused, only the deposit should be counted
+        assertEquals(new DailyActivity(DAY, 1, 50, 0, 0), activity.today());
+    }
+
+    @Test
+    public void test_applyJournalEntries_should_count_applied_entries_taken_today() throws DatabaseException {
+
+        List<JournalEntry> entries = List.of(new JournalEntry(1, 1, TransactionType.WITHDRAWAL, 20, at(DAY, 9)),
+                new JournalEntry(2, 1, TransactionType.DEPOSIT, 30, at(DAY.minusDays(1), 18)),
+                new JournalEntry(3, 2, TransactionType.WITHDRAWAL, 500, at(DAY, 10)));
+        when(delegate_mock.applyJournalEntries("terminal-1", entries)).thenReturn(new ReplayOutcome[] {
+                ReplayOutcome.APPLIED, ReplayOutcome.APPLIED, ReplayOutcome.INSUFFICIENT_FUNDS});
+
+        dashboard_manager.applyJournalEntries("terminal-1", entries);
+
+        //When a batch is replayed, yesterday's deposit and the refused withdrawal should not count towards today
+        assertEquals(new DailyActivity(DAY, 0, 0, 1, 20), activity.today());
+    }
+
+    @Test
+    public void test_applyTransaction_when_it_fails_should_not_block_later_checkpoints() throws DatabaseException {
+
+        when(delegate_mock.applyTransaction(anyInt(), anyInt(), any(), anyInt()))
+                .thenThrow(new DatabaseException("Error applying transaction", null));
+        when(delegate_mock.getActivityTotals(any(), any(), any())).thenReturn(List.of());
+
+        assertThrows(DatabaseException.class, () ->
+                dashboard_manager.applyTransaction(1, 150, TransactionType.DEPOSIT, 50));
+
+        //When a write fails, it should still be finished, so a checkpoint can run
+        assertTrue(activity.checkpoint(delegate_mock));
+    }
+}
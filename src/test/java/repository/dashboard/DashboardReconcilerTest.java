@@ -0,0 +1,70 @@
+package repository.dashboard;
+
+import model.transaction.ActivityTotals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+import repository.search.BalanceIndexDatabaseManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class DashboardReconcilerTest {
+
+    private BalanceIndexDatabaseManager balance_manager_mock;
+    private ActivityCounters activity;
+    private DatabaseManager db_manager_mock;
+    private DashboardReconciler reconciler;
+
+    @BeforeEach
+    public void setUp() {
+
+        balance_manager_mock = mock(BalanceIndexDatabaseManager.class);
+        activity = new ActivityCounters();
+        db_manager_mock = mock(DatabaseManager.class);
+        reconciler = new DashboardReconciler(balance_manager_mock, activity, db_manager_mock);
+    }
+
+
+    @Test
+    public void test_reconcile_should_rebuild_the_balance_index_and_checkpoint_the_activity() throws DatabaseException {
+
+        when(db_manager_mock.getActivityTotals(any(), any(), any())).thenReturn(List.of(
+                new ActivityTotals(LocalDate.now(), 1, 2, 300, 0, 0)));
+
+        //When reconcile() is called, the index should be rebuilt and today's figures taken from the database
+        assertTrue(reconciler.reconcile());
+        verify(balance_manager_mock).rebuild();
+        assertEquals(300, activity.today().deposit_total());
+        assertNotNull(activity.getCheckpointAt());
+    }
+
+    @Test
+    public void test_reconcile_when_write_in_flight_should_count_a_skipped_checkpoint() throws DatabaseException {
+
+        activity.begin();
+
+        //When a transaction is committing, the index should still be rebuilt but the checkpoint skipped
+        assertFalse(reconciler.reconcile());
+        verify(balance_manager_mock).rebuild();
+        assertEquals(1, reconciler.getSkippedCheckpoints());
+    }
+
+    @Test
+    public void test_start_when_database_fails_should_count_the_failed_attempts() throws DatabaseException {
+
+        when(balance_manager_mock.rebuild()).thenThrow(new DatabaseException("Error scanning accounts", null));
+
+        reconciler.start(10);
+
+        //When the scan keeps failing, the background thread should keep counting the attempts
+        verify(balance_manager_mock, timeout(2_000).atLeast(2)).rebuild();
+        reconciler.close();
+        assertTrue(reconciler.getFailedAttempts() >= 1);
+    }
+}
@@ -0,0 +1,110 @@
+package repository.eventsource;
+
+import model.transaction.TransactionType;
+import model.user.Administrator;
+import model.user.Customer;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountStateTest {
+
+    private static AccountEvent created(int account_num, int balance) {
+
+        return new AccountEvent(1, AccountEventType.ACCOUNT_CREATED, account_num, 0, balance, "john_doe", "hash",
+                "John Doe", "Active", "Customer", 1_000);
+    }
+
+    private static AccountEvent transaction(AccountEventType type, int amount, int balance, long recorded_at) {
+
+        return new AccountEvent(2, type, 7, amount, balance, null, null, null, null, null, recorded_at);
+    }
+
+    @Test
+    public void test_fold_when_account_is_created_should_return_its_opening_state() {
+
+        AccountState state = AccountState.fold(null, created(7, 500));
+
+        //When an account is created, its state should hold every field of the event and no activity
+        assertEquals(new AccountState(7, "john_doe", "hash", "John Doe", 500, "Active", "Customer",
+                List.of()), state);
+    }
+
+    @Test
+    public void test_fold_when_deposit_and_withdrawal_follow_should_track_balance_and_activity_newest_first() {
+
+        AccountState state = AccountState.fold(null, created(7, 500));
+        state = AccountState.fold(state, transaction(AccountEventType.DEPOSITED, 100, 600, 2_000));
+        state = AccountState.fold(state, transaction(AccountEventType.WITHDRAWN, 50, 550, 3_000));
+
+        //When money moves, the balance should be the one the latest event left, and the withdrawal listed first
+        assertEquals(550, state.balance());
+        assertEquals(2, state.recent_activity().size());
+        assertEquals(TransactionType.WITHDRAWAL, state.recent_activity().get(0).type());
+        assertEquals(550, state.recent_activity().get(0).balance_after());
+        assertEquals(TransactionType.DEPOSIT, state.recent_activity().get(1).type());
+    }
+
+    @Test
+    public void test_fold_when_activity_is_full_should_keep_only_the_newest() {
+
+        AccountState state = AccountState.fold(null, created(7, 0));
+        for (int i = 1; i <= DatabaseManager.RECENT_ACTIVITY_LIMIT + 2; i++) {
+
+            state = AccountState.fold(state, transaction(AccountEventType.DEPOSITED, i, i, i));
+        }
+
+        //When there are more transactions than the limit, the oldest ones should fall off
+        assertEquals(DatabaseManager.RECENT_ACTIVITY_LIMIT, state.recent_activity().size());
+        assertEquals(DatabaseManager.RECENT_ACTIVITY_LIMIT + 2, state.recent_activity().get(0).amount());
+    }
+
+    @Test
+    public void test_fold_when_info_is_updated_should_change_only_the_given_fields() {
+
+        AccountState state = AccountState.fold(null, created(7, 500));
+        state = AccountState.fold(state, new AccountEvent(2, AccountEventType.INFO_UPDATED, 7, 0, 0, null, null,
+                "Jane Doe", "Disabled", null, 2_000));
+
+        //When only the holder and status are in the event, the login, pin and balance should stay as they were
+        assertEquals("Jane Doe", state.holder());
+        assertEquals("Disabled", state.status());
+        assertEquals("john_doe", state.login());
+        assertEquals("hash", state.pin());
+        assertEquals(500, state.balance());
+    }
+
+    @Test
+    public void test_fold_when_account_is_deleted_should_return_null() {
+
+        AccountState state = AccountState.fold(null, created(7, 500));
+
+        //When the account is deleted, it should no longer have a state
+        assertNull(AccountState.fold(state, new AccountEvent(2, AccountEventType.ACCOUNT_DELETED, 7, 0, 0, null,
+                null, null, null, null, 2_000)));
+    }
+
+    @Test
+    public void test_fold_when_account_does_not_exist_should_ignore_the_event() {
+
+        //When a deposit names an account with no state, nothing should be created
+        assertNull(AccountState.fold(null, transaction(AccountEventType.DEPOSITED, 100, 100, 2_000)));
+    }
+
+    @Test
+    public void test_toUser_when_role_is_customer_or_admin_should_return_matching_user() {
+
+        AccountState customer = AccountState.fold(null, created(7, 500));
+        AccountState admin = new AccountState(1, "admin", "hash", null, 0, null, "Admin", List.of());
+
+        //When converted, customers should carry their account and administrators should not
+        Customer user = assertInstanceOf(Customer.class, customer.toUser());
+        assertEquals(7, user.getAccount().getAccountNumber());
+        assertEquals(500, user.getAccount().getBalance());
+        assertInstanceOf(Administrator.class, admin.toUser());
+        assertFalse(admin.isCustomer());
+    }
+}
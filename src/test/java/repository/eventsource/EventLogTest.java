@@ -0,0 +1,144 @@
+package repository.eventsource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventLogTest {
+
+    @TempDir
+    Path directory;
+
+    private EventLog open(List<AccountEvent> tail) throws IOException {
+
+        return new EventLog(directory.resolve("events.log"), 0, 0, tail::add, () -> 5_000);
+    }
+
+    @Test
+    public void test_append_when_log_is_reopened_should_return_every_event_in_order() throws IOException {
+
+        try (EventLog log = open(new ArrayList<>())) {
+
+            log.append(AccountEventType.ACCOUNT_CREATED, 7, 0, 500, "john_doe", "hash", "John Doe", "Active",
+                    "Customer");
+            log.append(AccountEventType.DEPOSITED, 7, 100, 600, null, null, null, null, null);
+        }
+
+        List<AccountEvent> tail = new ArrayList<>();
+        try (EventLog log = open(tail)) {
+
+            //When reopened, both events should be read back with their sequences, fields and time
+            assertEquals(List.of(
+                    new AccountEvent(1, AccountEventType.ACCOUNT_CREATED, 7, 0, 500, "john_doe", "hash", "John Doe",
+                            "Active", "Customer", 5_000),
+                    new AccountEvent(2, AccountEventType.DEPOSITED, 7, 100, 600, null, null, null, null, null,
+                            5_000)), tail);
+            assertEquals(2, log.getLastSequence());
+            assertEquals(Files.size(directory.resolve("events.log")), log.getPosition());
+        }
+    }
+
+    @Test
+    public void test_constructor_when_starting_from_a_position_should_read_only_the_events_after_it()
+            throws IOException {
+
+        long position;
+        try (EventLog log = open(new ArrayList<>())) {
+
+            log.append(AccountEventType.DEPOSITED, 7, 100, 600, null, null, null, null, null);
+            position = log.getPosition();
+            log.append(AccountEventType.WITHDRAWN, 7, 50, 550, null, null, null, null, null);
+        }
+
+        List<AccountEvent> tail = new ArrayList<>();
+        try (EventLog log = new EventLog(directory.resolve("events.log"), position, 1, tail::add)) {
+
+            //When a snapshot covers the first event, only the second should be read, and sequences carry on
+            assertEquals(1, tail.size());
+            assertEquals(2, tail.get(0).sequence());
+            assertEquals(3, log.append(AccountEventType.DEPOSITED, 7, 10, 560, null, null, null, null, null)
+                    .sequence());
+        }
+    }
+
+    @Test
+    public void test_constructor_when_last_entry_is_torn_should_cut_it_off() throws IOException {
+
+        long position;
+        try (EventLog log = open(new ArrayList<>())) {
+
+            log.append(AccountEventType.DEPOSITED, 7, 100, 600, null, null, null, null, null);
+            position = log.getPosition();
+            log.append(AccountEventType.WITHDRAWN, 7, 50, 550, null, null, null, null, null);
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve("events.log"), StandardOpenOption.WRITE)) {
+
+            channel.truncate(channel.size() - 3);
+        }
+
+        List<AccountEvent> tail = new ArrayList<>();
+        try (EventLog log = open(tail)) {
+
+            //When the power went during the second write, only the first event should stand
+            assertEquals(1, tail.size());
+            assertEquals(position, Files.size(directory.resolve("events.log")));
+            assertEquals(2, log.append(AccountEventType.WITHDRAWN, 7, 50, 550, null, null, null, null, null)
+                    .sequence());
+        }
+    }
+
+    @Test
+    public void test_constructor_when_an_entry_fails_its_checksum_should_stop_there() throws IOException {
+
+        long position;
+        try (EventLog log = open(new ArrayList<>())) {
+
+            log.append(AccountEventType.DEPOSITED, 7, 100, 600, null, null, null, null, null);
+            position = log.getPosition();
+            log.append(AccountEventType.WITHDRAWN, 7, 50, 550, null, null, null, null, null);
+        }
+        byte[] bytes = Files.readAllBytes(directory.resolve("events.log"));
+        bytes[(int) position + 20] ^= 0x01;
+        Files.write(directory.resolve("events.log"), bytes);
+
+        List<AccountEvent> tail = new ArrayList<>();
+        try (EventLog log = open(tail)) {
+
+            //When the second entry's bytes are damaged, it should be dropped
+            assertEquals(1, tail.size());
+            assertEquals(1, log.getLastSequence());
+        }
+    }
+
+    @Test
+    public void test_constructor_when_log_is_shorter_than_the_snapshot_should_throw_IOException() {
+
+        //When the snapshot says more of the log was written than there is, the log has been damaged
+        assertThrows(IOException.class, () -> new EventLog(directory.resolve("events.log"), 100, 3, event -> { }));
+    }
+
+    @Test
+    public void test_decode_when_event_is_encoded_should_return_the_same_event() {
+
+        AccountEvent event = new AccountEvent(9, AccountEventType.INFO_UPDATED, 7, 0, 0, "jöhn", null, "Jöhn Dœ",
+                null, null, 12_345);
+        byte[] bytes = EventLog.encode(event).array();
+        int length = bytes.length - 2 * Integer.BYTES;
+        int crc = ByteBuffer.wrap(bytes, Integer.BYTES + length, Integer.BYTES).getInt();
+
+        //When encoded and decoded, non-ASCII text and missing fields should survive
+        assertEquals(event, EventLog.decode(Arrays.copyOfRange(bytes, Integer.BYTES, bytes.length),
+                length, crc));
+    }
+}
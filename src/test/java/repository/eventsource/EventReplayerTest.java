@@ -0,0 +1,116 @@
+package repository.eventsource;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventReplayerTest {
+
+    private static List<AccountEvent> history(int accounts, int transactions_each) {
+
+        //Every account is created with 1000, then deposited to once per round, so its balance ends at
+        //1000 + 1 + 2 + ... + transactions_each
+        List<AccountEvent> events = new ArrayList<>();
+        long sequence = 0;
+        for (int account_num = 1; account_num <= accounts; account_num++) {
+
+            events.add(new AccountEvent(++sequence, AccountEventType.ACCOUNT_CREATED, account_num, 0, 1_000,
+                    "user" + account_num, "hash", "Holder", "Active", "Customer", sequence));
+        }
+
+        int[] balances = new int[accounts + 1];
+        for (int round = 1; round <= transactions_each; round++) {
+
+            for (int account_num = 1; account_num <= accounts; account_num++) {
+
+                balances[account_num] += round;
+                events.add(new AccountEvent(++sequence, AccountEventType.DEPOSITED, account_num, round,
+                        1_000 + balances[account_num], null, null, null, null, null, sequence));
+            }
+        }
+
+        return events;
+    }
+
+    @Test
+    public void test_replay_when_events_are_many_should_apply_them_in_parallel_with_the_same_result()
+            throws InterruptedIOException {
+
+        List<AccountEvent> events = history(100, 50);
+        Map<Integer, AccountState> serial = new ConcurrentHashMap<>();
+        Map<Integer, AccountState> parallel = new ConcurrentHashMap<>();
+
+        assertEquals(1, new EventReplayer(1).replay(events, serial));
+        int partitions = new EventReplayer(4).replay(events, parallel);
+
+        //When split over 4 threads, every account should end exactly as it does on one
+        assertEquals(4, partitions);
+        assertEquals(serial, parallel);
+        assertEquals(100, parallel.size());
+        assertEquals(1_000 + 50 * 51 / 2, parallel.get(37).balance());
+    }
+
+    @Test
+    public void test_replay_when_events_are_few_should_apply_them_on_the_calling_thread()
+            throws InterruptedIOException {
+
+        List<AccountEvent> events = history(3, 2);
+        Map<Integer, AccountState> states = new ConcurrentHashMap<>();
+
+        //When there are fewer events than are worth starting threads for, one partition should be used
+        assertEquals(1, new EventReplayer(8).replay(events, states));
+        assertEquals(1_003, states.get(2).balance());
+    }
+
+    @Test
+    public void test_replay_when_account_is_deleted_should_remove_its_state() throws InterruptedIOException {
+
+        List<AccountEvent> events = new ArrayList<>(history(2, 1));
+        events.add(new AccountEvent(5, AccountEventType.ACCOUNT_DELETED, 2, 0, 0, null, null, null, null, null, 5));
+        Map<Integer, AccountState> states = new ConcurrentHashMap<>();
+
+        new EventReplayer(2).replay(events, states);
+
+        //When the last event of an account deletes it, the account should be gone
+        assertTrue(states.containsKey(1));
+        assertFalse(states.containsKey(2));
+    }
+
+    @Test
+    public void test_replay_when_states_exist_should_continue_from_them() throws InterruptedIOException {
+
+        Map<Integer, AccountState> states = new ConcurrentHashMap<>();
+        states.put(7, new AccountState(7, "john_doe", "hash", "John Doe", 500, "Active", "Customer", List.of()));
+
+        new EventReplayer(2).replay(List.of(new AccountEvent(10, AccountEventType.WITHDRAWN, 7, 100, 400, null,
+                null, null, null, null, 10)), states);
+
+        //When a snapshot's state is there already, the tail should be applied on top of it
+        assertEquals(400, states.get(7).balance());
+        assertEquals("john_doe", states.get(7).login());
+    }
+
+    @Test
+    public void test_partitionOf_when_account_numbers_differ_should_spread_them_over_every_partition() {
+
+        EventReplayer replayer = new EventReplayer(4);
+
+        //When accounts are numbered one after another, they should land in each partition in turn
+        assertEquals(1, replayer.partitionOf(1));
+        assertEquals(0, replayer.partitionOf(4));
+        assertEquals(3, replayer.partitionOf(7));
+    }
+
+    @Test
+    public void test_constructor_when_thread_count_is_zero_should_throw_IllegalArgumentException() {
+
+        //When no threads are allowed, the replayer should refuse to be created
+        assertThrows(IllegalArgumentException.class, () -> new EventReplayer(0));
+    }
+}
@@ -0,0 +1,490 @@
+package repository.eventsource;
+
+import model.account.Account;
+import model.account.AccountLimits;
+import model.account.NewAccount;
+import model.session.SessionContext;
+import model.transaction.ActivitySummary;
+import model.transaction.ActivityTotals;
+import model.transaction.RollupPeriod;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+import model.user.Administrator;
+import model.user.Customer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repository.AccountKeyConsumer;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class EventSourcedDatabaseManagerTest {
+
+    @TempDir
+    Path directory;
+
+    private EventSourcedDatabaseManager store;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+
+        store = new EventSourcedDatabaseManager(directory, 2);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+
+        store.close();
+    }
+
+    private EventSourcedDatabaseManager reopen() throws IOException {
+
+        store.close();
+        store = new EventSourcedDatabaseManager(directory, 2);
+        return store;
+    }
+
+    @Test
+    public void test_createNewAccount_when_login_is_new_should_number_it_and_find_it_by_login() throws DatabaseException {
+
+        int account_num = store.createNewAccount("john_doe", "hash-12345", "John Doe", 500, "Active");
+
+        //When created, the account should get the first number and be found by its login, with the pin hash it was
+        //given kept as it is
+        assertEquals(1, account_num);
+        Customer customer = assertInstanceOf(Customer.class, store.getUser("john_doe"));
+        assertEquals(500, customer.getAccount().getBalance());
+        assertEquals("hash-12345", customer.getPin());
+        assertNull(store.getUser("jane_doe"));
+        assertTrue(store.loginExists("john_doe"));
+    }
+
+    @Test
+    public void test_createNewAccount_when_login_is_taken_should_return_minus_two() throws DatabaseException {
+
+        store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+
+        //When the login is in use, like a duplicate key, -2 should be returned and nothing created
+        assertEquals(-2, store.createNewAccount("john_doe", "11111", "Other", 0, "Active"));
+        assertEquals(-2, store.createNewAccount(1, "jane_doe", "11111", "Jane Doe", 0, "Active"));
+        assertEquals(1, store.getAccountCount());
+    }
+
+    @Test
+    public void test_createNewAccounts_when_numbers_are_assigned_should_return_each_result() throws DatabaseException {
+
+        store.createNewAccount(20, "taken", "12345", "Taken", 0, "Active");
+
+        int[] results = store.createNewAccounts(List.of(
+                new NewAccount(10, "a", "11111", "A", 100, "Active"),
+                new NewAccount(11, "taken", "22222", "B", 200, "Active"),
+                new NewAccount(12, "c", "33333", "C", 300, "Active")));
+
+        //When one login is taken, only that account should fail
+        assertArrayEquals(new int[] {10, -2, 12}, results);
+        assertEquals(300, store.getAccount(12).getBalance());
+    }
+
+    @Test
+    public void test_applyTransaction_when_funds_are_short_should_return_minus_one_and_record_nothing()
+            throws DatabaseException {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        long events = store.getLastSequence();
+
+        //When the withdrawal is larger than the stored balance, it should be refused
+        assertEquals(-1, store.applyTransaction(account_num, -100, TransactionType.WITHDRAWAL, 600));
+        assertEquals(events, store.getLastSequence());
+        assertEquals(500, store.getAccount(account_num).getBalance());
+    }
+
+    @Test
+    public void test_applyTransaction_when_caller_balance_is_stale_should_use_the_stored_balance()
+            throws DatabaseException {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        store.applyTransaction(account_num, 600, TransactionType.DEPOSIT, 100);
+
+        //When the caller still thinks the balance is 500, the withdrawal should be taken from 600
+        assertEquals(550, store.applyTransaction(account_num, 450, TransactionType.WITHDRAWAL, 50));
+        assertEquals(550, store.getAccount(account_num).getBalance());
+    }
+
+    @Test
+    public void test_applyTransaction_when_account_does_not_exist_should_return_minus_two_and_record_nothing()
+            throws DatabaseException {
+
+        long appended = store.getAppendedEvents();
+
+        //When there is no such account, the transaction should be refused with -2 rather than be recorded
+        assertEquals(-2, store.applyTransaction(99, 100, TransactionType.DEPOSIT, 100));
+        assertEquals(appended, store.getAppendedEvents());
+    }
+
+    @Test
+    public void test_loadSession_when_customer_logs_in_should_return_recent_activity_newest_first()
+            throws DatabaseException {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        store.applyTransaction(account_num, 600, TransactionType.DEPOSIT, 100);
+        store.applyTransaction(account_num, 580, TransactionType.WITHDRAWAL, 20);
+
+        SessionContext session = store.loadSession("john_doe");
+
+        //When loaded, the session should hold the account, the default limits and both transactions
+        assertEquals(580, ((Customer) session.getUser()).getAccount().getBalance());
+        assertEquals(AccountLimits.DEFAULT, session.getLimits());
+        assertEquals(List.of(TransactionType.WITHDRAWAL, TransactionType.DEPOSIT),
+                session.getRecentActivity().stream().map(TransactionRecord::type).toList());
+        assertNull(store.loadSession("nobody"));
+    }
+
+    @Test
+    public void test_loadSession_when_administrator_logs_in_should_return_session_without_account()
+            throws DatabaseException {
+
+        store.createAdministrator("admin", "99999");
+
+        SessionContext session = store.loadSession("admin");
+
+        //When an administrator logs in, there should be no activity and no limits
+        assertInstanceOf(Administrator.class, session.getUser());
+        assertTrue(session.getRecentActivity().isEmpty());
+        assertNull(session.getLimits());
+        assertTrue(store.getAllAccounts().isEmpty());
+    }
+
+    @Test
+    public void test_updateAccountInfo_when_fields_are_given_should_change_only_those() throws DatabaseException {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+
+        assertTrue(store.updateAccountInfo(account_num, "", "Disabled", "johnny", "54321"));
+
+        //When the status, login and pin change, the holder should stay and the account should be found by its new
+        //login, with the new pin
+        Account account = store.getAccount(account_num);
+        assertEquals("John Doe", account.getHolderName());
+        assertEquals("Disabled", account.getStatus());
+        assertFalse(store.loginExists("john_doe"));
+        assertEquals("54321", store.getUser("johnny").getPin());
+        assertFalse(store.updateAccountInfo(99, "X", "", "", ""));
+    }
+
+    @Test
+    public void test_replacePin_when_stored_pin_is_unchanged_should_replace_it_and_survive_a_restart()
+            throws DatabaseException, IOException {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+
+        //When the checked pin is still the stored one, it should be replaced, and the change replayed on restart;
+        //a stale stored pin or an unknown login should change nothing
+        assertTrue(store.replacePin("john_doe", "12345", "hash-12345"));
+        assertFalse(store.replacePin("john_doe", "12345", "other-hash"));
+        assertFalse(store.replacePin("nobody", "12345", "hash-12345"));
+        assertEquals("hash-12345", reopen().getUser(account_num).getPin());
+    }
+
+    @Test
+    public void test_updateAccountInfo_when_login_belongs_to_another_account_should_throw_DatabaseException()
+            throws DatabaseException {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        store.createNewAccount("jane_doe", "12345", "Jane Doe", 500, "Active");
+
+        //When the new login is taken, nothing should change
+        assertThrows(DatabaseException.class,
+                () -> store.updateAccountInfo(account_num, "", "", "jane_doe", ""));
+        assertTrue(store.loginExists("john_doe"));
+    }
+
+    @Test
+    public void test_deleteAccount_when_account_exists_should_remove_it_and_never_reuse_its_number()
+            throws DatabaseException {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        store.deleteAccount(account_num);
+
+        //When deleted, the account and its login should be gone, and the next account should get a new number
+        assertNull(store.getAccount(account_num));
+        assertFalse(store.loginExists("john_doe"));
+        assertEquals(account_num + 1, store.createNewAccount("john_doe", "12345", "John Doe", 0, "Active"));
+    }
+
+    @Test
+    public void test_createNewAccount_when_number_belonged_to_a_deleted_account_should_return_minus_two()
+            throws Exception {
+
+        int account_num = store.createNewAccount(5, "john_doe", "12345", "John Doe", 500, "Active");
+        store.deleteAccount(account_num);
+
+        //When the deleted account's number is asked for again, it should be refused, before and after restarts
+        //from the snapshot and from the log alone
+        assertEquals(-2, store.createNewAccount(5, "jane_doe", "12345", "Jane Doe", 0, "Active"));
+        reopen();
+        assertEquals(-2, store.createNewAccount(5, "jane_doe", "12345", "Jane Doe", 0, "Active"));
+        store.close();
+        Files.delete(directory.resolve(EventSourcedDatabaseManager.SNAPSHOT_FILE));
+        store = new EventSourcedDatabaseManager(directory, 2);
+        assertEquals(-2, store.createNewAccount(5, "jane_doe", "12345", "Jane Doe", 0, "Active"));
+    }
+
+    @Test
+    public void test_getAllAccounts_when_accounts_exist_should_return_customers_in_number_order()
+            throws DatabaseException {
+
+        store.createNewAccount(30, "c", "12345", "C", 0, "Active");
+        store.createNewAccount(10, "a", "12345", "A", 0, "Active");
+        store.createAdministrator("admin", "99999");
+
+        //When listed, the customers should come back by account number, without the administrator
+        assertEquals(List.of(10, 30),
+                store.getAllAccounts().stream().map(Account::getAccountNumber).toList());
+
+        List<Integer> scanned = new ArrayList<>();
+        assertEquals(3, store.scanAccountKeys((account_num, login) -> scanned.add(account_num)));
+
+        //When the customer accounts are scanned, the administrator should be left out
+        List<String> holders = new ArrayList<>();
+        assertEquals(2, store.scanAccounts((account_num, holder, balance, status) -> holders.add(holder)));
+        assertEquals(List.of("A", "C"), holders.stream().sorted().toList());
+    }
+
+    @Test
+    public void test_constructor_when_reopened_without_snapshot_should_replay_the_whole_log() throws Exception {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        store.applyTransaction(account_num, 600, TransactionType.DEPOSIT, 100);
+
+        //Closing writes a snapshot; removing it forces a full replay
+        store.close();
+        Files.delete(directory.resolve(EventSourcedDatabaseManager.SNAPSHOT_FILE));
+        store = new EventSourcedDatabaseManager(directory, 2);
+
+        //When there is no snapshot, every event should be replayed to the same state
+        assertEquals(2, store.getReplayResult().events_replayed());
+        assertEquals(0, store.getReplayResult().snapshot_sequence());
+        assertEquals(600, store.getAccount(account_num).getBalance());
+        assertNotNull(store.getUser("john_doe"));
+    }
+
+    @Test
+    public void test_constructor_when_snapshot_exists_should_replay_only_the_tail() throws Exception {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        store.applyTransaction(account_num, 600, TransactionType.DEPOSIT, 100);
+        store.snapshot();
+        store.applyTransaction(account_num, 550, TransactionType.WITHDRAWAL, 50);
+
+        //A crash: the store is not closed, so no final snapshot is written
+        EventSourcedDatabaseManager restarted = new EventSourcedDatabaseManager(directory, 2);
+
+        //When restarted, only the withdrawal after the snapshot should be replayed
+        assertEquals(2, restarted.getReplayResult().snapshot_sequence());
+        assertEquals(1, restarted.getReplayResult().snapshot_accounts());
+        assertEquals(1, restarted.getReplayResult().events_replayed());
+        assertEquals(550, restarted.getAccount(account_num).getBalance());
+        assertEquals(2, restarted.createNewAccount("jane_doe", "12345", "Jane Doe", 0, "Active"));
+    }
+
+    @Test
+    public void test_constructor_when_snapshot_is_damaged_should_replay_the_whole_log() throws Exception {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        store.applyTransaction(account_num, 600, TransactionType.DEPOSIT, 100);
+        store.close();
+        Files.write(directory.resolve(EventSourcedDatabaseManager.SNAPSHOT_FILE), new byte[] {1, 2, 3});
+
+        store = new EventSourcedDatabaseManager(directory, 2);
+
+        //When the snapshot can't be read, the log alone should be enough to rebuild every account
+        assertEquals(2, store.getReplayResult().events_replayed());
+        assertEquals(600, store.getAccount(account_num).getBalance());
+    }
+
+    @Test
+    public void test_close_when_store_is_reopened_should_replay_nothing() throws Exception {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        store.applyTransaction(account_num, 600, TransactionType.DEPOSIT, 100);
+
+        reopen();
+
+        //When the store was closed cleanly, its final snapshot should cover every event
+        assertEquals(0, store.getReplayResult().events_replayed());
+        assertEquals(2, store.getSnapshotSequence());
+        assertEquals(600, store.getAccount(account_num).getBalance());
+        assertEquals(1, store.loadSession("john_doe").getRecentActivity().size());
+    }
+
+    @Test
+    public void test_snapshot_when_nothing_changed_should_not_write_again() throws IOException, DatabaseException {
+
+        store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        store.snapshot();
+
+        store.snapshot();
+
+        //When no event was appended since, the existing snapshot should stand
+        assertEquals(1, store.getSnapshotsWritten());
+    }
+
+    @Test
+    public void test_getTransactionHistory_when_range_is_given_should_return_account_transactions_newest_first()
+            throws DatabaseException {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        int other = store.createNewAccount("jane_doe", "12345", "Jane Doe", 500, "Active");
+        store.applyTransaction(account_num, 600, TransactionType.DEPOSIT, 100);
+        store.applyTransaction(other, 600, TransactionType.DEPOSIT, 100);
+        store.applyTransaction(account_num, 580, TransactionType.WITHDRAWAL, 20);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<TransactionRecord> history = store.getTransactionHistory(account_num, now.minusDays(1),
+                now.plusDays(1));
+
+        //When read, only this account's two transactions should come back, the withdrawal first
+        assertEquals(2, history.size());
+        assertEquals(TransactionType.WITHDRAWAL, history.get(0).type());
+        assertEquals(580, history.get(0).balance_after());
+        assertTrue(store.getTransactionHistory(account_num, now.plusDays(1), now.plusDays(2)).isEmpty());
+    }
+
+    @Test
+    public void test_getActivitySummaries_when_account_has_transactions_should_add_them_up_per_period()
+            throws DatabaseException {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        store.applyTransaction(account_num, 600, TransactionType.DEPOSIT, 100);
+        store.applyTransaction(account_num, 650, TransactionType.DEPOSIT, 50);
+        store.applyTransaction(account_num, 630, TransactionType.WITHDRAWAL, 20);
+
+        LocalDate today = LocalDate.now();
+        List<ActivitySummary> summaries = store.getActivitySummaries(account_num, RollupPeriod.MONTH,
+                today.withDayOfMonth(1), today.withDayOfMonth(1).plusMonths(1));
+
+        //When summed for this month, there should be one period with both deposits, the withdrawal and the
+        //balance the last one left
+        assertEquals(List.of(new ActivitySummary(today.withDayOfMonth(1), 2, 150, 1, 20, 630)), summaries);
+        assertTrue(store.getActivitySummaries(account_num, RollupPeriod.DAY, today.plusDays(1),
+                today.plusDays(2)).isEmpty());
+    }
+
+    @Test
+    public void test_getActivityTotals_when_accounts_have_transactions_should_count_active_accounts()
+            throws DatabaseException {
+
+        int first = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        int second = store.createNewAccount("jane_doe", "12345", "Jane Doe", 500, "Active");
+        store.createNewAccount("idle", "12345", "Idle", 500, "Active");
+        store.applyTransaction(first, 600, TransactionType.DEPOSIT, 100);
+        store.applyTransaction(first, 590, TransactionType.WITHDRAWAL, 10);
+        store.applyTransaction(second, 530, TransactionType.DEPOSIT, 30);
+
+        LocalDate today = LocalDate.now();
+        List<ActivityTotals> totals = store.getActivityTotals(RollupPeriod.DAY, today, today.plusDays(1));
+
+        //When totalled for today, two accounts should be active, with both deposits and the withdrawal
+        assertEquals(List.of(new ActivityTotals(today, 2, 2, 130, 1, 10)), totals);
+    }
+
+    @Test
+    public void test_getTransactionHistory_when_restarted_from_snapshot_and_tail_should_keep_history_and_rollups()
+            throws Exception {
+
+        int account_num = store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        int deleted = store.createNewAccount("jane_doe", "12345", "Jane Doe", 500, "Active");
+        store.applyTransaction(account_num, 600, TransactionType.DEPOSIT, 100);
+        store.applyTransaction(deleted, 530, TransactionType.DEPOSIT, 30);
+        store.deleteAccount(deleted);
+        store.snapshot();
+        store.applyTransaction(account_num, 550, TransactionType.WITHDRAWAL, 50);
+
+        //A crash: the deposits are in the snapshot, and the withdrawal only in the log
+        EventSourcedDatabaseManager restarted = new EventSourcedDatabaseManager(directory, 2);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = LocalDate.now();
+
+        //When restarted, the history and rollups should cover both, and the deleted account's deposit should stay
+        assertEquals(List.of(TransactionType.WITHDRAWAL, TransactionType.DEPOSIT),
+                restarted.getTransactionHistory(account_num, now.minusDays(1), now.plusDays(1)).stream()
+                        .map(TransactionRecord::type).toList());
+        assertEquals(List.of(new ActivitySummary(today, 1, 100, 1, 50, 550)),
+                restarted.getActivitySummaries(account_num, RollupPeriod.DAY, today, today.plusDays(1)));
+        assertEquals(List.of(new ActivityTotals(today, 2, 2, 130, 1, 50)),
+                restarted.getActivityTotals(RollupPeriod.DAY, today, today.plusDays(1)));
+        assertEquals(1, restarted.getTransactionHistory(deleted, now.minusDays(1), now.plusDays(1)).size());
+    }
+
+    @Test
+    public void test_importFrom_when_source_has_accounts_should_copy_them_with_their_hashes() throws Exception {
+
+        DatabaseManager source = mock(DatabaseManager.class);
+        when(source.scanAccountKeys(any())).thenAnswer(invocation -> {
+
+            AccountKeyConsumer consumer = invocation.getArgument(0);
+            consumer.accept(1, "admin");
+            consumer.accept(7, "john_doe");
+            return 2;
+        });
+        when(source.getUser(1)).thenReturn(new Administrator("admin", "hash-99999"));
+        when(source.getUser(7)).thenReturn(new Customer("john_doe", "hash-12345",
+                new Account(7, "John Doe", 500, "Active")));
+
+        //When imported, both accounts should keep their numbers, balances and pins
+        assertEquals(2, store.importFrom(source));
+        assertEquals(500, store.getAccount(7).getBalance());
+        assertInstanceOf(Administrator.class, store.getUser("admin"));
+        assertEquals("hash-12345", store.getUser("john_doe").getPin());
+
+        //Importing again changes nothing
+        assertEquals(0, store.importFrom(source));
+    }
+
+    @Test
+    public void test_getAccounts_and_updateAccounts_when_some_missing_should_skip_them_and_survive_a_restart() throws Exception {
+
+        store.createNewAccount("john_doe", "12345", "John Doe", 500, "Active");
+        store.createNewAccount("jane_doe", "54321", "Jane Doe", 50, "Active");
+
+        //When two accounts and a missing one are disabled, only the two should be updated
+        assertArrayEquals(new int[] {1, 0, 1}, store.updateAccounts(new int[] {1, 7, 2}, "", "Disabled"));
+
+        //When the store is reopened, the change should have come back from the log with the balances kept
+        Map<Integer, Account> accounts = reopen().getAccounts(new int[] {1, 2, 7});
+        assertEquals(2, accounts.size());
+        assertEquals("Disabled", accounts.get(1).getStatus());
+        assertEquals("Jane Doe", accounts.get(2).getHolderName());
+        assertEquals(50, accounts.get(2).getBalance());
+    }
+
+    @Test
+    public void test_reserveBlock_when_called_should_hand_out_numbers_after_every_account() throws DatabaseException {
+
+        store.createNewAccount(41, "john_doe", "12345", "John Doe", 0, "Active");
+
+        //When a block is reserved, it should start past the highest account, and the next block past it
+        assertEquals(42, store.reserveBlock(100));
+        assertEquals(142, store.reserveBlock(100));
+    }
+
+    @Test
+    public void test_enableSubBalances_when_called_should_throw_DatabaseException() {
+
+        //When a MySQL-only feature is asked for, it should fail as it would without a database
+        assertThrows(DatabaseException.class, () -> store.enableSubBalances(1, 4));
+    }
+}
@@ -0,0 +1,94 @@
+package repository.eventsource;
+
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StateSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private static StateSnapshot sample() {
+
+        TransactionRecord deposit = new TransactionRecord(TransactionType.DEPOSIT, 100, 600,
+                LocalDateTime.of(2025, 3, 1, 9, 0));
+        TransactionRecord withdrawal = new TransactionRecord(TransactionType.WITHDRAWAL, 50, 550,
+                LocalDateTime.of(2025, 3, 4, 10, 15, 30, 123_000_000));
+        AccountState customer = new AccountState(7, "john_doe", "hash", "John Doe", 550, "Active", "Customer",
+                List.of(withdrawal));
+        AccountState admin = new AccountState(1, "admin", "hash", null, 0, null, "Admin", List.of());
+
+        //Account 4 was deleted, and its transaction stays in the ledger
+        return new StateSnapshot(42, 4_096, 9, List.of(customer, admin), Set.of(4),
+                Map.of(7, List.of(deposit, withdrawal), 4, List.of(deposit)));
+    }
+
+    @Test
+    public void test_read_when_snapshot_was_written_should_return_the_same_states() throws IOException {
+
+        Path path = directory.resolve("accounts.snapshot");
+        sample().write(path);
+
+        //When written and read back, every field should survive, including an administrator's missing ones, the
+        //retired numbers and the ledger
+        assertEquals(sample(), StateSnapshot.read(path));
+        assertFalse(Files.exists(directory.resolve("accounts.snapshot.tmp")));
+    }
+
+    @Test
+    public void test_read_when_no_snapshot_exists_should_return_empty_snapshot() throws IOException {
+
+        //When no snapshot was ever written, the whole log is to be replayed
+        assertSame(StateSnapshot.EMPTY, StateSnapshot.read(directory.resolve("missing.snapshot")));
+    }
+
+    @Test
+    public void test_read_when_snapshot_is_damaged_should_throw_IOException() throws IOException {
+
+        Path path = directory.resolve("accounts.snapshot");
+        sample().write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 10] ^= 0x01;
+        Files.write(path, bytes);
+
+        //When a byte of the states has changed, the checksum should catch it
+        IOException error = assertThrows(IOException.class, () -> StateSnapshot.read(path));
+        assertTrue(error.getMessage().contains("checksum"));
+    }
+
+    @Test
+    public void test_read_when_snapshot_is_truncated_should_throw_IOException() throws IOException {
+
+        Path path = directory.resolve("accounts.snapshot");
+        sample().write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 20));
+
+        //When the file ends early, an IOException should be thrown
+        IOException error = assertThrows(IOException.class, () -> StateSnapshot.read(path));
+        assertTrue(error.getMessage().contains("truncated"));
+    }
+
+    @Test
+    public void test_read_when_file_is_not_a_snapshot_should_throw_IOException() throws IOException {
+
+        Path path = directory.resolve("accounts.snapshot");
+        Files.write(path, "account_num,balance\n7,550\n".getBytes());
+
+        //When the file does not start with the snapshot header, an IOException should be thrown
+        assertThrows(IOException.class, () -> StateSnapshot.read(path));
+    }
+}
@@ -0,0 +1,20 @@
+package repository.exception;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitOpenExceptionTest {
+
+    @Test
+    public void test_circuit_open_exception_constructor() {
+
+        String error_message = "The database is currently unavailable";
+
+        CircuitOpenException exception = new CircuitOpenException(error_message);
+
+        assertEquals(error_message, exception.getMessage());
+        assertNull(exception.getCause());
+        assertInstanceOf(DatabaseException.class, exception);
+    }
+}
@@ -0,0 +1,20 @@
+package repository.exception;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LimitExceededExceptionTest {
+
+    @Test
+    public void test_limit_exceeded_exception_constructor() {
+
+        String error_message = "The database is busy";
+
+        LimitExceededException exception = new LimitExceededException(error_message);
+
+        assertEquals(error_message, exception.getMessage());
+        assertNull(exception.getCause());
+        assertInstanceOf(DatabaseException.class, exception);
+    }
+}
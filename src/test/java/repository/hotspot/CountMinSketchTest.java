@@ -0,0 +1,85 @@
+package repository.hotspot;
+
+import org.junit.jupiter.api.Test;
+import repository.bloom.CountingBloomFilter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CountMinSketchTest {
+
+    @Test
+    public void test_constructor_when_sized_by_error_rate_should_use_e_over_epsilon_by_ln_1_over_delta() {
+
+        CountMinSketch sketch = new CountMinSketch(0.01, 0.01);
+
+        //When sized for 1% error with 1% failure odds, there should be 272 counters a row and 5 rows
+        assertEquals(272, sketch.getWidth());
+        assertEquals(5, sketch.getDepth());
+        assertEquals(272 * 5 * Long.BYTES, sketch.getMemoryBytes());
+    }
+
+    @Test
+    public void test_constructor_when_error_rate_is_out_of_range_should_throw_IllegalArgumentException() {
+
+        //When the error rate or failure probability is not between 0 and 1, an IllegalArgumentException is thrown
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(0.01, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(0, 5));
+    }
+
+    @Test
+    public void test_estimate_when_many_keys_added_should_never_undercount_and_stay_within_error_bound() {
+
+        CountMinSketch sketch = new CountMinSketch(0.01, 0.01);
+
+        //Account n is used n times, for accounts 1 to 200: 20,100 uses in all
+        for (int account_num = 1; account_num <= 200; account_num++) {
+
+            sketch.add(CountingBloomFilter.hash(account_num), account_num);
+        }
+
+        //When estimated, no account should come out below its true count, and none more than 1% of all uses above
+        for (int account_num = 1; account_num <= 200; account_num++) {
+
+            long estimate = sketch.estimate(CountingBloomFilter.hash(account_num));
+            assertTrue(estimate >= account_num, "account " + account_num + ": " + estimate);
+            assertTrue(estimate <= account_num + 201, "account " + account_num + ": " + estimate);
+        }
+    }
+
+    @Test
+    public void test_subtract_when_slice_removed_should_take_its_counts_out() {
+
+        CountMinSketch window = new CountMinSketch(100, 4);
+        CountMinSketch slice = new CountMinSketch(100, 4);
+        long hash = CountingBloomFilter.hash(7);
+
+        window.add(hash, 5);
+        slice.add(hash, 3);
+        window.add(hash, 3);
+        window.subtract(slice);
+
+        //When a slice is subtracted, only the counts added outside it should remain
+        assertEquals(5, window.estimate(hash));
+    }
+
+    @Test
+    public void test_subtract_when_sizes_differ_should_throw_IllegalArgumentException() {
+
+        //When the sketches differ in size, their counters do not line up, so an IllegalArgumentException is thrown
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(100, 4).subtract(new CountMinSketch(50, 4)));
+    }
+
+    @Test
+    public void test_clear_when_called_should_reset_every_counter() {
+
+        CountMinSketch sketch = new CountMinSketch(100, 4);
+        long hash = CountingBloomFilter.hash(7);
+        sketch.add(hash, 9);
+
+        sketch.clear();
+
+        //When cleared, the sketch should estimate 0 for a key it had counted
+        assertEquals(0, sketch.estimate(hash));
+    }
+}
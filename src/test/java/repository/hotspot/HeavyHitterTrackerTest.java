@@ -0,0 +1,141 @@
+package repository.hotspot;
+
+import model.account.HotAccount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class HeavyHitterTrackerTest {
+
+    private Clock clock_mock;
+
+    @BeforeEach
+    public void setUp() {
+
+        //The clock starts at 0 and only moves when a test moves it
+        clock_mock = mock(Clock.class);
+        when(clock_mock.millis()).thenReturn(0L);
+    }
+
+
+    private static void recordTimes(HeavyHitterTracker tracker, int account_num, int times) {
+
+        for (int i = 0; i < times; i++) {
+
+            tracker.record(account_num);
+        }
+    }
+
+    @Test
+    public void test_constructor_when_arguments_are_invalid_should_throw_IllegalArgumentException() {
+
+        //When k or the slice count is below 1, or a slice would be shorter than 1ms, an IllegalArgumentException
+        //should be thrown
+        assertThrows(IllegalArgumentException.class, () -> new HeavyHitterTracker(0, 0.01, 0.01, 60_000, 6, clock_mock));
+        assertThrows(IllegalArgumentException.class, () -> new HeavyHitterTracker(3, 0.01, 0.01, 60_000, 0, clock_mock));
+        assertThrows(IllegalArgumentException.class, () -> new HeavyHitterTracker(3, 0.01, 0.01, 5, 6, clock_mock));
+    }
+
+    @Test
+    public void test_getTopK_when_accounts_used_unevenly_should_return_the_k_hottest_first() {
+
+        HeavyHitterTracker tracker = new HeavyHitterTracker(3, 0.001, 0.01, 60_000, 6, clock_mock);
+
+        //Five accounts with clearly different use counts, recorded interleaved as they would arrive
+        for (int round = 0; round < 50; round++) {
+
+            recordTimes(tracker, 1, 1);
+            recordTimes(tracker, 2, round < 40 ? 1 : 0);
+            recordTimes(tracker, 3, round < 30 ? 1 : 0);
+            recordTimes(tracker, 4, round < 5 ? 1 : 0);
+            recordTimes(tracker, 5, round < 2 ? 1 : 0);
+        }
+
+        //When the top 3 are read, they should be accounts 1, 2 and 3 with their counts, hottest first
+        assertEquals(List.of(new HotAccount(1, 50), new HotAccount(2, 40), new HotAccount(3, 30)), tracker.getTopK());
+        assertEquals(127, tracker.getRecordedCount());
+    }
+
+    @Test
+    public void test_getTopK_when_a_cool_account_heats_up_should_replace_the_coolest() {
+
+        HeavyHitterTracker tracker = new HeavyHitterTracker(2, 0.001, 0.01, 60_000, 6, clock_mock);
+        recordTimes(tracker, 1, 10);
+        recordTimes(tracker, 2, 5);
+
+        recordTimes(tracker, 3, 8);
+
+        //When account 3 passes account 2, account 2 should leave the top 2
+        assertEquals(List.of(new HotAccount(1, 10), new HotAccount(3, 8)), tracker.getTopK());
+    }
+
+    @Test
+    public void test_getTopK_when_slices_expire_should_count_only_the_window() {
+
+        HeavyHitterTracker tracker = new HeavyHitterTracker(3, 0.001, 0.01, 60_000, 6, clock_mock);
+        recordTimes(tracker, 1, 10);
+
+        //Half the window later, account 2 is used
+        when(clock_mock.millis()).thenReturn(30_000L);
+        recordTimes(tracker, 2, 4);
+        recordTimes(tracker, 1, 1);
+
+        //When the slice holding account 1's first uses falls out of the window, only its later use should remain
+        when(clock_mock.millis()).thenReturn(60_000L);
+        assertEquals(List.of(new HotAccount(2, 4), new HotAccount(1, 1)), tracker.getTopK());
+        assertEquals(1, tracker.estimate(1));
+    }
+
+    @Test
+    public void test_getTopK_when_the_whole_window_has_passed_should_be_empty() {
+
+        HeavyHitterTracker tracker = new HeavyHitterTracker(3, 0.001, 0.01, 60_000, 6, clock_mock);
+        recordTimes(tracker, 1, 10);
+
+        //When nothing was recorded for longer than the window, no account should be hot
+        when(clock_mock.millis()).thenReturn(500_000L);
+        assertTrue(tracker.getTopK().isEmpty());
+        assertEquals(0, tracker.estimate(1));
+    }
+
+    @Test
+    public void test_record_when_called_from_many_threads_should_count_every_use() throws InterruptedException {
+
+        HeavyHitterTracker tracker = new HeavyHitterTracker(2, 0.001, 0.01, 60_000, 6, clock_mock);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int thread = 0; thread < 8; thread++) {
+
+            executor.submit(() -> {
+
+                recordTimes(tracker, 1, 1_000);
+                recordTimes(tracker, 2, 500);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        //When 8 threads record at once, no use should be lost
+        assertEquals(List.of(new HotAccount(1, 8_000), new HotAccount(2, 4_000)), tracker.getTopK());
+        assertEquals(12_000, tracker.getRecordedCount());
+    }
+
+    @Test
+    public void test_getWindowMs_and_getMemoryBytes_should_describe_the_slices() {
+
+        HeavyHitterTracker tracker = new HeavyHitterTracker(3, 0.01, 0.01, 60_000, 6, clock_mock);
+
+        //When there are 6 slices and the window's sum, 7 sketches of 272 by 5 counters should be held
+        assertEquals(60_000, tracker.getWindowMs());
+        assertEquals(7L * 272 * 5 * Long.BYTES, tracker.getMemoryBytes());
+        assertEquals(3, tracker.getK());
+    }
+}
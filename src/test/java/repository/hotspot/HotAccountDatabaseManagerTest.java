@@ -0,0 +1,97 @@
+package repository.hotspot;
+
+import model.account.Account;
+import model.account.AccountLimits;
+import model.account.HotAccount;
+import model.session.SessionContext;
+import model.transaction.TransactionType;
+import model.user.Administrator;
+import model.user.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class HotAccountDatabaseManagerTest {
+
+    private DatabaseManager delegate_mock;
+    private HeavyHitterTracker tracker;
+    private HotAccountDatabaseManager hot_manager;
+
+    @BeforeEach
+    public void setUp() {
+
+        delegate_mock = mock(DatabaseManager.class);
+        tracker = new HeavyHitterTracker(5, 0.001, 0.01, 60 * 60 * 1000, 12);
+        hot_manager = new HotAccountDatabaseManager(delegate_mock, tracker);
+    }
+
+
+    @Test
+    public void test_getAccount_when_called_should_record_the_account_and_return_delegate_result() throws DatabaseException {
+
+        Account account = new Account(7, "John Doe", 100, "Active");
+        when(delegate_mock.getAccount(7)).thenReturn(account);
+
+        //When getAccount() is called, the delegate's account should be returned and the use recorded
+        assertSame(account, hot_manager.getAccount(7));
+        assertEquals(List.of(new HotAccount(7, 1)), tracker.getTopK());
+    }
+
+    @Test
+    public void test_applyTransaction_when_delegate_throws_should_still_record_the_account() throws DatabaseException {
+
+        when(delegate_mock.applyTransaction(7, 150, TransactionType.DEPOSIT, 50))
+                .thenThrow(new DatabaseException("Error applying transaction", new SQLException()));
+
+        //When the call fails, it was load all the same, so it should still be counted
+        assertThrows(DatabaseException.class, () -> hot_manager.applyTransaction(7, 150, TransactionType.DEPOSIT, 50));
+        assertEquals(1, tracker.estimate(7));
+    }
+
+    @Test
+    public void test_loadSession_when_customer_logs_in_should_record_their_account() throws DatabaseException {
+
+        Customer customer = new Customer("jane_doe", "12345", new Account(4, "Jane Doe", 50, "Active"));
+        SessionContext session = new SessionContext(customer, List.of(), new AccountLimits(500, 200), 10);
+        when(delegate_mock.loadSession("jane_doe")).thenReturn(session);
+
+        //When a customer's session is loaded, the account the login belongs to should be recorded
+        assertSame(session, hot_manager.loadSession("jane_doe"));
+        assertEquals(1, tracker.estimate(4));
+    }
+
+    @Test
+    public void test_getUser_by_login_when_administrator_or_unknown_should_record_nothing() throws DatabaseException {
+
+        when(delegate_mock.getUser("admin")).thenReturn(new Administrator("admin", "00000"));
+        when(delegate_mock.getUser("nobody")).thenReturn(null);
+
+        hot_manager.getUser("admin");
+        hot_manager.getUser("nobody");
+
+        //When the login is an administrator's or matches nothing, there is no account to record
+        assertEquals(0, tracker.getRecordedCount());
+    }
+
+    @Test
+    public void test_applyJournalEntries_when_called_should_record_every_entry() throws DatabaseException {
+
+        List<JournalEntry> entries = List.of(new JournalEntry(1, 3, TransactionType.DEPOSIT, 10, 1_000),
+                new JournalEntry(2, 3, TransactionType.WITHDRAWAL, 5, 1_001),
+                new JournalEntry(3, 8, TransactionType.DEPOSIT, 20, 1_002));
+
+        hot_manager.applyJournalEntries("terminal-1", entries);
+
+        //When a batch is replayed, each entry should count against its own account
+        assertEquals(List.of(new HotAccount(3, 2), new HotAccount(8, 1)), tracker.getTopK());
+        verify(delegate_mock).applyJournalEntries("terminal-1", entries);
+    }
+}
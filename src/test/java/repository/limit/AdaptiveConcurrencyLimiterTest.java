@@ -0,0 +1,113 @@
+package repository.limit;
+
+import org.junit.jupiter.api.Test;
+import repository.WorkPriority;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    public void test_acquire_when_batch_share_is_full_should_reject_batch_but_admit_customer() throws InterruptedException {
+
+        //A limit of 4 lets batch work fill 2 slots, admin work 3, and customers all 4
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 100, 0);
+
+        assertTrue(limiter.acquire(WorkPriority.BATCH));
+        assertTrue(limiter.acquire(WorkPriority.BATCH));
+
+        //When batch work has used its share, more batch work should be turned away while customers still get in
+        assertFalse(limiter.acquire(WorkPriority.BATCH));
+        assertTrue(limiter.acquire(WorkPriority.ADMIN));
+        assertFalse(limiter.acquire(WorkPriority.ADMIN));
+        assertTrue(limiter.acquire(WorkPriority.CUSTOMER));
+        assertFalse(limiter.acquire(WorkPriority.CUSTOMER));
+
+        assertEquals(4, limiter.getInFlight());
+        assertEquals(1, limiter.getRejectedCount(WorkPriority.BATCH));
+        assertEquals(3.0 / 7.0, limiter.getRejectionRate(), 0.0001);
+    }
+
+    @Test
+    public void test_release_when_latency_exceeds_target_should_cut_limit() throws InterruptedException {
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 20, 100, 0);
+
+        limiter.acquire(WorkPriority.CUSTOMER);
+        limiter.release(SLOW, false);
+
+        //When a call is slower than the target, the limit should be cut by 10%
+        assertEquals(9, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void test_release_when_overloaded_repeatedly_should_not_drop_below_minimum() throws InterruptedException {
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(5, 3, 20, 100, 0);
+
+        for (int call = 0; call < 50; call++) {
+
+            limiter.acquire(WorkPriority.CUSTOMER);
+            limiter.release(FAST, true);
+        }
+
+        //When every call fails from overload, the limit should bottom out at the minimum
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    public void test_release_when_busy_and_fast_should_grow_limit_up_to_maximum() throws InterruptedException {
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 4, 100, 0);
+
+        //Both slots are kept busy, and every call finishes well under the target
+        for (int call = 0; call < 200; call++) {
+
+            limiter.acquire(WorkPriority.CUSTOMER);
+            limiter.acquire(WorkPriority.CUSTOMER);
+            limiter.release(FAST, false);
+            limiter.release(FAST, false);
+        }
+
+        //When the limit is in use and calls stay fast, it should rise, but never past the maximum
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void test_acquire_when_customer_waits_should_be_admitted_once_slot_frees() throws InterruptedException {
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 100, 5000);
+        limiter.acquire(WorkPriority.CUSTOMER);
+
+        //Another thread finishes its call shortly after the customer starts waiting
+        Thread releaser = new Thread(() -> {
+
+            try {
+
+                Thread.sleep(50);
+            }
+            catch (InterruptedException ignored) {
+
+                return;
+            }
+            limiter.release(FAST, false);
+        });
+        releaser.start();
+
+        //When a slot frees up within the wait time, the waiting customer should be admitted
+        assertTrue(limiter.acquire(WorkPriority.CUSTOMER));
+        releaser.join();
+    }
+
+    @Test
+    public void test_constructor_when_initial_limit_below_minimum_should_throw_IllegalArgumentException() {
+
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(1, 2, 10, 100, 0));
+    }
+}
@@ -0,0 +1,67 @@
+package repository.limit;
+
+import model.account.Account;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseManager;
+import repository.WorkPriority;
+import repository.exception.DatabaseException;
+import repository.exception.LimitExceededException;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConcurrencyLimitedDatabaseManagerTest {
+
+    private DatabaseManager delegate_mock;
+    private AdaptiveConcurrencyLimiter limiter;
+    private ConcurrencyLimitedDatabaseManager limited_manager;
+
+    @BeforeEach
+    public void setUp() {
+
+        delegate_mock = mock(DatabaseManager.class);
+        limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 1000, 0);
+        limited_manager = new ConcurrencyLimitedDatabaseManager(delegate_mock, limiter);
+    }
+
+
+    @Test
+    public void test_getAccount_when_admitted_should_return_account_and_free_slot() throws DatabaseException {
+
+        Account account = new Account(1, "John Doe", 100, "Active");
+        when(delegate_mock.getAccount(1)).thenReturn(account);
+
+        //When a call is admitted, the delegate's result should be returned and the slot given back afterwards
+        assertEquals(account, limited_manager.getAccount(1));
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, limiter.getAdmittedCount(WorkPriority.ADMIN));
+    }
+
+    @Test
+    public void test_getAllAccounts_when_batch_share_is_full_should_throw_LimitExceededException() throws InterruptedException {
+
+        //Batch work already holds both of its slots
+        limiter.acquire(WorkPriority.BATCH);
+        limiter.acquire(WorkPriority.BATCH);
+
+        //When an export arrives, it should be turned away without reaching the database
+        assertThrows(LimitExceededException.class, () -> limited_manager.getAllAccounts());
+        verifyNoInteractions(delegate_mock);
+    }
+
+    @Test
+    public void test_updateAccountBalance_when_connection_fails_should_cut_limit_and_free_slot() throws DatabaseException {
+
+        doThrow(new DatabaseException("Error updating account balance",
+                new SQLException("Communications link failure", "08S01", 0)))
+                .when(delegate_mock).updateAccountBalance(1, 50);
+
+        //When a call fails with a transient error, it should count as overload and lower the limit
+        assertThrows(DatabaseException.class, () -> limited_manager.updateAccountBalance(1, 50));
+        assertEquals(3, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,90 @@
+package repository.migration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class IndexDefinitionTest {
+
+    private Connection connection_mock;
+    private PreparedStatement statement_mock;
+    private ResultSet result_set_mock;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+
+        connection_mock = mock(Connection.class);
+        statement_mock = mock(PreparedStatement.class);
+        result_set_mock = mock(ResultSet.class);
+
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+    }
+
+
+    @Test
+    public void test_toDdl_when_unique_should_build_create_unique_index_statement() {
+
+        IndexDefinition index = new IndexDefinition("accounts", "ux_accounts_login", true, List.of("login"));
+
+        //When toDdl() is called, a CREATE UNIQUE INDEX statement over the columns should be returned
+        assertEquals("CREATE UNIQUE INDEX ux_accounts_login ON accounts (login)", index.toDdl());
+    }
+
+    @Test
+    public void test_matches_when_existing_index_starts_with_columns_should_return_true() {
+
+        IndexDefinition index = new IndexDefinition("transactions", "ix", false, List.of("account_num"));
+
+        //When matches() is given a longer index that starts with the same column, it should be accepted
+        assertTrue(index.matches(false, List.of("account_num", "created_at")));
+        assertFalse(index.matches(false, List.of("created_at", "account_num")));
+    }
+
+    @Test
+    public void test_matches_when_unique_required_should_reject_non_unique_or_wider_index() {
+
+        IndexDefinition index = new IndexDefinition("accounts", "ux_accounts_login", true, List.of("login"));
+
+        //When matches() is given an index that does not guarantee login is unique, it should be rejected
+        assertTrue(index.matches(true, List.of("login")));
+        assertFalse(index.matches(false, List.of("login")));
+        assertFalse(index.matches(true, List.of("login", "pin")));
+    }
+
+    @Test
+    public void test_existsIn_when_equivalent_index_has_another_name_should_return_true() throws SQLException {
+
+        //When information_schema is read, a single-column unique key on login named "login" is to be returned
+        when(result_set_mock.next()).thenReturn(true, true, false);
+        when(result_set_mock.getString("INDEX_NAME")).thenReturn("PRIMARY", "login");
+        when(result_set_mock.getString("COLUMN_NAME")).thenReturn("account_num", "LOGIN");
+        when(result_set_mock.getInt("NON_UNIQUE")).thenReturn(0, 0);
+
+        IndexDefinition index = new IndexDefinition("accounts", "ux_accounts_login", true, List.of("login"));
+
+        //When existsIn() is called, the hand-made unique key should count as the required index
+        assertTrue(index.existsIn(connection_mock));
+        verify(statement_mock).setString(1, "accounts");
+    }
+
+    @Test
+    public void test_existsIn_when_no_matching_index_should_return_false() throws SQLException {
+
+        //When information_schema is read, only the primary key is to be returned
+        when(result_set_mock.next()).thenReturn(true, false);
+        when(result_set_mock.getString("INDEX_NAME")).thenReturn("PRIMARY");
+        when(result_set_mock.getString("COLUMN_NAME")).thenReturn("account_num");
+        when(result_set_mock.getInt("NON_UNIQUE")).thenReturn(0);
+
+        IndexDefinition index = new IndexDefinition("accounts", "ux_accounts_login", true, List.of("login"));
+
+        //When existsIn() is called, false should be returned
+        assertFalse(index.existsIn(connection_mock));
+    }
+}
@@ -0,0 +1,202 @@
+package repository.migration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseConnection;
+import repository.SchemaLayout;
+import repository.exception.DatabaseException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LayoutSwitchTest {
+
+    private Connection connection_mock;
+    private PreparedStatement lock_statement_mock;
+    private PreparedStatement setting_statement_mock;
+    private PreparedStatement record_statement_mock;
+    private PreparedStatement highest_statement_mock;
+    private ResultSet setting_result_mock;
+    private ResultSet highest_result_mock;
+    private List<String> updates_run;
+    private LayoutSwitch layout_switch;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+
+        connection_mock = mock(Connection.class);
+        lock_statement_mock = mock(PreparedStatement.class);
+        setting_statement_mock = mock(PreparedStatement.class);
+        record_statement_mock = mock(PreparedStatement.class);
+        highest_statement_mock = mock(PreparedStatement.class);
+        setting_result_mock = mock(ResultSet.class);
+        highest_result_mock = mock(ResultSet.class);
+        updates_run = new ArrayList<>();
+
+        //The lock is to be granted, and each statement is given its own mock
+        ResultSet lock_result_mock = mock(ResultSet.class);
+        when(lock_result_mock.next()).thenReturn(true);
+        when(lock_result_mock.getInt(1)).thenReturn(1);
+        when(lock_statement_mock.executeQuery()).thenReturn(lock_result_mock);
+        when(connection_mock.prepareStatement("SELECT GET_LOCK(?, ?)")).thenReturn(lock_statement_mock);
+        when(connection_mock.prepareStatement("SELECT RELEASE_LOCK(?)")).thenReturn(mock(PreparedStatement.class));
+        when(connection_mock.prepareStatement(startsWith("SELECT value FROM schema_settings")))
+                .thenReturn(setting_statement_mock);
+        when(setting_statement_mock.executeQuery()).thenReturn(setting_result_mock);
+        when(connection_mock.prepareStatement(startsWith("INSERT INTO schema_settings")))
+                .thenReturn(record_statement_mock);
+        when(connection_mock.prepareStatement(startsWith("SELECT GREATEST"))).thenReturn(highest_statement_mock);
+        when(highest_statement_mock.executeQuery()).thenReturn(highest_result_mock);
+
+        //The copy statements record their SQL and bounds, and report 3 rows each
+        for (String prefix : List.of("DELETE FROM", "INSERT INTO account", "INSERT INTO accounts")) {
+
+            when(connection_mock.prepareStatement(startsWith(prefix))).thenAnswer(invocation -> {
+
+                String sql = invocation.getArgument(0);
+                PreparedStatement update_mock = mock(PreparedStatement.class);
+                List<Integer> bounds = new ArrayList<>();
+                doAnswer(set -> bounds.add(set.getArgument(1))).when(update_mock).setInt(anyInt(), anyInt());
+                when(update_mock.executeUpdate()).thenAnswer(run -> {
+
+                    updates_run.add(sql.substring(0, sql.indexOf(' ', 12)) + " " + bounds);
+                    return 3;
+                });
+                return update_mock;
+            });
+        }
+
+        layout_switch = new LayoutSwitch(new DatabaseConnection("jdbc:mysql://localhost/atm", "user", "pass"), 100) {
+
+            @Override
+            public Connection getConnection() {
+
+                return connection_mock;
+            }
+        };
+    }
+
+    private void recordedLayout(SchemaLayout layout) throws SQLException {
+
+        when(setting_result_mock.next()).thenReturn(layout != null);
+        if (layout != null) {
+
+            when(setting_result_mock.getString("value")).thenReturn(layout.name());
+        }
+    }
+
+    private void fingerprints(long single_checksum, long split_checksum) throws SQLException {
+
+        //Both layouts are to hold 2 accounts, with the given checksums
+        for (String source : List.of("accounts a", "account_profiles a LEFT JOIN")) {
+
+            PreparedStatement query_mock = mock(PreparedStatement.class);
+            ResultSet result_mock = mock(ResultSet.class);
+            when(connection_mock.prepareStatement(contains("FROM " + source))).thenReturn(query_mock);
+            when(query_mock.executeQuery()).thenReturn(result_mock);
+            when(result_mock.next()).thenReturn(true);
+            when(result_mock.getLong("row_count")).thenReturn(2L);
+            when(result_mock.getLong("checksum")).thenReturn(source.equals("accounts a") ? single_checksum :
+                    split_checksum);
+        }
+    }
+
+
+    @Test
+    public void test_apply_when_layout_already_recorded_should_copy_nothing() throws DatabaseException, SQLException {
+
+        recordedLayout(SchemaLayout.SPLIT);
+
+        //When the recorded layout is the terminal's, nothing should be copied or recorded
+        assertEquals(-1, layout_switch.apply(SchemaLayout.SPLIT));
+        assertTrue(updates_run.isEmpty());
+        verify(record_statement_mock, never()).executeUpdate();
+        verify(connection_mock).prepareStatement("SELECT RELEASE_LOCK(?)");
+    }
+
+    @Test
+    public void test_apply_when_switching_to_split_should_clear_then_copy_in_batches_and_record() throws DatabaseException, SQLException {
+
+        //SINGLE_TABLE is to be recorded, and the highest account number is 150, so there are two batches
+        recordedLayout(SchemaLayout.SINGLE_TABLE);
+        when(highest_result_mock.next()).thenReturn(true);
+        when(highest_result_mock.getInt("highest")).thenReturn(150);
+
+        int copied = layout_switch.apply(SchemaLayout.SPLIT);
+
+        //When apply() is called, every batch should be cleared before any is copied, profiles before balances,
+        //and SPLIT should be recorded only afterwards
+        assertEquals(List.of("DELETE FROM account_profiles [0, 100]", "DELETE FROM account_profiles [100, 151]",
+                "INSERT INTO account_profiles [0, 100]", "INSERT INTO account_balances [0, 100]",
+                "INSERT INTO account_profiles [100, 151]", "INSERT INTO account_balances [100, 151]"), updates_run);
+        assertEquals(6, copied);
+        verify(connection_mock, times(4)).commit();
+        verify(record_statement_mock).setString(2, "SPLIT");
+        verify(record_statement_mock).executeUpdate();
+    }
+
+    @Test
+    public void test_apply_when_switching_back_to_single_table_should_copy_from_the_split_tables() throws DatabaseException, SQLException {
+
+        recordedLayout(SchemaLayout.SPLIT);
+        when(highest_result_mock.next()).thenReturn(true);
+        when(highest_result_mock.getInt("highest")).thenReturn(50);
+
+        layout_switch.apply(SchemaLayout.SINGLE_TABLE);
+
+        //When apply() is called, the accounts table should be cleared and filled from the split tables
+        assertEquals(List.of("DELETE FROM accounts [0, 51]", "INSERT INTO accounts [0, 51]"), updates_run);
+        verify(record_statement_mock).setString(2, "SINGLE_TABLE");
+    }
+
+    @Test
+    public void test_apply_when_copy_fails_should_roll_back_and_not_record_the_layout() throws SQLException {
+
+        recordedLayout(SchemaLayout.SINGLE_TABLE);
+        when(highest_result_mock.next()).thenReturn(true);
+        when(highest_result_mock.getInt("highest")).thenReturn(50);
+        when(connection_mock.prepareStatement(startsWith("INSERT INTO account_profiles")))
+                .thenThrow(new SQLException("Lock wait timeout exceeded"));
+
+        //When a batch fails, it should be rolled back and the old layout should stay recorded
+        assertThrows(DatabaseException.class, () -> layout_switch.apply(SchemaLayout.SPLIT));
+        verify(connection_mock).rollback();
+        verify(record_statement_mock, never()).executeUpdate();
+    }
+
+    @Test
+    public void test_apply_when_nothing_recorded_and_layouts_match_should_record_without_copying() throws DatabaseException, SQLException {
+
+        recordedLayout(null);
+        fingerprints(77, 77);
+
+        //When both layouts hold the same accounts, the terminal's layout should simply be recorded
+        assertEquals(-1, layout_switch.apply(SchemaLayout.SPLIT));
+        assertTrue(updates_run.isEmpty());
+        verify(record_statement_mock).setString(2, "SPLIT");
+    }
+
+    @Test
+    public void test_apply_when_nothing_recorded_and_layouts_differ_should_refuse_to_start() throws SQLException {
+
+        recordedLayout(null);
+        fingerprints(77, 78);
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () ->
+                layout_switch.apply(SchemaLayout.SPLIT));
+
+        //When the layouts have diverged and neither is known to be current, nothing should be changed
+        assertTrue(exception.getMessage().contains("account tables differ"));
+        assertTrue(updates_run.isEmpty());
+        verify(record_statement_mock, never()).executeUpdate();
+        verify(connection_mock).prepareStatement("SELECT RELEASE_LOCK(?)");
+    }
+}
@@ -0,0 +1,110 @@
+package repository.migration;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MigrationTest {
+
+    @Test
+    public void test_createIndex_when_index_already_exists_should_not_run_ddl() throws SQLException {
+
+        Connection connection_mock = mock(Connection.class);
+        PreparedStatement statement_mock = mock(PreparedStatement.class);
+        ResultSet result_set_mock = mock(ResultSet.class);
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+
+        //When information_schema is read, the unique login index is to be found
+        when(result_set_mock.next()).thenReturn(true, false);
+        when(result_set_mock.getString("INDEX_NAME")).thenReturn("ux_accounts_login");
+        when(result_set_mock.getString("COLUMN_NAME")).thenReturn("login");
+        when(result_set_mock.getInt("NON_UNIQUE")).thenReturn(0);
+
+        Migration.createIndex(AtmSchema.ACCOUNTS_LOGIN).apply(connection_mock);
+
+        //When the step is applied again, no CREATE INDEX should be issued
+        verify(connection_mock, never()).createStatement();
+    }
+
+    @Test
+    public void test_createIndex_when_index_is_missing_should_create_it() throws SQLException {
+
+        Connection connection_mock = mock(Connection.class);
+        PreparedStatement statement_mock = mock(PreparedStatement.class);
+        ResultSet result_set_mock = mock(ResultSet.class);
+        Statement ddl_statement_mock = mock(Statement.class);
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(false);
+        when(connection_mock.createStatement()).thenReturn(ddl_statement_mock);
+
+        Migration.createIndex(AtmSchema.ACCOUNTS_LOGIN).apply(connection_mock);
+
+        //When the index is missing, its DDL should be executed
+        verify(ddl_statement_mock).execute("CREATE UNIQUE INDEX ux_accounts_login ON accounts (login)");
+    }
+
+    @Test
+    public void test_atm_schema_when_listed_should_have_unique_increasing_versions() {
+
+        //When the released migrations are listed, every version should be used once
+        for (List<Migration> migrations : List.of(AtmSchema.MIGRATIONS, AtmSchema.DIRECTORY_MIGRATIONS)) {
+
+            Set<Integer> versions = new HashSet<>();
+            for (Migration migration : migrations) {
+
+                assertTrue(versions.add(migration.version()));
+                assertFalse(migration.steps().isEmpty());
+            }
+        }
+        assertTrue(AtmSchema.REQUIRED_INDEXES.contains(AtmSchema.ACCOUNTS_LOGIN));
+    }
+
+    @Test
+    public void test_rollUpExistingLedger_when_ledger_spans_three_months_should_roll_up_one_month_at_a_time() throws SQLException {
+
+        Connection connection_mock = mock(Connection.class);
+        Statement statement_mock = mock(Statement.class);
+        ResultSet result_set_mock = mock(ResultSet.class);
+        PreparedStatement rollup_mock = mock(PreparedStatement.class);
+        when(connection_mock.createStatement()).thenReturn(statement_mock);
+        when(statement_mock.executeQuery(anyString())).thenReturn(result_set_mock);
+        when(connection_mock.prepareStatement(anyString())).thenReturn(rollup_mock);
+
+        //When the ledger is read, its rows are to run from mid November 2024 to early January 2025
+        when(result_set_mock.next()).thenReturn(true);
+        when(result_set_mock.getTimestamp("oldest")).thenReturn(Timestamp.valueOf("2024-11-15 10:00:00"));
+        when(result_set_mock.getTimestamp("newest")).thenReturn(Timestamp.valueOf("2025-01-03 09:30:00"));
+
+        AtmSchema.rollUpExistingLedger(connection_mock);
+
+        //When the backfill runs, each of the three months should get its own daily and monthly statement
+        verify(rollup_mock, times(6)).executeUpdate();
+        verify(rollup_mock).setTimestamp(1, Timestamp.valueOf("2024-11-01 00:00:00"));
+        verify(rollup_mock).setTimestamp(2, Timestamp.valueOf("2025-02-01 00:00:00"));
+        verify(rollup_mock).setDate(1, Date.valueOf("2025-01-01"));
+    }
+
+    @Test
+    public void test_rollUpExistingLedger_when_ledger_is_empty_should_roll_up_nothing() throws SQLException {
+
+        Connection connection_mock = mock(Connection.class);
+        Statement statement_mock = mock(Statement.class);
+        ResultSet result_set_mock = mock(ResultSet.class);
+        when(connection_mock.createStatement()).thenReturn(statement_mock);
+        when(statement_mock.executeQuery(anyString())).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true);
+
+        AtmSchema.rollUpExistingLedger(connection_mock);
+
+        //When there are no ledger rows, no rollup statement should be prepared
+        verify(connection_mock, never()).prepareStatement(anyString());
+    }
+}
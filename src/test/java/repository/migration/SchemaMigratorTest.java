@@ -0,0 +1,138 @@
+package repository.migration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseConnection;
+import repository.exception.DatabaseException;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SchemaMigratorTest {
+
+    private Connection connection_mock;
+    private Statement ddl_statement_mock;
+    private PreparedStatement lock_statement_mock;
+    private PreparedStatement versions_statement_mock;
+    private PreparedStatement record_statement_mock;
+    private ResultSet lock_result_mock;
+    private ResultSet versions_result_mock;
+    private List<String> steps_run;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+
+        connection_mock = mock(Connection.class);
+        ddl_statement_mock = mock(Statement.class);
+        lock_statement_mock = mock(PreparedStatement.class);
+        versions_statement_mock = mock(PreparedStatement.class);
+        record_statement_mock = mock(PreparedStatement.class);
+        lock_result_mock = mock(ResultSet.class);
+        versions_result_mock = mock(ResultSet.class);
+        steps_run = new ArrayList<>();
+
+        //Each statement the migrator prepares is given its own mock, so they can be checked separately
+        when(connection_mock.createStatement()).thenReturn(ddl_statement_mock);
+        when(connection_mock.prepareStatement("SELECT GET_LOCK(?, ?)")).thenReturn(lock_statement_mock);
+        when(connection_mock.prepareStatement("SELECT RELEASE_LOCK(?)")).thenReturn(mock(PreparedStatement.class));
+        when(connection_mock.prepareStatement("SELECT version FROM schema_migrations"))
+                .thenReturn(versions_statement_mock);
+        when(connection_mock.prepareStatement(startsWith("INSERT INTO schema_migrations")))
+                .thenReturn(record_statement_mock);
+        when(lock_statement_mock.executeQuery()).thenReturn(lock_result_mock);
+        when(versions_statement_mock.executeQuery()).thenReturn(versions_result_mock);
+    }
+
+    private SchemaMigrator migratorFor(List<IndexDefinition> required_indexes) {
+
+        List<Migration> migrations = List.of(
+                new Migration(2, "Second", List.of(connection -> steps_run.add("second"))),
+                new Migration(1, "First", List.of(connection -> steps_run.add("first"))));
+
+        return new SchemaMigrator(new DatabaseConnection("jdbc:mysql://localhost/atm", "user", "pass"),
+                migrations, required_indexes) {
+
+            @Override
+            public Connection getConnection() {
+
+                return connection_mock;
+            }
+        };
+    }
+
+
+    @Test
+    public void test_migrate_when_some_versions_applied_should_only_run_pending_migrations() throws DatabaseException, SQLException {
+
+        //When the lock is requested it is to be granted, and version 1 is to be recorded as applied already
+        when(lock_result_mock.next()).thenReturn(true);
+        when(lock_result_mock.getInt(1)).thenReturn(1);
+        when(versions_result_mock.next()).thenReturn(true, false);
+        when(versions_result_mock.getInt("version")).thenReturn(1);
+
+        List<MigrationResult> results = migratorFor(List.of()).migrate();
+
+        //When migrate() is called, only version 2 should run and be recorded, and the lock should be released
+        assertEquals(List.of("second"), steps_run);
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).applied());
+        assertTrue(results.get(1).applied());
+        verify(record_statement_mock).setInt(1, 2);
+        verify(record_statement_mock, times(1)).executeUpdate();
+        verify(connection_mock).prepareStatement("SELECT RELEASE_LOCK(?)");
+    }
+
+    @Test
+    public void test_migrate_when_nothing_applied_should_run_migrations_in_version_order() throws DatabaseException, SQLException {
+
+        //When the lock is requested it is to be granted, and no versions are to be recorded
+        when(lock_result_mock.next()).thenReturn(true);
+        when(lock_result_mock.getInt(1)).thenReturn(1);
+        when(versions_result_mock.next()).thenReturn(false);
+
+        migratorFor(List.of()).migrate();
+
+        //When migrate() is called, the migrations should run by version rather than by list position
+        assertEquals(List.of("first", "second"), steps_run);
+        verify(ddl_statement_mock).execute(startsWith("CREATE TABLE IF NOT EXISTS schema_migrations"));
+    }
+
+    @Test
+    public void test_migrate_when_lock_is_not_granted_should_throw_DatabaseException() throws SQLException {
+
+        //When the lock is requested, it is to time out
+        when(lock_result_mock.next()).thenReturn(true);
+        when(lock_result_mock.getInt(1)).thenReturn(0);
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> {
+
+            migratorFor(List.of()).migrate();
+        });
+
+        //When migrate() cannot get the lock, no migration should run
+        assertTrue(steps_run.isEmpty());
+        assertInstanceOf(SQLTimeoutException.class, exception.getCause());
+    }
+
+    @Test
+    public void test_verify_when_required_index_is_missing_should_throw_DatabaseException_naming_it() throws SQLException {
+
+        PreparedStatement index_statement_mock = mock(PreparedStatement.class);
+        ResultSet index_result_mock = mock(ResultSet.class);
+        when(connection_mock.prepareStatement(contains("information_schema"))).thenReturn(index_statement_mock);
+        when(index_statement_mock.executeQuery()).thenReturn(index_result_mock);
+        when(index_result_mock.next()).thenReturn(false);
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> {
+
+            migratorFor(List.of(AtmSchema.ACCOUNTS_LOGIN)).verify();
+        });
+
+        //When verify() finds no index on accounts.login, the error should name it
+        assertTrue(exception.getMessage().contains("accounts.ux_accounts_login"));
+    }
+}
@@ -0,0 +1,192 @@
+package repository.offline;
+
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class JournalReplayerTest {
+
+    @TempDir
+    Path directory;
+
+    private DatabaseManager target_mock;
+    private OfflineJournal journal;
+    private JournalReplayer replayer;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+
+        //Entries are replayed 2 at a time, and every entry is recorded at time 1,000
+        target_mock = mock(DatabaseManager.class);
+        journal = new OfflineJournal(directory, () -> 1_000);
+        replayer = new JournalReplayer(target_mock, journal, 2);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+
+        replayer.close();
+        journal.close();
+    }
+
+    private static ReplayOutcome[] applied(int count) {
+
+        ReplayOutcome[] outcomes = new ReplayOutcome[count];
+        Arrays.fill(outcomes, ReplayOutcome.APPLIED);
+        return outcomes;
+    }
+
+
+    @Test
+    public void test_replayPending_when_entries_waiting_should_replay_in_batches_and_acknowledge() throws Exception {
+
+        journal.append(1, TransactionType.DEPOSIT, 10);
+        journal.append(2, TransactionType.DEPOSIT, 20);
+        journal.append(3, TransactionType.WITHDRAWAL, 30);
+        when(target_mock.applyJournalEntries(eq(journal.getJournalId()), anyList()))
+                .thenAnswer(invocation -> applied(invocation.<List<?>>getArgument(1).size()));
+
+        //When the journal is replayed, every entry goes to the database in batches of 2, oldest first
+        assertEquals(3, replayer.replayPending());
+        verify(target_mock).applyJournalEntries(journal.getJournalId(), List.of(
+                new JournalEntry(1, 1, TransactionType.DEPOSIT, 10, 1_000),
+                new JournalEntry(2, 2, TransactionType.DEPOSIT, 20, 1_000)));
+        assertEquals(0, journal.getPendingCount());
+        assertEquals(3, replayer.getReplayedCount());
+        assertEquals(2, replayer.getBatchCount());
+        assertTrue(replayer.getReplayThroughput() > 0);
+    }
+
+    @Test
+    public void test_replayPending_when_database_refuses_entry_should_report_conflict_and_move_on() throws Exception {
+
+        journal.append(1, TransactionType.WITHDRAWAL, 500);
+        journal.append(2, TransactionType.DEPOSIT, 20);
+        when(target_mock.applyJournalEntries(eq(journal.getJournalId()), anyList()))
+                .thenReturn(new ReplayOutcome[] {ReplayOutcome.INSUFFICIENT_FUNDS, ReplayOutcome.APPLIED});
+
+        replayer.replayPending();
+
+        //When the database can't take an entry, it is reported as a conflict but not replayed again
+        assertEquals(1, replayer.getConflictCount());
+        JournalConflict conflict = replayer.getRecentConflicts().get(0);
+        assertEquals(1, conflict.entry().account_num());
+        assertEquals(ReplayOutcome.INSUFFICIENT_FUNDS, conflict.outcome());
+        assertEquals(0, journal.getPendingCount());
+    }
+
+    @Test
+    public void test_replayPending_when_database_fails_should_keep_entries_for_next_attempt() throws Exception {
+
+        journal.append(1, TransactionType.DEPOSIT, 10);
+        when(target_mock.applyJournalEntries(eq(journal.getJournalId()), anyList()))
+                .thenThrow(new DatabaseException("Database unreachable", null));
+
+        //When the database fails, the entries stay in the journal
+        assertThrows(DatabaseException.class, () -> replayer.replayPending());
+        assertEquals(1, journal.getPendingCount());
+        assertEquals(0, replayer.getReplayedCount());
+    }
+
+    @Test
+    public void test_start_when_entries_waiting_should_replay_them_in_background() throws Exception {
+
+        journal.append(1, TransactionType.DEPOSIT, 10);
+        when(target_mock.applyJournalEntries(eq(journal.getJournalId()), anyList())).thenReturn(applied(1));
+
+        replayer.start(10);
+
+        //When the background replayer runs, the journal is emptied without anyone asking
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (journal.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+
+            Thread.sleep(10);
+        }
+        assertEquals(0, journal.getPendingCount());
+    }
+
+    @Test
+    public void test_requestReplay_when_started_should_replay_before_the_interval() throws Exception {
+
+        journal.append(1, TransactionType.DEPOSIT, 10);
+        when(target_mock.applyJournalEntries(eq(journal.getJournalId()), anyList())).thenReturn(applied(1));
+
+        replayer.start(60_000);
+        replayer.requestReplay();
+
+        //When a replay is requested, the background thread runs it without waiting out the minute
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (journal.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+
+            Thread.sleep(10);
+        }
+        assertEquals(0, journal.getPendingCount());
+    }
+
+    @Test
+    public void test_requestReplay_when_not_started_should_do_nothing() throws Exception {
+
+        journal.append(1, TransactionType.DEPOSIT, 10);
+
+        //When there is no background thread, the entries wait for an explicit replay
+        replayer.requestReplay();
+        verify(target_mock, never()).applyJournalEntries(anyString(), anyList());
+        assertEquals(1, journal.getPendingCount());
+    }
+
+    @Test
+    public void test_constructor_when_batch_size_not_positive_should_throw() {
+
+        assertThrows(IllegalArgumentException.class, () -> new JournalReplayer(target_mock, journal, 0));
+    }
+
+    @Test
+    public void test_replayPending_when_two_terminals_replay_the_same_sequences_should_apply_both() throws Exception {
+
+        //The database claims entries by journal id and sequence, as offline_replays does
+        Set<String> claims = new HashSet<>();
+        when(target_mock.applyJournalEntries(anyString(), anyList())).thenAnswer(invocation -> {
+
+            List<JournalEntry> entries = invocation.getArgument(1);
+            ReplayOutcome[] outcomes = new ReplayOutcome[entries.size()];
+            for (int i = 0; i < outcomes.length; i++) {
+
+                outcomes[i] = claims.add(invocation.getArgument(0) + "/" + entries.get(i).sequence()) ?
+                        ReplayOutcome.APPLIED : ReplayOutcome.ALREADY_APPLIED;
+            }
+            return outcomes;
+        });
+
+        try (OfflineJournal other_journal = new OfflineJournal(directory.resolve("other-terminal"));
+             JournalReplayer other_replayer = new JournalReplayer(target_mock, other_journal, 2)) {
+
+            journal.append(1, TransactionType.DEPOSIT, 10);
+            other_journal.append(2, TransactionType.DEPOSIT, 20);
+            replayer.replayPending();
+            other_replayer.replayPending();
+
+            //When two terminals each replay their sequence 1, neither entry is taken for the other's
+            assertNotEquals(journal.getJournalId(), other_journal.getJournalId());
+            assertEquals(0, replayer.getConflictCount());
+            assertEquals(0, other_replayer.getConflictCount());
+            assertEquals(2, claims.size());
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package repository.offline;
+
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OfflineJournalTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    public void test_append_when_entries_written_should_be_pending_in_order() throws IOException {
+
+        try (OfflineJournal journal = new OfflineJournal(directory, () -> 1_000)) {
+
+            assertEquals(1, journal.append(1, TransactionType.DEPOSIT, 100));
+            assertEquals(2, journal.append(2, TransactionType.WITHDRAWAL, 40));
+
+            //When entries are appended, they are waiting for replay in the order they were written
+            List<JournalEntry> pending = journal.pending(10);
+            assertEquals(List.of(new JournalEntry(1, 1, TransactionType.DEPOSIT, 100, 1_000),
+                    new JournalEntry(2, 2, TransactionType.WITHDRAWAL, 40, 1_000)), pending);
+            assertTrue(journal.hasPending(1));
+            assertEquals(40, journal.getPendingWithdrawn(2));
+            assertEquals(1, journal.pending(1).size());
+        }
+    }
+
+    @Test
+    public void test_getJournalId_when_reopened_or_recreated_should_keep_or_renew_the_id() throws IOException {
+
+        String id;
+        try (OfflineJournal journal = new OfflineJournal(directory.resolve("journal"))) {
+
+            id = journal.getJournalId();
+        }
+
+        //When the same directory is opened again the id stays, and a new directory is a journal with a new id
+        try (OfflineJournal reopened = new OfflineJournal(directory.resolve("journal"));
+             OfflineJournal recreated = new OfflineJournal(directory.resolve("recreated"))) {
+
+            assertEquals(id, reopened.getJournalId());
+            assertNotEquals(id, recreated.getJournalId());
+        }
+    }
+
+    @Test
+    public void test_constructor_when_journal_reopened_should_recover_unacknowledged_entries() throws IOException {
+
+        try (OfflineJournal journal = new OfflineJournal(directory)) {
+
+            journal.append(1, TransactionType.DEPOSIT, 100);
+            journal.append(1, TransactionType.WITHDRAWAL, 60);
+            journal.append(3, TransactionType.DEPOSIT, 5);
+            journal.acknowledge(1);
+        }
+
+        //When the terminal restarts, the entries not yet acknowledged are waiting again, and numbering carries on
+        try (OfflineJournal journal = new OfflineJournal(directory)) {
+
+            assertEquals(List.of(2L, 3L), journal.pending(10).stream().map(JournalEntry::sequence).toList());
+            assertEquals(60, journal.getPendingWithdrawn(1));
+            assertEquals(4, journal.append(3, TransactionType.DEPOSIT, 5));
+        }
+    }
+
+    @Test
+    public void test_constructor_when_last_entry_is_torn_should_drop_it() throws IOException {
+
+        try (OfflineJournal journal = new OfflineJournal(directory)) {
+
+            journal.append(1, TransactionType.DEPOSIT, 100);
+            journal.append(2, TransactionType.DEPOSIT, 200);
+        }
+
+        //The power went while the second entry was being written, so only part of it reached the disk
+        Path log = directory.resolve("journal.log");
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+
+            channel.truncate(OfflineJournal.RECORD_BYTES + 10);
+        }
+
+        //When the journal is opened, the torn entry fails its checksum and is cut off
+        try (OfflineJournal journal = new OfflineJournal(directory)) {
+
+            assertEquals(1, journal.getPendingCount());
+            assertEquals(OfflineJournal.RECORD_BYTES, Files.size(log));
+            assertEquals(2, journal.append(2, TransactionType.DEPOSIT, 200));
+        }
+    }
+
+    @Test
+    public void test_constructor_when_entry_is_corrupted_should_drop_it_and_everything_after() throws IOException {
+
+        try (OfflineJournal journal = new OfflineJournal(directory)) {
+
+            journal.append(1, TransactionType.DEPOSIT, 100);
+            journal.append(2, TransactionType.DEPOSIT, 200);
+            journal.append(3, TransactionType.DEPOSIT, 300);
+        }
+
+        //A byte of the second entry's amount is flipped on disk
+        Path log = directory.resolve("journal.log");
+        byte[] bytes = Files.readAllBytes(log);
+        bytes[OfflineJournal.RECORD_BYTES + 14] ^= 0x01;
+        Files.write(log, bytes);
+
+        //When the journal is opened, only the entry before the damaged one is trusted
+        try (OfflineJournal journal = new OfflineJournal(directory)) {
+
+            assertEquals(List.of(1L), journal.pending(10).stream().map(JournalEntry::sequence).toList());
+        }
+    }
+
+    @Test
+    public void test_append_when_withdrawal_exceeds_limit_should_return_negative_1_and_write_nothing() throws IOException {
+
+        try (OfflineJournal journal = new OfflineJournal(directory)) {
+
+            assertEquals(1, journal.append(1, TransactionType.WITHDRAWAL, 150, 200));
+
+            //When a further withdrawal would take the account's offline withdrawals past the limit, it is refused
+            assertEquals(-1, journal.append(1, TransactionType.WITHDRAWAL, 60, 200));
+            assertEquals(1, journal.getPendingCount());
+
+            //When it fits, or is for another account, or is a deposit, it is taken
+            assertEquals(2, journal.append(1, TransactionType.WITHDRAWAL, 50, 200));
+            assertEquals(3, journal.append(2, TransactionType.WITHDRAWAL, 200, 200));
+            assertEquals(4, journal.append(1, TransactionType.DEPOSIT, 1_000, 200));
+        }
+    }
+
+    @Test
+    public void test_acknowledge_when_everything_replayed_should_empty_the_file() throws IOException {
+
+        try (OfflineJournal journal = new OfflineJournal(directory)) {
+
+            journal.append(1, TransactionType.WITHDRAWAL, 100);
+            journal.append(2, TransactionType.DEPOSIT, 100);
+            journal.acknowledge(2);
+
+            //When every entry is acknowledged, nothing is pending, withdrawals no longer count and the file is reset
+            assertEquals(0, journal.getPendingCount());
+            assertFalse(journal.hasPending(1));
+            assertEquals(0, journal.getPendingWithdrawn(1));
+            assertEquals(0, Files.size(directory.resolve("journal.log")));
+            assertEquals(3, journal.append(1, TransactionType.DEPOSIT, 5));
+        }
+
+        try (OfflineJournal journal = new OfflineJournal(directory)) {
+
+            assertEquals(List.of(3L), journal.pending(10).stream().map(JournalEntry::sequence).toList());
+        }
+    }
+
+    @Test
+    public void test_getLagMs_when_entries_waiting_should_report_age_of_oldest() throws IOException {
+
+        long[] now = {1_000};
+        try (OfflineJournal journal = new OfflineJournal(directory, () -> now[0])) {
+
+            assertEquals(0, journal.getLagMs());
+            journal.append(1, TransactionType.DEPOSIT, 5);
+            now[0] = 4_500;
+            journal.append(1, TransactionType.DEPOSIT, 5);
+
+            //When entries wait, the lag is how long the oldest has been waiting
+            assertEquals(3_500, journal.getLagMs());
+        }
+    }
+
+    @Test
+    public void test_append_when_called_concurrently_should_share_flushes_and_keep_every_entry() throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (OfflineJournal journal = new OfflineJournal(directory)) {
+
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+
+                int account = i % 20;
+                futures.add(executor.submit(() -> journal.append(account, TransactionType.DEPOSIT, 1)));
+            }
+
+            Set<Long> sequences = new HashSet<>();
+            for (Future<Long> future : futures) {
+
+                sequences.add(future.get());
+            }
+
+            //When many terminals' sessions append at once, every entry gets its own number and none is lost, and
+            //no more flushes are run than entries appended
+            assertEquals(400, sequences.size());
+            assertEquals(400, journal.getPendingCount());
+            assertEquals(400, journal.getAppendCount());
+            assertTrue(journal.getSyncCount() <= journal.getAppendCount());
+        }
+        finally {
+
+            executor.shutdownNow();
+        }
+
+        try (OfflineJournal journal = new OfflineJournal(directory)) {
+
+            assertEquals(400, journal.getPendingCount());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package repository.offline;
+
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repository.DatabaseManager;
+import repository.exception.CircuitOpenException;
+import repository.exception.ConnectionUnavailableException;
+import repository.exception.DatabaseException;
+import repository.exception.OfflineLimitExceededException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class StoreAndForwardDatabaseManagerTest {
+
+    @TempDir
+    Path directory;
+
+    private DatabaseManager delegate_mock;
+    private OfflineJournal journal;
+    private StoreAndForwardDatabaseManager offline_manager;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+
+        //Each account may withdraw up to 200 while offline
+        delegate_mock = mock(DatabaseManager.class);
+        journal = new OfflineJournal(directory);
+        JournalReplayer replayer = new JournalReplayer(delegate_mock, journal, 100);
+        offline_manager = new StoreAndForwardDatabaseManager(delegate_mock, journal, replayer, 200);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+
+        journal.close();
+    }
+
+    private static DatabaseException connectionFailure() {
+
+        return new ConnectionUnavailableException("Could not connect to apply transaction to account: 1",
+                new SQLException("Communications link failure", "08S01"));
+    }
+
+
+    @Test
+    public void test_applyTransaction_when_database_reachable_should_pass_through() throws DatabaseException {
+
+        when(delegate_mock.applyTransaction(1, 900, TransactionType.WITHDRAWAL, 100)).thenReturn(900);
+
+        //When the database takes the transaction, nothing is journaled
+        assertEquals(900, offline_manager.applyTransaction(1, 900, TransactionType.WITHDRAWAL, 100));
+        assertEquals(0, journal.getPendingCount());
+    }
+
+    @Test
+    public void test_applyTransaction_when_circuit_open_should_journal_deposit_and_return_session_balance() throws DatabaseException {
+
+        when(delegate_mock.applyTransaction(1, 1_500, TransactionType.DEPOSIT, 500))
+                .thenThrow(new CircuitOpenException("Circuit open"));
+
+        //When the database can't be reached, the deposit is journaled and the session's balance is taken as is
+        assertEquals(1_500, offline_manager.applyTransaction(1, 1_500, TransactionType.DEPOSIT, 500));
+        assertEquals(1, journal.getPendingCount());
+        assertEquals(TransactionType.DEPOSIT, journal.pending(1).get(0).type());
+        assertEquals(1, offline_manager.getOfflineDeposits());
+    }
+
+    @Test
+    public void test_applyTransaction_when_connection_lost_should_journal_withdrawals_up_to_limit() throws DatabaseException {
+
+        when(delegate_mock.applyTransaction(eq(1), anyInt(), eq(TransactionType.WITHDRAWAL), anyInt()))
+                .thenThrow(connectionFailure());
+        when(delegate_mock.applyJournalEntries(anyString(), anyList())).thenThrow(connectionFailure());
+
+        offline_manager.applyTransaction(1, 850, TransactionType.WITHDRAWAL, 150);
+
+        //When a further withdrawal would take the account past its offline limit, it is refused with what is left
+        OfflineLimitExceededException exception = assertThrows(OfflineLimitExceededException.class,
+                () -> offline_manager.applyTransaction(1, 750, TransactionType.WITHDRAWAL, 100));
+        assertEquals(50, exception.getRemaining());
+        assertEquals(1, offline_manager.getOfflineWithdrawals());
+        assertEquals(1, offline_manager.getRefusedWithdrawals());
+        assertEquals(1, journal.getPendingCount());
+    }
+
+    @Test
+    public void test_applyTransaction_when_failure_is_not_a_connection_failure_should_rethrow() throws DatabaseException {
+
+        when(delegate_mock.applyTransaction(1, 900, TransactionType.DEPOSIT, 100))
+                .thenThrow(new DatabaseException("Error applying transaction to account: 1",
+                        new SQLException("Syntax error", "42000")));
+
+        //When the database answered with an error, the transaction is not taken offline
+        assertThrows(DatabaseException.class,
+                () -> offline_manager.applyTransaction(1, 900, TransactionType.DEPOSIT, 100));
+        assertEquals(0, journal.getPendingCount());
+    }
+
+    @Test
+    public void test_applyTransaction_when_connection_lost_after_statement_sent_should_rethrow() throws DatabaseException {
+
+        when(delegate_mock.applyTransaction(1, 900, TransactionType.WITHDRAWAL, 100))
+                .thenThrow(new DatabaseException("Error applying transaction to account: 1",
+                        new SQLException("Communications link failure", "08S01")));
+
+        //When the connection went during the transaction, it may have been committed, so it is not journaled too
+        assertThrows(DatabaseException.class,
+                () -> offline_manager.applyTransaction(1, 900, TransactionType.WITHDRAWAL, 100));
+        assertEquals(0, journal.getPendingCount());
+        assertEquals(0, offline_manager.getOfflineWithdrawals());
+    }
+
+    @Test
+    public void test_applyTransaction_when_account_has_journaled_entries_should_queue_behind_them() throws Exception {
+
+        JournalReplayer replayer_mock = mock(JournalReplayer.class);
+        offline_manager = new StoreAndForwardDatabaseManager(delegate_mock, journal, replayer_mock, 200);
+        journal.append(1, TransactionType.DEPOSIT, 500);
+
+        //When the account still has offline entries, the withdrawal is journaled after them and the replayer is
+        //asked to catch up, without the customer waiting for the replay
+        assertEquals(1_400, offline_manager.applyTransaction(1, 1_400, TransactionType.WITHDRAWAL, 100));
+        assertEquals(List.of(TransactionType.DEPOSIT, TransactionType.WITHDRAWAL),
+                journal.pending(10).stream().map(JournalEntry::type).toList());
+        verify(replayer_mock).requestReplay();
+        verify(replayer_mock, never()).replayPending();
+        verify(delegate_mock, never()).applyTransaction(anyInt(), anyInt(), any(), anyInt());
+    }
+
+    @Test
+    public void test_loadSession_when_entries_waiting_should_replay_before_loading() throws Exception {
+
+        journal.append(1, TransactionType.DEPOSIT, 500);
+        when(delegate_mock.applyJournalEntries(anyString(), anyList())).thenThrow(connectionFailure());
+
+        //When the replay fails, the login still goes ahead and the entries stay in the journal
+        offline_manager.loadSession("JD1000");
+        verify(delegate_mock).loadSession("JD1000");
+        assertEquals(1, journal.getPendingCount());
+        assertEquals(List.of(1), journal.pending(1).stream().map(JournalEntry::account_num).toList());
+    }
+}
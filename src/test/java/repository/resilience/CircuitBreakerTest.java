@@ -0,0 +1,107 @@
+package repository.resilience;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakerTest {
+
+    private AtomicLong clock;
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    public void setUp() {
+
+        //The breaker opens after 3 failures in a row and stays open for 1000ms of the fake clock
+        clock = new AtomicLong(0);
+        breaker = new CircuitBreaker(3, 1000, clock::get);
+    }
+
+
+    @Test
+    public void test_recordFailure_when_threshold_reached_should_open_and_reject_calls() {
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.recordFailure();
+
+        //When the third failure in a row is recorded, the breaker should open and reject the next call
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, breaker.getRejectedCalls());
+        assertEquals(1, breaker.getTransitionCount(CircuitBreaker.State.OPEN));
+    }
+
+    @Test
+    public void test_recordSuccess_when_between_failures_should_reset_the_count() {
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+
+        //When a success comes between failures, the breaker should stay closed
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void test_allowRequest_when_open_period_passes_should_allow_single_trial() {
+
+        for (int failure = 0; failure < 3; failure++) {
+
+            breaker.recordFailure();
+        }
+        clock.set(1000);
+
+        //When the open period is over, exactly one trial call should be let through
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void test_trial_outcome_should_close_on_success_and_reopen_on_failure() {
+
+        for (int failure = 0; failure < 3; failure++) {
+
+            breaker.recordFailure();
+        }
+        clock.set(1000);
+        breaker.allowRequest();
+        breaker.recordFailure();
+
+        //When the trial fails, the breaker should open again at once
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        clock.set(2000);
+        breaker.allowRequest();
+        breaker.recordSuccess();
+
+        //When the next trial succeeds, the breaker should close
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(2, breaker.getTransitionCount(CircuitBreaker.State.OPEN));
+        assertEquals(2, breaker.getTransitionCount(CircuitBreaker.State.HALF_OPEN));
+        assertEquals(1, breaker.getTransitionCount(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void test_recordNoResponse_when_half_open_should_free_the_trial_without_closing() {
+
+        for (int failure = 0; failure < 3; failure++) {
+
+            breaker.recordFailure();
+        }
+        clock.set(1000);
+        assertTrue(breaker.allowRequest());
+        breaker.recordNoResponse();
+
+        //When the trial ends without reaching the database, the breaker stays half-open and allows another trial
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertEquals(0, breaker.getTransitionCount(CircuitBreaker.State.CLOSED));
+    }
+}
@@ -0,0 +1,165 @@
+package repository.resilience;
+
+import model.account.Account;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseManager;
+import repository.DatabaseOperation;
+import repository.WorkPriority;
+import repository.exception.CircuitOpenException;
+import repository.exception.DatabaseException;
+import repository.exception.LimitExceededException;
+import repository.limit.AdaptiveConcurrencyLimiter;
+import repository.limit.ConcurrencyLimitedDatabaseManager;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ResilientDatabaseManagerTest {
+
+    private DatabaseManager delegate_mock;
+    private CircuitBreaker breaker;
+    private ResilientDatabaseManager resilient_manager;
+
+    private final DatabaseException connection_failure = new DatabaseException("Error retrieving account",
+            new SQLException("Communications link failure", "08S01", 0));
+
+    @BeforeEach
+    public void setUp() {
+
+        //Up to 3 tries with no delay between them, and a breaker that opens after 2 transient failures in a row
+        delegate_mock = mock(DatabaseManager.class);
+        breaker = new CircuitBreaker(2, 60_000);
+        resilient_manager = new ResilientDatabaseManager(delegate_mock, new RetryPolicy(3, 0, 0), breaker);
+    }
+
+
+    @Test
+    public void test_getAccount_when_transient_failure_then_success_should_retry_and_return_account() throws DatabaseException {
+
+        Account account = new Account(1, "John Doe", 100, "Active");
+        when(delegate_mock.getAccount(1)).thenThrow(connection_failure).thenReturn(account);
+
+        //When the first try fails transiently, the second try's account should be returned
+        assertEquals(account, resilient_manager.getAccount(1));
+        verify(delegate_mock, times(2)).getAccount(1);
+        assertEquals(1, resilient_manager.getRetryCount());
+        assertEquals(1, resilient_manager.getFailureCount(FailureKind.TRANSIENT));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void test_createNewAccount_when_transient_failure_should_not_retry_non_idempotent_insert() throws DatabaseException {
+
+        when(delegate_mock.createNewAccount("john_doe", "12345", "John Doe", 10, "Active")).thenThrow(connection_failure);
+
+        //When an insert fails transiently, it may have taken effect, so it should not be run again
+        assertThrows(DatabaseException.class,
+                () -> resilient_manager.createNewAccount("john_doe", "12345", "John Doe", 10, "Active"));
+        verify(delegate_mock, times(1)).createNewAccount("john_doe", "12345", "John Doe", 10, "Active");
+    }
+
+    @Test
+    public void test_createNewAccount_when_deadlock_should_retry_insert() throws DatabaseException {
+
+        DatabaseException deadlock = new DatabaseException("Error creating account",
+                new SQLException("Deadlock found", "40001", 1213));
+        when(delegate_mock.createNewAccount("john_doe", "12345", "John Doe", 10, "Active"))
+                .thenThrow(deadlock).thenReturn(5);
+
+        //When an insert is chosen as a deadlock victim, it was rolled back, so it should be retried
+        assertEquals(5, resilient_manager.createNewAccount("john_doe", "12345", "John Doe", 10, "Active"));
+        assertEquals(1, resilient_manager.getFailureCount(FailureKind.DEADLOCK));
+    }
+
+    @Test
+    public void test_updateAccountInfo_when_constraint_violation_should_fail_without_retry() throws DatabaseException {
+
+        DatabaseException duplicate = new DatabaseException("Error updating account info",
+                new SQLException("Duplicate entry", "23000", 1062));
+        when(delegate_mock.updateAccountInfo(1, "", "", "taken", "")).thenThrow(duplicate);
+
+        //When an update breaks a unique key, the same exception should be thrown after a single try
+        DatabaseException thrown = assertThrows(DatabaseException.class,
+                () -> resilient_manager.updateAccountInfo(1, "", "", "taken", ""));
+        assertSame(duplicate, thrown);
+        verify(delegate_mock, times(1)).updateAccountInfo(1, "", "", "taken", "");
+        assertEquals(0, resilient_manager.getRetryCount());
+    }
+
+    @Test
+    public void test_getAccount_when_failures_open_the_breaker_should_fail_fast() throws DatabaseException {
+
+        when(delegate_mock.getAccount(anyInt())).thenThrow(connection_failure);
+
+        //The first call fails twice (opening the breaker) and is then refused on its third try
+        assertThrows(CircuitOpenException.class, () -> resilient_manager.getAccount(1));
+
+        //When the breaker is open, the next call should fail at once without reaching the database
+        assertThrows(CircuitOpenException.class, () -> resilient_manager.getAccount(2));
+        verify(delegate_mock, never()).getAccount(2);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void test_getAccount_when_limiter_sheds_between_failures_should_still_open_the_breaker() throws Exception {
+
+        //The limiter has a single slot, which the test can hold to make the next call be turned away; calls are
+        //tried once each
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 200, 0);
+        ResilientDatabaseManager stacked_manager = new ResilientDatabaseManager(
+                new ConcurrencyLimitedDatabaseManager(delegate_mock, limiter), new RetryPolicy(1, 0, 0), breaker);
+        when(delegate_mock.getAccount(1)).thenThrow(connection_failure);
+
+        assertThrows(DatabaseException.class, () -> stacked_manager.getAccount(1));
+        limiter.acquire(WorkPriority.CUSTOMER);
+        assertThrows(LimitExceededException.class, () -> stacked_manager.getAccount(1));
+        limiter.release(0, false);
+        assertThrows(DatabaseException.class, () -> stacked_manager.getAccount(1));
+
+        //When a shed call comes between two failures, it says nothing about the database, so the two failures
+        //still count as two in a row
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        verify(delegate_mock, times(2)).getAccount(1);
+    }
+
+    @Test
+    public void test_getAccount_when_half_open_trial_is_shed_should_not_close_the_breaker() throws Exception {
+
+        //The breaker opens after 2 failures and stays open for 1000ms of a fake clock
+        AtomicLong clock = new AtomicLong(0);
+        CircuitBreaker clocked_breaker = new CircuitBreaker(2, 1000, clock::get);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 200, 0);
+        ResilientDatabaseManager stacked_manager = new ResilientDatabaseManager(
+                new ConcurrencyLimitedDatabaseManager(delegate_mock, limiter), new RetryPolicy(1, 0, 0),
+                clocked_breaker);
+        when(delegate_mock.getAccount(1)).thenThrow(connection_failure);
+
+        assertThrows(DatabaseException.class, () -> stacked_manager.getAccount(1));
+        assertThrows(DatabaseException.class, () -> stacked_manager.getAccount(1));
+        clock.set(1000);
+        limiter.acquire(WorkPriority.CUSTOMER);
+
+        //When the trial call is turned away by the limiter, the breaker stays half-open and the next call is the
+        //trial instead
+        assertThrows(LimitExceededException.class, () -> stacked_manager.getAccount(1));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, clocked_breaker.getState());
+        limiter.release(0, false);
+        assertThrows(DatabaseException.class, () -> stacked_manager.getAccount(1));
+        assertEquals(CircuitBreaker.State.OPEN, clocked_breaker.getState());
+        verify(delegate_mock, times(3)).getAccount(1);
+    }
+
+    @Test
+    public void test_isRetryable_should_only_allow_deadlocks_and_transient_idempotent_calls() {
+
+        //When isRetryable() is asked, only deadlocks and transient failures of idempotent operations should qualify
+        assertTrue(ResilientDatabaseManager.isRetryable(DatabaseOperation.CREATE_ACCOUNT, FailureKind.DEADLOCK));
+        assertTrue(ResilientDatabaseManager.isRetryable(DatabaseOperation.UPDATE_BALANCE, FailureKind.TRANSIENT));
+        assertFalse(ResilientDatabaseManager.isRetryable(DatabaseOperation.CREATE_ACCOUNT, FailureKind.TRANSIENT));
+        assertFalse(ResilientDatabaseManager.isRetryable(DatabaseOperation.GET_ACCOUNT, FailureKind.PERMANENT));
+    }
+}
@@ -0,0 +1,32 @@
+package repository.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void test_delayBeforeRetry_when_called_should_stay_under_doubling_ceiling() {
+
+        RetryPolicy policy = new RetryPolicy(5, 100, 1000);
+
+        //When delayBeforeRetry() is called repeatedly, each delay should stay within 0 and the ceiling for that
+        //attempt: 100ms after the first failure, 200ms after the second, and never more than 1000ms
+        for (int trial = 0; trial < 100; trial++) {
+
+            assertTrue(policy.delayBeforeRetry(1) <= 100);
+            assertTrue(policy.delayBeforeRetry(2) <= 200);
+            assertTrue(policy.delayBeforeRetry(10) <= 1000);
+            assertTrue(policy.delayBeforeRetry(40) >= 0);
+        }
+        assertEquals(5, policy.getMaxAttempts());
+    }
+
+    @Test
+    public void test_constructor_when_given_zero_attempts_should_throw_IllegalArgumentException() {
+
+        //When a policy is made that would never even try once, an IllegalArgumentException should be thrown
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(0, 100, 1000));
+    }
+}
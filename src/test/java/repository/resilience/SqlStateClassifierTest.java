@@ -0,0 +1,91 @@
+package repository.resilience;
+
+import org.junit.jupiter.api.Test;
+import repository.exception.DatabaseException;
+import repository.exception.LimitExceededException;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SqlStateClassifierTest {
+
+    @Test
+    public void test_classify_when_deadlock_error_code_should_return_DEADLOCK() {
+
+        DatabaseException error = new DatabaseException("Error updating account balance",
+                new SQLException("Deadlock found", "40001", 1213));
+
+        //When classify() is given a wrapped deadlock, DEADLOCK should be returned
+        assertEquals(FailureKind.DEADLOCK, SqlStateClassifier.classify(error));
+    }
+
+    @Test
+    public void test_classify_when_duplicate_key_should_return_CONSTRAINT_VIOLATION() {
+
+        DatabaseException error = new DatabaseException("Error updating account info",
+                new SQLException("Duplicate entry", "23000", 1062));
+
+        //When classify() is given a duplicate key error, CONSTRAINT_VIOLATION should be returned
+        assertEquals(FailureKind.CONSTRAINT_VIOLATION, SqlStateClassifier.classify(error));
+    }
+
+    @Test
+    public void test_classify_when_connection_failure_should_return_TRANSIENT() {
+
+        DatabaseException error = new DatabaseException("Error retrieving account",
+                new SQLException("Communications link failure", "08S01", 0));
+
+        //When classify() is given a connection failure, TRANSIENT should be returned
+        assertEquals(FailureKind.TRANSIENT, SqlStateClassifier.classify(error));
+    }
+
+    @Test
+    public void test_classify_when_query_timeout_should_return_TRANSIENT() {
+
+        DatabaseException error = new DatabaseException("Error retrieving account",
+                new SQLTimeoutException("Statement cancelled due to timeout"));
+
+        //When classify() is given a query timeout, TRANSIENT should be returned
+        assertEquals(FailureKind.TRANSIENT, SqlStateClassifier.classify(error));
+    }
+
+    @Test
+    public void test_classify_when_syntax_error_or_no_sql_cause_should_return_PERMANENT() {
+
+        DatabaseException syntax_error = new DatabaseException("Error retrieving account",
+                new SQLException("You have an error in your SQL syntax", "42000", 1064));
+
+        //When classify() is given an error retrying can't fix, or no SQLException at all, PERMANENT should be returned
+        assertEquals(FailureKind.PERMANENT, SqlStateClassifier.classify(syntax_error));
+        assertEquals(FailureKind.PERMANENT, SqlStateClassifier.classify(new RuntimeException("boom")));
+    }
+
+    @Test
+    public void test_isConnectionFailure_when_class_08_should_return_true_and_otherwise_false() {
+
+        DatabaseException link_failure = new DatabaseException("Error applying transaction",
+                new SQLException("Communications link failure", "08S01", 0));
+        DatabaseException lock_timeout = new DatabaseException("Error applying transaction",
+                new SQLException("Lock wait timeout exceeded", "HY000", 1205));
+
+        //When the connection itself failed, the database could not be reached; a lock timeout means it could
+        assertTrue(SqlStateClassifier.isConnectionFailure(link_failure));
+        assertFalse(SqlStateClassifier.isConnectionFailure(lock_timeout));
+        assertFalse(SqlStateClassifier.isConnectionFailure(new RuntimeException("boom")));
+    }
+
+    @Test
+    public void test_isDatabaseResponse_when_no_SQLException_in_chain_should_return_false() {
+
+        DatabaseException duplicate = new DatabaseException("Error updating account info",
+                new SQLException("Duplicate entry", "23000", 1062));
+
+        //When the failure came from the database it answered; a call the limiter turned away never reached it
+        assertTrue(SqlStateClassifier.isDatabaseResponse(duplicate));
+        assertFalse(SqlStateClassifier.isDatabaseResponse(new LimitExceededException("The database is busy")));
+    }
+}
@@ -0,0 +1,128 @@
+package repository.schedule;
+
+import org.junit.jupiter.api.Test;
+import repository.WorkPriority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrioritySchedulerTest {
+
+    private static PriorityScheduler scheduler(int max_concurrent, int batch_cap, long max_wait_ms) {
+
+        //Customers weigh 4 times as much as batch jobs; admins sit in between
+        return new PriorityScheduler(max_concurrent, Map.of(
+                WorkPriority.CUSTOMER, new ClassPolicy(4, max_concurrent, max_wait_ms),
+                WorkPriority.ADMIN, new ClassPolicy(2, max_concurrent, max_wait_ms),
+                WorkPriority.BATCH, new ClassPolicy(1, batch_cap, max_wait_ms)));
+    }
+
+    private static Thread queue(PriorityScheduler scheduler, WorkPriority priority, List<WorkPriority> order) {
+
+        //Each queued call records when it gets its turn, then gives its slot straight back
+        Thread thread = new Thread(() -> {
+
+            try {
+
+                if (scheduler.acquire(priority)) {
+
+                    order.add(priority);
+                    scheduler.release(priority);
+                }
+            }
+            catch (InterruptedException error) {
+
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void test_acquire_when_classes_compete_should_serve_them_by_weight() throws InterruptedException {
+
+        PriorityScheduler scheduler = scheduler(1, 1, 5_000);
+        List<WorkPriority> order = Collections.synchronizedList(new ArrayList<>());
+
+        //The only slot is taken, so every call below has to queue; the batch calls queue first
+        assertTrue(scheduler.acquire(WorkPriority.CUSTOMER));
+
+        List<Thread> threads = new ArrayList<>();
+        WorkPriority[] arrivals = {WorkPriority.BATCH, WorkPriority.BATCH, WorkPriority.CUSTOMER,
+                WorkPriority.CUSTOMER, WorkPriority.CUSTOMER, WorkPriority.CUSTOMER};
+        for (int i = 0; i < arrivals.length; i++) {
+
+            threads.add(queue(scheduler, arrivals[i], order));
+            while (scheduler.getQueueDepth(WorkPriority.BATCH) + scheduler.getQueueDepth(WorkPriority.CUSTOMER) < i + 1) {
+
+                Thread.sleep(1);
+            }
+        }
+
+        scheduler.release(WorkPriority.CUSTOMER);
+        for (Thread thread : threads) {
+
+            thread.join(5_000);
+        }
+
+        //When the slot frees up, the four customer calls should overtake the batch calls that queued before them,
+        //as customers get 4 turns for each batch turn
+        assertEquals(List.of(WorkPriority.CUSTOMER, WorkPriority.CUSTOMER, WorkPriority.CUSTOMER,
+                WorkPriority.CUSTOMER, WorkPriority.BATCH, WorkPriority.BATCH), order);
+        assertEquals(5, scheduler.getDispatchedCount(WorkPriority.CUSTOMER));
+        assertTrue(scheduler.getMaxWaitMs(WorkPriority.BATCH) > 0);
+        assertTrue(scheduler.getAverageWaitMs(WorkPriority.BATCH) > 0);
+    }
+
+    @Test
+    public void test_acquire_when_class_at_its_cap_should_wait_even_with_free_slots() throws InterruptedException {
+
+        PriorityScheduler scheduler = scheduler(4, 1, 50);
+
+        assertTrue(scheduler.acquire(WorkPriority.BATCH));
+
+        //When batch work already runs its 1 allowed call, the next batch call should time out in the queue, while a
+        //customer call takes one of the free slots at once
+        assertFalse(scheduler.acquire(WorkPriority.BATCH));
+        assertTrue(scheduler.acquire(WorkPriority.CUSTOMER));
+        assertEquals(1, scheduler.getTimedOutCount(WorkPriority.BATCH));
+        assertEquals(0, scheduler.getQueueDepth(WorkPriority.BATCH));
+        assertEquals(1, scheduler.getInFlight(WorkPriority.BATCH));
+        assertEquals(1, scheduler.getInFlight(WorkPriority.CUSTOMER));
+    }
+
+    @Test
+    public void test_release_when_slot_freed_should_hand_it_to_waiting_call() throws InterruptedException {
+
+        PriorityScheduler scheduler = scheduler(1, 1, 5_000);
+        List<WorkPriority> order = Collections.synchronizedList(new ArrayList<>());
+
+        assertTrue(scheduler.acquire(WorkPriority.ADMIN));
+        Thread waiting = queue(scheduler, WorkPriority.CUSTOMER, order);
+        while (scheduler.getQueueDepth(WorkPriority.CUSTOMER) == 0) {
+
+            Thread.sleep(1);
+        }
+
+        scheduler.release(WorkPriority.ADMIN);
+        waiting.join(5_000);
+
+        //When the running call finishes, the queued call should run
+        assertEquals(List.of(WorkPriority.CUSTOMER), order);
+        assertEquals(0, scheduler.getInFlight(WorkPriority.ADMIN));
+    }
+
+    @Test
+    public void test_constructor_when_policy_missing_should_throw_IllegalArgumentException() {
+
+        //When a priority class has no policy, the scheduler should refuse to be built
+        assertThrows(IllegalArgumentException.class, () -> new PriorityScheduler(4,
+                Map.of(WorkPriority.CUSTOMER, new ClassPolicy(1, 1, 0))));
+        assertThrows(IllegalArgumentException.class, () -> new ClassPolicy(0, 1, 0));
+    }
+}
@@ -0,0 +1,67 @@
+package repository.schedule;
+
+import model.account.Account;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseManager;
+import repository.WorkPriority;
+import repository.exception.DatabaseException;
+import repository.exception.LimitExceededException;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ScheduledDatabaseManagerTest {
+
+    private DatabaseManager delegate_mock;
+    private PriorityScheduler scheduler;
+    private ScheduledDatabaseManager scheduled_manager;
+
+    @BeforeEach
+    public void setUp() {
+
+        //Admin work may run one call at a time and gives up after 20ms in the queue
+        delegate_mock = mock(DatabaseManager.class);
+        scheduler = new PriorityScheduler(2, Map.of(
+                WorkPriority.CUSTOMER, new ClassPolicy(4, 2, 1_000),
+                WorkPriority.ADMIN, new ClassPolicy(2, 1, 20),
+                WorkPriority.BATCH, new ClassPolicy(1, 1, 20)));
+        scheduled_manager = new ScheduledDatabaseManager(delegate_mock, scheduler);
+    }
+
+
+    @Test
+    public void test_getAccount_when_slot_free_should_run_and_release_slot() throws DatabaseException {
+
+        Account account = new Account(1, "John Doe", 100, "Active");
+        when(delegate_mock.getAccount(1)).thenReturn(account);
+
+        //When a slot is free, the call should run and its slot should be returned afterwards
+        assertSame(account, scheduled_manager.getAccount(1));
+        assertEquals(1, scheduler.getDispatchedCount(WorkPriority.ADMIN));
+        assertEquals(0, scheduler.getInFlight(WorkPriority.ADMIN));
+    }
+
+    @Test
+    public void test_getAccount_when_delegate_throws_should_still_release_slot() throws DatabaseException {
+
+        when(delegate_mock.getAccount(1)).thenThrow(new DatabaseException("Error retrieving account", null));
+
+        //When the call fails, the exception should pass through and the slot should still be returned
+        assertThrows(DatabaseException.class, () -> scheduled_manager.getAccount(1));
+        assertEquals(0, scheduler.getInFlight(WorkPriority.ADMIN));
+    }
+
+    @Test
+    public void test_getAccount_when_class_cap_taken_should_throw_LimitExceededException() throws DatabaseException, InterruptedException {
+
+        //Another admin call is holding admin work's only slot
+        assertTrue(scheduler.acquire(WorkPriority.ADMIN));
+
+        //When the call waits longer than admin work may, it should be turned away without reaching the delegate
+        assertThrows(LimitExceededException.class, () -> scheduled_manager.getAccount(1));
+        verify(delegate_mock, never()).getAccount(1);
+    }
+}
@@ -0,0 +1,169 @@
+package repository.search;
+
+import model.account.Account;
+import model.account.BalanceEntry;
+import model.account.NewAccount;
+import model.transaction.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.AccountConsumer;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+import repository.offline.ReplayOutcome;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BalanceIndexDatabaseManagerTest {
+
+    private DatabaseManager delegate_mock;
+    private BalanceRangeIndex index;
+    private BalanceIndexDatabaseManager balance_manager;
+
+    @BeforeEach
+    public void setUp() throws DatabaseException {
+
+        delegate_mock = mock(DatabaseManager.class);
+        index = new BalanceRangeIndex();
+        balance_manager = new BalanceIndexDatabaseManager(delegate_mock, index);
+
+        //The table is to hold two accounts when the index is built
+        doAnswer(invocation -> {
+
+            AccountConsumer consumer = invocation.getArgument(0);
+            consumer.accept(1, "John Doe", 100, "Active");
+            consumer.accept(2, "Jane Doe", 50, "Disabled");
+            return 2;
+        }).when(delegate_mock).scanAccounts(any());
+    }
+
+    private List<BalanceEntry> all(String status) {
+
+        return index.range(status, Integer.MIN_VALUE, Integer.MAX_VALUE, null, 100).entries();
+    }
+
+
+    @Test
+    public void test_rebuild_when_accounts_scanned_should_index_every_account() throws DatabaseException {
+
+        //When rebuild() is called, every scanned account should be listed under its status
+        assertEquals(2, balance_manager.rebuild());
+        assertEquals(List.of(new BalanceEntry(1, 100)), all("Active"));
+        assertEquals(List.of(new BalanceEntry(2, 50)), all("Disabled"));
+    }
+
+    @Test
+    public void test_rebuild_when_transaction_committed_during_scan_should_read_the_account_again() throws DatabaseException {
+
+        //The scan is to see the balance of account 1 from before a deposit that commits while it runs
+        doAnswer(invocation -> {
+
+            AccountConsumer consumer = invocation.getArgument(0);
+            balance_manager.applyTransaction(1, 130, TransactionType.DEPOSIT, 30);
+            consumer.accept(1, "John Doe", 100, "Active");
+            return 1;
+        }).when(delegate_mock).scanAccounts(any());
+        when(delegate_mock.applyTransaction(1, 130, TransactionType.DEPOSIT, 30)).thenReturn(130);
+        when(delegate_mock.getAccounts(new int[] {1})).thenReturn(Map.of(1, new Account(1, "John Doe", 130,
+                "Active")));
+
+        balance_manager.rebuild();
+
+        //When the rebuild finishes, the account should have the balance the database committed
+        assertEquals(List.of(new BalanceEntry(1, 130)), all("Active"));
+    }
+
+    @Test
+    public void test_applyTransaction_when_committed_should_move_the_balance_and_not_when_refused() throws DatabaseException {
+
+        balance_manager.rebuild();
+        when(delegate_mock.applyTransaction(1, 60, TransactionType.WITHDRAWAL, 40)).thenReturn(60);
+        when(delegate_mock.applyTransaction(2, 0, TransactionType.WITHDRAWAL, 50)).thenReturn(-1);
+
+        balance_manager.applyTransaction(1, 60, TransactionType.WITHDRAWAL, 40);
+        balance_manager.applyTransaction(2, 0, TransactionType.WITHDRAWAL, 50);
+
+        //When one withdrawal commits and the other is refused, only the committed one should move its account
+        assertEquals(List.of(new BalanceEntry(1, 60)), all("Active"));
+        assertEquals(List.of(new BalanceEntry(2, 50)), all("Disabled"));
+    }
+
+    @Test
+    public void test_updateAccountBalance_should_set_the_balance() throws DatabaseException {
+
+        balance_manager.rebuild();
+
+        balance_manager.updateAccountBalance(1, 700);
+
+        //When the balance is written, the account should be found at the new balance
+        assertEquals(List.of(new BalanceEntry(1, 700)), all("Active"));
+    }
+
+    @Test
+    public void test_applyJournalEntries_when_replayed_should_apply_only_the_applied_amounts() throws DatabaseException {
+
+        balance_manager.rebuild();
+        List<JournalEntry> entries = List.of(new JournalEntry(1, 1, TransactionType.DEPOSIT, 10, 1_000),
+                new JournalEntry(2, 1, TransactionType.WITHDRAWAL, 5, 1_001),
+                new JournalEntry(3, 1, TransactionType.WITHDRAWAL, 20, 1_002));
+        when(delegate_mock.applyJournalEntries("terminal-1", entries)).thenReturn(new ReplayOutcome[] {
+                ReplayOutcome.APPLIED, ReplayOutcome.APPLIED, ReplayOutcome.ALREADY_APPLIED});
+
+        balance_manager.applyJournalEntries("terminal-1", entries);
+
+        //When a batch is replayed, the deposit and withdrawal this replay applied should net to +5
+        assertEquals(List.of(new BalanceEntry(1, 105)), all("Active"));
+    }
+
+    @Test
+    public void test_createNewAccounts_when_some_refused_should_index_only_created_accounts() throws DatabaseException {
+
+        List<NewAccount> new_accounts = List.of(new NewAccount(102, "a1", "12345", "A", 50, "Active"),
+                new NewAccount(103, "a1", "12345", "B", 60, "Active"));
+        when(delegate_mock.createNewAccounts(new_accounts)).thenReturn(new int[] {102, -2});
+        when(delegate_mock.createNewAccount("jd", "12345", "John Doe", 300, "Disabled")).thenReturn(7);
+
+        balance_manager.createNewAccounts(new_accounts);
+        balance_manager.createNewAccount("jd", "12345", "John Doe", 300, "Disabled");
+
+        //When one row was refused, only the created accounts should be indexed
+        assertEquals(List.of(new BalanceEntry(102, 50)), all("Active"));
+        assertEquals(List.of(new BalanceEntry(7, 300)), all("Disabled"));
+    }
+
+    @Test
+    public void test_status_changes_when_committed_should_move_accounts_between_statuses() throws DatabaseException {
+
+        balance_manager.rebuild();
+        when(delegate_mock.updateAccountInfo(1, "", "Disabled", "", "")).thenReturn(true);
+        when(delegate_mock.updateAccountInfo(2, "Jane Roe", "", "", "")).thenReturn(true);
+        when(delegate_mock.updateAccounts(new int[] {2, 9}, "", "Active")).thenReturn(new int[] {1, 0});
+
+        balance_manager.updateAccountInfo(1, "", "Disabled", "", "");
+        balance_manager.updateAccountInfo(2, "Jane Roe", "", "", "");
+        balance_manager.updateAccounts(new int[] {2, 9}, "", "Active");
+
+        //When account 1 is disabled and account 2 activated in bulk, they should swap statuses
+        assertEquals(List.of(new BalanceEntry(2, 50)), all("Active"));
+        assertEquals(List.of(new BalanceEntry(1, 100)), all("Disabled"));
+    }
+
+    @Test
+    public void test_deleteAccount_when_deleted_should_remove_the_account_and_not_when_it_fails() throws DatabaseException {
+
+        balance_manager.rebuild();
+        doThrow(new DatabaseException("Error deleting account", null)).when(delegate_mock).deleteAccount(2);
+
+        balance_manager.deleteAccount(1);
+        assertThrows(DatabaseException.class, () -> balance_manager.deleteAccount(2));
+
+        //When account 1 is deleted and account 2's delete fails, only account 2 should still be listed
+        assertTrue(all("Active").isEmpty());
+        assertEquals(List.of(new BalanceEntry(2, 50)), all("Disabled"));
+    }
+}
@@ -0,0 +1,149 @@
+package repository.search;
+
+import model.account.BalanceEntry;
+import model.account.BalanceRangePage;
+import model.account.StatusTotals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BalanceRangeIndexTest {
+
+    private BalanceRangeIndex index;
+
+    @BeforeEach
+    public void setUp() {
+
+        index = new BalanceRangeIndex();
+        index.put(1, "Active", 500);
+        index.put(2, "Active", 40);
+        index.put(3, "Disabled", 900);
+        index.put(4, "Active", 40);
+        index.put(5, "Active", 1200);
+    }
+
+
+    @Test
+    public void test_key_when_packed_should_order_by_balance_then_account() {
+
+        //When keys are compared, the balance should decide first, and the account number only between equal
+        //balances, negative balances included
+        assertTrue(BalanceRangeIndex.key(-5, 9) < BalanceRangeIndex.key(0, 1));
+        assertTrue(BalanceRangeIndex.key(40, 2) < BalanceRangeIndex.key(40, 4));
+        assertTrue(BalanceRangeIndex.key(40, Integer.MAX_VALUE) < BalanceRangeIndex.key(41, 1));
+    }
+
+    @Test
+    public void test_range_when_accounts_in_range_should_return_them_lowest_balance_first() {
+
+        BalanceRangePage page = index.range("Active", 0, 500, null, 10);
+
+        //When active accounts up to $500 are asked for, the two at $40 should come first by number, then the $500
+        assertEquals(List.of(new BalanceEntry(2, 40), new BalanceEntry(4, 40), new BalanceEntry(1, 500)),
+                page.entries());
+        assertFalse(page.has_more());
+    }
+
+    @Test
+    public void test_range_when_paged_should_continue_after_the_last_entry() {
+
+        BalanceRangePage first = index.range("Active", 0, Integer.MAX_VALUE, null, 2);
+        BalanceRangePage second = index.range("Active", 0, Integer.MAX_VALUE, first.last(), 2);
+
+        //When the pages are read two at a time, the second should start after the first page's last account, even
+        //though it has the same balance as the one before it
+        assertEquals(List.of(new BalanceEntry(2, 40), new BalanceEntry(4, 40)), first.entries());
+        assertTrue(first.has_more());
+        assertEquals(List.of(new BalanceEntry(1, 500), new BalanceEntry(5, 1200)), second.entries());
+        assertFalse(second.has_more());
+    }
+
+    @Test
+    public void test_range_when_status_or_range_is_empty_should_return_EMPTY() {
+
+        //When no account has the status, or the range is the wrong way round, nothing should be found
+        assertEquals(BalanceRangePage.EMPTY, index.range("Frozen", 0, 100, null, 10));
+        assertEquals(BalanceRangePage.EMPTY, index.range("Active", 100, 0, null, 10));
+        assertTrue(index.range("Disabled", 0, 899, null, 10).entries().isEmpty());
+    }
+
+    @Test
+    public void test_updateBalance_and_adjustBalance_should_move_the_account_within_its_status() {
+
+        index.updateBalance(5, 10);
+        index.adjustBalance(2, 100);
+
+        //When the balances change, the accounts should be found at their new balances only
+        assertEquals(List.of(new BalanceEntry(5, 10), new BalanceEntry(4, 40), new BalanceEntry(2, 140)),
+                index.range("Active", 0, 200, null, 10).entries());
+        assertTrue(index.range("Active", 1000, 2000, null, 10).entries().isEmpty());
+    }
+
+    @Test
+    public void test_updateStatus_should_move_the_account_to_the_other_status_with_its_balance() {
+
+        index.updateStatus(1, "Disabled");
+
+        //When an account is disabled, it should only be found among the disabled accounts
+        assertEquals(List.of(new BalanceEntry(1, 500), new BalanceEntry(3, 900)),
+                index.range("Disabled", 0, Integer.MAX_VALUE, null, 10).entries());
+        assertEquals(3, index.count("Active"));
+    }
+
+    @Test
+    public void test_updates_when_account_not_indexed_should_change_nothing() {
+
+        index.updateBalance(99, 10);
+        index.updateStatus(99, "Active");
+        index.remove(99);
+
+        //When the account is not in the index, its status is not known, so it should stay out
+        assertEquals(5, index.size());
+        assertEquals(4, index.count("Active"));
+    }
+
+    @Test
+    public void test_remove_should_take_the_account_out_of_every_query() {
+
+        index.remove(4);
+
+        //When an account is removed, it should no longer be found
+        assertEquals(List.of(new BalanceEntry(2, 40)), index.range("Active", 40, 40, null, 10).entries());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void test_totals_should_follow_every_change_of_status_and_balance() {
+
+        index.updateBalance(5, 1000);
+        index.adjustBalance(2, -40);
+        index.updateStatus(1, "Disabled");
+        index.remove(4);
+
+        //When accounts move, each status's count and balance total should move with them, and a status with no
+        //accounts left should not be listed
+        assertEquals(List.of(new StatusTotals("Active", 2, 1000), new StatusTotals("Disabled", 2, 1400)),
+                index.totals());
+        index.remove(2);
+        index.remove(5);
+        assertEquals(List.of(new StatusTotals("Disabled", 2, 1400)), index.totals());
+        assertEquals(0, index.count("Active"));
+    }
+
+    @Test
+    public void test_replaceWith_should_take_the_other_index_contents() {
+
+        BalanceRangeIndex other = new BalanceRangeIndex();
+        other.put(8, "Disabled", 5);
+        index.replaceWith(other);
+
+        //When replaced, only the other index's accounts should be found, and writes should go to them
+        index.put(9, "Disabled", 6);
+        assertEquals(List.of(new BalanceEntry(8, 5), new BalanceEntry(9, 6)),
+                index.range("Disabled", 0, 10, null, 10).entries());
+        assertEquals(0, index.count("Active"));
+    }
+}
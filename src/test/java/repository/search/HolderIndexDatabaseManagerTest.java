@@ -0,0 +1,143 @@
+package repository.search;
+
+import model.account.Account;
+import model.account.NewAccount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.AccountConsumer;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class HolderIndexDatabaseManagerTest {
+
+    private DatabaseManager delegate_mock;
+    private HolderNameIndex index;
+    private HolderIndexDatabaseManager holder_manager;
+
+    @BeforeEach
+    public void setUp() throws DatabaseException {
+
+        delegate_mock = mock(DatabaseManager.class);
+        index = new HolderNameIndex();
+        holder_manager = new HolderIndexDatabaseManager(delegate_mock, index);
+
+        //The table is to hold two accounts when the index is built
+        doAnswer(invocation -> {
+
+            AccountConsumer consumer = invocation.getArgument(0);
+            consumer.accept(1, "John Doe", 100, "Active");
+            consumer.accept(2, "Jane Doe", 50, "Disabled");
+            return 2;
+        }).when(delegate_mock).scanAccounts(any());
+    }
+
+
+    @Test
+    public void test_rebuild_when_accounts_scanned_should_index_every_name() throws DatabaseException {
+
+        //When rebuild() is called, every scanned name should be searchable
+        assertEquals(2, holder_manager.rebuild());
+        assertEquals(2, index.search("doe", 0, 10).total_matches());
+        verify(delegate_mock, never()).getAccounts(any());
+    }
+
+    @Test
+    public void test_rebuild_when_account_renamed_during_scan_should_read_it_again() throws DatabaseException {
+
+        //The scan is to see the old name of account 1, which is renamed while the scan is running
+        doAnswer(invocation -> {
+
+            AccountConsumer consumer = invocation.getArgument(0);
+            consumer.accept(1, "John Doe", 100, "Active");
+            holder_manager.updateAccountInfo(1, "John Smith", "", "", "");
+            return 1;
+        }).when(delegate_mock).scanAccounts(any());
+        when(delegate_mock.updateAccountInfo(1, "John Smith", "", "", "")).thenReturn(true);
+        when(delegate_mock.getAccounts(new int[] {1})).thenReturn(Map.of(1, new Account(1, "John Smith", 100,
+                "Active")));
+
+        holder_manager.rebuild();
+
+        //When the rebuild finishes, the renamed account should be found by its new name only
+        assertEquals(1, index.search("smith", 0, 10).total_matches());
+        assertEquals(0, index.search("doe", 0, 10).total_matches());
+    }
+
+    @Test
+    public void test_createNewAccount_when_created_should_index_the_name() throws DatabaseException {
+
+        when(delegate_mock.createNewAccount("jd", "12345", "Jo Dunn", 10, "Active")).thenReturn(7);
+        when(delegate_mock.createNewAccount(8, "js", "12345", "Jo Sand", 10, "Active")).thenReturn(-2);
+
+        holder_manager.createNewAccount("jd", "12345", "Jo Dunn", 10, "Active");
+        holder_manager.createNewAccount(8, "js", "12345", "Jo Sand", 10, "Active");
+
+        //When one account is created and the other is refused, only the created one should be found
+        assertEquals(1, index.search("jo", 0, 10).total_matches());
+        assertEquals(7, index.search("jo", 0, 10).matches().get(0).account_num());
+    }
+
+    @Test
+    public void test_createNewAccounts_when_some_refused_should_index_only_created_accounts() throws DatabaseException {
+
+        List<NewAccount> new_accounts = List.of(new NewAccount(102, "a1", "12345", "Ada Byron", 50, "Active"),
+                new NewAccount(103, "a1", "12345", "Alan Turing", 60, "Active"));
+        when(delegate_mock.createNewAccounts(new_accounts)).thenReturn(new int[] {102, -2});
+
+        holder_manager.createNewAccounts(new_accounts);
+
+        //When one row was refused, its name should not be indexed
+        assertEquals(1, index.search("ada", 0, 10).total_matches());
+        assertEquals(0, index.search("alan", 0, 10).total_matches());
+    }
+
+    @Test
+    public void test_updateAccountInfo_when_only_status_changes_should_keep_the_name() throws DatabaseException {
+
+        holder_manager.rebuild();
+        when(delegate_mock.updateAccountInfo(eq(1), anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(true);
+
+        holder_manager.updateAccountInfo(1, "", "Disabled", "", "");
+        holder_manager.updateAccountInfo(2, "Jane Roe", "", "", "");
+
+        //When only account 1's status changed, its name should stay, and account 2's rename was not committed
+        assertEquals(2, index.search("doe", 0, 10).total_matches());
+        assertEquals(0, index.search("roe", 0, 10).total_matches());
+    }
+
+    @Test
+    public void test_updateAccounts_when_holder_set_should_index_only_updated_accounts() throws DatabaseException {
+
+        holder_manager.rebuild();
+        when(delegate_mock.updateAccounts(new int[] {1, 2}, "Sam Roe", "")).thenReturn(new int[] {1, -1});
+
+        holder_manager.updateAccounts(new int[] {1, 2}, "Sam Roe", "");
+
+        //When only account 1 was updated, only it should be renamed in the index
+        assertEquals(List.of(1), index.search("roe", 0, 10).matches().stream().map(match -> match.account_num())
+                .toList());
+        assertEquals(1, index.search("doe", 0, 10).total_matches());
+    }
+
+    @Test
+    public void test_deleteAccount_when_deleted_should_remove_the_name_and_not_when_it_fails() throws DatabaseException {
+
+        holder_manager.rebuild();
+        doThrow(new DatabaseException("Error deleting account", null)).when(delegate_mock).deleteAccount(2);
+
+        holder_manager.deleteAccount(1);
+        assertThrows(DatabaseException.class, () -> holder_manager.deleteAccount(2));
+
+        //When account 1 is deleted and account 2's delete fails, only account 2 should still be found
+        assertEquals(List.of(2), index.search("doe", 0, 10).matches().stream().map(match -> match.account_num())
+                .toList());
+    }
+}
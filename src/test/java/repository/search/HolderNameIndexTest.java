@@ -0,0 +1,144 @@
+package repository.search;
+
+import model.account.HolderMatch;
+import model.account.HolderSearchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HolderNameIndexTest {
+
+    private HolderNameIndex index;
+
+    @BeforeEach
+    public void setUp() {
+
+        index = new HolderNameIndex();
+        index.put(4, "John Smith");
+        index.put(2, "Johnny Walker");
+        index.put(9, "Mary-Jane O'Neil");
+        index.put(7, "John Doe");
+        index.put(3, "Anna Johnson");
+    }
+
+
+    @Test
+    public void test_words_when_name_has_punctuation_should_split_and_lower_case() {
+
+        //When a name is split, hyphens and spaces should end words and apostrophes should be dropped
+        assertEquals(List.of("mary", "jane", "oneil"), HolderNameIndex.words("  Mary-Jane O'Neil "));
+        assertEquals(List.of(), HolderNameIndex.words(" - "));
+    }
+
+    @Test
+    public void test_search_when_prefix_matches_several_words_should_list_whole_words_first() {
+
+        HolderSearchResult result = index.search("john", 0, 10);
+
+        //When "john" is searched, the whole-word matches should come first by account number, then the longer words
+        //alphabetically: "johnny" before "johnson"
+        assertEquals(List.of(new HolderMatch(4, "John Smith"), new HolderMatch(7, "John Doe"),
+                new HolderMatch(2, "Johnny Walker"), new HolderMatch(3, "Anna Johnson")), result.matches());
+        assertEquals(4, result.total_matches());
+        assertFalse(result.truncated());
+    }
+
+    @Test
+    public void test_search_when_several_words_given_should_match_accounts_with_all_of_them() {
+
+        //When two words are searched, both must start a word of the name, in any order
+        assertEquals(List.of(new HolderMatch(4, "John Smith")), index.search("SMI jo", 0, 10).matches());
+        assertEquals(List.of(new HolderMatch(9, "Mary-Jane O'Neil")), index.search("o'neil mary", 0, 10).matches());
+        assertEquals(List.of(new HolderMatch(2, "Johnny Walker")), index.search("john walk", 0, 10).matches());
+        assertEquals(0, index.search("jane walker", 0, 10).total_matches());
+    }
+
+    @Test
+    public void test_search_when_nothing_starts_with_query_should_return_empty() {
+
+        //When no word starts with the query, or the query has no letters, nothing should be found
+        assertEquals(HolderSearchResult.EMPTY, index.search("zed", 0, 10));
+        assertEquals(HolderSearchResult.EMPTY, index.search("  ", 0, 10));
+    }
+
+    @Test
+    public void test_search_when_paged_should_return_each_page_and_the_same_total() {
+
+        HolderSearchResult first = index.search("jo", 0, 2);
+        HolderSearchResult second = index.search("jo", 2, 2);
+
+        //When the matches are read two at a time, the pages should follow on from each other
+        assertEquals(List.of(4, 7), first.matches().stream().map(HolderMatch::account_num).toList());
+        assertEquals(List.of(2, 3), second.matches().stream().map(HolderMatch::account_num).toList());
+        assertEquals(4, first.total_matches());
+        assertEquals(4, second.total_matches());
+    }
+
+    @Test
+    public void test_search_when_a_name_has_two_matching_words_should_list_the_account_once() {
+
+        index.put(5, "Jo Jones");
+
+        //When both of a name's words start with the query, the account should still be listed once
+        HolderSearchResult result = index.search("jo", 0, 10);
+        assertEquals(1, result.matches().stream().filter(match -> match.account_num() == 5).count());
+        assertEquals(5, result.total_matches());
+    }
+
+    @Test
+    public void test_put_when_name_changes_should_only_find_the_new_name() {
+
+        index.put(4, "Jane Smythe");
+
+        //When an account is renamed, its old words should no longer find it
+        assertEquals(List.of(new HolderMatch(4, "Jane Smythe")), index.search("smy", 0, 10).matches());
+        assertEquals(0, index.search("smith", 0, 10).total_matches());
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    public void test_remove_when_last_account_with_a_word_is_removed_should_free_its_nodes() {
+
+        long nodes = index.getNodeCount();
+        index.put(11, "Xavier");
+        index.remove(11);
+
+        //When the only account with a word is removed, the word's nodes should be removed with it
+        assertEquals(nodes, index.getNodeCount());
+        assertEquals(0, index.search("x", 0, 10).total_matches());
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    public void test_search_when_more_than_MAX_MATCHES_should_cap_the_total_and_say_so() {
+
+        for (int i = 100; i < 100 + HolderNameIndex.MAX_MATCHES + 5; i++) {
+
+            index.put(i, "Pat Lee");
+        }
+
+        HolderSearchResult result = index.search("pat", 0, 10);
+
+        //When too many accounts match, the total should stop at MAX_MATCHES and the result be marked truncated
+        assertEquals(HolderNameIndex.MAX_MATCHES, result.total_matches());
+        assertTrue(result.truncated());
+        assertEquals(10, result.matches().size());
+    }
+
+    @Test
+    public void test_replaceWith_when_called_should_take_the_other_index_contents() {
+
+        HolderNameIndex other = new HolderNameIndex();
+        other.put(1, "Zoe Ray");
+
+        index.replaceWith(other);
+
+        //When an index is replaced, only the other index's names should be found
+        assertEquals(1, index.size());
+        assertEquals(List.of(new HolderMatch(1, "Zoe Ray")), index.search("z", 0, 10).matches());
+        assertEquals(0, index.search("john", 0, 10).total_matches());
+    }
+}
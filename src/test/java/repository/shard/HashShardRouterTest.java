@@ -0,0 +1,38 @@
+package repository.shard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashShardRouterTest {
+
+    @Test
+    public void test_shardFor_when_given_consecutive_account_numbers_should_spread_them_across_shards() {
+
+        HashShardRouter router = new HashShardRouter(3);
+
+        //When shardFor() is called on consecutive account numbers, each should land on the next shard in turn
+        assertEquals(0, router.shardFor(3));
+        assertEquals(1, router.shardFor(4));
+        assertEquals(2, router.shardFor(5));
+        assertEquals(0, router.shardFor(6));
+        assertEquals(3, router.getShardCount());
+    }
+
+    @Test
+    public void test_shardFor_when_given_negative_account_number_should_still_return_valid_shard() {
+
+        HashShardRouter router = new HashShardRouter(4);
+
+        //When shardFor() is called with a negative number, the shard returned should still be within range
+        int shard = router.shardFor(-7);
+        assertTrue(shard >= 0 && shard < 4);
+    }
+
+    @Test
+    public void test_constructor_when_given_zero_shards_should_throw_IllegalArgumentException() {
+
+        //When a router is made with no shards, an IllegalArgumentException should be thrown
+        assertThrows(IllegalArgumentException.class, () -> new HashShardRouter(0));
+    }
+}
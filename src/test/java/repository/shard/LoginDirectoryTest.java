@@ -0,0 +1,119 @@
+package repository.shard;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseConnection;
+import repository.exception.DatabaseException;
+
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LoginDirectoryTest {
+
+    private Connection connection_mock;
+    private PreparedStatement statement_mock;
+    private ResultSet result_set_mock;
+    private LoginDirectory directory;
+
+    @BeforeEach
+    public void setUp() {
+
+        connection_mock = mock(Connection.class);
+        statement_mock = mock(PreparedStatement.class);
+        result_set_mock = mock(ResultSet.class);
+
+        directory = new LoginDirectory(new DatabaseConnection("jdbc:mysql://localhost/directory", "user", "pass")) {
+
+            @Override
+            public Connection getConnection() {
+
+                return connection_mock;
+            }
+        };
+    }
+
+
+    @Test
+    public void test_reserve_when_successful_should_return_generated_account_number() throws DatabaseException, SQLException {
+
+        //When prepareStatement() and getGeneratedKeys() are run, mocks are to be returned
+        when(connection_mock.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(statement_mock);
+        when(statement_mock.getGeneratedKeys()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true);
+        when(result_set_mock.getInt(1)).thenReturn(42);
+
+        //When reserve() is called, the generated account number should be returned
+        assertEquals(42, directory.reserve("john_doe"));
+        verify(statement_mock).setString(1, "john_doe");
+    }
+
+    @Test
+    public void test_reserve_when_login_is_taken_should_return_negative_2() throws DatabaseException, SQLException {
+
+        //When prepareStatement() is run, the duplicate entry error is to occur
+        when(connection_mock.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS)))
+                .thenThrow(new SQLException("Duplicate entry", "23000", 1062));
+
+        //When reserve() is called with a taken login, -2 should be returned
+        assertEquals(-2, directory.reserve("john_doe"));
+    }
+
+    @Test
+    public void test_lookup_when_login_exists_should_return_account_number() throws DatabaseException, SQLException {
+
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true);
+        when(result_set_mock.getInt("account_num")).thenReturn(7);
+
+        //When lookup() is called with a known login, its account number should be returned
+        assertEquals(7, directory.lookup("jane_doe"));
+    }
+
+    @Test
+    public void test_lookup_when_login_does_not_exist_should_return_negative_1() throws DatabaseException, SQLException {
+
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(false);
+
+        //When lookup() is called with an unknown login, -1 should be returned
+        assertEquals(-1, directory.lookup("nobody"));
+    }
+
+    @Test
+    public void test_register_when_account_number_is_taken_should_return_false() throws DatabaseException, SQLException {
+
+        when(connection_mock.prepareStatement(anyString())).thenThrow(new SQLException("Duplicate entry", "23000", 1062));
+
+        //When register() is called with a taken account number or login, false should be returned
+        assertFalse(directory.register(9, "john_doe"));
+    }
+
+    @Test
+    public void test_remove_when_SQLException_occurs_should_throw_DatabaseException() throws SQLException {
+
+        when(connection_mock.prepareStatement(anyString())).thenThrow(new SQLException("Database error"));
+
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> directory.remove(3));
+
+        //When remove() fails, the thrown error should name the account number and wrap the SQLException
+        assertTrue(exception.getMessage().contains("Error removing account number from directory: 3"));
+        assertInstanceOf(SQLException.class, exception.getCause());
+    }
+
+    @Test
+    public void test_loginFor_when_account_exists_should_return_its_login() throws DatabaseException, SQLException {
+
+        when(connection_mock.prepareStatement(anyString())).thenReturn(statement_mock);
+        when(statement_mock.executeQuery()).thenReturn(result_set_mock);
+        when(result_set_mock.next()).thenReturn(true, false);
+        when(result_set_mock.getString("login")).thenReturn("jane_doe");
+
+        //When loginFor() is called, the account's login should be returned, and null for an unknown account
+        assertEquals("jane_doe", directory.loginFor(7));
+        assertNull(directory.loginFor(8));
+    }
+}
@@ -0,0 +1,37 @@
+package repository.shard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RangeShardRouterTest {
+
+    @Test
+    public void test_shardFor_when_given_account_numbers_in_each_range_should_return_that_ranges_shard() {
+
+        RangeShardRouter router = new RangeShardRouter(3, 1000);
+
+        //When shardFor() is called, the account number's range should decide the shard
+        assertEquals(0, router.shardFor(1));
+        assertEquals(0, router.shardFor(999));
+        assertEquals(1, router.shardFor(1000));
+        assertEquals(2, router.shardFor(2500));
+    }
+
+    @Test
+    public void test_shardFor_when_account_number_is_past_last_range_should_return_last_shard() {
+
+        RangeShardRouter router = new RangeShardRouter(2, 100);
+
+        //When shardFor() is called with a number beyond every range, the last shard should be returned
+        assertEquals(1, router.shardFor(100000));
+        assertEquals(2, router.getShardCount());
+    }
+
+    @Test
+    public void test_constructor_when_given_zero_range_size_should_throw_IllegalArgumentException() {
+
+        //When a router is made with a range size of 0, an IllegalArgumentException should be thrown
+        assertThrows(IllegalArgumentException.class, () -> new RangeShardRouter(2, 0));
+    }
+}
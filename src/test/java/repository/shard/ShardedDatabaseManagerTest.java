@@ -0,0 +1,407 @@
+package repository.shard;
+
+import model.account.Account;
+import model.account.AccountLimits;
+import model.account.NewAccount;
+import model.transaction.ActivitySummary;
+import model.transaction.ActivityTotals;
+import model.transaction.RollupPeriod;
+import model.transaction.TransactionRecord;
+import model.transaction.TransactionType;
+import model.session.SessionContext;
+import model.user.Customer;
+import model.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.AccountConsumer;
+import repository.AccountKeyConsumer;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+import repository.offline.JournalEntry;
+import repository.offline.ReplayOutcome;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ShardedDatabaseManagerTest {
+
+    private LoginDirectory directory_mock;
+    private DatabaseManager shard_0_mock;
+    private DatabaseManager shard_1_mock;
+    private ShardedDatabaseManager sharded_manager;
+
+    @BeforeEach
+    public void setUp() {
+
+        //Two shards are used with hash routing, so even account numbers go to shard 0 and odd ones to shard 1
+        directory_mock = mock(LoginDirectory.class);
+        shard_0_mock = mock(DatabaseManager.class);
+        shard_1_mock = mock(DatabaseManager.class);
+        sharded_manager = new ShardedDatabaseManager(directory_mock, List.of(shard_0_mock, shard_1_mock),
+                new HashShardRouter(2));
+    }
+
+
+    @Test
+    public void test_constructor_when_shard_count_does_not_match_router_should_throw_IllegalArgumentException() {
+
+        //When the router expects three shards but only two are provided, an IllegalArgumentException should be thrown
+        assertThrows(IllegalArgumentException.class, () -> new ShardedDatabaseManager(directory_mock,
+                List.of(shard_0_mock, shard_1_mock), new HashShardRouter(3)));
+    }
+
+    @Test
+    public void test_getAccount_when_called_should_only_query_the_owning_shard() throws DatabaseException {
+
+        Account account = new Account(5, "John Doe", 100, "Active");
+        when(shard_1_mock.getAccount(5)).thenReturn(account);
+
+        //When getAccount() is called for an odd account number, only shard 1 should be asked
+        assertEquals(account, sharded_manager.getAccount(5));
+        verify(shard_0_mock, never()).getAccount(anyInt());
+    }
+
+    @Test
+    public void test_getUser_by_login_when_login_is_in_directory_should_read_from_owning_shard() throws DatabaseException {
+
+        Customer customer = new Customer("jane_doe", "12345", new Account(4, "Jane Doe", 50, "Active"));
+        when(directory_mock.lookup("jane_doe")).thenReturn(4);
+        when(shard_0_mock.getUser("jane_doe")).thenReturn(customer);
+
+        //When getUser() is called with a login, the directory should send the lookup to shard 0
+        User user = sharded_manager.getUser("jane_doe");
+        assertEquals(customer, user);
+        verify(shard_1_mock, never()).getUser(anyString());
+    }
+
+    @Test
+    public void test_getUser_by_login_when_login_is_unknown_should_return_null_without_querying_shards() throws DatabaseException {
+
+        when(directory_mock.lookup("nobody")).thenReturn(-1);
+
+        //When getUser() is called with an unknown login, no shard should be asked at all
+        assertNull(sharded_manager.getUser("nobody"));
+        verifyNoInteractions(shard_0_mock, shard_1_mock);
+    }
+
+    @Test
+    public void test_replacePin_when_login_is_in_directory_should_replace_it_on_owning_shard() throws DatabaseException {
+
+        when(directory_mock.lookup("jane_doe")).thenReturn(5);
+        when(shard_1_mock.replacePin("jane_doe", "old-hash", "new-hash")).thenReturn(true);
+
+        //When replacePin() is called, only the shard that owns the account should be asked to replace it
+        assertTrue(sharded_manager.replacePin("jane_doe", "old-hash", "new-hash"));
+        verifyNoInteractions(shard_0_mock);
+    }
+
+    @Test
+    public void test_replacePin_when_login_is_unknown_should_return_false_without_querying_shards() throws DatabaseException {
+
+        when(directory_mock.lookup("nobody")).thenReturn(-1);
+
+        assertFalse(sharded_manager.replacePin("nobody", "old-hash", "new-hash"));
+        verifyNoInteractions(shard_0_mock, shard_1_mock);
+    }
+
+    @Test
+    public void test_loadSession_when_login_is_in_directory_should_load_from_owning_shard() throws DatabaseException {
+
+        SessionContext session = new SessionContext(null, List.of(), AccountLimits.DEFAULT, 5);
+        when(directory_mock.lookup("jane_doe")).thenReturn(4);
+        when(shard_0_mock.loadSession("jane_doe")).thenReturn(session);
+
+        //When loadSession() is called, the whole session should come from the shard that owns the account
+        assertEquals(session, sharded_manager.loadSession("jane_doe"));
+        verifyNoInteractions(shard_1_mock);
+    }
+
+    @Test
+    public void test_loadSession_when_login_is_unknown_should_return_null_without_querying_shards() throws DatabaseException {
+
+        when(directory_mock.lookup("nobody")).thenReturn(-1);
+
+        //When loadSession() is called with an unknown login, no shard should be asked at all
+        assertNull(sharded_manager.loadSession("nobody"));
+        verifyNoInteractions(shard_0_mock, shard_1_mock);
+    }
+
+    @Test
+    public void test_createNewAccount_when_successful_should_store_account_on_shard_for_reserved_number() throws DatabaseException {
+
+        when(directory_mock.reserve("john_doe")).thenReturn(7);
+        when(shard_1_mock.createNewAccount(7, "john_doe", "12345", "John Doe", 100, "Active")).thenReturn(7);
+
+        //When createNewAccount() is called, the reserved number should decide the shard and be returned
+        assertEquals(7, sharded_manager.createNewAccount("john_doe", "12345", "John Doe", 100, "Active"));
+        verify(directory_mock, never()).remove(anyInt());
+    }
+
+    @Test
+    public void test_createNewAccount_when_login_is_taken_should_return_negative_2_without_touching_shards() throws DatabaseException {
+
+        when(directory_mock.reserve("john_doe")).thenReturn(-2);
+
+        //When createNewAccount() is called with a login taken on any shard, -2 should be returned
+        assertEquals(-2, sharded_manager.createNewAccount("john_doe", "12345", "John Doe", 100, "Active"));
+        verifyNoInteractions(shard_0_mock, shard_1_mock);
+    }
+
+    @Test
+    public void test_createNewAccount_when_shard_insert_fails_should_release_directory_entry() throws DatabaseException {
+
+        when(directory_mock.reserve("john_doe")).thenReturn(8);
+        when(shard_0_mock.createNewAccount(8, "john_doe", "12345", "John Doe", 100, "Active")).thenReturn(-1);
+
+        //When the shard cannot store the account, the reserved directory entry should be removed again
+        assertEquals(-1, sharded_manager.createNewAccount("john_doe", "12345", "John Doe", 100, "Active"));
+        verify(directory_mock).remove(8);
+    }
+
+    @Test
+    public void test_createNewAccounts_when_called_should_batch_per_shard_and_release_refused_logins() throws DatabaseException {
+
+        NewAccount even = new NewAccount(4, "jane_doe", "12345", "Jane Doe", 50, "Active");
+        NewAccount odd = new NewAccount(5, "john_doe", "12345", "John Doe", 50, "Active");
+        NewAccount taken = new NewAccount(6, "taken", "12345", "Taken", 50, "Active");
+
+        //When the logins are registered, the third is to be taken already, and shard 1 is to refuse its account
+        when(directory_mock.register(4, "jane_doe")).thenReturn(true);
+        when(directory_mock.register(5, "john_doe")).thenReturn(true);
+        when(directory_mock.register(6, "taken")).thenReturn(false);
+        when(shard_0_mock.createNewAccounts(List.of(even))).thenReturn(new int[] {4});
+        when(shard_1_mock.createNewAccounts(List.of(odd))).thenReturn(new int[] {-1});
+
+        int[] results = sharded_manager.createNewAccounts(List.of(even, odd, taken));
+
+        //When createNewAccounts() is called, each shard should get one batch and results should keep input order
+        assertArrayEquals(new int[] {4, -1, -2}, results);
+        verify(directory_mock).remove(5);
+        verify(directory_mock, never()).remove(4);
+    }
+
+    @Test
+    public void test_deleteAccount_when_called_should_delete_from_shard_and_directory() throws DatabaseException {
+
+        sharded_manager.deleteAccount(3);
+
+        //When deleteAccount() is called, both the shard row and the directory entry should be removed
+        verify(shard_1_mock).deleteAccount(3);
+        verify(directory_mock).remove(3);
+    }
+
+    @Test
+    public void test_updateAccountInfo_when_login_changes_should_update_directory_first() throws DatabaseException {
+
+        when(shard_0_mock.updateAccountInfo(2, "", "", "new_login", "")).thenReturn(true);
+
+        //When updateAccountInfo() changes the login, the directory should be updated along with the shard
+        assertTrue(sharded_manager.updateAccountInfo(2, "", "", "new_login", ""));
+        verify(directory_mock).updateLogin(2, "new_login");
+    }
+
+    @Test
+    public void test_updateAccountInfo_when_shard_fails_should_restore_the_old_login_in_the_directory() throws DatabaseException {
+
+        DatabaseException shard_error = new DatabaseException("Error updating account", new SQLException());
+        when(directory_mock.loginFor(2)).thenReturn("old_login");
+        when(shard_0_mock.updateAccountInfo(2, "", "", "new_login", "")).thenThrow(shard_error);
+
+        //When the shard fails after the directory took the new login, the directory should be put back
+        assertSame(shard_error, assertThrows(DatabaseException.class, () ->
+                sharded_manager.updateAccountInfo(2, "", "", "new_login", "")));
+        verify(directory_mock).updateLogin(2, "new_login");
+        verify(directory_mock).updateLogin(2, "old_login");
+    }
+
+    @Test
+    public void test_updateAccountInfo_when_shard_finds_no_account_should_restore_the_old_login() throws DatabaseException {
+
+        when(directory_mock.loginFor(2)).thenReturn("old_login");
+        when(shard_0_mock.updateAccountInfo(2, "", "", "new_login", "")).thenReturn(false);
+
+        //When the shard updates nothing, the directory should not keep the new login
+        assertFalse(sharded_manager.updateAccountInfo(2, "", "", "new_login", ""));
+        verify(directory_mock).updateLogin(2, "old_login");
+    }
+
+    @Test
+    public void test_updateAccountInfo_when_login_unchanged_should_not_touch_the_directory() throws DatabaseException {
+
+        when(shard_0_mock.updateAccountInfo(2, "Jane Roe", "", "", "")).thenReturn(true);
+
+        //When only the holder changes, the directory should be left alone
+        assertTrue(sharded_manager.updateAccountInfo(2, "Jane Roe", "", "", ""));
+        verifyNoInteractions(directory_mock);
+    }
+
+    @Test
+    public void test_getAllAccounts_when_called_should_merge_every_shard_in_account_order() throws DatabaseException {
+
+        when(shard_0_mock.getAllAccounts()).thenReturn(List.of(
+                new Account(2, "B", 20, "Active"), new Account(4, "D", 40, "Active")));
+        when(shard_1_mock.getAllAccounts()).thenReturn(List.of(
+                new Account(1, "A", 10, "Active"), new Account(3, "C", 30, "Disabled")));
+
+        List<Account> accounts = sharded_manager.getAllAccounts();
+
+        //When getAllAccounts() is called, both shards should be scanned and merged in account number order
+        assertEquals(4, accounts.size());
+        for (int index = 0; index < accounts.size(); index++) {
+
+            assertEquals(index + 1, accounts.get(index).getAccountNumber());
+        }
+    }
+
+    @Test
+    public void test_getAllAccounts_when_a_shard_fails_should_throw_its_DatabaseException() throws DatabaseException {
+
+        DatabaseException shard_error = new DatabaseException("Error retrieving all accounts", new SQLException());
+        when(shard_0_mock.getAllAccounts()).thenReturn(List.of());
+        when(shard_1_mock.getAllAccounts()).thenThrow(shard_error);
+
+        //When a shard fails during a scan, the shard's own exception should reach the caller
+        DatabaseException exception = assertThrows(DatabaseException.class, () -> sharded_manager.getAllAccounts());
+        assertSame(shard_error, exception);
+    }
+
+    @Test
+    public void test_getAccounts_when_numbers_span_shards_should_ask_each_shard_for_its_own_numbers() throws DatabaseException {
+
+        when(shard_0_mock.getAccounts(new int[] {4})).thenReturn(Map.of(4, new Account(4, "D", 40, "Active")));
+        when(shard_1_mock.getAccounts(new int[] {3, 5})).thenReturn(Map.of(3, new Account(3, "C", 30, "Active")));
+
+        Map<Integer, Account> accounts = sharded_manager.getAccounts(new int[] {3, 4, 5});
+
+        //When getAccounts() is called, each shard should only be asked for its numbers and the results merged
+        assertEquals(2, accounts.size());
+        assertEquals("D", accounts.get(4).getHolderName());
+        assertEquals("C", accounts.get(3).getHolderName());
+    }
+
+    @Test
+    public void test_updateAccounts_when_numbers_span_shards_should_keep_results_in_input_order() throws DatabaseException {
+
+        when(shard_0_mock.updateAccounts(new int[] {2, 6}, "", "Disabled")).thenReturn(new int[] {1, -1});
+        when(shard_1_mock.updateAccounts(new int[] {3}, "", "Disabled")).thenReturn(new int[] {0});
+
+        //When updateAccounts() is called, each shard should update its own accounts, and the results keep input order
+        assertArrayEquals(new int[] {1, 0, -1}, sharded_manager.updateAccounts(new int[] {2, 3, 6}, "", "Disabled"));
+    }
+
+    @Test
+    public void test_loginExists_when_directory_knows_login_should_return_true_without_asking_shards() throws DatabaseException {
+
+        when(directory_mock.lookup("jane_doe")).thenReturn(4);
+        when(directory_mock.lookup("nobody")).thenReturn(-1);
+
+        //When a login is checked, the directory alone should answer
+        assertTrue(sharded_manager.loginExists("jane_doe"));
+        assertFalse(sharded_manager.loginExists("nobody"));
+        verifyNoInteractions(shard_0_mock, shard_1_mock);
+    }
+
+    @Test
+    public void test_getTransactionHistory_when_called_should_only_query_the_owning_shard() throws DatabaseException {
+
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 2, 1, 0, 0);
+        List<TransactionRecord> history = List.of(new TransactionRecord(TransactionType.DEPOSIT, 10, 110,
+                LocalDateTime.of(2025, 1, 5, 9, 0)));
+        when(shard_0_mock.getTransactionHistory(4, from, to)).thenReturn(history);
+
+        //When getTransactionHistory() is called for an even account number, the ledger is read from shard 0 only
+        assertEquals(history, sharded_manager.getTransactionHistory(4, from, to));
+        verifyNoInteractions(shard_1_mock);
+    }
+
+    @Test
+    public void test_getActivitySummaries_when_called_should_only_query_the_owning_shard() throws DatabaseException {
+
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        LocalDate to = LocalDate.of(2025, 4, 1);
+        List<ActivitySummary> summaries = List.of(new ActivitySummary(from, 1, 100, 0, 0, 1_100));
+        when(shard_1_mock.getActivitySummaries(5, RollupPeriod.MONTH, from, to)).thenReturn(summaries);
+
+        //When getActivitySummaries() is called for an odd account number, the rollups are read from shard 1 only
+        assertEquals(summaries, sharded_manager.getActivitySummaries(5, RollupPeriod.MONTH, from, to));
+        verifyNoInteractions(shard_0_mock);
+    }
+
+    @Test
+    public void test_getActivityTotals_when_shards_share_a_day_should_add_their_totals_in_day_order() throws DatabaseException {
+
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        LocalDate to = LocalDate.of(2025, 4, 1);
+        LocalDate day_4 = LocalDate.of(2025, 3, 4);
+        LocalDate day_5 = LocalDate.of(2025, 3, 5);
+        when(shard_0_mock.getActivityTotals(RollupPeriod.DAY, from, to)).thenReturn(List.of(
+                new ActivityTotals(day_5, 1, 1, 100, 0, 0)));
+        when(shard_1_mock.getActivityTotals(RollupPeriod.DAY, from, to)).thenReturn(List.of(
+                new ActivityTotals(day_4, 2, 2, 50, 1, 20), new ActivityTotals(day_5, 1, 0, 0, 1, 30)));
+
+        //When getActivityTotals() is called, a day found on both shards should be added up and the days kept in order
+        assertEquals(List.of(new ActivityTotals(day_4, 2, 2, 50, 1, 20), new ActivityTotals(day_5, 2, 1, 100, 1, 30)),
+                sharded_manager.getActivityTotals(RollupPeriod.DAY, from, to));
+    }
+
+    @Test
+    public void test_rebuildRollups_when_called_should_rebuild_every_shard() throws DatabaseException {
+
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 4, 1);
+        when(shard_0_mock.rebuildRollups(from, to)).thenReturn(3);
+        when(shard_1_mock.rebuildRollups(from, to)).thenReturn(3);
+
+        //When rebuildRollups() is called, each shard should rebuild the same months
+        assertEquals(3, sharded_manager.rebuildRollups(from, to));
+        verify(shard_0_mock).rebuildRollups(from, to);
+        verify(shard_1_mock).rebuildRollups(from, to);
+    }
+
+    @Test
+    public void test_scanAccountKeys_when_called_should_scan_every_shard() throws DatabaseException {
+
+        AccountKeyConsumer consumer = (account_num, login) -> { };
+        when(shard_0_mock.scanAccountKeys(consumer)).thenReturn(2);
+        when(shard_1_mock.scanAccountKeys(consumer)).thenReturn(3);
+
+        //When every account is scanned, each shard should stream to the same consumer and the counts should add up
+        assertEquals(5, sharded_manager.scanAccountKeys(consumer));
+    }
+
+    @Test
+    public void test_scanAccounts_when_called_should_scan_every_shard() throws DatabaseException {
+
+        AccountConsumer consumer = (account_num, holder, balance, status) -> { };
+        when(shard_0_mock.scanAccounts(consumer)).thenReturn(4);
+        when(shard_1_mock.scanAccounts(consumer)).thenReturn(1);
+
+        //When every account is scanned, each shard should stream to the same consumer and the counts should add up
+        assertEquals(5, sharded_manager.scanAccounts(consumer));
+    }
+
+    @Test
+    public void test_applyJournalEntries_when_called_should_replay_per_shard_and_keep_input_order() throws DatabaseException {
+
+        JournalEntry even = new JournalEntry(1, 4, TransactionType.DEPOSIT, 10, 1_000);
+        JournalEntry odd = new JournalEntry(2, 5, TransactionType.WITHDRAWAL, 20, 1_000);
+        JournalEntry even_again = new JournalEntry(3, 6, TransactionType.DEPOSIT, 30, 1_000);
+
+        when(shard_0_mock.applyJournalEntries("terminal-1", List.of(even, even_again)))
+                .thenReturn(new ReplayOutcome[] {ReplayOutcome.APPLIED, ReplayOutcome.ALREADY_APPLIED});
+        when(shard_1_mock.applyJournalEntries("terminal-1", List.of(odd)))
+                .thenReturn(new ReplayOutcome[] {ReplayOutcome.INSUFFICIENT_FUNDS});
+
+        //When entries are replayed, each shard should get its own entries in order, and outcomes keep input order
+        assertArrayEquals(new ReplayOutcome[] {ReplayOutcome.APPLIED, ReplayOutcome.INSUFFICIENT_FUNDS,
+                ReplayOutcome.ALREADY_APPLIED}, sharded_manager.applyJournalEntries("terminal-1",
+                List.of(even, odd, even_again)));
+    }
+}
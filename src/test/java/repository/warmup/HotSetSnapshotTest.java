@@ -0,0 +1,75 @@
+package repository.warmup;
+
+import model.account.HotAccount;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HotSetSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void test_read_when_snapshot_was_written_should_return_the_same_accounts_in_order() throws IOException {
+
+        Path path = directory.resolve("hot-accounts.snapshot");
+        List<HotAccount> hot_set = List.of(new HotAccount(7, 400), new HotAccount(3, 120), new HotAccount(12, 5));
+
+        HotSetSnapshot.write(path, hot_set);
+
+        //When written and read back, the accounts should come back hottest first, in 12 bytes each plus the header
+        assertEquals(hot_set, HotSetSnapshot.read(path));
+        assertEquals(12 + 3 * 12, Files.size(path));
+        assertFalse(Files.exists(directory.resolve("hot-accounts.snapshot.tmp")));
+    }
+
+    @Test
+    public void test_write_when_snapshot_exists_should_replace_it() throws IOException {
+
+        Path path = directory.resolve("hot-accounts.snapshot");
+        HotSetSnapshot.write(path, List.of(new HotAccount(7, 400)));
+
+        HotSetSnapshot.write(path, List.of(new HotAccount(9, 30)));
+
+        //When a newer snapshot is written, only it should be read back
+        assertEquals(List.of(new HotAccount(9, 30)), HotSetSnapshot.read(path));
+    }
+
+    @Test
+    public void test_read_when_no_snapshot_exists_should_return_empty_list() throws IOException {
+
+        //When the host never wrote a snapshot, it starts cold
+        assertTrue(HotSetSnapshot.read(directory.resolve("missing.snapshot")).isEmpty());
+    }
+
+    @Test
+    public void test_read_when_file_is_not_a_snapshot_should_throw_IOException() throws IOException {
+
+        Path path = directory.resolve("hot-accounts.snapshot");
+        Files.write(path, "account_num,count\n7,400\n".getBytes());
+
+        //When the file does not start with the snapshot header, an IOException should be thrown
+        assertThrows(IOException.class, () -> HotSetSnapshot.read(path));
+    }
+
+    @Test
+    public void test_read_when_snapshot_is_truncated_should_throw_IOException() throws IOException {
+
+        Path path = directory.resolve("hot-accounts.snapshot");
+        HotSetSnapshot.write(path, List.of(new HotAccount(7, 400), new HotAccount(3, 120)));
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 5));
+
+        //When the file is shorter than its header says, an IOException should be thrown
+        IOException error = assertThrows(IOException.class, () -> HotSetSnapshot.read(path));
+        assertTrue(error.getMessage().contains("truncated"));
+    }
+}
@@ -0,0 +1,104 @@
+package repository.warmup;
+
+import model.account.Account;
+import model.account.AccountLimits;
+import model.account.HotAccount;
+import model.session.SessionContext;
+import model.transaction.TransactionType;
+import model.user.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseManager;
+import repository.exception.DatabaseException;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class WarmStartDatabaseManagerTest {
+
+    private DatabaseManager delegate_mock;
+    private WarmStartDatabaseManager warm_manager;
+
+    @BeforeEach
+    public void setUp() {
+
+        delegate_mock = mock(DatabaseManager.class);
+        warm_manager = new WarmStartDatabaseManager(delegate_mock, 4, 100);
+    }
+
+
+    private static Customer customer(int account_num) {
+
+        return new Customer("user_" + account_num, "12345", new Account(account_num, "John Doe", 100, "Active"));
+    }
+
+    @Test
+    public void test_constructor_when_thread_count_is_below_1_should_throw_IllegalArgumentException() {
+
+        //When no thread is allowed, an IllegalArgumentException should be thrown
+        assertThrows(IllegalArgumentException.class, () -> new WarmStartDatabaseManager(delegate_mock, 0, 100));
+    }
+
+    @Test
+    public void test_warm_when_accounts_exist_should_read_each_account() throws DatabaseException {
+
+        when(delegate_mock.getUser(7)).thenReturn(customer(7));
+        when(delegate_mock.getUser(3)).thenReturn(customer(3));
+
+        WarmUpResult result = warm_manager.warm(List.of(new HotAccount(7, 400), new HotAccount(3, 120)));
+
+        //When warmed, each account and its latest ledger should be read
+        assertEquals(2, result.requested());
+        assertEquals(2, result.loaded());
+        verify(delegate_mock).getTransactionHistory(eq(7), any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(delegate_mock).getTransactionHistory(eq(3), any(LocalDateTime.class), any(LocalDateTime.class));
+        assertEquals(2, warm_manager.getWarmedCount());
+    }
+
+    @Test
+    public void test_warm_when_accounts_are_gone_or_fail_should_count_them_and_carry_on() throws DatabaseException {
+
+        when(delegate_mock.getUser(7)).thenReturn(customer(7));
+        when(delegate_mock.getUser(3)).thenReturn(null);
+        when(delegate_mock.getUser(5)).thenThrow(new DatabaseException("Error retrieving user", new SQLException()));
+
+        WarmUpResult result = warm_manager.warm(List.of(new HotAccount(7, 400), new HotAccount(3, 120),
+                new HotAccount(5, 60)));
+
+        //When one account was deleted and another can't be read, the rest should still be warmed
+        assertEquals(1, result.loaded());
+        assertEquals(1, result.missing());
+        assertEquals(1, result.failed());
+        assertEquals(1, warm_manager.getWarmedCount());
+    }
+
+    @Test
+    public void test_getHitRatio_when_warmed_and_cold_accounts_are_used_should_count_first_uses_only() throws DatabaseException {
+
+        when(delegate_mock.getUser(7)).thenReturn(customer(7));
+        warm_manager.warm(List.of(new HotAccount(7, 400)));
+
+        when(delegate_mock.loadSession("user_7")).thenReturn(
+                new SessionContext(customer(7), List.of(), AccountLimits.DEFAULT, 5));
+        warm_manager.loadSession("user_7");
+        warm_manager.applyTransaction(7, 150, TransactionType.DEPOSIT, 50);
+        warm_manager.applyTransaction(9, 150, TransactionType.DEPOSIT, 50);
+
+        //When a warmed account is used twice and a cold one once, there should be one hit and one miss
+        assertEquals(1, warm_manager.getHits());
+        assertEquals(1, warm_manager.getMisses());
+        assertEquals(0.5, warm_manager.getHitRatio());
+    }
+
+    @Test
+    public void test_getHitRatio_when_nothing_used_should_be_0() {
+
+        //When no account was used yet, the ratio should be 0 rather than undefined
+        assertEquals(0, warm_manager.getHitRatio());
+    }
+}
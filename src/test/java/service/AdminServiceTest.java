@@ -2,13 +2,43 @@ package service;
 
 import model.account.Account;
 import model.account.AccountInfo;
+import model.account.AccountList;
+import model.account.BalanceEntry;
+import model.account.BalanceRangePage;
+import model.account.BulkUpdateResult;
 import model.account.CreationResult;
+import model.account.Dashboard;
 import model.account.DeletionResult;
+import model.account.HolderMatch;
+import model.account.HolderSearchResult;
+import model.account.HotAccount;
+import model.account.NewAccount;
+import model.account.NewAccountList;
+import model.account.SubBalanceResult;
+import model.account.StatusTotals;
+import model.transaction.ActivityTotals;
+import model.transaction.DailyActivity;
+import model.transaction.TransactionType;
+import model.transaction.RollupPeriod;
 import model.user.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import repository.DatabaseManager;
+import repository.allocation.AccountNumberAllocator;
+import repository.credential.PinHasher;
+import repository.dashboard.ActivityCounters;
 import repository.exception.DatabaseException;
+import repository.hotspot.HeavyHitterTracker;
+import repository.search.HolderNameIndex;
+import repository.search.BalanceRangeIndex;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -16,6 +46,7 @@ import static org.mockito.Mockito.*;
 class AdminServiceTest {
 
     private DatabaseManager db_manager_mock;
+    private PinHasher pin_hasher_mock;
     private AdminService admin_service;
 
     @BeforeEach
@@ -23,7 +54,11 @@ class AdminServiceTest {
 
         db_manager_mock = mock(DatabaseManager.class);
 
-        admin_service = new AdminService(db_manager_mock);
+        //A pin's "hash" is the pin with a prefix, so the tests can tell what reached the repository
+        pin_hasher_mock = mock(PinHasher.class);
+        when(pin_hasher_mock.hash(anyString())).thenAnswer(invocation -> "hash-" + invocation.getArgument(0));
+
+        admin_service = AdminService.builder(db_manager_mock, pin_hasher_mock).build();
     }
 
 
@@ -45,6 +80,16 @@ class AdminServiceTest {
     }
 
 
+    @Test
+    void test_isLoginTaken_when_login_exists_should_return_true() throws DatabaseException {
+
+        when(db_manager_mock.loginExists("JD5700")).thenReturn(true);
+
+        //When the database reports the login, isLoginTaken() should return true; other logins should be free
+        assertTrue(admin_service.isLoginTaken("JD5700"));
+        assertFalse(admin_service.isLoginTaken("new_login"));
+    }
+
     @Test
     void test_createAccount_when_account_successfully_made_should_return_success_CreationResult() throws DatabaseException {
 
@@ -55,7 +100,7 @@ class AdminServiceTest {
         boolean is_active = true;
 
         //When createNewAccount() called, an account number is to be returned
-        when(db_manager_mock.createNewAccount(login, pin, holder, starting_balance, "Active")).thenReturn(1);
+        when(db_manager_mock.createNewAccount(login, "hash-" + pin, holder, starting_balance, "Active")).thenReturn(1);
 
         CreationResult result = admin_service.createAccount(login, pin, holder, starting_balance, is_active);
 
@@ -63,7 +108,7 @@ class AdminServiceTest {
         //a SUCCESS status; account numbers should also match, and createNewAccount() should have been called once
         assertEquals(CreationResult.Status.SUCCESS, result.getStatus());
         assertEquals(1, result.getAccountNumber());
-        verify(db_manager_mock, times(1)).createNewAccount(login, pin, holder, starting_balance, "Active");
+        verify(db_manager_mock, times(1)).createNewAccount(login, "hash-" + pin, holder, starting_balance, "Active");
     }
 
     @Test
@@ -76,7 +121,7 @@ class AdminServiceTest {
         boolean is_active = false;
 
         //When createNewAccount() called, -2 is to be returned to indicate a duplicate entry
-        when(db_manager_mock.createNewAccount(login, pin, holder, starting_balance, "Disabled")).thenReturn(-2);
+        when(db_manager_mock.createNewAccount(login, "hash-" + pin, holder, starting_balance, "Disabled")).thenReturn(-2);
 
         CreationResult result = admin_service.createAccount(login, pin, holder, starting_balance, is_active);
 
@@ -84,7 +129,7 @@ class AdminServiceTest {
         //a DUPLICATE_ACCOUNT status; account numbers of -1 should also match, and createNewAccount() should have been called once
         assertEquals(CreationResult.Status.DUPLICATE_ACCOUNT, result.getStatus());
         assertEquals(-1, result.getAccountNumber());
-        verify(db_manager_mock, times(1)).createNewAccount(login, pin, holder, starting_balance, "Disabled");
+        verify(db_manager_mock, times(1)).createNewAccount(login, "hash-" + pin, holder, starting_balance, "Disabled");
     }
 
     @Test
@@ -97,7 +142,7 @@ class AdminServiceTest {
         boolean is_active = false;
 
         //When createNewAccount() called, -2 is to be returned to indicate an error
-        when(db_manager_mock.createNewAccount(login, pin, holder, starting_balance, "Disabled")).thenReturn(-1);
+        when(db_manager_mock.createNewAccount(login, "hash-" + pin, holder, starting_balance, "Disabled")).thenReturn(-1);
 
         CreationResult result = admin_service.createAccount(login, pin, holder, starting_balance, is_active);
 
@@ -105,9 +150,59 @@ class AdminServiceTest {
         //an ERROR status; account numbers of -1 should also match, and createNewAccount() should have been called once
         assertEquals(CreationResult.Status.ERROR, result.getStatus());
         assertEquals(-1, result.getAccountNumber());
-        verify(db_manager_mock, times(1)).createNewAccount(login, pin, holder, starting_balance, "Disabled");
+        verify(db_manager_mock, times(1)).createNewAccount(login, "hash-" + pin, holder, starting_balance, "Disabled");
+    }
+
+
+    @Test
+    void test_createAccount_when_allocator_is_set_should_create_account_with_allocated_number() throws DatabaseException {
+
+        AccountNumberAllocator allocator_mock = mock(AccountNumberAllocator.class);
+        AdminService allocating_service = AdminService.builder(db_manager_mock, pin_hasher_mock)
+                .allocator(allocator_mock).build();
+
+        //When the allocator is asked for a number, 4100 is to be returned
+        when(allocator_mock.next()).thenReturn(4100);
+        when(db_manager_mock.createNewAccount(4100, "JD6100", "hash-12345", "John Doe", 300, "Active"))
+                .thenReturn(4100);
+
+        CreationResult result = allocating_service.createAccount("JD6100", "12345", "John Doe", 300, true);
+
+        //When createAccount() is called, the allocated number should be passed to the database, not generated there
+        assertEquals(CreationResult.Status.SUCCESS, result.getStatus());
+        verify(db_manager_mock, never()).createNewAccount(anyString(), anyString(), anyString(), anyInt(), anyString());
+    }
+
+    @Test
+    void test_createAccounts_when_allocator_is_set_should_number_accounts_and_report_each_result() throws DatabaseException {
+
+        AccountNumberAllocator allocator_mock = mock(AccountNumberAllocator.class);
+        AdminService allocating_service = AdminService.builder(db_manager_mock, pin_hasher_mock)
+                .allocator(allocator_mock).build();
+        List<NewAccount> drafts = List.of(
+                new NewAccount(0, "JD6100", "12345", "John Doe", 300, "Active"),
+                new NewAccount(0, "JD6100", "54321", "Jane Smith", 500, "Active"));
+
+        //When numbers are requested, 7 and 8 are to be returned, and the database is to refuse the second login
+        when(allocator_mock.next(2)).thenReturn(new int[] {7, 8});
+        when(db_manager_mock.createNewAccounts(List.of(drafts.get(0).withAccountNumber(7).withPin("hash-12345"),
+                drafts.get(1).withAccountNumber(8).withPin("hash-54321")))).thenReturn(new int[] {7, -2});
+
+        List<CreationResult> results = allocating_service.createAccounts(drafts);
+
+        //When createAccounts() is called, each account should reach the repository numbered and with its pin
+        //already hashed, and get its own result
+        assertEquals(CreationResult.Status.SUCCESS, results.get(0).getStatus());
+        assertEquals(7, results.get(0).getAccountNumber());
+        assertEquals(CreationResult.Status.DUPLICATE_ACCOUNT, results.get(1).getStatus());
     }
 
+    @Test
+    void test_createAccounts_when_no_allocator_should_throw_IllegalStateException() {
+
+        //When createAccounts() is called without an allocator, an IllegalStateException should be thrown
+        assertThrows(IllegalStateException.class, () -> admin_service.createAccounts(List.of()));
+    }
 
     @Test
     void test_deleteAccount_when_confirmation_matches_should_return_success_DeletionResult() throws DatabaseException {
@@ -152,15 +247,27 @@ class AdminServiceTest {
         String new_login = "JD5500";
         String new_pin = "23456";
 
-        //When updateAccountInfo() is called by db_manager_mock, true is to be returned
-        when(db_manager_mock.updateAccountInfo(account_num, new_holder, new_status, new_login, new_pin)).thenReturn(true);
+        //When updateAccountInfo() is called by db_manager_mock with the new pin's hash, true is to be returned
+        when(db_manager_mock.updateAccountInfo(account_num, new_holder, new_status, new_login, "hash-" + new_pin))
+                .thenReturn(true);
 
         boolean result = admin_service.updateAccount(account_num, new_holder, new_status, new_login, new_pin);
 
         //When updateAccount() is called and account successfully updates, true should be returned. updateAccountInfo()
         //should also have been called once
         assertTrue(result);
-        verify(db_manager_mock, times(1)).updateAccountInfo(account_num, new_holder, new_status, new_login, new_pin);
+        verify(db_manager_mock, times(1)).updateAccountInfo(account_num, new_holder, new_status, new_login,
+                "hash-" + new_pin);
+    }
+
+    @Test
+    void test_updateAccount_when_pin_is_left_empty_should_not_hash_it() throws DatabaseException {
+
+        when(db_manager_mock.updateAccountInfo(3, "John Doe", "", "", "")).thenReturn(true);
+
+        //When no new pin is given, the empty field should reach the repository as it is, so the pin stays the same
+        assertTrue(admin_service.updateAccount(3, "John Doe", "", "", ""));
+        verify(pin_hasher_mock, never()).hash(anyString());
     }
 
 
@@ -201,4 +308,252 @@ class AdminServiceTest {
         verify(db_manager_mock, times(1)).getAccount(account_num);
     }
 
+    @Test
+    void test_enableSubBalances_when_successful_should_return_success_SubBalanceResult() throws DatabaseException {
+
+        //When db_manager_mock enables the slots, the slot count is to be returned
+        when(db_manager_mock.enableSubBalances(4, 8)).thenReturn(8);
+
+        SubBalanceResult result = admin_service.enableSubBalances(4, 8);
+
+        //When enableSubBalances() succeeds, a SUCCESS status should be returned
+        assertEquals(SubBalanceResult.Status.SUCCESS, result.getStatus());
+        assertEquals(8, result.getSlotCount());
+    }
+
+    @Test
+    void test_enableSubBalances_when_repository_reports_missing_or_enabled_should_return_matching_status() throws DatabaseException {
+
+        //When db_manager_mock is called, -1 is to be returned for account 4 and -2 for account 5
+        when(db_manager_mock.enableSubBalances(4, 8)).thenReturn(-1);
+        when(db_manager_mock.enableSubBalances(5, 8)).thenReturn(-2);
+
+        //When enableSubBalances() is called, the repository's codes should become the matching statuses
+        assertEquals(SubBalanceResult.Status.ACCOUNT_NOT_FOUND, admin_service.enableSubBalances(4, 8).getStatus());
+        assertEquals(SubBalanceResult.Status.ALREADY_ENABLED, admin_service.enableSubBalances(5, 8).getStatus());
+    }
+
+    @Test
+    void test_areSubBalancesAvailable_when_builder_says_so_should_report_it() {
+
+        //When nothing is said, sub-balances are offered; a repository without them turns them off
+        assertTrue(admin_service.areSubBalancesAvailable());
+        assertFalse(AdminService.builder(db_manager_mock, pin_hasher_mock).subBalancesAvailable(false).build()
+                .areSubBalancesAvailable());
+    }
+
+    @Test
+    void test_enableSubBalances_when_slot_count_out_of_range_should_not_touch_database() throws DatabaseException {
+
+        //When enableSubBalances() is called with too few or too many slots, INVALID_SLOT_COUNT should be returned
+        assertEquals(SubBalanceResult.Status.INVALID_SLOT_COUNT, admin_service.enableSubBalances(4, 1).getStatus());
+        assertEquals(SubBalanceResult.Status.INVALID_SLOT_COUNT,
+                admin_service.enableSubBalances(4, DatabaseManager.MAX_SUB_BALANCE_SLOTS + 1).getStatus());
+        verifyNoInteractions(db_manager_mock);
+    }
+
+    @Test
+    void test_getActivityReport_should_read_daily_totals_for_the_whole_month() throws DatabaseException {
+
+        List<ActivityTotals> days = List.of(new ActivityTotals(LocalDate.of(2025, 2, 3), 4, 5, 500, 2, 80));
+        when(db_manager_mock.getActivityTotals(RollupPeriod.DAY, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 3, 1)))
+                .thenReturn(days);
+
+        //When getActivityReport() is called, the daily rollup totals from the first to the last day are returned
+        assertEquals(days, admin_service.getActivityReport(YearMonth.of(2025, 2)));
+    }
+
+    @Test
+    void test_getHotAccounts_when_tracker_is_configured_should_return_its_top_k() {
+
+        HeavyHitterTracker tracker_mock = mock(HeavyHitterTracker.class);
+        List<HotAccount> top = List.of(new HotAccount(7, 40), new HotAccount(3, 12));
+        when(tracker_mock.getTopK()).thenReturn(top);
+        when(tracker_mock.getWindowMs()).thenReturn(3_600_000L);
+        admin_service = AdminService.builder(db_manager_mock, pin_hasher_mock).hotAccounts(tracker_mock).build();
+
+        //When a tracker is configured, its top accounts and window should be reported as they are
+        assertEquals(top, admin_service.getHotAccounts());
+        assertEquals(3_600_000L, admin_service.getHotAccountWindowMs());
+    }
+
+    @Test
+    void test_getHotAccounts_when_no_tracker_should_return_empty_list() {
+
+        //When no tracker is configured, there are no hot accounts to report
+        assertTrue(admin_service.getHotAccounts().isEmpty());
+        assertEquals(0, admin_service.getHotAccountWindowMs());
+    }
+
+    @Test
+    void test_searchHolders_when_index_is_configured_should_return_the_requested_page() {
+
+        //The index is to hold 12 Smiths, so the second page holds the last two
+        HolderNameIndex index = new HolderNameIndex();
+        for (int i = 1; i <= 12; i++) {
+
+            index.put(i, "Pat Smith");
+        }
+        admin_service = AdminService.builder(db_manager_mock, pin_hasher_mock).holderIndex(index).build();
+
+        HolderSearchResult result = admin_service.searchHolders("smi", 1);
+
+        //When the second page is asked for, it should hold the matches after the first HOLDER_PAGE_SIZE, and the
+        //database should not be asked
+        assertEquals(List.of(11, 12), result.matches().stream().map(HolderMatch::account_num).toList());
+        assertEquals(12, result.total_matches());
+        verifyNoInteractions(db_manager_mock);
+    }
+
+    @Test
+    void test_searchHolders_when_no_index_should_return_EMPTY() {
+
+        //When no index is configured, a name search finds nothing
+        assertEquals(HolderSearchResult.EMPTY, admin_service.searchHolders("smith", 0));
+    }
+
+    @Test
+    void test_findByBalance_when_index_is_configured_should_return_the_page_after_the_given_entry() {
+
+        //The index is to hold 12 active accounts with balances 10 to 120, and one disabled account
+        BalanceRangeIndex index = new BalanceRangeIndex();
+        for (int i = 1; i <= 12; i++) {
+
+            index.put(i, "Active", i * 10);
+        }
+        index.put(13, "Disabled", 50);
+        admin_service = AdminService.builder(db_manager_mock, pin_hasher_mock).balanceIndex(index).build();
+
+        BalanceRangePage result = admin_service.findByBalance("Active", 0, 200, new BalanceEntry(1, 10));
+
+        //When the page after account 1 is asked for, it should hold the next BALANCE_PAGE_SIZE active accounts,
+        //and the database should not be asked
+        assertEquals(AdminService.BALANCE_PAGE_SIZE, result.entries().size());
+        assertEquals(new BalanceEntry(2, 20), result.entries().get(0));
+        assertTrue(result.has_more());
+        verifyNoInteractions(db_manager_mock);
+    }
+
+    @Test
+    void test_findByBalance_when_no_index_should_return_EMPTY() {
+
+        //When no index is configured, a balance query finds nothing
+        assertEquals(BalanceRangePage.EMPTY, admin_service.findByBalance("Active", 0, 100, null));
+    }
+
+    @Test
+    void test_getDashboard_when_counters_are_configured_should_read_them_without_the_database() {
+
+        //The index is to hold two active accounts and a disabled one, and today has seen one deposit
+        BalanceRangeIndex index = new BalanceRangeIndex();
+        index.put(1, "Active", 100);
+        index.put(2, "Active", 250);
+        index.put(3, "Disabled", 40);
+        ActivityCounters activity = new ActivityCounters();
+        activity.record(TransactionType.DEPOSIT, 75);
+        admin_service = AdminService.builder(db_manager_mock, pin_hasher_mock).balanceIndex(index)
+                .activity(activity).build();
+
+        Dashboard dashboard = admin_service.getDashboard();
+
+        //When the dashboard is asked for, it should total each status and today's activity from memory
+        assertEquals(List.of(new StatusTotals("Active", 2, 350), new StatusTotals("Disabled", 1, 40)),
+                dashboard.statuses());
+        assertEquals(3, dashboard.accounts());
+        assertEquals(390, dashboard.balance_total());
+        assertEquals(new DailyActivity(LocalDate.now(), 1, 75, 0, 0), dashboard.today());
+        assertNull(dashboard.checkpoint_at());
+        verifyNoInteractions(db_manager_mock);
+    }
+
+    @Test
+    void test_getDashboard_when_no_counters_should_return_null() {
+
+        //When the counters are not configured, there is no dashboard
+        assertNull(admin_service.getDashboard());
+        assertNull(AdminService.builder(db_manager_mock, pin_hasher_mock).balanceIndex(new BalanceRangeIndex()).build()
+                .getDashboard());
+    }
+
+    @Test
+    void test_exportAccounts_when_accounts_exist_should_write_csv_and_return_count() throws DatabaseException, IOException {
+
+        //db_manager is mocked to return two accounts, one of which has a comma in the holder's name
+        when(db_manager_mock.getAllAccounts()).thenReturn(List.of(
+                new Account(1, "John Doe", 1250, "Active"),
+                new Account(2, "Doe, Jane", 40, "Disabled")));
+
+        StringWriter writer = new StringWriter();
+        int exported = admin_service.exportAccounts(writer);
+
+        //When exportAccounts() is called, both accounts should be written under the header, with the second holder's
+        //name quoted, and the number of exported accounts should be returned
+        assertEquals(2, exported);
+        assertEquals("account_num,holder,balance,status\n" +
+                "1,John Doe,1250,Active\n" +
+                "2,\"Doe, Jane\",40,Disabled\n", writer.toString());
+    }
+
+    @Test
+    void test_readAccountList_when_file_has_comments_duplicates_and_bad_lines_should_keep_each_number_once() throws IOException {
+
+        //The list has a comment, a blank line, a duplicate, a word, a negative number and padded numbers
+        StringReader reader = new StringReader("# branch 4\n12\n\n7\n12\nseven\n-3\n  40  \n");
+
+        AccountList account_list = admin_service.readAccountList(reader);
+
+        //When readAccountList() is called, each account number should be kept once in the order first listed, and
+        //the word and negative number counted as skipped
+        assertArrayEquals(new int[] {12, 7, 40}, account_list.account_nums());
+        assertEquals(2, account_list.skipped_lines());
+    }
+
+    @Test
+    void test_readNewAccounts_when_file_has_comments_and_bad_lines_should_skip_and_count_them() throws IOException {
+
+        //The file has a comment, a blank line, a short pin, a negative balance, an unknown status, a missing field
+        //and two valid accounts, one of them with a comma in the holder's name
+        StringReader reader = new StringReader("# login,pin,balance,status,holder\n" +
+                "jdoe, 12345, 100, active, John Doe\n\n" +
+                "short,123,10,Active,Short Pin\n" +
+                "neg,12345,-5,Active,Negative\n" +
+                "odd,12345,10,Frozen,Odd Status\n" +
+                "missing,12345,10,Active\n" +
+                "asmith,54321,0,Disabled,Smith, Ann\n");
+
+        NewAccountList new_account_list = admin_service.readNewAccounts(reader);
+
+        //When readNewAccounts() is called, only the two valid accounts should be kept, unnumbered and in order
+        assertEquals(List.of(new NewAccount(0, "jdoe", "12345", "John Doe", 100, "Active"),
+                new NewAccount(0, "asmith", "54321", "Smith, Ann", 0, "Disabled")), new_account_list.accounts());
+        assertEquals(4, new_account_list.skipped_lines());
+    }
+
+    @Test
+    void test_getAccounts_should_return_accounts_found_by_the_repository() throws DatabaseException {
+
+        Map<Integer, Account> accounts = Map.of(3, new Account(3, "John Doe", 10, "Active"));
+        when(db_manager_mock.getAccounts(new int[] {3, 4})).thenReturn(accounts);
+
+        //When getAccounts() is called, the repository's accounts should be returned as they are
+        assertEquals(accounts, admin_service.getAccounts(new int[] {3, 4}));
+    }
+
+    @Test
+    void test_updateAccounts_should_map_each_repository_code_to_a_BulkUpdateResult() throws DatabaseException {
+
+        //db_manager is mocked to report one update, one missing account and one failed batch
+        when(db_manager_mock.updateAccounts(new int[] {5, 6, 7}, "", "Disabled")).thenReturn(new int[] {1, 0, -1});
+
+        List<BulkUpdateResult> results = admin_service.updateAccounts(new int[] {5, 6, 7}, "", "Disabled");
+
+        //When updateAccounts() is called, each account should get the result matching its code, in order
+        assertEquals(3, results.size());
+        assertEquals(BulkUpdateResult.Status.UPDATED, results.get(0).getStatus());
+        assertEquals(5, results.get(0).getAccountNumber());
+        assertEquals(BulkUpdateResult.Status.NOT_FOUND, results.get(1).getStatus());
+        assertEquals(6, results.get(1).getAccountNumber());
+        assertEquals(BulkUpdateResult.Status.FAILED, results.get(2).getStatus());
+        assertEquals(7, results.get(2).getAccountNumber());
+    }
 }
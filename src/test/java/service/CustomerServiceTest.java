@@ -1,7 +1,11 @@
 package service;
 
 import model.account.Account;
+import model.transaction.ActivitySummary;
 import model.transaction.DepositResult;
+import model.transaction.RollupPeriod;
+import model.transaction.StatementResult;
+import model.transaction.TransactionType;
 import model.transaction.WithdrawalResult;
 import model.user.Customer;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,8 +13,16 @@ import org.junit.jupiter.api.Test;
 import repository.DatabaseManager;
 import repository.exception.DatabaseException;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class CustomerServiceTest {
@@ -43,10 +55,10 @@ class CustomerServiceTest {
         WithdrawalResult result = customer_service.withdrawCash(customer_mock, 100);
 
         //When withdrawCash() is called and runs successfully, a WithdrawalResult object should be returned with
-        //a SUCCESS status; account numbers should also match, and updateAccountBalance() should have been called once
+        //a SUCCESS status; account numbers should also match, and applyTransaction() should have been called once
         assertEquals(WithdrawalResult.Status.SUCCESS, result.getStatus());
         assertEquals(1, result.getAccount().getAccountNumber());
-        verify(db_manager_mock, times(1)).updateAccountBalance(1, 900);
+        verify(db_manager_mock, times(1)).applyTransaction(1, 900, TransactionType.WITHDRAWAL, 100);
     }
 
     @Test
@@ -92,10 +104,10 @@ class CustomerServiceTest {
         DepositResult result = customer_service.depositCash(customer_mock, 100);
 
         //When depositCash() is called and runs successfully, a DepositResult object should be returned with
-        //a SUCCESS status; account numbers should also match, and updateAccountBalance() should have been called once
+        //a SUCCESS status; account numbers should also match, and applyTransaction() should have been called once
         assertEquals(DepositResult.Status.SUCCESS, result.getStatus());
         assertEquals(17, result.getAccount().getAccountNumber());
-        verify(db_manager_mock, times(1)).updateAccountBalance(17, 1100);
+        verify(db_manager_mock, times(1)).applyTransaction(17, 1100, TransactionType.DEPOSIT, 100);
     }
 
     @Test
@@ -111,4 +123,139 @@ class CustomerServiceTest {
         assertEquals(DepositResult.Status.ACCOUNT_NOT_FOUND, result.getStatus());
         assertNull(result.getAccount());
     }
+
+    @Test
+    void test_withdrawCash_when_balance_update_fails_should_restore_account_balance_and_rethrow() throws DatabaseException {
+
+        //A real account is used so that its balance can be checked after the failed update
+        Account account = new Account(3, "John Doe", 500, "Active");
+        when(customer_mock.getAccount()).thenReturn(account);
+        doThrow(new DatabaseException("Error updating account balance", null))
+                .when(db_manager_mock).applyTransaction(3, 400, TransactionType.WITHDRAWAL, 100);
+
+        //When the database rejects the new balance, the exception should reach the caller and the account
+        //should be left with its original balance
+        assertThrows(DatabaseException.class, () -> customer_service.withdrawCash(customer_mock, 100));
+        assertEquals(500, account.getBalance());
+    }
+
+    @Test
+    void test_depositCash_when_balance_update_fails_should_restore_account_balance_and_rethrow() throws DatabaseException {
+
+        Account account = new Account(3, "John Doe", 500, "Active");
+        when(customer_mock.getAccount()).thenReturn(account);
+        doThrow(new DatabaseException("Error updating account balance", null))
+                .when(db_manager_mock).applyTransaction(3, 600, TransactionType.DEPOSIT, 100);
+
+        //When the database rejects the new balance, the deposit should be undone on the account
+        assertThrows(DatabaseException.class, () -> customer_service.depositCash(customer_mock, 100));
+        assertEquals(500, account.getBalance());
+    }
+
+
+    @Test
+    void test_withdrawCash_when_sub_balances_cannot_cover_amount_should_return_insufficient_funds_and_restore_balance() throws DatabaseException {
+
+        //A real account is used; the session thinks it holds 500, but its sub-balances hold less
+        Account account = new Account(3, "Merchant Float", 500, "Active");
+        when(customer_mock.getAccount()).thenReturn(account);
+        when(db_manager_mock.applyTransaction(3, 400, TransactionType.WITHDRAWAL, 100)).thenReturn(-1);
+
+        WithdrawalResult result = customer_service.withdrawCash(customer_mock, 100);
+
+        //When the database reports -1, the withdrawal should be refused and the session balance left as it was
+        assertEquals(WithdrawalResult.Status.INSUFFICIENT_FUNDS, result.getStatus());
+        assertEquals(500, account.getBalance());
+    }
+
+    @Test
+    void test_depositCash_when_database_reports_different_total_should_keep_database_balance() throws DatabaseException {
+
+        //A real account is used; other sessions have added 250 to its sub-balances since this one loaded it
+        Account account = new Account(3, "Merchant Float", 500, "Active");
+        when(customer_mock.getAccount()).thenReturn(account);
+        when(db_manager_mock.applyTransaction(3, 600, TransactionType.DEPOSIT, 100)).thenReturn(850);
+
+        customer_service.depositCash(customer_mock, 100);
+
+        //When depositCash() succeeds, the account should show the balance the database reported
+        assertEquals(850, account.getBalance());
+    }
+
+    @Test
+    void test_withdrawCash_when_account_was_deleted_should_return_account_not_found_and_restore_balance() throws DatabaseException {
+
+        //A real account is used; it is deleted by an administrator while the session holds it
+        Account account = new Account(3, "John Doe", 500, "Active");
+        when(customer_mock.getAccount()).thenReturn(account);
+        when(db_manager_mock.applyTransaction(3, 400, TransactionType.WITHDRAWAL, 100)).thenReturn(-2);
+
+        WithdrawalResult result = customer_service.withdrawCash(customer_mock, 100);
+
+        //When the database reports -2, the account should be reported missing and the cash put back
+        assertEquals(WithdrawalResult.Status.ACCOUNT_NOT_FOUND, result.getStatus());
+        assertEquals(500, account.getBalance());
+    }
+
+    @Test
+    void test_depositCash_when_account_was_deleted_should_return_account_not_found_and_restore_balance() throws DatabaseException {
+
+        Account account = new Account(3, "John Doe", 500, "Active");
+        when(customer_mock.getAccount()).thenReturn(account);
+        when(db_manager_mock.applyTransaction(3, 600, TransactionType.DEPOSIT, 100)).thenReturn(-2);
+
+        DepositResult result = customer_service.depositCash(customer_mock, 100);
+
+        //When the database reports -2, the account should be reported missing and the deposit undone
+        assertEquals(DepositResult.Status.ACCOUNT_NOT_FOUND, result.getStatus());
+        assertEquals(500, account.getBalance());
+    }
+
+    @Test
+    void test_getMonthlyStatement_when_month_had_activity_should_return_month_and_day_rollups() throws DatabaseException {
+
+        ActivitySummary month = new ActivitySummary(LocalDate.of(2025, 3, 1), 2, 300, 1, 50, 1_250);
+        ActivitySummary day = new ActivitySummary(LocalDate.of(2025, 3, 4), 2, 300, 1, 50, 1_250);
+        when(customer_mock.getAccount()).thenReturn(account_mock);
+        when(account_mock.getAccountNumber()).thenReturn(1);
+        when(db_manager_mock.getActivitySummaries(1, RollupPeriod.MONTH, LocalDate.of(2025, 3, 1),
+                LocalDate.of(2025, 4, 1))).thenReturn(List.of(month));
+        when(db_manager_mock.getActivitySummaries(1, RollupPeriod.DAY, LocalDate.of(2025, 3, 1),
+                LocalDate.of(2025, 4, 1))).thenReturn(List.of(day));
+
+        StatementResult result = customer_service.getMonthlyStatement(customer_mock, YearMonth.of(2025, 3));
+
+        //When getMonthlyStatement() is called, the month's rollup and its days should be returned, read from the
+        //rollups rather than the ledger
+        assertEquals(StatementResult.Status.SUCCESS, result.getStatus());
+        assertEquals(month, result.getMonthSummary());
+        assertEquals(List.of(day), result.getDays());
+        verify(db_manager_mock, never()).getTransactionHistory(anyInt(), any(), any());
+    }
+
+    @Test
+    void test_getMonthlyStatement_when_month_had_no_activity_should_return_no_activity() throws DatabaseException {
+
+        when(customer_mock.getAccount()).thenReturn(account_mock);
+        when(account_mock.getAccountNumber()).thenReturn(1);
+        when(db_manager_mock.getActivitySummaries(eq(1), eq(RollupPeriod.MONTH), any(), any())).thenReturn(List.of());
+
+        StatementResult result = customer_service.getMonthlyStatement(customer_mock, YearMonth.of(2025, 3));
+
+        //When the month has no rollup row, the days are not looked up at all
+        assertEquals(StatementResult.Status.NO_ACTIVITY, result.getStatus());
+        assertNull(result.getMonthSummary());
+        verify(db_manager_mock, never()).getActivitySummaries(anyInt(), eq(RollupPeriod.DAY), any(), any());
+    }
+
+    @Test
+    void test_getMonthlyStatement_when_account_does_not_exist_should_return_account_not_found() throws DatabaseException {
+
+        when(customer_mock.getAccount()).thenReturn(null);
+
+        StatementResult result = customer_service.getMonthlyStatement(customer_mock, YearMonth.of(2025, 3));
+
+        assertEquals(StatementResult.Status.ACCOUNT_NOT_FOUND, result.getStatus());
+        verifyNoInteractions(db_manager_mock);
+    }
 }
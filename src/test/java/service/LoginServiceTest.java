@@ -0,0 +1,113 @@
+package service;
+
+import model.account.Account;
+import model.account.AccountLimits;
+import model.session.SessionContext;
+import model.user.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.DatabaseManager;
+import repository.credential.CredentialVerifier;
+import repository.credential.PinHasher;
+import repository.credential.VerifiedCredentialCache;
+import repository.exception.DatabaseException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LoginServiceTest {
+
+    private DatabaseManager db_manager_mock;
+
+    //A cheap hash cost keeps the tests fast; the cost does not change what is stored or checked
+    private PinHasher pin_hasher;
+    private CredentialVerifier credentials;
+    private LoginService login_service;
+
+    @BeforeEach
+    public void setUp() {
+
+        db_manager_mock = mock(DatabaseManager.class);
+        pin_hasher = new PinHasher(1_000);
+        credentials = new CredentialVerifier(pin_hasher, new VerifiedCredentialCache(100, 60_000));
+        login_service = new LoginService(db_manager_mock, credentials);
+    }
+
+    private SessionContext sessionWithPin(String stored_pin) {
+
+        Customer customer = new Customer("JD6100", stored_pin, new Account(1, "John Doe", 3000, "Active"));
+        return new SessionContext(customer, List.of(), AccountLimits.DEFAULT, 5);
+    }
+
+
+    @Test
+    void test_login_when_pin_matches_stored_hash_should_return_the_session() throws DatabaseException {
+
+        SessionContext session = sessionWithPin(pin_hasher.hash("12345"));
+        when(db_manager_mock.loadSession("JD6100")).thenReturn(session);
+
+        //When login() is called with the right pin, the repository's session should be returned, and a hash at
+        //the current cost should be left alone
+        assertSame(session, login_service.login("JD6100", "12345"));
+        verify(db_manager_mock, never()).replacePin(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void test_login_when_pin_does_not_match_should_return_null() throws DatabaseException {
+
+        when(db_manager_mock.loadSession("JD6100")).thenReturn(sessionWithPin(pin_hasher.hash("12345")));
+
+        //When login() is called with the wrong pin, no session should be returned
+        assertNull(login_service.login("JD6100", "54321"));
+    }
+
+    @Test
+    void test_login_when_login_is_unknown_should_return_null_without_running_the_kdf() throws DatabaseException {
+
+        when(db_manager_mock.loadSession("nobody")).thenReturn(null);
+
+        //When the repository finds no session, there is no stored hash to check against
+        assertNull(login_service.login("nobody", "12345"));
+        assertEquals(0, credentials.getKdfRuns());
+    }
+
+    @Test
+    void test_login_when_same_login_repeats_should_run_kdf_once() throws DatabaseException {
+
+        when(db_manager_mock.loadSession("JD6100")).thenReturn(sessionWithPin(pin_hasher.hash("12345")));
+
+        login_service.login("JD6100", "12345");
+        login_service.login("JD6100", "12345");
+
+        //When the same login succeeds twice, the second check should come from the cache of verified logins
+        assertEquals(1, credentials.getKdfRuns());
+        assertEquals(1, credentials.getCache().getHits());
+    }
+
+    @Test
+    void test_login_when_pin_stored_in_plain_text_should_replace_it_with_a_hash() throws DatabaseException {
+
+        when(db_manager_mock.loadSession("JD6100")).thenReturn(sessionWithPin("12345"));
+
+        //When a plain-text pin matches, the login should succeed and the pin should be replaced by its hash, but
+        //only over the value that was checked
+        assertNotNull(login_service.login("JD6100", "12345"));
+        verify(db_manager_mock).replacePin(eq("JD6100"), eq("12345"),
+                argThat(stored -> PinHasher.isHashed(stored) && pin_hasher.verify("12345", stored)));
+    }
+
+    @Test
+    void test_login_when_replacing_the_pin_fails_should_still_log_in() throws DatabaseException {
+
+        SessionContext session = sessionWithPin("12345");
+        when(db_manager_mock.loadSession("JD6100")).thenReturn(session);
+        when(db_manager_mock.replacePin(anyString(), anyString(), anyString()))
+                .thenThrow(new DatabaseException("Error replacing the pin for login: JD6100", null));
+
+        //When the upgrade fails, the login itself should not
+        assertSame(session, login_service.login("JD6100", "12345"));
+    }
+}
@@ -0,0 +1,70 @@
+package service.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpiringMapTest {
+
+    //A value that expires at a fixed time, and may be protected from early eviction
+    private static final class Value implements ExpiringMap.Expirable {
+
+        private final long expires_at;
+        private final boolean important;
+
+        private Value(long expires_at, boolean important) {
+
+            this.expires_at = expires_at;
+            this.important = important;
+        }
+
+        @Override
+        public boolean isExpired(long now) {
+
+            return now >= expires_at;
+        }
+    }
+
+    @Test
+    public void test_getOrCreate_when_key_present_should_return_same_value() {
+
+        ExpiringMap<String, Value> map = new ExpiringMap<>(10, value -> false);
+        Value first = map.getOrCreate("a", key -> new Value(100, false), 0);
+
+        //When the key is asked for again, the existing value should be returned
+        assertSame(first, map.getOrCreate("a", key -> new Value(100, false), 0));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void test_getOrCreate_when_full_should_sweep_expired_values_first() {
+
+        ExpiringMap<String, Value> map = new ExpiringMap<>(2, value -> false);
+        map.getOrCreate("old", key -> new Value(50, false), 0);
+        map.getOrCreate("live", key -> new Value(500, false), 0);
+
+        map.getOrCreate("new", key -> new Value(500, false), 100);
+
+        //When the map is full, the expired value should make room without counting as an eviction
+        assertNull(map.get("old"));
+        assertNotNull(map.get("live"));
+        assertNotNull(map.get("new"));
+        assertEquals(0, map.getEvictions());
+    }
+
+    @Test
+    public void test_getOrCreate_when_full_of_live_values_should_evict_unprotected_before_protected() {
+
+        ExpiringMap<String, Value> map = new ExpiringMap<>(2, value -> value.important);
+        map.getOrCreate("important", key -> new Value(500, true), 0);
+        map.getOrCreate("ordinary", key -> new Value(500, false), 0);
+
+        map.getOrCreate("new", key -> new Value(500, false), 100);
+
+        //When nothing has expired, the unprotected value should be evicted and the protected one kept
+        assertNotNull(map.get("important"));
+        assertNull(map.get("ordinary"));
+        assertEquals(1, map.getEvictions());
+        assertEquals(2, map.size());
+    }
+}
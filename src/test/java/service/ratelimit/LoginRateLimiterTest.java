@@ -0,0 +1,125 @@
+package service.ratelimit;
+
+import model.user.LoginPermit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoginRateLimiterTest {
+
+    private AtomicLong now;
+    private LoginRateLimiter rate_limiter;
+
+    @BeforeEach
+    public void setUp() {
+
+        //3 quick attempts per login then 1 per second; 10 per terminal then 1 per 100ms; 3 failures lock a login
+        //for 10 seconds, doubling up to 30 seconds; logins are forgotten after a minute alone
+        now = new AtomicLong(0);
+        rate_limiter = new LoginRateLimiter(3, 1000, 10, 100, 3, 10_000, 30_000, 100, 60_000, now::get);
+    }
+
+
+    @Test
+    public void test_tryAcquire_when_login_burst_used_should_throttle_login() {
+
+        for (int i = 0; i < 3; i++) {
+
+            assertTrue(rate_limiter.tryAcquire("terminal-1", "john_doe").isAllowed());
+        }
+
+        LoginPermit permit = rate_limiter.tryAcquire("terminal-1", "john_doe");
+
+        //When a login is tried faster than its bucket refills, the attempt should be throttled, other logins not
+        assertEquals(LoginPermit.Status.THROTTLED, permit.getStatus());
+        assertEquals(1000, permit.getRetryAfterMs());
+        assertTrue(rate_limiter.tryAcquire("terminal-1", "jane_doe").isAllowed());
+        assertEquals(1, rate_limiter.getThrottledCount());
+        assertEquals(4, rate_limiter.getAllowedCount());
+    }
+
+    @Test
+    public void test_tryAcquire_when_terminal_burst_used_should_throttle_every_login_from_it() {
+
+        for (int i = 0; i < 10; i++) {
+
+            assertTrue(rate_limiter.tryAcquire("terminal-1", "login_" + i).isAllowed());
+        }
+
+        //When one terminal tries many different logins, it should be throttled, while other terminals are not
+        assertEquals(LoginPermit.Status.THROTTLED, rate_limiter.tryAcquire("terminal-1", "login_10").getStatus());
+        assertTrue(rate_limiter.tryAcquire("terminal-2", "login_10").isAllowed());
+    }
+
+    @Test
+    public void test_recordFailure_when_threshold_reached_should_lock_login() {
+
+        for (int i = 0; i < 3; i++) {
+
+            rate_limiter.recordFailure("john_doe");
+        }
+
+        LoginPermit permit = rate_limiter.tryAcquire("terminal-1", "john_doe");
+
+        //When a login fails 3 times in a row, it should be locked out for the base lockout time
+        assertEquals(LoginPermit.Status.LOCKED_OUT, permit.getStatus());
+        assertEquals(10_000, permit.getRetryAfterMs());
+        assertEquals(1, rate_limiter.getLockoutsStarted());
+        assertEquals(1, rate_limiter.getLockedOutCount());
+        assertEquals(1, rate_limiter.getRejectedCount());
+
+        //Once the lockout is over, attempts should be allowed again
+        now.set(10_000);
+        assertTrue(rate_limiter.tryAcquire("terminal-1", "john_doe").isAllowed());
+    }
+
+    @Test
+    public void test_recordFailure_when_locked_out_again_should_double_lockout_up_to_max() {
+
+        long[] expected = {10_000, 20_000, 30_000, 30_000};
+
+        for (long lockout : expected) {
+
+            for (int i = 0; i < 3; i++) {
+
+                rate_limiter.recordFailure("john_doe");
+            }
+
+            //When each further lockout starts, it should last twice as long as the last, but never past the max
+            assertEquals(lockout, rate_limiter.tryAcquire("terminal-1", "john_doe").getRetryAfterMs());
+            now.addAndGet(lockout);
+        }
+    }
+
+    @Test
+    public void test_recordSuccess_when_called_should_reset_failures_and_escalation() {
+
+        rate_limiter.recordFailure("john_doe");
+        rate_limiter.recordFailure("john_doe");
+        rate_limiter.recordSuccess("john_doe");
+        rate_limiter.recordFailure("john_doe");
+
+        //When a login succeeds, its earlier failures should no longer count towards a lockout
+        assertTrue(rate_limiter.tryAcquire("terminal-1", "john_doe").isAllowed());
+        assertEquals(0, rate_limiter.getLockoutsStarted());
+    }
+
+    @Test
+    public void test_tryAcquire_when_many_logins_tried_should_keep_tracked_logins_bounded() {
+
+        LoginRateLimiter small_limiter = new LoginRateLimiter(3, 1000, 1000, 1, 3, 10_000, 30_000, 50, 60_000, now::get);
+
+        for (int i = 0; i < 200; i++) {
+
+            small_limiter.tryAcquire("terminal-1", "login_" + i);
+        }
+
+        //When more logins are tried than can be tracked, the oldest should be dropped to stay within the bound
+        assertTrue(small_limiter.getTrackedLogins() <= 50);
+        assertTrue(small_limiter.getEvictions() > 0);
+        assertEquals(1, small_limiter.getTrackedTerminals());
+    }
+}
@@ -0,0 +1,80 @@
+package service.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+    @Test
+    public void test_tryTake_when_burst_used_should_return_wait_until_next_token() {
+
+        TokenBucket bucket = new TokenBucket(3, 1000, 0);
+
+        //When three tokens are taken at once, the fourth should have to wait a full refill
+        assertEquals(0, bucket.tryTake(0));
+        assertEquals(0, bucket.tryTake(0));
+        assertEquals(0, bucket.tryTake(0));
+        assertEquals(1000, bucket.tryTake(0));
+        assertEquals(400, bucket.tryTake(600));
+    }
+
+    @Test
+    public void test_tryTake_when_time_passes_should_refill_one_token_per_interval() {
+
+        TokenBucket bucket = new TokenBucket(2, 1000, 0);
+        bucket.tryTake(0);
+        bucket.tryTake(0);
+
+        //When one refill interval passes, exactly one more token should be available
+        assertEquals(0, bucket.tryTake(1000));
+        assertTrue(bucket.tryTake(1000) > 0);
+    }
+
+    @Test
+    public void test_isFull_when_refilled_should_return_true() {
+
+        TokenBucket bucket = new TokenBucket(2, 1000, 0);
+        bucket.tryTake(0);
+
+        //When the taken token has been given back, the bucket should be full again
+        assertFalse(bucket.isFull(500));
+        assertTrue(bucket.isFull(1000));
+    }
+
+    @Test
+    public void test_tryTake_when_many_threads_take_at_once_should_never_exceed_capacity() throws InterruptedException {
+
+        TokenBucket bucket = new TokenBucket(50, 60_000, 0);
+        AtomicInteger taken = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int i = 0; i < 400; i++) {
+
+            executor.submit(() -> {
+
+                if (bucket.tryTake(0) == 0) {
+
+                    taken.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        //When 400 takes race for 50 tokens, exactly 50 should succeed
+        assertEquals(50, taken.get());
+    }
+
+    @Test
+    public void test_constructor_when_arguments_invalid_should_throw_IllegalArgumentException() {
+
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1000, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0, 0));
+    }
+}
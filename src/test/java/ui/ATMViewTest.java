@@ -7,7 +7,10 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.PipedReader;
+import java.io.PipedWriter;
 import java.io.PrintStream;
+import java.time.YearMonth;
 import java.util.Scanner;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -175,6 +178,44 @@ class ATMViewTest {
         assertEquals(5000, result);
     }
 
+    @Test
+    void test_promptMinimumBalance_when_given_non_numeric_and_then_negative_value_should_notify_user_and_then_accept_third_input() {
+
+        //A non-numeric value is inputted first, then a negative one, then a valid one
+        ByteArrayInputStream input = new ByteArrayInputStream("lots\n-1\n250\n".getBytes());
+        Scanner scanner = new Scanner(input);
+
+        ATMView atm_view = new ATMView(scanner);
+        ByteArrayOutputStream output_stream = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output_stream));
+        int result = atm_view.promptMinimumBalance();
+
+        //When promptMinimumBalance() is run and the user input is fed, the following assertions should be true
+        String output = output_stream.toString();
+        assertTrue(output.contains("Invalid input. Please enter a valid integer."));
+        assertTrue(output.contains("The balance must be 0 or more. Please try again."));
+        assertEquals(250, result);
+    }
+
+    @Test
+    void test_promptMaximumBalance_when_given_non_numeric_value_and_then_minus_1_should_notify_user_and_then_return_no_limit() {
+
+        //A non-numeric value is inputted first, then -1 for no limit
+        ByteArrayInputStream input = new ByteArrayInputStream("none\n-1\n".getBytes());
+        Scanner scanner = new Scanner(input);
+
+        ATMView atm_view = new ATMView(scanner);
+        ByteArrayOutputStream output_stream = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output_stream));
+        int result = atm_view.promptMaximumBalance();
+
+        //When promptMaximumBalance() is run and the user input is fed, the following assertions should be true
+        String output = output_stream.toString();
+        assertTrue(output.contains("Enter the highest balance to list, or -1 for no limit:"));
+        assertTrue(output.contains("Invalid input. Please enter a valid integer."));
+        assertEquals(-1, result);
+    }
+
     @Test
     void test_promptAccountStatus_when_given_invalid_string_and_then_Y_string_should_notify_user_and_then_return_true() {
 
@@ -267,7 +308,8 @@ class ATMViewTest {
         assertTrue(output.contains("1----Withdraw Cash"));
         assertTrue(output.contains("2----Deposit Cash"));
         assertTrue(output.contains("3----Display Balance"));
-        assertTrue(output.contains("4----Exit"));
+        assertTrue(output.contains("4----Monthly Statement"));
+        assertTrue(output.contains("5----Exit"));
     }
 
     @Test
@@ -286,7 +328,16 @@ class ATMViewTest {
         assertTrue(output.contains("2----Delete Existing Account"));
         assertTrue(output.contains("3----Update Account Information"));
         assertTrue(output.contains("4----Search for Account"));
-        assertTrue(output.contains("5----Exit"));
+        assertTrue(output.contains("5----Export Accounts"));
+        assertTrue(output.contains("6----Enable Sub-Balances"));
+        assertTrue(output.contains("7----Activity Report"));
+        assertTrue(output.contains("8----Hot Accounts"));
+        assertTrue(output.contains("9----Bulk Account Operations"));
+        assertTrue(output.contains("10----Find Accounts by Name"));
+        assertTrue(output.contains("11----Accounts by Status and Balance"));
+        assertTrue(output.contains("12----Dashboard"));
+        assertTrue(output.contains("13----Create Accounts from File"));
+        assertTrue(output.contains("14----Exit"));
     }
 
     @Test
@@ -421,6 +472,138 @@ class ATMViewTest {
         assertTrue(output_stream.toString().contains("Account number must be greater than 0"));
     }
 
+    @Test
+    void test_promptExportPath_when_given_path_should_be_accurate_to_what_was_inputted() {
+
+        //ByteArrayInputStream is used to simulate a user inputting a file path into the console
+        ByteArrayInputStream input = new ByteArrayInputStream("accounts.csv\n".getBytes());
+        Scanner scanner = new Scanner(input);
+
+        ATMView atm_view = new ATMView(scanner);
+        String path = atm_view.promptExportPath();
+
+        //When promptExportPath() is run, the path returned should match the one entered
+        assertEquals("accounts.csv", path);
+        assertTrue(output_stream.toString().contains("Enter the file to export accounts to: "));
+    }
+
+    @Test
+    void test_displayBulkChoice_when_run_should_display_menu_for_bulk_operations() {
+
+        Scanner scanner = new Scanner(System.in);
+        ATMView atm_view = new ATMView(scanner);
+
+        atm_view.displayBulkChoice();
+
+        //When displayBulkChoice() is called, the output should list the three bulk operations
+        String output = output_stream.toString();
+        assertTrue(output.contains("1----Show Accounts"));
+        assertTrue(output.contains("2----Change Status"));
+        assertTrue(output.contains("3----Change Holder’s Name"));
+    }
+
+    @Test
+    void test_promptAccountListPath_when_given_path_should_be_accurate_to_what_was_inputted() {
+
+        //ByteArrayInputStream is used to simulate a user inputting a file path into the console
+        ByteArrayInputStream input = new ByteArrayInputStream("accounts.txt\n".getBytes());
+        Scanner scanner = new Scanner(input);
+
+        ATMView atm_view = new ATMView(scanner);
+        String path = atm_view.promptAccountListPath();
+
+        //When promptAccountListPath() is run, the path returned should match the one entered
+        assertEquals("accounts.txt", path);
+        assertTrue(output_stream.toString().contains("Enter the file listing the account numbers: "));
+    }
+
+    @Test
+    void test_promptNewAccountListPath_when_given_path_should_be_accurate_to_what_was_inputted() {
+
+        ByteArrayInputStream input = new ByteArrayInputStream("new_accounts.csv\n".getBytes());
+        Scanner scanner = new Scanner(input);
+
+        ATMView atm_view = new ATMView(scanner);
+        String path = atm_view.promptNewAccountListPath();
+
+        //When promptNewAccountListPath() is run, the path returned should match the one entered
+        assertEquals("new_accounts.csv", path);
+        assertTrue(output_stream.toString().contains("Enter the file listing the new accounts: "));
+    }
+
+    @Test
+    void test_promptHolderQuery_when_given_name_should_return_the_whole_line() {
+
+        //The first line is what is left of the menu choice, which the prompt skips
+        ByteArrayInputStream input = new ByteArrayInputStream("\njo smi\n".getBytes());
+        Scanner scanner = new Scanner(input);
+
+        ATMView atm_view = new ATMView(scanner);
+        String query = atm_view.promptHolderQuery();
+
+        //When promptHolderQuery() is run, the words entered should be returned together
+        assertEquals("jo smi", query);
+        assertTrue(output_stream.toString().contains("Enter all or part of the Holder's Name: "));
+    }
+
+    @Test
+    void test_promptPageAction_when_invalid_then_valid_should_return_lower_case_action() {
+
+        ByteArrayInputStream input = new ByteArrayInputStream("x\nN\n".getBytes());
+        Scanner scanner = new Scanner(input);
+
+        ATMView atm_view = new ATMView(scanner);
+        String action = atm_view.promptPageAction();
+
+        //When promptPageAction() is run, the invalid input should be refused and the next one returned lower-cased
+        assertEquals("n", action);
+        assertTrue(output_stream.toString().contains("Invalid input. Please enter 'N', 'P' or 'Q'."));
+    }
+
+    @Test
+    void test_promptMinimumBalance_when_negative_then_valid_should_return_valid_balance() {
+
+        ByteArrayInputStream input = new ByteArrayInputStream("-5\n200\n".getBytes());
+        Scanner scanner = new Scanner(input);
+
+        ATMView atm_view = new ATMView(scanner);
+        int balance = atm_view.promptMinimumBalance();
+
+        //When promptMinimumBalance() is run, the negative balance should be refused and the next one returned
+        assertEquals(200, balance);
+        assertTrue(output_stream.toString().contains("The balance must be 0 or more. Please try again."));
+    }
+
+    @Test
+    void test_promptMaximumBalance_when_below_minus_one_then_no_limit_should_return_minus_one() {
+
+        ByteArrayInputStream input = new ByteArrayInputStream("-2\n-1\n".getBytes());
+        Scanner scanner = new Scanner(input);
+
+        ATMView atm_view = new ATMView(scanner);
+        int balance = atm_view.promptMaximumBalance();
+
+        //When promptMaximumBalance() is run, -2 should be refused and -1 (no limit) returned
+        assertEquals(-1, balance);
+        assertTrue(output_stream.toString().contains("Enter the highest balance to list, or -1 for no limit: "));
+        assertTrue(output_stream.toString().contains("The balance must be 0 or more, or -1. Please try again."));
+    }
+
+    @Test
+    void test_promptMonth_when_invalid_then_valid_month_should_return_valid_month() {
+
+        //ByteArrayInputStream is used to simulate a user entering a malformed month and then a correct one
+        ByteArrayInputStream input = new ByteArrayInputStream("March\n2025-03\n".getBytes());
+        Scanner scanner = new Scanner(input);
+
+        ATMView atm_view = new ATMView(scanner);
+        YearMonth month = atm_view.promptMonth();
+
+        //When promptMonth() is run, the malformed month should be rejected and the correct one returned
+        assertEquals(YearMonth.of(2025, 3), month);
+        assertTrue(output_stream.toString().contains("Invalid month. Please enter it as YYYY-MM"));
+    }
+
     @Test
     void testShowAccountInfo() {
 
@@ -441,4 +624,43 @@ class ATMViewTest {
         assertTrue(output.contains("Login: JD5400"));
         assertTrue(output.contains("Pin Code: 87654"));
     }
+
+    @Test
+    void testShowAccountInfo_when_pin_is_hashed_should_not_print_hash() {
+
+        Account account_mock = new Account(3, "Jane Doe", 1500, "Active");
+        Customer user_mock = new Customer("JD5400", "pbkdf2-sha256$1000$c2FsdA$aGFzaA", account_mock);
+
+        ATMView atm_view = new ATMView(new Scanner(System.in));
+        ByteArrayOutputStream output_stream = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output_stream));
+
+        atm_view.showAccountInfo(account_mock, user_mock);
+
+        //When the stored pin is a hash, it should be reported as hashed rather than printed
+        String output = output_stream.toString();
+        assertTrue(output.contains("Pin Code: (stored hashed)"));
+        assertFalse(output.contains("pbkdf2"));
+    }
+
+
+    @Test
+    void test_resetInput_when_prompt_timed_out_should_read_next_input_on_fresh_scanner() throws Exception {
+
+        PipedWriter terminal = new PipedWriter();
+        IdleTimeoutReader input = new IdleTimeoutReader(new PipedReader(terminal), 50);
+        ATMView atm_view = new ATMView(input);
+
+        //When the idle timeout passes during a prompt, the prompt throws instead of waiting forever
+        atm_view.setIdleTimeoutArmed(true);
+        assertThrows(SessionTimeoutException.class, atm_view::promptLogin);
+
+        //When the view is reset and the next user types a login, it is read normally
+        atm_view.resetInput();
+        atm_view.setIdleTimeoutArmed(false);
+        terminal.write("john_doe\n");
+        terminal.flush();
+        assertEquals("john_doe", atm_view.promptLogin());
+        terminal.close();
+    }
 }
@@ -0,0 +1,144 @@
+package ui;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.StringReader;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdleTimeoutReaderTest {
+
+    private PipedWriter terminal;
+    private IdleTimeoutReader reader;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+
+        //The pipe stands in for the terminal, so each test decides when (and whether) the user types anything
+        terminal = new PipedWriter();
+        reader = new IdleTimeoutReader(new PipedReader(terminal), 50);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+
+        terminal.close();
+    }
+
+
+    @Test
+    public void test_read_when_input_arrives_should_return_it() throws IOException {
+
+        terminal.write("1234\n");
+        terminal.flush();
+
+        //When the user has typed a line, the Scanner on top of the reader sees it
+        assertEquals("1234", new Scanner(reader).next());
+    }
+
+    @Test
+    public void test_read_when_armed_and_idle_should_throw_session_timeout() {
+
+        reader.setArmed(true);
+        long started = System.nanoTime();
+
+        //When nothing is typed while the timeout is armed, the read gives up once the timeout has passed
+        assertThrows(SessionTimeoutException.class, () -> reader.read(new char[16], 0, 16));
+        assertTrue(System.nanoTime() - started >= 40_000_000L);
+        assertEquals(1, reader.getTimeouts());
+    }
+
+    @Test
+    public void test_read_when_not_armed_should_wait_past_the_timeout_for_input() throws Exception {
+
+        Thread typist = new Thread(() -> {
+
+            try {
+
+                Thread.sleep(150);
+                terminal.write("7\n");
+                terminal.flush();
+            }
+            catch (Exception error) {
+
+                throw new RuntimeException(error);
+            }
+        });
+        typist.start();
+
+        //When the timeout is not armed (the login screen), the read waits well past it for the next user
+        assertEquals(7, new Scanner(reader).nextInt());
+        assertEquals(0, reader.getTimeouts());
+        typist.join();
+    }
+
+    @Test
+    public void test_read_when_input_keeps_arriving_should_not_time_out() throws Exception {
+
+        reader.setArmed(true);
+        Scanner scanner = new Scanner(reader);
+
+        //When the user answers every prompt within the timeout, the session lasts longer than the timeout itself
+        for (int i = 0; i < 4; i++) {
+
+            Thread.sleep(25);
+            terminal.write(i + "\n");
+            terminal.flush();
+            assertEquals(i, scanner.nextInt());
+        }
+
+        assertEquals(0, reader.getTimeouts());
+    }
+
+    @Test
+    public void test_read_when_cancelled_should_throw_even_if_not_armed() throws Exception {
+
+        Thread canceller = new Thread(() -> {
+
+            try {
+
+                Thread.sleep(50);
+                reader.cancel();
+            }
+            catch (InterruptedException error) {
+
+                Thread.currentThread().interrupt();
+            }
+        });
+        canceller.start();
+
+        //When the read is cancelled from another thread, the waiting prompt ends straight away
+        assertThrows(SessionTimeoutException.class, () -> reader.read(new char[16], 0, 16));
+        canceller.join();
+    }
+
+    @Test
+    public void test_read_when_input_ends_should_return_end_of_input() throws IOException {
+
+        IdleTimeoutReader finished = new IdleTimeoutReader(new StringReader("ab"), 50);
+        char[] buffer = new char[16];
+
+        //When the terminal's input has ended, what was left is returned and then -1, never a timeout
+        finished.setArmed(true);
+        int read = 0;
+        int count;
+        while ((count = finished.read(buffer, read, buffer.length - read)) != -1) {
+
+            read += count;
+        }
+
+        assertEquals("ab", new String(buffer, 0, read));
+    }
+
+    @Test
+    public void test_constructor_when_timeout_not_positive_should_throw() {
+
+        assertThrows(IllegalArgumentException.class, () -> new IdleTimeoutReader(new StringReader(""), 0));
+    }
+}